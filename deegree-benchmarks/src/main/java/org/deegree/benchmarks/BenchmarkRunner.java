@@ -0,0 +1,105 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.benchmarks;
+
+import static org.openjdk.jmh.results.format.ResultFormatType.JSON;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks and writes the results as JMH JSON to <code>jmh-&lt;revision&gt;.json</code> in the working
+ * directory, so the files of two commits can be compared with {@link ResultComparison}.
+ * <p>
+ * The module is only built with the <code>benchmarks</code> profile (<code>mvn -Pbenchmarks package</code>), the start
+ * scripts are generated to <code>target/appassembler/bin</code>.
+ * </p>
+ * <p>
+ * All JMH command line options are supported, e.g. <code>benchmarks Wkb -p vertices=64</code> only runs the WKB
+ * benchmarks for polygons with 64 vertices. An explicit <code>-rf</code>/<code>-rff</code> overrides the result file.
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class BenchmarkRunner {
+
+    public static void main( String[] args )
+                            throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions( args );
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent( cmd );
+        if ( !cmd.getResultFormat().hasValue() ) {
+            builder.resultFormat( JSON );
+            builder.result( "jmh-" + getRevision() + ".json" );
+        }
+        Options options = builder.build();
+        new Runner( options ).run();
+    }
+
+    private static String getRevision()
+                            throws IOException {
+        Properties props = new Properties();
+        InputStream in = BenchmarkRunner.class.getResourceAsStream( "/benchmarks.properties" );
+        if ( in != null ) {
+            try {
+                props.load( in );
+            } finally {
+                in.close();
+            }
+        }
+        String rev = props.getProperty( "build.svnrev" );
+        if ( rev == null || rev.isEmpty() || rev.startsWith( "${" ) ) {
+            return Long.toString( System.currentTimeMillis() );
+        }
+        return rev;
+    }
+
+}
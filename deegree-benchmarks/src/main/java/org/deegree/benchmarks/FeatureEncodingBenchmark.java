@@ -0,0 +1,176 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.deegree.commons.xml.CommonNamespaces.GML3_2_NS;
+import static org.deegree.gml.GMLVersion.GML_32;
+import static org.deegree.protocol.wfs.WFSConstants.WFS_200_NS;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.deegree.feature.Feature;
+import org.deegree.geometry.io.DecimalCoordinateFormatter;
+import org.deegree.gml.GMLOutputFactory;
+import org.deegree.gml.GMLStreamWriter;
+import org.deegree.services.wfs.format.geojson.GeoJsonWriter;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the encoding of a WFS GetFeature response as GML 3.2 (<code>GMLStreamWriter</code>) and as GeoJSON
+ * (<code>GeoJsonWriter</code>).
+ * <p>
+ * Both encodings write the same features into a memory buffer with six decimal places for coordinates. The benchmark
+ * time is the CPU cost of the encoding, the response size in bytes is reported as the secondary result
+ * <code>bytes</code>.
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FeatureEncodingBenchmark {
+
+    private static final int DECIMAL_PLACES = 6;
+
+    @Param({ "1000" })
+    public int count;
+
+    @Param({ "16", "256" })
+    public int vertices;
+
+    private List<Feature> features;
+
+    private XMLOutputFactory factory;
+
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setup()
+                            throws Exception {
+        features = new SyntheticData( null ).features( count, vertices );
+        factory = XMLOutputFactory.newInstance();
+        factory.setProperty( XMLOutputFactory.IS_REPAIRING_NAMESPACES, true );
+        out = new ByteArrayOutputStream( count * vertices * 40 );
+    }
+
+    @Benchmark
+    public int gml32( ResponseSize size )
+                            throws Exception {
+        out.reset();
+        XMLStreamWriter xml = factory.createXMLStreamWriter( out, "UTF-8" );
+        GMLStreamWriter gml = GMLOutputFactory.createGMLStreamWriter( GML_32, xml );
+        gml.setCoordinateFormatter( new DecimalCoordinateFormatter( DECIMAL_PLACES ) );
+        gml.setNamespaceBindings( Collections.singletonMap( "app", SyntheticData.APP_NS ) );
+        xml.writeStartDocument( "UTF-8", "1.0" );
+        xml.writeStartElement( "wfs", "FeatureCollection", WFS_200_NS );
+        xml.writeNamespace( "wfs", WFS_200_NS );
+        xml.writeNamespace( "gml", GML3_2_NS );
+        xml.writeNamespace( "app", SyntheticData.APP_NS );
+        for ( Feature f : features ) {
+            xml.writeStartElement( "wfs", "member", WFS_200_NS );
+            gml.write( f );
+            xml.writeEndElement();
+        }
+        xml.writeEndElement();
+        xml.writeEndDocument();
+        xml.flush();
+        size.bytes = out.size();
+        return out.size();
+    }
+
+    @Benchmark
+    public int geoJson( ResponseSize size )
+                            throws Exception {
+        out.reset();
+        GeoJsonWriter json = new GeoJsonWriter( new BufferedWriter( new OutputStreamWriter( out, "UTF-8" ) ), null,
+                                                DECIMAL_PLACES );
+        json.beginObject();
+        json.name( "type" ).value( "FeatureCollection" );
+        json.name( "features" ).beginArray();
+        for ( Feature f : features ) {
+            json.writeFeature( f, null );
+        }
+        json.endArray();
+        json.endObject();
+        json.flush();
+        size.bytes = out.size();
+        return out.size();
+    }
+
+    /**
+     * Size of the last encoded response, reported by JMH as a secondary result (assigned, not accumulated, so it does
+     * not depend on the number of invocations).
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ResponseSize {
+
+        public long bytes;
+    }
+
+}
@@ -0,0 +1,133 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+
+import org.deegree.commons.tom.TypedObjectNode;
+import org.deegree.cs.persistence.CRSManager;
+import org.deegree.feature.Feature;
+import org.deegree.feature.xpath.TypedObjectNodeXPathEvaluator;
+import org.deegree.filter.Filter;
+import org.deegree.filter.XPathEvaluator;
+import org.deegree.filter.xml.Filter110XMLDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Filter#evaluate(Object, XPathEvaluator)} with a {@link TypedObjectNodeXPathEvaluator}, the way the
+ * in-memory post filtering of the feature stores works. The filters are read from the <code>filter</code> directory
+ * next to this class.
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FilterBenchmark {
+
+    @Param({ "10000" })
+    public int count;
+
+    @Param({ "comparison", "like", "and", "bbox", "intersects" })
+    public String filter;
+
+    private Feature[] features;
+
+    private Filter parsedFilter;
+
+    private XPathEvaluator<TypedObjectNode> evaluator;
+
+    @Setup
+    public void setup()
+                            throws Exception {
+        SyntheticData data = new SyntheticData( CRSManager.getCRSRef( "EPSG:4326" ) );
+        List<Feature> list = data.features( count, 16 );
+        features = list.toArray( new Feature[count] );
+        URL url = FilterBenchmark.class.getResource( "filter/" + filter + ".xml" );
+        InputStream in = url.openStream();
+        try {
+            XMLStreamReader xml = XMLInputFactory.newInstance().createXMLStreamReader( url.toString(), in );
+            xml.nextTag();
+            parsedFilter = Filter110XMLDecoder.parse( xml );
+            xml.close();
+        } finally {
+            in.close();
+        }
+        evaluator = new TypedObjectNodeXPathEvaluator();
+    }
+
+    @Benchmark
+    public int evaluate()
+                            throws Exception {
+        int matches = 0;
+        for ( Feature f : features ) {
+            if ( parsedFilter.evaluate( (TypedObjectNode) f, evaluator ) ) {
+                ++matches;
+            }
+        }
+        return matches;
+    }
+
+}
@@ -0,0 +1,140 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+import static org.deegree.gml.GMLVersion.GML_31;
+
+import java.io.StringReader;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+
+import org.deegree.feature.Feature;
+import org.deegree.feature.types.DynamicAppSchema;
+import org.deegree.geometry.primitive.Polygon;
+import org.deegree.gml.GMLInputFactory;
+import org.deegree.gml.GMLStreamReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures GML 3.1 parsing of polygons (<code>GML3GeometryReader</code>) and of a schema less feature collection
+ * (<code>GMLFeatureReader</code>).
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GmlReadingBenchmark {
+
+    @Param({ "1000" })
+    public int count;
+
+    @Param({ "8", "64" })
+    public int vertices;
+
+    private XMLInputFactory factory;
+
+    private String[] polygons;
+
+    private String collection;
+
+    @Setup
+    public void setup() {
+        factory = XMLInputFactory.newInstance();
+        List<Feature> features = new SyntheticData( null ).features( count, vertices );
+        polygons = new String[count];
+        for ( int i = 0; i < count; ++i ) {
+            Polygon p = (Polygon) features.get( i ).getProperties( SyntheticData.GEOM ).get( 0 ).getValue();
+            polygons[i] = SyntheticData.toGml( p );
+        }
+        collection = SyntheticData.toGml( features );
+    }
+
+    @Benchmark
+    public void readGeometries( Blackhole bh )
+                            throws Exception {
+        for ( String gml : polygons ) {
+            XMLStreamReader xml = factory.createXMLStreamReader( new StringReader( gml ) );
+            GMLStreamReader reader = GMLInputFactory.createGMLStreamReader( GML_31, xml );
+            bh.consume( reader.readGeometry() );
+            xml.close();
+        }
+    }
+
+    @Benchmark
+    public void readFeatures( Blackhole bh )
+                            throws Exception {
+        XMLStreamReader in = factory.createXMLStreamReader( new StringReader( collection ) );
+        GMLStreamReader reader = GMLInputFactory.createGMLStreamReader( GML_31, in );
+        reader.setApplicationSchema( new DynamicAppSchema() );
+        XMLStreamReader xml = reader.getXMLReader();
+        // gml:featureMember
+        while ( xml.nextTag() == START_ELEMENT ) {
+            xml.nextTag();
+            bh.consume( reader.readFeature() );
+            xml.nextTag();
+        }
+        xml.close();
+    }
+
+}
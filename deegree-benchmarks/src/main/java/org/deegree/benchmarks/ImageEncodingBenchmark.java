@@ -0,0 +1,189 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.benchmarks;
+
+import static java.awt.RenderingHints.KEY_ANTIALIASING;
+import static java.awt.RenderingHints.VALUE_ANTIALIAS_ON;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.deegree.commons.utils.image.ImageEncoders;
+import org.deegree.geometry.points.Points;
+import org.deegree.geometry.primitive.Point;
+import org.deegree.geometry.primitive.Polygon;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link ImageEncoders} with {@link ImageIO} for a rendered map (few colors, large uniform areas) and for
+ * photo like content (aerial imagery).
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ImageEncodingBenchmark {
+
+    private static final int SIZE = 1024;
+
+    private static final Color[] COLORS = { new Color( 0xaaaaff ), new Color( 0xffaaaa ), new Color( 0xaaffaa ),
+                                           new Color( 0xffffaa ) };
+
+    @Param({ "map", "photo" })
+    public String content;
+
+    @Param({ "png", "jpeg" })
+    public String format;
+
+    @Param({ "deegree", "imageio" })
+    public String encoder;
+
+    private BufferedImage image;
+
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setup() {
+        image = content.equals( "map" ) ? createMap() : createPhoto();
+        if ( format.equals( "jpeg" ) ) {
+            BufferedImage rgb = new BufferedImage( SIZE, SIZE, TYPE_INT_RGB );
+            Graphics2D g = rgb.createGraphics();
+            g.setColor( Color.WHITE );
+            g.fillRect( 0, 0, SIZE, SIZE );
+            g.drawImage( image, 0, 0, null );
+            g.dispose();
+            image = rgb;
+        }
+        out = new ByteArrayOutputStream( SIZE * SIZE * 4 );
+    }
+
+    @Benchmark
+    public int encode()
+                            throws Exception {
+        out.reset();
+        if ( encoder.equals( "deegree" ) ) {
+            ImageEncoders.write( image, format, out );
+        } else {
+            ImageIO.write( image, format, out );
+        }
+        return out.size();
+    }
+
+    private static BufferedImage createMap() {
+        BufferedImage img = new BufferedImage( SIZE, SIZE, TYPE_INT_ARGB );
+        Graphics2D g = img.createGraphics();
+        g.setRenderingHint( KEY_ANTIALIASING, VALUE_ANTIALIAS_ON );
+        double[] ext = SyntheticData.EXTENT;
+        double sx = SIZE / ( ext[2] - ext[0] );
+        double sy = SIZE / ( ext[3] - ext[1] );
+        int i = 0;
+        for ( Polygon p : new SyntheticData( null ).polygons( 5000, 16 ) ) {
+            Path2D.Double path = new Path2D.Double();
+            Points points = p.getExteriorRingCoordinates();
+            boolean first = true;
+            for ( Point pt : points ) {
+                double x = ( pt.get0() - ext[0] ) * sx;
+                double y = SIZE - ( pt.get1() - ext[1] ) * sy;
+                if ( first ) {
+                    path.moveTo( x, y );
+                    first = false;
+                } else {
+                    path.lineTo( x, y );
+                }
+            }
+            path.closePath();
+            g.setColor( COLORS[i++ % COLORS.length] );
+            g.fill( path );
+            g.setColor( Color.DARK_GRAY );
+            g.draw( path );
+        }
+        g.dispose();
+        return img;
+    }
+
+    private static BufferedImage createPhoto() {
+        BufferedImage img = new BufferedImage( SIZE, SIZE, TYPE_INT_ARGB );
+        Random rnd = new Random( SyntheticData.SEED );
+        for ( int y = 0; y < SIZE; ++y ) {
+            for ( int x = 0; x < SIZE; ++x ) {
+                // smooth gradients plus sensor noise
+                int base = (int) ( 96 + 48 * Math.sin( x / 37.0 ) + 48 * Math.cos( y / 53.0 ) );
+                int r = clamp( base + rnd.nextInt( 24 ) );
+                int gr = clamp( base + 20 + rnd.nextInt( 24 ) );
+                int b = clamp( base - 20 + rnd.nextInt( 24 ) );
+                img.setRGB( x, y, 0xff000000 | r << 16 | gr << 8 | b );
+            }
+        }
+        return img;
+    }
+
+    private static int clamp( int v ) {
+        return v < 0 ? 0 : v > 255 ? 255 : v;
+    }
+
+}
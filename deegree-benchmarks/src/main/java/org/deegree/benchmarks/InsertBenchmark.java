@@ -0,0 +1,163 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+import org.deegree.commons.jdbc.TableName;
+import org.deegree.commons.utils.JDBCUtils;
+import org.deegree.feature.persistence.sql.insert.InsertBatches;
+import org.deegree.feature.persistence.sql.insert.InsertRow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the insert throughput of the SQL feature store's JDBC batching against an embedded H2 database.
+ * <p>
+ * Every feature is stored as one row in a feature table and two rows in a joined child table, the child rows depend on
+ * the key of the feature row. The rows are written through {@link InsertBatches}, like the insert row manager of the
+ * SQL feature store does for rows with known keys. A batch size of 1 executes every row on its own and serves as the
+ * unbatched baseline. The transaction is rolled back after every invocation, so each one starts with empty tables.
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InsertBenchmark {
+
+    private static final int CHILDREN = 2;
+
+    @Param({ "10000" })
+    public int count;
+
+    @Param({ "1", "100", "1000" })
+    public int batchSize;
+
+    private Connection conn;
+
+    @Setup
+    public void setup()
+                            throws Exception {
+        Class.forName( "org.h2.Driver" );
+        conn = DriverManager.getConnection( "jdbc:h2:mem:insert" + System.nanoTime() );
+        conn.setAutoCommit( false );
+        Statement stmt = conn.createStatement();
+        try {
+            stmt.execute( "CREATE TABLE parcel (id INT PRIMARY KEY, name VARCHAR(64), area DOUBLE)" );
+            stmt.execute( "CREATE TABLE parcel_owner (parcel_id INT REFERENCES parcel (id), owner VARCHAR(64))" );
+        } finally {
+            JDBCUtils.close( stmt );
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void rollback()
+                            throws Exception {
+        conn.rollback();
+    }
+
+    @TearDown
+    public void tearDown() {
+        JDBCUtils.close( conn );
+    }
+
+    @Benchmark
+    public int insert()
+                            throws Exception {
+        InsertBatches batches = new InsertBatches( conn, batchSize );
+        int rows = 0;
+        try {
+            for ( int i = 0; i < count; i++ ) {
+                InsertRow parcel = new Row( "parcel" );
+                parcel.addPreparedArgument( "id", i );
+                parcel.addPreparedArgument( "name", "Parcel " + i );
+                parcel.addPreparedArgument( "area", 100.0 + i );
+                batches.add( parcel );
+                ++rows;
+                for ( int j = 0; j < CHILDREN; j++ ) {
+                    InsertRow owner = new Row( "parcel_owner" );
+                    owner.addPreparedArgument( "parcel_id", i );
+                    owner.addPreparedArgument( "owner", "Owner " + j );
+                    batches.requireAfter( owner, parcel );
+                    batches.add( owner );
+                    ++rows;
+                }
+            }
+            batches.flush();
+        } finally {
+            batches.close();
+        }
+        return rows;
+    }
+
+    private static class Row extends InsertRow {
+
+        private Row( String table ) {
+            super( null );
+            this.table = new TableName( table );
+        }
+    }
+
+}
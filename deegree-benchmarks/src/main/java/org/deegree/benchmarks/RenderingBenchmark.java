@@ -0,0 +1,168 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.benchmarks;
+
+import static java.awt.RenderingHints.KEY_ANTIALIASING;
+import static java.awt.RenderingHints.VALUE_ANTIALIAS_ON;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.deegree.commons.utils.Triple;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.cs.persistence.CRSManager;
+import org.deegree.feature.Feature;
+import org.deegree.feature.xpath.TypedObjectNodeXPathEvaluator;
+import org.deegree.filter.XPathEvaluator;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.Geometry;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.rendering.r2d.Java2DRenderer;
+import org.deegree.rendering.r2d.Java2DTextRenderer;
+import org.deegree.style.se.unevaluated.Style;
+import org.deegree.style.styling.Styling;
+import org.deegree.style.styling.TextStyling;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures rendering styled features with the {@link Java2DRenderer} the way a feature layer does, once for the full
+ * extent (lots of polygons of only a few pixels) and once for a zoomed in view. The <code>tolerance</code> parameter is
+ * passed to {@link Java2DRenderer#setSimplificationTolerance(double)}, 0 disables the simplification.
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RenderingBenchmark {
+
+    @Param({ "2000" })
+    public int count;
+
+    @Param({ "16", "1024" })
+    public int vertices;
+
+    @Param({ "full", "zoomed" })
+    public String view;
+
+    @Param({ "0", "0.5" })
+    public double tolerance;
+
+    private Feature[] features;
+
+    private Style style;
+
+    private XPathEvaluator<Feature> evaluator;
+
+    private BufferedImage image;
+
+    private Graphics2D graphics;
+
+    private Java2DRenderer renderer;
+
+    private Java2DTextRenderer textRenderer;
+
+    @Setup
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void setup()
+                            throws Exception {
+        ICRS crs = CRSManager.lookup( "EPSG:4326" );
+        SyntheticData data = new SyntheticData( crs );
+        List<Feature> list = data.features( count, vertices );
+        features = list.toArray( new Feature[count] );
+        style = StyleBenchmark.parseStyle();
+        evaluator = (XPathEvaluator) new TypedObjectNodeXPathEvaluator();
+
+        Envelope bbox = data.getExtent();
+        if ( view.equals( "zoomed" ) ) {
+            bbox = new GeometryFactory().createEnvelope( 7, 52, 7.5, 52.5, crs );
+        }
+        image = new BufferedImage( 1024, 1024, TYPE_INT_ARGB );
+        graphics = image.createGraphics();
+        graphics.setRenderingHint( KEY_ANTIALIASING, VALUE_ANTIALIAS_ON );
+        renderer = new Java2DRenderer( graphics, 1024, 1024, bbox );
+        renderer.setSimplificationTolerance( tolerance );
+        textRenderer = new Java2DTextRenderer( renderer );
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage render() {
+        for ( Feature f : features ) {
+            LinkedList<Triple<Styling, LinkedList<Geometry>, String>> evalds = style.evaluate( f, evaluator );
+            for ( Triple<Styling, LinkedList<Geometry>, String> evald : evalds ) {
+                if ( evald.first instanceof TextStyling ) {
+                    textRenderer.render( (TextStyling) evald.first, evald.third, evald.second );
+                } else {
+                    renderer.render( evald.first, evald.second );
+                }
+            }
+        }
+        return image;
+    }
+
+}
@@ -0,0 +1,157 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.benchmarks;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Compares two JMH JSON result files (as written by {@link BenchmarkRunner}) and prints the relative change of every
+ * benchmark/parameter combination found in both.
+ * <p>
+ * Usage: <code>compare-benchmarks &lt;baseline.json&gt; &lt;current.json&gt; [threshold in percent, default 10]</code>
+ * </p>
+ * <p>
+ * A benchmark counts as regression if it got worse by more than the threshold and by more than the sum of the two
+ * score errors. The exit code is 1 if there is at least one regression, so the tool can be used in a build.
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class ResultComparison {
+
+    public static void main( String[] args )
+                            throws IOException {
+        if ( args.length < 2 ) {
+            System.err.println( "Usage: compare-benchmarks <baseline.json> <current.json> [threshold-percent]" );
+            System.exit( 2 );
+        }
+        double threshold = args.length > 2 ? Double.parseDouble( args[2] ) : 10;
+        Map<String, Score> baseline = read( args[0] );
+        Map<String, Score> current = read( args[1] );
+
+        int regressions = 0;
+        for ( Entry<String, Score> e : current.entrySet() ) {
+            Score old = baseline.get( e.getKey() );
+            if ( old == null ) {
+                System.out.println( String.format( "%-90s %14s %14.3f %s", e.getKey(), "-", e.getValue().score,
+                                                   e.getValue().unit ) );
+                continue;
+            }
+            Score cur = e.getValue();
+            double change = ( cur.score - old.score ) / old.score * 100;
+            // for throughput higher is better, for all other modes lower is better
+            double worse = cur.higherIsBetter ? -change : change;
+            boolean significant = Math.abs( cur.score - old.score ) > old.error + cur.error;
+            String marker = "";
+            if ( worse > threshold && significant ) {
+                marker = "  REGRESSION";
+                ++regressions;
+            } else if ( worse < -threshold && significant ) {
+                marker = "  improvement";
+            }
+            System.out.println( String.format( "%-90s %14.3f %14.3f %s %+7.1f%%%s", e.getKey(), old.score, cur.score,
+                                               cur.unit, change, marker ) );
+        }
+        System.out.println( regressions + " regression(s) with a threshold of " + threshold + "%." );
+        System.exit( regressions > 0 ? 1 : 0 );
+    }
+
+    private static Map<String, Score> read( String file )
+                            throws IOException {
+        Reader in = new InputStreamReader( new FileInputStream( file ), "UTF-8" );
+        try {
+            Map<String, Score> scores = new TreeMap<String, Score>();
+            JsonArray results = new JsonParser().parse( in ).getAsJsonArray();
+            for ( JsonElement r : results ) {
+                JsonObject o = r.getAsJsonObject();
+                StringBuilder key = new StringBuilder( o.get( "benchmark" ).getAsString() );
+                if ( o.has( "params" ) ) {
+                    // TreeMap for a stable order of the parameters
+                    Map<String, String> params = new TreeMap<String, String>();
+                    for ( Entry<String, JsonElement> p : o.getAsJsonObject( "params" ).entrySet() ) {
+                        params.put( p.getKey(), p.getValue().getAsString() );
+                    }
+                    key.append( params );
+                }
+                JsonObject metric = o.getAsJsonObject( "primaryMetric" );
+                Score s = new Score();
+                s.score = metric.get( "score" ).getAsDouble();
+                JsonElement error = metric.get( "scoreError" );
+                // NaN if there was only one iteration
+                s.error = error.isJsonPrimitive() && error.getAsJsonPrimitive().isNumber() ? error.getAsDouble() : 0;
+                s.unit = metric.get( "scoreUnit" ).getAsString();
+                s.higherIsBetter = "thrpt".equals( o.get( "mode" ).getAsString() );
+                scores.put( key.toString(), s );
+            }
+            return scores;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static class Score {
+
+        double score;
+
+        double error;
+
+        String unit;
+
+        boolean higherIsBetter;
+
+    }
+
+}
@@ -0,0 +1,405 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.deegree.feature.types.property.GeometryPropertyType.CoordinateDimension.DIM_2;
+import static org.deegree.feature.types.property.GeometryPropertyType.GeometryType.POLYGON;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.jdbc.SQLIdentifier;
+import org.deegree.commons.jdbc.TableName;
+import org.deegree.commons.tom.TypedObjectNode;
+import org.deegree.commons.tom.primitive.BaseType;
+import org.deegree.commons.tom.primitive.PrimitiveType;
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.commons.tom.sql.DefaultPrimitiveConverter;
+import org.deegree.commons.tom.sql.ParticleConverter;
+import org.deegree.commons.utils.JDBCUtils;
+import org.deegree.commons.utils.Pair;
+import org.deegree.commons.xml.NamespaceBindings;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.feature.Feature;
+import org.deegree.feature.persistence.cache.FeatureStoreCache;
+import org.deegree.feature.persistence.sql.FeatureTypeMapping;
+import org.deegree.feature.persistence.sql.GeometryStorageParams;
+import org.deegree.feature.persistence.sql.SQLFeatureStore;
+import org.deegree.feature.persistence.sql.id.FIDMapping;
+import org.deegree.feature.persistence.sql.jaxb.SQLFeatureStoreJAXB;
+import org.deegree.feature.persistence.sql.jaxb.VoidEscalationPolicyType;
+import org.deegree.feature.persistence.sql.rules.FeatureBuilderRelational;
+import org.deegree.feature.persistence.sql.rules.GeometryMapping;
+import org.deegree.feature.persistence.sql.rules.Mapping;
+import org.deegree.feature.persistence.sql.rules.PrimitiveMapping;
+import org.deegree.filter.expression.ValueReference;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.Geometry;
+import org.deegree.geometry.io.WKBReader;
+import org.deegree.geometry.io.WKBWriter;
+import org.deegree.geometry.utils.GeometryParticleConverter;
+import org.deegree.sqldialect.filter.DBField;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the row to feature path of a SQL feature store query against an embedded H2 database.
+ * <p>
+ * The table mirrors a simple SQLFeatureStore mapping: attribute columns, a WKB geometry column and the envelope of the
+ * geometry as four indexed columns that stand in for the spatial index of PostGIS. The SELECT list is taken from
+ * {@link FeatureBuilderRelational} and every row is turned into a feature by it, like in a query of the SQL feature
+ * store. As there is no SQL dialect for H2, the particle converters are provided by a minimal {@link SQLFeatureStore}
+ * (without feature cache). No PostGIS instance is needed, so the numbers are comparable across machines, but they do
+ * not include the database side costs of a real spatial index.
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SqlQueryBenchmark {
+
+    private static final String ALIAS = "X";
+
+    @Param({ "50000" })
+    public int count;
+
+    @Param({ "16", "256" })
+    public int vertices;
+
+    private Connection conn;
+
+    private FeatureBuilderRelational builder;
+
+    private PreparedStatement bboxStmt;
+
+    private PreparedStatement attributeStmt;
+
+    private PreparedStatement pageStmt;
+
+    @Setup
+    public void setup()
+                            throws Exception {
+        Class.forName( "org.h2.Driver" );
+        conn = DriverManager.getConnection( "jdbc:h2:mem:parcels" + System.nanoTime() );
+        Statement stmt = conn.createStatement();
+        try {
+            stmt.execute( "CREATE TABLE parcels (id INT PRIMARY KEY, name VARCHAR(64), area DOUBLE, category INT, "
+                          + "minx DOUBLE, miny DOUBLE, maxx DOUBLE, maxy DOUBLE, geom BINARY)" );
+            stmt.execute( "CREATE INDEX parcels_env ON parcels (minx, miny)" );
+            stmt.execute( "CREATE INDEX parcels_category ON parcels (category)" );
+        } finally {
+            JDBCUtils.close( stmt );
+        }
+        insert( new SyntheticData( null ).features( count, vertices ) );
+
+        builder = createFeatureBuilder();
+        StringBuilder select = new StringBuilder( "SELECT " );
+        for ( String column : builder.getInitialSelectColumns() ) {
+            if ( select.length() > 7 ) {
+                select.append( ',' );
+            }
+            select.append( column );
+        }
+        select.append( " FROM parcels " ).append( ALIAS );
+
+        String bbox = " WHERE X.minx <= ? AND X.maxx >= ? AND X.miny <= ? AND X.maxy >= ?";
+        bboxStmt = conn.prepareStatement( select + bbox );
+        bboxStmt.setDouble( 1, 7.5 );
+        bboxStmt.setDouble( 2, 7 );
+        bboxStmt.setDouble( 3, 52.5 );
+        bboxStmt.setDouble( 4, 52 );
+        attributeStmt = conn.prepareStatement( select + " WHERE X.category = ? AND X.area > ?" );
+        attributeStmt.setInt( 1, 3 );
+        attributeStmt.setDouble( 2, 2000 );
+        pageStmt = conn.prepareStatement( select + " ORDER BY X.id LIMIT ? OFFSET ?" );
+        pageStmt.setInt( 1, 100 );
+        pageStmt.setInt( 2, count / 2 );
+    }
+
+    private FeatureBuilderRelational createFeatureBuilder() {
+        NamespaceBindings nsContext = new NamespaceBindings();
+        nsContext.addNamespace( "app", SyntheticData.APP_NS );
+
+        Map<Mapping, ParticleConverter<?>> converters = new HashMap<Mapping, ParticleConverter<?>>();
+        List<Mapping> mappings = new ArrayList<Mapping>();
+        mappings.add( primitive( "app:name", "name", BaseType.STRING, nsContext, converters ) );
+        mappings.add( primitive( "app:area", "area", BaseType.DOUBLE, nsContext, converters ) );
+        mappings.add( primitive( "app:category", "category", BaseType.INTEGER, nsContext, converters ) );
+        GeometryMapping geom = new GeometryMapping( new ValueReference( "app:geom", nsContext ), false,
+                                                    new DBField( "geom" ), POLYGON,
+                                                    new GeometryStorageParams( null, "-1", DIM_2 ), null );
+        converters.put( geom, new WKBConverter( "geom", null ) );
+        mappings.add( geom );
+
+        Pair<SQLIdentifier, BaseType> fidColumn = new Pair<SQLIdentifier, BaseType>( new SQLIdentifier( "id" ),
+                                                                                     BaseType.INTEGER );
+        FIDMapping fidMapping = new FIDMapping( "PARCEL_", "_", Collections.singletonList( fidColumn ), null );
+        FeatureTypeMapping ftMapping = new FeatureTypeMapping( SyntheticData.PARCEL, new TableName( "parcels" ),
+                                                               fidMapping, mappings );
+        Map<String, String> namespaces = Collections.singletonMap( "app", SyntheticData.APP_NS );
+        SQLFeatureStore fs = new H2FeatureStore( namespaces, converters );
+        return new FeatureBuilderRelational( fs, SyntheticData.getFeatureType(), ftMapping, conn, ALIAS,
+                                             VoidEscalationPolicyType.NONE );
+    }
+
+    private static PrimitiveMapping primitive( String path, String column, BaseType type,
+                                               NamespaceBindings nsContext,
+                                               Map<Mapping, ParticleConverter<?>> converters ) {
+        PrimitiveType pt = new PrimitiveType( type );
+        PrimitiveMapping mapping = new PrimitiveMapping( new ValueReference( path, nsContext ), false,
+                                                         new DBField( column ), pt, null, null );
+        converters.put( mapping, new DefaultPrimitiveConverter( pt, column ) );
+        return mapping;
+    }
+
+    private void insert( List<Feature> features )
+                            throws Exception {
+        PreparedStatement stmt = conn.prepareStatement( "INSERT INTO parcels VALUES (?,?,?,?,?,?,?,?,?)" );
+        try {
+            int id = 0;
+            for ( Feature f : features ) {
+                Geometry geom = (Geometry) value( f, SyntheticData.GEOM );
+                Envelope env = geom.getEnvelope();
+                stmt.setInt( 1, id++ );
+                stmt.setString( 2, ( (PrimitiveValue) value( f, SyntheticData.NAME ) ).getAsText() );
+                PrimitiveValue area = (PrimitiveValue) value( f, SyntheticData.AREA );
+                PrimitiveValue category = (PrimitiveValue) value( f, SyntheticData.CATEGORY );
+                stmt.setDouble( 3, ( (Number) area.getValue() ).doubleValue() );
+                stmt.setInt( 4, ( (Number) category.getValue() ).intValue() );
+                stmt.setDouble( 5, env.getMin().get0() );
+                stmt.setDouble( 6, env.getMin().get1() );
+                stmt.setDouble( 7, env.getMax().get0() );
+                stmt.setDouble( 8, env.getMax().get1() );
+                stmt.setBytes( 9, WKBWriter.write( geom ) );
+                stmt.addBatch();
+                if ( id % 1000 == 0 ) {
+                    stmt.executeBatch();
+                }
+            }
+            stmt.executeBatch();
+        } finally {
+            JDBCUtils.close( stmt );
+        }
+    }
+
+    private static TypedObjectNode value( Feature f, QName name ) {
+        return f.getProperties( name ).get( 0 ).getValue();
+    }
+
+    @TearDown
+    public void tearDown() {
+        JDBCUtils.close( bboxStmt );
+        JDBCUtils.close( attributeStmt );
+        JDBCUtils.close( pageStmt );
+        JDBCUtils.close( conn );
+    }
+
+    @Benchmark
+    public int bboxQuery( Blackhole bh )
+                            throws Exception {
+        return fetch( bboxStmt, bh );
+    }
+
+    @Benchmark
+    public int attributeQuery( Blackhole bh )
+                            throws Exception {
+        return fetch( attributeStmt, bh );
+    }
+
+    @Benchmark
+    public int pagedQuery( Blackhole bh )
+                            throws Exception {
+        return fetch( pageStmt, bh );
+    }
+
+    private int fetch( PreparedStatement stmt, Blackhole bh )
+                            throws Exception {
+        ResultSet rs = stmt.executeQuery();
+        int rows = 0;
+        try {
+            while ( rs.next() ) {
+                bh.consume( builder.buildFeature( rs ) );
+                ++rows;
+            }
+        } finally {
+            JDBCUtils.close( rs );
+        }
+        return rows;
+    }
+
+    /**
+     * Provides the particle converters of the benchmark mapping, as there is no SQL dialect for H2.
+     */
+    private static class H2FeatureStore extends SQLFeatureStore {
+
+        private final Map<String, String> nsContext;
+
+        private final Map<Mapping, ParticleConverter<?>> converters;
+
+        private H2FeatureStore( Map<String, String> nsContext, Map<Mapping, ParticleConverter<?>> converters ) {
+            // the dialect is only needed for initializing the schema and the converters, which is done here
+            super( config(), null, null );
+            this.nsContext = nsContext;
+            this.converters = converters;
+        }
+
+        private static SQLFeatureStoreJAXB config() {
+            SQLFeatureStoreJAXB.JDBCConnId connId = new SQLFeatureStoreJAXB.JDBCConnId();
+            connId.setValue( "h2" );
+            connId.setReadAutoCommit( true );
+            SQLFeatureStoreJAXB config = new SQLFeatureStoreJAXB();
+            config.setJDBCConnId( connId );
+            return config;
+        }
+
+        @Override
+        public Map<String, String> getNamespaceContext() {
+            return nsContext;
+        }
+
+        @Override
+        public ParticleConverter<?> getConverter( Mapping mapping ) {
+            return converters.get( mapping );
+        }
+
+        @Override
+        public FeatureStoreCache getCache() {
+            return null;
+        }
+    }
+
+    /**
+     * Reads geometries from plain WKB columns.
+     */
+    private static class WKBConverter implements GeometryParticleConverter {
+
+        private final String column;
+
+        private final ICRS crs;
+
+        private WKBConverter( String column, ICRS crs ) {
+            this.column = column;
+            this.crs = crs;
+        }
+
+        @Override
+        public String getSelectSnippet( String tableAlias ) {
+            return tableAlias + "." + column;
+        }
+
+        @Override
+        public String getSelectSnippet( String tableAlias, double tolerance ) {
+            return getSelectSnippet( tableAlias );
+        }
+
+        @Override
+        public Geometry toParticle( ResultSet rs, int colIndex )
+                                throws SQLException {
+            byte[] wkb = rs.getBytes( colIndex );
+            if ( wkb == null ) {
+                return null;
+            }
+            try {
+                return WKBReader.read( wkb, crs );
+            } catch ( Exception e ) {
+                throw new SQLException( e.getMessage(), e );
+            }
+        }
+
+        @Override
+        public String getSetSnippet( Geometry particle ) {
+            return "?";
+        }
+
+        @Override
+        public void setParticle( PreparedStatement stmt, Geometry particle, int paramIndex )
+                                throws SQLException {
+            try {
+                stmt.setBytes( paramIndex, WKBWriter.write( particle ) );
+            } catch ( Exception e ) {
+                throw new SQLException( e.getMessage(), e );
+            }
+        }
+
+        @Override
+        public String getSrid() {
+            return "-1";
+        }
+
+        @Override
+        public ICRS getCrs() {
+            return crs;
+        }
+    }
+
+}
@@ -0,0 +1,294 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.benchmarks;
+
+import static org.deegree.commons.tom.primitive.BaseType.DOUBLE;
+import static org.deegree.commons.tom.primitive.BaseType.INTEGER;
+import static org.deegree.commons.tom.primitive.BaseType.STRING;
+import static org.deegree.feature.types.property.GeometryPropertyType.CoordinateDimension.DIM_2;
+import static org.deegree.feature.types.property.GeometryPropertyType.GeometryType.POLYGON;
+import static org.deegree.feature.types.property.ValueRepresentation.BOTH;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.tom.gml.property.Property;
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.feature.Feature;
+import org.deegree.feature.property.GenericProperty;
+import org.deegree.feature.types.GenericFeatureType;
+import org.deegree.feature.types.property.GeometryPropertyType;
+import org.deegree.feature.types.property.PropertyType;
+import org.deegree.feature.types.property.SimplePropertyType;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.Geometry;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.geometry.points.Points;
+import org.deegree.geometry.primitive.LinearRing;
+import org.deegree.geometry.primitive.Point;
+import org.deegree.geometry.primitive.Polygon;
+import org.deegree.geometry.standard.points.PackedPoints;
+
+/**
+ * Generates the reproducible data sets used by the benchmarks.
+ * <p>
+ * All data is derived from a {@link Random} with a fixed seed, so two instances (and two runs on different commits)
+ * produce exactly the same geometries and features. The data consists of star shaped (hence always simple) polygons
+ * scattered over {@link #EXTENT}, and <code>app:Parcel</code> features with a name, an area, a category and such a
+ * polygon.
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class SyntheticData {
+
+    /** Seed of the generator */
+    public static final long SEED = 4711;
+
+    /** Namespace of the feature type */
+    public static final String APP_NS = "http://www.deegree.org/app";
+
+    /** Name of the feature type */
+    public static final QName PARCEL = new QName( APP_NS, "Parcel", "app" );
+
+    /** Name of the string property */
+    public static final QName NAME = new QName( APP_NS, "name", "app" );
+
+    /** Name of the double property */
+    public static final QName AREA = new QName( APP_NS, "area", "app" );
+
+    /** Name of the integer property, values are 0-9 */
+    public static final QName CATEGORY = new QName( APP_NS, "category", "app" );
+
+    /** Name of the geometry property */
+    public static final QName GEOM = new QName( APP_NS, "geom", "app" );
+
+    /** Extent of the generated geometries (minx, miny, maxx, maxy, lon/lat) */
+    public static final double[] EXTENT = { 5, 50, 10, 55 };
+
+    private static final SimplePropertyType NAME_PT = new SimplePropertyType( NAME, 1, 1, STRING, null, null );
+
+    private static final SimplePropertyType AREA_PT = new SimplePropertyType( AREA, 1, 1, DOUBLE, null, null );
+
+    private static final SimplePropertyType CATEGORY_PT = new SimplePropertyType( CATEGORY, 1, 1, INTEGER, null, null );
+
+    private static final GeometryPropertyType GEOM_PT = new GeometryPropertyType( GEOM, 1, 1, null, null, POLYGON,
+                                                                                  DIM_2, BOTH );
+
+    private static final GenericFeatureType PARCEL_FT;
+
+    static {
+        List<PropertyType> props = new ArrayList<PropertyType>();
+        props.add( NAME_PT );
+        props.add( AREA_PT );
+        props.add( CATEGORY_PT );
+        props.add( GEOM_PT );
+        PARCEL_FT = new GenericFeatureType( PARCEL, props, false );
+    }
+
+    private final Random rnd = new Random( SEED );
+
+    private final GeometryFactory fac = new GeometryFactory();
+
+    private final ICRS crs;
+
+    /**
+     * @param crs
+     *            the crs to assign to the geometries, may be null
+     */
+    public SyntheticData( ICRS crs ) {
+        this.crs = crs;
+    }
+
+    /**
+     * @return the feature type of the generated features
+     */
+    public static GenericFeatureType getFeatureType() {
+        return PARCEL_FT;
+    }
+
+    /**
+     * @return {@link #EXTENT} as envelope in the crs of this generator
+     */
+    public Envelope getExtent() {
+        return fac.createEnvelope( EXTENT[0], EXTENT[1], EXTENT[2], EXTENT[3], crs );
+    }
+
+    /**
+     * @param count
+     * @param vertices
+     *            number of distinct vertices of each polygon
+     * @return count polygons
+     */
+    public List<Polygon> polygons( int count, int vertices ) {
+        List<Polygon> list = new ArrayList<Polygon>( count );
+        for ( int i = 0; i < count; ++i ) {
+            list.add( polygon( "POLY_" + i, vertices ) );
+        }
+        return list;
+    }
+
+    /**
+     * @param count
+     * @param vertices
+     *            number of distinct vertices of each polygon
+     * @return count parcel features
+     */
+    public List<Feature> features( int count, int vertices ) {
+        List<Feature> list = new ArrayList<Feature>( count );
+        for ( int i = 0; i < count; ++i ) {
+            double area = rnd.nextDouble() * 10000;
+            int category = rnd.nextInt( 10 );
+            Polygon geom = polygon( "PARCEL_" + i + "_GEOM", vertices );
+            list.add( createFeature( "PARCEL_" + i, "parcel " + i, area, category, geom ) );
+        }
+        return list;
+    }
+
+    /**
+     * @param fid
+     * @param name
+     * @param area
+     * @param category
+     * @param geom
+     * @return a new parcel feature
+     */
+    public static Feature createFeature( String fid, String name, double area, int category, Geometry geom ) {
+        List<Property> props = new ArrayList<Property>( 4 );
+        props.add( new GenericProperty( NAME_PT, new PrimitiveValue( name ) ) );
+        props.add( new GenericProperty( AREA_PT, new PrimitiveValue( area ) ) );
+        props.add( new GenericProperty( CATEGORY_PT, new PrimitiveValue( BigInteger.valueOf( category ) ) ) );
+        props.add( new GenericProperty( GEOM_PT, geom ) );
+        return PARCEL_FT.newFeature( fid, props, null );
+    }
+
+    /**
+     * @param id
+     * @param vertices
+     *            number of distinct vertices
+     * @return a star shaped polygon with a diameter of up to 0.04 degrees
+     */
+    public Polygon polygon( String id, int vertices ) {
+        double cx = EXTENT[0] + 0.02 + rnd.nextDouble() * ( EXTENT[2] - EXTENT[0] - 0.04 );
+        double cy = EXTENT[1] + 0.02 + rnd.nextDouble() * ( EXTENT[3] - EXTENT[1] - 0.04 );
+        double radius = 0.001 + rnd.nextDouble() * 0.019;
+        double[] coords = new double[( vertices + 1 ) * 2];
+        double step = 2 * Math.PI / vertices;
+        for ( int i = 0; i < vertices; ++i ) {
+            // jitter stays within the sector, so the ring cannot self intersect
+            double angle = ( i + rnd.nextDouble() * 0.9 ) * step;
+            double r = radius * ( 0.5 + rnd.nextDouble() * 0.5 );
+            coords[i * 2] = cx + Math.cos( angle ) * r;
+            coords[i * 2 + 1] = cy + Math.sin( angle ) * r;
+        }
+        coords[vertices * 2] = coords[0];
+        coords[vertices * 2 + 1] = coords[1];
+        LinearRing ring = fac.createLinearRing( null, crs, new PackedPoints( crs, coords, 2 ) );
+        return fac.createPolygon( id, crs, ring, null );
+    }
+
+    /**
+     * Encodes features as returned by {@link #features(int, int)} as GML 3.1 feature collection. The document does not
+     * reference a schema.
+     * 
+     * @param features
+     * @return the GML document
+     */
+    public static String toGml( List<Feature> features ) {
+        StringBuilder sb = new StringBuilder( features.size() * 512 );
+        sb.append( "<gml:FeatureCollection xmlns:gml=\"http://www.opengis.net/gml\" xmlns:app=\"" );
+        sb.append( APP_NS ).append( "\">" );
+        for ( Feature f : features ) {
+            sb.append( "<gml:featureMember><app:Parcel gml:id=\"" ).append( f.getId() ).append( "\">" );
+            appendProperty( sb, f, NAME );
+            appendProperty( sb, f, AREA );
+            appendProperty( sb, f, CATEGORY );
+            sb.append( "<app:geom>" );
+            appendGml( sb, (Polygon) f.getProperties( GEOM ).get( 0 ).getValue() );
+            sb.append( "</app:geom></app:Parcel></gml:featureMember>" );
+        }
+        sb.append( "</gml:FeatureCollection>" );
+        return sb.toString();
+    }
+
+    /**
+     * @param polygon
+     *            a polygon as returned by {@link #polygon(String, int)}
+     * @return the GML 3.1 encoding
+     */
+    public static String toGml( Polygon polygon ) {
+        StringBuilder sb = new StringBuilder();
+        appendGml( sb, polygon );
+        return sb.toString();
+    }
+
+    private static void appendProperty( StringBuilder sb, Feature f, QName name ) {
+        String local = name.getLocalPart();
+        sb.append( "<app:" ).append( local ).append( '>' );
+        sb.append( f.getProperties( name ).get( 0 ).getValue().toString() );
+        sb.append( "</app:" ).append( local ).append( '>' );
+    }
+
+    private static void appendGml( StringBuilder sb, Polygon polygon ) {
+        sb.append( "<gml:Polygon xmlns:gml=\"http://www.opengis.net/gml\" srsName=\"EPSG:4326\">" );
+        sb.append( "<gml:exterior><gml:LinearRing><gml:posList>" );
+        Points points = polygon.getExteriorRingCoordinates();
+        boolean first = true;
+        for ( Point p : points ) {
+            if ( !first ) {
+                sb.append( ' ' );
+            }
+            first = false;
+            sb.append( p.get0() ).append( ' ' ).append( p.get1() );
+        }
+        sb.append( "</gml:posList></gml:LinearRing></gml:exterior></gml:Polygon>" );
+    }
+
+}
@@ -0,0 +1,162 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.vecmath.Point3d;
+
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.cs.persistence.CRSManager;
+import org.deegree.cs.transformations.Transformation;
+import org.deegree.geometry.GeometryTransformer;
+import org.deegree.geometry.primitive.Point;
+import org.deegree.geometry.primitive.Polygon;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link GeometryTransformer} transforming polygons from EPSG:4326 into a projected crs.
+ * <p>
+ * The <code>pointList</code> and <code>inPlace</code> benchmarks compare the two coordinate paths of
+ * {@link Transformation} on the exterior ring coordinates of the same polygons: one {@link Point3d} per coordinate
+ * versus interleaved ordinates that are transformed in place. Both include the cost of setting up their input.
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TransformationBenchmark {
+
+    @Param({ "1000" })
+    public int count;
+
+    @Param({ "16", "256" })
+    public int vertices;
+
+    @Param({ "EPSG:3857", "EPSG:25832" })
+    public String target;
+
+    private Polygon[] polygons;
+
+    private GeometryTransformer transformer;
+
+    private Transformation transformation;
+
+    // interleaved (x,y,z) source ordinates of all exterior rings
+    private double[] ordinates;
+
+    private double[] buffer;
+
+    @Setup
+    public void setup()
+                            throws Exception {
+        ICRS source = CRSManager.lookup( "EPSG:4326" );
+        List<Polygon> list = new SyntheticData( source ).polygons( count, vertices );
+        polygons = list.toArray( new Polygon[count] );
+        ICRS targetCrs = CRSManager.lookup( target );
+        transformer = new GeometryTransformer( targetCrs );
+        transformation = CRSManager.getTransformation( null, source, targetCrs );
+
+        List<Double> values = new ArrayList<Double>();
+        for ( Polygon p : polygons ) {
+            for ( Point point : p.getExteriorRing().getControlPoints() ) {
+                values.add( point.get0() );
+                values.add( point.get1() );
+                values.add( Double.NaN );
+            }
+        }
+        ordinates = new double[values.size()];
+        for ( int i = 0; i < ordinates.length; i++ ) {
+            ordinates[i] = values.get( i );
+        }
+        buffer = new double[ordinates.length];
+    }
+
+    @Benchmark
+    public void transform( Blackhole bh )
+                            throws Exception {
+        for ( Polygon p : polygons ) {
+            bh.consume( transformer.transform( p ) );
+        }
+    }
+
+    @Benchmark
+    public List<Point3d> pointList()
+                            throws Exception {
+        List<Point3d> points = new ArrayList<Point3d>( ordinates.length / 3 );
+        for ( int i = 0; i < ordinates.length; i += 3 ) {
+            points.add( new Point3d( ordinates[i], ordinates[i + 1], ordinates[i + 2] ) );
+        }
+        return transformation.doTransform( points );
+    }
+
+    @Benchmark
+    public double[] inPlace()
+                            throws Exception {
+        System.arraycopy( ordinates, 0, buffer, 0, ordinates.length );
+        transformation.doTransformInPlace( buffer, 0, buffer.length / 3 );
+        return buffer;
+    }
+
+}
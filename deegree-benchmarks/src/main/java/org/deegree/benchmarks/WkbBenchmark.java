@@ -0,0 +1,141 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.List;
+
+import org.deegree.geometry.Geometry;
+import org.deegree.geometry.io.WKBReader;
+import org.deegree.geometry.io.WKBWriter;
+import org.deegree.geometry.primitive.Polygon;
+import org.deegree.geometry.standard.AbstractDefaultGeometry;
+import org.deegree.geometry.standard.primitive.DefaultPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link WKBReader} and {@link WKBWriter} with polygons of different sizes, compared to the round-trip via
+ * JTS that was used before.
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WkbBenchmark {
+
+    @Param({ "1000" })
+    public int count;
+
+    @Param({ "8", "64", "1024" })
+    public int vertices;
+
+    private Geometry[] geometries;
+
+    private byte[][] wkbs;
+
+    private final AbstractDefaultGeometry jtsFactory = new DefaultPoint( null, null, null, new double[] { 0.0, 0.0 } );
+
+    @Setup
+    public void setup()
+                            throws Exception {
+        List<Polygon> polygons = new SyntheticData( null ).polygons( count, vertices );
+        geometries = polygons.toArray( new Geometry[count] );
+        wkbs = new byte[count][];
+        for ( int i = 0; i < count; ++i ) {
+            wkbs[i] = WKBWriter.write( geometries[i] );
+        }
+    }
+
+    @Benchmark
+    public void read( Blackhole bh )
+                            throws Exception {
+        for ( byte[] wkb : wkbs ) {
+            bh.consume( WKBReader.read( wkb, null ) );
+        }
+    }
+
+    @Benchmark
+    public void readJts( Blackhole bh )
+                            throws Exception {
+        for ( byte[] wkb : wkbs ) {
+            bh.consume( jtsFactory.createFromJTS( new com.vividsolutions.jts.io.WKBReader().read( wkb ), null ) );
+        }
+    }
+
+    @Benchmark
+    public void write( Blackhole bh )
+                            throws Exception {
+        for ( Geometry g : geometries ) {
+            bh.consume( WKBWriter.write( g ) );
+        }
+    }
+
+    @Benchmark
+    public void writeJts( Blackhole bh )
+                            throws Exception {
+        // note that the JTS geometries are cached after the first invocation, so this only measures the encoding
+        for ( Geometry g : geometries ) {
+            com.vividsolutions.jts.geom.Geometry jtsGeom = ( (AbstractDefaultGeometry) g ).getJTSGeometry();
+            bh.consume( new com.vividsolutions.jts.io.WKBWriter().write( jtsGeom ) );
+        }
+    }
+
+}
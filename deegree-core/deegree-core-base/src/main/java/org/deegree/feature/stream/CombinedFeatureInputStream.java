@@ -38,6 +38,7 @@ package org.deegree.feature.stream;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
+import org.deegree.commons.utils.Cancellable;
 import org.deegree.feature.Feature;
 import org.deegree.feature.FeatureCollection;
 import org.deegree.feature.Features;
@@ -50,7 +51,7 @@ import org.deegree.feature.Features;
  * 
  * @version $Revision$, $Date$
  */
-public class CombinedFeatureInputStream implements FeatureInputStream {
+public class CombinedFeatureInputStream implements FeatureInputStream, Cancellable {
 
     Iterator<FeatureInputStream> resultSetIter;
 
@@ -78,6 +79,14 @@ public class CombinedFeatureInputStream implements FeatureInputStream {
         }
     }
 
+    @Override
+    public void cancel() {
+        FeatureInputStream current = currentResultSet;
+        if ( current instanceof Cancellable ) {
+            ( (Cancellable) current ).cancel();
+        }
+    }
+
     @Override
     public FeatureCollection toCollection() {
         return Features.toCollection( this );
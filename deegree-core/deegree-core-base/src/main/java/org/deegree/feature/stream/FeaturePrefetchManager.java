@@ -0,0 +1,192 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.stream;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.util.Properties;
+
+import javax.management.ObjectName;
+
+import org.apache.commons.io.IOUtils;
+import org.deegree.commons.config.AbstractBasicResourceManager;
+import org.deegree.commons.config.DeegreeWorkspace;
+import org.deegree.commons.config.ResourceInitException;
+import org.deegree.commons.config.ResourceManager;
+import org.deegree.commons.config.ResourceManagerMetadata;
+import org.deegree.commons.config.ResourceProvider;
+import org.deegree.commons.config.ResourceState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sets up the {@link FeaturePrefetchScheduler} of a workspace and shuts it down together with the workspace.
+ * <p>
+ * The scheduler is configured by an (optional) <code>prefetch.properties</code> file in the workspace directory (or
+ * the workspace root directory). Supported keys are <code>maxProducers</code>, <code>maxQueueWait</code>,
+ * <code>maxFill</code>, <code>minFill</code>, <code>consumerTimeout</code> and <code>virtualThreads</code>.
+ * </p>
+ * 
+ * @since 3.4
+ */
+public class FeaturePrefetchManager extends AbstractBasicResourceManager implements ResourceManager {
+
+    private static final Logger LOG = LoggerFactory.getLogger( FeaturePrefetchManager.class );
+
+    private static final String CONFIG_FILE = "prefetch.properties";
+
+    private FeaturePrefetchScheduler scheduler;
+
+    private ObjectName mbeanName;
+
+    @Override
+    public void startup( DeegreeWorkspace workspace )
+                            throws ResourceInitException {
+        File globalConfig = new File( DeegreeWorkspace.getWorkspaceRoot(), CONFIG_FILE );
+        File configFile = new File( workspace.getLocation(), CONFIG_FILE );
+        if ( !configFile.exists() ) {
+            configFile = globalConfig;
+        }
+
+        Properties props = new Properties();
+        if ( configFile.exists() ) {
+            LOG.info( "Using feature prefetching configuration '" + configFile + "'." );
+            FileInputStream fis = null;
+            try {
+                fis = new FileInputStream( configFile );
+                props.load( fis );
+            } catch ( IOException e ) {
+                String msg = "Could not read feature prefetching configuration '" + configFile + "': "
+                             + e.getMessage();
+                throw new ResourceInitException( msg, e );
+            } finally {
+                IOUtils.closeQuietly( fis );
+            }
+        }
+
+        try {
+            int maxProducers = getInt( props, "maxProducers", FeaturePrefetchScheduler.DEFAULT_MAX_PRODUCERS );
+            long maxQueueWait = getInt( props, "maxQueueWait", 0 );
+            int maxFill = getInt( props, "maxFill", FeaturePrefetchScheduler.DEFAULT_MAX_FILL );
+            int minFill = getInt( props, "minFill", FeaturePrefetchScheduler.DEFAULT_MIN_FILL );
+            long consumerTimeout = getInt( props, "consumerTimeout", 0 );
+            boolean virtualThreads = Boolean.parseBoolean( props.getProperty( "virtualThreads", "false" ).trim() );
+            scheduler = new FeaturePrefetchScheduler( maxProducers, maxQueueWait, maxFill, minFill, consumerTimeout,
+                                                      virtualThreads );
+            LOG.debug( "Feature prefetching: maxProducers=" + maxProducers + ", maxQueueWait=" + maxQueueWait
+                       + ", maxFill=" + maxFill + ", minFill=" + minFill + ", consumerTimeout=" + consumerTimeout
+                       + ", virtualThreads=" + virtualThreads );
+        } catch ( IllegalArgumentException e ) {
+            String msg = "Invalid feature prefetching configuration '" + configFile + "': " + e.getMessage();
+            throw new ResourceInitException( msg, e );
+        }
+        FeaturePrefetchScheduler.setInstance( scheduler );
+        registerMBean( workspace.getName() );
+    }
+
+    private static int getInt( Properties props, String key, int defaultValue ) {
+        String value = props.getProperty( key );
+        if ( value == null || value.trim().isEmpty() ) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt( value.trim() );
+        } catch ( NumberFormatException e ) {
+            throw new IllegalArgumentException( "Value of '" + key + "' is not an integer: " + value );
+        }
+    }
+
+    private void registerMBean( String name ) {
+        try {
+            ObjectName objectName = new ObjectName( "org.deegree:type=FeaturePrefetch,name="
+                                                    + ObjectName.quote( String.valueOf( name ) ) );
+            ManagementFactory.getPlatformMBeanServer().registerMBean( scheduler, objectName );
+            mbeanName = objectName;
+        } catch ( Exception e ) {
+            LOG.warn( "Could not register feature prefetching MBean: " + e.getMessage() );
+            LOG.trace( "Stack trace:", e );
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        if ( mbeanName != null ) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean( mbeanName );
+            } catch ( Exception e ) {
+                LOG.debug( "Could not unregister feature prefetching MBean: " + e.getMessage() );
+            }
+            mbeanName = null;
+        }
+        if ( scheduler != null ) {
+            FeaturePrefetchScheduler.setInstance( null );
+            scheduler = null;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Class<? extends ResourceManager>[] getDependencies() {
+        return new Class[] {};
+    }
+
+    @Override
+    public ResourceManagerMetadata getMetadata() {
+        return null;
+    }
+
+    @Override
+    public ResourceState activate( String id ) {
+        return null;
+    }
+
+    @Override
+    public ResourceState deactivate( String id ) {
+        return null;
+    }
+
+    @Override
+    protected ResourceProvider getProvider( URL file ) {
+        return null;
+    }
+
+    @Override
+    protected void remove( String id ) {
+        // nothing to do
+    }
+}
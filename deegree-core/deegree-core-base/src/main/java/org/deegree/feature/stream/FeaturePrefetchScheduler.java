@@ -0,0 +1,380 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.stream;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the producers of {@link ThreadedFeatureInputStream}s.
+ * <p>
+ * The number of concurrently running producers is bounded. If no producer slot becomes available within the
+ * configured maximum queue wait time, the stream is consumed directly by the calling thread instead (without
+ * prefetching), so callers never block on a saturated pool. The active scheduler is managed by the
+ * {@link FeaturePrefetchManager} of the current workspace.
+ * </p>
+ * 
+ * @since 3.4
+ */
+public class FeaturePrefetchScheduler implements FeaturePrefetchSchedulerMBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger( FeaturePrefetchScheduler.class );
+
+    /** Default maximum number of concurrently running producers. */
+    public static final int DEFAULT_MAX_PRODUCERS = 10;
+
+    /** Default capacity of the feature queue of a stream. */
+    public static final int DEFAULT_MAX_FILL = 100;
+
+    /** Default fill level below which a paused producer is resumed. */
+    public static final int DEFAULT_MIN_FILL = 20;
+
+    private static volatile FeaturePrefetchScheduler instance;
+
+    private final ExecutorService executor;
+
+    private final Semaphore slots;
+
+    private final int maxProducers;
+
+    private final long maxQueueWait;
+
+    private final int maxFill;
+
+    private final int minFill;
+
+    private final long consumerTimeout;
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final AtomicLong started = new AtomicLong();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private final AtomicLong queueWaitNanos = new AtomicLong();
+
+    private final AtomicLong stalls = new AtomicLong();
+
+    private final AtomicLong stallNanos = new AtomicLong();
+
+    private final AtomicLong cancelled = new AtomicLong();
+
+    private final AtomicLong timeouts = new AtomicLong();
+
+    /**
+     * Creates a new {@link FeaturePrefetchScheduler} instance.
+     * 
+     * @param maxProducers
+     *            maximum number of concurrently running producers, must be positive
+     * @param maxQueueWait
+     *            maximum time (in milliseconds) to wait for a free producer slot, 0 means don't wait at all
+     * @param maxFill
+     *            default capacity of the feature queue of a stream, must be positive
+     * @param minFill
+     *            default fill level below which a paused producer is resumed
+     * @param consumerTimeout
+     *            maximum time (in milliseconds) that a consumer waits for the next feature, 0 means no limit
+     * @param virtualThreads
+     *            if <code>true</code>, producers are run on virtual threads (if the JVM supports them)
+     */
+    public FeaturePrefetchScheduler( int maxProducers, long maxQueueWait, int maxFill, int minFill,
+                                     long consumerTimeout, boolean virtualThreads ) {
+        if ( maxProducers < 1 ) {
+            throw new IllegalArgumentException( "Maximum number of producers must be positive." );
+        }
+        if ( maxFill < 1 ) {
+            throw new IllegalArgumentException( "Maximum queue fill must be positive." );
+        }
+        this.maxProducers = maxProducers;
+        this.maxQueueWait = maxQueueWait;
+        this.maxFill = maxFill;
+        this.minFill = Math.max( 0, Math.min( minFill, maxFill - 1 ) );
+        this.consumerTimeout = consumerTimeout;
+        this.slots = new Semaphore( maxProducers, true );
+        ExecutorService virtualExecutor = virtualThreads ? createVirtualThreadExecutor() : null;
+        if ( virtualExecutor != null ) {
+            executor = virtualExecutor;
+        } else {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor( maxProducers, maxProducers, 60, SECONDS,
+                                                              new LinkedBlockingQueue<Runnable>(),
+                                                              new ProducerThreadFactory() );
+            pool.allowCoreThreadTimeOut( true );
+            executor = pool;
+        }
+    }
+
+    /**
+     * Creates a new {@link FeaturePrefetchScheduler} with default settings.
+     */
+    public FeaturePrefetchScheduler() {
+        this( DEFAULT_MAX_PRODUCERS, 0, DEFAULT_MAX_FILL, DEFAULT_MIN_FILL, 0, false );
+    }
+
+    /**
+     * Returns the active scheduler.
+     * 
+     * @return the active scheduler, never <code>null</code> (a default one is created if none has been set)
+     */
+    public static FeaturePrefetchScheduler getInstance() {
+        FeaturePrefetchScheduler scheduler = instance;
+        if ( scheduler == null ) {
+            synchronized ( FeaturePrefetchScheduler.class ) {
+                if ( instance == null ) {
+                    instance = new FeaturePrefetchScheduler();
+                }
+                scheduler = instance;
+            }
+        }
+        return scheduler;
+    }
+
+    /**
+     * Replaces the active scheduler. The previous one is shut down.
+     * 
+     * @param scheduler
+     *            new scheduler, may be <code>null</code> (a default one will be created on demand)
+     */
+    public static void setInstance( FeaturePrefetchScheduler scheduler ) {
+        FeaturePrefetchScheduler old;
+        synchronized ( FeaturePrefetchScheduler.class ) {
+            old = instance;
+            instance = scheduler;
+        }
+        if ( old != null && old != scheduler ) {
+            old.shutdown();
+        }
+    }
+
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" ).invoke( null );
+        } catch ( Exception e ) {
+            LOG.warn( "Virtual threads are not supported by this JVM. Using platform threads for prefetching." );
+            LOG.trace( "Stack trace:", e );
+        }
+        return null;
+    }
+
+    /**
+     * Starts the given producer, if a producer slot becomes available within the maximum queue wait time.
+     * 
+     * @param producer
+     *            producer to run, must not be <code>null</code>
+     * @return <code>true</code>, if the producer has been scheduled, <code>false</code> otherwise (caller has to
+     *         consume the source directly)
+     */
+    boolean execute( final Runnable producer ) {
+        final long requested = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = maxQueueWait > 0 ? slots.tryAcquire( maxQueueWait, MILLISECONDS ) : slots.tryAcquire();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if ( !acquired ) {
+            LOG.debug( "No free producer slot. Consuming feature stream without prefetching." );
+            rejected.incrementAndGet();
+            return false;
+        }
+        try {
+            executor.execute( new Runnable() {
+                @Override
+                public void run() {
+                    queueWaitNanos.addAndGet( System.nanoTime() - requested );
+                    started.incrementAndGet();
+                    active.incrementAndGet();
+                    try {
+                        producer.run();
+                    } finally {
+                        active.decrementAndGet();
+                        slots.release();
+                    }
+                }
+            } );
+        } catch ( RejectedExecutionException e ) {
+            slots.release();
+            rejected.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the queue capacity to use for a stream.
+     * 
+     * @param expectedFeatures
+     *            maximum number of features that the consumer is going to read, -1 if unknown
+     * @return queue capacity, at least 1
+     */
+    public int getMaxFill( int expectedFeatures ) {
+        if ( expectedFeatures > 0 && expectedFeatures < maxFill ) {
+            return expectedFeatures;
+        }
+        return maxFill;
+    }
+
+    /**
+     * Returns the fill level below which a paused producer is resumed, scaled to the given queue capacity.
+     * 
+     * @param maxFill
+     *            queue capacity of the stream
+     * @return fill level, always less than <code>maxFill</code>
+     */
+    public int getMinFill( int maxFill ) {
+        if ( maxFill >= this.maxFill ) {
+            return minFill;
+        }
+        return (int) ( (long) minFill * maxFill / this.maxFill );
+    }
+
+    /**
+     * @return maximum time (in milliseconds) that a consumer waits for the next feature, 0 means no limit
+     */
+    public long getConsumerTimeout() {
+        return consumerTimeout;
+    }
+
+    void stalled( long nanos ) {
+        stalls.incrementAndGet();
+        stallNanos.addAndGet( nanos );
+    }
+
+    void cancelled() {
+        cancelled.incrementAndGet();
+    }
+
+    void timedOut() {
+        timeouts.incrementAndGet();
+    }
+
+    /**
+     * Stops all running producers and releases the threads.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public int getMaxProducers() {
+        return maxProducers;
+    }
+
+    @Override
+    public int getActiveProducers() {
+        return active.get();
+    }
+
+    @Override
+    public long getStartedCount() {
+        return started.get();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    @Override
+    public long getTotalQueueWaitMillis() {
+        return NANOSECONDS.toMillis( queueWaitNanos.get() );
+    }
+
+    @Override
+    public double getAverageQueueWaitMillis() {
+        long count = started.get();
+        if ( count == 0 ) {
+            return 0;
+        }
+        return queueWaitNanos.get() / 1000000.0 / count;
+    }
+
+    @Override
+    public long getStallCount() {
+        return stalls.get();
+    }
+
+    @Override
+    public long getTotalStallMillis() {
+        return NANOSECONDS.toMillis( stallNanos.get() );
+    }
+
+    @Override
+    public long getCancelledCount() {
+        return cancelled.get();
+    }
+
+    @Override
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    @Override
+    public void resetStatistics() {
+        started.set( 0 );
+        rejected.set( 0 );
+        queueWaitNanos.set( 0 );
+        stalls.set( 0 );
+        stallNanos.set( 0 );
+        cancelled.set( 0 );
+        timeouts.set( 0 );
+    }
+
+    private static class ProducerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger( 1 );
+
+        @Override
+        public Thread newThread( Runnable r ) {
+            Thread t = new Thread( r, "deegree-feature-prefetch-" + threadNumber.getAndIncrement() );
+            t.setDaemon( true );
+            return t;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.stream;
+
+/**
+ * Management interface of {@link FeaturePrefetchScheduler}, exposes the prefetching statistics (e.g. via JMX).
+ * 
+ * @since 3.4
+ */
+public interface FeaturePrefetchSchedulerMBean {
+
+    /**
+     * @return maximum number of concurrently running producers
+     */
+    int getMaxProducers();
+
+    /**
+     * @return number of currently running producers
+     */
+    int getActiveProducers();
+
+    /**
+     * @return number of producers that have been started
+     */
+    long getStartedCount();
+
+    /**
+     * @return number of streams that were consumed without prefetching, because no producer slot became available in
+     *         time
+     */
+    long getRejectedCount();
+
+    /**
+     * @return accumulated time (in milliseconds) that streams waited for a producer to start
+     */
+    long getTotalQueueWaitMillis();
+
+    /**
+     * @return average time (in milliseconds) that a stream waited for a producer to start
+     */
+    double getAverageQueueWaitMillis();
+
+    /**
+     * @return number of times that a producer had to pause, because the consumer didn't keep up
+     */
+    long getStallCount();
+
+    /**
+     * @return accumulated time (in milliseconds) that producers were paused
+     */
+    long getTotalStallMillis();
+
+    /**
+     * @return number of producers that were cancelled before the source was exhausted
+     */
+    long getCancelledCount();
+
+    /**
+     * @return number of consumers that gave up waiting for the next feature
+     */
+    long getTimeoutCount();
+
+    /**
+     * Resets all counters.
+     */
+    void resetStatistics();
+}
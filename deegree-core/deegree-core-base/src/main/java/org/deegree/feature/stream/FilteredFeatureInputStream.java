@@ -38,10 +38,11 @@ package org.deegree.feature.stream;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
+import org.deegree.commons.utils.Cancellable;
 import org.deegree.feature.Feature;
 import org.deegree.feature.FeatureCollection;
 import org.deegree.feature.Features;
-import org.deegree.feature.xpath.TypedObjectNodeXPathEvaluator;
+import org.deegree.filter.CompiledFilter;
 import org.deegree.filter.Filter;
 import org.deegree.filter.FilterEvaluationException;
 
@@ -53,11 +54,11 @@ import org.deegree.filter.FilterEvaluationException;
  * 
  * @version $Revision$, $Date$
  */
-public class FilteredFeatureInputStream implements FeatureInputStream {
+public class FilteredFeatureInputStream implements FeatureInputStream, Cancellable {
 
     private FeatureInputStream rs;
 
-    private Filter filter;
+    private CompiledFilter filter;
 
     /**
      * Creates a new {@link FilteredFeatureInputStream} that is backed by the given {@link FeatureInputStream}.
@@ -69,7 +70,7 @@ public class FilteredFeatureInputStream implements FeatureInputStream {
      */
     public FilteredFeatureInputStream( FeatureInputStream rs, Filter filter ) {
         this.rs = rs;
-        this.filter = filter;
+        this.filter = CompiledFilter.compile( filter );
     }
 
     @Override
@@ -77,6 +78,13 @@ public class FilteredFeatureInputStream implements FeatureInputStream {
         rs.close();
     }
 
+    @Override
+    public void cancel() {
+        if ( rs instanceof Cancellable ) {
+            ( (Cancellable) rs ).cancel();
+        }
+    }
+
     @Override
     public FeatureCollection toCollection() {
         return Features.toCollection( this );
@@ -86,9 +94,6 @@ public class FilteredFeatureInputStream implements FeatureInputStream {
     public Iterator<Feature> iterator() {
         return new Iterator<Feature>() {
 
-            // TODO
-            TypedObjectNodeXPathEvaluator evaluator = new TypedObjectNodeXPathEvaluator();
-
             Iterator<Feature> iter = rs.iterator();
 
             boolean nextCalled = true;
@@ -104,7 +109,7 @@ public class FilteredFeatureInputStream implements FeatureInputStream {
                 while ( iter.hasNext() ) {
                     Feature candidate = iter.next();
                     try {
-                        if ( filter.evaluate( candidate, evaluator ) ) {
+                        if ( filter.evaluate( candidate ) ) {
                             nextCalled = false;
                             next = candidate;
                             break;
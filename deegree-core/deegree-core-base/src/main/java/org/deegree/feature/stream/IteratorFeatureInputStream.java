@@ -37,6 +37,7 @@ package org.deegree.feature.stream;
 
 import java.util.Iterator;
 
+import org.deegree.commons.utils.Cancellable;
 import org.deegree.commons.utils.CloseableIterator;
 import org.deegree.feature.Feature;
 import org.deegree.feature.FeatureCollection;
@@ -50,7 +51,7 @@ import org.deegree.feature.Features;
  * 
  * @version $Revision$, $Date$
  */
-public class IteratorFeatureInputStream implements FeatureInputStream {
+public class IteratorFeatureInputStream implements FeatureInputStream, Cancellable {
 
     private CloseableIterator<Feature> featureIter;
 
@@ -69,6 +70,13 @@ public class IteratorFeatureInputStream implements FeatureInputStream {
         featureIter.close();
     }
 
+    @Override
+    public void cancel() {
+        if ( featureIter instanceof Cancellable ) {
+            ( (Cancellable) featureIter ).cancel();
+        }
+    }
+
     @Override
     public FeatureCollection toCollection() {
         return Features.toCollection( this );
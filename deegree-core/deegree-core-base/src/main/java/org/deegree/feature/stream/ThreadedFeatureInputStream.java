@@ -39,9 +39,8 @@ import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
+import org.deegree.commons.utils.Cancellable;
 import org.deegree.feature.Feature;
 import org.deegree.feature.FeatureCollection;
 import org.deegree.feature.Features;
@@ -50,6 +49,12 @@ import org.slf4j.LoggerFactory;
 
 /**
  * {@link FeatureInputStream} that uses a separate thread to keep an internal queue of features filled.
+ * <p>
+ * The producer threads are provided by the active {@link FeaturePrefetchScheduler}. If the scheduler has no free
+ * producer slot, the features are read directly from the source stream by the consuming thread. Closing the stream
+ * before it has been consumed completely cancels the source (if it is {@link Cancellable}, e.g. to abort a running SQL
+ * statement).
+ * </p>
  * 
  * @author <a href="mailto:schneider@lat-lon.de">Markus Schneider</a>
  * @author last edited by: $Author: schneider $
@@ -60,8 +65,9 @@ public class ThreadedFeatureInputStream implements FeatureInputStream {
 
     private static Logger LOG = LoggerFactory.getLogger( ThreadedFeatureInputStream.class );
 
-    // TODO where to manage this?
-    private static ExecutorService service = Executors.newFixedThreadPool( 10 );
+    private final FeatureInputStream rs;
+
+    private final FeaturePrefetchScheduler scheduler;
 
     private final QueueFiller producer;
 
@@ -74,13 +80,43 @@ public class ThreadedFeatureInputStream implements FeatureInputStream {
      * @param minFill
      */
     public ThreadedFeatureInputStream( FeatureInputStream rs, int maxFill, int minFill ) {
-        producer = new QueueFiller( rs, maxFill, minFill );
-        service.execute( producer );
+        this( rs, maxFill, minFill, FeaturePrefetchScheduler.getInstance() );
+    }
+
+    /**
+     * Creates a new {@link ThreadedFeatureInputStream} based on the given {@link FeatureInputStream}, with a queue
+     * that is sized for the expected number of features.
+     * 
+     * @param rs
+     *            source stream, must not be <code>null</code>
+     * @param expectedFeatures
+     *            maximum number of features that are going to be read, -1 if unknown
+     */
+    public ThreadedFeatureInputStream( FeatureInputStream rs, int expectedFeatures ) {
+        this( rs, expectedFeatures, FeaturePrefetchScheduler.getInstance() );
+    }
+
+    private ThreadedFeatureInputStream( FeatureInputStream rs, int expectedFeatures,
+                                        FeaturePrefetchScheduler scheduler ) {
+        this( rs, scheduler.getMaxFill( expectedFeatures ),
+              scheduler.getMinFill( scheduler.getMaxFill( expectedFeatures ) ), scheduler );
+    }
+
+    private ThreadedFeatureInputStream( FeatureInputStream rs, int maxFill, int minFill,
+                                        FeaturePrefetchScheduler scheduler ) {
+        this.rs = rs;
+        this.scheduler = scheduler;
+        QueueFiller filler = new QueueFiller( rs, maxFill, minFill );
+        this.producer = scheduler.execute( filler ) ? filler : null;
     }
 
     @Override
     public void close() {
-        producer.exit();
+        if ( producer != null ) {
+            producer.exit();
+        } else {
+            rs.close();
+        }
     }
 
     @Override
@@ -90,6 +126,9 @@ public class ThreadedFeatureInputStream implements FeatureInputStream {
 
     @Override
     public Iterator<Feature> iterator() {
+        if ( producer == null ) {
+            return rs.iterator();
+        }
         return new Iterator<Feature>() {
 
             @Override
@@ -128,11 +167,11 @@ public class ThreadedFeatureInputStream implements FeatureInputStream {
 
         private int minFill;
 
-        private boolean exitRequested;
+        private volatile boolean exitRequested;
 
-        private boolean sleeping;
+        private volatile boolean sleeping;
 
-        private boolean finished;
+        private volatile boolean finished;
 
         private QueueFiller( FeatureInputStream rs, int maxFill, int minFill ) {
             this.rs = rs;
@@ -145,30 +184,36 @@ public class ThreadedFeatureInputStream implements FeatureInputStream {
             LOG.debug( "Producer thread starting" );
             try {
                 Iterator<Feature> iter = rs.iterator();
-                try {
-                    Feature f = null;
-                    while ( iter.hasNext() && !exitRequested ) {
-                        if ( f == null ) {
-                            f = iter.next();
-                        }
-                        synchronized ( this ) {
-                            if ( !featureQueue.offer( f ) ) {
-                                // wait until we get notified that queue needs to be filled up again
-
-                                // LOG.debug( "Producer thread going to sleep: fill=" + featureQueue.size() );
-                                sleeping = true;
+                Feature f = null;
+                while ( !exitRequested && iter.hasNext() ) {
+                    if ( f == null ) {
+                        f = iter.next();
+                    }
+                    synchronized ( this ) {
+                        if ( !featureQueue.offer( f ) ) {
+                            // wait until we get notified that queue needs to be filled up again
+                            long stallStart = System.nanoTime();
+                            sleeping = true;
+                            if ( !exitRequested ) {
                                 wait();
-                                sleeping = false;
-                                // LOG.debug( "Producer thread waking up: fill=" + featureQueue.size() );
-                            } else {
-                                f = null;
-                                // Wake reading thread
-                                notify();
                             }
+                            sleeping = false;
+                            scheduler.stalled( System.nanoTime() - stallStart );
+                        } else {
+                            f = null;
+                            // Wake reading thread
+                            notify();
                         }
                     }
-                } catch ( InterruptedException e ) {
-                    LOG.debug( "Got interrupted." );
+                }
+            } catch ( InterruptedException e ) {
+                LOG.debug( "Got interrupted." );
+            } catch ( RuntimeException e ) {
+                if ( exitRequested ) {
+                    LOG.debug( "Producer aborted: " + e.getMessage() );
+                } else {
+                    LOG.warn( "Fetching features failed: " + e.getMessage() );
+                    LOG.trace( "Stack trace:", e );
                 }
             } finally {
                 finished = true;
@@ -186,7 +231,6 @@ public class ThreadedFeatureInputStream implements FeatureInputStream {
         private boolean hasNext() {
             int fill = featureQueue.size();
             if ( sleeping && fill < minFill ) {
-                // LOG.debug( "Queue below min fill. Waking producer thread." );
                 synchronized ( this ) {
                     notify();
                 }
@@ -194,19 +238,33 @@ public class ThreadedFeatureInputStream implements FeatureInputStream {
             if ( fill > 0 ) {
                 return true;
             }
+            long timeout = scheduler.getConsumerTimeout();
+            long deadline = timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
             synchronized ( this ) {
                 while ( true ) {
-                    // LOG.debug( "Queue empty. Checking if more features are coming from producer." );
                     if ( finished && featureQueue.isEmpty() ) {
                         return false;
                     }
                     if ( !featureQueue.isEmpty() ) {
                         return true;
                     }
+                    if ( sleeping ) {
+                        // queue has been drained while the producer was about to pause
+                        notify();
+                    }
+                    long remaining = deadline - System.currentTimeMillis();
+                    if ( remaining <= 0 ) {
+                        scheduler.timedOut();
+                        exit();
+                        throw new RuntimeException( "Timeout (" + timeout + " ms) while waiting for features." );
+                    }
                     try {
-                        wait( 1000 );
+                        wait( Math.min( remaining, 1000 ) );
                     } catch ( InterruptedException ex ) {
-                        // Ignore
+                        // stop consuming, but keep the interrupted status for the caller
+                        Thread.currentThread().interrupt();
+                        exit();
+                        return false;
                     }
                 }
             }
@@ -220,20 +278,27 @@ public class ThreadedFeatureInputStream implements FeatureInputStream {
         }
 
         private void exit() {
+            if ( exitRequested ) {
+                return;
+            }
             exitRequested = true;
-            if ( sleeping ) {
-                synchronized ( this ) {
-                    notify();
+            if ( !finished ) {
+                scheduler.cancelled();
+                if ( rs instanceof Cancellable ) {
+                    ( (Cancellable) rs ).cancel();
                 }
             }
+            synchronized ( this ) {
+                notify();
+            }
         }
     }
 
     /**
-     * 
+     * Stops the producers of the active {@link FeaturePrefetchScheduler}.
      */
     public static void shutdown() {
-        service.shutdown();
+        FeaturePrefetchScheduler.setInstance( null );
     }
 
 }
@@ -0,0 +1,157 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2009 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.stream;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.deegree.commons.utils.Cancellable;
+import org.deegree.feature.Feature;
+import org.deegree.feature.FeatureCollection;
+import org.deegree.feature.Features;
+
+/**
+ * {@link FeatureInputStream} that measures the time spent in another {@link FeatureInputStream}.
+ * <p>
+ * Feature stores usually fetch and build the features while the stream is iterated, so the time spent in
+ * {@link Iterator#hasNext()}, {@link Iterator#next()} and {@link #close()} is data access time. The time is added to
+ * an accumulator, which may be shared between threads (e.g. by the producer of a {@link ThreadedFeatureInputStream}).
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class TimedFeatureInputStream implements FeatureInputStream, Cancellable {
+
+    private final FeatureInputStream rs;
+
+    private final AtomicLong nanos;
+
+    /**
+     * Creates a new {@link TimedFeatureInputStream} that is backed by the given {@link FeatureInputStream}.
+     * 
+     * @param rs
+     *            stream to measure, must not be <code>null</code>
+     * @param nanos
+     *            accumulator for the measured time in nanoseconds, may be <code>null</code> (nothing is measured)
+     */
+    public TimedFeatureInputStream( FeatureInputStream rs, AtomicLong nanos ) {
+        this.rs = rs;
+        this.nanos = nanos;
+    }
+
+    @Override
+    public void close() {
+        long start = System.nanoTime();
+        try {
+            rs.close();
+        } finally {
+            add( start );
+        }
+    }
+
+    @Override
+    public void cancel() {
+        if ( rs instanceof Cancellable ) {
+            ( (Cancellable) rs ).cancel();
+        }
+    }
+
+    @Override
+    public FeatureCollection toCollection() {
+        return Features.toCollection( this );
+    }
+
+    @Override
+    public Iterator<Feature> iterator() {
+        long start = System.nanoTime();
+        final Iterator<Feature> iter;
+        try {
+            iter = rs.iterator();
+        } finally {
+            add( start );
+        }
+        if ( nanos == null ) {
+            return iter;
+        }
+        return new Iterator<Feature>() {
+
+            @Override
+            public boolean hasNext() {
+                long start = System.nanoTime();
+                try {
+                    return iter.hasNext();
+                } finally {
+                    add( start );
+                }
+            }
+
+            @Override
+            public Feature next() {
+                long start = System.nanoTime();
+                try {
+                    return iter.next();
+                } finally {
+                    add( start );
+                }
+            }
+
+            @Override
+            public void remove() {
+                iter.remove();
+            }
+        };
+    }
+
+    @Override
+    public int count() {
+        long start = System.nanoTime();
+        try {
+            return rs.count();
+        } finally {
+            add( start );
+        }
+    }
+
+    private void add( long start ) {
+        if ( nanos != null ) {
+            nanos.addAndGet( System.nanoTime() - start );
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.feature.xpath;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.deegree.commons.tom.TypedObjectNode;
+import org.deegree.commons.tom.gml.GMLObject;
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.feature.xpath.node.XPathNode;
+import org.deegree.filter.expression.ValueReference;
+import org.jaxen.Context;
+import org.jaxen.ContextSupport;
+import org.jaxen.FunctionContext;
+import org.jaxen.JaxenException;
+import org.jaxen.NamespaceContext;
+import org.jaxen.VariableContext;
+
+/**
+ * Parsed {@link GMLObjectXPath} of a {@link ValueReference} that can be evaluated against arbitrary context nodes.
+ * <p>
+ * In contrast to a {@link GMLObjectXPath}, the navigation root is not fixed when the expression is parsed, so instances
+ * can be attached to the {@link ValueReference} (see {@link ValueReference#setCompiled(Object)}) and be reused for all
+ * evaluated objects. Instances are thread-safe.
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+class CompiledXPath {
+
+    private final String text;
+
+    private final GMLObjectXPath xpath;
+
+    private final NamespaceContext nsContext;
+
+    private final FunctionContext functionContext;
+
+    private final VariableContext variableContext;
+
+    /**
+     * @param propName
+     *            value reference to compile, must not be <code>null</code>
+     * @throws JaxenException
+     *             if the value reference is not a valid XPath expression
+     */
+    CompiledXPath( ValueReference propName ) throws JaxenException {
+        this.text = propName.getAsText();
+        this.xpath = new GMLObjectXPath( text, null );
+        xpath.setNamespaceContext( propName.getNsContext() );
+        // fetch all contexts once, jaxen creates missing ones lazily (which is not thread-safe)
+        this.nsContext = xpath.getNamespaceContext();
+        this.functionContext = xpath.getFunctionContext();
+        this.variableContext = xpath.getVariableContext();
+    }
+
+    /**
+     * @return the text of the compiled expression, never <code>null</code>
+     */
+    String getText() {
+        return text;
+    }
+
+    /**
+     * Evaluates the expression.
+     * 
+     * @param contextNode
+     *            the xpath node to evaluate the expression against, must not be <code>null</code>
+     * @param root
+     *            root of the navigation hierarchy (used for absolute paths), can be <code>null</code>
+     * @return the selected values, never <code>null</code>
+     * @throws JaxenException
+     */
+    TypedObjectNode[] eval( XPathNode<?> contextNode, GMLObject root )
+                            throws JaxenException {
+        ContextSupport support = new ContextSupport( nsContext, functionContext, variableContext,
+                                                     new GMLObjectNavigator( root ) );
+        Context context = new Context( support );
+        context.setNodeSet( Collections.singletonList( contextNode ) );
+        return toValues( xpath.selectNodes( context ) );
+    }
+
+    private static TypedObjectNode[] toValues( List<?> selectedNodes ) {
+        TypedObjectNode[] resultValues = new TypedObjectNode[selectedNodes.size()];
+        int i = 0;
+        for ( Object node : selectedNodes ) {
+            if ( node instanceof XPathNode<?> ) {
+                resultValues[i++] = ( (XPathNode<?>) node ).getValue();
+            } else if ( node instanceof String || node instanceof Double || node instanceof Boolean ) {
+                resultValues[i++] = new PrimitiveValue( node );
+            } else {
+                throw new RuntimeException( "Internal error. Encountered unexpected value of type '"
+                                            + node.getClass().getName() + "' (=" + node
+                                            + ") during XPath-evaluation." );
+            }
+        }
+        return resultValues;
+    }
+}
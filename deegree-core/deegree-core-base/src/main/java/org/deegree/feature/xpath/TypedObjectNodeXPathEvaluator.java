@@ -44,16 +44,13 @@ import org.deegree.commons.tom.ElementNode;
 import org.deegree.commons.tom.TypedObjectNode;
 import org.deegree.commons.tom.gml.GMLObject;
 import org.deegree.commons.tom.gml.property.Property;
-import org.deegree.commons.tom.primitive.PrimitiveValue;
 import org.deegree.feature.xpath.node.GMLObjectNode;
 import org.deegree.feature.xpath.node.PropertyNode;
 import org.deegree.feature.xpath.node.XMLElementNode;
-import org.deegree.feature.xpath.node.XPathNode;
 import org.deegree.filter.FilterEvaluationException;
 import org.deegree.filter.XPathEvaluator;
 import org.deegree.filter.expression.ValueReference;
 import org.jaxen.JaxenException;
-import org.jaxen.XPath;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -115,88 +112,65 @@ public class TypedObjectNodeXPathEvaluator implements XPathEvaluator<TypedObject
             return props.toArray( propArray );
         }
 
-        TypedObjectNode[] resultValues = null;
         try {
-            synchronized ( context ) {
-                XPath xpath = new GMLObjectXPath( propName.getAsText(), context );
-                xpath.setNamespaceContext( propName.getNsContext() );
-                List<?> selectedNodes;
-                selectedNodes = xpath.selectNodes( new GMLObjectNode<GMLObject, GMLObject>( null, context ) );
-                resultValues = new TypedObjectNode[selectedNodes.size()];
-                int i = 0;
-                for ( Object node : selectedNodes ) {
-                    if ( node instanceof XPathNode<?> ) {
-                        resultValues[i++] = ( (XPathNode<?>) node ).getValue();
-                    } else if ( node instanceof String || node instanceof Double || node instanceof Boolean ) {
-                        resultValues[i++] = new PrimitiveValue( node );
-                    } else {
-                        throw new RuntimeException( "Internal error. Encountered unexpected value of type '"
-                                                    + node.getClass().getName() + "' (=" + node
-                                                    + ") during XPath-evaluation." );
-                    }
-                }
-            }
+            // no lock on the context needed: the compiled xpath is thread-safe and the navigator is created per call
+            CompiledXPath xpath = getCompiledXPath( propName );
+            return xpath.eval( new GMLObjectNode<GMLObject, GMLObject>( null, context ), context );
         } catch ( JaxenException e ) {
-            e.printStackTrace();
+            LOG.trace( "Stack trace:", e );
             throw new FilterEvaluationException( e.getMessage() );
         }
-        return resultValues;
     }
 
     public TypedObjectNode[] eval( ElementNode element, ValueReference propName )
                             throws FilterEvaluationException {
-
-        TypedObjectNode[] resultValues = null;
         try {
-            XPath xpath = new GMLObjectXPath( propName.getAsText(), null );
-            xpath.setNamespaceContext( propName.getNsContext() );
-            List<?> selectedNodes;
-            selectedNodes = xpath.selectNodes( new XMLElementNode( null, element ) );
-            resultValues = new TypedObjectNode[selectedNodes.size()];
-            int i = 0;
-            for ( Object node : selectedNodes ) {
-                if ( node instanceof XPathNode<?> ) {
-                    resultValues[i++] = ( (XPathNode<?>) node ).getValue();
-                } else if ( node instanceof String || node instanceof Double || node instanceof Boolean ) {
-                    resultValues[i++] = new PrimitiveValue( node );
-                } else {
-                    throw new RuntimeException( "Internal error. Encountered unexpected value of type '"
-                                                + node.getClass().getName() + "' (=" + node
-                                                + ") during XPath-evaluation." );
-                }
-            }
+            return getCompiledXPath( propName ).eval( new XMLElementNode( null, element ), null );
         } catch ( JaxenException e ) {
             throw new FilterEvaluationException( e.getMessage() );
         }
-        return resultValues;
     }
 
     public TypedObjectNode[] eval( Property element, ValueReference propName )
                             throws FilterEvaluationException {
+        try {
+            return getCompiledXPath( propName ).eval( new PropertyNode( null, element ), null );
+        } catch ( JaxenException e ) {
+            throw new FilterEvaluationException( e.getMessage() );
+        }
+    }
 
-        TypedObjectNode[] resultValues = null;
+    /**
+     * Parses the XPath expression of the given {@link ValueReference} (if it has not been parsed before) and attaches
+     * the result to it, so subsequent evaluations (by any {@link TypedObjectNodeXPathEvaluator}) can skip the parsing.
+     * 
+     * @param propName
+     *            value reference to compile, must not be <code>null</code>
+     * @throws FilterEvaluationException
+     *             if the value reference is not a valid XPath expression
+     */
+    public static void compile( ValueReference propName )
+                            throws FilterEvaluationException {
         try {
-            XPath xpath = new GMLObjectXPath( propName.getAsText(), null );
-            xpath.setNamespaceContext( propName.getNsContext() );
-            List<?> selectedNodes;
-            selectedNodes = xpath.selectNodes( new PropertyNode( null, element ) );
-            resultValues = new TypedObjectNode[selectedNodes.size()];
-            int i = 0;
-            for ( Object node : selectedNodes ) {
-                if ( node instanceof XPathNode<?> ) {
-                    resultValues[i++] = ( (XPathNode<?>) node ).getValue();
-                } else if ( node instanceof String || node instanceof Double || node instanceof Boolean ) {
-                    resultValues[i++] = new PrimitiveValue( node );
-                } else {
-                    throw new RuntimeException( "Internal error. Encountered unexpected value of type '"
-                                                + node.getClass().getName() + "' (=" + node
-                                                + ") during XPath-evaluation." );
-                }
-            }
+            getCompiledXPath( propName );
         } catch ( JaxenException e ) {
             throw new FilterEvaluationException( e.getMessage() );
         }
-        return resultValues;
+    }
+
+    private static CompiledXPath getCompiledXPath( ValueReference propName )
+                            throws JaxenException {
+        Object compiled = propName.getCompiled();
+        // the text check catches value references that have been modified in the meantime
+        if ( compiled instanceof CompiledXPath ) {
+            CompiledXPath xpath = (CompiledXPath) compiled;
+            if ( xpath.getText().equals( propName.getAsText() ) ) {
+                return xpath;
+            }
+        }
+        CompiledXPath xpath = new CompiledXPath( propName );
+        propName.setCompiled( xpath );
+        return xpath;
     }
 
     @Override
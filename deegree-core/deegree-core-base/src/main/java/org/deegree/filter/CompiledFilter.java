@@ -0,0 +1,153 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.filter;
+
+import static org.deegree.filter.Filter.Type.OPERATOR_FILTER;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.deegree.commons.tom.TypedObjectNode;
+import org.deegree.feature.xpath.TypedObjectNodeXPathEvaluator;
+import org.deegree.filter.expression.ValueReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Prepared form of a {@link Filter} for evaluating it against many objects (e.g. when filtering features in memory).
+ * <p>
+ * Compiling a filter folds all arithmetic expressions that only depend on literals (see
+ * {@link Filters#foldConstants(Filter)}) and parses the XPath expressions of all {@link ValueReference}s once (see
+ * {@link TypedObjectNodeXPathEvaluator#compile(ValueReference)}). Compiled filters are cached by filter identity, so
+ * compiling the same {@link Filter} instance again is cheap. Instances are thread-safe.
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class CompiledFilter {
+
+    private static final Logger LOG = LoggerFactory.getLogger( CompiledFilter.class );
+
+    // values never reference their key, so entries vanish together with the filter
+    private static final Map<Filter, CompiledFilter> CACHE;
+
+    static {
+        CACHE = Collections.synchronizedMap( new WeakHashMap<Filter, CompiledFilter>() );
+    }
+
+    private static final TypedObjectNodeXPathEvaluator EVALUATOR = new TypedObjectNodeXPathEvaluator();
+
+    private final Operator operator;
+
+    private final Filter filter;
+
+    private CompiledFilter( Operator operator, Filter filter ) {
+        this.operator = operator;
+        this.filter = filter;
+    }
+
+    /**
+     * Returns the compiled form of the given filter.
+     * 
+     * @param filter
+     *            filter to compile, must not be <code>null</code>
+     * @return the compiled filter, never <code>null</code>
+     */
+    public static CompiledFilter compile( Filter filter ) {
+        if ( filter.getType() != OPERATOR_FILTER ) {
+            // id filters are cheap to evaluate and would keep themselves alive in the cache
+            return new CompiledFilter( null, filter );
+        }
+        CompiledFilter compiled = CACHE.get( filter );
+        if ( compiled == null ) {
+            OperatorFilter folded = Filters.foldConstants( (OperatorFilter) filter );
+            for ( ValueReference propName : Filters.getPropertyNames( folded ) ) {
+                if ( propName.getAsQName() == null ) {
+                    try {
+                        TypedObjectNodeXPathEvaluator.compile( propName );
+                    } catch ( FilterEvaluationException e ) {
+                        // reported again when the filter is evaluated
+                        LOG.debug( "Unable to compile value reference '{}': {}", propName.getAsText(), e.getMessage() );
+                    }
+                }
+            }
+            compiled = new CompiledFilter( folded.getOperator(), null );
+            CACHE.put( filter, compiled );
+        }
+        return compiled;
+    }
+
+    /**
+     * Evaluates the filter against the given object.
+     * 
+     * @param obj
+     *            object to evaluate the filter against, must not be <code>null</code>
+     * @param xpathEvaluator
+     *            used for evaluation of XPath expressions, must not be <code>null</code>
+     * @return <code>true</code>, if the filter matches the object, <code>false</code> otherwise
+     * @throws FilterEvaluationException
+     */
+    public <T> boolean evaluate( T obj, XPathEvaluator<T> xpathEvaluator )
+                            throws FilterEvaluationException {
+        if ( operator != null ) {
+            return operator.evaluate( obj, xpathEvaluator );
+        }
+        return filter.evaluate( obj, xpathEvaluator );
+    }
+
+    /**
+     * Evaluates the filter against the given object using a (shared) {@link TypedObjectNodeXPathEvaluator}.
+     * 
+     * @param obj
+     *            object to evaluate the filter against, must not be <code>null</code>
+     * @return <code>true</code>, if the filter matches the object, <code>false</code> otherwise
+     * @throws FilterEvaluationException
+     */
+    public boolean evaluate( TypedObjectNode obj )
+                            throws FilterEvaluationException {
+        return evaluate( obj, EVALUATOR );
+    }
+}
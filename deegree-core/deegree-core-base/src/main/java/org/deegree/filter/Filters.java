@@ -47,6 +47,7 @@ import java.util.Set;
 
 import javax.xml.namespace.QName;
 
+import org.deegree.commons.tom.TypedObjectNode;
 import org.deegree.commons.utils.Pair;
 import org.deegree.cs.coordinatesystems.CRS;
 import org.deegree.cs.coordinatesystems.ICRS;
@@ -63,6 +64,7 @@ import org.deegree.filter.comparison.PropertyIsNotEqualTo;
 import org.deegree.filter.comparison.PropertyIsNull;
 import org.deegree.filter.expression.Add;
 import org.deegree.filter.expression.Div;
+import org.deegree.filter.expression.Literal;
 import org.deegree.filter.expression.Mul;
 import org.deegree.filter.expression.Sub;
 import org.deegree.filter.expression.ValueReference;
@@ -484,6 +486,10 @@ public class Filters {
         for ( int i = 0; i < exs.length; ++i ) {
             exs[i] = repair( exs[i], bindings, validNames );
         }
+        return copy( o, exs );
+    }
+
+    private static ComparisonOperator copy( ComparisonOperator o, Expression[] exs ) {
         switch ( o.getSubType() ) {
         case PROPERTY_IS_BETWEEN:
             // the ordering is a bit confusing here...
@@ -518,6 +524,10 @@ public class Filters {
         for ( int i = 0; i < os.length; ++i ) {
             os[i] = repair( os[i], bindings, validNames );
         }
+        return copy( o, os );
+    }
+
+    private static LogicalOperator copy( LogicalOperator o, Operator[] os ) {
         switch ( o.getSubType() ) {
         case AND:
             return new And( os );
@@ -635,4 +645,108 @@ public class Filters {
         return (T) new OperatorFilter( repair( o, bindings, validNames ) );
     }
 
+    /**
+     * Replaces all arithmetic sub-expressions of the given filter that only depend on literals by their result, so they
+     * don't have to be recalculated for every evaluated object.
+     * 
+     * @param filter
+     *            filter, must not be <code>null</code>
+     * @return the folded filter, or <code>filter</code> itself if nothing could be folded
+     */
+    public static <T extends Filter> T foldConstants( T filter ) {
+        if ( !( filter instanceof OperatorFilter ) ) {
+            return filter;
+        }
+        Operator o = ( (OperatorFilter) filter ).getOperator();
+        Operator folded = foldConstants( o );
+        if ( folded == o ) {
+            return filter;
+        }
+        return (T) new OperatorFilter( folded );
+    }
+
+    /**
+     * Replaces all arithmetic sub-expressions of the given expression that only depend on literals by their result.
+     * <p>
+     * Functions are never folded, as their result may depend on more than their arguments.
+     * </p>
+     * 
+     * @param e
+     *            expression, must not be <code>null</code>
+     * @return the folded expression, or <code>e</code> itself if nothing could be folded
+     */
+    public static Expression foldConstants( Expression e ) {
+        Expression[] params = e.getParams();
+        Expression p1, p2;
+        switch ( e.getType() ) {
+        case ADD:
+        case DIV:
+        case MUL:
+        case SUB:
+            p1 = foldConstants( params[0] );
+            p2 = foldConstants( params[1] );
+            break;
+        default:
+            return e;
+        }
+
+        Expression result = e;
+        if ( p1 != params[0] || p2 != params[1] ) {
+            switch ( e.getType() ) {
+            case ADD:
+                result = new Add( p1, p2 );
+                break;
+            case DIV:
+                result = new Div( p1, p2 );
+                break;
+            case MUL:
+                result = new Mul( p1, p2 );
+                break;
+            default:
+                result = new Sub( p1, p2 );
+            }
+        }
+
+        if ( p1.getType() == Expression.Type.LITERAL && p2.getType() == Expression.Type.LITERAL ) {
+            try {
+                TypedObjectNode[] values = result.evaluate( null, null );
+                if ( values.length == 1 ) {
+                    LOG.debug( "Folded constant expression to {}", values[0] );
+                    return new Literal<TypedObjectNode>( values[0], null );
+                }
+            } catch ( FilterEvaluationException ex ) {
+                LOG.debug( "Constant expression could not be folded: {}", ex.getMessage() );
+            }
+        }
+        return result;
+    }
+
+    private static Operator foldConstants( Operator o ) {
+        switch ( o.getType() ) {
+        case COMPARISON:
+            ComparisonOperator co = (ComparisonOperator) o;
+            Expression[] exs = co.getParams();
+            boolean changed = false;
+            for ( int i = 0; i < exs.length; ++i ) {
+                Expression folded = foldConstants( exs[i] );
+                changed |= folded != exs[i];
+                exs[i] = folded;
+            }
+            return changed ? copy( co, exs ) : o;
+        case LOGICAL:
+            LogicalOperator lo = (LogicalOperator) o;
+            Operator[] os = lo.getParams();
+            changed = false;
+            for ( int i = 0; i < os.length; ++i ) {
+                Operator folded = foldConstants( os[i] );
+                changed |= folded != os[i];
+                os[i] = folded;
+            }
+            return changed ? copy( lo, os ) : o;
+        default:
+            // spatial and temporal operators only carry value references and geometries / literals
+            return o;
+        }
+    }
+
 }
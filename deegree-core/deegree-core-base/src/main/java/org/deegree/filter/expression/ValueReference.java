@@ -82,6 +82,9 @@ public class ValueReference implements Expression {
 
     private QName qName;
 
+    // evaluator specific, pre-parsed representation of the expression
+    private volatile Object compiled;
+
     /**
      * Creates a new {@link ValueReference} instance from an encoded XPath-expression and the namespace bindings.
      * 
@@ -154,9 +157,31 @@ public class ValueReference implements Expression {
     // TODO check if this should stay here
     public void set( String text, NamespaceContext nsContext ) {
         this.text = text;
+        this.compiled = null;
         init( nsContext );
     }
 
+    /**
+     * Returns the pre-parsed representation of this expression that has been attached by an {@link XPathEvaluator}.
+     * 
+     * @return the pre-parsed representation, may be <code>null</code> (not compiled yet or reset by
+     *         {@link #set(String, NamespaceContext)})
+     */
+    public Object getCompiled() {
+        return compiled;
+    }
+
+    /**
+     * Attaches a pre-parsed representation of this expression, so {@link XPathEvaluator}s don't have to parse the
+     * expression again for every evaluated object.
+     * 
+     * @param compiled
+     *            pre-parsed representation, may be <code>null</code>
+     */
+    public void setCompiled( Object compiled ) {
+        this.compiled = compiled;
+    }
+
     /**
      * Returns the <a href="http://jaxen.codehaus.org/">Jaxen</a> representation of the XPath expression, which provides
      * access to the syntax tree.
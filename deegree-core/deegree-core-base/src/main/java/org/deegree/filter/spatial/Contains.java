@@ -64,8 +64,7 @@ public class Contains extends SpatialOperator {
         for ( TypedObjectNode paramValue : propName.evaluate( obj, xpathEvaluator ) ) {
             Geometry geom = checkGeometryOrNull( paramValue );
             if ( geom != null ) {
-                Geometry transformedLiteral = getCompatibleGeometry( geom, geometry );
-                return geom.contains( transformedLiteral );
+                return getPreparedLiteral( geom, geometry ).isContainedBy( geom );
             }
         }
         return false;
@@ -64,8 +64,7 @@ public class Crosses extends SpatialOperator {
         for ( TypedObjectNode paramValue : propName.evaluate( obj, xpathEvaluator ) ) {
             Geometry geom = checkGeometryOrNull( paramValue );
             if ( geom != null ) {
-                Geometry transformedLiteral = getCompatibleGeometry( geom, geometry );
-                return geom.crosses( transformedLiteral );
+                return getPreparedLiteral( geom, geometry ).crosses( geom );
             }
         }
         return false;
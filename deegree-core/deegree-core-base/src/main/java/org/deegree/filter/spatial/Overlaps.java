@@ -64,8 +64,7 @@ public class Overlaps extends SpatialOperator {
         for ( TypedObjectNode paramValue : propName.evaluate( obj, xpathEvaluator ) ) {
             Geometry geom = checkGeometryOrNull( paramValue );
             if ( geom != null ) {
-                Geometry transformedLiteral = getCompatibleGeometry( geom, geometry );
-                return geom.overlaps( transformedLiteral );
+                return getPreparedLiteral( geom, geometry ).overlaps( geom );
             }
         }
         return false;
@@ -0,0 +1,189 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.filter.spatial;
+
+import org.deegree.geometry.Geometry;
+import org.deegree.geometry.refs.GeometryReference;
+import org.deegree.geometry.standard.AbstractDefaultGeometry;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.prep.PreparedGeometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometryFactory;
+
+/**
+ * Geometry literal of a {@link SpatialOperator} that has been prepared for evaluating the operator against many
+ * geometries.
+ * <p>
+ * The literal is converted to JTS and wrapped into a {@link PreparedGeometry} once, which builds spatial indexes for
+ * the literal on demand. Every predicate first compares the envelopes, which rules out most candidates without
+ * touching the coordinates at all. Geometries that cannot be converted to JTS fall back to the plain {@link Geometry}
+ * predicates. Instances are thread-safe.
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+class PreparedLiteral {
+
+    private final Geometry literal;
+
+    private final PreparedGeometry prepared;
+
+    private final Envelope envelope;
+
+    PreparedLiteral( Geometry literal ) {
+        this.literal = literal;
+        com.vividsolutions.jts.geom.Geometry jtsLiteral = toJTS( literal );
+        if ( jtsLiteral != null ) {
+            prepared = PreparedGeometryFactory.prepare( jtsLiteral );
+            envelope = jtsLiteral.getEnvelopeInternal();
+        } else {
+            prepared = null;
+            envelope = null;
+        }
+    }
+
+    /**
+     * @return the (unprepared) literal, never <code>null</code>
+     */
+    Geometry getGeometry() {
+        return literal;
+    }
+
+    /**
+     * @return <code>true</code>, if the literal intersects the given geometry
+     */
+    boolean intersects( Geometry geom ) {
+        if ( literal instanceof org.deegree.geometry.Envelope && geom instanceof org.deegree.geometry.Envelope ) {
+            // plain envelope comparison, no need for JTS
+            return literal.intersects( geom );
+        }
+        com.vividsolutions.jts.geom.Geometry jtsGeom = toJTS( geom );
+        if ( prepared == null || jtsGeom == null ) {
+            return literal.intersects( geom );
+        }
+        return envelope.intersects( jtsGeom.getEnvelopeInternal() ) && prepared.intersects( jtsGeom );
+    }
+
+    /**
+     * @return <code>true</code>, if the given geometry is disjoint from the literal
+     */
+    boolean isDisjoint( Geometry geom ) {
+        com.vividsolutions.jts.geom.Geometry jtsGeom = toJTS( geom );
+        if ( prepared == null || jtsGeom == null ) {
+            return geom.isDisjoint( literal );
+        }
+        return !envelope.intersects( jtsGeom.getEnvelopeInternal() ) || prepared.disjoint( jtsGeom );
+    }
+
+    /**
+     * @return <code>true</code>, if the given geometry contains the literal
+     */
+    boolean isContainedBy( Geometry geom ) {
+        com.vividsolutions.jts.geom.Geometry jtsGeom = toJTS( geom );
+        if ( prepared == null || jtsGeom == null ) {
+            return geom.contains( literal );
+        }
+        return jtsGeom.getEnvelopeInternal().covers( envelope ) && prepared.within( jtsGeom );
+    }
+
+    /**
+     * @return <code>true</code>, if the given geometry is within the literal
+     */
+    boolean contains( Geometry geom ) {
+        com.vividsolutions.jts.geom.Geometry jtsGeom = toJTS( geom );
+        if ( prepared == null || jtsGeom == null ) {
+            return geom.isWithin( literal );
+        }
+        return envelope.covers( jtsGeom.getEnvelopeInternal() ) && prepared.contains( jtsGeom );
+    }
+
+    /**
+     * @return <code>true</code>, if the given geometry overlaps the literal
+     */
+    boolean overlaps( Geometry geom ) {
+        com.vividsolutions.jts.geom.Geometry jtsGeom = toJTS( geom );
+        if ( prepared == null || jtsGeom == null ) {
+            return geom.overlaps( literal );
+        }
+        return envelope.intersects( jtsGeom.getEnvelopeInternal() ) && prepared.overlaps( jtsGeom );
+    }
+
+    /**
+     * @return <code>true</code>, if the given geometry crosses the literal
+     */
+    boolean crosses( Geometry geom ) {
+        com.vividsolutions.jts.geom.Geometry jtsGeom = toJTS( geom );
+        if ( prepared == null || jtsGeom == null ) {
+            return geom.crosses( literal );
+        }
+        return envelope.intersects( jtsGeom.getEnvelopeInternal() ) && prepared.crosses( jtsGeom );
+    }
+
+    /**
+     * @return <code>true</code>, if the given geometry touches the literal
+     */
+    boolean touches( Geometry geom ) {
+        com.vividsolutions.jts.geom.Geometry jtsGeom = toJTS( geom );
+        if ( prepared == null || jtsGeom == null ) {
+            return geom.touches( literal );
+        }
+        return envelope.intersects( jtsGeom.getEnvelopeInternal() ) && prepared.touches( jtsGeom );
+    }
+
+    private static com.vividsolutions.jts.geom.Geometry toJTS( Geometry geom ) {
+        Geometry g = geom;
+        if ( g instanceof GeometryReference<?> ) {
+            g = ( (GeometryReference<?>) g ).getReferencedObject();
+        }
+        if ( g instanceof AbstractDefaultGeometry ) {
+            try {
+                return ( (AbstractDefaultGeometry) g ).getJTSGeometry();
+            } catch ( UnsupportedOperationException e ) {
+                // no JTS representation available
+            }
+        }
+        return null;
+    }
+}
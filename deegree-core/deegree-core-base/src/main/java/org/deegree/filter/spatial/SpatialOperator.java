@@ -35,8 +35,8 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.filter.spatial;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.deegree.commons.tom.TypedObjectNode;
 import org.deegree.commons.tom.genericxml.GenericXMLElement;
@@ -64,12 +64,16 @@ public abstract class SpatialOperator implements Operator {
 
     private static final Logger LOG = LoggerFactory.getLogger( SpatialOperator.class );
 
-    private final Map<String, Geometry> srsNameToTransformedGeometry = new HashMap<String, Geometry>();
+    // literal geometry, prepared for the srs of the evaluated geometries (accessed concurrently)
+    private final ConcurrentMap<String, PreparedLiteral> srsNameToPreparedLiteral;
+
+    private volatile PreparedLiteral preparedLiteral;
 
     protected final Expression propName;
 
     protected SpatialOperator( Expression param1 ) {
         this.propName = param1;
+        this.srsNameToPreparedLiteral = new ConcurrentHashMap<String, PreparedLiteral>();
     }
 
     /**
@@ -183,31 +187,60 @@ public abstract class SpatialOperator implements Operator {
      * @param param
      *            geometry parameter, must not be <code>null</code>
      * @param literal
-     *            geometry literal, must not be <code>null</code>
+     *            geometry literal of this operator, must not be <code>null</code>
      * @return literal geometry with the same srs as the parameter geometry
      * @throws FilterEvaluationException
      *             if the transformation failed
      */
     protected Geometry getCompatibleGeometry( Geometry param, Geometry literal )
                             throws FilterEvaluationException {
-        Geometry transformedLiteral = literal;
+        return getPreparedLiteral( param, literal ).getGeometry();
+    }
+
+    /**
+     * Returns a prepared version of the given geometry literal that has the same srs as the given geometry parameter.
+     * <p>
+     * The result is cached (per srs), so the literal is only transformed and prepared once, no matter how many
+     * geometries the operator is evaluated against.
+     * </p>
+     * 
+     * @param param
+     *            geometry parameter, must not be <code>null</code>
+     * @param literal
+     *            geometry literal of this operator, must not be <code>null</code>
+     * @return prepared literal geometry with the same srs as the parameter geometry, never <code>null</code>
+     * @throws FilterEvaluationException
+     *             if the transformation failed
+     */
+    PreparedLiteral getPreparedLiteral( Geometry param, Geometry literal )
+                            throws FilterEvaluationException {
         ICRS paramCRS = param.getCoordinateSystem();
         ICRS literalCRS = literal.getCoordinateSystem();
-        if ( literalCRS != null && !( paramCRS.equals( literalCRS ) ) ) {
+        if ( literalCRS == null || paramCRS == null || paramCRS.equals( literalCRS ) ) {
+            PreparedLiteral prepared = preparedLiteral;
+            if ( prepared == null ) {
+                prepared = new PreparedLiteral( literal );
+                preparedLiteral = prepared;
+            }
+            return prepared;
+        }
+
+        PreparedLiteral prepared = srsNameToPreparedLiteral.get( paramCRS.getAlias() );
+        if ( prepared == null ) {
             LOG.debug( "Need transformed literal geometry for evaluation: " + literalCRS.getAlias() + " -> "
                        + paramCRS.getAlias() );
-            transformedLiteral = srsNameToTransformedGeometry.get( paramCRS.getAlias() );
-            if ( transformedLiteral == null ) {
-                try {
-                    GeometryTransformer transformer = new GeometryTransformer( paramCRS );
-                    transformedLiteral = transformer.transform( literal );
-                    srsNameToTransformedGeometry.put( paramCRS.getAlias(), transformedLiteral );
-                } catch ( Exception e ) {
-                    throw new FilterEvaluationException( e.getMessage() );
-                }
+            try {
+                GeometryTransformer transformer = new GeometryTransformer( paramCRS );
+                prepared = new PreparedLiteral( transformer.transform( literal ) );
+            } catch ( Exception e ) {
+                throw new FilterEvaluationException( e.getMessage() );
+            }
+            PreparedLiteral existing = srsNameToPreparedLiteral.putIfAbsent( paramCRS.getAlias(), prepared );
+            if ( existing != null ) {
+                prepared = existing;
             }
         }
-        return transformedLiteral;
+        return prepared;
     }
 
     public abstract Object[] getParams();
@@ -63,8 +63,7 @@ public class Within extends SpatialOperator {
         for ( TypedObjectNode paramValue : propName.evaluate( obj, xpathEvaluator ) ) {
             Geometry geom = checkGeometryOrNull( paramValue );
             if ( geom != null ) {
-                Geometry transformedLiteral = getCompatibleGeometry( geom, geometry );
-                return geom.isWithin( transformedLiteral );
+                return getPreparedLiteral( geom, geometry ).contains( geom );
             }
         }
         return false;
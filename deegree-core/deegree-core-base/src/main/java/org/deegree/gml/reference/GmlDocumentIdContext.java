@@ -201,6 +201,19 @@ public class GmlDocumentIdContext implements GMLReferenceResolver {
         }
     }
 
+    /**
+     * Removes all objects and references that have been added before.
+     * <p>
+     * Allows to process large documents in a streaming fashion: the caller is responsible for resolving the references
+     * of the objects processed so far before calling this method.
+     * </p>
+     */
+    public void clear() {
+        idToObject.clear();
+        refs.clear();
+        localRefs.clear();
+    }
+
     /**
      * Resolves all local references that have been added before against the added objects.
      * 
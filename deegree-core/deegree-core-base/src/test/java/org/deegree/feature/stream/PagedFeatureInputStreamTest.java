@@ -0,0 +1,179 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.feature.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.deegree.feature.Feature;
+import org.deegree.feature.FeatureCollection;
+import org.deegree.feature.Features;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PagedFeatureInputStream}.
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class PagedFeatureInputStreamTest {
+
+    @Test
+    public void testNoPaging() {
+        assertEquals( ids( 0, 10 ), ids( new PagedFeatureInputStream( new TestStream( 10 ), 0, -1 ) ) );
+    }
+
+    @Test
+    public void testFirstPage() {
+        assertEquals( ids( 0, 3 ), ids( new PagedFeatureInputStream( new TestStream( 10 ), 0, 3 ) ) );
+    }
+
+    @Test
+    public void testMiddlePage() {
+        assertEquals( ids( 4, 7 ), ids( new PagedFeatureInputStream( new TestStream( 10 ), 4, 3 ) ) );
+    }
+
+    @Test
+    public void testLastPartialPage() {
+        assertEquals( ids( 8, 10 ), ids( new PagedFeatureInputStream( new TestStream( 10 ), 8, 5 ) ) );
+    }
+
+    @Test
+    public void testStartIndexBeyondEnd() {
+        PagedFeatureInputStream stream = new PagedFeatureInputStream( new TestStream( 10 ), 20, 5 );
+        assertFalse( stream.iterator().hasNext() );
+    }
+
+    @Test
+    public void testCountCloses() {
+        TestStream source = new TestStream( 10 );
+        assertEquals( 5, new PagedFeatureInputStream( source, 5, -1 ).count() );
+        assertTrue( source.closed );
+    }
+
+    @Test
+    public void testSourceNotConsumedBeyondPage() {
+        TestStream source = new TestStream( 1000 );
+        Iterator<Feature> iter = new PagedFeatureInputStream( source, 10, 2 ).iterator();
+        while ( iter.hasNext() ) {
+            iter.next();
+        }
+        assertEquals( 12, source.fetched );
+    }
+
+    private static List<String> ids( int from, int to ) {
+        List<String> ids = new ArrayList<String>();
+        for ( int i = from; i < to; i++ ) {
+            ids.add( "F" + i );
+        }
+        return ids;
+    }
+
+    private static List<String> ids( FeatureInputStream stream ) {
+        List<String> ids = new ArrayList<String>();
+        for ( Feature f : stream ) {
+            ids.add( f.getId() );
+        }
+        stream.close();
+        return ids;
+    }
+
+    private static class TestStream implements FeatureInputStream {
+
+        private final int numFeatures;
+
+        private int fetched;
+
+        private boolean closed;
+
+        private TestStream( int numFeatures ) {
+            this.numFeatures = numFeatures;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public FeatureCollection toCollection() {
+            return Features.toCollection( this );
+        }
+
+        @Override
+        public int count() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Iterator<Feature> iterator() {
+            return new Iterator<Feature>() {
+
+                @Override
+                public boolean hasNext() {
+                    return fetched < numFeatures;
+                }
+
+                @Override
+                public Feature next() {
+                    Feature f = mock( Feature.class );
+                    when( f.getId() ).thenReturn( "F" + fetched++ );
+                    return f;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+}
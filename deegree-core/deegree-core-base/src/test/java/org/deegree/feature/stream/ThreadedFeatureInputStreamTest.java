@@ -0,0 +1,226 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import java.util.Iterator;
+
+import org.deegree.commons.utils.Cancellable;
+import org.deegree.feature.Feature;
+import org.deegree.feature.FeatureCollection;
+import org.deegree.feature.Features;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ThreadedFeatureInputStream} and {@link FeaturePrefetchScheduler}.
+ * 
+ * @since 3.4
+ */
+public class ThreadedFeatureInputStreamTest {
+
+    @After
+    public void resetScheduler() {
+        FeaturePrefetchScheduler.setInstance( null );
+    }
+
+    @Test
+    public void testConsumeAll()
+                            throws InterruptedException {
+        TestStream source = new TestStream( 1000, 0 );
+        ThreadedFeatureInputStream stream = new ThreadedFeatureInputStream( source, 100, 20 );
+        int count = 0;
+        for ( @SuppressWarnings("unused")
+        Feature f : stream ) {
+            count++;
+        }
+        stream.close();
+        assertEquals( 1000, count );
+        waitUntilClosed( source );
+        assertFalse( source.cancelled );
+    }
+
+    @Test
+    public void testCloseCancelsSource()
+                            throws InterruptedException {
+        TestStream source = new TestStream( 100000, 0 );
+        ThreadedFeatureInputStream stream = new ThreadedFeatureInputStream( source, 10 );
+        Iterator<Feature> iter = stream.iterator();
+        for ( int i = 0; i < 10; i++ ) {
+            assertTrue( iter.hasNext() );
+            iter.next();
+        }
+        stream.close();
+        waitUntilClosed( source );
+        assertTrue( source.cancelled );
+        assertEquals( 1, FeaturePrefetchScheduler.getInstance().getCancelledCount() );
+    }
+
+    @Test
+    public void testNoPrefetchingWhenSaturated() {
+        FeaturePrefetchScheduler.setInstance( new FeaturePrefetchScheduler( 1, 0, 10, 2, 0, false ) );
+        TestStream slow = new TestStream( 1000, 100 );
+        ThreadedFeatureInputStream blocking = new ThreadedFeatureInputStream( slow, -1 );
+        try {
+            TestStream source = new TestStream( 3, 0 );
+            ThreadedFeatureInputStream stream = new ThreadedFeatureInputStream( source, -1 );
+            assertEquals( 3, stream.count() );
+            assertTrue( source.closed );
+            assertEquals( 1, FeaturePrefetchScheduler.getInstance().getRejectedCount() );
+        } finally {
+            blocking.close();
+        }
+    }
+
+    @Test
+    public void testConsumerTimeout() {
+        FeaturePrefetchScheduler.setInstance( new FeaturePrefetchScheduler( 1, 0, 10, 2, 100, false ) );
+        TestStream slow = new TestStream( 10, 1000 );
+        ThreadedFeatureInputStream stream = new ThreadedFeatureInputStream( slow, -1 );
+        try {
+            stream.iterator().hasNext();
+            fail( "Expected timeout." );
+        } catch ( RuntimeException e ) {
+            // expected
+        } finally {
+            stream.close();
+        }
+        assertTrue( slow.cancelled );
+        assertEquals( 1, FeaturePrefetchScheduler.getInstance().getTimeoutCount() );
+    }
+
+    @Test
+    public void testQueueSizing() {
+        FeaturePrefetchScheduler scheduler = new FeaturePrefetchScheduler( 1, 0, 100, 20, 0, false );
+        try {
+            assertEquals( 100, scheduler.getMaxFill( -1 ) );
+            assertEquals( 100, scheduler.getMaxFill( 5000 ) );
+            assertEquals( 10, scheduler.getMaxFill( 10 ) );
+            assertEquals( 20, scheduler.getMinFill( 100 ) );
+            assertEquals( 2, scheduler.getMinFill( 10 ) );
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private static void waitUntilClosed( TestStream source )
+                            throws InterruptedException {
+        for ( int i = 0; i < 100 && !source.closed; i++ ) {
+            Thread.sleep( 10 );
+        }
+        assertTrue( source.closed );
+    }
+
+    private static class TestStream implements FeatureInputStream, Cancellable {
+
+        private final int numFeatures;
+
+        private final long delay;
+
+        private volatile boolean closed;
+
+        private volatile boolean cancelled;
+
+        private TestStream( int numFeatures, long delay ) {
+            this.numFeatures = numFeatures;
+            this.delay = delay;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public FeatureCollection toCollection() {
+            return Features.toCollection( this );
+        }
+
+        @Override
+        public int count() {
+            int i = 0;
+            for ( @SuppressWarnings("unused")
+            Feature f : this ) {
+                i++;
+            }
+            close();
+            return i;
+        }
+
+        @Override
+        public Iterator<Feature> iterator() {
+            return new Iterator<Feature>() {
+
+                private int i;
+
+                @Override
+                public boolean hasNext() {
+                    if ( cancelled ) {
+                        throw new IllegalStateException( "Cancelled." );
+                    }
+                    return i < numFeatures;
+                }
+
+                @Override
+                public Feature next() {
+                    if ( delay > 0 ) {
+                        try {
+                            Thread.sleep( delay );
+                        } catch ( InterruptedException e ) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    i++;
+                    return mock( Feature.class );
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+}
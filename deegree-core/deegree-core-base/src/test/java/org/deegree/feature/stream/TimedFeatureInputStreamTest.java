@@ -0,0 +1,187 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.stream;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.deegree.commons.utils.Cancellable;
+import org.deegree.feature.Feature;
+import org.deegree.feature.FeatureCollection;
+import org.deegree.feature.Features;
+import org.junit.Test;
+
+/**
+ * Tests for {@link TimedFeatureInputStream}.
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class TimedFeatureInputStreamTest {
+
+    @Test
+    public void testIterationIsMeasured() {
+        AtomicLong nanos = new AtomicLong();
+        SlowStream source = new SlowStream( 5, 20 );
+        TimedFeatureInputStream stream = new TimedFeatureInputStream( source, nanos );
+        int count = 0;
+        for ( @SuppressWarnings("unused")
+        Feature f : stream ) {
+            count++;
+        }
+        stream.close();
+        assertEquals( 5, count );
+        assertTrue( source.closed );
+        assertTrue( nanos.get() >= MILLISECONDS.toNanos( 100 ) );
+    }
+
+    @Test
+    public void testConsumerTimeIsNotMeasured()
+                            throws InterruptedException {
+        AtomicLong nanos = new AtomicLong();
+        TimedFeatureInputStream stream = new TimedFeatureInputStream( new SlowStream( 3, 0 ), nanos );
+        for ( @SuppressWarnings("unused")
+        Feature f : stream ) {
+            Thread.sleep( 50 );
+        }
+        stream.close();
+        assertTrue( nanos.get() < MILLISECONDS.toNanos( 150 ) );
+    }
+
+    @Test
+    public void testProducerThreadIsMeasured() {
+        AtomicLong nanos = new AtomicLong();
+        SlowStream source = new SlowStream( 5, 20 );
+        ThreadedFeatureInputStream stream = new ThreadedFeatureInputStream( new TimedFeatureInputStream( source,
+                                                                                                         nanos ), -1 );
+        assertEquals( 5, stream.count() );
+        assertTrue( nanos.get() >= MILLISECONDS.toNanos( 100 ) );
+    }
+
+    @Test
+    public void testWithoutAccumulator() {
+        SlowStream source = new SlowStream( 5, 0 );
+        TimedFeatureInputStream stream = new TimedFeatureInputStream( source, null );
+        assertEquals( 5, stream.count() );
+        assertTrue( source.closed );
+    }
+
+    @Test
+    public void testCancel() {
+        SlowStream source = new SlowStream( 5, 0 );
+        new TimedFeatureInputStream( source, new AtomicLong() ).cancel();
+        assertTrue( source.cancelled );
+    }
+
+    private static class SlowStream implements FeatureInputStream, Cancellable {
+
+        private final int numFeatures;
+
+        private final long delay;
+
+        private volatile boolean closed;
+
+        private volatile boolean cancelled;
+
+        private SlowStream( int numFeatures, long delay ) {
+            this.numFeatures = numFeatures;
+            this.delay = delay;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public FeatureCollection toCollection() {
+            return Features.toCollection( this );
+        }
+
+        @Override
+        public int count() {
+            int i = 0;
+            for ( @SuppressWarnings("unused")
+            Feature f : this ) {
+                i++;
+            }
+            close();
+            return i;
+        }
+
+        @Override
+        public Iterator<Feature> iterator() {
+            return new Iterator<Feature>() {
+
+                private int i;
+
+                @Override
+                public boolean hasNext() {
+                    return i < numFeatures;
+                }
+
+                @Override
+                public Feature next() {
+                    if ( delay > 0 ) {
+                        try {
+                            Thread.sleep( delay );
+                        } catch ( InterruptedException e ) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    i++;
+                    return mock( Feature.class );
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+}
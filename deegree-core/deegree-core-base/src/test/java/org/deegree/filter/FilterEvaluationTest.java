@@ -38,8 +38,14 @@ package org.deegree.filter;
 
 import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.stream.FactoryConfigurationError;
 import javax.xml.stream.XMLInputFactory;
@@ -47,10 +53,16 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
 import org.deegree.commons.config.DeegreeWorkspace;
+import org.deegree.commons.tom.primitive.PrimitiveValue;
 import org.deegree.feature.Feature;
 import org.deegree.feature.FeatureCollection;
 import org.deegree.feature.types.AppSchema;
 import org.deegree.feature.xpath.TypedObjectNodeXPathEvaluator;
+import org.deegree.filter.comparison.PropertyIsEqualTo;
+import org.deegree.filter.expression.Add;
+import org.deegree.filter.expression.Literal;
+import org.deegree.filter.expression.Mul;
+import org.deegree.filter.expression.ValueReference;
 import org.deegree.filter.function.FunctionManager;
 import org.deegree.filter.xml.Filter110XMLDecoder;
 import org.deegree.filter.xml.Filter200XMLDecoder;
@@ -253,6 +265,90 @@ public class FilterEvaluationTest {
         assertResultSet( fc.getMembers( filter, new TypedObjectNodeXPathEvaluator( ) ), "PHILOSOPHER_1" );
     }
     
+    @Test
+    public void compiledFilterCollection()
+                            throws FilterEvaluationException, XMLStreamException, FactoryConfigurationError {
+        String[] names = { "testfilter1.xml", "testfilter2.xml", "testfilter3.xml", "testfilter4.xml",
+                          "testfilter5.xml", "testfilter6.xml", "testfilter7.xml", "testfilter8.xml",
+                          "testfilter9.xml", "testfilter11.xml", "testfilter12.xml", "testfilter13.xml",
+                          "testfilter14.xml", "testfilter25.xml", "testfilter26.xml", "testfilter27.xml",
+                          "testfilter28.xml" };
+        TypedObjectNodeXPathEvaluator evaluator = new TypedObjectNodeXPathEvaluator();
+        for ( String name : names ) {
+            Filter filter = parseFilter110( name );
+            CompiledFilter compiled = CompiledFilter.compile( filter );
+            Assert.assertSame( compiled, CompiledFilter.compile( filter ) );
+            for ( Feature feature : fc ) {
+                Assert.assertEquals( name, filter.evaluate( feature, evaluator ), compiled.evaluate( feature ) );
+            }
+        }
+    }
+
+    @Test
+    public void compiledFilterConcurrentEvaluation()
+                            throws Exception {
+        String[] names = { "testfilter1.xml", "testfilter2.xml", "testfilter3.xml", "testfilter5.xml",
+                          "testfilter6.xml", "testfilter7.xml", "testfilter8.xml", "testfilter11.xml",
+                          "testfilter12.xml", "testfilter13.xml" };
+        final List<CompiledFilter> filters = new ArrayList<CompiledFilter>();
+        final List<Boolean> expected = new ArrayList<Boolean>();
+        for ( String name : names ) {
+            CompiledFilter compiled = CompiledFilter.compile( parseFilter110( name ) );
+            filters.add( compiled );
+            for ( Feature feature : fc ) {
+                expected.add( compiled.evaluate( feature ) );
+            }
+        }
+        // the features (and the referenced places) are shared by all threads
+        Callable<Boolean> task = new Callable<Boolean>() {
+            @Override
+            public Boolean call()
+                                    throws Exception {
+                for ( int run = 0; run < 50; run++ ) {
+                    int i = 0;
+                    for ( CompiledFilter filter : filters ) {
+                        for ( Feature feature : fc ) {
+                            if ( filter.evaluate( feature ) != expected.get( i++ ) ) {
+                                return false;
+                            }
+                        }
+                    }
+                }
+                return true;
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for ( int i = 0; i < 8; i++ ) {
+                results.add( executor.submit( task ) );
+            }
+            for ( Future<Boolean> result : results ) {
+                Assert.assertTrue( result.get() );
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void foldConstants()
+                            throws FilterEvaluationException {
+        ValueReference propName = new ValueReference( "app:id", nsContext );
+        Expression sum = new Add( new Literal<PrimitiveValue>( "2" ), new Mul( new Literal<PrimitiveValue>( "1.5" ),
+                                                                              new Literal<PrimitiveValue>( "2" ) ) );
+        OperatorFilter filter = new OperatorFilter( new PropertyIsEqualTo( propName, sum, true, null ) );
+
+        OperatorFilter folded = Filters.foldConstants( filter );
+        Expression[] params = ( (PropertyIsEqualTo) folded.getOperator() ).getParams();
+        Assert.assertSame( propName, params[0] );
+        Assert.assertEquals( Expression.Type.LITERAL, params[1].getType() );
+        Assert.assertEquals( 5.0, Double.parseDouble( ( (Literal<?>) params[1] ).getValue().toString() ), 0.0 );
+
+        // nothing to fold
+        Assert.assertSame( folded, Filters.foldConstants( folded ) );
+    }
+
     private void assertResultSet( FeatureCollection fc, String... expectedIds ) {
         Assert.assertEquals( expectedIds.length, fc.size() );
         Set<String> ids = new HashSet<String>();
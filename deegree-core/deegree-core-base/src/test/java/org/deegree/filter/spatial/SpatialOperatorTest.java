@@ -0,0 +1,153 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.filter.spatial;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.deegree.filter.Expression;
+import org.deegree.filter.FilterEvaluationException;
+import org.deegree.filter.expression.Literal;
+import org.deegree.geometry.Geometry;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.geometry.primitive.Point;
+import org.deegree.geometry.primitive.Polygon;
+import org.deegree.geometry.primitive.Ring;
+import org.junit.Test;
+
+/**
+ * Tests the evaluation of {@link SpatialOperator}s with prepared literals.
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class SpatialOperatorTest {
+
+    private final GeometryFactory fac = new GeometryFactory();
+
+    private final Polygon square = createSquare( 0, 0, 10, 10 );
+
+    private Polygon createSquare( double minx, double miny, double maxx, double maxy ) {
+        List<Point> points = new ArrayList<Point>();
+        points.add( fac.createPoint( null, minx, miny, null ) );
+        points.add( fac.createPoint( null, maxx, miny, null ) );
+        points.add( fac.createPoint( null, maxx, maxy, null ) );
+        points.add( fac.createPoint( null, minx, maxy, null ) );
+        points.add( fac.createPoint( null, minx, miny, null ) );
+        Ring ring = fac.createLinearRing( null, null, fac.createPoints( points ) );
+        return fac.createPolygon( null, null, ring, Collections.<Ring> emptyList() );
+    }
+
+    private static Expression literal( Geometry geom ) {
+        return new Literal<Geometry>( geom, null );
+    }
+
+    private Expression point( double x, double y ) {
+        return literal( fac.createPoint( null, x, y, null ) );
+    }
+
+    @Test
+    public void testIntersects()
+                            throws FilterEvaluationException {
+        assertTrue( new Intersects( point( 5, 5 ), square ).evaluate( null, null ) );
+        assertTrue( new Intersects( point( 10, 5 ), square ).evaluate( null, null ) );
+        assertFalse( new Intersects( point( 20, 20 ), square ).evaluate( null, null ) );
+        assertTrue( new Intersects( literal( createSquare( 5, 5, 15, 15 ) ), square ).evaluate( null, null ) );
+    }
+
+    @Test
+    public void testWithinAndContains()
+                            throws FilterEvaluationException {
+        assertTrue( new Within( point( 5, 5 ), square ).evaluate( null, null ) );
+        assertFalse( new Within( point( 10, 5 ), square ).evaluate( null, null ) );
+        assertFalse( new Within( literal( createSquare( 5, 5, 15, 15 ) ), square ).evaluate( null, null ) );
+        assertTrue( new Contains( literal( square ), fac.createPoint( null, 5, 5, null ) ).evaluate( null, null ) );
+        assertTrue( new Contains( literal( createSquare( -1, -1, 11, 11 ) ), square ).evaluate( null, null ) );
+        assertFalse( new Contains( literal( createSquare( 1, 1, 11, 11 ) ), square ).evaluate( null, null ) );
+    }
+
+    @Test
+    public void testDisjointAndTouches()
+                            throws FilterEvaluationException {
+        assertTrue( new Disjoint( point( 20, 20 ), square ).evaluate( null, null ) );
+        assertFalse( new Disjoint( point( 5, 5 ), square ).evaluate( null, null ) );
+        assertTrue( new Touches( point( 10, 5 ), square ).evaluate( null, null ) );
+        assertFalse( new Touches( point( 5, 5 ), square ).evaluate( null, null ) );
+        assertTrue( new Overlaps( literal( createSquare( 5, 5, 15, 15 ) ), square ).evaluate( null, null ) );
+    }
+
+    @Test
+    public void testBBox()
+                            throws FilterEvaluationException {
+        BBOX bbox = new BBOX( point( 0, 0 ), fac.createEnvelope( -1, -1, 1, 1, null ) );
+        assertTrue( bbox.evaluate( null, null ) );
+        bbox = new BBOX( literal( fac.createEnvelope( 0.5, 0.5, 2, 2, null ) ), fac.createEnvelope( -1, -1, 1, 1,
+                                                                                                     null ) );
+        assertTrue( bbox.evaluate( null, null ) );
+        bbox = new BBOX( literal( square ), fac.createEnvelope( 20, 20, 30, 30, null ) );
+        assertFalse( bbox.evaluate( null, null ) );
+    }
+
+    @Test
+    public void testMatchesGeometryPredicates()
+                            throws FilterEvaluationException {
+        for ( int i = -5; i < 15; ++i ) {
+            for ( int j = -5; j < 15; ++j ) {
+                Point p = fac.createPoint( null, i, j, null );
+                Intersects intersects = new Intersects( literal( p ), square );
+                Within within = new Within( literal( p ), square );
+                // evaluate twice to hit the cached prepared literal
+                assertEquals( square.intersects( p ), intersects.evaluate( null, null ) );
+                assertEquals( square.intersects( p ), intersects.evaluate( null, null ) );
+                assertEquals( p.isWithin( square ), within.evaluate( null, null ) );
+                assertEquals( p.isWithin( square ), within.evaluate( null, null ) );
+            }
+        }
+    }
+}
@@ -36,9 +36,14 @@
 package org.deegree.geometry.wkbadapter;
 
 import static junit.framework.Assert.assertTrue;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 
 import java.io.InputStream;
 import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
 
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamWriter;
@@ -49,12 +54,18 @@ import org.deegree.cs.coordinatesystems.ICRS;
 import org.deegree.cs.persistence.CRSManager;
 import org.deegree.geometry.Geometry.GeometryType;
 import org.deegree.geometry.io.WKBReader;
+import org.deegree.geometry.io.WKBWriter;
+import org.deegree.geometry.multi.MultiPoint;
+import org.deegree.geometry.primitive.LineString;
 import org.deegree.geometry.primitive.Polygon;
+import org.deegree.geometry.standard.AbstractDefaultGeometry;
 import org.deegree.gml.GMLOutputFactory;
 import org.deegree.gml.GMLStreamWriter;
 import org.deegree.gml.GMLVersion;
 import org.junit.Test;
 
+import com.vividsolutions.jts.io.ParseException;
+
 /**
  * TODO add class documentation here
  * 
@@ -91,4 +102,64 @@ public class WKBReaderTest {
         String s = "<gml:posList>5.148530 59.951879 5.134692 59.736522 5.561175 59.728897 5.577771 59.944188 5.148530 59.951879</gml:posList>";
         assertTrue( sw.toString().contains( s ) );
     }
+
+    @Test
+    public void testWriteMatchesJTS()
+                            throws Exception {
+        InputStream is = WKBReaderTest.class.getResourceAsStream( BASE_DIR + "Polygon.wkb" );
+        Polygon geom = (Polygon) WKBReader.read( IOUtils.toByteArray( is ), null );
+        com.vividsolutions.jts.geom.Geometry jtsGeom = ( (AbstractDefaultGeometry) geom ).getJTSGeometry();
+        byte[] jtsWkb = new com.vividsolutions.jts.io.WKBWriter().write( jtsGeom );
+        assertArrayEquals( jtsWkb, WKBWriter.write( geom ) );
+    }
+
+    @Test
+    public void testEWKBRoundTrip()
+                            throws Exception {
+        InputStream is = WKBReaderTest.class.getResourceAsStream( BASE_DIR + "Polygon.wkb" );
+        Polygon geom = (Polygon) WKBReader.read( IOUtils.toByteArray( is ), null );
+
+        Polygon ewkbGeom = (Polygon) WKBReader.read( WKBWriter.write( geom, 4326 ), null );
+        assertEquals( "EPSG:4326", ewkbGeom.getCoordinateSystem().getAlias() );
+        assertArrayEquals( geom.getExteriorRing().getControlPoints().getAsArray(),
+                           ewkbGeom.getExteriorRing().getControlPoints().getAsArray(), 0.0 );
+
+        // explicit crs wins
+        ICRS crs = CRSManager.getCRSRef( "EPSG:31467" );
+        assertEquals( crs, WKBReader.read( WKBWriter.write( geom, 4326 ), crs ).getCoordinateSystem() );
+    }
+
+    @Test
+    public void testReadLittleEndianZM()
+                            throws Exception {
+        // EWKB linestring with Z and M flags, little endian
+        ByteBuffer bb = ByteBuffer.allocate( 1 + 4 + 4 + 2 * 4 * 8 ).order( ByteOrder.LITTLE_ENDIAN );
+        bb.put( (byte) 1 ).putInt( 2 | 0x80000000 | 0x40000000 ).putInt( 2 );
+        bb.putDouble( 1 ).putDouble( 2 ).putDouble( 3 ).putDouble( 99 );
+        bb.putDouble( 4 ).putDouble( 5 ).putDouble( 6 ).putDouble( 99 );
+        LineString ls = (LineString) WKBReader.read( bb.array(), null );
+        assertEquals( 3, ls.getControlPoints().getDimension() );
+        assertArrayEquals( new double[] { 1, 2, 3, 4, 5, 6 }, ls.getControlPoints().getAsArray(), 0.0 );
+    }
+
+    @Test
+    public void testReadISOMultiPointZ()
+                            throws Exception {
+        // ISO multipoint Z (1004) with two members, big endian
+        ByteBuffer bb = ByteBuffer.allocate( 9 + 2 * ( 5 + 3 * 8 ) );
+        bb.put( (byte) 0 ).putInt( 1004 ).putInt( 2 );
+        bb.put( (byte) 0 ).putInt( 1001 ).putDouble( 1 ).putDouble( 2 ).putDouble( 3 );
+        bb.put( (byte) 0 ).putInt( 1001 ).putDouble( 4 ).putDouble( 5 ).putDouble( 6 );
+        MultiPoint mp = (MultiPoint) WKBReader.read( bb.array(), null );
+        assertEquals( 2, mp.size() );
+        assertEquals( 6.0, mp.get( 1 ).get2(), 0.0 );
+    }
+
+    @Test(expected = ParseException.class)
+    public void testReadTruncated()
+                            throws Exception {
+        InputStream is = WKBReaderTest.class.getResourceAsStream( BASE_DIR + "Polygon.wkb" );
+        byte[] wkb = IOUtils.toByteArray( is );
+        WKBReader.read( Arrays.copyOf( wkb, wkb.length - 10 ), null );
+    }
 }
\ No newline at end of file
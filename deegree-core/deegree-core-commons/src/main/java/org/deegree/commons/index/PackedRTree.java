@@ -0,0 +1,648 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.deegree.commons.utils.Pair;
+
+/**
+ * Static {@link SpatialIndex} that keeps all node envelopes in a single flat <code>float</code> buffer.
+ * <p>
+ * The tree is bulk loaded using sort-tile-recursive (STR) packing (Leutenegger, Edgington, Lopez 1997) and does not
+ * support inserting or removing single objects. Every node (except the last one on each level) is filled completely,
+ * so the children of a node can be computed from its position and no per node objects or child pointers are needed.
+ * The payload objects are kept in a parallel array in leaf order. For <code>long</code> payloads (e.g. file offsets),
+ * the payload is kept in a primitive buffer and the whole tree can be written to disk and memory mapped again without
+ * deserializing it (see {@link #writeTreeToDisk(String)} and {@link #loadFromDisk(String)}).
+ * </p>
+ * 
+ * @param <T>
+ *            type of the indexed objects
+ * 
+ * @since 3.4
+ */
+public class PackedRTree<T> extends SpatialIndex<T> {
+
+    /** Default maximum number of children per node. */
+    public static final int DEFAULT_NODE_CAPACITY = 16;
+
+    private static final int MAGIC = 0x44505254; // "DPRT"
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_INTS = 6;
+
+    private final int nodeCapacity;
+
+    // offset of each level (leaf level is 0) in the node buffer, plus total number of nodes as last element
+    private int[] levelOffsets;
+
+    // minx, miny, maxx, maxy of every node, leaf level first, root last
+    private FloatBuffer bounds;
+
+    // payload in leaf order, either objects or (primitive) longs
+    private Object[] values;
+
+    private LongBuffer longValues;
+
+    private boolean extraFlag;
+
+    /**
+     * Creates a new, empty {@link PackedRTree} instance. Use {@link #insertBulk(List)} to fill it.
+     * 
+     * @param nodeCapacity
+     *            maximum number of children per node, if smaller than two, {@link #DEFAULT_NODE_CAPACITY} is used
+     */
+    public PackedRTree( int nodeCapacity ) {
+        this.nodeCapacity = nodeCapacity < 2 ? DEFAULT_NODE_CAPACITY : nodeCapacity;
+        clear();
+    }
+
+    private PackedRTree( int nodeCapacity, int[] levelOffsets, FloatBuffer bounds, LongBuffer longValues,
+                         boolean extraFlag ) {
+        this.nodeCapacity = nodeCapacity;
+        this.levelOffsets = levelOffsets;
+        this.bounds = bounds;
+        this.longValues = longValues;
+        this.extraFlag = extraFlag;
+    }
+
+    /**
+     * Bulk loads a tree with <code>long</code> payloads from primitive arrays.
+     * 
+     * @param envelopes
+     *            envelopes of the entries (minx, miny, maxx, maxy per entry), must not be <code>null</code>
+     * @param values
+     *            payload of the entries, must not be <code>null</code>
+     * @param size
+     *            number of entries to use from the arrays
+     * @param nodeCapacity
+     *            maximum number of children per node, if smaller than two, {@link #DEFAULT_NODE_CAPACITY} is used
+     * @return new tree, never <code>null</code>
+     */
+    public static PackedRTree<Long> create( float[] envelopes, long[] values, int size, int nodeCapacity ) {
+        PackedRTree<Long> tree = new PackedRTree<Long>( nodeCapacity );
+        int[] order = tree.build( envelopes, size );
+        long[] sorted = new long[size];
+        for ( int i = 0; i < size; i++ ) {
+            sorted[i] = values[order[i]];
+        }
+        tree.values = null;
+        tree.longValues = LongBuffer.wrap( sorted );
+        return tree;
+    }
+
+    /**
+     * Memory maps a tree that has been written using {@link #writeTreeToDisk(String)}.
+     * 
+     * @param storagePath
+     *            path to the file, must not be <code>null</code>
+     * @return mapped tree, never <code>null</code>
+     * @throws IOException
+     *             if the file cannot be read or does not contain a packed tree (e.g. a file written by {@link RTree})
+     */
+    public static PackedRTree<Long> loadFromDisk( String storagePath )
+                            throws IOException {
+        RandomAccessFile raf = new RandomAccessFile( storagePath, "r" );
+        try {
+            FileChannel channel = raf.getChannel();
+            long fileSize = channel.size();
+            if ( fileSize < HEADER_INTS * 4 || fileSize > Integer.MAX_VALUE ) {
+                throw new IOException( "File '" + storagePath + "' is not a packed rtree." );
+            }
+            ByteBuffer buffer = channel.map( MapMode.READ_ONLY, 0, fileSize );
+            if ( buffer.getInt() != MAGIC || buffer.getInt() != VERSION ) {
+                throw new IOException( "File '" + storagePath + "' is not a packed rtree (or has an unknown version)." );
+            }
+            boolean extraFlag = ( buffer.getInt() & 1 ) != 0;
+            int nodeCapacity = buffer.getInt();
+            int numEntries = buffer.getInt();
+            int numLevels = buffer.getInt();
+            long expected = headerSize( numLevels );
+            if ( nodeCapacity < 2 || numEntries < 0 || numLevels < 0 || expected > fileSize ) {
+                throw new IOException( "File '" + storagePath + "' is corrupt." );
+            }
+            int[] levelOffsets = new int[numLevels + 1];
+            for ( int i = 0; i < levelOffsets.length; i++ ) {
+                levelOffsets[i] = buffer.getInt();
+            }
+            int numNodes = levelOffsets[numLevels];
+            expected += numEntries * 8L + numNodes * 16L;
+            if ( levelOffsets[0] != 0 || ( numLevels > 0 && levelOffsets[1] != numEntries ) || expected != fileSize ) {
+                throw new IOException( "File '" + storagePath + "' is corrupt." );
+            }
+            buffer.position( (int) headerSize( numLevels ) );
+            ByteBuffer slice = buffer.slice();
+            slice.limit( numEntries * 8 );
+            LongBuffer longValues = slice.asLongBuffer();
+            buffer.position( (int) headerSize( numLevels ) + numEntries * 8 );
+            FloatBuffer bounds = buffer.slice().asFloatBuffer();
+            return new PackedRTree<Long>( nodeCapacity, levelOffsets, bounds, longValues, extraFlag );
+        } finally {
+            // the mapping stays valid after closing the file
+            raf.close();
+        }
+    }
+
+    private static long headerSize( int numLevels ) {
+        long size = ( HEADER_INTS + numLevels + 1 ) * 4L;
+        // align payload to eight bytes
+        return ( size + 7 ) & ~7L;
+    }
+
+    /**
+     * Writes this tree to the given file, so it can be mapped using {@link #loadFromDisk(String)}.
+     * 
+     * @param storagePath
+     *            path to the file, must not be <code>null</code>
+     * @throws IOException
+     * @throws UnsupportedOperationException
+     *             if the payload of this tree is not of type <code>long</code>
+     */
+    public void writeTreeToDisk( String storagePath )
+                            throws IOException {
+        if ( longValues == null ) {
+            throw new UnsupportedOperationException( "Only trees with long payloads can be written to disk." );
+        }
+        int numLevels = levelOffsets.length - 1;
+        FileOutputStream fos = new FileOutputStream( new File( storagePath ) );
+        DataOutputStream out = new DataOutputStream( new BufferedOutputStream( fos ) );
+        try {
+            out.writeInt( MAGIC );
+            out.writeInt( VERSION );
+            out.writeInt( extraFlag ? 1 : 0 );
+            out.writeInt( nodeCapacity );
+            out.writeInt( size() );
+            out.writeInt( numLevels );
+            for ( int offset : levelOffsets ) {
+                out.writeInt( offset );
+            }
+            for ( long i = ( HEADER_INTS + numLevels + 1 ) * 4L; i < headerSize( numLevels ); i++ ) {
+                out.writeByte( 0 );
+            }
+            for ( int i = 0; i < size(); i++ ) {
+                out.writeLong( longValues.get( i ) );
+            }
+            for ( int i = 0; i < levelOffsets[numLevels] * 4; i++ ) {
+                out.writeFloat( bounds.get( i ) );
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * @return the flag that has been set using {@link #setExtraFlag(boolean)}, it is persisted with the tree
+     */
+    public boolean getExtraFlag() {
+        return extraFlag;
+    }
+
+    /**
+     * @param extraFlag
+     *            application specific flag to be stored with the tree
+     */
+    public void setExtraFlag( boolean extraFlag ) {
+        this.extraFlag = extraFlag;
+    }
+
+    /**
+     * @return number of indexed objects
+     */
+    public int size() {
+        return levelOffsets.length > 1 ? levelOffsets[1] : 0;
+    }
+
+    /**
+     * @return envelope of all indexed objects (minx, miny, maxx, maxy), <code>null</code> if the tree is empty
+     */
+    public float[] getEnvelope() {
+        int numLevels = levelOffsets.length - 1;
+        if ( numLevels == 0 ) {
+            return null;
+        }
+        int root = levelOffsets[numLevels - 1] * 4;
+        return new float[] { bounds.get( root ), bounds.get( root + 1 ), bounds.get( root + 2 ),
+                            bounds.get( root + 3 ) };
+    }
+
+    @Override
+    public ArrayList<T> query( float[] envelope ) {
+        final ArrayList<T> result = new ArrayList<T>();
+        query( envelope, new Visitor<T>() {
+            @Override
+            public boolean visit( T value ) {
+                result.add( value );
+                return true;
+            }
+        } );
+        return result;
+    }
+
+    /**
+     * Calls the given visitor for every object whose envelope intersects the given envelope. Does not allocate any
+     * objects itself (except for boxing <code>long</code> payloads, see {@link #query(float[], LongVisitor)}).
+     * 
+     * @param envelope
+     *            query envelope (minx, miny, maxx, maxy), <code>null</code> matches all objects
+     * @param visitor
+     *            visitor to be called, must not be <code>null</code>
+     */
+    public void query( float[] envelope, Visitor<? super T> visitor ) {
+        int numLevels = levelOffsets.length - 1;
+        if ( numLevels > 0 ) {
+            search( envelope, numLevels - 1, 0, visitor, null );
+        }
+    }
+
+    /**
+     * Calls the given visitor for the <code>long</code> payload of every object whose envelope intersects the given
+     * envelope, without allocating any objects.
+     * 
+     * @param envelope
+     *            query envelope (minx, miny, maxx, maxy), <code>null</code> matches all objects
+     * @param visitor
+     *            visitor to be called, must not be <code>null</code>
+     * @throws UnsupportedOperationException
+     *             if the payload of this tree is not of type <code>long</code>
+     */
+    public void query( float[] envelope, LongVisitor visitor ) {
+        if ( longValues == null ) {
+            throw new UnsupportedOperationException( "The payload of this tree is not of type long." );
+        }
+        int numLevels = levelOffsets.length - 1;
+        if ( numLevels > 0 ) {
+            search( envelope, numLevels - 1, 0, null, visitor );
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean search( float[] env, int level, int node, Visitor<? super T> visitor, LongVisitor longVisitor ) {
+        if ( !intersects( env, levelOffsets[level] + node ) ) {
+            return true;
+        }
+        if ( level == 0 ) {
+            if ( longVisitor != null ) {
+                return longVisitor.visit( longValues.get( node ) );
+            }
+            T value = (T) ( longValues != null ? Long.valueOf( longValues.get( node ) ) : values[node] );
+            return visitor.visit( value );
+        }
+        int first = node * nodeCapacity;
+        int last = Math.min( first + nodeCapacity, levelOffsets[level] - levelOffsets[level - 1] );
+        for ( int child = first; child < last; child++ ) {
+            if ( !search( env, level - 1, child, visitor, longVisitor ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean intersects( float[] env, int pos ) {
+        if ( env == null ) {
+            return true;
+        }
+        int i = pos * 4;
+        return bounds.get( i ) <= env[2] && bounds.get( i + 1 ) <= env[3] && env[0] <= bounds.get( i + 2 )
+               && env[1] <= bounds.get( i + 3 );
+    }
+
+    /**
+     * Builds the index from the given objects with their envelope, replacing the current content. Objects without
+     * envelope are ignored.
+     */
+    @Override
+    public void insertBulk( List<Pair<float[], T>> listOfObjects ) {
+        float[] envelopes = new float[listOfObjects.size() * 4];
+        Object[] objects = new Object[listOfObjects.size()];
+        int size = 0;
+        for ( Pair<float[], T> p : listOfObjects ) {
+            if ( p.first != null ) {
+                System.arraycopy( p.first, 0, envelopes, size * 4, 4 );
+                objects[size++] = p.second;
+            }
+        }
+        int[] order = build( envelopes, size );
+        Object[] sorted = new Object[size];
+        for ( int i = 0; i < size; i++ ) {
+            sorted[i] = objects[order[i]];
+        }
+        values = sorted;
+        longValues = null;
+    }
+
+    @Override
+    public void clear() {
+        levelOffsets = new int[] { 0 };
+        bounds = FloatBuffer.wrap( new float[0] );
+        values = new Object[0];
+        longValues = null;
+    }
+
+    /**
+     * Not supported, the tree can only be bulk loaded.
+     * 
+     * @throws UnsupportedOperationException
+     *             always
+     */
+    @Override
+    public boolean insert( float[] envelope, T object ) {
+        throw new UnsupportedOperationException( "PackedRTree can only be bulk loaded." );
+    }
+
+    /**
+     * Not supported, the tree can only be bulk loaded.
+     * 
+     * @throws UnsupportedOperationException
+     *             always
+     */
+    @Override
+    public boolean remove( T object ) {
+        throw new UnsupportedOperationException( "PackedRTree can only be bulk loaded." );
+    }
+
+    /**
+     * Builds the node structure for the given envelopes.
+     * 
+     * @return original index of every leaf (in leaf order)
+     */
+    private int[] build( float[] envelopes, int size ) {
+        int[] order = new int[size];
+        for ( int i = 0; i < size; i++ ) {
+            order[i] = i;
+        }
+
+        // number of levels (including leaf level) and number of nodes
+        List<Integer> levelSizes = new ArrayList<Integer>();
+        int levelSize = size;
+        if ( size > 0 ) {
+            levelSizes.add( levelSize );
+            while ( levelSize > 1 ) {
+                levelSize = ( levelSize + nodeCapacity - 1 ) / nodeCapacity;
+                levelSizes.add( levelSize );
+            }
+        }
+        int[] offsets = new int[levelSizes.size() + 1];
+        for ( int i = 0; i < levelSizes.size(); i++ ) {
+            offsets[i + 1] = offsets[i] + levelSizes.get( i );
+        }
+
+        if ( size > 1 ) {
+            float[] centerX = new float[size];
+            float[] centerY = new float[size];
+            for ( int i = 0; i < size; i++ ) {
+                centerX[i] = ( envelopes[i * 4] + envelopes[i * 4 + 2] ) / 2;
+                centerY[i] = ( envelopes[i * 4 + 1] + envelopes[i * 4 + 3] ) / 2;
+            }
+            long subtreeSize = 1;
+            for ( int i = 1; i < levelSizes.size(); i++ ) {
+                subtreeSize *= nodeCapacity;
+            }
+            tile( order, centerX, centerY, 0, size, subtreeSize );
+        }
+
+        float[] b = new float[offsets[offsets.length - 1] * 4];
+        for ( int i = 0; i < size; i++ ) {
+            System.arraycopy( envelopes, order[i] * 4, b, i * 4, 4 );
+        }
+        for ( int level = 1; level < levelSizes.size(); level++ ) {
+            int childOffset = offsets[level - 1];
+            int numChildren = levelSizes.get( level - 1 );
+            for ( int node = 0; node < levelSizes.get( level ); node++ ) {
+                int pos = ( offsets[level] + node ) * 4;
+                int first = node * nodeCapacity;
+                int last = Math.min( first + nodeCapacity, numChildren );
+                System.arraycopy( b, ( childOffset + first ) * 4, b, pos, 4 );
+                for ( int child = first + 1; child < last; child++ ) {
+                    int c = ( childOffset + child ) * 4;
+                    b[pos] = Math.min( b[pos], b[c] );
+                    b[pos + 1] = Math.min( b[pos + 1], b[c + 1] );
+                    b[pos + 2] = Math.max( b[pos + 2], b[c + 2] );
+                    b[pos + 3] = Math.max( b[pos + 3], b[c + 3] );
+                }
+            }
+        }
+        this.levelOffsets = offsets;
+        this.bounds = FloatBuffer.wrap( b );
+        return order;
+    }
+
+    /**
+     * Orders the entries in the given range into consecutive, completely filled subtrees of the given size (top-down
+     * STR): the entries are sorted by x into vertical slices, each slice is sorted by y and cut into subtrees, which are
+     * tiled recursively.
+     */
+    private void tile( int[] order, float[] centerX, float[] centerY, int from, int to, long subtreeSize ) {
+        if ( subtreeSize <= nodeCapacity || to - from <= 1 ) {
+            // order of the entries within a single leaf node doesn't matter
+            return;
+        }
+        long childSize = subtreeSize / nodeCapacity;
+        int numChildren = (int) ( ( to - from + childSize - 1 ) / childSize );
+        int numSlices = (int) Math.ceil( Math.sqrt( numChildren ) );
+        long sliceSize = childSize * ( ( numChildren + numSlices - 1 ) / numSlices );
+        sort( order, centerX, from, to );
+        for ( long sliceStart = from; sliceStart < to; sliceStart += sliceSize ) {
+            int sliceEnd = (int) Math.min( to, sliceStart + sliceSize );
+            sort( order, centerY, (int) sliceStart, sliceEnd );
+            for ( long childStart = sliceStart; childStart < sliceEnd; childStart += childSize ) {
+                tile( order, centerX, centerY, (int) childStart, (int) Math.min( sliceEnd, childStart + childSize ),
+                      childSize );
+            }
+        }
+    }
+
+    /**
+     * Sorts the given range of indexes by the referenced keys (quicksort without boxing).
+     */
+    private static void sort( int[] order, float[] keys, int from, int to ) {
+        while ( to - from > 16 ) {
+            int mid = ( from + to ) >>> 1;
+            float pivot = median( keys[order[from]], keys[order[mid]], keys[order[to - 1]] );
+            int i = from, j = to - 1;
+            while ( i <= j ) {
+                while ( keys[order[i]] < pivot ) {
+                    i++;
+                }
+                while ( keys[order[j]] > pivot ) {
+                    j--;
+                }
+                if ( i <= j ) {
+                    int tmp = order[i];
+                    order[i++] = order[j];
+                    order[j--] = tmp;
+                }
+            }
+            // recurse into smaller part, loop over larger part
+            if ( j - from < to - i ) {
+                sort( order, keys, from, j + 1 );
+                from = i;
+            } else {
+                sort( order, keys, i, to );
+                to = j + 1;
+            }
+        }
+        for ( int i = from + 1; i < to; i++ ) {
+            int idx = order[i];
+            float key = keys[idx];
+            int j = i - 1;
+            while ( j >= from && keys[order[j]] > key ) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = idx;
+        }
+    }
+
+    private static float median( float a, float b, float c ) {
+        if ( a < b ) {
+            return b < c ? b : ( a < c ? c : a );
+        }
+        return a < c ? a : ( b < c ? c : b );
+    }
+
+    @Override
+    public String toString() {
+        return "PackedRTree [size=" + size() + ", levels=" + ( levelOffsets.length - 1 ) + ", envelope="
+               + Arrays.toString( getEnvelope() ) + "]";
+    }
+
+    /**
+     * Callback for {@link PackedRTree#query(float[], Visitor)}.
+     * 
+     * @param <T>
+     *            type of the indexed objects
+     */
+    public interface Visitor<T> {
+
+        /**
+         * @param value
+         *            object whose envelope intersects the query envelope
+         * @return <code>true</code>, if the query should continue, <code>false</code> otherwise
+         */
+        boolean visit( T value );
+    }
+
+    /**
+     * Callback for {@link PackedRTree#query(float[], LongVisitor)}.
+     */
+    public interface LongVisitor {
+
+        /**
+         * @param value
+         *            payload of an object whose envelope intersects the query envelope
+         * @return <code>true</code>, if the query should continue, <code>false</code> otherwise
+         */
+        boolean visit( long value );
+    }
+
+    /**
+     * Collects envelopes and <code>long</code> payloads in growable primitive arrays for bulk loading.
+     */
+    public static class LongBuilder {
+
+        private float[] envelopes = new float[1024 * 4];
+
+        private long[] values = new long[1024];
+
+        private int size;
+
+        private boolean extraFlag;
+
+        /**
+         * Adds an entry.
+         * 
+         * @param minX
+         * @param minY
+         * @param maxX
+         * @param maxY
+         * @param value
+         *            payload of the entry
+         */
+        public void add( float minX, float minY, float maxX, float maxY, long value ) {
+            if ( size == values.length ) {
+                values = Arrays.copyOf( values, size * 2 );
+                envelopes = Arrays.copyOf( envelopes, size * 8 );
+            }
+            int i = size * 4;
+            envelopes[i] = minX;
+            envelopes[i + 1] = minY;
+            envelopes[i + 2] = maxX;
+            envelopes[i + 3] = maxY;
+            values[size++] = value;
+        }
+
+        /**
+         * @param extraFlag
+         *            application specific flag to be stored with the tree
+         */
+        public void setExtraFlag( boolean extraFlag ) {
+            this.extraFlag = extraFlag;
+        }
+
+        /**
+         * @return number of added entries
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @param nodeCapacity
+         *            maximum number of children per node, if smaller than two,
+         *            {@link PackedRTree#DEFAULT_NODE_CAPACITY} is used
+         * @return bulk loaded tree, never <code>null</code>
+         */
+        public PackedRTree<Long> build( int nodeCapacity ) {
+            PackedRTree<Long> tree = create( envelopes, values, size, nodeCapacity );
+            tree.setExtraFlag( extraFlag );
+            return tree;
+        }
+    }
+}
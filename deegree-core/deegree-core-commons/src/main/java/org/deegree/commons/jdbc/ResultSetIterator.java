@@ -44,6 +44,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
 
+import org.deegree.commons.utils.Cancellable;
 import org.deegree.commons.utils.CloseableIterator;
 import org.deegree.commons.utils.JDBCUtils;
 import org.slf4j.Logger;
@@ -60,7 +61,7 @@ import org.slf4j.LoggerFactory;
  * @param <T>
  *            type of the iterated objects
  */
-public abstract class ResultSetIterator<T> implements CloseableIterator<T> {
+public abstract class ResultSetIterator<T> implements CloseableIterator<T>, Cancellable {
 
     private static final Logger LOG = LoggerFactory.getLogger( ResultSetIterator.class );
 
@@ -94,6 +95,20 @@ public abstract class ResultSetIterator<T> implements CloseableIterator<T> {
         JDBCUtils.close( rs, stmt, conn, LOG );
     }
 
+    /**
+     * Cancels the execution of the underlying statement (if supported by the JDBC driver). Subsequent calls to
+     * {@link #hasNext()} or {@link #next()} may fail.
+     */
+    @Override
+    public void cancel() {
+        LOG.debug( "Cancelling JDBC Statement" );
+        try {
+            stmt.cancel();
+        } catch ( SQLException e ) {
+            LOG.debug( "Cancelling statement failed: " + e.getMessage() );
+        }
+    }
+
     @Override
     public boolean hasNext() {
         if ( !currentRowRead ) {
@@ -0,0 +1,182 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe histogram of durations with fixed bucket bounds (from one millisecond to one minute).
+ * 
+ * @since 3.4
+ */
+public final class LatencyHistogram {
+
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    /** Upper bounds (inclusive) of the buckets in milliseconds, an additional bucket catches everything above. */
+    private static final long[] BOUNDS = { 1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000 };
+
+    private static final long[] BOUNDS_NANOS = new long[BOUNDS.length];
+
+    static {
+        for ( int i = 0; i < BOUNDS.length; i++ ) {
+            BOUNDS_NANOS[i] = BOUNDS[i] * NANOS_PER_MILLI;
+        }
+    }
+
+    private final AtomicLongArray buckets = new AtomicLongArray( BOUNDS.length + 1 );
+
+    private final StripedCounter sum = new StripedCounter();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration.
+     * 
+     * @param nanos
+     *            duration in nanoseconds
+     */
+    public void record( long nanos ) {
+        if ( nanos < 0 ) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet( bucketIndex( nanos ) );
+        sum.add( nanos );
+        long current = max.get();
+        while ( nanos > current && !max.compareAndSet( current, nanos ) ) {
+            current = max.get();
+        }
+    }
+
+    private static int bucketIndex( long nanos ) {
+        int low = 0;
+        int high = BOUNDS_NANOS.length;
+        while ( low < high ) {
+            int mid = ( low + high ) >>> 1;
+            if ( BOUNDS_NANOS[mid] < nanos ) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the upper bounds of the buckets.
+     * 
+     * @return upper bounds in milliseconds (the last bucket, which is not included, is unbounded)
+     */
+    public static long[] getBucketBounds() {
+        return BOUNDS.clone();
+    }
+
+    /**
+     * Returns the number of recorded durations per bucket.
+     * 
+     * @return number of durations per bucket (not cumulative), length is number of bounds plus one
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[buckets.length()];
+        for ( int i = 0; i < counts.length; i++ ) {
+            counts[i] = buckets.get( i );
+        }
+        return counts;
+    }
+
+    /**
+     * @return number of recorded durations
+     */
+    public long getCount() {
+        long count = 0;
+        for ( int i = 0; i < buckets.length(); i++ ) {
+            count += buckets.get( i );
+        }
+        return count;
+    }
+
+    /**
+     * @return sum of all recorded durations in nanoseconds
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * @return maximum recorded duration in nanoseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns an estimate for the given percentile (the upper bound of the bucket that contains it).
+     * 
+     * @param percentile
+     *            percentile, between 0 and 1
+     * @return estimated duration in milliseconds, 0 if nothing has been recorded
+     */
+    public double getPercentile( double percentile ) {
+        long[] counts = getBucketCounts();
+        long total = 0;
+        for ( long c : counts ) {
+            total += c;
+        }
+        if ( total == 0 ) {
+            return 0;
+        }
+        long rank = (long) Math.ceil( percentile * total );
+        long seen = 0;
+        for ( int i = 0; i < BOUNDS.length; i++ ) {
+            seen += counts[i];
+            if ( seen >= rank ) {
+                return Math.min( BOUNDS[i], (double) getMax() / NANOS_PER_MILLI );
+            }
+        }
+        return (double) getMax() / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Resets all buckets, the sum and the maximum.
+     */
+    public void reset() {
+        for ( int i = 0; i < buckets.length(); i++ ) {
+            buckets.set( i, 0 );
+        }
+        sum.reset();
+        max.set( 0 );
+    }
+}
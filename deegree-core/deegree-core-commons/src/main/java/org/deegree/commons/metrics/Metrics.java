@@ -0,0 +1,359 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry for {@link OperationMetrics}.
+ * <p>
+ * Metrics are created on first access and registered as MBeans (<code>org.deegree:type=Metrics,category=...</code>).
+ * All metrics can be written in a plain-text format that is understood by common monitoring tools (see
+ * {@link #writeText(Writer)}).
+ * </p>
+ * <p>
+ * Additionally, this class keeps track of the time spent for data access by the request that is processed by the
+ * current thread (see {@link #beginRequest()}, {@link #addDataAccessTime(long)} and {@link #endRequest()}).
+ * </p>
+ * 
+ * @since 3.4
+ */
+public final class Metrics {
+
+    private static final Logger LOG = LoggerFactory.getLogger( Metrics.class );
+
+    /** Category of metrics for service requests (labels: service, operation). */
+    public static final String REQUEST = "request";
+
+    /** Category of metrics for the rendering of map layers (label: layer). */
+    public static final String LAYER = "layer";
+
+    private static final ConcurrentMap<String, OperationMetrics> METRICS = new ConcurrentHashMap<String, OperationMetrics>();
+
+    private static final ThreadLocal<AtomicLong> DATA_ACCESS = new ThreadLocal<AtomicLong>();
+
+    private Metrics() {
+        // avoid instantiation
+    }
+
+    /**
+     * Returns the metrics for the specified service operation.
+     * 
+     * @param service
+     *            service identifier, must not be <code>null</code>
+     * @param operation
+     *            operation (request) name, must not be <code>null</code>
+     * @return metrics, never <code>null</code>
+     */
+    public static OperationMetrics request( String service, String operation ) {
+        Map<String, String> labels = new LinkedHashMap<String, String>();
+        labels.put( "service", service );
+        labels.put( "operation", operation );
+        return get( REQUEST, labels );
+    }
+
+    /**
+     * Returns the metrics for the specified map layer.
+     * 
+     * @param layer
+     *            layer name, must not be <code>null</code>
+     * @return metrics, never <code>null</code>
+     */
+    public static OperationMetrics layer( String layer ) {
+        return get( LAYER, Collections.singletonMap( "layer", layer ) );
+    }
+
+    /**
+     * Returns the metrics for the specified category and labels.
+     * 
+     * @param category
+     *            category, must not be <code>null</code>
+     * @param labels
+     *            labels that identify the metrics within the category, must not be <code>null</code>
+     * @return metrics, never <code>null</code>
+     */
+    public static OperationMetrics get( String category, Map<String, String> labels ) {
+        StringBuilder key = new StringBuilder( category );
+        for ( Entry<String, String> label : labels.entrySet() ) {
+            key.append( '\u0000' ).append( label.getKey() ).append( '=' ).append( label.getValue() );
+        }
+        String k = key.toString();
+        OperationMetrics metrics = METRICS.get( k );
+        if ( metrics == null ) {
+            metrics = new OperationMetrics( category, labels );
+            OperationMetrics existing = METRICS.putIfAbsent( k, metrics );
+            if ( existing != null ) {
+                return existing;
+            }
+            register( metrics );
+        }
+        return metrics;
+    }
+
+    /**
+     * Returns all metrics, sorted by category and labels.
+     * 
+     * @return all metrics, never <code>null</code>
+     */
+    public static List<OperationMetrics> getAll() {
+        List<Entry<String, OperationMetrics>> entries = new ArrayList<Entry<String, OperationMetrics>>(
+                                                                                                        METRICS.entrySet() );
+        Collections.sort( entries, new Comparator<Entry<String, OperationMetrics>>() {
+            @Override
+            public int compare( Entry<String, OperationMetrics> o1, Entry<String, OperationMetrics> o2 ) {
+                return o1.getKey().compareTo( o2.getKey() );
+            }
+        } );
+        List<OperationMetrics> metrics = new ArrayList<OperationMetrics>( entries.size() );
+        for ( Entry<String, OperationMetrics> entry : entries ) {
+            metrics.add( entry.getValue() );
+        }
+        return metrics;
+    }
+
+    /**
+     * Removes all metrics and unregisters the corresponding MBeans.
+     */
+    public static void clear() {
+        Collection<OperationMetrics> metrics = new ArrayList<OperationMetrics>( METRICS.values() );
+        METRICS.clear();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for ( OperationMetrics m : metrics ) {
+            try {
+                ObjectName name = getObjectName( m );
+                if ( server.isRegistered( name ) ) {
+                    server.unregisterMBean( name );
+                }
+            } catch ( Exception e ) {
+                LOG.debug( "Could not unregister metrics MBean: " + e.getMessage() );
+            }
+        }
+    }
+
+    private static void register( OperationMetrics metrics ) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean( metrics, getObjectName( metrics ) );
+        } catch ( Exception e ) {
+            LOG.debug( "Could not register metrics MBean: " + e.getMessage() );
+            LOG.trace( "Stack trace:", e );
+        }
+    }
+
+    private static ObjectName getObjectName( OperationMetrics metrics )
+                            throws Exception {
+        StringBuilder sb = new StringBuilder( "org.deegree:type=Metrics,category=" );
+        sb.append( ObjectName.quote( metrics.getCategory() ) );
+        for ( Entry<String, String> label : metrics.getLabels().entrySet() ) {
+            sb.append( ',' ).append( label.getKey() ).append( '=' ).append( ObjectName.quote( label.getValue() ) );
+        }
+        return new ObjectName( sb.toString() );
+    }
+
+    /**
+     * Starts accounting the data access time of the request that is processed by the current thread.
+     */
+    public static void beginRequest() {
+        DATA_ACCESS.set( new AtomicLong() );
+    }
+
+    /**
+     * Adds to the data access time of the request that is processed by the current thread. Does nothing if
+     * {@link #beginRequest()} hasn't been called.
+     * 
+     * @param nanos
+     *            time spent for accessing data, in nanoseconds
+     */
+    public static void addDataAccessTime( long nanos ) {
+        AtomicLong dataAccess = DATA_ACCESS.get();
+        if ( dataAccess != null ) {
+            dataAccess.addAndGet( nanos );
+        }
+    }
+
+    /**
+     * Returns the data access time accumulator of the request that is processed by the current thread. Together with
+     * {@link #setRequestDataAccess(AtomicLong)}, this allows to account data access in worker threads to the request.
+     * 
+     * @return accumulator (in nanoseconds), may be <code>null</code> (if {@link #beginRequest()} hasn't been called)
+     */
+    public static AtomicLong getRequestDataAccess() {
+        return DATA_ACCESS.get();
+    }
+
+    /**
+     * Binds the given data access time accumulator to the current thread.
+     * 
+     * @param dataAccess
+     *            accumulator obtained by {@link #getRequestDataAccess()}, may be <code>null</code> (unbinds)
+     */
+    public static void setRequestDataAccess( AtomicLong dataAccess ) {
+        if ( dataAccess == null ) {
+            DATA_ACCESS.remove();
+        } else {
+            DATA_ACCESS.set( dataAccess );
+        }
+    }
+
+    /**
+     * Stops accounting the data access time of the request that is processed by the current thread.
+     * 
+     * @return accumulated data access time in nanoseconds
+     */
+    public static long endRequest() {
+        AtomicLong dataAccess = DATA_ACCESS.get();
+        DATA_ACCESS.remove();
+        return dataAccess == null ? 0 : dataAccess.get();
+    }
+
+    /**
+     * Writes all metrics in the plain-text exposition format used by Prometheus and compatible tools.
+     * 
+     * @param writer
+     *            writer to write to, must not be <code>null</code>
+     * @throws IOException
+     */
+    public static void writeText( Writer writer )
+                            throws IOException {
+        Map<String, List<OperationMetrics>> byCategory = new LinkedHashMap<String, List<OperationMetrics>>();
+        for ( OperationMetrics m : getAll() ) {
+            List<OperationMetrics> list = byCategory.get( m.getCategory() );
+            if ( list == null ) {
+                list = new ArrayList<OperationMetrics>();
+                byCategory.put( m.getCategory(), list );
+            }
+            list.add( m );
+        }
+        long[] bounds = LatencyHistogram.getBucketBounds();
+        for ( Entry<String, List<OperationMetrics>> entry : byCategory.entrySet() ) {
+            String prefix = "deegree_" + entry.getKey();
+            List<OperationMetrics> metrics = entry.getValue();
+
+            writer.write( "# TYPE " + prefix + "_duration_seconds histogram\n" );
+            for ( OperationMetrics m : metrics ) {
+                String labels = formatLabels( m.getLabels() );
+                long[] counts = m.getLatency().getBucketCounts();
+                long cumulative = 0;
+                for ( int i = 0; i < bounds.length; i++ ) {
+                    cumulative += counts[i];
+                    writer.write( prefix + "_duration_seconds_bucket{" + labels + ",le=\""
+                                  + formatSeconds( bounds[i] * 1000000 ) + "\"} " + cumulative + "\n" );
+                }
+                cumulative += counts[bounds.length];
+                writer.write( prefix + "_duration_seconds_bucket{" + labels + ",le=\"+Inf\"} " + cumulative + "\n" );
+                writer.write( prefix + "_duration_seconds_sum{" + labels + "} "
+                              + formatSeconds( m.getLatency().getSum() ) + "\n" );
+                writer.write( prefix + "_duration_seconds_count{" + labels + "} " + cumulative + "\n" );
+            }
+            writer.write( "# TYPE " + prefix + "_in_flight gauge\n" );
+            for ( OperationMetrics m : metrics ) {
+                writer.write( prefix + "_in_flight{" + formatLabels( m.getLabels() ) + "} " + m.getInFlight() + "\n" );
+            }
+            writer.write( "# TYPE " + prefix + "_errors_total counter\n" );
+            for ( OperationMetrics m : metrics ) {
+                writer.write( prefix + "_errors_total{" + formatLabels( m.getLabels() ) + "} " + m.getErrorCount()
+                              + "\n" );
+            }
+            writer.write( "# TYPE " + prefix + "_data_access_seconds_total counter\n" );
+            for ( OperationMetrics m : metrics ) {
+                writer.write( prefix + "_data_access_seconds_total{" + formatLabels( m.getLabels() ) + "} "
+                              + formatSeconds( m.getDataAccessNanos() ) + "\n" );
+            }
+            writer.write( "# TYPE " + prefix + "_encoding_seconds_total counter\n" );
+            for ( OperationMetrics m : metrics ) {
+                writer.write( prefix + "_encoding_seconds_total{" + formatLabels( m.getLabels() ) + "} "
+                              + formatSeconds( m.getEncodingNanos() ) + "\n" );
+            }
+            writer.write( "# TYPE " + prefix + "_bytes_written_total counter\n" );
+            for ( OperationMetrics m : metrics ) {
+                writer.write( prefix + "_bytes_written_total{" + formatLabels( m.getLabels() ) + "} "
+                              + m.getBytesWritten() + "\n" );
+            }
+        }
+        writer.flush();
+    }
+
+    private static String formatLabels( Map<String, String> labels ) {
+        StringBuilder sb = new StringBuilder();
+        for ( Entry<String, String> label : labels.entrySet() ) {
+            if ( sb.length() > 0 ) {
+                sb.append( ',' );
+            }
+            sb.append( label.getKey() ).append( "=\"" );
+            String value = label.getValue();
+            for ( int i = 0; i < value.length(); i++ ) {
+                char c = value.charAt( i );
+                switch ( c ) {
+                case '\\':
+                    sb.append( "\\\\" );
+                    break;
+                case '"':
+                    sb.append( "\\\"" );
+                    break;
+                case '\n':
+                    sb.append( "\\n" );
+                    break;
+                default:
+                    sb.append( c );
+                }
+            }
+            sb.append( '"' );
+        }
+        return sb.toString();
+    }
+
+    private static String formatSeconds( long nanos ) {
+        return String.format( Locale.ENGLISH, "%.6f", nanos / 1e9 );
+    }
+}
@@ -0,0 +1,222 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.metrics;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects latency, in-flight, error, data access / encoding time and byte statistics for a single operation (e.g. a
+ * service request type or the rendering of a layer).
+ * <p>
+ * Usage pattern:
+ * 
+ * <pre>
+ * long start = metrics.start();
+ * boolean failed = true;
+ * try {
+ *     ...
+ *     failed = false;
+ * } finally {
+ *     metrics.finish( start, dataAccessNanos, bytesWritten, failed );
+ * }
+ * </pre>
+ * 
+ * </p>
+ * 
+ * @see Metrics
+ * 
+ * @since 3.4
+ */
+public final class OperationMetrics implements OperationMetricsMBean {
+
+    private final String category;
+
+    private final Map<String, String> labels;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final StripedCounter errors = new StripedCounter();
+
+    private final StripedCounter dataAccessNanos = new StripedCounter();
+
+    private final StripedCounter encodingNanos = new StripedCounter();
+
+    private final StripedCounter bytesWritten = new StripedCounter();
+
+    OperationMetrics( String category, Map<String, String> labels ) {
+        this.category = category;
+        this.labels = Collections.unmodifiableMap( new LinkedHashMap<String, String>( labels ) );
+    }
+
+    /**
+     * @return the category (e.g. <code>request</code> or <code>layer</code>), never <code>null</code>
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * @return the labels that identify the operation within its category, never <code>null</code>
+     */
+    public Map<String, String> getLabels() {
+        return labels;
+    }
+
+    /**
+     * Marks the start of an invocation.
+     * 
+     * @return start time (to be passed to {@link #finish(long, long, long, boolean)})
+     */
+    public long start() {
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Marks the end of an invocation that has been started with {@link #start()}.
+     * 
+     * @param start
+     *            value returned by {@link #start()}
+     * @param dataAccessNanos
+     *            part of the duration that has been spent for accessing data (in nanoseconds)
+     * @param bytes
+     *            number of bytes written by the invocation
+     * @param failed
+     *            <code>true</code>, if the invocation failed
+     */
+    public void finish( long start, long dataAccessNanos, long bytes, boolean failed ) {
+        long duration = System.nanoTime() - start;
+        inFlight.decrementAndGet();
+        latency.record( duration );
+        if ( dataAccessNanos > duration ) {
+            dataAccessNanos = duration;
+        }
+        this.dataAccessNanos.add( dataAccessNanos );
+        encodingNanos.add( duration - dataAccessNanos );
+        if ( bytes > 0 ) {
+            bytesWritten.add( bytes );
+        }
+        if ( failed ) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * @return the latency histogram, never <code>null</code>
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    @Override
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getAverageMillis() {
+        long count = latency.getCount();
+        return count == 0 ? 0 : latency.getSum() / 1000000.0 / count;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.getMax() / 1000000.0;
+    }
+
+    @Override
+    public double get50thPercentileMillis() {
+        return latency.getPercentile( 0.5 );
+    }
+
+    @Override
+    public double get95thPercentileMillis() {
+        return latency.getPercentile( 0.95 );
+    }
+
+    @Override
+    public double get99thPercentileMillis() {
+        return latency.getPercentile( 0.99 );
+    }
+
+    @Override
+    public long getDataAccessMillis() {
+        return NANOSECONDS.toMillis( dataAccessNanos.sum() );
+    }
+
+    long getDataAccessNanos() {
+        return dataAccessNanos.sum();
+    }
+
+    @Override
+    public long getEncodingMillis() {
+        return NANOSECONDS.toMillis( encodingNanos.sum() );
+    }
+
+    long getEncodingNanos() {
+        return encodingNanos.sum();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        errors.reset();
+        dataAccessNanos.reset();
+        encodingNanos.reset();
+        bytesWritten.reset();
+    }
+}
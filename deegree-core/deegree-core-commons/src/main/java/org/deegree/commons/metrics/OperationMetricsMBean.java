@@ -0,0 +1,103 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.metrics;
+
+/**
+ * Management interface of {@link OperationMetrics}, exposes the statistics of a single operation (e.g. via JMX).
+ * 
+ * @since 3.4
+ */
+public interface OperationMetricsMBean {
+
+    /**
+     * @return number of finished invocations
+     */
+    long getCount();
+
+    /**
+     * @return number of currently running invocations
+     */
+    int getInFlight();
+
+    /**
+     * @return number of invocations that failed
+     */
+    long getErrorCount();
+
+    /**
+     * @return average duration in milliseconds
+     */
+    double getAverageMillis();
+
+    /**
+     * @return maximum duration in milliseconds
+     */
+    double getMaxMillis();
+
+    /**
+     * @return estimated median duration in milliseconds
+     */
+    double get50thPercentileMillis();
+
+    /**
+     * @return estimated 95th percentile of the duration in milliseconds
+     */
+    double get95thPercentileMillis();
+
+    /**
+     * @return estimated 99th percentile of the duration in milliseconds
+     */
+    double get99thPercentileMillis();
+
+    /**
+     * @return accumulated time spent for accessing data (e.g. querying feature stores) in milliseconds
+     */
+    long getDataAccessMillis();
+
+    /**
+     * @return accumulated time spent for everything else (e.g. rendering or encoding) in milliseconds
+     */
+    long getEncodingMillis();
+
+    /**
+     * @return number of bytes written
+     */
+    long getBytesWritten();
+
+    /**
+     * Resets all counters (except the number of running invocations).
+     */
+    void reset();
+}
@@ -0,0 +1,115 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe <code>long</code> sum that keeps contention low when many threads add to it concurrently.
+ * <p>
+ * Additions are spread over a number of cells (selected by thread), which are summed up on read. Reads are therefore
+ * more expensive than additions and not an atomic snapshot.
+ * </p>
+ * 
+ * @since 3.4
+ */
+public final class StripedCounter {
+
+    // number of longs per cell (keeps cells on separate cache lines)
+    private static final int PADDING = 8;
+
+    private static final int NUM_CELLS;
+
+    static {
+        int n = 1;
+        int processors = Runtime.getRuntime().availableProcessors();
+        while ( n < processors * 2 && n < 64 ) {
+            n <<= 1;
+        }
+        NUM_CELLS = n;
+    }
+
+    private final AtomicLongArray cells = new AtomicLongArray( NUM_CELLS * PADDING );
+
+    /**
+     * Adds the given value.
+     * 
+     * @param value
+     *            value to add
+     */
+    public void add( long value ) {
+        cells.addAndGet( cellIndex(), value );
+    }
+
+    /**
+     * Adds one.
+     */
+    public void increment() {
+        add( 1 );
+    }
+
+    /**
+     * Returns the current sum.
+     * 
+     * @return current sum
+     */
+    public long sum() {
+        long sum = 0;
+        for ( int i = 0; i < NUM_CELLS; i++ ) {
+            sum += cells.get( i * PADDING );
+        }
+        return sum;
+    }
+
+    /**
+     * Resets the sum to zero (additions that happen concurrently may get lost).
+     */
+    public void reset() {
+        for ( int i = 0; i < NUM_CELLS; i++ ) {
+            cells.set( i * PADDING, 0 );
+        }
+    }
+
+    private static int cellIndex() {
+        long id = Thread.currentThread().getId();
+        int h = (int) ( id ^ ( id >>> 32 ) ) * 0x9E3779B9;
+        return ( ( h >>> 16 ) & ( NUM_CELLS - 1 ) ) * PADDING;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString( sum() );
+    }
+}
@@ -86,4 +86,12 @@ public class ConfigManager {
         return new BufferedOutputStream( new FileOutputStream( new File( HOMEDIR, path ), append ) );
     }
 
+    /**
+     * @param path
+     * @return the file (which may not exist yet)
+     */
+    public static File getResourceFile( String path ) {
+        return new File( HOMEDIR, path );
+    }
+
 }
@@ -0,0 +1,263 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.commons.utils.image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.imageio.ImageIO;
+
+import org.deegree.commons.utils.image.PngEncoder.Filter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Entry point for encoding map and tile images, uses {@link PngEncoder} and {@link JpegEncoder} for PNG and JPEG and
+ * falls back to {@link ImageIO} for other formats.
+ * <p>
+ * The default PNG encoder does not filter the rows: rendered maps consist of large areas of the same color, which
+ * deflate better (and faster) unfiltered. The deflate level and filter of the default PNG encoder can be set with the
+ * system properties {@value #PNG_LEVEL_PROPERTY} and {@value #PNG_FILTER_PROPERTY}, or per workspace (see
+ * {@link ImageEncodingManager}). Services with their own settings pass their encoder to
+ * {@link #write(BufferedImage, String, OutputStream, PngEncoder)}.
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class ImageEncoders {
+
+    private static final Logger LOG = LoggerFactory.getLogger( ImageEncoders.class );
+
+    /** Default deflate level of the PNG encoder */
+    public static final int DEFAULT_PNG_LEVEL = 4;
+
+    /** System property for the deflate level (0-9) of the default PNG encoder */
+    public static final String PNG_LEVEL_PROPERTY = "deegree.png.level";
+
+    /** System property for the filter strategy (e.g. <code>NONE</code>) of the default PNG encoder */
+    public static final String PNG_FILTER_PROPERTY = "deegree.png.filter";
+
+    /** Default quality of the JPEG encoder, the same as ImageIO's default */
+    public static final float DEFAULT_JPEG_QUALITY = 0.75f;
+
+    private static volatile PngEncoder png = createDefaultPngEncoder();
+
+    private static volatile JpegEncoder jpeg = new JpegEncoder( DEFAULT_JPEG_QUALITY );
+
+    private ImageEncoders() {
+        // no instances
+    }
+
+    /**
+     * Sets the default PNG encoder. Note that this affects all users of this class in the JVM, it is reset when the
+     * workspace is shut down.
+     * 
+     * @param encoder
+     *            the PNG encoder to use from now on, must not be <code>null</code>
+     */
+    public static void setPngEncoder( PngEncoder encoder ) {
+        png = encoder;
+    }
+
+    /**
+     * @return the PNG encoder currently in use, never <code>null</code>
+     */
+    public static PngEncoder getPngEncoder() {
+        return png;
+    }
+
+    /**
+     * Creates the default PNG encoder, configured by the system properties {@value #PNG_LEVEL_PROPERTY} and
+     * {@value #PNG_FILTER_PROPERTY}.
+     * 
+     * @return the PNG encoder, never <code>null</code>
+     */
+    public static PngEncoder createDefaultPngEncoder() {
+        return createPngEncoder( System.getProperty( PNG_LEVEL_PROPERTY ), System.getProperty( PNG_FILTER_PROPERTY ) );
+    }
+
+    /**
+     * Creates a PNG encoder that writes true color images and deflates large images in parallel (if possible).
+     * 
+     * @param level
+     *            deflate level (0-9), can be <code>null</code> ({@link #DEFAULT_PNG_LEVEL})
+     * @param filter
+     *            name of the filter strategy (case insensitive, see {@link Filter}), can be <code>null</code>
+     *            ({@link Filter#NONE})
+     * @return the PNG encoder, never <code>null</code>, invalid values are logged and replaced by the defaults
+     */
+    public static PngEncoder createPngEncoder( String level, String filter ) {
+        return createPngEncoder( level, filter, false );
+    }
+
+    /**
+     * Creates a PNG encoder that deflates large images in parallel (if possible).
+     * 
+     * @param level
+     *            deflate level (0-9), can be <code>null</code> ({@link #DEFAULT_PNG_LEVEL})
+     * @param filter
+     *            name of the filter strategy (case insensitive, see {@link Filter}), can be <code>null</code>
+     *            ({@link Filter#NONE})
+     * @param palette
+     *            <code>true</code>, if true color images with at most 256 colors should be written as palette images
+     * @return the PNG encoder, never <code>null</code>, invalid values are logged and replaced by the defaults
+     */
+    public static PngEncoder createPngEncoder( String level, String filter, boolean palette ) {
+        int deflateLevel = DEFAULT_PNG_LEVEL;
+        if ( level != null ) {
+            try {
+                deflateLevel = Integer.parseInt( level.trim() );
+            } catch ( NumberFormatException e ) {
+                deflateLevel = -1;
+            }
+            if ( deflateLevel < 0 || deflateLevel > 9 ) {
+                LOG.warn( "Invalid PNG deflate level '{}', using {}.", level, DEFAULT_PNG_LEVEL );
+                deflateLevel = DEFAULT_PNG_LEVEL;
+            }
+        }
+        Filter rowFilter = Filter.NONE;
+        if ( filter != null ) {
+            try {
+                rowFilter = Filter.valueOf( filter.trim().toUpperCase() );
+            } catch ( IllegalArgumentException e ) {
+                LOG.warn( "Invalid PNG filter '{}', using {}.", filter, Filter.NONE );
+            }
+        }
+        return new PngEncoder( deflateLevel, rowFilter, palette, true );
+    }
+
+    /**
+     * @param encoder
+     *            the JPEG encoder to use from now on, must not be <code>null</code>
+     */
+    public static void setJpegEncoder( JpegEncoder encoder ) {
+        jpeg = encoder;
+    }
+
+    /**
+     * Drop-in replacement for {@link ImageIO#write(java.awt.image.RenderedImage, String, OutputStream)}.
+     * 
+     * @param img
+     *            image to encode, must not be <code>null</code>
+     * @param format
+     *            informal format name (e.g. <code>png</code>, <code>jpeg</code>) or mime type, must not be
+     *            <code>null</code>
+     * @param out
+     *            stream to write to, must not be <code>null</code> (is not closed)
+     * @return <code>false</code>, if no encoder for the format is available
+     * @throws IOException
+     */
+    public static boolean write( BufferedImage img, String format, OutputStream out )
+                            throws IOException {
+        return write( img, format, out, null );
+    }
+
+    /**
+     * Drop-in replacement for {@link ImageIO#write(java.awt.image.RenderedImage, String, OutputStream)}, using the
+     * given PNG encoder.
+     * 
+     * @param img
+     *            image to encode, must not be <code>null</code>
+     * @param format
+     *            informal format name (e.g. <code>png</code>, <code>jpeg</code>) or mime type, must not be
+     *            <code>null</code>
+     * @param out
+     *            stream to write to, must not be <code>null</code> (is not closed)
+     * @param pngEncoder
+     *            encoder for PNG images, can be <code>null</code> (default encoder)
+     * @return <code>false</code>, if no encoder for the format is available
+     * @throws IOException
+     */
+    public static boolean write( BufferedImage img, String format, OutputStream out, PngEncoder pngEncoder )
+                            throws IOException {
+        String name = format.toLowerCase();
+        if ( name.startsWith( "image/" ) ) {
+            name = name.substring( 6 );
+        }
+        if ( name.equals( "png" ) ) {
+            ( pngEncoder != null ? pngEncoder : png ).encode( img, out );
+            return true;
+        }
+        if ( name.equals( "jpeg" ) || name.equals( "jpg" ) ) {
+            jpeg.encode( img, out );
+            return true;
+        }
+        return ImageIO.write( img, name, out );
+    }
+
+    /**
+     * Writes the image as 8 bit palette PNG, if it has at most 256 colors.
+     * 
+     * @param img
+     *            image to encode, must not be <code>null</code>
+     * @param out
+     *            stream to write to, must not be <code>null</code> (is not closed)
+     * @return <code>false</code>, if the image has more colors (and needs to be quantized)
+     * @throws IOException
+     */
+    public static boolean writeIndexedPng( BufferedImage img, OutputStream out )
+                            throws IOException {
+        return writeIndexedPng( img, out, null );
+    }
+
+    /**
+     * Writes the image as 8 bit palette PNG with the given encoder, if it has at most 256 colors.
+     * 
+     * @param img
+     *            image to encode, must not be <code>null</code>
+     * @param out
+     *            stream to write to, must not be <code>null</code> (is not closed)
+     * @param pngEncoder
+     *            encoder to use, can be <code>null</code> (default encoder)
+     * @return <code>false</code>, if the image has more colors (and needs to be quantized)
+     * @throws IOException
+     */
+    public static boolean writeIndexedPng( BufferedImage img, OutputStream out, PngEncoder pngEncoder )
+                            throws IOException {
+        return ( pngEncoder != null ? pngEncoder : png ).encodeIndexed( img, out );
+    }
+
+}
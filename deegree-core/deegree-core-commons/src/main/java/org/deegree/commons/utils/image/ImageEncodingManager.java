@@ -0,0 +1,187 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.stream;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+package org.deegree.commons.utils.image;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.deegree.commons.config.AbstractBasicResourceManager;
+import org.deegree.commons.config.DeegreeWorkspace;
+import org.deegree.commons.config.ResourceInitException;
+import org.deegree.commons.config.ResourceManager;
+import org.deegree.commons.config.ResourceManagerMetadata;
+import org.deegree.commons.config.ResourceProvider;
+import org.deegree.commons.config.ResourceState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sets up the default PNG encoder of a workspace and the threads for deflating large PNG images in parallel, and
+ * releases them together with the workspace.
+ * <p>
+ * The encoder is configured by an (optional) <code>image-encoding.properties</code> file in the workspace directory
+ * (or the workspace root directory). Supported keys are <code>pngLevel</code>, <code>pngFilter</code>,
+ * <code>pngPalette</code> (write true color images with at most 256 colors as palette images, <code>false</code> by
+ * default) and <code>deflateThreads</code> (number of processors by default, 1 for deflating on the calling thread).
+ * </p>
+ * 
+ * @since 3.4
+ */
+public class ImageEncodingManager extends AbstractBasicResourceManager implements ResourceManager {
+
+    private static final Logger LOG = LoggerFactory.getLogger( ImageEncodingManager.class );
+
+    private static final String CONFIG_FILE = "image-encoding.properties";
+
+    private ExecutorService executor;
+
+    @Override
+    public void startup( DeegreeWorkspace workspace )
+                            throws ResourceInitException {
+        File globalConfig = new File( DeegreeWorkspace.getWorkspaceRoot(), CONFIG_FILE );
+        File configFile = new File( workspace.getLocation(), CONFIG_FILE );
+        if ( !configFile.exists() ) {
+            configFile = globalConfig;
+        }
+
+        Properties props = new Properties();
+        if ( configFile.exists() ) {
+            LOG.info( "Using image encoding configuration '" + configFile + "'." );
+            FileInputStream fis = null;
+            try {
+                fis = new FileInputStream( configFile );
+                props.load( fis );
+            } catch ( IOException e ) {
+                String msg = "Could not read image encoding configuration '" + configFile + "': " + e.getMessage();
+                throw new ResourceInitException( msg, e );
+            } finally {
+                IOUtils.closeQuietly( fis );
+            }
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        String value = props.getProperty( "deflateThreads" );
+        if ( value != null && !value.trim().isEmpty() ) {
+            try {
+                threads = Integer.parseInt( value.trim() );
+            } catch ( NumberFormatException e ) {
+                String msg = "Invalid image encoding configuration '" + configFile
+                             + "': Value of 'deflateThreads' is not an integer: " + value;
+                throw new ResourceInitException( msg, e );
+            }
+        }
+        if ( props.getProperty( "pngLevel" ) != null || props.getProperty( "pngFilter" ) != null
+             || props.getProperty( "pngPalette" ) != null ) {
+            boolean palette = Boolean.parseBoolean( props.getProperty( "pngPalette", "false" ).trim() );
+            ImageEncoders.setPngEncoder( ImageEncoders.createPngEncoder( props.getProperty( "pngLevel" ),
+                                                                         props.getProperty( "pngFilter" ), palette ) );
+        }
+        if ( threads > 1 ) {
+            executor = Executors.newFixedThreadPool( threads, new DeflateThreadFactory() );
+            PngEncoder.setExecutor( executor );
+        }
+        LOG.debug( "Image encoding: deflateThreads=" + threads + ", level=" + ImageEncoders.getPngEncoder().getLevel()
+                   + ", filter=" + ImageEncoders.getPngEncoder().getFilter() );
+    }
+
+    @Override
+    public void shutdown() {
+        PngEncoder.setExecutor( null );
+        if ( executor != null ) {
+            executor.shutdown();
+            executor = null;
+        }
+        PngEncoder.releaseBuffers();
+        ImageEncoders.setPngEncoder( ImageEncoders.createDefaultPngEncoder() );
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Class<? extends ResourceManager>[] getDependencies() {
+        return new Class[] {};
+    }
+
+    @Override
+    public ResourceManagerMetadata getMetadata() {
+        return null;
+    }
+
+    @Override
+    public ResourceState activate( String id ) {
+        return null;
+    }
+
+    @Override
+    public ResourceState deactivate( String id ) {
+        return null;
+    }
+
+    @Override
+    protected ResourceProvider getProvider( URL file ) {
+        return null;
+    }
+
+    @Override
+    protected void remove( String id ) {
+        // nothing to do
+    }
+
+    private static class DeflateThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger( 1 );
+
+        @Override
+        public Thread newThread( Runnable r ) {
+            Thread t = new Thread( r, "deegree-png-deflate-" + threadNumber.getAndIncrement() );
+            t.setDaemon( true );
+            return t;
+        }
+    }
+}
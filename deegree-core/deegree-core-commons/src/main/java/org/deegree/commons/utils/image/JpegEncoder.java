@@ -0,0 +1,138 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.commons.utils.image;
+
+import static java.awt.image.BufferedImage.TYPE_3BYTE_BGR;
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * Encodes {@link BufferedImage}s as JPEG with a fixed quality, reusing the {@link ImageWriter} per thread.
+ * <p>
+ * Images with alpha channel are flattened onto a white background before encoding (ImageIO would write them as CMYK
+ * like four channel JPEGs that most clients can not display).
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class JpegEncoder {
+
+    private static final ThreadLocal<ImageWriter> WRITERS = new ThreadLocal<ImageWriter>() {
+        @Override
+        protected ImageWriter initialValue() {
+            Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName( "jpeg" );
+            return writers.hasNext() ? writers.next() : null;
+        }
+    };
+
+    private final float quality;
+
+    /**
+     * Creates a new {@link JpegEncoder} instance.
+     * 
+     * @param quality
+     *            compression quality, between 0 (smallest) and 1 (best quality)
+     */
+    public JpegEncoder( float quality ) {
+        if ( quality < 0 || quality > 1 ) {
+            throw new IllegalArgumentException( "JPEG quality must be between 0 and 1." );
+        }
+        this.quality = quality;
+    }
+
+    /**
+     * Encodes the given image.
+     * 
+     * @param img
+     *            image to encode, must not be <code>null</code>
+     * @param out
+     *            stream to write to, must not be <code>null</code> (is not closed)
+     * @throws IOException
+     */
+    public void encode( BufferedImage img, OutputStream out )
+                            throws IOException {
+        ImageWriter writer = WRITERS.get();
+        if ( writer == null ) {
+            throw new IOException( "No JPEG image writer available." );
+        }
+        int type = img.getType();
+        if ( type != TYPE_INT_RGB && type != TYPE_3BYTE_BGR && type != TYPE_BYTE_GRAY ) {
+            BufferedImage rgb = new BufferedImage( img.getWidth(), img.getHeight(), TYPE_INT_RGB );
+            Graphics2D g = rgb.createGraphics();
+            g.setColor( Color.WHITE );
+            g.fillRect( 0, 0, img.getWidth(), img.getHeight() );
+            g.drawImage( img, 0, 0, null );
+            g.dispose();
+            img = rgb;
+        }
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode( ImageWriteParam.MODE_EXPLICIT );
+        param.setCompressionQuality( quality );
+        ImageOutputStream ios = new MemoryCacheImageOutputStream( out );
+        try {
+            writer.setOutput( ios );
+            writer.write( null, new IIOImage( img, null, null ), param );
+            ios.flush();
+        } finally {
+            writer.reset();
+            ios.close();
+        }
+    }
+
+}
@@ -0,0 +1,1002 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.commons.utils.image;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.slf4j.Logger;
+
+/**
+ * Encodes {@link BufferedImage}s as PNG, reading the pixels directly from the raster where possible.
+ * <p>
+ * Images with at most 256 distinct colors are written as palette images (unless disabled), which is lossless and
+ * usually makes deflating a lot cheaper. Large images are split into blocks of rows that are filtered and deflated in
+ * parallel (requires Java 7 or later), if the workspace provides an executor for this (see
+ * {@link ImageEncodingManager}). Otherwise, images are deflated on the calling thread. Scratch buffers and deflaters
+ * are pooled and released when the workspace is shut down. Instances are immutable and can be shared between threads.
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class PngEncoder {
+
+    private static final Logger LOG = getLogger( PngEncoder.class );
+
+    /**
+     * PNG row filter strategies.
+     */
+    public enum Filter {
+        /** No filtering */
+        NONE,
+        /** Difference to the left neighbour */
+        SUB,
+        /** Difference to the upper neighbour */
+        UP,
+        /** Difference to the average of the left and upper neighbour */
+        AVERAGE,
+        /** Paeth predictor */
+        PAETH,
+        /** Chooses the filter with the minimum sum of absolute differences per row */
+        ADAPTIVE
+    }
+
+    private static final byte[] SIGNATURE = { (byte) 137, 80, 78, 71, 13, 10, 26, 10 };
+
+    private static final byte[] IHDR = { 'I', 'H', 'D', 'R' };
+
+    private static final byte[] PLTE = { 'P', 'L', 'T', 'E' };
+
+    private static final byte[] TRNS = { 't', 'R', 'N', 'S' };
+
+    private static final byte[] IDAT = { 'I', 'D', 'A', 'T' };
+
+    private static final byte[] IEND = { 'I', 'E', 'N', 'D' };
+
+    private static final int COLOR_TYPE_RGB = 2;
+
+    private static final int COLOR_TYPE_PALETTE = 3;
+
+    private static final int COLOR_TYPE_RGBA = 6;
+
+    // images with more filtered bytes than this are deflated in parallel blocks
+    private static final int PARALLEL_THRESHOLD = 1 << 20;
+
+    private static final int BLOCK_SIZE = 1 << 18;
+
+    private static final int IDAT_SIZE = 1 << 16;
+
+    private static final int INPUT_SIZE = 1 << 16;
+
+    // Deflater.deflate(byte[], int, int, int) and Deflater.SYNC_FLUSH are only available with Java 7
+    private static final Method SYNC_DEFLATE;
+
+    private static final int SYNC_FLUSH = 2;
+
+    private static final int MAX_IDLE_BUFFERS = 2 * Runtime.getRuntime().availableProcessors();
+
+    // idle scratch buffers, more buffers are created (and dropped afterwards) if needed
+    private static final BlockingQueue<Buffers> BUFFERS = new ArrayBlockingQueue<Buffers>( MAX_IDLE_BUFFERS );
+
+    private static volatile ExecutorService executor;
+
+    static {
+        Method m = null;
+        try {
+            m = Deflater.class.getMethod( "deflate", byte[].class, int.class, int.class, int.class );
+        } catch ( NoSuchMethodException e ) {
+            LOG.debug( "Deflater does not support flushing, PNG images will be deflated sequentially." );
+        }
+        SYNC_DEFLATE = m;
+    }
+
+    private final int level;
+
+    private final Filter filter;
+
+    private final boolean palette;
+
+    private final boolean parallel;
+
+    /**
+     * Creates a new {@link PngEncoder} instance.
+     * 
+     * @param level
+     *            deflate level, 0 (no compression) to 9 (best compression)
+     * @param filter
+     *            filter strategy for true color images, must not be <code>null</code>. Palette images are always
+     *            written unfiltered, as recommended by the PNG specification.
+     * @param palette
+     *            <code>true</code>, if images with at most 256 colors should be written as palette images
+     * @param parallel
+     *            <code>true</code>, if large images may be deflated using multiple threads (only if an executor has
+     *            been set up by the workspace)
+     */
+    public PngEncoder( int level, Filter filter, boolean palette, boolean parallel ) {
+        if ( level < 0 || level > 9 ) {
+            throw new IllegalArgumentException( "Deflate level must be between 0 and 9." );
+        }
+        this.level = level;
+        this.filter = filter;
+        this.palette = palette;
+        this.parallel = parallel && SYNC_DEFLATE != null;
+    }
+
+    /**
+     * @return the deflate level, 0 (no compression) to 9 (best compression)
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return the filter strategy for true color images, never <code>null</code>
+     */
+    public Filter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Sets the executor for deflating large images in parallel.
+     * 
+     * @param executor
+     *            executor to use from now on, can be <code>null</code> (images are deflated on the calling thread)
+     */
+    static void setExecutor( ExecutorService executor ) {
+        PngEncoder.executor = executor;
+    }
+
+    /**
+     * Ends the deflaters of the pooled scratch buffers (they are recreated on demand).
+     */
+    static void releaseBuffers() {
+        Buffers buffers;
+        while ( ( buffers = BUFFERS.poll() ) != null ) {
+            buffers.deflater.end();
+        }
+    }
+
+    private static Buffers acquireBuffers() {
+        Buffers buffers = BUFFERS.poll();
+        return buffers != null ? buffers : new Buffers();
+    }
+
+    private static void releaseBuffers( Buffers buffers ) {
+        if ( !BUFFERS.offer( buffers ) ) {
+            buffers.deflater.end();
+        }
+    }
+
+    /**
+     * Encodes the given image.
+     * 
+     * @param img
+     *            image to encode, must not be <code>null</code>
+     * @param out
+     *            stream to write to, must not be <code>null</code> (is not closed)
+     * @throws IOException
+     */
+    public void encode( BufferedImage img, OutputStream out )
+                            throws IOException {
+        encode( img, out, false );
+    }
+
+    /**
+     * Encodes the given image as palette image, if it has at most 256 colors.
+     * 
+     * @param img
+     *            image to encode, must not be <code>null</code>
+     * @param out
+     *            stream to write to, must not be <code>null</code> (is not closed)
+     * @return <code>true</code>, if the image has been written, <code>false</code> if it has more than 256 colors
+     *         (nothing has been written in this case)
+     * @throws IOException
+     */
+    public boolean encodeIndexed( BufferedImage img, OutputStream out )
+                            throws IOException {
+        return encode( img, out, true );
+    }
+
+    private boolean encode( BufferedImage img, OutputStream out, boolean indexedOnly )
+                            throws IOException {
+        Source src;
+        ColorModel cm = img.getColorModel();
+        if ( cm instanceof IndexColorModel && cm.getPixelSize() <= 8 ) {
+            src = new IndexedSource( img, (IndexColorModel) cm );
+        } else {
+            PixelSource pixels = new PixelSource( img );
+            src = palette || indexedOnly ? pixels.toPalette() : null;
+            if ( src == null ) {
+                if ( indexedOnly ) {
+                    return false;
+                }
+                src = pixels;
+            }
+        }
+
+        out.write( SIGNATURE );
+        byte[] header = new byte[13];
+        putInt( header, 0, img.getWidth() );
+        putInt( header, 4, img.getHeight() );
+        header[8] = (byte) src.bitDepth;
+        header[9] = (byte) src.colorType;
+        writeChunk( out, IHDR, header, 0, header.length );
+        if ( src.colorType == COLOR_TYPE_PALETTE ) {
+            writeChunk( out, PLTE, src.plte, 0, src.plte.length );
+            if ( src.trns != null ) {
+                writeChunk( out, TRNS, src.trns, 0, src.trns.length );
+            }
+        }
+        writeImageData( src, out );
+        writeChunk( out, IEND, new byte[0], 0, 0 );
+        return true;
+    }
+
+    private void writeImageData( final Source src, OutputStream out )
+                            throws IOException {
+        final Filter filter = src.colorType == COLOR_TYPE_PALETTE ? Filter.NONE : this.filter;
+        int height = src.height;
+        int blockRows = Math.max( 1, BLOCK_SIZE / ( src.rowBytes + 1 ) );
+        byte[] zlibHeader = zlibHeader();
+
+        ExecutorService pool = executor;
+        List<Future<Block>> blocks = null;
+        if ( parallel && pool != null && (long) height * ( src.rowBytes + 1 ) > PARALLEL_THRESHOLD
+             && height > blockRows ) {
+            blocks = submitBlocks( pool, src, filter, blockRows );
+        }
+        if ( blocks == null ) {
+            IdatOutputStream idat = new IdatOutputStream( out );
+            idat.write( zlibHeader );
+            long adler = deflateRows( src, filter, 0, height, true, idat );
+            idat.write( adler32Bytes( adler ) );
+            idat.flush();
+            return;
+        }
+
+        IdatOutputStream idat = new IdatOutputStream( out );
+        idat.write( zlibHeader );
+        long adler = 1;
+        try {
+            for ( Future<Block> f : blocks ) {
+                Block block = f.get();
+                block.data.writeTo( idat );
+                adler = combineAdler32( adler, block.adler, block.length );
+            }
+        } catch ( Exception e ) {
+            for ( Future<Block> f : blocks ) {
+                f.cancel( true );
+            }
+            if ( e.getCause() instanceof IOException ) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException( "Deflating PNG image data failed: " + e.getMessage(), e );
+        }
+        idat.write( adler32Bytes( adler ) );
+        idat.flush();
+    }
+
+    /**
+     * @return the blocks, or <code>null</code> if the executor does not accept them (e.g. it has been shut down)
+     */
+    private List<Future<Block>> submitBlocks( ExecutorService pool, final Source src, final Filter filter,
+                                              int blockRows ) {
+        List<Future<Block>> blocks = new ArrayList<Future<Block>>();
+        try {
+            for ( int y = 0; y < src.height; y += blockRows ) {
+                final int minY = y;
+                final int maxY = Math.min( src.height, y + blockRows );
+                blocks.add( pool.submit( new Callable<Block>() {
+                    @Override
+                    public Block call()
+                                            throws IOException {
+                        int size = ( maxY - minY ) * src.rowBytes / 2 + 64;
+                        ByteArrayOutputStream bos = new ByteArrayOutputStream( size );
+                        long adler = deflateRows( src, filter, minY, maxY, maxY == src.height, bos );
+                        return new Block( bos, adler, (long) ( maxY - minY ) * ( src.rowBytes + 1 ) );
+                    }
+                } ) );
+            }
+        } catch ( RejectedExecutionException e ) {
+            LOG.debug( "Deflating PNG image data sequentially: " + e.getMessage() );
+            for ( Future<Block> f : blocks ) {
+                f.cancel( true );
+            }
+            return null;
+        }
+        return blocks;
+    }
+
+    /**
+     * Filters and deflates (raw, without zlib header) the given rows.
+     * 
+     * @return adler32 checksum of the filtered rows
+     */
+    private long deflateRows( Source src, Filter filter, int minY, int maxY, boolean last, OutputStream out )
+                            throws IOException {
+        Buffers buffers = acquireBuffers();
+        try {
+            return deflateRows( src, filter, minY, maxY, last, out, buffers );
+        } finally {
+            releaseBuffers( buffers );
+        }
+    }
+
+    private long deflateRows( Source src, Filter filter, int minY, int maxY, boolean last, OutputStream out,
+                              Buffers buffers )
+                            throws IOException {
+        int len = src.rowBytes;
+        byte[] prev = buffers.prev( len );
+        byte[] cur = buffers.cur( len );
+        // filtered rows are collected up to the input buffer size before deflating them
+        int rowsPerInput = Math.max( 1, INPUT_SIZE / ( len + 1 ) );
+        byte[] filtered = buffers.filtered( rowsPerInput * ( len + 1 ) );
+        byte[] buf = buffers.out;
+        Deflater def = buffers.deflater;
+        def.reset();
+        def.setLevel( level );
+        Adler32 adler = new Adler32();
+
+        if ( minY > 0 ) {
+            src.fillRow( minY - 1, prev, buffers );
+        } else {
+            Arrays.fill( prev, 0, len, (byte) 0 );
+        }
+        int pos = 0;
+        for ( int y = minY; y < maxY; ++y ) {
+            src.fillRow( y, cur, buffers );
+            filterRow( filter, src.bytesPerPixel, prev, cur, len, filtered, pos );
+            pos += len + 1;
+            if ( pos + len + 1 > filtered.length || y == maxY - 1 ) {
+                adler.update( filtered, 0, pos );
+                def.setInput( filtered, 0, pos );
+                while ( !def.needsInput() ) {
+                    int n = def.deflate( buf );
+                    out.write( buf, 0, n );
+                }
+                pos = 0;
+            }
+            byte[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        if ( last ) {
+            def.finish();
+            while ( !def.finished() ) {
+                int n = def.deflate( buf );
+                out.write( buf, 0, n );
+            }
+        } else {
+            int n;
+            do {
+                n = syncDeflate( def, buf );
+                out.write( buf, 0, n );
+            } while ( n == buf.length );
+        }
+        buffers.swap( prev, cur );
+        return adler.getValue();
+    }
+
+    private static int syncDeflate( Deflater def, byte[] buf )
+                            throws IOException {
+        try {
+            return (Integer) SYNC_DEFLATE.invoke( def, buf, 0, buf.length, SYNC_FLUSH );
+        } catch ( Exception e ) {
+            throw new IOException( "Flushing deflater failed: " + e.getMessage(), e );
+        }
+    }
+
+    static void filterRow( Filter filter, int bpp, byte[] prev, byte[] cur, int len, byte[] out, int off ) {
+        if ( filter == Filter.ADAPTIVE ) {
+            filter = chooseFilter( bpp, prev, cur, len );
+        }
+        out[off++] = (byte) filter.ordinal();
+        switch ( filter ) {
+        case NONE:
+            System.arraycopy( cur, 0, out, off, len );
+            break;
+        case SUB:
+            for ( int i = 0; i < len; ++i ) {
+                int a = i >= bpp ? cur[i - bpp] & 0xff : 0;
+                out[off + i] = (byte) ( cur[i] - a );
+            }
+            break;
+        case UP:
+            for ( int i = 0; i < len; ++i ) {
+                out[off + i] = (byte) ( cur[i] - prev[i] );
+            }
+            break;
+        case AVERAGE:
+            for ( int i = 0; i < len; ++i ) {
+                int a = i >= bpp ? cur[i - bpp] & 0xff : 0;
+                out[off + i] = (byte) ( cur[i] - ( ( a + ( prev[i] & 0xff ) ) >> 1 ) );
+            }
+            break;
+        default:
+            for ( int i = 0; i < len; ++i ) {
+                int a = i >= bpp ? cur[i - bpp] & 0xff : 0;
+                int c = i >= bpp ? prev[i - bpp] & 0xff : 0;
+                out[off + i] = (byte) ( cur[i] - paeth( a, prev[i] & 0xff, c ) );
+            }
+        }
+    }
+
+    private static Filter chooseFilter( int bpp, byte[] prev, byte[] cur, int len ) {
+        long none = 0, sub = 0, up = 0, avg = 0, pae = 0;
+        for ( int i = 0; i < len; ++i ) {
+            int x = cur[i] & 0xff;
+            int a = i >= bpp ? cur[i - bpp] & 0xff : 0;
+            int b = prev[i] & 0xff;
+            int c = i >= bpp ? prev[i - bpp] & 0xff : 0;
+            none += Math.abs( (byte) x );
+            sub += Math.abs( (byte) ( x - a ) );
+            up += Math.abs( (byte) ( x - b ) );
+            avg += Math.abs( (byte) ( x - ( ( a + b ) >> 1 ) ) );
+            pae += Math.abs( (byte) ( x - paeth( a, b, c ) ) );
+        }
+        Filter best = Filter.NONE;
+        long min = none;
+        if ( sub < min ) {
+            min = sub;
+            best = Filter.SUB;
+        }
+        if ( up < min ) {
+            min = up;
+            best = Filter.UP;
+        }
+        if ( avg < min ) {
+            min = avg;
+            best = Filter.AVERAGE;
+        }
+        if ( pae < min ) {
+            best = Filter.PAETH;
+        }
+        return best;
+    }
+
+    private static int paeth( int a, int b, int c ) {
+        int p = a + b - c;
+        int pa = Math.abs( p - a );
+        int pb = Math.abs( p - b );
+        int pc = Math.abs( p - c );
+        if ( pa <= pb && pa <= pc ) {
+            return a;
+        }
+        return pb <= pc ? b : c;
+    }
+
+    private byte[] zlibHeader() {
+        int flevel = level < 2 ? 0 : level < 6 ? 1 : level == 6 ? 2 : 3;
+        int cmf = 0x78;
+        int flg = flevel << 6;
+        flg += 31 - ( ( cmf << 8 ) + flg ) % 31;
+        return new byte[] { (byte) cmf, (byte) flg };
+    }
+
+    private static byte[] adler32Bytes( long adler ) {
+        byte[] b = new byte[4];
+        putInt( b, 0, (int) adler );
+        return b;
+    }
+
+    /**
+     * Combines the adler32 checksums of two consecutive byte sequences (as zlib's adler32_combine).
+     */
+    static long combineAdler32( long adler1, long adler2, long len2 ) {
+        final long base = 65521;
+        long rem = len2 % base;
+        long sum1 = adler1 & 0xffff;
+        long sum2 = ( rem * sum1 ) % base;
+        sum1 += ( adler2 & 0xffff ) + base - 1;
+        sum2 += ( ( adler1 >> 16 ) & 0xffff ) + ( ( adler2 >> 16 ) & 0xffff ) + base - rem;
+        if ( sum1 >= base ) {
+            sum1 -= base;
+        }
+        if ( sum1 >= base ) {
+            sum1 -= base;
+        }
+        if ( sum2 >= ( base << 1 ) ) {
+            sum2 -= ( base << 1 );
+        }
+        if ( sum2 >= base ) {
+            sum2 -= base;
+        }
+        return sum1 | ( sum2 << 16 );
+    }
+
+    private static void putInt( byte[] b, int off, int v ) {
+        b[off] = (byte) ( v >>> 24 );
+        b[off + 1] = (byte) ( v >>> 16 );
+        b[off + 2] = (byte) ( v >>> 8 );
+        b[off + 3] = (byte) v;
+    }
+
+    private static void writeChunk( OutputStream out, byte[] type, byte[] data, int off, int len )
+                            throws IOException {
+        byte[] b = new byte[4];
+        putInt( b, 0, len );
+        out.write( b );
+        out.write( type );
+        out.write( data, off, len );
+        CRC32 crc = new CRC32();
+        crc.update( type );
+        crc.update( data, off, len );
+        putInt( b, 0, (int) crc.getValue() );
+        out.write( b );
+    }
+
+    /**
+     * Splits the zlib stream into IDAT chunks.
+     */
+    private static class IdatOutputStream extends OutputStream {
+
+        private final OutputStream out;
+
+        private final byte[] buf = new byte[IDAT_SIZE];
+
+        private int count;
+
+        IdatOutputStream( OutputStream out ) {
+            this.out = out;
+        }
+
+        @Override
+        public void write( int b )
+                                throws IOException {
+            if ( count == buf.length ) {
+                flush();
+            }
+            buf[count++] = (byte) b;
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len )
+                                throws IOException {
+            while ( len > 0 ) {
+                if ( count == buf.length ) {
+                    flush();
+                }
+                int n = Math.min( len, buf.length - count );
+                System.arraycopy( b, off, buf, count, n );
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush()
+                                throws IOException {
+            if ( count > 0 ) {
+                writeChunk( out, IDAT, buf, 0, count );
+                count = 0;
+            }
+        }
+    }
+
+    private static class Block {
+
+        final ByteArrayOutputStream data;
+
+        final long adler;
+
+        final long length;
+
+        Block( ByteArrayOutputStream data, long adler, long length ) {
+            this.data = data;
+            this.adler = adler;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Scratch buffers of a single encoding task.
+     */
+    private static class Buffers {
+
+        final Deflater deflater = new Deflater( Deflater.DEFAULT_COMPRESSION, true );
+
+        final byte[] out = new byte[1 << 15];
+
+        private byte[] prev = new byte[0], cur = new byte[0], filtered = new byte[0];
+
+        private int[] pixels = new int[0], indices = new int[0];
+
+        byte[] prev( int len ) {
+            if ( prev.length < len ) {
+                prev = new byte[len];
+            }
+            return prev;
+        }
+
+        byte[] cur( int len ) {
+            if ( cur.length < len ) {
+                cur = new byte[len];
+            }
+            return cur;
+        }
+
+        byte[] filtered( int len ) {
+            if ( filtered.length < len ) {
+                filtered = new byte[len];
+            }
+            return filtered;
+        }
+
+        int[] pixels( int len ) {
+            if ( pixels.length < len ) {
+                pixels = new int[len];
+            }
+            return pixels;
+        }
+
+        int[] indices( int len ) {
+            if ( indices.length < len ) {
+                indices = new int[len];
+            }
+            return indices;
+        }
+
+        void swap( byte[] prev, byte[] cur ) {
+            this.prev = prev;
+            this.cur = cur;
+        }
+    }
+
+    /**
+     * Provides the unfiltered bytes of the image rows.
+     */
+    private abstract static class Source {
+
+        int height, rowBytes, bytesPerPixel, bitDepth, colorType;
+
+        byte[] plte, trns;
+
+        abstract void fillRow( int y, byte[] row, Buffers buffers );
+
+        void init( int width, int height, int colorType, int bitDepth, int channels ) {
+            this.height = height;
+            this.colorType = colorType;
+            this.bitDepth = bitDepth;
+            this.rowBytes = ( width * bitDepth * channels + 7 ) / 8;
+            this.bytesPerPixel = Math.max( 1, bitDepth * channels / 8 );
+        }
+
+        void initPalette( int[] argb, int size, int width, int height ) {
+            int bits = size <= 2 ? 1 : size <= 4 ? 2 : size <= 16 ? 4 : 8;
+            init( width, height, COLOR_TYPE_PALETTE, bits, 1 );
+            plte = new byte[size * 3];
+            int lastTransparent = -1;
+            for ( int i = 0; i < size; ++i ) {
+                plte[i * 3] = (byte) ( argb[i] >> 16 );
+                plte[i * 3 + 1] = (byte) ( argb[i] >> 8 );
+                plte[i * 3 + 2] = (byte) argb[i];
+                if ( ( argb[i] >>> 24 ) != 0xff ) {
+                    lastTransparent = i;
+                }
+            }
+            if ( lastTransparent >= 0 ) {
+                trns = new byte[lastTransparent + 1];
+                for ( int i = 0; i <= lastTransparent; ++i ) {
+                    trns[i] = (byte) ( argb[i] >>> 24 );
+                }
+            }
+        }
+
+        static void packIndices( int[] indices, int width, int bitDepth, byte[] row ) {
+            if ( bitDepth == 8 ) {
+                for ( int x = 0; x < width; ++x ) {
+                    row[x] = (byte) indices[x];
+                }
+                return;
+            }
+            int perByte = 8 / bitDepth;
+            int len = ( width + perByte - 1 ) / perByte;
+            Arrays.fill( row, 0, len, (byte) 0 );
+            for ( int x = 0; x < width; ++x ) {
+                int shift = 8 - bitDepth * ( x % perByte + 1 );
+                row[x / perByte] |= indices[x] << shift;
+            }
+        }
+    }
+
+    /**
+     * Source for images with an {@link IndexColorModel}.
+     */
+    private static class IndexedSource extends Source {
+
+        private final Raster raster;
+
+        private final int width;
+
+        IndexedSource( BufferedImage img, IndexColorModel cm ) {
+            raster = img.getRaster();
+            width = img.getWidth();
+            int size = cm.getMapSize();
+            int[] argb = new int[size];
+            cm.getRGBs( argb );
+            initPalette( argb, size, width, img.getHeight() );
+        }
+
+        @Override
+        void fillRow( int y, byte[] row, Buffers buffers ) {
+            int[] indices = buffers.indices( width );
+            raster.getSamples( raster.getMinX(), raster.getMinY() + y, width, 1, 0, indices );
+            packIndices( indices, width, bitDepth, row );
+        }
+    }
+
+    /**
+     * Source for all other images, writes RGB(A) or (see {@link #toPalette()}) palette data.
+     */
+    private static class PixelSource extends Source {
+
+        private final BufferedImage img;
+
+        private final int width;
+
+        private final int[] data;
+
+        private final int offset, stride;
+
+        private final boolean opaque;
+
+        private boolean alpha;
+
+        private ColorTable colors;
+
+        PixelSource( BufferedImage img ) {
+            this.img = img;
+            this.width = img.getWidth();
+            int type = img.getType();
+            Raster raster = img.getRaster();
+            if ( ( type == TYPE_INT_ARGB || type == TYPE_INT_RGB )
+                 && raster.getSampleModel() instanceof SinglePixelPackedSampleModel && raster.getParent() == null ) {
+                SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) raster.getSampleModel();
+                data = ( (DataBufferInt) raster.getDataBuffer() ).getData();
+                offset = raster.getDataBuffer().getOffset();
+                stride = sm.getScanlineStride();
+            } else {
+                data = null;
+                offset = 0;
+                stride = 0;
+            }
+            opaque = type == TYPE_INT_RGB || !img.getColorModel().hasAlpha();
+            alpha = !opaque;
+            init( width, img.getHeight(), alpha ? COLOR_TYPE_RGBA : COLOR_TYPE_RGB, 8, alpha ? 4 : 3 );
+        }
+
+        /**
+         * Reads the ARGB values of a row, the returned array may be the backing array of the image.
+         * 
+         * @return offset of the row in the returned array
+         */
+        private int readRow( int y, int[][] result, Buffers buffers ) {
+            if ( data != null ) {
+                result[0] = data;
+                return offset + y * stride;
+            }
+            int[] row = buffers.pixels( width );
+            img.getRGB( 0, y, width, 1, row, 0, width );
+            result[0] = row;
+            return 0;
+        }
+
+        /**
+         * @return a palette source, if the image has at most 256 colors, <code>null</code> otherwise
+         */
+        Source toPalette() {
+            Buffers buffers = acquireBuffers();
+            try {
+                return toPalette( buffers );
+            } finally {
+                releaseBuffers( buffers );
+            }
+        }
+
+        private Source toPalette( Buffers buffers ) {
+            ColorTable table = new ColorTable();
+            boolean anyAlpha = false;
+            int[][] row = new int[1][];
+            for ( int y = 0; y < height; ++y ) {
+                int off = readRow( y, row, buffers );
+                int[] px = row[0];
+                for ( int x = off; x < off + width; ++x ) {
+                    int c = opaque ? px[x] | 0xff000000 : px[x];
+                    if ( ( c >>> 24 ) == 0 ) {
+                        // all fully transparent pixels look the same
+                        c = 0;
+                    }
+                    if ( table.add( c ) < 0 ) {
+                        if ( !anyAlpha && alpha ) {
+                            // image is not palette compatible, but may still be written without alpha channel
+                            checkAlpha( buffers );
+                        }
+                        return null;
+                    }
+                    anyAlpha |= ( c >>> 24 ) != 0xff;
+                }
+            }
+            if ( alpha && !anyAlpha ) {
+                alpha = false;
+                init( width, height, COLOR_TYPE_RGB, 8, 3 );
+            }
+            colors = table;
+            initPalette( table.colors, table.size, width, height );
+            return this;
+        }
+
+        private void checkAlpha( Buffers buffers ) {
+            int[][] row = new int[1][];
+            for ( int y = 0; y < height; ++y ) {
+                int off = readRow( y, row, buffers );
+                int[] px = row[0];
+                for ( int x = off; x < off + width; ++x ) {
+                    if ( ( px[x] >>> 24 ) != 0xff ) {
+                        return;
+                    }
+                }
+            }
+            alpha = false;
+            init( width, height, COLOR_TYPE_RGB, 8, 3 );
+        }
+
+        @Override
+        void fillRow( int y, byte[] row, Buffers buffers ) {
+            int[][] result = new int[1][];
+            int off = readRow( y, result, buffers );
+            int[] px = result[0];
+            if ( colors != null ) {
+                int[] indices = buffers.indices( width );
+                for ( int x = 0; x < width; ++x ) {
+                    int c = opaque ? px[off + x] | 0xff000000 : px[off + x];
+                    if ( ( c >>> 24 ) == 0 ) {
+                        c = 0;
+                    }
+                    indices[x] = colors.indexOf( c );
+                }
+                packIndices( indices, width, bitDepth, row );
+            } else if ( alpha ) {
+                for ( int x = 0, i = 0; x < width; ++x ) {
+                    int c = px[off + x];
+                    row[i++] = (byte) ( c >> 16 );
+                    row[i++] = (byte) ( c >> 8 );
+                    row[i++] = (byte) c;
+                    row[i++] = (byte) ( c >>> 24 );
+                }
+            } else {
+                for ( int x = 0, i = 0; x < width; ++x ) {
+                    int c = px[off + x];
+                    row[i++] = (byte) ( c >> 16 );
+                    row[i++] = (byte) ( c >> 8 );
+                    row[i++] = (byte) c;
+                }
+            }
+        }
+    }
+
+    /**
+     * Open addressing hash table of at most 256 ARGB values.
+     */
+    private static class ColorTable {
+
+        private static final int SLOTS = 1024;
+
+        private final int[] keys = new int[SLOTS];
+
+        private final short[] values = new short[SLOTS];
+
+        private final boolean[] used = new boolean[SLOTS];
+
+        final int[] colors = new int[256];
+
+        int size;
+
+        private int lastColor, lastIndex = -1;
+
+        /**
+         * @return index of the color, or -1 if the table is full
+         */
+        int add( int color ) {
+            if ( lastIndex >= 0 && color == lastColor ) {
+                return lastIndex;
+            }
+            int slot = slot( color );
+            if ( !used[slot] ) {
+                if ( size == 256 ) {
+                    return -1;
+                }
+                used[slot] = true;
+                keys[slot] = color;
+                values[slot] = (short) size;
+                colors[size++] = color;
+            }
+            lastColor = color;
+            lastIndex = values[slot];
+            return lastIndex;
+        }
+
+        /**
+         * Looks up a color without modifying the table, can be called concurrently once the table is complete.
+         */
+        int indexOf( int color ) {
+            return values[slot( color )];
+        }
+
+        private int slot( int color ) {
+            int h = color * 0x9E3779B9;
+            int slot = ( h >>> 22 );
+            while ( used[slot] && keys[slot] != color ) {
+                slot = ( slot + 1 ) & ( SLOTS - 1 );
+            }
+            return slot;
+        }
+    }
+
+}
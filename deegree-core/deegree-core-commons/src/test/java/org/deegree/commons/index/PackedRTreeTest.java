@@ -0,0 +1,193 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.deegree.commons.index.PackedRTree.LongVisitor;
+import org.deegree.commons.utils.Pair;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PackedRTree}: query results are compared to a brute force search.
+ * 
+ * @since 3.4
+ */
+public class PackedRTreeTest {
+
+    private static final int NUM_ENTRIES = 5000;
+
+    private final Random random = new Random( 4711 );
+
+    private float[] createEnvelopes( int num ) {
+        float[] envs = new float[num * 4];
+        for ( int i = 0; i < num; i++ ) {
+            float x = random.nextFloat() * 1000;
+            float y = random.nextFloat() * 1000;
+            envs[i * 4] = x;
+            envs[i * 4 + 1] = y;
+            envs[i * 4 + 2] = x + random.nextFloat() * 10;
+            envs[i * 4 + 3] = y + random.nextFloat() * 10;
+        }
+        return envs;
+    }
+
+    private static List<Long> bruteForce( float[] envs, float[] query ) {
+        List<Long> result = new ArrayList<Long>();
+        for ( int i = 0; i < envs.length / 4; i++ ) {
+            if ( envs[i * 4] <= query[2] && envs[i * 4 + 1] <= query[3] && query[0] <= envs[i * 4 + 2]
+                 && query[1] <= envs[i * 4 + 3] ) {
+                result.add( (long) i );
+            }
+        }
+        return result;
+    }
+
+    private void assertQueries( PackedRTree<Long> tree, float[] envs ) {
+        for ( int i = 0; i < 100; i++ ) {
+            float x = random.nextFloat() * 1000;
+            float y = random.nextFloat() * 1000;
+            float[] query = new float[] { x, y, x + random.nextFloat() * 100, y + random.nextFloat() * 100 };
+            List<Long> expected = bruteForce( envs, query );
+            List<Long> actual = tree.query( query );
+            Collections.sort( actual );
+            assertEquals( expected, actual );
+        }
+    }
+
+    @Test
+    public void testQueryPrimitive() {
+        float[] envs = createEnvelopes( NUM_ENTRIES );
+        long[] values = new long[NUM_ENTRIES];
+        for ( int i = 0; i < NUM_ENTRIES; i++ ) {
+            values[i] = i;
+        }
+        PackedRTree<Long> tree = PackedRTree.create( envs, values, NUM_ENTRIES, 8 );
+        assertEquals( NUM_ENTRIES, tree.size() );
+        assertQueries( tree, envs );
+    }
+
+    @Test
+    public void testInsertBulk() {
+        float[] envs = createEnvelopes( NUM_ENTRIES );
+        List<Pair<float[], Long>> list = new ArrayList<Pair<float[], Long>>();
+        for ( int i = 0; i < NUM_ENTRIES; i++ ) {
+            float[] env = new float[4];
+            System.arraycopy( envs, i * 4, env, 0, 4 );
+            list.add( new Pair<float[], Long>( env, (long) i ) );
+        }
+        list.add( new Pair<float[], Long>( null, -1l ) );
+        PackedRTree<Long> tree = new PackedRTree<Long>( 16 );
+        tree.insertBulk( list );
+        assertEquals( NUM_ENTRIES, tree.size() );
+        assertQueries( tree, envs );
+        assertEquals( NUM_ENTRIES, tree.query( null ).size() );
+    }
+
+    @Test
+    public void testSmallAndEmptyTrees() {
+        for ( int num = 0; num < 40; num++ ) {
+            float[] envs = createEnvelopes( num );
+            long[] values = new long[num];
+            for ( int i = 0; i < num; i++ ) {
+                values[i] = i;
+            }
+            PackedRTree<Long> tree = PackedRTree.create( envs, values, num, 4 );
+            assertEquals( num, tree.size() );
+            assertEquals( num, tree.query( new float[] { -1, -1, 1011, 1011 } ).size() );
+            assertQueries( tree, envs );
+        }
+        assertNull( new PackedRTree<Long>( 4 ).getEnvelope() );
+    }
+
+    @Test
+    public void testVisitorStops() {
+        float[] envs = createEnvelopes( NUM_ENTRIES );
+        PackedRTree<Long> tree = PackedRTree.create( envs, new long[NUM_ENTRIES], NUM_ENTRIES, 16 );
+        final int[] count = new int[1];
+        tree.query( null, new LongVisitor() {
+            @Override
+            public boolean visit( long value ) {
+                return ++count[0] < 10;
+            }
+        } );
+        assertEquals( 10, count[0] );
+    }
+
+    @Test
+    public void testWriteAndLoad()
+                            throws IOException {
+        float[] envs = createEnvelopes( NUM_ENTRIES );
+        PackedRTree.LongBuilder builder = new PackedRTree.LongBuilder();
+        for ( int i = 0; i < NUM_ENTRIES; i++ ) {
+            builder.add( envs[i * 4], envs[i * 4 + 1], envs[i * 4 + 2], envs[i * 4 + 3], i );
+        }
+        builder.setExtraFlag( true );
+        PackedRTree<Long> tree = builder.build( 32 );
+        File file = File.createTempFile( "packedrtree", ".rti" );
+        file.deleteOnExit();
+        tree.writeTreeToDisk( file.getAbsolutePath() );
+        PackedRTree<Long> loaded = PackedRTree.loadFromDisk( file.getAbsolutePath() );
+        assertTrue( loaded.getExtraFlag() );
+        assertEquals( NUM_ENTRIES, loaded.size() );
+        assertQueries( loaded, envs );
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadRTreeFile()
+                            throws IOException {
+        File file = File.createTempFile( "rtree", ".rti" );
+        file.deleteOnExit();
+        RTree<Long> tree = new RTree<Long>( new float[] { 0, 0, 10, 10 }, 16 );
+        tree.insert( new float[] { 1, 1, 2, 2 }, 1l );
+        tree.writeTreeToDisk( file.getAbsolutePath() );
+        PackedRTree.loadFromDisk( file.getAbsolutePath() );
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testInsertUnsupported() {
+        assertFalse( new PackedRTree<Long>( 4 ).insert( new float[] { 0, 0, 1, 1 }, 1l ) );
+    }
+}
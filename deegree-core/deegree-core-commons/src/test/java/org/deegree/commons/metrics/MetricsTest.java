@@ -0,0 +1,145 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for {@link Metrics}, {@link OperationMetrics}, {@link LatencyHistogram} and {@link StripedCounter}.
+ * 
+ * @since 3.4
+ */
+public class MetricsTest {
+
+    private static final long MILLIS = 1000000;
+
+    @After
+    public void clear() {
+        Metrics.clear();
+    }
+
+    @Test
+    public void testStripedCounterConcurrent()
+                            throws InterruptedException {
+        final StripedCounter counter = new StripedCounter();
+        Thread[] threads = new Thread[8];
+        for ( int i = 0; i < threads.length; i++ ) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for ( int j = 0; j < 10000; j++ ) {
+                        counter.increment();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for ( Thread t : threads ) {
+            t.join();
+        }
+        assertEquals( 80000, counter.sum() );
+        counter.reset();
+        assertEquals( 0, counter.sum() );
+    }
+
+    @Test
+    public void testHistogramBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record( 1 * MILLIS );
+        histogram.record( 3 * MILLIS );
+        histogram.record( 40 * MILLIS );
+        histogram.record( 120000 * MILLIS );
+        long[] counts = histogram.getBucketCounts();
+        assertEquals( LatencyHistogram.getBucketBounds().length + 1, counts.length );
+        assertEquals( 1, counts[0] );
+        assertEquals( 1, counts[2] );
+        assertEquals( 1, counts[5] );
+        assertEquals( 1, counts[counts.length - 1] );
+        assertEquals( 4, histogram.getCount() );
+        assertEquals( 120000 * MILLIS, histogram.getMax() );
+        assertEquals( 5.0, histogram.getPercentile( 0.5 ), 0.0 );
+        assertEquals( 120000.0, histogram.getPercentile( 1.0 ), 0.0 );
+    }
+
+    @Test
+    public void testOperationMetrics() {
+        OperationMetrics metrics = Metrics.request( "wms", "GetMap" );
+        assertSame( metrics, Metrics.request( "wms", "GetMap" ) );
+        long start = metrics.start();
+        assertEquals( 1, metrics.getInFlight() );
+        metrics.finish( start - 10 * MILLIS, 4 * MILLIS, 1000, false );
+        assertEquals( 0, metrics.getInFlight() );
+        assertEquals( 1, metrics.getCount() );
+        assertEquals( 0, metrics.getErrorCount() );
+        assertEquals( 1000, metrics.getBytesWritten() );
+        assertEquals( 4, metrics.getDataAccessMillis() );
+        assertTrue( metrics.getEncodingMillis() >= 6 );
+        metrics.finish( metrics.start(), 0, 0, true );
+        assertEquals( 1, metrics.getErrorCount() );
+    }
+
+    @Test
+    public void testDataAccessAccounting() {
+        Metrics.addDataAccessTime( 5 );
+        Metrics.beginRequest();
+        Metrics.addDataAccessTime( 5 );
+        Metrics.addDataAccessTime( 7 );
+        assertEquals( 12, Metrics.endRequest() );
+        assertEquals( 0, Metrics.endRequest() );
+    }
+
+    @Test
+    public void testWriteText()
+                            throws IOException {
+        OperationMetrics metrics = Metrics.layer( "roads \"main\"" );
+        metrics.finish( metrics.start(), 0, 0, false );
+        Metrics.request( "wfs", "GetFeature" );
+        StringWriter writer = new StringWriter();
+        Metrics.writeText( writer );
+        String text = writer.toString();
+        assertTrue( text.contains( "# TYPE deegree_layer_duration_seconds histogram" ) );
+        assertTrue( text.contains( "deegree_layer_duration_seconds_count{layer=\"roads \\\"main\\\"\"} 1" ) );
+        assertTrue( text.contains( "deegree_request_in_flight{service=\"wfs\",operation=\"GetFeature\"} 0" ) );
+        assertTrue( text.indexOf( "deegree_layer_" ) < text.indexOf( "deegree_request_" ) );
+    }
+}
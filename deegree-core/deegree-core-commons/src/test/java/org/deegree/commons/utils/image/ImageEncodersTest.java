@@ -0,0 +1,138 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.commons.utils.image;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.deegree.commons.utils.image.PngEncoder.Filter;
+import org.junit.Test;
+
+/**
+ * Tests for the configuration of the PNG encoder in {@link ImageEncoders}.
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class ImageEncodersTest {
+
+    @Test
+    public void testCreatePngEncoder() {
+        PngEncoder encoder = ImageEncoders.createPngEncoder( "9", "PAETH" );
+        assertEquals( 9, encoder.getLevel() );
+        assertEquals( Filter.PAETH, encoder.getFilter() );
+    }
+
+    @Test
+    public void testCreatePngEncoderDefaults() {
+        PngEncoder encoder = ImageEncoders.createPngEncoder( null, null );
+        assertEquals( ImageEncoders.DEFAULT_PNG_LEVEL, encoder.getLevel() );
+        assertEquals( Filter.NONE, encoder.getFilter() );
+    }
+
+    @Test
+    public void testCreatePngEncoderFilterIgnoresCase() {
+        assertEquals( Filter.ADAPTIVE, ImageEncoders.createPngEncoder( null, " adaptive " ).getFilter() );
+    }
+
+    @Test
+    public void testCreatePngEncoderInvalidValues() {
+        PngEncoder encoder = ImageEncoders.createPngEncoder( "x", "foo" );
+        assertEquals( ImageEncoders.DEFAULT_PNG_LEVEL, encoder.getLevel() );
+        assertEquals( Filter.NONE, encoder.getFilter() );
+        assertEquals( ImageEncoders.DEFAULT_PNG_LEVEL, ImageEncoders.createPngEncoder( "12", null ).getLevel() );
+        assertEquals( ImageEncoders.DEFAULT_PNG_LEVEL, ImageEncoders.createPngEncoder( "-1", null ).getLevel() );
+    }
+
+    @Test
+    public void testSetPngEncoder() {
+        PngEncoder old = ImageEncoders.getPngEncoder();
+        try {
+            PngEncoder encoder = ImageEncoders.createPngEncoder( "1", "UP" );
+            ImageEncoders.setPngEncoder( encoder );
+            assertEquals( encoder, ImageEncoders.getPngEncoder() );
+        } finally {
+            ImageEncoders.setPngEncoder( old );
+        }
+    }
+
+    @Test
+    public void testPaletteIsOptIn()
+                            throws IOException {
+        BufferedImage img = new BufferedImage( 20, 10, TYPE_INT_RGB );
+        img.setRGB( 3, 4, 0xff0000 );
+        assertFalse( encode( img, "image/png", ImageEncoders.createPngEncoder( null, null ) ) );
+        assertTrue( encode( img, "image/png", ImageEncoders.createPngEncoder( null, null, true ) ) );
+    }
+
+    @Test
+    public void testWriteIndexedPngWithTrueColorEncoder()
+                            throws IOException {
+        BufferedImage img = new BufferedImage( 20, 10, TYPE_INT_RGB );
+        img.setRGB( 3, 4, 0xff0000 );
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        assertTrue( ImageEncoders.writeIndexedPng( img, bos, ImageEncoders.createPngEncoder( null, null ) ) );
+        BufferedImage read = ImageIO.read( new ByteArrayInputStream( bos.toByteArray() ) );
+        assertTrue( read.getColorModel() instanceof IndexColorModel );
+    }
+
+    private static boolean encode( BufferedImage img, String format, PngEncoder encoder )
+                            throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        assertTrue( ImageEncoders.write( img, format, bos, encoder ) );
+        BufferedImage read = ImageIO.read( new ByteArrayInputStream( bos.toByteArray() ) );
+        assertEquals( 0xffff0000, read.getRGB( 3, 4 ) );
+        return read.getColorModel() instanceof IndexColorModel;
+    }
+
+}
@@ -0,0 +1,243 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.commons.utils.image;
+
+import static java.awt.image.BufferedImage.TYPE_BYTE_INDEXED;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Adler32;
+
+import javax.imageio.ImageIO;
+
+import org.deegree.commons.utils.image.PngEncoder.Filter;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PngEncoder}, the encoded images are decoded with ImageIO and compared pixel by pixel.
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class PngEncoderTest {
+
+    private static BufferedImage noise( int width, int height, int type ) {
+        BufferedImage img = new BufferedImage( width, height, type );
+        Random rnd = new Random( 42 );
+        for ( int y = 0; y < height; ++y ) {
+            for ( int x = 0; x < width; ++x ) {
+                img.setRGB( x, y, rnd.nextInt() );
+            }
+        }
+        return img;
+    }
+
+    private static BufferedImage map( int width, int height ) {
+        BufferedImage img = new BufferedImage( width, height, TYPE_INT_ARGB );
+        Graphics2D g = img.createGraphics();
+        g.setColor( Color.RED );
+        g.fillRect( 10, 10, width / 2, height / 3 );
+        g.setColor( new Color( 0, 0, 255, 128 ) );
+        g.fillRect( width / 4, height / 4, width / 2, height / 2 );
+        g.dispose();
+        return img;
+    }
+
+    private static BufferedImage roundTrip( PngEncoder encoder, BufferedImage img )
+                            throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        encoder.encode( img, bos );
+        return ImageIO.read( new ByteArrayInputStream( bos.toByteArray() ) );
+    }
+
+    private static void assertSamePixels( BufferedImage expected, BufferedImage actual ) {
+        assertEquals( expected.getWidth(), actual.getWidth() );
+        assertEquals( expected.getHeight(), actual.getHeight() );
+        for ( int y = 0; y < expected.getHeight(); ++y ) {
+            for ( int x = 0; x < expected.getWidth(); ++x ) {
+                int e = expected.getRGB( x, y );
+                int a = actual.getRGB( x, y );
+                if ( ( e >>> 24 ) == 0 ) {
+                    assertEquals( "Alpha at " + x + "," + y, 0, a >>> 24 );
+                } else {
+                    assertEquals( "Pixel at " + x + "," + y, e, a );
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTrueColorAllFilters()
+                            throws IOException {
+        BufferedImage argb = noise( 97, 61, TYPE_INT_ARGB );
+        BufferedImage rgb = noise( 97, 61, TYPE_INT_RGB );
+        for ( Filter filter : Filter.values() ) {
+            PngEncoder encoder = new PngEncoder( 6, filter, true, false );
+            assertSamePixels( argb, roundTrip( encoder, argb ) );
+            assertSamePixels( rgb, roundTrip( encoder, rgb ) );
+        }
+    }
+
+    @Test
+    public void testOpaqueArgbIsWrittenWithoutAlpha()
+                            throws IOException {
+        BufferedImage img = noise( 50, 50, TYPE_INT_RGB );
+        BufferedImage argb = new BufferedImage( 50, 50, TYPE_INT_ARGB );
+        argb.getGraphics().drawImage( img, 0, 0, null );
+        BufferedImage read = roundTrip( new PngEncoder( 1, Filter.PAETH, true, false ), argb );
+        assertFalse( read.getColorModel().hasAlpha() );
+        assertSamePixels( argb, read );
+    }
+
+    @Test
+    public void testPalette()
+                            throws IOException {
+        BufferedImage img = map( 256, 256 );
+        PngEncoder encoder = new PngEncoder( 6, Filter.ADAPTIVE, true, false );
+        BufferedImage read = roundTrip( encoder, img );
+        assertTrue( read.getColorModel() instanceof IndexColorModel );
+        assertSamePixels( img, read );
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        assertTrue( encoder.encodeIndexed( img, bos ) );
+        bos = new ByteArrayOutputStream();
+        assertFalse( encoder.encodeIndexed( noise( 64, 64, TYPE_INT_RGB ), bos ) );
+        assertEquals( 0, bos.size() );
+    }
+
+    @Test
+    public void testPaletteBitDepths()
+                            throws IOException {
+        for ( int colors : new int[] { 2, 3, 16, 17 } ) {
+            BufferedImage img = new BufferedImage( 33, 7, TYPE_INT_RGB );
+            for ( int x = 0; x < 33; ++x ) {
+                for ( int y = 0; y < 7; ++y ) {
+                    img.setRGB( x, y, ( ( x + y ) % colors ) * 0x0a0b0c );
+                }
+            }
+            assertSamePixels( img, roundTrip( new PngEncoder( 9, Filter.NONE, true, false ), img ) );
+        }
+    }
+
+    @Test
+    public void testIndexColorModel()
+                            throws IOException {
+        BufferedImage img = noise( 40, 30, TYPE_BYTE_INDEXED );
+        assertSamePixels( img, roundTrip( new PngEncoder( 6, Filter.NONE, true, false ), img ) );
+    }
+
+    @Test
+    public void testParallel()
+                            throws IOException {
+        BufferedImage img = noise( 1024, 700, TYPE_INT_ARGB );
+        ExecutorService executor = Executors.newFixedThreadPool( 3 );
+        PngEncoder.setExecutor( executor );
+        try {
+            assertSamePixels( img, roundTrip( new PngEncoder( 1, Filter.SUB, true, true ), img ) );
+            assertSamePixels( img, roundTrip( new PngEncoder( 6, Filter.ADAPTIVE, false, true ), img ) );
+        } finally {
+            PngEncoder.setExecutor( null );
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelWithoutExecutor()
+                            throws IOException {
+        BufferedImage img = noise( 1024, 700, TYPE_INT_RGB );
+        assertSamePixels( img, roundTrip( new PngEncoder( 6, Filter.UP, false, true ), img ) );
+    }
+
+    @Test
+    public void testParallelExecutorShutDown()
+                            throws IOException {
+        BufferedImage img = noise( 1024, 700, TYPE_INT_RGB );
+        ExecutorService executor = Executors.newFixedThreadPool( 2 );
+        executor.shutdown();
+        PngEncoder.setExecutor( executor );
+        try {
+            // falls back to deflating on the calling thread
+            assertSamePixels( img, roundTrip( new PngEncoder( 6, Filter.UP, false, true ), img ) );
+        } finally {
+            PngEncoder.setExecutor( null );
+        }
+    }
+
+    @Test
+    public void testReleaseBuffers()
+                            throws IOException {
+        BufferedImage img = map( 64, 64 );
+        PngEncoder encoder = new PngEncoder( 6, Filter.NONE, false, false );
+        roundTrip( encoder, img );
+        PngEncoder.releaseBuffers();
+        assertSamePixels( img, roundTrip( encoder, img ) );
+    }
+
+    @Test
+    public void testCombineAdler32() {
+        byte[] data = new byte[100000];
+        new Random( 1 ).nextBytes( data );
+        Adler32 all = new Adler32();
+        all.update( data );
+        Adler32 first = new Adler32();
+        first.update( data, 0, 40000 );
+        Adler32 second = new Adler32();
+        second.update( data, 40000, 60000 );
+        assertEquals( all.getValue(), PngEncoder.combineAdler32( first.getValue(), second.getValue(), 60000 ) );
+    }
+
+}
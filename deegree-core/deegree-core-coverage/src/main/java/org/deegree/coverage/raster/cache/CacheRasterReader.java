@@ -87,9 +87,10 @@ public class CacheRasterReader extends GridFileReader {
 
     private GridWriter gridWriter;
 
-    private long lastReadAccess;
+    private volatile long lastReadAccess;
 
-    private long inMemorySize;
+    // only modified while holding the LOCK
+    private volatile long inMemorySize;
 
     private RasterCache cacheManager;
 
@@ -240,6 +241,8 @@ public class CacheRasterReader extends GridFileReader {
                             LOG.error( "Could not create tile from buffer because: " + e.getLocalizedMessage(), e );
                         }
                         this.inMemorySize += entry.setBuffer( entryBuffer );
+                        // the reader is not cached yet, its memory is accounted for when it is added to the cache
+                        RasterCache.releaseMemory( entryBuffer.capacity() );
                     }
                 }
             }
@@ -459,6 +462,16 @@ public class CacheRasterReader extends GridFileReader {
         return inMemorySize;
     }
 
+    /**
+     * Adds memory to the memory of this reader, the LOCK must be held.
+     * 
+     * @param memory
+     *            the amount of memory this reader holds additionally
+     */
+    void addMemory( long memory ) {
+        inMemorySize += memory;
+    }
+
     /**
      * @return the size of the cache file on disk.
      */
@@ -491,7 +504,7 @@ public class CacheRasterReader extends GridFileReader {
             result = writeCache( true );
         } else {
             if ( memoryBuffersAsWell ) {
-                clear( false );
+                result = clear( false );
             }
         }
         return result;
@@ -546,47 +559,87 @@ public class CacheRasterReader extends GridFileReader {
 //    }
 
     /**
-     * Get a tile buffer from the cache, it will be read only.
+     * Get a tile buffer from the cache, it will be read only. Tiles which are already in the cache file are memory
+     * mapped (if enabled), all other tiles are read into a heap buffer.
      * 
      * @param column
      * @param row
      */
     private ByteBuffer getTileBuffer( int column, int row ) {
-        ByteBuffer result = null;
         TileEntry entry = getEntry( column, row );
-        if ( entry != null ) {
+        if ( entry == null ) {
+            return null;
+        }
+        ByteBuffer entryBuffer = null;
+        boolean onFile = false;
+        synchronized ( LOCK ) {
+            entryBuffer = entry.getBuffer();
+            onFile = entry.isOnFile();
+        }
+        if ( entryBuffer != null ) {
+            RasterCache.recordMemoryHit();
+            return entryBuffer;
+        }
 
-            ByteBuffer entryBuffer = null;
-            synchronized ( LOCK ) {
-                entryBuffer = entry.getBuffer();
-            }
-            if ( entryBuffer == null ) {
-                // allocation of the buffer should not be in the synchronized block, it may cause a dead lock with the
-                // raster cache.
-                entryBuffer = allocateTileBuffer( false, true );
-            }
+        // reserving or allocating the memory should not be in the synchronized block, it may cause a dead lock with
+        // the raster cache.
+        boolean map = onFile && RasterCache.mapCacheFiles();
+        long reserved = 0;
+        ByteBuffer heapBuffer = null;
+        if ( map ) {
+            reserved = getTileBufferSize();
+            RasterCache.freeMemory( reserved );
+        } else {
+            heapBuffer = allocateTileBuffer( false, true );
+            reserved = heapBuffer.capacity();
+        }
 
+        boolean held = false;
+        try {
             synchronized ( LOCK ) {
-                if ( !entry.isInMemory() ) {
-                    // check the cache file
-                    if ( entry.isOnFile() ) {
-                        try {
-                            entryBuffer = super.getTileData( column, row, entryBuffer );
-                        } catch ( IOException e ) {
-                            // could not read from the tile, so get rid of the tilesOnFile
-                            entry.setTileOnFile( false );
+                if ( entry.isInMemory() ) {
+                    // some other thread loaded the tile in the meantime
+                    RasterCache.recordMemoryHit();
+                    return entry.getBuffer();
+                }
+                ByteBuffer data = null;
+                // check the cache file
+                if ( entry.isOnFile() ) {
+                    try {
+                        if ( map ) {
+                            data = mapTile( column, row );
                         }
+                        if ( data == null ) {
+                            // the memory was already reserved
+                            heapBuffer = heapBuffer == null ? allocateTileBuffer( false, false ) : heapBuffer;
+                            data = super.getTileData( column, row, heapBuffer );
+                        }
+                        RasterCache.recordFileHit();
+                    } catch ( IOException e ) {
+                        // could not read from the tile, so get rid of the tilesOnFile
+                        entry.setTileOnFile( false );
                     }
-                    if ( !entry.isOnFile() ) {
-                        // this can happen if the file could not be read from the cache file because of an IOException.
-                        readTileFromReader( entry, entryBuffer );
-                    }
-                    this.inMemorySize += entry.setBuffer( entryBuffer );
                 }
+                if ( !entry.isOnFile() ) {
+                    // this can happen if the file could not be read from the cache file because of an IOException.
+                    heapBuffer = heapBuffer == null ? allocateTileBuffer( false, false ) : heapBuffer;
+                    data = readTileFromReader( entry, heapBuffer );
+                    RasterCache.recordMiss();
+                }
+                RasterCache.holdReservedMemory( this, entry.setBuffer( data ), reserved );
+                held = true;
+                return entry.getBuffer();
+            }
+        } finally {
+            if ( !held ) {
+                // the tile was loaded by another thread or could not be loaded
+                RasterCache.releaseMemory( reserved );
             }
-            result = entryBuffer.asReadOnlyBuffer();
         }
-        return result;
+    }
+
+    private long getTileBufferSize() {
+        return (long) sampleSize * getTileRasterHeight() * getTileRasterWidth();
     }
 
     /**
@@ -613,7 +666,6 @@ public class CacheRasterReader extends GridFileReader {
                         // if the result is the same instance, create a copy
                         LOG.debug( "The rectangle did not fit, creating copy." );
                         src = ByteBuffer.allocate( tileBuffer.capacity() );
-                        this.inMemorySize += src.capacity();
                         tileBuffer.clear();
                         src.put( tileBuffer );
                     }
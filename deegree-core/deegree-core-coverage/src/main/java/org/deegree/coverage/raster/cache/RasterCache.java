@@ -41,14 +41,19 @@ package org.deegree.coverage.raster.cache;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import java.io.File;
-import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.SortedSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.deegree.commons.utils.StringUtils;
 import org.deegree.coverage.raster.SimpleRaster;
@@ -65,7 +70,21 @@ import org.slf4j.Logger;
  * {@link #freeMemory(long)} which in turn keeps track of reserved memory.
  * <p>
  * The RasterCache memory size and the amount of disk space can be set by adding the keys
- * {@link #DEF_RASTER_CACHE_MEM_SIZE} and {@link #DEF_RASTER_CACHE_DISK_SIZE} to the JVM.
+ * {@link #DEF_RASTER_CACHE_MEM_SIZE} and {@link #DEF_RASTER_CACHE_DISK_SIZE} to the JVM. Tiles which were already
+ * written to a cache file are memory mapped from that file instead of being copied onto the heap, this can be switched
+ * off with the {@link #DEF_RASTER_CACHE_MMAP} key. Mapped tiles are accounted against the memory budget as well.
+ * </p>
+ * <p>
+ * The readers are kept in lock striped segments, the memory and disk budgets are tracked with atomic counters, so
+ * reading from cached rasters does not need any global lock. If memory has to be freed, the least recently used
+ * readers of a random sample are disposed first (approximate LRU, the eviction is exact as long as there are no more
+ * than {@link #SAMPLE_SIZE} readers). Only one thread evicts at a time, other threads will not wait for it.
+ * </p>
+ * <p>
+ * The used memory is the memory held by the readers plus the memory reserved by {@link #freeMemory(long)} which is
+ * not (yet) held by a reader. Occasionally, the used memory and disk space are recounted from the readers. Reserving
+ * memory and handing it over to a reader is fenced against the recount, so concurrent reservations are not lost.
+ * </p>
  * 
  * @author <a href="mailto:bezema@lat-lon.de">Rutger Bezema</a>
  * @author last edited by: $Author$
@@ -87,83 +106,116 @@ public class RasterCache {
     /** A key which can be given to the JVM to define the amount of disk memory used for caching (e.g. 1024m). */
     public static final String DEF_RASTER_CACHE_DISK_SIZE = "deegree.raster.cache.disksize";
 
-    private static long maxCacheMem;
-
-    private static long maxCacheDisk;
+    /**
+     * A key which can be given to the JVM to switch off the memory mapping of cache files (<code>false</code>), default
+     * is <code>true</code>.
+     */
+    public static final String DEF_RASTER_CACHE_MMAP = "deegree.raster.cache.mmap";
 
     /**
      * Standard name for a deegree cache file.
      */
     public static final String FILE_EXTENSION = ".d3rcache";
 
-    private static final Object MEM_LOCK = new Object();
+    /** The number of readers which are considered for each eviction step. */
+    static final int SAMPLE_SIZE = 16;
+
+    private static final int SEGMENTS = 16;
 
-    private static final Object CURRENT_CACHE_LOCK = new Object();
+    private static volatile long maxCacheMem;
 
-    private final static Map<String, RasterCache> currentCaches = new ConcurrentHashMap<String, RasterCache>();
+    private static volatile long maxCacheDisk;
+
+    private static volatile boolean mapCacheFiles;
+
+    private final static ConcurrentMap<String, RasterCache> currentCaches = new ConcurrentHashMap<String, RasterCache>();
 
     private final File cacheDir;
 
-    private static long currentlyUsedMemory = 0;
+    private static final AtomicLong currentlyUsedMemory = new AtomicLong();
+
+    private static final AtomicLong currentlyUsedDisk = new AtomicLong();
+
+    // reserved with freeMemory, but not yet held by a reader
+    private static final AtomicLong reservedMemory = new AtomicLong();
+
+    private static final AtomicLong memoryHits = new AtomicLong();
 
-    private static long currentlyUsedDisk = 0;
+    private static final AtomicLong fileHits = new AtomicLong();
+
+    private static final AtomicLong misses = new AtomicLong();
+
+    private static final AtomicLong evictions = new AtomicLong();
+
+    private static final AtomicLong deletions = new AtomicLong();
+
+    private static final ReentrantLock EVICTION_LOCK = new ReentrantLock();
+
+    // read lock: updates of the counters which go along with reader memory changes, write lock: recounting
+    private static final ReentrantReadWriteLock ACCOUNTING_LOCK = new ReentrantReadWriteLock();
+
+    private static final Random RANDOM = new Random();
+
+    private final static Segment[] cache = new Segment[SEGMENTS];
 
-    private final static ConcurrentSkipListSet<CacheRasterReader> cache = new ConcurrentSkipListSet<CacheRasterReader>(
-                                                                                                                        new CacheComparator() );
     static {
+        for ( int i = 0; i < SEGMENTS; ++i ) {
+            cache[i] = new Segment();
+        }
         evaluateProperties();
     }
 
     /**
-     * (Re-)Evaluate the {@link RasterCache#DEF_RASTER_CACHE_DISK_SIZE} and {@link #DEF_RASTER_CACHE_MEM_SIZE}
-     * properties in the JVM.
+     * (Re-)Evaluate the {@link RasterCache#DEF_RASTER_CACHE_DISK_SIZE}, {@link #DEF_RASTER_CACHE_MEM_SIZE} and
+     * {@link #DEF_RASTER_CACHE_MMAP} properties in the JVM.
      */
-    private static void evaluateProperties() {
-        synchronized ( MEM_LOCK ) {
-            String cacheSize = System.getProperty( DEF_RASTER_CACHE_MEM_SIZE );
-            long mm = StringUtils.parseByteSize( cacheSize );
-            if ( mm == 0 ) {
-                if ( StringUtils.isSet( cacheSize ) ) {
-                    LOG.warn( "Ignoring supplied property: {} because it could not be parsed. Using 0.5 of the total memory for raster caching.",
-                              DEF_RASTER_CACHE_MEM_SIZE );
-                }
-                mm = Runtime.getRuntime().maxMemory();
-                if ( mm == Long.MAX_VALUE ) {
-                    mm = Math.round( Runtime.getRuntime().totalMemory() * 0.5 );
-                } else {
-                    mm *= 0.5;
-                }
-            } else {
-                LOG.info( "Using {} of memory for raster caching (because it was set with the {} property).",
-                          ( mm / ( 1024 * 1024 ) ) + "Mb", DEF_RASTER_CACHE_MEM_SIZE );
+    private static synchronized void evaluateProperties() {
+        String cacheSize = System.getProperty( DEF_RASTER_CACHE_MEM_SIZE );
+        long mm = StringUtils.parseByteSize( cacheSize );
+        if ( mm == 0 ) {
+            if ( StringUtils.isSet( cacheSize ) ) {
+                LOG.warn( "Ignoring supplied property: {} because it could not be parsed. Using 0.5 of the total memory for raster caching.",
+                          DEF_RASTER_CACHE_MEM_SIZE );
             }
-            maxCacheMem = mm;
-            String t = System.getProperty( DEF_RASTER_CACHE_DISK_SIZE );
-            mm = StringUtils.parseByteSize( t );
-            if ( mm == 0 ) {
-                if ( StringUtils.isSet( t ) ) {
-                    LOG.warn( "Ignoring supplied property: {} because it could not be parsed. Using 20G of disk space for raster caching.",
-                              DEF_RASTER_CACHE_MEM_SIZE );
-                }
-                mm = 20 * ( 1024l * 1024 * 1024 );
+            mm = Runtime.getRuntime().maxMemory();
+            if ( mm == Long.MAX_VALUE ) {
+                mm = Math.round( Runtime.getRuntime().totalMemory() * 0.5 );
             } else {
-                LOG.info( "Using {} of disk space for raster caching (because it was set with the {} property).",
-                          ( mm / ( 1024 * 1024 ) ) + "Mb", DEF_RASTER_CACHE_DISK_SIZE );
+                mm *= 0.5;
+            }
+        } else {
+            LOG.info( "Using {} of memory for raster caching (because it was set with the {} property).",
+                      ( mm / ( 1024 * 1024 ) ) + "Mb", DEF_RASTER_CACHE_MEM_SIZE );
+        }
+        maxCacheMem = mm;
+        String t = System.getProperty( DEF_RASTER_CACHE_DISK_SIZE );
+        mm = StringUtils.parseByteSize( t );
+        if ( mm == 0 ) {
+            if ( StringUtils.isSet( t ) ) {
+                LOG.warn( "Ignoring supplied property: {} because it could not be parsed. Using 20G of disk space for raster caching.",
+                          DEF_RASTER_CACHE_MEM_SIZE );
             }
-            maxCacheDisk = mm;
+            mm = 20 * ( 1024l * 1024 * 1024 );
+        } else {
+            LOG.info( "Using {} of disk space for raster caching (because it was set with the {} property).",
+                      ( mm / ( 1024 * 1024 ) ) + "Mb", DEF_RASTER_CACHE_DISK_SIZE );
+        }
+        maxCacheDisk = mm;
+        mapCacheFiles = !"false".equalsIgnoreCase( System.getProperty( DEF_RASTER_CACHE_MMAP ) );
+        if ( !mapCacheFiles ) {
+            LOG.info( "Memory mapping of raster cache files was switched off with the {} property.",
+                      DEF_RASTER_CACHE_MMAP );
         }
     }
 
-    // private final static TreeSet<CacheRasterReader> cache = new TreeSet<CacheRasterReader>( new CacheComparator() );
-
     private RasterCache( File cacheDir ) {
         this.cacheDir = cacheDir;
     }
 
     /**
      * Clear the cache of all readers (and optionally delete all cache files) and reevaluate the disk and memory size (
-     * {@link #DEF_RASTER_CACHE_DISK_SIZE}, {@link #DEF_RASTER_CACHE_MEM_SIZE}) properties from the system. This method
-     * is to be called with care.
+     * {@link #DEF_RASTER_CACHE_DISK_SIZE}, {@link #DEF_RASTER_CACHE_MEM_SIZE}) properties from the system. The cache
+     * statistics are reset as well. This method is to be called with care.
      * 
      * @param deleteCachedFile
      *            true if all cached files should be deleted.
@@ -171,6 +223,11 @@ public class RasterCache {
     public static void reset( boolean deleteCachedFile ) {
         clear( deleteCachedFile );
         evaluateProperties();
+        memoryHits.set( 0 );
+        fileHits.set( 0 );
+        misses.set( 0 );
+        evictions.set( 0 );
+        deletions.set( 0 );
     }
 
     /**
@@ -203,13 +260,13 @@ public class RasterCache {
                 cacheDir = directory;
             }
         }
-        synchronized ( CURRENT_CACHE_LOCK ) {
-            if ( !currentCaches.containsKey( cacheDir.getAbsolutePath() ) ) {
-                currentCaches.put( cacheDir.getAbsolutePath(), new RasterCache( cacheDir ) );
-            }
+        String key = cacheDir.getAbsolutePath();
+        RasterCache result = currentCaches.get( key );
+        if ( result == null ) {
+            currentCaches.putIfAbsent( key, new RasterCache( cacheDir ) );
+            result = currentCaches.get( key );
         }
-
-        return currentCaches.get( cacheDir.getAbsolutePath() );
+        return result;
     }
 
     /**
@@ -256,21 +313,62 @@ public class RasterCache {
      * @return the currentlyUsedMemory
      */
     public static final long getCurrentlyUsedMemory() {
-        return currentlyUsedMemory;
+        return currentlyUsedMemory.get();
     }
 
     /**
      * @return the currentlyUsedDisk
      */
     public static final long getCurrentlyUsedDisk() {
-        return currentlyUsedDisk;
+        return currentlyUsedDisk.get();
+    }
+
+    /**
+     * @return the number of tile reads which were answered from memory (heap or mapped cache file) since the last
+     *         {@link #reset(boolean)}.
+     */
+    public static final long getMemoryHits() {
+        return memoryHits.get();
+    }
+
+    /**
+     * @return the number of tile reads which had to be loaded from a cache file since the last {@link #reset(boolean)}.
+     */
+    public static final long getFileHits() {
+        return fileHits.get();
+    }
+
+    /**
+     * @return the number of tile reads which had to be loaded from the original raster since the last
+     *         {@link #reset(boolean)}.
+     */
+    public static final long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of times a reader was forced to give up its memory since the last {@link #reset(boolean)}.
+     */
+    public static final long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the number of cache files deleted to stay within the disk budget since the last {@link #reset(boolean)}.
+     */
+    public static final long getCacheFileDeletions() {
+        return deletions.get();
     }
 
     /**
      * @return the number of cached readers.
      */
     public static int size() {
-        return cache.size();
+        int result = 0;
+        for ( Segment s : cache ) {
+            result += s.size();
+        }
+        return result;
     }
 
     /**
@@ -282,34 +380,37 @@ public class RasterCache {
      * 
      */
     public static void clear( boolean deleteCacheFiles ) {
-        synchronized ( MEM_LOCK ) {
-            Iterator<CacheRasterReader> it = cache.iterator();
-            while ( it != null && it.hasNext() ) {
-                CacheRasterReader next = it.next();
-                if ( next != null ) {
+        EVICTION_LOCK.lock();
+        try {
+            for ( Segment s : cache ) {
+                for ( CacheRasterReader next : s.removeAll() ) {
                     next.clear( deleteCacheFiles );
                 }
             }
-            cache.clear();
-            currentlyUsedMemory = 0;
-            currentlyUsedDisk = 0;
-        }
-        synchronized ( CURRENT_CACHE_LOCK ) {
-            if ( deleteCacheFiles && currentCaches.values() != null ) {
-                for ( RasterCache rc : currentCaches.values() ) {
-                    File f = rc.cacheDir;
-                    if ( f != null && f.exists() && !DEFAULT_CACHE_DIR.equals( f ) ) {
-                        if ( f.isDirectory() ) {
-                            try {
-                                boolean deleted = f.delete();
-                                if ( !deleted ) {
-                                    LOG.warn( "Could not delete raster cache dir: " + f.getAbsolutePath()
-                                              + " please delete manually." );
-                                }
-                            } catch ( Exception e ) {
+            ACCOUNTING_LOCK.writeLock().lock();
+            try {
+                currentlyUsedMemory.set( reservedMemory.get() );
+                currentlyUsedDisk.set( 0 );
+            } finally {
+                ACCOUNTING_LOCK.writeLock().unlock();
+            }
+        } finally {
+            EVICTION_LOCK.unlock();
+        }
+        if ( deleteCacheFiles ) {
+            for ( RasterCache rc : currentCaches.values() ) {
+                File f = rc.cacheDir;
+                if ( f != null && f.exists() && !DEFAULT_CACHE_DIR.equals( f ) ) {
+                    if ( f.isDirectory() ) {
+                        try {
+                            boolean deleted = f.delete();
+                            if ( !deleted ) {
                                 LOG.warn( "Could not delete raster cache dir: " + f.getAbsolutePath()
                                           + " please delete manually." );
                             }
+                        } catch ( Exception e ) {
+                            LOG.warn( "Could not delete raster cache dir: " + f.getAbsolutePath()
+                                      + " please delete manually." );
                         }
                     }
                 }
@@ -321,14 +422,8 @@ public class RasterCache {
      * Writes all current caches to their cache files, but leaves the in memory cached rasters alone.
      */
     public static void flush() {
-        synchronized ( MEM_LOCK ) {
-            Iterator<CacheRasterReader> it = cache.iterator();
-            while ( it != null && it.hasNext() ) {
-                CacheRasterReader next = it.next();
-                if ( next != null ) {
-                    next.flush();
-                }
-            }
+        for ( CacheRasterReader next : readers() ) {
+            next.flush();
         }
     }
 
@@ -336,21 +431,14 @@ public class RasterCache {
      * Iterates over all current cache directories and calls dispose on their cache files.
      */
     public static void dispose() {
-        synchronized ( MEM_LOCK ) {
-            Iterator<CacheRasterReader> it = cache.iterator();
-            long allocatedMem = 0;
-            int i = 1;
-            while ( it != null && it.hasNext() ) {
-                CacheRasterReader next = it.next();
-                if ( next != null ) {
-                    LOG.debug( "{}: Disposing for file: {}", i++, next.file() );
-                    // currentlyUsedMemory -= next.dispose( false );
-                    allocatedMem += next.dispose( false );
-                }
-            }
-            LOG.debug( "Disposing allocated {} MB on the heap.",
-                       ( Math.round( ( allocatedMem / ( 1024 * 1024d ) ) * 100d ) / 100d ) );
+        long allocatedMem = 0;
+        int i = 1;
+        for ( CacheRasterReader next : readers() ) {
+            LOG.debug( "{}: Disposing for file: {}", i++, next.file() );
+            allocatedMem += next.dispose( false );
         }
+        LOG.debug( "Disposing allocated {} MB on the heap.",
+                   ( Math.round( ( allocatedMem / ( 1024 * 1024d ) ) * 100d ) / 100d ) );
     }
 
     /**
@@ -358,113 +446,268 @@ public class RasterCache {
      * running process. Note this method does not actually write the cache files, it merely signals the
      * {@link CacheRasterReader}s to write their data to file if they have a file to write to. It may well be that the
      * required memory can not be freed.
+     * <p>
+     * The required memory is reserved until it is handed over to a reader with
+     * {@link #holdReservedMemory(CacheRasterReader, long, long)} or given back with {@link #releaseMemory(long)}.
+     * </p>
      * 
      * @param requiredMemory
      *            some process may need.
      * @return the amount of currently used cache memory, which is only an approximation.
      */
     public static long freeMemory( long requiredMemory ) {
-        synchronized ( MEM_LOCK ) {
-            LOG.debug( "Currently used cache memory:{} MB, totalCacheMemory:{} MB", currentlyUsedMemory
-                                                                                    / ( 1024d * 1024 ),
+        long used;
+        ACCOUNTING_LOCK.readLock().lock();
+        try {
+            reservedMemory.addAndGet( requiredMemory );
+            used = currentlyUsedMemory.addAndGet( requiredMemory );
+        } finally {
+            ACCOUNTING_LOCK.readLock().unlock();
+        }
+        if ( LOG.isDebugEnabled() ) {
+            LOG.debug( "Currently used cache memory:{} MB, totalCacheMemory:{} MB", used / ( 1024d * 1024 ),
                        maxCacheMem / ( 1024d * 1024 ) );
-            if ( currentlyUsedMemory + requiredMemory > maxCacheMem ) {
-                disposeMemory( requiredMemory );
+        }
+        if ( used > maxCacheMem ) {
+            disposeMemory();
+            used = currentlyUsedMemory.get();
+        }
+        return used;
+    }
+
+    /**
+     * Gives back memory which was requested with {@link #freeMemory(long)} but was not used after all.
+     * 
+     * @param unusedMemory
+     *            the amount of memory to give back
+     */
+    static void releaseMemory( long unusedMemory ) {
+        ACCOUNTING_LOCK.readLock().lock();
+        try {
+            reservedMemory.addAndGet( -unusedMemory );
+            currentlyUsedMemory.addAndGet( -unusedMemory );
+        } finally {
+            ACCOUNTING_LOCK.readLock().unlock();
+        }
+    }
+
+    /**
+     * Hands memory which was requested with {@link #freeMemory(long)} over to a reader. The caller must hold the lock
+     * of the reader.
+     * 
+     * @param reader
+     *            which holds the memory now
+     * @param heldMemory
+     *            the amount of memory the reader holds now, may differ from the reserved memory
+     * @param reserved
+     *            the amount of memory that was reserved
+     */
+    static void holdReservedMemory( CacheRasterReader reader, long heldMemory, long reserved ) {
+        ACCOUNTING_LOCK.readLock().lock();
+        try {
+            reader.addMemory( heldMemory );
+            reservedMemory.addAndGet( -reserved );
+            currentlyUsedMemory.addAndGet( heldMemory - reserved );
+        } finally {
+            ACCOUNTING_LOCK.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return true if tiles which are already written to a cache file should be memory mapped.
+     */
+    static boolean mapCacheFiles() {
+        return mapCacheFiles;
+    }
+
+    static void recordMemoryHit() {
+        memoryHits.incrementAndGet();
+    }
+
+    static void recordFileHit() {
+        fileHits.incrementAndGet();
+    }
+
+    static void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    /**
+     * Frees memory until half of the cache memory is available, the required memory was already added to the
+     * currently used memory.
+     */
+    private static void disposeMemory() {
+        if ( !EVICTION_LOCK.tryLock() ) {
+            // some other thread is already freeing memory, which will make room for this request as well
+            return;
+        }
+        try {
+            if ( currentlyUsedMemory.get() <= maxCacheMem ) {
+                return;
             }
-            currentlyUsedMemory += requiredMemory;
-        }
-
-        return currentlyUsedMemory;
-    }
-
-    private static void disposeMemory( long requiredMemory ) {
-        synchronized ( MEM_LOCK ) {
-            if ( currentlyUsedMemory + requiredMemory > maxCacheMem ) {
-                // make a copy, to reflect the last read access.
-                SortedSet<CacheRasterReader> sort = new ConcurrentSkipListSet<CacheRasterReader>( cache );
-                Iterator<CacheRasterReader> it = sort.iterator();
-                if ( it != null ) {
-                    final double halfMem = maxCacheMem * 0.5;
-                    int readersConsidered = 0;
-                    while ( it.hasNext() ) {
-                        CacheRasterReader next = it.next();
-                        if ( next != null ) {
-                            ++readersConsidered;
-                            long onDisk = next.cacheFileSize();
-                            if ( currentlyUsedDisk > maxCacheDisk && onDisk > 0 ) {
-                                // just delete the cache file and any in memory data from the least recently used cache
-                                // file.
-                                currentlyUsedMemory -= next.clear( true );
-                                currentlyUsedDisk -= onDisk;
-                            } else {
-                                long mem = next.currentApproxMemory();
-                                if ( mem > 0 && next.canCreateCacheFile() ) {
-                                    currentlyUsedMemory -= next.dispose( false );
-                                    // add the new cache file size
-                                    currentlyUsedDisk += ( next.cacheFileSize() - onDisk );
-                                } else if ( mem > 0 ) {
-                                    currentlyUsedMemory -= next.dispose( true );
-                                }
-                            }
-                        }
-                        if ( currentlyUsedMemory + requiredMemory < halfMem ) {
-                            break;
-                        }
+            final double halfMem = maxCacheMem * 0.5;
+            final Set<CacheRasterReader> considered = newIdentitySet();
+            final int numReaders = size();
+            boolean done = false;
+            while ( !done ) {
+                List<Candidate> candidates = sample( considered );
+                if ( candidates.isEmpty() ) {
+                    break;
+                }
+                for ( Candidate candidate : candidates ) {
+                    considered.add( candidate.reader );
+                    evict( candidate.reader );
+                    if ( currentlyUsedMemory.get() < halfMem ) {
+                        done = true;
+                        break;
                     }
+                }
+            }
+            if ( currentlyUsedMemory.get() > halfMem || considered.size() > ( numReaders * 0.5 ) ) {
+                // disposed more than half of the readers or could not get required memory..., update the real
+                // memory, it might well be the current values are invalid.
+                updateCurrentlyUsedSpace();
+            }
+        } finally {
+            EVICTION_LOCK.unlock();
+        }
+    }
 
-                    if ( currentlyUsedMemory > halfMem || readersConsidered > ( cache.size() * 0.5 ) ) {
-                        // disposed more than half of the readers or could not get required memory..., update the real
-                        // memory, it might well be the current values are invalid.
-                        updateCurrentlyUsedSpace();
+    /**
+     * Frees the memory of the given reader, either by writing it to its cache file or by dropping the memory buffers.
+     * If the disk budget is exceeded, the cache file of the reader is deleted instead.
+     */
+    private static void evict( CacheRasterReader next ) {
+        long onDisk = next.cacheFileSize();
+        if ( currentlyUsedDisk.get() > maxCacheDisk && onDisk > 0 ) {
+            // just delete the cache file and any in memory data from the least recently used cache
+            // file.
+            currentlyUsedMemory.addAndGet( -next.clear( true ) );
+            currentlyUsedDisk.addAndGet( -onDisk );
+            deletions.incrementAndGet();
+        } else {
+            long mem = next.currentApproxMemory();
+            if ( mem > 0 && next.canCreateCacheFile() ) {
+                currentlyUsedMemory.addAndGet( -next.dispose( false ) );
+                // add the new cache file size
+                currentlyUsedDisk.addAndGet( next.cacheFileSize() - onDisk );
+                evictions.incrementAndGet();
+            } else if ( mem > 0 ) {
+                currentlyUsedMemory.addAndGet( -next.dispose( true ) );
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Selects up to {@link #SAMPLE_SIZE} readers which were not considered yet, ordered by their last read access. If
+     * no more than {@link #SAMPLE_SIZE} readers are left, all of them are returned.
+     */
+    private static List<Candidate> sample( Set<CacheRasterReader> considered ) {
+        List<Candidate> result = new ArrayList<Candidate>( SAMPLE_SIZE );
+        int seen = 0;
+        for ( Segment s : cache ) {
+            for ( CacheRasterReader reader : s.snapshot() ) {
+                if ( considered.contains( reader ) ) {
+                    continue;
+                }
+                // reservoir sampling
+                if ( seen < SAMPLE_SIZE ) {
+                    result.add( new Candidate( reader ) );
+                } else {
+                    int index = RANDOM.nextInt( seen + 1 );
+                    if ( index < SAMPLE_SIZE ) {
+                        result.set( index, new Candidate( reader ) );
                     }
                 }
+                ++seen;
             }
         }
+        Collections.sort( result, new Comparator<Candidate>() {
+            @Override
+            public int compare( Candidate o1, Candidate o2 ) {
+                return o1.lastReadAccess < o2.lastReadAccess ? -1 : ( o1.lastReadAccess == o2.lastReadAccess ? 0 : 1 );
+            }
+        } );
+        return result;
+    }
+
+    private static List<CacheRasterReader> readers() {
+        List<CacheRasterReader> result = new ArrayList<CacheRasterReader>();
+        for ( Segment s : cache ) {
+            result.addAll( s.snapshot() );
+        }
+        return result;
     }
 
     /**
-     * Iterates over all known readers and (re) calculates their in memory data.
+     * Iterates over all known readers and (re) calculates their in memory data. The memory reserved, but not yet held
+     * by a reader is added to the memory. Must be called while holding the {@link #EVICTION_LOCK}, as evictions are not
+     * fenced otherwise.
      */
     private static void updateCurrentlyUsedSpace() {
-        synchronized ( MEM_LOCK ) {
-            LOG.debug( "Updating estimation of in-memory cache." );
-            long cum = 0;
-            long onDisk = 0;
-            Iterator<CacheRasterReader> it = cache.iterator();
-            while ( it != null && it.hasNext() ) {
-                CacheRasterReader next = it.next();
-                if ( next != null ) {
-                    cum += next.currentApproxMemory();
-                    onDisk += next.cacheFileSize();
-                }
-            }
-            LOG.debug( "Resetting currently used memory from: {} to: {}", ( currentlyUsedMemory / ( 1024 * 1024d ) ),
-                       ( cum / ( 1024 * 1024d ) ) );
+        LOG.debug( "Updating estimation of in-memory cache." );
+        ACCOUNTING_LOCK.writeLock().lock();
+        try {
+            long[] used = measureUsedSpace();
+            long cum = used[0] + reservedMemory.get();
+            LOG.debug( "Resetting currently used memory from: {} to: {}",
+                       ( currentlyUsedMemory.get() / ( 1024 * 1024d ) ), ( cum / ( 1024 * 1024d ) ) );
 
             LOG.debug( "Resetting currently used space on disk from: {} to: {}",
-                       ( currentlyUsedDisk / ( 1024 * 1024d ) ), ( onDisk / ( 1024 * 1024d ) ) );
-            currentlyUsedMemory = cum;
-            currentlyUsedDisk = onDisk;
+                       ( currentlyUsedDisk.get() / ( 1024 * 1024d ) ), ( used[1] / ( 1024 * 1024d ) ) );
+            currentlyUsedMemory.set( cum );
+            currentlyUsedDisk.set( used[1] );
+        } finally {
+            ACCOUNTING_LOCK.writeLock().unlock();
         }
     }
 
+    /**
+     * @return the memory and the disk space held by all known readers
+     */
+    static long[] measureUsedSpace() {
+        long memory = 0;
+        long onDisk = 0;
+        for ( CacheRasterReader next : readers() ) {
+            memory += next.currentApproxMemory();
+            onDisk += next.cacheFileSize();
+        }
+        return new long[] { memory, onDisk };
+    }
+
     /**
      * Adds the reader to the global map
      * 
      * @param reader
      */
     private static void addReader( CacheRasterReader reader ) {
-        boolean added = false;
-        synchronized ( MEM_LOCK ) {
-            currentlyUsedMemory += reader.currentApproxMemory();
-            currentlyUsedDisk += reader.cacheFileSize();
-            added = cache.add( reader );
+        boolean added;
+        ACCOUNTING_LOCK.readLock().lock();
+        try {
+            added = cache[segmentFor( reader )].add( reader );
+            if ( added ) {
+                currentlyUsedMemory.addAndGet( reader.currentApproxMemory() );
+                currentlyUsedDisk.addAndGet( reader.cacheFileSize() );
+            }
+        } finally {
+            ACCOUNTING_LOCK.readLock().unlock();
         }
         if ( !added ) {
             LOG.debug( "Not adding reader ({}) to cache because it is already in the cache.", reader );
         }
     }
 
+    private static Set<CacheRasterReader> newIdentitySet() {
+        return Collections.newSetFromMap( new IdentityHashMap<CacheRasterReader, Boolean>() );
+    }
+
+    private static int segmentFor( CacheRasterReader reader ) {
+        int h = System.identityHashCode( reader );
+        h ^= ( h >>> 16 );
+        return h & ( SEGMENTS - 1 );
+    }
+
     /**
      * Adds a raster reader to this cache, all cache files will be written to this cache directory.
      * 
@@ -554,44 +797,57 @@ public class RasterCache {
     }
 
     /**
-     * The <code>CacheComparator</code> class compares two raster readers for their last read access time.
-     * 
-     * @author <a href="mailto:bezema@lat-lon.de">Rutger Bezema</a>
-     * @author last edited by: $Author$
-     * @version $Revision$, $Date$
-     * 
+     * @return the directory used for caching.
      */
-    static class CacheComparator implements Comparator<CacheRasterReader>, Serializable {
+    public File getCacheDirectory() {
+        return cacheDir;
+    }
 
-        /**
-         * just for the Serializable
-         */
-        private static final long serialVersionUID = 957737023397188332L;
+    public static void disableAllCaches() {
+        maxCacheMem = 0;
+        maxCacheDisk = 0;
+    }
 
-        @Override
-        public int compare( CacheRasterReader o1, CacheRasterReader o2 ) {
-            // rb: returning 0 will cause the above 'add' method to discard the new raster.
-            if ( o1 == null ) {
-                return -1;
-            }
-            if ( o2 == null ) {
-                return 1;
-            }
-            int result = o1.lastReadAccess() <= o2.lastReadAccess() ? -1 : 1;
+    /**
+     * One stripe of the cached readers, guarded by its own monitor.
+     */
+    private static final class Segment {
+
+        private final Set<CacheRasterReader> readers = newIdentitySet();
+
+        synchronized boolean add( CacheRasterReader reader ) {
+            return readers.add( reader );
+        }
+
+        synchronized int size() {
+            return readers.size();
+        }
+
+        synchronized List<CacheRasterReader> snapshot() {
+            return new ArrayList<CacheRasterReader>( readers );
+        }
+
+        synchronized List<CacheRasterReader> removeAll() {
+            List<CacheRasterReader> result = new ArrayList<CacheRasterReader>( readers );
+            readers.clear();
             return result;
         }
     }
 
     /**
-     * @return the directory used for caching.
+     * A reader together with its last read access at sampling time, so that sorting is not affected by concurrent
+     * reads.
      */
-    public File getCacheDirectory() {
-        return cacheDir;
-    }
+    private static final class Candidate {
 
-    public static void disableAllCaches() {
-        maxCacheMem = 0;
-        maxCacheDisk = 0;
+        final CacheRasterReader reader;
+
+        final long lastReadAccess;
+
+        Candidate( CacheRasterReader reader ) {
+            this.reader = reader;
+            this.lastReadAccess = reader.lastReadAccess();
+        }
     }
 
 }
@@ -46,6 +46,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -283,6 +284,31 @@ public class GridFileReader extends GridReader {
 
     }
 
+    /**
+     * Maps the data of the given tile read only into memory.
+     * 
+     * @param columnId
+     * @param rowId
+     * @return the mapped tile data or <code>null</code> if the tile is not (completely) contained in the grid file.
+     * @throws IOException
+     */
+    protected ByteBuffer mapTile( int columnId, int rowId )
+                            throws IOException {
+        long size = getBytesPerTile();
+        long position = ( getTileId( columnId, rowId ) % getTilesPerBlob() ) * size;
+        synchronized ( LOCK ) {
+            try {
+                FileChannel channel = getFileChannel();
+                if ( channel.size() < position + size ) {
+                    return null;
+                }
+                return channel.map( MapMode.READ_ONLY, position, size );
+            } finally {
+                closeReadStream();
+            }
+        }
+    }
+
     /**
      * @param tileColumn
      * @param tileRow
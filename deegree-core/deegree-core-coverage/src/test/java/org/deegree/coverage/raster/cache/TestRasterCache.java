@@ -45,6 +45,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
 import junit.framework.Assert;
 
@@ -56,6 +57,7 @@ import org.deegree.coverage.raster.data.nio.ByteBufferRasterData;
 import org.deegree.coverage.raster.geom.RasterGeoReference.OriginLocation;
 import org.deegree.coverage.raster.io.RasterIOOptions;
 import org.deegree.coverage.raster.utils.RasterFactory;
+import org.deegree.cs.coordinatesystems.ICRS;
 import org.deegree.cs.persistence.CRSManager;
 import org.deegree.geometry.Envelope;
 import org.deegree.geometry.GeometryFactory;
@@ -401,6 +403,115 @@ public class TestRasterCache {
 
     }
 
+    /**
+     * Reading concurrently from the rasters must leave the accounted memory and disk space equal to the space actually
+     * held by the readers.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentAccounting()
+                            throws Exception {
+        System.setProperty( RasterCache.DEF_RASTER_CACHE_MMAP, "false" );
+        try {
+            setRasterCache();
+            readConcurrently( 8, 20 );
+            checkAccounting();
+            clearCache();
+        } finally {
+            System.clearProperty( RasterCache.DEF_RASTER_CACHE_MMAP );
+        }
+    }
+
+    /**
+     * Tiles which were written to the cache files are mapped on subsequent reads, the mapped tiles must be accounted as
+     * well.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentAccountingMapped()
+                            throws Exception {
+        System.setProperty( RasterCache.DEF_RASTER_CACHE_MMAP, "true" );
+        try {
+            setRasterCache();
+            Assert.assertTrue( RasterCache.mapCacheFiles() );
+            readConcurrently( 8, 20 );
+            checkAccounting();
+            Assert.assertTrue( "No tiles were written to a cache file.", RasterCache.getCurrentlyUsedDisk() > 0 );
+            clearCache();
+        } finally {
+            System.clearProperty( RasterCache.DEF_RASTER_CACHE_MMAP );
+        }
+    }
+
+    /**
+     * Memory which was reserved but not used must be given back.
+     */
+    @Test
+    public void testReservation() {
+        setRasterCache();
+        long used = RasterCache.getCurrentlyUsedMemory();
+        RasterCache.freeMemory( 1000 );
+        checkMemSize( used + 1000 );
+        RasterCache.releaseMemory( 1000 );
+        checkMemSize( used );
+        checkAccounting();
+        clearCache();
+    }
+
+    private void readConcurrently( int numberOfThreads, final int rounds )
+                            throws Exception {
+        final TiledRaster tR = buildTiledRaster( OriginLocation.CENTER );
+        final AbstractRaster raster = buildRaster( OriginLocation.CENTER, "overview.png", "png", "epsg:26912" );
+        ICRS crs = CRSManager.getCRSRef( "epsg:26912" );
+        Envelope upper = geomFac.createEnvelope( 420000.0, 4511999.0, 428000.0, 4519999.0, crs );
+        Envelope lower = geomFac.createEnvelope( 420000.0, 4503999.0, 428000.0, 4511999.0, crs );
+        final Envelope[] envs = new Envelope[] { tR.getEnvelope(), upper, lower };
+        final Envelope[] overviewEnvs = new Envelope[] { raster.getEnvelope(),
+                                                        geomFac.createEnvelope( 1000, 2071, 1032, 2100, crs ),
+                                                        geomFac.createEnvelope( 1070, 2001, 1100, 2100, crs ) };
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[numberOfThreads];
+        for ( int i = 0; i < threads.length; ++i ) {
+            final int offset = i;
+            threads[i] = new Thread( new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        for ( int j = 0; j < rounds; ++j ) {
+                            int k = offset + j;
+                            tR.getSubRaster( envs[k % envs.length] ).getAsSimpleRaster();
+                            AbstractRaster sub = raster.getSubRaster( overviewEnvs[k % overviewEnvs.length] );
+                            ByteBufferRasterData data = (ByteBufferRasterData) sub.getAsSimpleRaster().getRasterData();
+                            Assert.assertNotNull( data.getByteBuffer() );
+                        }
+                    } catch ( Throwable t ) {
+                        error.compareAndSet( null, t );
+                    }
+                }
+            }, "reader-" + i );
+        }
+        for ( Thread t : threads ) {
+            t.start();
+        }
+        for ( Thread t : threads ) {
+            t.join( 60000 );
+            Assert.assertFalse( "Waiting for " + t.getName() + " took too long, this might be a raster cache dead lock.",
+                                t.isAlive() );
+        }
+        if ( error.get() != null ) {
+            throw new AssertionError( error.get() );
+        }
+    }
+
+    private void checkAccounting() {
+        long[] used = RasterCache.measureUsedSpace();
+        checkMemSize( used[0] );
+        checkDiskSize( used[1] );
+    }
+
     private void clearCache() {
         // clear cache
         RasterCache.clear( true );
@@ -42,12 +42,18 @@ import java.io.FilenameFilter;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.ServiceLoader;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamReader;
@@ -79,6 +85,11 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Entry point for creating and retrieving {@link CRSStore} and {@link CRSStoreProvider} instances.
+ * <p>
+ * Results of {@link ICRS} lookups are cached (keyed by store id, case-normalized code and axis order flag), so lookups
+ * don't need to synchronize. Concurrent lookups of the same uncached CRS are resolved only once. The cache is discarded
+ * whenever stores are registered or removed.
+ * </p>
  * 
  * @author <a href="mailto:buesching@lat-lon.de">Lyn Buesching</a>
  * @author last edited by: $Author: lyn $
@@ -91,18 +102,22 @@ public class CRSManager extends AbstractBasicResourceManager implements Resource
 
     private static Map<String, CRSStoreProvider> nsToProvider = null;
 
-    private static Map<String, CRSStore> idToCRSStore = Collections.synchronizedMap( new HashMap<String, CRSStore>() );
+    private static Map<String, CRSStore> idToCRSStore = new ConcurrentHashMap<String, CRSStore>();
 
     // store ids in order of requesting, workspace stores should overwrite the default store!
-    private static List<String> storeIds = Collections.synchronizedList( new LinkedList<String>() );
+    private static List<String> storeIds = new CopyOnWriteArrayList<String>();
 
-    private static Map<String, TransformationFactory> idToTransF = new HashMap<String, TransformationFactory>();
+    private static Map<String, TransformationFactory> idToTransF = new ConcurrentHashMap<String, TransformationFactory>();
+
+    // replaced (not cleared) on store changes, so that pending lookups cannot re-populate it with stale results
+    private static volatile ConcurrentMap<LookupKey, FutureTask<ICRS>> lookupCache;
 
     private DeegreeWorkspace workspace;
 
     private static boolean defaultInitialized = false;
 
     static {
+        clearLookupCache();
         new CRSManager().initDefault();
     }
 
@@ -140,12 +155,15 @@ public class CRSManager extends AbstractBasicResourceManager implements Resource
      * cleares the stored configuration
      */
     public static void destroy() {
-        LOG.info( "Clear CRS store and transformation map" );
-        idToCRSStore.clear();
-        idToTransF.clear();
-        storeIds.clear();
-        defaultInitialized = false;
-        new CRSManager().initDefault();
+        synchronized ( CRSManager.class ) {
+            LOG.info( "Clear CRS store and transformation map" );
+            idToCRSStore.clear();
+            idToTransF.clear();
+            storeIds.clear();
+            clearLookupCache();
+            defaultInitialized = false;
+            new CRSManager().initDefault();
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -272,7 +290,7 @@ public class CRSManager extends AbstractBasicResourceManager implements Resource
         return nsToProvider;
     }
 
-    private static void registerAndInit( CRSStore crss, String id, boolean prefer )
+    private synchronized static void registerAndInit( CRSStore crss, String id, boolean prefer )
                             throws CRSStoreException {
         if ( id != null ) {
             if ( idToCRSStore.containsKey( id ) ) {
@@ -287,6 +305,57 @@ public class CRSManager extends AbstractBasicResourceManager implements Resource
                 storeIds.add( id );
             }
             crss.init();
+            clearLookupCache();
+        }
+    }
+
+    private static void clearLookupCache() {
+        lookupCache = new ConcurrentHashMap<LookupKey, FutureTask<ICRS>>();
+    }
+
+    /**
+     * Returns the cached result of the given lookup, resolving it (once, even for concurrent callers) if necessary.
+     * Failed lookups are not cached.
+     */
+    private static ICRS cachedLookup( LookupKey key, Callable<ICRS> resolver )
+                            throws UnknownCRSException {
+        ConcurrentMap<LookupKey, FutureTask<ICRS>> cache = lookupCache;
+        FutureTask<ICRS> task = cache.get( key );
+        if ( task == null ) {
+            FutureTask<ICRS> newTask = new FutureTask<ICRS>( resolver );
+            task = cache.putIfAbsent( key, newTask );
+            if ( task == null ) {
+                task = newTask;
+                task.run();
+            }
+        }
+        try {
+            return task.get();
+        } catch ( InterruptedException e ) {
+            // don't wait for the other thread, resolve it ourselves
+            Thread.currentThread().interrupt();
+            try {
+                return resolver.call();
+            } catch ( UnknownCRSException ue ) {
+                throw ue;
+            } catch ( RuntimeException re ) {
+                throw re;
+            } catch ( Exception ex ) {
+                throw new RuntimeException( ex.getMessage(), ex );
+            }
+        } catch ( ExecutionException e ) {
+            cache.remove( key, task );
+            Throwable cause = e.getCause();
+            if ( cause instanceof UnknownCRSException ) {
+                throw (UnknownCRSException) cause;
+            }
+            if ( cause instanceof RuntimeException ) {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error ) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException( cause.getMessage(), cause );
         }
     }
 
@@ -309,6 +378,9 @@ public class CRSManager extends AbstractBasicResourceManager implements Resource
      *         has been created or <code>null</code> if the default one could also not be created.
      */
     public static CRSStore get( String id ) {
+        if ( id == null ) {
+            return null;
+        }
         return idToCRSStore.get( id );
     }
 
@@ -437,7 +509,7 @@ public class CRSManager extends AbstractBasicResourceManager implements Resource
      * @throws UnknownCRSException
      *             if a {@link ICRS} with the name is not known
      */
-    public synchronized static ICRS lookup( String name )
+    public static ICRS lookup( String name )
                             throws UnknownCRSException {
         return lookup( name, false );
     }
@@ -457,7 +529,7 @@ public class CRSManager extends AbstractBasicResourceManager implements Resource
      * @throws UnknownCRSException
      *             if a {@link ICRS} with the name is not known
      */
-    public synchronized static ICRS lookup( String name, boolean forceXY )
+    public static ICRS lookup( String name, boolean forceXY )
                             throws UnknownCRSException {
         return lookup( null, name, forceXY );
     }
@@ -473,7 +545,7 @@ public class CRSManager extends AbstractBasicResourceManager implements Resource
      * @throws UnknownCRSException
      *             if a {@link ICRS} with the name is not known
      */
-    public synchronized static ICRS lookup( CRSCodeType codeType )
+    public static ICRS lookup( CRSCodeType codeType )
                             throws UnknownCRSException {
         return lookup( null, codeType );
     }
@@ -492,7 +564,7 @@ public class CRSManager extends AbstractBasicResourceManager implements Resource
      * @throws UnknownCRSException
      *             if a {@link ICRS} with the name is not known
      */
-    public synchronized static ICRS lookup( String storeId, String name )
+    public static ICRS lookup( String storeId, String name )
                             throws UnknownCRSException {
         return lookup( storeId, name, false );
     }
@@ -514,7 +586,19 @@ public class CRSManager extends AbstractBasicResourceManager implements Resource
      * @throws UnknownCRSException
      *             if a {@link ICRS} with the name is not known
      */
-    public synchronized static ICRS lookup( String storeIdName, String name, boolean forceXY )
+    public static ICRS lookup( final String storeIdName, final String name, final boolean forceXY )
+                            throws UnknownCRSException {
+        LookupKey key = new LookupKey( storeIdName, name, forceXY, false );
+        return cachedLookup( key, new Callable<ICRS>() {
+            @Override
+            public ICRS call()
+                                    throws UnknownCRSException {
+                return resolve( storeIdName, name, forceXY );
+            }
+        } );
+    }
+
+    private static ICRS resolve( String storeIdName, String name, boolean forceXY )
                             throws UnknownCRSException {
         CRSStore crsStore = get( storeIdName );
         if ( crsStore != null ) {
@@ -548,7 +632,19 @@ public class CRSManager extends AbstractBasicResourceManager implements Resource
      * @throws UnknownCRSException
      *             if a {@link ICRS} with the name is not known
      */
-    public synchronized static ICRS lookup( String storeId, CRSCodeType crsCodeType )
+    public static ICRS lookup( final String storeId, final CRSCodeType crsCodeType )
+                            throws UnknownCRSException {
+        LookupKey key = new LookupKey( storeId, crsCodeType.getOriginal(), false, true );
+        return cachedLookup( key, new Callable<ICRS>() {
+            @Override
+            public ICRS call()
+                                    throws UnknownCRSException {
+                return resolve( storeId, crsCodeType );
+            }
+        } );
+    }
+
+    private static ICRS resolve( String storeId, CRSCodeType crsCodeType )
                             throws UnknownCRSException {
         CRSStore crsStore = get( storeId );
         if ( crsStore != null ) {
@@ -679,7 +775,7 @@ public class CRSManager extends AbstractBasicResourceManager implements Resource
      * @return the identified {@link Transformation} or <code>null<code> if no such transformation is found.
      */
     public synchronized static Transformation getTransformation( String storeId, String id ) {
-        CRSStore crsStore = idToCRSStore.get( storeId );
+        CRSStore crsStore = get( storeId );
         if ( crsStore == null ) {
             for ( String sId : storeIds ) {
                 CRSStore store = idToCRSStore.get( sId );
@@ -798,9 +894,51 @@ public class CRSManager extends AbstractBasicResourceManager implements Resource
     @Override
     protected void remove( String id ) {
         if ( id != null ) {
-            storeIds.remove( id );
-            idToCRSStore.remove( id );
-            idToTransF.remove( id );
+            synchronized ( CRSManager.class ) {
+                storeIds.remove( id );
+                idToCRSStore.remove( id );
+                idToTransF.remove( id );
+                clearLookupCache();
+            }
+        }
+    }
+
+    private static final class LookupKey {
+
+        private final String storeId;
+
+        private final String code;
+
+        private final boolean forceXY;
+
+        private final boolean codeType;
+
+        private final int hashCode;
+
+        private LookupKey( String storeId, String code, boolean forceXY, boolean codeType ) {
+            this.storeId = storeId;
+            this.code = code.toLowerCase( Locale.ENGLISH );
+            this.forceXY = forceXY;
+            this.codeType = codeType;
+            int hash = storeId == null ? 0 : storeId.hashCode();
+            hash = 31 * hash + this.code.hashCode();
+            hash = 31 * hash + ( forceXY ? 1 : 0 );
+            this.hashCode = 31 * hash + ( codeType ? 1 : 0 );
+        }
+
+        @Override
+        public boolean equals( Object o ) {
+            if ( !( o instanceof LookupKey ) ) {
+                return false;
+            }
+            LookupKey that = (LookupKey) o;
+            return forceXY == that.forceXY && codeType == that.codeType && code.equals( that.code )
+                   && ( storeId == null ? that.storeId == null : storeId.equals( that.storeId ) );
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
         }
     }
 
@@ -36,6 +36,7 @@
 
 package org.deegree.cs.transformations;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -236,6 +237,38 @@ public abstract class Transformation extends CRSIdentifiable {
         }
     }
 
+    /**
+     * Transforms the given packed coordinates in place. The coordinates are stored as consecutive (x,y,z) triples
+     * (regardless of the dimension of the source and target CRS), a z value of {@link Double#NaN} denotes a missing
+     * third ordinate.
+     * <p>
+     * Implementations should override this method to transform the coordinates without creating intermediate
+     * {@link Point3d} instances. The default implementation wraps the coordinates and calls {@link #doTransform(List)}.
+     * </p>
+     * 
+     * @param xyz
+     *            array holding the (x,y,z) triples, must not be <code>null</code>
+     * @param offset
+     *            index of the first x ordinate to transform
+     * @param numPoints
+     *            number of (x,y,z) triples to transform
+     * @throws TransformationException
+     *             if the coordinates could not be transformed from the sourceCRS to the targetCRS.
+     */
+    public void doTransformInPlace( double[] xyz, int offset, int numPoints )
+                            throws TransformationException {
+        List<Point3d> points = new ArrayList<Point3d>( numPoints );
+        for ( int i = offset, end = offset + 3 * numPoints; i < end; i += 3 ) {
+            points.add( new Point3d( xyz[i], xyz[i + 1], xyz[i + 2] ) );
+        }
+        int i = offset;
+        for ( Point3d p : doTransform( points ) ) {
+            xyz[i++] = p.x;
+            xyz[i++] = p.y;
+            xyz[i++] = p.z;
+        }
+    }
+
     /**
      * Transforms a single point3d (by calling the doTransform( List<Point3d>).
      * 
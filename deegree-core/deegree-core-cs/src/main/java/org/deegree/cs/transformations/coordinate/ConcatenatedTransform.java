@@ -125,6 +125,15 @@ public class ConcatenatedTransform extends Transformation {
         return srcPts;
     }
 
+    @Override
+    public void doTransformInPlace( double[] xyz, int offset, int numPoints )
+                            throws TransformationException {
+        if ( !isIdentitiy ) {
+            firstTransform.doTransformInPlace( xyz, offset, numPoints );
+            secondTransform.doTransformInPlace( xyz, offset, numPoints );
+        }
+    }
+
     @Override
     public void inverse() {
         super.inverse();
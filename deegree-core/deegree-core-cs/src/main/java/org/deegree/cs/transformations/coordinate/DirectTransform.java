@@ -115,6 +115,15 @@ public class DirectTransform extends Transformation {
         return transformation.applyPolynomial( srcPts );
     }
 
+    @Override
+    public void doTransformInPlace( double[] xyz, int offset, int numPoints )
+                            throws TransformationException {
+        if ( isInverseTransform() ) {
+            LOG.warn( "A Direct Transformation cannot be inverse yet" );
+        }
+        transformation.doTransformInPlace( xyz, offset, numPoints );
+    }
+
     @Override
     public boolean isIdentity() {
         // a transformation cannot be an identity it doesn't make a lot of sense.
@@ -191,6 +191,18 @@ public class GeocentricTransform extends Transformation {
         return result;
     }
 
+    @Override
+    public void doTransformInPlace( double[] xyz, int offset, int numPoints ) {
+        boolean inverse = isInverseTransform();
+        for ( int i = offset, end = offset + 3 * numPoints; i < end; i += 3 ) {
+            if ( inverse ) {
+                toGeographic( xyz, i );
+            } else {
+                toGeoCentric( xyz, i );
+            }
+        }
+    }
+
     /**
      * Converts geocentric coordinates (x, y, z) to geodetic coordinates (longitude, latitude, height), according to the
      * current ellipsoid parameters. The method used here is derived from "An Improved Algorithm for Geocentric to
@@ -200,47 +212,58 @@ public class GeocentricTransform extends Transformation {
      *            the points which must be transformed.
      */
     protected void toGeographic( List<Point3d> srcPts ) {
+        double[] xyz = new double[3];
         for ( Point3d p : srcPts ) {
-            // Note: Variable names follow the notation used in Toms, Feb 1996
-
-            final double T0 = p.z * AD_C; // initial estimate of vertical component
-            final double W = length( p.x, p.y );// distance from Z axis
-            final double S0 = length( T0, W );// initial estimate of horizontal component
-
-            final double sin_B0 = T0 / S0; // sin(B0), B0 is estimate of Bowring variable
-            final double cos_B0 = W / S0; // cos(B0)
-            final double sin3_B0 = sin_B0 * sin_B0 * sin_B0; // cube of sin(B0)
-            final double T1 = p.z + semiMinorAxis * ep2 * sin3_B0; // corrected estimate of vertical component
-
-            // numerator of cos(phi1)
-            final double sum = W - semiMajorAxis * squaredEccentricity * ( cos_B0 * cos_B0 * cos_B0 );
-
-            // corrected estimate of horizontal component
-            final double S1 = length( T1, sum );// Math.sqrt( T1 * T1 + sum * sum );
-
-            // sin(phi), phi is estimated latitude
-            final double sinPhi = T1 / S1;
-            final double cosPhi = sum / S1; // cos(phi)
-
-            // Lambda in tom.
-            p.x = Math.atan2( p.y, p.x );// longitude;
-            p.y = Math.atan( sinPhi / cosPhi );// latitude;
-            if ( hasHeight ) {
-                double height = 1;
-                // rn = radius of curvature of the prime vertical, of the ellipsoid at location
-                final double rn = semiMajorAxis / Math.sqrt( 1 - squaredEccentricity * ( sinPhi * sinPhi ) );
-
-                if ( cosPhi >= +COS_67P5 ) {
-                    height = W / +cosPhi - rn;
-                } else if ( cosPhi <= -COS_67P5 ) {
-                    height = W / -cosPhi - rn;
-                } else {
-                    height = p.z / sinPhi + rn * ( squaredEccentricity - 1.0 );
-                }
-                p.z = height;
+            xyz[0] = p.x;
+            xyz[1] = p.y;
+            xyz[2] = p.z;
+            toGeographic( xyz, 0 );
+            p.x = xyz[0];
+            p.y = xyz[1];
+            p.z = xyz[2];
+        }
+    }
+
+    private void toGeographic( double[] xyz, int i ) {
+        // Note: Variable names follow the notation used in Toms, Feb 1996
+
+        final double T0 = xyz[i + 2] * AD_C; // initial estimate of vertical component
+        final double W = length( xyz[i], xyz[i + 1] );// distance from Z axis
+        final double S0 = length( T0, W );// initial estimate of horizontal component
+
+        final double sin_B0 = T0 / S0; // sin(B0), B0 is estimate of Bowring variable
+        final double cos_B0 = W / S0; // cos(B0)
+        final double sin3_B0 = sin_B0 * sin_B0 * sin_B0; // cube of sin(B0)
+        final double T1 = xyz[i + 2] + semiMinorAxis * ep2 * sin3_B0; // corrected estimate of vertical component
+
+        // numerator of cos(phi1)
+        final double sum = W - semiMajorAxis * squaredEccentricity * ( cos_B0 * cos_B0 * cos_B0 );
+
+        // corrected estimate of horizontal component
+        final double S1 = length( T1, sum );// Math.sqrt( T1 * T1 + sum * sum );
+
+        // sin(phi), phi is estimated latitude
+        final double sinPhi = T1 / S1;
+        final double cosPhi = sum / S1; // cos(phi)
+
+        // Lambda in tom.
+        xyz[i] = Math.atan2( xyz[i + 1], xyz[i] );// longitude;
+        xyz[i + 1] = Math.atan( sinPhi / cosPhi );// latitude;
+        if ( hasHeight ) {
+            double height = 1;
+            // rn = radius of curvature of the prime vertical, of the ellipsoid at location
+            final double rn = semiMajorAxis / Math.sqrt( 1 - squaredEccentricity * ( sinPhi * sinPhi ) );
+
+            if ( cosPhi >= +COS_67P5 ) {
+                height = W / +cosPhi - rn;
+            } else if ( cosPhi <= -COS_67P5 ) {
+                height = W / -cosPhi - rn;
             } else {
-                p.z = defaultHeightValue;
+                height = xyz[i + 2] / sinPhi + rn * ( squaredEccentricity - 1.0 );
             }
+            xyz[i + 2] = height;
+        } else {
+            xyz[i + 2] = defaultHeightValue;
         }
     }
 
@@ -251,24 +274,35 @@ public class GeocentricTransform extends Transformation {
      *            to convert.
      */
     protected void toGeoCentric( List<Point3d> srcPts ) {
+        double[] xyz = new double[3];
         for ( Point3d p : srcPts ) {
-            final double lambda = p.x; // Longitude
-            final double phi = p.y; // Latitude
-            // first check the p.z value if it is defined, if not, use the defaultheight value, which will be
-            // initialized with 0 or the configured compound crs value.
-            if ( Double.isNaN( p.z ) || Math.abs( p.z ) < EPS11 ) {
-                p.z = defaultHeightValue;
-            }
-            final double h = hasHeight ? p.z : 0; // Height above the ellipsoid (metres).
-
-            final double cosPhi = Math.cos( phi );
-            final double sinPhi = Math.sin( phi );
-            final double rn = semiMajorAxis / Math.sqrt( 1 - squaredEccentricity * ( sinPhi * sinPhi ) );
+            xyz[0] = p.x;
+            xyz[1] = p.y;
+            xyz[2] = p.z;
+            toGeoCentric( xyz, 0 );
+            p.x = xyz[0];
+            p.y = xyz[1];
+            p.z = xyz[2];
+        }
+    }
 
-            p.x = ( rn + h ) * cosPhi * Math.cos( lambda );
-            p.y = ( rn + h ) * cosPhi * Math.sin( lambda );
-            p.z = ( rn * ( 1 - squaredEccentricity ) + h ) * sinPhi;
+    private void toGeoCentric( double[] xyz, int i ) {
+        final double lambda = xyz[i]; // Longitude
+        final double phi = xyz[i + 1]; // Latitude
+        // first check the z value if it is defined, if not, use the defaultheight value, which will be
+        // initialized with 0 or the configured compound crs value.
+        if ( Double.isNaN( xyz[i + 2] ) || Math.abs( xyz[i + 2] ) < EPS11 ) {
+            xyz[i + 2] = defaultHeightValue;
         }
+        final double h = hasHeight ? xyz[i + 2] : 0; // Height above the ellipsoid (metres).
+
+        final double cosPhi = Math.cos( phi );
+        final double sinPhi = Math.sin( phi );
+        final double rn = semiMajorAxis / Math.sqrt( 1 - squaredEccentricity * ( sinPhi * sinPhi ) );
+
+        xyz[i] = ( rn + h ) * cosPhi * Math.cos( lambda );
+        xyz[i + 1] = ( rn + h ) * cosPhi * Math.sin( lambda );
+        xyz[i + 2] = ( rn * ( 1 - squaredEccentricity ) + h ) * sinPhi;
     }
 
     @Override
@@ -37,6 +37,7 @@ package org.deegree.cs.transformations.coordinate;
 
 import static org.deegree.cs.utilities.ProjectionUtils.EPS11;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.media.jai.PerspectiveTransform;
@@ -296,6 +297,31 @@ public class MatrixTransform extends Transformation {
         return srcPts;
     }
 
+    @Override
+    public void doTransformInPlace( double[] xyz, int offset, int numPoints ) {
+        if ( isIdentity() ) {
+            return;
+        }
+        boolean inverse = isInverseTransform();
+        if ( matrix3D != null ) {
+            transform( inverse ? invertMatrix3D : matrix3D, xyz, offset, numPoints );
+        } else if ( matrix4D != null ) {
+            transform( inverse ? invertMatrix4D : matrix4D, xyz, offset, numPoints );
+        } else {
+            List<Point3d> points = new ArrayList<Point3d>( numPoints );
+            for ( int i = offset, end = offset + 3 * numPoints; i < end; i += 3 ) {
+                points.add( new Point3d( xyz[i], xyz[i + 1], xyz[i + 2] ) );
+            }
+            transform( inverse ? invertMatrix : matrix, points );
+            int i = offset;
+            for ( Point3d p : points ) {
+                xyz[i++] = p.x;
+                xyz[i++] = p.y;
+                xyz[i++] = p.z;
+            }
+        }
+    }
+
     /**
      * @return the dimension of input points.
      */
@@ -498,6 +524,37 @@ public class MatrixTransform extends Transformation {
         }
     }
 
+    /**
+     * Use the given matrix to transform the given packed (x,y,z) coordinates in-place (see
+     * {@link Matrix4d#transform(Point3d)}).
+     */
+    private static void transform( Matrix4d m, double[] xyz, int offset, int numPoints ) {
+        for ( int i = offset, end = offset + 3 * numPoints; i < end; i += 3 ) {
+            double x = xyz[i];
+            double y = xyz[i + 1];
+            double z = xyz[i + 2];
+            xyz[i] = m.m00 * x + m.m01 * y + m.m02 * z + m.m03;
+            xyz[i + 1] = m.m10 * x + m.m11 * y + m.m12 * z + m.m13;
+            xyz[i + 2] = m.m20 * x + m.m21 * y + m.m22 * z + m.m23;
+        }
+    }
+
+    /**
+     * Use the given matrix to transform the given packed (x,y,z) coordinates in-place (see
+     * {@link #transform(Matrix3d, List)}).
+     */
+    private static void transform( Matrix3d m, double[] xyz, int offset, int numPoints ) {
+        for ( int i = offset, end = offset + 3 * numPoints; i < end; i += 3 ) {
+            double x = xyz[i];
+            double y = xyz[i + 1];
+            boolean zIsNaN = Double.isNaN( xyz[i + 2] );
+            double z = zIsNaN ? 1 : xyz[i + 2];
+            xyz[i] = m.m00 * x + m.m01 * y + m.m02 * z;
+            xyz[i + 1] = m.m10 * x + m.m11 * y + m.m12 * z;
+            xyz[i + 2] = zIsNaN ? Double.NaN : m.m20 * x + m.m21 * y + m.m22 * z;
+        }
+    }
+
     /**
      * @return the matrix.
      */
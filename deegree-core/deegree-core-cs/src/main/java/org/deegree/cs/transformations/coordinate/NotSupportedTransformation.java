@@ -92,6 +92,11 @@ public class NotSupportedTransformation extends Transformation {
         return srcPts;
     }
 
+    @Override
+    public void doTransformInPlace( double[] xyz, int offset, int numPoints ) {
+        // nothing to do
+    }
+
     @Override
     public boolean isIdentity() {
         return false;
@@ -235,6 +235,30 @@ public class ProjectionTransform extends Transformation {
         }
     }
 
+    @Override
+    public void doTransformInPlace( double[] xyz, int offset, int numPoints ) {
+        boolean inverse = isInverseTransform();
+        boolean swapIn = inverse ? swapAxisTarget : swapAxisSource;
+        boolean swapOut = inverse ? swapAxisSource : swapAxisTarget;
+        for ( int i = offset, end = offset + 3 * numPoints; i < end; i += 3 ) {
+            double x = swapIn ? xyz[i + 1] : xyz[i];
+            double y = swapIn ? xyz[i] : xyz[i + 1];
+            try {
+                Point2d tmp = inverse ? projectedCRS.doInverseProjection( x, y ) : projectedCRS.doProjection( x, y );
+                if ( swapOut ) {
+                    xyz[i] = tmp.y;
+                    xyz[i + 1] = tmp.x;
+                } else {
+                    xyz[i] = tmp.x;
+                    xyz[i + 1] = tmp.y;
+                }
+            } catch ( ProjectionException e ) {
+                LOG.trace( "Stack trace:", e );
+                LOG.warn( "Transformation error: {}", e.getLocalizedMessage() );
+            }
+        }
+    }
+
     @Override
     public boolean isIdentity() {
         // a projection cannot be an identity it doesn't make a lot of sense.
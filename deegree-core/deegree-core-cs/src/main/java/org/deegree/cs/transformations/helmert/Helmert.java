@@ -484,21 +484,7 @@ public class Helmert extends Transformation {
             return srcPts;
         }
 
-        // lazy instantiation
-        if ( transformMatrix == null ) {
-            transformMatrix = getAsAffineTransform();
-        }
-        Matrix4d matrix = transformMatrix;
-
-        // create the inverse matrix
-        if ( isInverseTransform() ) {
-            if ( inverseMatrix == null ) {
-                inverseMatrix = getAsAffineTransform();
-                inverseMatrix.invert();
-            }
-            matrix = inverseMatrix;
-        }
-
+        Matrix4d matrix = getMatrix();
         for ( Point3d p : srcPts ) {
             boolean zIsNaN = Double.isNaN( p.z );
             if ( zIsNaN ) {
@@ -513,6 +499,38 @@ public class Helmert extends Transformation {
         return srcPts;
     }
 
+    @Override
+    public void doTransformInPlace( double[] xyz, int offset, int numPoints ) {
+        Matrix4d m = getMatrix();
+        for ( int i = offset, end = offset + 3 * numPoints; i < end; i += 3 ) {
+            double x = xyz[i];
+            double y = xyz[i + 1];
+            boolean zIsNaN = Double.isNaN( xyz[i + 2] );
+            double z = zIsNaN ? 1 : xyz[i + 2];
+            xyz[i] = m.m00 * x + m.m01 * y + m.m02 * z + m.m03;
+            xyz[i + 1] = m.m10 * x + m.m11 * y + m.m12 * z + m.m13;
+            xyz[i + 2] = zIsNaN ? Double.NaN : m.m20 * x + m.m21 * y + m.m22 * z + m.m23;
+        }
+    }
+
+    /**
+     * @return the (lazily created) forward or inverse matrix, depending on the state of this transformation
+     */
+    private synchronized Matrix4d getMatrix() {
+        if ( transformMatrix == null ) {
+            transformMatrix = getAsAffineTransform();
+        }
+        // create the inverse matrix
+        if ( isInverseTransform() ) {
+            if ( inverseMatrix == null ) {
+                inverseMatrix = getAsAffineTransform();
+                inverseMatrix.invert();
+            }
+            return inverseMatrix;
+        }
+        return transformMatrix;
+    }
+
     @Override
     public String getImplementationName() {
         return "Helmert";
@@ -233,51 +233,7 @@ public class NTv2Transformation extends Transformation {
         GridShift shifter = new GridShift();
 
         for ( Point3d p : srcPts ) {
-            // rb: only degrees are supported :-)
-            shifter.setLonPositiveEastDegrees( p.x * ProjectionUtils.RTD );
-            shifter.setLatDegrees( p.y * ProjectionUtils.RTD );
-            boolean shift = false;
-            try {
-                if ( isInverseTransform() ) {
-                    shift = gsf.gridShiftReverse( shifter );
-                } else {
-                    shift = gsf.gridShiftForward( shifter );
-                }
-            } catch ( IOException e ) {
-                LOG.debug( "Exception occurred: " + e.getLocalizedMessage(), e );
-                LOG.error( "Exception occurred: " + e.getLocalizedMessage() );
-            }
-            if ( !shift ) {
-                StringBuilder sb = new StringBuilder( "Could not do " );
-                sb.append( ( isInverseTransform() ? "an inverse" : "a forward" ) ).append( " transform because: " );
-                sb.append( "gridfile is loaded: " ).append( gsf.isLoaded() );
-                SubGrid[] subGridTree = gsf.getSubGridTree();
-                if ( subGridTree == null ) {
-                    sb.append( "no sub grid tree could be retrieved." );
-                } else {
-                    sb.append( "Getting SubGrid for coordinates: " );
-                    sb.append( shifter.getLonPositiveEastDegrees() ).append( "," ).append( shifter.getLatDegrees() );
-                    SubGrid sg = subGridTree[0];
-                    SubGrid forCoord = sg.getSubGridForCoord( shifter.getLonPositiveWestSeconds(),
-                                                              shifter.getLatSeconds() );
-                    if ( forCoord == null ) {
-                        sb.append( ". Retrieval of SubGrid for coordinates: " );
-                        sb.append( shifter.getLonPositiveEastDegrees() ).append( "," );
-                        sb.append( shifter.getLatDegrees() );
-                        sb.append( " Failed." );
-                    }
-                }
-                LOG.info( sb.toString() );
-            } else {
-                StringBuilder sb = new StringBuilder( "Successfully applied " );
-                sb.append( ( isInverseTransform() ? "an inverse" : "a forward" ) ).append(
-                                                                                           " transform for incoming points: " );
-                sb.append( shifter.getLonPositiveEastDegrees() ).append( "," ).append( shifter.getLatDegrees() );
-                sb.append( ", result->" );
-                sb.append( shifter.getShiftedLonPositiveEastDegrees() ).append( "," ).append(
-                                                                                              shifter.getShiftedLatDegrees() );
-                LOG.debug( sb.toString() );
-            }
+            shift( shifter, p.x, p.y );
             // if ( swapToTarget ) {
             // p.x = shifter.getShiftedLatDegrees() * DTR;
             // p.y = shifter.getShiftedLonPositiveEastDegrees() * DTR;
@@ -289,6 +245,67 @@ public class NTv2Transformation extends Transformation {
         return srcPts;
     }
 
+    @Override
+    public void doTransformInPlace( double[] xyz, int offset, int numPoints ) {
+        GridShift shifter = new GridShift();
+        for ( int i = offset, end = offset + 3 * numPoints; i < end; i += 3 ) {
+            shift( shifter, xyz[i], xyz[i + 1] );
+            xyz[i] = shifter.getShiftedLonPositiveEastDegrees() * DTR;
+            xyz[i + 1] = shifter.getShiftedLatDegrees() * DTR;
+        }
+    }
+
+    /**
+     * Applies the grid shift to the given coordinate (in radians), the result can be retrieved from the shifter.
+     */
+    private void shift( GridShift shifter, double x, double y ) {
+        // rb: only degrees are supported :-)
+        shifter.setLonPositiveEastDegrees( x * ProjectionUtils.RTD );
+        shifter.setLatDegrees( y * ProjectionUtils.RTD );
+        boolean shift = false;
+        try {
+            if ( isInverseTransform() ) {
+                shift = gsf.gridShiftReverse( shifter );
+            } else {
+                shift = gsf.gridShiftForward( shifter );
+            }
+        } catch ( IOException e ) {
+            LOG.debug( "Exception occurred: " + e.getLocalizedMessage(), e );
+            LOG.error( "Exception occurred: " + e.getLocalizedMessage() );
+        }
+        if ( !shift ) {
+            StringBuilder sb = new StringBuilder( "Could not do " );
+            sb.append( ( isInverseTransform() ? "an inverse" : "a forward" ) ).append( " transform because: " );
+            sb.append( "gridfile is loaded: " ).append( gsf.isLoaded() );
+            SubGrid[] subGridTree = gsf.getSubGridTree();
+            if ( subGridTree == null ) {
+                sb.append( "no sub grid tree could be retrieved." );
+            } else {
+                sb.append( "Getting SubGrid for coordinates: " );
+                sb.append( shifter.getLonPositiveEastDegrees() ).append( "," ).append( shifter.getLatDegrees() );
+                SubGrid sg = subGridTree[0];
+                SubGrid forCoord = sg.getSubGridForCoord( shifter.getLonPositiveWestSeconds(),
+                                                          shifter.getLatSeconds() );
+                if ( forCoord == null ) {
+                    sb.append( ". Retrieval of SubGrid for coordinates: " );
+                    sb.append( shifter.getLonPositiveEastDegrees() ).append( "," );
+                    sb.append( shifter.getLatDegrees() );
+                    sb.append( " Failed." );
+                }
+            }
+            LOG.info( sb.toString() );
+        } else if ( LOG.isDebugEnabled() ) {
+            StringBuilder sb = new StringBuilder( "Successfully applied " );
+            sb.append( ( isInverseTransform() ? "an inverse" : "a forward" ) ).append(
+                                                                                       " transform for incoming points: " );
+            sb.append( shifter.getLonPositiveEastDegrees() ).append( "," ).append( shifter.getLatDegrees() );
+            sb.append( ", result->" );
+            sb.append( shifter.getShiftedLonPositiveEastDegrees() ).append( "," ).append(
+                                                                                          shifter.getShiftedLatDegrees() );
+            LOG.debug( sb.toString() );
+        }
+    }
+
     @Override
     public String getImplementationName() {
         return "NTv2";
@@ -177,6 +177,22 @@ public class LeastSquareApproximation extends PolynomialTransformation {
         return result;
     }
 
+    @Override
+    public void doTransformInPlace( double[] xyz, int offset, int numPoints )
+                            throws TransformationException {
+        Point2D.Double src = new Point2D.Double();
+        for ( int i = offset, end = offset + 3 * numPoints; i < end; i += 3 ) {
+            src.setLocation( xyz[i], xyz[i + 1] );
+            Point2D r = leastSquarePolynomial.mapDestPoint( src );
+            if ( r == null ) {
+                String p = "(" + xyz[i] + ", " + xyz[i + 1] + ", " + xyz[i + 2] + ")";
+                throw new TransformationException( Messages.getMessage( "CRS_POLYNOMIAL_TRANSFORM_ERROR", p ) );
+            }
+            xyz[i] = r.getX();
+            xyz[i + 1] = r.getY();
+        }
+    }
+
     @Override
     public String getImplementationName() {
         return "leastsquare";
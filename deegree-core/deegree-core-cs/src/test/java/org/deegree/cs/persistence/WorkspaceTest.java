@@ -37,11 +37,18 @@ package org.deegree.cs.persistence;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.deegree.commons.config.DeegreeWorkspace;
 import org.deegree.commons.config.ResourceInitException;
@@ -143,4 +150,48 @@ public class WorkspaceTest {
         ICRS crsGML1 = CRSManager.lookup( CRS_FROM_GML1 );
         assertNotNull( crsGML1 );
     }
+
+    @Test
+    public void testLookupIsCached()
+                            throws UnknownCRSException {
+        ICRS crs = CRSManager.lookup( CRS_FROM_DEEGREE );
+        assertSame( crs, CRSManager.lookup( CRS_FROM_DEEGREE ) );
+        assertSame( crs, CRSManager.lookup( CRS_FROM_DEEGREE.toUpperCase() ) );
+    }
+
+    @Test(expected = UnknownCRSException.class)
+    public void testLookupUnknownCRSIsNotCached()
+                            throws UnknownCRSException {
+        try {
+            CRSManager.lookup( CRS_UNKNOWN );
+        } catch ( UnknownCRSException e ) {
+            // expected, second lookup must fail as well
+        }
+        CRSManager.lookup( CRS_UNKNOWN );
+    }
+
+    @Test
+    public void testConcurrentLookup()
+                            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool( 8 );
+        try {
+            List<Future<ICRS>> results = new ArrayList<Future<ICRS>>();
+            for ( int i = 0; i < 64; i++ ) {
+                results.add( executor.submit( new Callable<ICRS>() {
+                    @Override
+                    public ICRS call()
+                                            throws UnknownCRSException {
+                        return CRSManager.lookup( CRS_FROM_GML1 );
+                    }
+                } ) );
+            }
+            ICRS crs = results.get( 0 ).get();
+            assertNotNull( crs );
+            for ( Future<ICRS> result : results ) {
+                assertSame( crs, result.get() );
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
@@ -0,0 +1,112 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.cs.transformations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.vecmath.Point3d;
+
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.cs.exceptions.TransformationException;
+import org.deegree.cs.exceptions.UnknownCRSException;
+import org.deegree.cs.persistence.CRSManager;
+import org.junit.Test;
+
+/**
+ * Checks that {@link Transformation#doTransformInPlace(double[], int, int)} yields the same results as
+ * {@link Transformation#doTransform(List)}.
+ * 
+ * @since 3.4
+ */
+public class InPlaceTransformationTest {
+
+    private static final double[] LON_LAT = { 4.00788999689501, 52.659800083701924, 7.1, 50.7, 9.0, 48.5, 11.5, 54.2 };
+
+    private static final double[] GK2 = { 2365253.9171053073, 5838184.758315763, 2580000.0, 5620000.0 };
+
+    @Test
+    public void test4326To25832()
+                            throws UnknownCRSException, TransformationException {
+        compare( "epsg:4326", "epsg:25832", LON_LAT );
+    }
+
+    @Test
+    public void test4326To3857()
+                            throws UnknownCRSException, TransformationException {
+        compare( "epsg:4326", "epsg:900913", LON_LAT );
+    }
+
+    @Test
+    public void test31466To4326()
+                            throws UnknownCRSException, TransformationException {
+        compare( "epsg:31466", "epsg:4326", GK2 );
+    }
+
+    @Test
+    public void test4326To31466()
+                            throws UnknownCRSException, TransformationException {
+        compare( "epsg:4326", "epsg:31466", LON_LAT );
+    }
+
+    private void compare( String source, String target, double[] xy )
+                            throws UnknownCRSException, TransformationException {
+        ICRS sourceCRS = CRSManager.lookup( source );
+        ICRS targetCRS = CRSManager.lookup( target );
+        Transformation trans = CRSManager.getTransformation( null, sourceCRS, targetCRS );
+        assertNotNull( trans );
+
+        int numPoints = xy.length / 2;
+        List<Point3d> points = new ArrayList<Point3d>( numPoints );
+        double[] xyz = new double[numPoints * 3];
+        for ( int i = 0; i < numPoints; i++ ) {
+            points.add( new Point3d( xy[2 * i], xy[2 * i + 1], Double.NaN ) );
+            xyz[3 * i] = xy[2 * i];
+            xyz[3 * i + 1] = xy[2 * i + 1];
+            xyz[3 * i + 2] = Double.NaN;
+        }
+
+        List<Point3d> expected = trans.doTransform( points );
+        trans.doTransformInPlace( xyz, 0, numPoints );
+
+        for ( int i = 0; i < numPoints; i++ ) {
+            assertEquals( expected.get( i ).x, xyz[3 * i], 1E-9 );
+            assertEquals( expected.get( i ).y, xyz[3 * i + 1], 1E-9 );
+        }
+    }
+}
@@ -110,6 +110,7 @@ import org.deegree.geometry.primitive.segments.LineStringSegment;
 import org.deegree.geometry.primitive.segments.OffsetCurve;
 import org.deegree.geometry.primitive.segments.CurveSegment.CurveSegmentType;
 import org.deegree.geometry.standard.curvesegments.AffinePlacement;
+import org.deegree.geometry.standard.points.PackedPoints;
 import org.deegree.geometry.standard.points.PointsList;
 import org.slf4j.Logger;
 
@@ -809,29 +810,63 @@ public class GeometryTransformer extends Transformer {
     }
 
     /**
-     * transforms the list of points
+     * transforms the list of points (using the packed coordinate transformation, without creating intermediate points)
      * 
      * @throws TransformationException
      */
     private Points transform( Points points, Transformation trans )
                             throws TransformationException {
 
-        List<Point> result = new ArrayList<Point>( points.size() );
-        for ( Point point : points ) {
-            Point3d coord = new Point3d( point.get0(), point.get1(), point.get2() );
-            Point3d tmp = new Point3d( coord );
+        int size = points.size();
+        double[] xyz = new double[size * 3];
+        if ( points instanceof PackedPoints ) {
+            double[] coords = points.getAsArray();
+            int dim = points.getDimension();
+            for ( int i = 0, j = 0; i < size; i++, j += dim ) {
+                xyz[3 * i] = coords[j];
+                xyz[3 * i + 1] = coords[j + 1];
+                xyz[3 * i + 2] = dim > 2 ? coords[j + 2] : Double.NaN;
+            }
+        } else {
+            int i = 0;
+            for ( Point point : points ) {
+                xyz[i++] = point.get0();
+                xyz[i++] = point.get1();
+                xyz[i++] = point.get2();
+            }
+        }
 
-            tmp = trans.doTransform( coord );
+        trans.doTransformInPlace( xyz, 0, size );
 
+        // pass the 3rd coordinate if exist and dimension of source and target CRS is 2
+        boolean passZ = trans.getSourceCRS().getDimension() == 2 && trans.getTargetCRS().getDimension() == 2;
+        if ( points instanceof PackedPoints ) {
+            double[] coords = points.getAsArray();
+            int dim = points.getDimension();
+            double[] result = new double[size * dim];
+            for ( int i = 0, j = 0; i < size; i++, j += dim ) {
+                result[j] = xyz[3 * i];
+                result[j + 1] = xyz[3 * i + 1];
+                if ( dim > 2 ) {
+                    result[j + 2] = passZ ? coords[j + 2] : xyz[3 * i + 2];
+                }
+            }
+            return new PackedPoints( getTargetCRS(), result, dim );
+        }
+
+        List<Point> result = new ArrayList<Point>( size );
+        int i = 0;
+        for ( Point point : points ) {
+            double x = xyz[i++];
+            double y = xyz[i++];
+            double z = xyz[i++];
             if ( Double.isNaN( point.get2() ) ) {
-                result.add( geomFactory.createPoint( point.getId(), new double[] { tmp.x, tmp.y }, getTargetCRS() ) );
+                result.add( geomFactory.createPoint( point.getId(), new double[] { x, y }, getTargetCRS() ) );
             } else {
-                // pass the 3rd coordinate if exist and dimension of source and target CRS is 2
-                if ( trans.getSourceCRS().getDimension() == 2 && trans.getTargetCRS().getDimension() == 2 ) {
-                    tmp.z = point.get2();
+                if ( passZ ) {
+                    z = point.get2();
                 }
-                result.add( geomFactory.createPoint( point.getId(), new double[] { tmp.x, tmp.y, tmp.z },
-                                                     getTargetCRS() ) );
+                result.add( geomFactory.createPoint( point.getId(), new double[] { x, y, z }, getTargetCRS() ) );
             }
         }
         return new PointsList( result );
@@ -35,21 +35,44 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.geometry.io;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.cs.persistence.CRSManager;
 import org.deegree.geometry.Geometry;
-import org.deegree.geometry.standard.AbstractDefaultGeometry;
+import org.deegree.geometry.primitive.LineString;
+import org.deegree.geometry.primitive.Point;
+import org.deegree.geometry.primitive.Polygon;
+import org.deegree.geometry.primitive.Ring;
+import org.deegree.geometry.standard.multi.DefaultMultiGeometry;
+import org.deegree.geometry.standard.multi.DefaultMultiLineString;
+import org.deegree.geometry.standard.multi.DefaultMultiPoint;
+import org.deegree.geometry.standard.multi.DefaultMultiPolygon;
+import org.deegree.geometry.standard.points.PackedPoints;
+import org.deegree.geometry.standard.primitive.DefaultLineString;
+import org.deegree.geometry.standard.primitive.DefaultLinearRing;
 import org.deegree.geometry.standard.primitive.DefaultPoint;
+import org.deegree.geometry.standard.primitive.DefaultPolygon;
 
-import com.vividsolutions.jts.io.InputStreamInStream;
 import com.vividsolutions.jts.io.ParseException;
 
 /**
  * Reads {@link Geometry} objects encoded as Well-Known Binary (WKB).
+ * <p>
+ * Supports OGC WKB (2D, ISO Z/M/ZM type codes) and the PostGIS extended WKB (EWKB) flags for Z, M and an embedded SRID.
+ * Coordinates are decoded directly into {@link PackedPoints}, the JTS representation of the geometries is only built
+ * when it is actually needed. M values are skipped, as they are not supported by deegree geometries.
+ * </p>
  * 
- * TODO re-implement without delegating to JTS TODO add support for non-SFS geometries (e.g. non-linear curves)
+ * TODO add support for non-SFS geometries (e.g. non-linear curves)
  * 
  * @author <a href="mailto:schneider@lat-lon.de">Markus Schneider</a>
  * @author last edited by: $Author$
@@ -58,20 +81,228 @@ import com.vividsolutions.jts.io.ParseException;
  */
 public class WKBReader {
 
-    // TODO remove the need for this object
-    private static AbstractDefaultGeometry defaultGeom = new DefaultPoint( null, null, null, new double[] { 0.0, 0.0 } );
+    static final int WKB_POINT = 1;
 
+    static final int WKB_LINESTRING = 2;
+
+    static final int WKB_POLYGON = 3;
+
+    static final int WKB_MULTIPOINT = 4;
+
+    static final int WKB_MULTILINESTRING = 5;
+
+    static final int WKB_MULTIPOLYGON = 6;
+
+    static final int WKB_GEOMETRYCOLLECTION = 7;
+
+    static final int EWKB_Z_FLAG = 0x80000000;
+
+    static final int EWKB_M_FLAG = 0x40000000;
+
+    static final int EWKB_SRID_FLAG = 0x20000000;
+
+    /**
+     * Reads a geometry from the given (E)WKB bytes.
+     * 
+     * @param wkb
+     *            encoded geometry, must not be <code>null</code>
+     * @param crs
+     *            crs of the geometry, can be <code>null</code> (use the SRID of EWKB, if present)
+     * @return the decoded geometry, or <code>null</code> if the geometry is empty
+     * @throws ParseException
+     *             if the bytes are not valid (E)WKB
+     */
     public static Geometry read( byte[] wkb, ICRS crs )
                             throws ParseException {
-        // com.vividsolutions.jts.io.WKBReader() is not thread safe        
-        return defaultGeom.createFromJTS( new com.vividsolutions.jts.io.WKBReader().read( wkb ), crs );
+        return read( ByteBuffer.wrap( wkb ), crs );
+    }
+
+    /**
+     * Reads a geometry from the given (E)WKB buffer, starting at the current position of the buffer.
+     * <p>
+     * The position of the passed buffer is not modified.
+     * </p>
+     * 
+     * @param wkb
+     *            encoded geometry, must not be <code>null</code>
+     * @param crs
+     *            crs of the geometry, can be <code>null</code> (use the SRID of EWKB, if present)
+     * @return the decoded geometry, or <code>null</code> if the geometry is empty
+     * @throws ParseException
+     *             if the bytes are not valid (E)WKB
+     */
+    public static Geometry read( ByteBuffer wkb, ICRS crs )
+                            throws ParseException {
+        try {
+            return readGeometry( wkb.duplicate(), crs );
+        } catch ( BufferUnderflowException e ) {
+            throw new ParseException( "Unexpected end of WKB data." );
+        }
     }
 
+    /**
+     * Reads a geometry from the given (E)WKB stream.
+     * 
+     * @param is
+     *            encoded geometry, must not be <code>null</code>
+     * @param crs
+     *            crs of the geometry, can be <code>null</code> (use the SRID of EWKB, if present)
+     * @return the decoded geometry, or <code>null</code> if the geometry is empty
+     * @throws IOException
+     * @throws ParseException
+     *             if the bytes are not valid (E)WKB
+     */
     public static Geometry read( InputStream is, ICRS crs )
                             throws IOException, ParseException {
-        // com.vividsolutions.jts.io.WKBReader() is not thread safe
-        return defaultGeom.createFromJTS(
-                                          new com.vividsolutions.jts.io.WKBReader().read( new InputStreamInStream( is ) ),
-                                          crs );
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ( ( read = is.read( buffer ) ) != -1 ) {
+            bos.write( buffer, 0, read );
+        }
+        return read( bos.toByteArray(), crs );
+    }
+
+    private static Geometry readGeometry( ByteBuffer buffer, ICRS crs )
+                            throws ParseException {
+        byte order = buffer.get();
+        if ( order == 0 ) {
+            buffer.order( ByteOrder.BIG_ENDIAN );
+        } else if ( order == 1 ) {
+            buffer.order( ByteOrder.LITTLE_ENDIAN );
+        } else {
+            throw new ParseException( "Invalid WKB byte order: " + order );
+        }
+
+        int typeInt = buffer.getInt();
+        boolean hasZ = ( typeInt & EWKB_Z_FLAG ) != 0;
+        boolean hasM = ( typeInt & EWKB_M_FLAG ) != 0;
+        if ( ( typeInt & EWKB_SRID_FLAG ) != 0 ) {
+            int srid = buffer.getInt();
+            if ( crs == null && srid > 0 ) {
+                crs = CRSManager.getCRSRef( "EPSG:" + srid );
+            }
+        }
+
+        // ISO variants: 1000 + type (Z), 2000 + type (M), 3000 + type (ZM)
+        int type = typeInt & 0xFFFF;
+        switch ( type / 1000 ) {
+        case 1:
+            hasZ = true;
+            break;
+        case 2:
+            hasM = true;
+            break;
+        case 3:
+            hasZ = true;
+            hasM = true;
+            break;
+        }
+        type = type % 1000;
+
+        int dim = hasZ ? 3 : 2;
+        int stride = hasM ? dim + 1 : dim;
+
+        switch ( type ) {
+        case WKB_POINT: {
+            double[] coords = readCoordinates( buffer, 1, dim, stride );
+            if ( Double.isNaN( coords[0] ) && Double.isNaN( coords[1] ) ) {
+                // empty point
+                return null;
+            }
+            return new DefaultPoint( null, crs, null, coords );
+        }
+        case WKB_LINESTRING: {
+            int numPoints = readCount( buffer, stride * 8 );
+            if ( numPoints == 0 ) {
+                return null;
+            }
+            double[] coords = readCoordinates( buffer, numPoints, dim, stride );
+            return new DefaultLineString( null, crs, null, new PackedPoints( crs, coords, dim ) );
+        }
+        case WKB_POLYGON: {
+            int numRings = readCount( buffer, 4 );
+            if ( numRings == 0 ) {
+                return null;
+            }
+            Ring exterior = readLinearRing( buffer, crs, dim, stride );
+            List<Ring> interiors = numRings == 1 ? Collections.<Ring> emptyList()
+                                                : new ArrayList<Ring>( numRings - 1 );
+            for ( int i = 1; i < numRings; ++i ) {
+                interiors.add( readLinearRing( buffer, crs, dim, stride ) );
+            }
+            return new DefaultPolygon( null, crs, null, exterior, interiors );
+        }
+        case WKB_MULTIPOINT: {
+            List<Point> members = readMembers( buffer, crs, Point.class );
+            return members.isEmpty() ? null : new DefaultMultiPoint( null, crs, null, members );
+        }
+        case WKB_MULTILINESTRING: {
+            List<LineString> members = readMembers( buffer, crs, LineString.class );
+            return members.isEmpty() ? null : new DefaultMultiLineString( null, crs, null, members );
+        }
+        case WKB_MULTIPOLYGON: {
+            List<Polygon> members = readMembers( buffer, crs, Polygon.class );
+            return members.isEmpty() ? null : new DefaultMultiPolygon( null, crs, null, members );
+        }
+        case WKB_GEOMETRYCOLLECTION: {
+            List<Geometry> members = readMembers( buffer, crs, Geometry.class );
+            return members.isEmpty() ? null : new DefaultMultiGeometry<Geometry>( null, crs, null, members );
+        }
+        default:
+            throw new ParseException( "Unsupported WKB geometry type: " + typeInt );
+        }
+    }
+
+    private static Ring readLinearRing( ByteBuffer buffer, ICRS crs, int dim, int stride )
+                            throws ParseException {
+        int numPoints = readCount( buffer, stride * 8 );
+        double[] coords = readCoordinates( buffer, numPoints, dim, stride );
+        return new DefaultLinearRing( null, crs, null, new PackedPoints( crs, coords, dim ) );
+    }
+
+    private static <T extends Geometry> List<T> readMembers( ByteBuffer buffer, ICRS crs, Class<T> memberType )
+                            throws ParseException {
+        // smallest possible member: byte order, type and an empty count
+        int numMembers = readCount( buffer, 9 );
+        List<T> members = new ArrayList<T>( numMembers );
+        for ( int i = 0; i < numMembers; ++i ) {
+            Geometry member = readGeometry( buffer, crs );
+            if ( member == null ) {
+                // skip empty members
+                continue;
+            }
+            if ( !memberType.isInstance( member ) ) {
+                throw new ParseException( "Invalid WKB member geometry: expected " + memberType.getSimpleName()
+                                          + ", found " + member.getClass().getSimpleName() );
+            }
+            members.add( memberType.cast( member ) );
+        }
+        return members;
+    }
+
+    private static int readCount( ByteBuffer buffer, int minBytesPerElement )
+                            throws ParseException {
+        int count = buffer.getInt();
+        // guard against corrupt counts, so they don't result in huge allocations
+        if ( count < 0 || count > buffer.remaining() / minBytesPerElement ) {
+            throw new ParseException( "Invalid WKB element count: " + count );
+        }
+        return count;
+    }
+
+    private static double[] readCoordinates( ByteBuffer buffer, int numPoints, int dim, int stride ) {
+        double[] coords = new double[numPoints * dim];
+        int i = 0;
+        for ( int p = 0; p < numPoints; ++p ) {
+            for ( int d = 0; d < dim; ++d ) {
+                coords[i++] = buffer.getDouble();
+            }
+            for ( int d = dim; d < stride; ++d ) {
+                // skip M value
+                buffer.getDouble();
+            }
+        }
+        return coords;
     }
-}
\ No newline at end of file
+}
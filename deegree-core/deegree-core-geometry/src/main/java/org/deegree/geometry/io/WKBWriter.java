@@ -35,21 +35,40 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.geometry.io;
 
+import static org.deegree.geometry.io.WKBReader.EWKB_SRID_FLAG;
+import static org.deegree.geometry.io.WKBReader.WKB_GEOMETRYCOLLECTION;
+import static org.deegree.geometry.io.WKBReader.WKB_LINESTRING;
+import static org.deegree.geometry.io.WKBReader.WKB_MULTILINESTRING;
+import static org.deegree.geometry.io.WKBReader.WKB_MULTIPOINT;
+import static org.deegree.geometry.io.WKBReader.WKB_MULTIPOLYGON;
+import static org.deegree.geometry.io.WKBReader.WKB_POINT;
+import static org.deegree.geometry.io.WKBReader.WKB_POLYGON;
+
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 import org.deegree.geometry.Geometry;
+import org.deegree.geometry.multi.MultiGeometry;
+import org.deegree.geometry.points.Points;
+import org.deegree.geometry.primitive.Curve;
+import org.deegree.geometry.primitive.LineString;
+import org.deegree.geometry.primitive.LinearRing;
+import org.deegree.geometry.primitive.Point;
+import org.deegree.geometry.primitive.Polygon;
+import org.deegree.geometry.primitive.Ring;
 import org.deegree.geometry.refs.GeometryReference;
 import org.deegree.geometry.standard.AbstractDefaultGeometry;
-import org.deegree.geometry.standard.primitive.DefaultPoint;
 
-import com.vividsolutions.jts.io.OutputStreamOutStream;
 import com.vividsolutions.jts.io.ParseException;
 
 /**
  * Writes {@link Geometry} objects encoded as Well-Known Binary (WKB).
- * 
- * TODO re-implement without delegating to JTS TODO add support for non-SFS geometries (e.g. non-linear curves)
+ * <p>
+ * The output is two-dimensional and big endian. Points, line strings, linear polygons and collections of them are
+ * encoded directly from their control points. All other geometries are converted to JTS first, so non-linear curve
+ * segments (e.g. arcs) are written as linearized line strings.
+ * </p>
  * 
  * @author <a href="mailto:schneider@lat-lon.de">Markus Schneider</a>
  * @author last edited by: $Author$
@@ -58,22 +77,171 @@ import com.vividsolutions.jts.io.ParseException;
  */
 public class WKBWriter {
 
-    // TODO remove the need for this object
-    private static AbstractDefaultGeometry defaultGeom = new DefaultPoint( null, null, null, new double[] { 0.0, 0.0 } );
+    private static final int HEADER_SIZE = 5;
 
+    private static final int POINT_SIZE = 16;
+
+    /**
+     * Encodes the given geometry as WKB.
+     * 
+     * @param geom
+     *            geometry to encode, must not be <code>null</code>
+     * @return the WKB bytes, never <code>null</code>
+     * @throws ParseException
+     */
     public static byte[] write( Geometry geom )
                             throws ParseException {
-        if ( geom instanceof GeometryReference ) {
-            geom = ( (GeometryReference<Geometry>) geom ).getReferencedObject();
+        geom = dereference( geom );
+        if ( !isSupported( geom ) ) {
+            // com.vividsolutions.jts.io.WKBWriter is not thread safe
+            com.vividsolutions.jts.geom.Geometry jtsGeom = ( (AbstractDefaultGeometry) geom ).getJTSGeometry();
+            return new com.vividsolutions.jts.io.WKBWriter().write( jtsGeom );
+        }
+        ByteBuffer buffer = ByteBuffer.allocate( getSize( geom ) );
+        writeGeometry( geom, buffer );
+        return buffer.array();
+    }
+
+    /**
+     * Encodes the given geometry as PostGIS extended WKB (EWKB) with an embedded SRID.
+     * 
+     * @param geom
+     *            geometry to encode, must not be <code>null</code>
+     * @param srid
+     *            spatial reference identifier, if not positive, plain WKB is written
+     * @return the EWKB bytes, never <code>null</code>
+     * @throws ParseException
+     */
+    public static byte[] write( Geometry geom, int srid )
+                            throws ParseException {
+        byte[] wkb = write( geom );
+        if ( srid <= 0 ) {
+            return wkb;
         }
-        // com.vividsolutions.jts.io.WKBWriter is not thread safe
-        return new com.vividsolutions.jts.io.WKBWriter().write( ( (AbstractDefaultGeometry) geom ).getJTSGeometry() );
+        // insert the SRID after the (big endian) header of the outermost geometry
+        ByteBuffer buffer = ByteBuffer.allocate( wkb.length + 4 );
+        buffer.put( wkb[0] );
+        buffer.putInt( ByteBuffer.wrap( wkb, 1, 4 ).getInt() | EWKB_SRID_FLAG );
+        buffer.putInt( srid );
+        buffer.put( wkb, HEADER_SIZE, wkb.length - HEADER_SIZE );
+        return buffer.array();
     }
 
     public static void write( Geometry geom, OutputStream os )
                             throws IOException, ParseException {
-        // com.vividsolutions.jts.io.WKBWriter is not thread safe
-        new com.vividsolutions.jts.io.WKBWriter().write( ( (AbstractDefaultGeometry) geom ).getJTSGeometry(),
-                                                         new OutputStreamOutStream( os ) );
+        os.write( write( geom ) );
+    }
+
+    private static Geometry dereference( Geometry geom ) {
+        if ( geom instanceof GeometryReference<?> ) {
+            return ( (GeometryReference<?>) geom ).getReferencedObject();
+        }
+        return geom;
+    }
+
+    private static boolean isSupported( Geometry geom ) {
+        if ( geom instanceof Point || isLinearCurve( geom ) ) {
+            return true;
+        }
+        if ( geom instanceof Polygon ) {
+            Polygon polygon = (Polygon) geom;
+            if ( !( polygon.getExteriorRing() instanceof LinearRing ) ) {
+                return false;
+            }
+            for ( Ring ring : polygon.getInteriorRings() ) {
+                if ( !( ring instanceof LinearRing ) ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if ( geom instanceof MultiGeometry<?> && getCollectionType( (MultiGeometry<?>) geom ) != -1 ) {
+            for ( Geometry member : (MultiGeometry<?>) geom ) {
+                if ( !isSupported( dereference( member ) ) ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isLinearCurve( Geometry geom ) {
+        return geom instanceof LineString || geom instanceof LinearRing;
+    }
+
+    private static int getCollectionType( MultiGeometry<?> multi ) {
+        switch ( multi.getMultiGeometryType() ) {
+        case MULTI_POINT:
+            return WKB_MULTIPOINT;
+        case MULTI_LINE_STRING:
+            return WKB_MULTILINESTRING;
+        case MULTI_POLYGON:
+            return WKB_MULTIPOLYGON;
+        case MULTI_GEOMETRY:
+            return WKB_GEOMETRYCOLLECTION;
+        default:
+            return -1;
+        }
+    }
+
+    private static int getSize( Geometry geom ) {
+        if ( geom instanceof Point ) {
+            return HEADER_SIZE + POINT_SIZE;
+        }
+        if ( isLinearCurve( geom ) ) {
+            return HEADER_SIZE + 4 + POINT_SIZE * ( (Curve) geom ).getControlPoints().size();
+        }
+        if ( geom instanceof Polygon ) {
+            Polygon polygon = (Polygon) geom;
+            int size = HEADER_SIZE + 4 + 4 + POINT_SIZE * polygon.getExteriorRing().getControlPoints().size();
+            for ( Ring ring : polygon.getInteriorRings() ) {
+                size += 4 + POINT_SIZE * ring.getControlPoints().size();
+            }
+            return size;
+        }
+        int size = HEADER_SIZE + 4;
+        for ( Geometry member : (MultiGeometry<?>) geom ) {
+            size += getSize( dereference( member ) );
+        }
+        return size;
+    }
+
+    private static void writeGeometry( Geometry geom, ByteBuffer buffer ) {
+        // big endian
+        buffer.put( (byte) 0 );
+        if ( geom instanceof Point ) {
+            Point p = (Point) geom;
+            buffer.putInt( WKB_POINT );
+            buffer.putDouble( p.get0() );
+            buffer.putDouble( p.get1() );
+        } else if ( isLinearCurve( geom ) ) {
+            buffer.putInt( WKB_LINESTRING );
+            writePoints( ( (Curve) geom ).getControlPoints(), buffer );
+        } else if ( geom instanceof Polygon ) {
+            Polygon polygon = (Polygon) geom;
+            buffer.putInt( WKB_POLYGON );
+            buffer.putInt( 1 + polygon.getInteriorRings().size() );
+            writePoints( polygon.getExteriorRing().getControlPoints(), buffer );
+            for ( Ring ring : polygon.getInteriorRings() ) {
+                writePoints( ring.getControlPoints(), buffer );
+            }
+        } else {
+            MultiGeometry<?> multi = (MultiGeometry<?>) geom;
+            buffer.putInt( getCollectionType( multi ) );
+            buffer.putInt( multi.size() );
+            for ( Geometry member : multi ) {
+                writeGeometry( dereference( member ), buffer );
+            }
+        }
+    }
+
+    private static void writePoints( Points points, ByteBuffer buffer ) {
+        int size = points.size();
+        buffer.putInt( size );
+        for ( int i = 0; i < size; ++i ) {
+            buffer.putDouble( points.getX( i ) );
+            buffer.putDouble( points.getY( i ) );
+        }
     }
-}
\ No newline at end of file
+}
@@ -50,6 +50,19 @@ import org.deegree.geometry.Geometry;
  */
 public interface GeometryParticleConverter extends ParticleConverter<Geometry> {
 
+    /**
+     * Returns an SQL snippet for selecting the geometry with a reduced level of detail, i.e. simplified by the database
+     * so that no vertex deviates more than the given tolerance from the stored geometry.
+     * 
+     * @param tableAlias
+     *            alias to use for qualifying the column, can be <code>null</code>
+     * @param tolerance
+     *            maximum deviation (in units of the storage CRS), if not positive, the geometry is selected unchanged
+     * @return select snippet, never <code>null</code> (equals {@link #getSelectSnippet(String)} if the database does
+     *         not support simplification)
+     */
+    public String getSelectSnippet( String tableAlias, double tolerance );
+
     public String getSrid();
 
     public ICRS getCrs();
@@ -212,6 +212,7 @@ public final class ConfigUtils {
         Interpolation interpol = null;
         int maxFeats = -1;
         int rad = -1;
+        double tolerance = -1;
         try {
             alias = Antialias.valueOf( cfg.getAntiAliasing() );
         } catch ( Throwable e ) {
@@ -239,7 +240,10 @@ public final class ConfigUtils {
         } else if ( cfg.getFeatureInfoRadius() != null ) {
             rad = Math.max( 0, cfg.getFeatureInfoRadius() );
         }
-        return new MapOptions( quali, interpol, alias, maxFeats, rad );
+        if ( cfg.getSimplificationTolerance() != null ) {
+            tolerance = Math.max( 0, cfg.getSimplificationTolerance() );
+        }
+        return new MapOptions( quali, interpol, alias, maxFeats, rad, tolerance );
     }
 
     public static Map<String, Dimension<?>> parseDimensions( String layerName, List<DimensionType> dimensions ) {
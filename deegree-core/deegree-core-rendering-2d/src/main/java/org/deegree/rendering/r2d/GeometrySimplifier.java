@@ -0,0 +1,310 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2012 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+ and
+ - Occam Labs UG (haftungsbeschränkt) -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.rendering.r2d;
+
+import static org.deegree.geometry.primitive.Curve.CurveType.LineString;
+import static org.deegree.geometry.primitive.GeometricPrimitive.PrimitiveType.Curve;
+import static org.deegree.geometry.primitive.GeometricPrimitive.PrimitiveType.Surface;
+import static org.deegree.geometry.primitive.Ring.RingType.LinearRing;
+import static org.deegree.geometry.primitive.Surface.SurfaceType.Polygon;
+
+import java.awt.geom.AffineTransform;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.geometry.Geometry;
+import org.deegree.geometry.multi.MultiGeometry;
+import org.deegree.geometry.points.Points;
+import org.deegree.geometry.primitive.Curve;
+import org.deegree.geometry.primitive.GeometricPrimitive;
+import org.deegree.geometry.primitive.LineString;
+import org.deegree.geometry.primitive.Polygon;
+import org.deegree.geometry.primitive.Ring;
+import org.deegree.geometry.primitive.Surface;
+import org.deegree.geometry.standard.multi.DefaultMultiCurve;
+import org.deegree.geometry.standard.multi.DefaultMultiGeometry;
+import org.deegree.geometry.standard.multi.DefaultMultiLineString;
+import org.deegree.geometry.standard.multi.DefaultMultiPolygon;
+import org.deegree.geometry.standard.multi.DefaultMultiSurface;
+import org.deegree.geometry.standard.points.PackedPoints;
+import org.deegree.geometry.standard.primitive.DefaultLineString;
+import org.deegree.geometry.standard.primitive.DefaultLinearRing;
+import org.deegree.geometry.standard.primitive.DefaultPolygon;
+
+/**
+ * Removes vertices that would end up in the same cell of the (screen space) pixel grid as their predecessor, before
+ * the geometries are clipped and converted into Java2D paths.
+ * <p>
+ * The tolerance is the edge length of a grid cell in pixels, a value of <code>0</code> or less disables the
+ * simplification. Only linear geometries (line strings and polygons with linear rings) are simplified, all other
+ * geometries are returned unchanged. The first and the last vertex of a line string or ring are always retained.
+ * Interior rings that collapse to less than a grid cell are dropped, collapsed exterior rings are kept as a minimal
+ * ring so that the geometry still shows up as a dot.
+ * </p>
+ * <p>
+ * The vertex loop works on the coordinates directly and reuses its buffer, so an instance must not be used by more
+ * than one thread at a time (just like the renderer owning it).
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author: stranger $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+class GeometrySimplifier {
+
+    private final AffineTransform worldToScreen;
+
+    private double tolerance;
+
+    private double[] buffer = new double[256];
+
+    GeometrySimplifier( final AffineTransform worldToScreen ) {
+        this.worldToScreen = worldToScreen;
+    }
+
+    /**
+     * @param tolerance
+     *            the edge length of the grid cells in pixels, <code>0</code> or less disables the simplification
+     */
+    void setTolerance( final double tolerance ) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * @return the edge length of the grid cells in pixels, <code>0</code> or less if disabled
+     */
+    double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * @param geom
+     *            the geometry to simplify, may be <code>null</code>, must be in the CRS of the map
+     * @return the simplified geometry, or the original one if nothing could be removed
+     */
+    Geometry simplify( final Geometry geom ) {
+        if ( geom == null || tolerance <= 0 ) {
+            return geom;
+        }
+        switch ( geom.getGeometryType() ) {
+        case PRIMITIVE_GEOMETRY:
+            return simplify( (GeometricPrimitive) geom );
+        case MULTI_GEOMETRY:
+            return simplify( (MultiGeometry<?>) geom );
+        default:
+            return geom;
+        }
+    }
+
+    private Geometry simplify( final GeometricPrimitive geom ) {
+        if ( geom.getPrimitiveType() == Curve && ( (Curve) geom ).getCurveType() == LineString ) {
+            return simplify( (LineString) geom );
+        }
+        if ( geom.getPrimitiveType() == Surface && ( (Surface) geom ).getSurfaceType() == Polygon ) {
+            return simplify( (Polygon) geom );
+        }
+        return geom;
+    }
+
+    private LineString simplify( final LineString geom ) {
+        final Points points = geom.getControlPoints();
+        final int size = simplify( points, 2 );
+        if ( size == points.size() ) {
+            return geom;
+        }
+        return new DefaultLineString( null, geom.getCoordinateSystem(), null, toPoints( geom.getCoordinateSystem(),
+                                                                                        size ) );
+    }
+
+    private Polygon simplify( final Polygon geom ) {
+        final Ring exterior = geom.getExteriorRing();
+        if ( exterior == null || exterior.getRingType() != LinearRing ) {
+            return geom;
+        }
+        final ICRS crs = geom.getCoordinateSystem();
+        boolean changed = false;
+        final Ring simplifiedExterior = simplify( exterior, crs, true );
+        changed = simplifiedExterior != exterior;
+
+        List<Ring> simplifiedInteriors = null;
+        final List<Ring> interiors = geom.getInteriorRings();
+        if ( interiors != null ) {
+            simplifiedInteriors = new ArrayList<Ring>( interiors.size() );
+            for ( final Ring interior : interiors ) {
+                if ( interior.getRingType() != LinearRing ) {
+                    return geom;
+                }
+                final Ring simplifiedInterior = simplify( interior, crs, false );
+                if ( simplifiedInterior != null ) {
+                    simplifiedInteriors.add( simplifiedInterior );
+                }
+                changed |= simplifiedInterior != interior;
+            }
+        }
+        if ( !changed ) {
+            return geom;
+        }
+        return new DefaultPolygon( null, crs, null, simplifiedExterior, simplifiedInteriors );
+    }
+
+    private Ring simplify( final Ring ring, final ICRS crs, final boolean exterior ) {
+        final Points points = ring.getControlPoints();
+        int size = simplify( points, 4 );
+        if ( size == points.size() ) {
+            return ring;
+        }
+        if ( size < 4 ) {
+            if ( !exterior ) {
+                return null;
+            }
+            size = collapse( points );
+        }
+        return new DefaultLinearRing( null, crs, null, toPoints( crs, size ) );
+    }
+
+    @SuppressWarnings("unchecked")
+    private Geometry simplify( final MultiGeometry<?> geom ) {
+        final ICRS crs = geom.getCoordinateSystem();
+        final List members = new ArrayList<Object>( geom.size() );
+        boolean changed = false;
+        for ( final Geometry member : geom ) {
+            final Geometry simplified = simplify( member );
+            changed |= simplified != member;
+            members.add( simplified );
+        }
+        if ( !changed ) {
+            return geom;
+        }
+        switch ( geom.getMultiGeometryType() ) {
+        case MULTI_GEOMETRY:
+            return new DefaultMultiGeometry<Geometry>( null, crs, null, (List<Geometry>) members );
+        case MULTI_CURVE:
+            return new DefaultMultiCurve( null, crs, null, (List<Curve>) members );
+        case MULTI_LINE_STRING:
+            return new DefaultMultiLineString( null, crs, null, (List<LineString>) members );
+        case MULTI_SURFACE:
+            return new DefaultMultiSurface( null, crs, null, (List<Surface>) members );
+        case MULTI_POLYGON:
+            return new DefaultMultiPolygon( null, crs, null, (List<Polygon>) members );
+        default:
+            return geom;
+        }
+    }
+
+    /**
+     * Copies the retained vertices of the given points into the buffer (as x/y pairs).
+     * 
+     * @param points
+     *            the vertices to simplify
+     * @param minSize
+     *            the number of vertices below which the result is considered collapsed
+     * @return the number of retained vertices, equal to the number of input vertices if nothing was removed
+     */
+    private int simplify( final Points points, final int minSize ) {
+        final int n = points.size();
+        if ( n <= minSize ) {
+            return n;
+        }
+        ensureCapacity( n );
+        final double m00 = worldToScreen.getScaleX() / tolerance;
+        final double m01 = worldToScreen.getShearX() / tolerance;
+        final double m10 = worldToScreen.getShearY() / tolerance;
+        final double m11 = worldToScreen.getScaleY() / tolerance;
+        // the translation is irrelevant for the grid cell test, only the cell size matters
+
+        double x = points.getX( 0 );
+        double y = points.getY( 0 );
+        buffer[0] = x;
+        buffer[1] = y;
+        long lastCellX = (long) Math.floor( m00 * x + m01 * y );
+        long lastCellY = (long) Math.floor( m10 * x + m11 * y );
+        int size = 1;
+        for ( int i = 1; i < n - 1; ++i ) {
+            x = points.getX( i );
+            y = points.getY( i );
+            final long cellX = (long) Math.floor( m00 * x + m01 * y );
+            final long cellY = (long) Math.floor( m10 * x + m11 * y );
+            if ( cellX != lastCellX || cellY != lastCellY ) {
+                buffer[2 * size] = x;
+                buffer[2 * size + 1] = y;
+                ++size;
+                lastCellX = cellX;
+                lastCellY = cellY;
+            }
+        }
+        buffer[2 * size] = points.getX( n - 1 );
+        buffer[2 * size + 1] = points.getY( n - 1 );
+        return size + 1;
+    }
+
+    /**
+     * Fills the buffer with a minimal closed ring made from the first vertex and two vertices a third and two thirds
+     * along the original ring.
+     */
+    private int collapse( final Points points ) {
+        final int n = points.size();
+        buffer[0] = points.getX( 0 );
+        buffer[1] = points.getY( 0 );
+        buffer[2] = points.getX( n / 3 );
+        buffer[3] = points.getY( n / 3 );
+        buffer[4] = points.getX( 2 * n / 3 );
+        buffer[5] = points.getY( 2 * n / 3 );
+        buffer[6] = points.getX( n - 1 );
+        buffer[7] = points.getY( n - 1 );
+        return 4;
+    }
+
+    private Points toPoints( final ICRS crs, final int size ) {
+        final double[] coords = new double[2 * size];
+        System.arraycopy( buffer, 0, coords, 0, coords.length );
+        return new PackedPoints( crs, coords, 2 );
+    }
+
+    private void ensureCapacity( final int numPoints ) {
+        if ( buffer.length < 2 * numPoints ) {
+            buffer = new double[Math.max( 2 * numPoints, 2 * buffer.length )];
+        }
+    }
+
+}
@@ -134,6 +134,19 @@ public class Java2DRenderer implements Renderer {
         initRenderers( null );
     }
 
+    /**
+     * Enables the removal of vertices that fall into the same cell of the pixel grid before geometries are clipped
+     * and drawn.
+     * 
+     * @param tolerance
+     *            the edge length of the grid cells in pixels, a value of 0 or less disables the simplification
+     */
+    public void setSimplificationTolerance( double tolerance ) {
+        if ( rendererContext.simplifier != null ) {
+            rendererContext.simplifier.setTolerance( tolerance );
+        }
+    }
+
     private void initRenderers( Envelope bbox ) {
         rendererContext = new RendererContext( pixelSize, res, graphics, this, bbox, width, worldToScreen );
     }
@@ -259,7 +272,8 @@ public class Java2DRenderer implements Renderer {
 
     Geometry transformToWorldCrsAndClip( final Geometry geom ) {
         final Geometry geomInWorldCrs = rendererContext.geomHelper.transform( geom );
-        return rendererContext.clipper.clipGeometry( geomInWorldCrs );
+        final Geometry simplifiedGeom = rendererContext.simplifier.simplify( geomInWorldCrs );
+        return rendererContext.clipper.clipGeometry( simplifiedGeom );
     }
 
 }
@@ -61,6 +61,8 @@ class RendererContext {
 
     GeometryClipper clipper;
 
+    GeometrySimplifier simplifier;
+
     UomCalculator uomCalculator;
 
     Java2DFillRenderer fillRenderer;
@@ -83,6 +85,7 @@ class RendererContext {
         if ( bbox != null ) {
             geomHelper = new GeometryHelper( bbox, width, worldToScreen );
             clipper = new GeometryClipper( bbox, width );
+            simplifier = new GeometrySimplifier( worldToScreen );
         }
         uomCalculator = new UomCalculator( pixelSize, res );
         fillRenderer = new Java2DFillRenderer( uomCalculator, graphics );
@@ -49,14 +49,16 @@ import static java.awt.RenderingHints.VALUE_RENDER_QUALITY;
 import static java.awt.RenderingHints.VALUE_RENDER_SPEED;
 import static java.awt.RenderingHints.VALUE_TEXT_ANTIALIAS_OFF;
 import static java.awt.RenderingHints.VALUE_TEXT_ANTIALIAS_ON;
-import static javax.imageio.ImageIO.write;
 import static org.apache.commons.io.IOUtils.closeQuietly;
+import static org.deegree.commons.utils.image.ImageEncoders.write;
+import static org.deegree.commons.utils.image.ImageEncoders.writeIndexedPng;
 
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import org.deegree.commons.utils.image.PngEncoder;
 import org.deegree.rendering.r2d.Java2DRasterRenderer;
 import org.deegree.rendering.r2d.Java2DRenderer;
 import org.deegree.rendering.r2d.Java2DTextRenderer;
@@ -89,7 +91,20 @@ public class DefaultRenderContext implements RenderContext {
 
     private String format;
 
+    private PngEncoder pngEncoder;
+
     public DefaultRenderContext( RenderingInfo info ) {
+        this( info, null );
+    }
+
+    /**
+     * @param info
+     *            rendering parameters, must not be <code>null</code>
+     * @param pngEncoder
+     *            encoder for PNG output, can be <code>null</code> (default encoder)
+     */
+    public DefaultRenderContext( RenderingInfo info, PngEncoder pngEncoder ) {
+        this.pngEncoder = pngEncoder;
         format = info.getFormat();
         image = ImageUtils.prepareImage( format, info.getWidth(), info.getHeight(), info.getTransparent(),
                                          info.getBgColor() );
@@ -137,10 +152,13 @@ public class DefaultRenderContext implements RenderContext {
                     format = "bmp";
                 }
                 if ( format.equals( "png; subtype=8bit" ) || format.equals( "png; mode=8bit" ) ) {
+                    if ( writeIndexedPng( image, out, pngEncoder ) ) {
+                        return true;
+                    }
                     image = ColorQuantizer.quantizeImage( image, 256, false, false );
                     format = "png";
                 }
-                return write( image, format, out );
+                return write( image, format, out, pngEncoder );
             }
         } finally {
             closeQuietly( out );
@@ -148,6 +166,13 @@ public class DefaultRenderContext implements RenderContext {
         return false;
     }
 
+    /**
+     * @return the image this context paints into, never <code>null</code>
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
     @Override
     public void paintImage( BufferedImage img ) {
         graphics.drawImage( img, 0, 0, null );
@@ -158,6 +183,7 @@ public class DefaultRenderContext implements RenderContext {
         applyQuality( options );
         applyInterpolation( options );
         applyAntialias( options );
+        renderer.setSimplificationTolerance( options.getSimplificationTolerance() );
     }
 
     private void applyAntialias( MapOptions options ) {
@@ -52,13 +52,21 @@ public class MapOptions {
 
     private int featureInfoRadius;
 
+    private double simplificationTolerance;
+
     public MapOptions( Quality quality, Interpolation interpol, Antialias antialias, int maxFeatures,
                        int featureInfoRadius ) {
+        this( quality, interpol, antialias, maxFeatures, featureInfoRadius, -1 );
+    }
+
+    public MapOptions( Quality quality, Interpolation interpol, Antialias antialias, int maxFeatures,
+                       int featureInfoRadius, double simplificationTolerance ) {
         this.quality = quality;
         this.interpol = interpol;
         this.antialias = antialias;
         this.maxFeatures = maxFeatures;
         this.featureInfoRadius = featureInfoRadius;
+        this.simplificationTolerance = simplificationTolerance;
     }
 
     /**
@@ -136,6 +144,22 @@ public class MapOptions {
         this.featureInfoRadius = featureInfoRadius;
     }
 
+    /**
+     * @return the simplificationTolerance (edge length of the pixel grid cells used to drop vertices before
+     *         rendering), a value < 0 means default, 0 means disabled
+     */
+    public double getSimplificationTolerance() {
+        return simplificationTolerance;
+    }
+
+    /**
+     * @param simplificationTolerance
+     *            the simplificationTolerance to set in pixels, a value < 0 means default, 0 means disabled
+     */
+    public void setSimplificationTolerance( double simplificationTolerance ) {
+        this.simplificationTolerance = simplificationTolerance;
+    }
+
     /**
      * <code>Quality</code>
      * 
@@ -58,6 +58,19 @@ public class MapOptionsHelper {
         insertInterpolation( layer, options, layerDefaults, globalDefaults );
         insertMaxFeatures( layer, options, layerDefaults, globalDefaults );
         insertRadius( layer, options, layerDefaults, globalDefaults );
+        insertSimplificationTolerance( layer, options, layerDefaults, globalDefaults );
+    }
+
+    private static void insertSimplificationTolerance( String layer, MapOptionsMaps options,
+                                                       MapOptions layerDefaults, MapOptions globalDefaults ) {
+        if ( options.getSimplificationTolerance( layer ) < 0 ) {
+            if ( layerDefaults != null ) {
+                options.setSimplificationTolerance( layer, layerDefaults.getSimplificationTolerance() );
+            }
+            if ( options.getSimplificationTolerance( layer ) < 0 ) {
+                options.setSimplificationTolerance( layer, globalDefaults.getSimplificationTolerance() );
+            }
+        }
     }
 
     private static void insertRadius( String layer, MapOptionsMaps options, MapOptions layerDefaults,
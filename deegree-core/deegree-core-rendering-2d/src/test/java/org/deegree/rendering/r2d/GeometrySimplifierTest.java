@@ -0,0 +1,174 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+ and
+ - Occam Labs UG (haftungsbeschränkt) -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.rendering.r2d;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.AffineTransform;
+
+import org.deegree.geometry.Geometry;
+import org.deegree.geometry.io.WKTReader;
+import org.deegree.geometry.multi.MultiLineString;
+import org.deegree.geometry.points.Points;
+import org.deegree.geometry.primitive.LineString;
+import org.deegree.geometry.primitive.Polygon;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vividsolutions.jts.io.ParseException;
+
+/**
+ * Test cases for {@link GeometrySimplifier}.
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * 
+ * @since 3.4
+ */
+public class GeometrySimplifierTest {
+
+    private GeometrySimplifier simplifier;
+
+    @Before
+    public void setup() {
+        // one world unit per pixel, y axis flipped like a real map transform
+        final AffineTransform worldToScreen = new AffineTransform( 1, 0, 0, -1, 0, 1000 );
+        simplifier = new GeometrySimplifier( worldToScreen );
+        simplifier.setTolerance( 1 );
+    }
+
+    @Test
+    public void simplifyDisabled()
+                            throws ParseException {
+        simplifier.setTolerance( 0 );
+        final Geometry geom = read( denseLine( 0, 0, 100, 1000 ) );
+        assertSame( geom, simplifier.simplify( geom ) );
+    }
+
+    @Test
+    public void simplifyNull() {
+        assertTrue( simplifier.simplify( null ) == null );
+    }
+
+    @Test
+    public void simplifyLineWithoutSubPixelVertices()
+                            throws ParseException {
+        final Geometry geom = read( "LINESTRING (0.5 0.5,10.5 0.5,10.5 10.5,20.5 10.5)" );
+        assertSame( geom, simplifier.simplify( geom ) );
+    }
+
+    @Test
+    public void simplifyDenseLine()
+                            throws ParseException {
+        // 1000 vertices along 100 pixels
+        final LineString simplified = (LineString) simplifier.simplify( read( denseLine( 0.05, 0.5, 100, 1000 ) ) );
+        final Points points = simplified.getControlPoints();
+        assertEquals( 101, points.size() );
+        assertEquals( 0.05, points.getX( 0 ), 1e-9 );
+        assertEquals( 100.05, points.getX( points.size() - 1 ), 1e-9 );
+        for ( int i = 1; i < points.size(); ++i ) {
+            assertTrue( points.getX( i ) > points.getX( i - 1 ) );
+        }
+    }
+
+    @Test
+    public void simplifyLineCollapsedToOnePixel()
+                            throws ParseException {
+        final LineString simplified = (LineString) simplifier.simplify( read( denseLine( 0.1, 0.5, 0.5, 50 ) ) );
+        assertEquals( 2, simplified.getControlPoints().size() );
+    }
+
+    @Test
+    public void simplifyHonoursTolerance()
+                            throws ParseException {
+        simplifier.setTolerance( 10 );
+        final LineString simplified = (LineString) simplifier.simplify( read( denseLine( 0.05, 0.5, 100, 1000 ) ) );
+        assertEquals( 11, simplified.getControlPoints().size() );
+    }
+
+    @Test
+    public void simplifyPolygonDropsSubPixelHole()
+                            throws ParseException {
+        final String wkt = "POLYGON ((0 0,100 0,100 100,0 100,0 0),(50.1 50.1,50.2 50.1,50.2 50.2,50.1 50.2,50.1 50.1))";
+        final Polygon simplified = (Polygon) simplifier.simplify( read( wkt ) );
+        assertEquals( 5, simplified.getExteriorRing().getControlPoints().size() );
+        assertTrue( simplified.getInteriorRings().isEmpty() );
+    }
+
+    @Test
+    public void simplifySubPixelPolygonKeepsMinimalRing()
+                            throws ParseException {
+        final String wkt = "POLYGON ((50.1 50.1,50.2 50.1,50.3 50.1,50.3 50.2,50.2 50.3,50.1 50.2,50.1 50.1))";
+        final Polygon simplified = (Polygon) simplifier.simplify( read( wkt ) );
+        final Points points = simplified.getExteriorRing().getControlPoints();
+        assertEquals( 4, points.size() );
+        assertEquals( points.getX( 0 ), points.getX( 3 ), 0 );
+        assertEquals( points.getY( 0 ), points.getY( 3 ), 0 );
+    }
+
+    @Test
+    public void simplifyMultiLineString()
+                            throws ParseException {
+        final String wkt = "MULTILINESTRING ((0.5 0.5,0.6 0.5,0.7 0.5,10.5 0.5),(20.5 20.5,30.5 20.5))";
+        final Geometry geom = read( wkt );
+        final MultiLineString simplified = (MultiLineString) simplifier.simplify( geom );
+        assertEquals( 2, simplified.get( 0 ).getControlPoints().size() );
+        assertSame( ( (MultiLineString) geom ).get( 1 ), simplified.get( 1 ) );
+    }
+
+    private static Geometry read( final String wkt )
+                            throws ParseException {
+        return new WKTReader( null ).read( wkt );
+    }
+
+    private static String denseLine( final double startX, final double y, final double length, final int segments ) {
+        final StringBuilder sb = new StringBuilder( "LINESTRING (" );
+        for ( int i = 0; i <= segments; ++i ) {
+            if ( i > 0 ) {
+                sb.append( ',' );
+            }
+            sb.append( startX + length * i / segments ).append( ' ' ).append( y );
+        }
+        return sb.append( ')' ).toString();
+    }
+
+}
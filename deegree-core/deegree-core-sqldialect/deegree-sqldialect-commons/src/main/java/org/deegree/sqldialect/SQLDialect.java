@@ -220,4 +220,38 @@ public interface SQLDialect {
      */
     String getSelectSequenceNextVal( String sequence );
 
+    /**
+     * Returns a <code>SELECT</code> statement for retrieving the next values in the specified DB sequence (one row per
+     * value).
+     * 
+     * @param sequence
+     *            name of the database sequence, must not be <code>null</code>
+     * @param count
+     *            number of values to retrieve, must be greater than zero
+     * @return SQL <code>SELECT</code> statement, never <code>null</code>
+     */
+    String getSelectSequenceNextVals( String sequence, int count );
+
+    /**
+     * Appends a clause to the given <code>SELECT</code> statement that restricts the result to the specified range of
+     * rows (e.g. <code>LIMIT</code>/<code>OFFSET</code>).
+     * <p>
+     * Note that the result is only deterministic if the statement orders the rows by a unique key.
+     * </p>
+     * 
+     * @param sql
+     *            <code>SELECT</code> statement (including the <code>ORDER BY</code> clause, if any), must not be
+     *            <code>null</code>
+     * @param hasOrderBy
+     *            <code>true</code>, if the statement contains an <code>ORDER BY</code> clause, <code>false</code>
+     *            otherwise
+     * @param offset
+     *            number of rows to skip, must not be negative
+     * @param limit
+     *            maximum number of rows to return, -1 (or any value less than 1) for no limit
+     * @return <code>true</code>, if the clause has been appended, <code>false</code> if the database does not support
+     *         restricting the rows (the statement is left untouched in this case)
+     */
+    boolean appendPaging( StringBuilder sql, boolean hasOrderBy, int offset, int limit );
+
 }
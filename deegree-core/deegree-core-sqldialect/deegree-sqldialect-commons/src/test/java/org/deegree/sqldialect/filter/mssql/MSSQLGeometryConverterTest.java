@@ -0,0 +1,89 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.sqldialect.filter.mssql;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests for the select snippets of {@link MSSQLGeometryConverter}.
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ * 
+ * @since 3.4
+ */
+public class MSSQLGeometryConverterTest {
+
+    @Test
+    public void testSelectSnippet() {
+        assertEquals( "X1.geom.STAsBinary()", getConverter( true ).getSelectSnippet( "X1" ) );
+        assertEquals( "geom.STAsBinary()", getConverter( true ).getSelectSnippet( null ) );
+    }
+
+    @Test
+    public void testSelectSnippetSimplified() {
+        assertEquals( "X1.geom.Reduce(0.5).STAsBinary()", getConverter( true ).getSelectSnippet( "X1", 0.5 ) );
+        assertEquals( "geom.Reduce(0.5).STAsBinary()", getConverter( true ).getSelectSnippet( null, 0.5 ) );
+    }
+
+    @Test
+    public void testSelectSnippetNoTolerance() {
+        assertEquals( "X1.geom.STAsBinary()", getConverter( true ).getSelectSnippet( "X1", 0 ) );
+        assertEquals( "X1.geom.STAsBinary()", getConverter( true ).getSelectSnippet( "X1", -1 ) );
+    }
+
+    @Test
+    public void testSelectSnippet3DNotSimplified() {
+        // Reduce() drops z values, so 3D geometries are fetched unchanged
+        assertEquals( "X1.geom.ToString()", getConverter( false ).getSelectSnippet( "X1", 0.5 ) );
+        assertEquals( "geom.ToString()", getConverter( false ).getSelectSnippet( null, 0.5 ) );
+    }
+
+    private MSSQLGeometryConverter getConverter( boolean is2D ) {
+        return new MSSQLGeometryConverter( "geom", null, "4326", is2D );
+    }
+
+}
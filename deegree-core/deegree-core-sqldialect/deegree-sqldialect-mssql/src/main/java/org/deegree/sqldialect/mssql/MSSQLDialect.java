@@ -202,4 +202,30 @@ public class MSSQLDialect implements SQLDialect {
         throw new UnsupportedOperationException(
                                                  "Using DB sequences for FIDs is currently not supported on Microsoft SQL Server." );
     }
+
+    @Override
+    public String getSelectSequenceNextVals( String sequence, int count ) {
+        throw new UnsupportedOperationException(
+                                                 "Using DB sequences for FIDs is currently not supported on Microsoft SQL Server." );
+    }
+
+    /**
+     * Uses <code>OFFSET</code>/<code>FETCH</code>, which requires SQL Server 2012 or later and an <code>ORDER BY</code>
+     * clause.
+     */
+    @Override
+    public boolean appendPaging( StringBuilder sql, boolean hasOrderBy, int offset, int limit ) {
+        if ( !hasOrderBy ) {
+            sql.append( " ORDER BY (SELECT NULL)" );
+        }
+        sql.append( " OFFSET " );
+        sql.append( offset );
+        sql.append( " ROWS" );
+        if ( limit > 0 ) {
+            sql.append( " FETCH NEXT " );
+            sql.append( limit );
+            sql.append( " ROWS ONLY" );
+        }
+        return true;
+    }
 }
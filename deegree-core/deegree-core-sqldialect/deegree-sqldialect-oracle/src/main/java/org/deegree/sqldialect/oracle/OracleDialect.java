@@ -272,4 +272,31 @@ public class OracleDialect implements SQLDialect {
     public String getSelectSequenceNextVal( String sequence ) {
         return "SELECT " + sequence + ".NEXTVAL from DUAL";
     }
+
+    @Override
+    public String getSelectSequenceNextVals( String sequence, int count ) {
+        return "SELECT " + sequence + ".NEXTVAL from DUAL CONNECT BY LEVEL <= " + count;
+    }
+
+    /**
+     * Uses the row limiting clause of Oracle 12c and later. Older versions would require wrapping the statement into a
+     * <code>ROWNUM</code> subquery (which breaks on duplicate column names), so paging is left to the caller.
+     */
+    @Override
+    public boolean appendPaging( StringBuilder sql, boolean hasOrderBy, int offset, int limit ) {
+        if ( versionMajor < 12 ) {
+            return false;
+        }
+        if ( offset > 0 ) {
+            sql.append( " OFFSET " );
+            sql.append( offset );
+            sql.append( " ROWS" );
+        }
+        if ( limit > 0 ) {
+            sql.append( " FETCH NEXT " );
+            sql.append( limit );
+            sql.append( " ROWS ONLY" );
+        }
+        return true;
+    }
 }
\ No newline at end of file
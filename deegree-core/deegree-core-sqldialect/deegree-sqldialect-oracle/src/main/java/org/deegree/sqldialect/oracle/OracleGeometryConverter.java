@@ -105,6 +105,14 @@ public class OracleGeometryConverter implements GeometryParticleConverter {
         return column;
     }
 
+    @Override
+    public String getSelectSnippet( String tableAlias, double tolerance ) {
+        if ( tolerance <= 0 ) {
+            return getSelectSnippet( tableAlias );
+        }
+        return "SDO_UTIL.SIMPLIFY(" + getSelectSnippet( tableAlias ) + "," + tolerance + ")";
+    }
+
     @Override
     public String getSetSnippet( Geometry particle ) {
         return "?";
@@ -0,0 +1,90 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+
+package org.deegree.sqldialect.oracle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link OracleDialect}.
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class OracleDialectTest {
+
+    private static final String SELECT = "SELECT X1.ID FROM T X1 ORDER BY X1.ID";
+
+    @Test
+    public void testAppendPagingOffsetAndFetch() {
+        StringBuilder sql = new StringBuilder( SELECT );
+        assertTrue( new OracleDialect( "S", 12, 1 ).appendPaging( sql, true, 20, 10 ) );
+        assertEquals( SELECT + " OFFSET 20 ROWS FETCH NEXT 10 ROWS ONLY", sql.toString() );
+    }
+
+    @Test
+    public void testAppendPagingFetchOnly() {
+        StringBuilder sql = new StringBuilder( SELECT );
+        assertTrue( new OracleDialect( "S", 12, 1 ).appendPaging( sql, true, 0, 10 ) );
+        assertEquals( SELECT + " FETCH NEXT 10 ROWS ONLY", sql.toString() );
+    }
+
+    @Test
+    public void testAppendPagingOffsetOnly() {
+        StringBuilder sql = new StringBuilder( SELECT );
+        assertTrue( new OracleDialect( "S", 12, 1 ).appendPaging( sql, true, 20, -1 ) );
+        assertEquals( SELECT + " OFFSET 20 ROWS", sql.toString() );
+    }
+
+    @Test
+    public void testAppendPagingUnsupportedBefore12c() {
+        StringBuilder sql = new StringBuilder( SELECT );
+        assertFalse( new OracleDialect( "S", 11, 2 ).appendPaging( sql, true, 20, 10 ) );
+        assertEquals( SELECT, sql.toString() );
+    }
+}
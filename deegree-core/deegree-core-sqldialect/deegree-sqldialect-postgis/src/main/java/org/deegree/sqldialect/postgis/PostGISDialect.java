@@ -290,4 +290,22 @@ public class PostGISDialect implements SQLDialect {
         return "SELECT nextval('" + sequence + "')";
     }
 
+    @Override
+    public String getSelectSequenceNextVals( String sequence, int count ) {
+        return "SELECT nextval('" + sequence + "') FROM generate_series(1," + count + ")";
+    }
+
+    @Override
+    public boolean appendPaging( StringBuilder sql, boolean hasOrderBy, int offset, int limit ) {
+        if ( limit > 0 ) {
+            sql.append( " LIMIT " );
+            sql.append( limit );
+        }
+        if ( offset > 0 ) {
+            sql.append( " OFFSET " );
+            sql.append( offset );
+        }
+        return true;
+    }
+
 }
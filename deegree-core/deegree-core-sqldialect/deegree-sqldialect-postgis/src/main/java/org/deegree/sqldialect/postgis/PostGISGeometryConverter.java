@@ -68,6 +68,9 @@ public class PostGISGeometryConverter implements GeometryParticleConverter {
 
     private final String srid;
 
+    // numeric srid, embedded into the EWKB of inserted geometries (-1 if not available)
+    private final int sridCode;
+
     /**
      * Creates a new {@link PostGISGeometryConverter} instance.
      * 
@@ -85,9 +88,21 @@ public class PostGISGeometryConverter implements GeometryParticleConverter {
         this.column = column;
         this.crs = crs;
         this.srid = srid;
+        this.sridCode = parseSrid( srid );
         this.useLegacyPredicates = useLegacyPredicates;
     }
 
+    private static int parseSrid( String srid ) {
+        if ( srid != null ) {
+            try {
+                return Integer.parseInt( srid.trim() );
+            } catch ( NumberFormatException e ) {
+                LOG.debug( "Non-numeric SRID '{}', inserting plain WKB.", srid );
+            }
+        }
+        return -1;
+    }
+
     @Override
     public String getSelectSnippet( String tableAlias ) {
         String asewkb = useLegacyPredicates ? "AsEWKB" : "ST_AsEWKB";
@@ -97,6 +112,18 @@ public class PostGISGeometryConverter implements GeometryParticleConverter {
         return asewkb + "(" + column + ")";
     }
 
+    @Override
+    public String getSelectSnippet( String tableAlias, double tolerance ) {
+        if ( tolerance <= 0 ) {
+            return getSelectSnippet( tableAlias );
+        }
+        String asewkb = useLegacyPredicates ? "AsEWKB" : "ST_AsEWKB";
+        // preserves topology, so polygons never collapse (unlike ST_Simplify / ST_SnapToGrid)
+        String simplify = useLegacyPredicates ? "SimplifyPreserveTopology" : "ST_SimplifyPreserveTopology";
+        String qualifiedColumn = tableAlias != null ? tableAlias + "." + column : column;
+        return asewkb + "(" + simplify + "(" + qualifiedColumn + "," + tolerance + "))";
+    }
+
     @Override
     public Geometry toParticle( ResultSet rs, int colIndex )
                             throws SQLException {
@@ -113,6 +140,10 @@ public class PostGISGeometryConverter implements GeometryParticleConverter {
 
     @Override
     public String getSetSnippet( Geometry particle ) {
+        if ( sridCode > 0 ) {
+            // the SRID is part of the EWKB (see #setParticle(PreparedStatement, Geometry, int))
+            return useLegacyPredicates ? "GeomFromEWKB(?)" : "ST_GeomFromEWKB(?)";
+        }
         StringBuilder sb = new StringBuilder();
         if ( useLegacyPredicates ) {
             sb.append( "SetSRID(GeomFromWKB(?)," );
@@ -131,7 +162,7 @@ public class PostGISGeometryConverter implements GeometryParticleConverter {
         if ( particle != null ) {
             try {
                 Geometry compatible = getCompatibleGeometry( particle );
-                wkb = WKBWriter.write( compatible );
+                wkb = WKBWriter.write( compatible, sridCode );
             } catch ( Throwable t ) {
                 throw new IllegalArgumentException( t.getMessage(), t );
             }
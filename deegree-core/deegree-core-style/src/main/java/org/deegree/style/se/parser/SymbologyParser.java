@@ -79,6 +79,7 @@ import org.deegree.commons.utils.Pair;
 import org.deegree.commons.utils.Triple;
 import org.deegree.commons.xml.stax.XMLStreamUtils;
 import org.deegree.feature.Feature;
+import org.deegree.filter.CompiledFilter;
 import org.deegree.filter.Expression;
 import org.deegree.filter.Filter;
 import org.deegree.filter.FilterEvaluationException;
@@ -1333,6 +1334,9 @@ public class SymbologyParser {
         /** Contains description and so on. */
         public Common common;
 
+        // compiled form of the filter, remembers the source filter as the field is public
+        private volatile Pair<Filter, CompiledFilter> compiled;
+
         public FilterContinuation( Filter filter, LinkedList<Symbolizer<?>> syms, Common common ) {
             this.filter = filter;
             this.syms = syms;
@@ -1342,7 +1346,7 @@ public class SymbologyParser {
         @Override
         public void updateStep( LinkedList<Symbolizer<?>> base, Feature f, XPathEvaluator<Feature> evaluator ) {
             try {
-                if ( filter == null || f == null || filter.evaluate( f, evaluator )
+                if ( filter == null || f == null || getCompiledFilter().evaluate( f, evaluator )
                      || ( base.isEmpty() && filter == ELSEFILTER ) ) {
                     base.addAll( syms );
                 }
@@ -1353,6 +1357,15 @@ public class SymbologyParser {
             }
         }
 
+        private CompiledFilter getCompiledFilter() {
+            Pair<Filter, CompiledFilter> p = compiled;
+            if ( p == null || p.first != filter ) {
+                p = new Pair<Filter, CompiledFilter>( filter, CompiledFilter.compile( filter ) );
+                compiled = p;
+            }
+            return p.second;
+        }
+
         /**
          * @return the symbolizers
          */
@@ -149,6 +149,22 @@ public interface FeatureStore extends Resource {
     FeatureInputStream query( Query[] queries )
                             throws FeatureStoreException, FilterEvaluationException;
 
+    /**
+     * Returns whether the store applies the start index and the maximum number of features of the given queries itself
+     * (see {@link Query#getStartIndex()} and {@link Query#getMaxFeatures()}).
+     * <p>
+     * If this method returns <code>true</code>, {@link #query(Query[])} only returns the requested page of features and
+     * callers must not skip or limit features again. Otherwise, both values are ignored (or only used as a hint) and
+     * callers have to perform the paging on the returned {@link FeatureInputStream}.
+     * </p>
+     *
+     * @param queries
+     *            queries to be performed, must not be <code>null</code> and contain at least one entry
+     * @return <code>true</code>, if start index and maximum number of features are applied by the store,
+     *         <code>false</code> otherwise
+     */
+    boolean isMaxFeaturesAndStartIndexApplicable( Query[] queries );
+
     /**
      * Returns the number of features that are matched by the given query.
      * 
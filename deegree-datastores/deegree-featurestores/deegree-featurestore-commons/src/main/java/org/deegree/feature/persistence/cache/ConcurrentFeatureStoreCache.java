@@ -0,0 +1,286 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.deegree.commons.tom.gml.GMLObject;
+import org.deegree.feature.persistence.FeatureStore;
+
+/**
+ * {@link FeatureStoreCache} that is bounded by the estimated memory size of the cached objects and supports concurrent
+ * access.
+ * <p>
+ * The cache is partitioned into segments (by hash of the object id), each segment is guarded by its own lock and evicts
+ * its least recently used entries when its share of the maximum size is exceeded. Optionally, entries expire after a
+ * fixed time to live. Hit, miss, eviction and expiration counts are tracked and can be accessed via the
+ * {@link ConcurrentFeatureStoreCacheMBean} interface.
+ * </p>
+ * 
+ * @see FeatureStore
+ * @see GMLObjectSizeEstimator
+ * 
+ * @since 3.4
+ */
+public class ConcurrentFeatureStoreCache implements FeatureStoreCache, ConcurrentFeatureStoreCacheMBean {
+
+    private static final int NUM_SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[NUM_SEGMENTS];
+
+    private final long maxSize;
+
+    private final long segmentMaxSize;
+
+    private final long timeToLiveMillis;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final AtomicLong expirations = new AtomicLong();
+
+    /**
+     * Creates a new {@link ConcurrentFeatureStoreCache} instance.
+     * 
+     * @param maxSize
+     *            maximum (estimated) size of all cached objects in bytes, must be positive
+     * @param timeToLiveMillis
+     *            time in milliseconds after which an entry expires, <code>0</code> for no expiration
+     */
+    public ConcurrentFeatureStoreCache( long maxSize, long timeToLiveMillis ) {
+        if ( maxSize <= 0 ) {
+            throw new IllegalArgumentException( "Maximum cache size must be positive." );
+        }
+        this.maxSize = maxSize;
+        this.segmentMaxSize = Math.max( 1, maxSize / NUM_SEGMENTS );
+        this.timeToLiveMillis = timeToLiveMillis;
+        for ( int i = 0; i < NUM_SEGMENTS; i++ ) {
+            segments[i] = new Segment();
+        }
+    }
+
+    @Override
+    public GMLObject get( String id ) {
+        Segment segment = getSegment( id );
+        synchronized ( segment ) {
+            CacheEntry entry = segment.get( id );
+            if ( entry != null ) {
+                if ( !isExpired( entry, System.currentTimeMillis() ) ) {
+                    hits.incrementAndGet();
+                    return entry.object;
+                }
+                segment.removeEntry( id );
+                expirations.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    @Override
+    public void add( GMLObject obj ) {
+        String id = obj.getId();
+        if ( id == null ) {
+            return;
+        }
+        long size = GMLObjectSizeEstimator.estimateSize( obj );
+        Segment segment = getSegment( id );
+        synchronized ( segment ) {
+            if ( size > segmentMaxSize ) {
+                // too large to be cached, but make sure that no outdated version remains
+                segment.removeEntry( id );
+                return;
+            }
+            segment.removeEntry( id );
+            segment.put( id, new CacheEntry( obj, size, System.currentTimeMillis() ) );
+            segment.size += size;
+            evict( segment );
+        }
+    }
+
+    @Override
+    public void remove( String id ) {
+        Segment segment = getSegment( id );
+        synchronized ( segment ) {
+            segment.removeEntry( id );
+        }
+    }
+
+    @Override
+    public void clear() {
+        for ( Segment segment : segments ) {
+            synchronized ( segment ) {
+                segment.clear();
+                segment.size = 0;
+            }
+        }
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public long getExpirationCount() {
+        return expirations.get();
+    }
+
+    @Override
+    public int getEntryCount() {
+        int count = 0;
+        for ( Segment segment : segments ) {
+            synchronized ( segment ) {
+                count += segment.size();
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long getSize() {
+        long size = 0;
+        for ( Segment segment : segments ) {
+            synchronized ( segment ) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public void resetStatistics() {
+        hits.set( 0 );
+        misses.set( 0 );
+        evictions.set( 0 );
+        expirations.set( 0 );
+    }
+
+    @Override
+    public String toString() {
+        return "entries=" + getEntryCount() + ", size=" + getSize() + "/" + maxSize + ", hits=" + hits.get()
+               + ", misses=" + misses.get() + ", evictions=" + evictions.get() + ", expirations=" + expirations.get();
+    }
+
+    private Segment getSegment( String id ) {
+        int h = id.hashCode();
+        // spread bits, so that ids with common suffixes are distributed as well
+        h ^= ( h >>> 16 );
+        return segments[h & ( NUM_SEGMENTS - 1 )];
+    }
+
+    private boolean isExpired( CacheEntry entry, long now ) {
+        return timeToLiveMillis > 0 && now - entry.created > timeToLiveMillis;
+    }
+
+    // segment lock must be held
+    private void evict( Segment segment ) {
+        long now = System.currentTimeMillis();
+        Iterator<CacheEntry> iter = segment.values().iterator();
+        while ( segment.size > segmentMaxSize && iter.hasNext() ) {
+            CacheEntry eldest = iter.next();
+            iter.remove();
+            segment.size -= eldest.size;
+            if ( isExpired( eldest, now ) ) {
+                expirations.incrementAndGet();
+            } else {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private static class CacheEntry {
+
+        private final GMLObject object;
+
+        private final long size;
+
+        private final long created;
+
+        private CacheEntry( GMLObject object, long size, long created ) {
+            this.object = object;
+            this.size = size;
+            this.created = created;
+        }
+    }
+
+    /**
+     * Map of entries in access order (least recently used first) that keeps track of the total size of its entries.
+     */
+    private static class Segment extends LinkedHashMap<String, CacheEntry> {
+
+        private static final long serialVersionUID = -3187246120633585047L;
+
+        private long size;
+
+        private Segment() {
+            super( 64, 0.75f, true );
+        }
+
+        private void removeEntry( String id ) {
+            CacheEntry entry = remove( id );
+            if ( entry != null ) {
+                size -= entry.size;
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.cache;
+
+/**
+ * Management interface of {@link ConcurrentFeatureStoreCache}, exposes the cache statistics (e.g. via JMX).
+ * 
+ * @since 3.4
+ */
+public interface ConcurrentFeatureStoreCacheMBean {
+
+    /**
+     * @return number of lookups that returned a cached object
+     */
+    long getHitCount();
+
+    /**
+     * @return number of lookups that didn't return a cached object
+     */
+    long getMissCount();
+
+    /**
+     * @return ratio of hits to all lookups (between 0 and 1)
+     */
+    double getHitRatio();
+
+    /**
+     * @return number of entries that have been evicted to stay within the maximum size
+     */
+    long getEvictionCount();
+
+    /**
+     * @return number of entries that have been removed because their time to live elapsed
+     */
+    long getExpirationCount();
+
+    /**
+     * @return number of currently cached objects
+     */
+    int getEntryCount();
+
+    /**
+     * @return estimated size of all currently cached objects in bytes
+     */
+    long getSize();
+
+    /**
+     * @return maximum (estimated) size of all cached objects in bytes
+     */
+    long getMaxSize();
+
+    /**
+     * Resets the hit, miss, eviction and expiration counters.
+     */
+    void resetStatistics();
+}
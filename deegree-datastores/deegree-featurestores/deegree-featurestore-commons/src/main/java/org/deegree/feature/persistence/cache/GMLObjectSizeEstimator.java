@@ -0,0 +1,193 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.cache;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.tom.ElementNode;
+import org.deegree.commons.tom.Reference;
+import org.deegree.commons.tom.TypedObjectNode;
+import org.deegree.commons.tom.gml.GMLObject;
+import org.deegree.commons.tom.gml.property.Property;
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.geometry.Geometry;
+import org.deegree.geometry.multi.MultiGeometry;
+import org.deegree.geometry.points.Points;
+import org.deegree.geometry.primitive.Curve;
+import org.deegree.geometry.primitive.Point;
+import org.deegree.geometry.primitive.Surface;
+
+/**
+ * Estimates the memory footprint of {@link GMLObject}s for size-bounded caches.
+ * <p>
+ * The estimate is deliberately cheap: it walks the properties of the object and counts characters of textual values
+ * and coordinates of geometries. Referenced objects are not followed.
+ * </p>
+ * 
+ * @see ConcurrentFeatureStoreCache
+ * 
+ * @since 3.4
+ */
+public class GMLObjectSizeEstimator {
+
+    private static final int OBJECT_OVERHEAD = 64;
+
+    private static final int NODE_OVERHEAD = 48;
+
+    private static final int REFERENCE_SIZE = 64;
+
+    private static final int BYTES_PER_CHAR = 2;
+
+    private static final int BYTES_PER_COORDINATE = 24;
+
+    private static final int UNKNOWN_GEOMETRY_SIZE = 256;
+
+    private GMLObjectSizeEstimator() {
+        // avoid instantiation
+    }
+
+    /**
+     * Returns the estimated memory size of the given object.
+     * 
+     * @param object
+     *            object to be estimated, must not be <code>null</code>
+     * @return estimated size in bytes
+     */
+    public static long estimateSize( GMLObject object ) {
+        if ( object instanceof Reference<?> ) {
+            return REFERENCE_SIZE;
+        }
+        if ( object instanceof Geometry ) {
+            return estimateGeometrySize( (Geometry) object );
+        }
+        long size = OBJECT_OVERHEAD + charSize( object.getId() );
+        List<Property> props = object.getProperties();
+        if ( props != null ) {
+            for ( Property prop : props ) {
+                size += estimateNodeSize( prop );
+            }
+        }
+        return size;
+    }
+
+    private static long estimateNodeSize( TypedObjectNode node ) {
+        if ( node == null ) {
+            return 0;
+        }
+        if ( node instanceof Reference<?> ) {
+            return REFERENCE_SIZE;
+        }
+        if ( node instanceof PrimitiveValue ) {
+            return NODE_OVERHEAD + charSize( ( (PrimitiveValue) node ).getAsText() );
+        }
+        if ( node instanceof Geometry ) {
+            return estimateGeometrySize( (Geometry) node );
+        }
+        if ( node instanceof GMLObject ) {
+            return estimateSize( (GMLObject) node );
+        }
+        long size = NODE_OVERHEAD;
+        if ( node instanceof ElementNode ) {
+            ElementNode el = (ElementNode) node;
+            Map<QName, PrimitiveValue> attrs = el.getAttributes();
+            if ( attrs != null ) {
+                for ( PrimitiveValue attr : attrs.values() ) {
+                    size += estimateNodeSize( attr );
+                }
+            }
+            List<TypedObjectNode> children = el.getChildren();
+            if ( ( children == null || children.isEmpty() ) && node instanceof Property ) {
+                // value may not be contained in the children
+                size += estimateNodeSize( ( (Property) node ).getValue() );
+            } else if ( children != null ) {
+                for ( TypedObjectNode child : children ) {
+                    size += estimateNodeSize( child );
+                }
+            }
+        }
+        return size;
+    }
+
+    private static long estimateGeometrySize( Geometry geom ) {
+        if ( geom instanceof Reference<?> ) {
+            return REFERENCE_SIZE;
+        }
+        try {
+            if ( geom instanceof Point ) {
+                return OBJECT_OVERHEAD + BYTES_PER_COORDINATE;
+            }
+            if ( geom instanceof Curve ) {
+                return OBJECT_OVERHEAD + pointsSize( ( (Curve) geom ).getControlPoints() );
+            }
+            if ( geom instanceof Surface ) {
+                Surface surface = (Surface) geom;
+                long size = OBJECT_OVERHEAD + pointsSize( surface.getExteriorRingCoordinates() );
+                List<Points> interiors = surface.getInteriorRingsCoordinates();
+                if ( interiors != null ) {
+                    for ( Points interior : interiors ) {
+                        size += pointsSize( interior );
+                    }
+                }
+                return size;
+            }
+            if ( geom instanceof MultiGeometry<?> ) {
+                long size = OBJECT_OVERHEAD;
+                for ( Geometry member : (MultiGeometry<?>) geom ) {
+                    size += estimateGeometrySize( member );
+                }
+                return size;
+            }
+        } catch ( UnsupportedOperationException e ) {
+            // e.g. non-linear curve segments or non-planar surface patches
+        } catch ( IllegalArgumentException e ) {
+            // dito
+        }
+        return UNKNOWN_GEOMETRY_SIZE;
+    }
+
+    private static long pointsSize( Points points ) {
+        if ( points == null ) {
+            return 0;
+        }
+        return (long) points.size() * BYTES_PER_COORDINATE;
+    }
+
+    private static long charSize( String s ) {
+        return s == null ? 0 : (long) s.length() * BYTES_PER_CHAR;
+    }
+}
@@ -97,6 +97,12 @@ public class Query {
 
     private int maxFeatures = -1;
 
+    private int startIndex;
+
+    private int lookAhead;
+
+    private boolean paged;
+
     private final List<ProjectionClause> projections;
 
     /**
@@ -277,4 +283,88 @@ public class Query {
     public int getMaxFeatures() {
         return maxFeatures;
     }
+
+    /**
+     * Sets the maximum number of features to be returned.
+     * <p>
+     * Note that {@link FeatureStore} implementations are not required to respect this limit, see
+     * {@link FeatureStore#isMaxFeaturesAndStartIndexApplicable(Query[])}.
+     * </p>
+     * 
+     * @param maxFeatures
+     *            maximum number of features, -1 (or any value less than 1) if no limit needs to be exercised
+     */
+    public void setMaxFeatures( int maxFeatures ) {
+        this.maxFeatures = maxFeatures;
+    }
+
+    /**
+     * Returns the number of matching features to be skipped before the first feature is returned.
+     * 
+     * @return number of features to skip, zero if all features shall be returned
+     */
+    public int getStartIndex() {
+        return startIndex;
+    }
+
+    /**
+     * Sets the number of matching features to be skipped before the first feature is returned.
+     * <p>
+     * Note that {@link FeatureStore} implementations are not required to respect the start index, see
+     * {@link FeatureStore#isMaxFeaturesAndStartIndexApplicable(Query[])}.
+     * </p>
+     * 
+     * @param startIndex
+     *            number of features to skip, must not be negative
+     */
+    public void setStartIndex( int startIndex ) {
+        if ( startIndex < 0 ) {
+            throw new IllegalArgumentException( "Start index must not be negative." );
+        }
+        this.startIndex = startIndex;
+    }
+
+    /**
+     * Returns the number of features that are requested beyond the end of the page, e.g. to detect whether the page is
+     * followed by more features.
+     * 
+     * @return number of additional features (already included in {@link #getMaxFeatures()}), zero by default
+     */
+    public int getLookAhead() {
+        return lookAhead;
+    }
+
+    /**
+     * Sets the number of features that are requested beyond the end of the page.
+     * 
+     * @param lookAhead
+     *            number of additional features (already included in {@link #getMaxFeatures()}), must not be negative
+     */
+    public void setLookAhead( int lookAhead ) {
+        if ( lookAhead < 0 ) {
+            throw new IllegalArgumentException( "Look-ahead must not be negative." );
+        }
+        this.lookAhead = lookAhead;
+    }
+
+    /**
+     * Returns whether the features are requested in pages, i.e. subsequent queries may request the following pages.
+     * 
+     * @return <code>true</code>, if the features must be returned in a stable order, <code>false</code> if
+     *         {@link #getMaxFeatures()} is just a limit (default)
+     */
+    public boolean isPaged() {
+        return paged;
+    }
+
+    /**
+     * Sets whether the features are requested in pages. Only then, {@link FeatureStore} implementations need to return
+     * the features in a stable order (which may be expensive).
+     * 
+     * @param paged
+     *            <code>true</code>, if the features must be returned in a stable order, <code>false</code> otherwise
+     */
+    public void setPaged( boolean paged ) {
+        this.paged = paged;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,284 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.tom.gml.GMLObject;
+import org.deegree.commons.tom.gml.property.Property;
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.feature.GenericFeature;
+import org.deegree.feature.property.GenericProperty;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ConcurrentFeatureStoreCache}.
+ * 
+ * @since 3.4
+ */
+public class ConcurrentFeatureStoreCacheTest {
+
+    private static final QName NAME = new QName( "http://www.deegree.org/app", "name" );
+
+    @Test
+    public void testGetAndAdd() {
+        ConcurrentFeatureStoreCache cache = new ConcurrentFeatureStoreCache( 1024 * 1024, 0 );
+        GMLObject feature = feature( "f1", 10 );
+        cache.add( feature );
+        assertSame( feature, cache.get( "f1" ) );
+        assertNull( cache.get( "f2" ) );
+        assertEquals( 1, cache.getEntryCount() );
+        assertEquals( GMLObjectSizeEstimator.estimateSize( feature ), cache.getSize() );
+    }
+
+    @Test
+    public void testAddReplacesEntry() {
+        ConcurrentFeatureStoreCache cache = new ConcurrentFeatureStoreCache( 1024 * 1024, 0 );
+        cache.add( feature( "f1", 10 ) );
+        GMLObject replacement = feature( "f1", 100 );
+        cache.add( replacement );
+        assertSame( replacement, cache.get( "f1" ) );
+        assertEquals( 1, cache.getEntryCount() );
+        assertEquals( GMLObjectSizeEstimator.estimateSize( replacement ), cache.getSize() );
+    }
+
+    @Test
+    public void testRemoveAndClear() {
+        ConcurrentFeatureStoreCache cache = new ConcurrentFeatureStoreCache( 1024 * 1024, 0 );
+        for ( int i = 0; i < 10; i++ ) {
+            cache.add( feature( "f" + i, 10 ) );
+        }
+        cache.remove( "f0" );
+        assertNull( cache.get( "f0" ) );
+        assertEquals( 9, cache.getEntryCount() );
+        cache.clear();
+        assertEquals( 0, cache.getEntryCount() );
+        assertEquals( 0, cache.getSize() );
+        assertNull( cache.get( "f1" ) );
+    }
+
+    @Test
+    public void testEvictionBySizeEstimate() {
+        GMLObject small = feature( "small", 10 );
+        GMLObject large = feature( "l1000", 1000 );
+        long smallSize = GMLObjectSizeEstimator.estimateSize( small );
+        long largeSize = GMLObjectSizeEstimator.estimateSize( large );
+        assertTrue( largeSize > 10 * smallSize );
+
+        // 16 segments, each holds five large or more than fifty small features
+        long maxSize = 16 * 5 * largeSize;
+        ConcurrentFeatureStoreCache cache = new ConcurrentFeatureStoreCache( maxSize, 0 );
+        for ( int i = 0; i < 1000; i++ ) {
+            cache.add( feature( "small" + i, 10 ) );
+        }
+        long smallEvictions = cache.getEvictionCount();
+        assertEquals( 1000, cache.getEntryCount() + smallEvictions );
+        assertTrue( cache.getSize() <= maxSize );
+
+        cache.clear();
+        cache.resetStatistics();
+        for ( int i = 0; i < 1000; i++ ) {
+            cache.add( feature( "l" + ( 1000 + i ), 1000 ) );
+        }
+        assertEquals( 1000, cache.getEntryCount() + cache.getEvictionCount() );
+        assertTrue( cache.getEntryCount() <= 16 * 5 );
+        assertTrue( cache.getSize() <= maxSize );
+        assertEquals( cache.getEntryCount() * largeSize, cache.getSize() );
+        assertTrue( cache.getEvictionCount() > smallEvictions );
+
+        // the most recently added feature has not been evicted
+        assertEquals( "l1999", cache.get( "l1999" ).getId() );
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        GMLObject feature = feature( "f", 1000 );
+        // room for one entry per segment only
+        long segmentSize = GMLObjectSizeEstimator.estimateSize( feature ) + 100;
+        ConcurrentFeatureStoreCache cache = new ConcurrentFeatureStoreCache( 16 * segmentSize, 0 );
+        cache.add( feature );
+        for ( int i = 0; i < 1000; i++ ) {
+            cache.add( feature( "f" + i, 1000 ) );
+        }
+        assertNull( cache.get( "f" ) );
+        assertTrue( cache.getEntryCount() <= 16 );
+    }
+
+    @Test
+    public void testTooLargeObjectIsNotCached() {
+        ConcurrentFeatureStoreCache cache = new ConcurrentFeatureStoreCache( 16 * 100, 0 );
+        cache.add( feature( "f1", 1000 ) );
+        assertEquals( 0, cache.getEntryCount() );
+        assertEquals( 0, cache.getSize() );
+        assertNull( cache.get( "f1" ) );
+    }
+
+    @Test
+    public void testExpiration()
+                            throws InterruptedException {
+        ConcurrentFeatureStoreCache cache = new ConcurrentFeatureStoreCache( 1024 * 1024, 1 );
+        cache.add( feature( "f1", 10 ) );
+        Thread.sleep( 20 );
+        assertNull( cache.get( "f1" ) );
+        assertEquals( 1, cache.getExpirationCount() );
+        assertEquals( 0, cache.getEntryCount() );
+        assertEquals( 0, cache.getSize() );
+    }
+
+    @Test
+    public void testStatistics() {
+        ConcurrentFeatureStoreCache cache = new ConcurrentFeatureStoreCache( 1024 * 1024, 0 );
+        assertEquals( 0.0, cache.getHitRatio(), 0.0 );
+        cache.add( feature( "f1", 10 ) );
+        cache.get( "f1" );
+        cache.get( "f1" );
+        cache.get( "f1" );
+        cache.get( "f2" );
+        assertEquals( 3, cache.getHitCount() );
+        assertEquals( 1, cache.getMissCount() );
+        assertEquals( 0.75, cache.getHitRatio(), 0.0 );
+        cache.resetStatistics();
+        assertEquals( 0, cache.getHitCount() );
+        assertEquals( 0, cache.getMissCount() );
+        assertEquals( 1, cache.getEntryCount() );
+    }
+
+    @Test
+    public void testMBean()
+                            throws Exception {
+        ConcurrentFeatureStoreCache cache = new ConcurrentFeatureStoreCache( 1024 * 1024, 0 );
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName( "org.deegree:type=FeatureStoreCache,name=test" );
+        server.registerMBean( cache, name );
+        try {
+            cache.add( feature( "f1", 10 ) );
+            cache.get( "f1" );
+            cache.get( "f2" );
+            assertEquals( 1L, server.getAttribute( name, "HitCount" ) );
+            assertEquals( 1L, server.getAttribute( name, "MissCount" ) );
+            assertEquals( 0.5, server.getAttribute( name, "HitRatio" ) );
+            assertEquals( 1, server.getAttribute( name, "EntryCount" ) );
+            assertEquals( 1024L * 1024, server.getAttribute( name, "MaxSize" ) );
+            server.invoke( name, "resetStatistics", null, null );
+            assertEquals( 0L, server.getAttribute( name, "HitCount" ) );
+        } finally {
+            server.unregisterMBean( name );
+        }
+    }
+
+    @Test
+    public void testConcurrentGetAndAdd()
+                            throws Exception {
+        final int numIds = 500;
+        final int numOps = 20000;
+        // small enough to evict entries while the threads are running
+        final ConcurrentFeatureStoreCache cache = new ConcurrentFeatureStoreCache( 100 * 1024, 0 );
+        ExecutorService executor = Executors.newFixedThreadPool( 8 );
+        List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        try {
+            for ( int t = 0; t < 8; t++ ) {
+                final long seed = t;
+                results.add( executor.submit( new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        Random rnd = new Random( seed );
+                        int gets = 0;
+                        for ( int i = 0; i < numOps; i++ ) {
+                            int id = rnd.nextInt( numIds );
+                            if ( rnd.nextBoolean() ) {
+                                GMLObject cached = cache.get( "f" + id );
+                                if ( cached != null ) {
+                                    assertEquals( "f" + id, cached.getId() );
+                                }
+                                gets++;
+                            } else {
+                                cache.add( feature( "f" + id, id ) );
+                            }
+                        }
+                        return gets;
+                    }
+                } ) );
+            }
+            int gets = 0;
+            for ( Future<Integer> result : results ) {
+                gets += result.get();
+            }
+            assertEquals( gets, cache.getHitCount() + cache.getMissCount() );
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // the tracked size must match the cached entries
+        long size = 0;
+        int entries = 0;
+        for ( int id = 0; id < numIds; id++ ) {
+            GMLObject cached = cache.get( "f" + id );
+            if ( cached != null ) {
+                size += GMLObjectSizeEstimator.estimateSize( cached );
+                entries++;
+            }
+        }
+        assertEquals( size, cache.getSize() );
+        assertEquals( entries, cache.getEntryCount() );
+        assertTrue( size <= cache.getMaxSize() );
+        assertTrue( cache.getEvictionCount() > 0 );
+    }
+
+    private static GMLObject feature( String id, int textLength ) {
+        char[] text = new char[textLength];
+        Arrays.fill( text, 'x' );
+        Property prop = new GenericProperty( null, NAME, new PrimitiveValue( new String( text ) ) );
+        return new GenericFeature( null, id, Collections.singletonList( prop ), null );
+    }
+
+}
@@ -0,0 +1,178 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.cache;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.tom.TypedObjectNode;
+import org.deegree.commons.tom.gml.GMLObject;
+import org.deegree.commons.tom.gml.property.Property;
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.feature.GenericFeature;
+import org.deegree.feature.property.GenericProperty;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.geometry.points.Points;
+import org.deegree.geometry.primitive.LineString;
+import org.deegree.geometry.primitive.Point;
+import org.deegree.geometry.primitive.Polygon;
+import org.deegree.geometry.primitive.Ring;
+import org.deegree.geometry.standard.points.PointsArray;
+import org.junit.Test;
+
+/**
+ * Tests for {@link GMLObjectSizeEstimator}.
+ * 
+ * @since 3.4
+ */
+public class GMLObjectSizeEstimatorTest {
+
+    private static final QName NAME = new QName( "http://www.deegree.org/app", "name" );
+
+    private final GeometryFactory fac = new GeometryFactory();
+
+    @Test
+    public void testTextSize() {
+        long size100 = GMLObjectSizeEstimator.estimateSize( feature( "f1", text( 100 ) ) );
+        long size200 = GMLObjectSizeEstimator.estimateSize( feature( "f1", text( 200 ) ) );
+        assertEquals( 200, size200 - size100 );
+    }
+
+    @Test
+    public void testIdSize() {
+        long size = GMLObjectSizeEstimator.estimateSize( feature( "f1", text( 10 ) ) );
+        long longIdSize = GMLObjectSizeEstimator.estimateSize( feature( "f1234", text( 10 ) ) );
+        assertEquals( 6, longIdSize - size );
+    }
+
+    @Test
+    public void testPropertyCount() {
+        long one = GMLObjectSizeEstimator.estimateSize( feature( "f1", text( 10 ) ) );
+        long two = GMLObjectSizeEstimator.estimateSize( feature( "f1", text( 10 ), text( 10 ) ) );
+        assertEquals( 2 * one - GMLObjectSizeEstimator.estimateSize( feature( "f1" ) ), two );
+    }
+
+    @Test
+    public void testLineStringSize() {
+        long size10 = GMLObjectSizeEstimator.estimateSize( lineString( 10 ) );
+        long size20 = GMLObjectSizeEstimator.estimateSize( lineString( 20 ) );
+        long size30 = GMLObjectSizeEstimator.estimateSize( lineString( 30 ) );
+        assertTrue( size20 > size10 );
+        assertEquals( size20 - size10, size30 - size20 );
+    }
+
+    @Test
+    public void testPolygonSize() {
+        Polygon polygon = fac.createPolygon( null, null, ring( 0, 0, 10, 0, 10, 10, 0, 0 ), null );
+        List<Ring> interiors = singletonList( ring( 1, 1, 2, 1, 2, 2, 1, 1 ) );
+        Polygon withHole = fac.createPolygon( null, null, ring( 0, 0, 10, 0, 10, 10, 0, 0 ), interiors );
+        long size = GMLObjectSizeEstimator.estimateSize( polygon );
+        long withHoleSize = GMLObjectSizeEstimator.estimateSize( withHole );
+        long pointSize = GMLObjectSizeEstimator.estimateSize( lineString( 2 ) )
+                         - GMLObjectSizeEstimator.estimateSize( lineString( 1 ) );
+        assertEquals( 4 * pointSize, withHoleSize - size );
+    }
+
+    @Test
+    public void testMultiGeometrySize() {
+        Point point = fac.createPoint( null, 1, 2, null );
+        long pointSize = GMLObjectSizeEstimator.estimateSize( point );
+        List<Point> members = new ArrayList<Point>();
+        members.add( point );
+        long one = GMLObjectSizeEstimator.estimateSize( fac.createMultiPoint( null, null, members ) );
+        members.add( fac.createPoint( null, 3, 4, null ) );
+        long two = GMLObjectSizeEstimator.estimateSize( fac.createMultiPoint( null, null, members ) );
+        assertEquals( pointSize, two - one );
+    }
+
+    @Test
+    public void testGeometryProperty() {
+        long size10 = GMLObjectSizeEstimator.estimateSize( feature( "f1", lineString( 10 ) ) );
+        long size1000 = GMLObjectSizeEstimator.estimateSize( feature( "f1", lineString( 1000 ) ) );
+        assertEquals( GMLObjectSizeEstimator.estimateSize( lineString( 1000 ) )
+                      - GMLObjectSizeEstimator.estimateSize( lineString( 10 ) ), size1000 - size10 );
+    }
+
+    @Test
+    public void testNestedFeature() {
+        GMLObject nested = feature( "nested", text( 500 ) );
+        long nestedSize = GMLObjectSizeEstimator.estimateSize( nested );
+        long size = GMLObjectSizeEstimator.estimateSize( feature( "f1", nested ) );
+        assertTrue( size > nestedSize );
+        assertTrue( size < nestedSize + GMLObjectSizeEstimator.estimateSize( feature( "f1" ) ) + 100 );
+    }
+
+    private static GMLObject feature( String id, TypedObjectNode... values ) {
+        List<Property> props = new ArrayList<Property>();
+        for ( TypedObjectNode value : values ) {
+            props.add( new GenericProperty( null, NAME, value ) );
+        }
+        return new GenericFeature( null, id, props, null );
+    }
+
+    private static PrimitiveValue text( int length ) {
+        char[] text = new char[length];
+        Arrays.fill( text, 'x' );
+        return new PrimitiveValue( new String( text ) );
+    }
+
+    private LineString lineString( int numPoints ) {
+        double[] xy = new double[2 * numPoints];
+        for ( int i = 0; i < xy.length; i++ ) {
+            xy[i] = i;
+        }
+        return fac.createLineString( null, null, points( xy ) );
+    }
+
+    private Ring ring( double... xy ) {
+        return fac.createLinearRing( null, null, points( xy ) );
+    }
+
+    private Points points( double... xy ) {
+        Point[] points = new Point[xy.length / 2];
+        for ( int i = 0; i < points.length; i++ ) {
+            points[i] = fac.createPoint( null, xy[2 * i], xy[2 * i + 1], null );
+        }
+        return new PointsArray( points );
+    }
+
+}
@@ -0,0 +1,258 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.feature.persistence.memory;
+
+import static org.deegree.filter.MatchAction.ALL;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.feature.Feature;
+import org.deegree.filter.Expression;
+import org.deegree.filter.Filter;
+import org.deegree.filter.Operator;
+import org.deegree.filter.OperatorFilter;
+import org.deegree.filter.comparison.BinaryComparisonOperator;
+import org.deegree.filter.comparison.ComparisonOperator;
+import org.deegree.filter.comparison.PropertyIsBetween;
+import org.deegree.filter.expression.Literal;
+import org.deegree.filter.expression.ValueReference;
+import org.deegree.filter.logical.LogicalOperator;
+
+/**
+ * Determines candidate features for a {@link Filter} using the {@link PropertyIndex}es of a feature type.
+ * <p>
+ * Comparisons of indexed properties with literals are answered by the indexes, <code>And</code> intersects the
+ * candidates of all answerable operands and <code>Or</code> unites the candidates if all operands are answerable. The
+ * candidates are a superset of the matching features, the filter still has to be evaluated on them.
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+class FilterPlanner {
+
+    private static final Comparator<Set<Feature>> BY_SIZE = new Comparator<Set<Feature>>() {
+        @Override
+        public int compare( Set<Feature> s1, Set<Feature> s2 ) {
+            return s1.size() - s2.size();
+        }
+    };
+
+    private final Map<QName, PropertyIndex> propNameToIndex;
+
+    /**
+     * Creates a new {@link FilterPlanner} instance.
+     * 
+     * @param propNameToIndex
+     *            indexes of the queried feature type, must not be <code>null</code>
+     */
+    FilterPlanner( Map<QName, PropertyIndex> propNameToIndex ) {
+        this.propNameToIndex = propNameToIndex;
+    }
+
+    /**
+     * Returns the candidates for the given filter.
+     * 
+     * @param filter
+     *            filter, can be <code>null</code>
+     * @return candidate features, or <code>null</code> if the indexes cannot narrow down the candidates
+     */
+    Set<Feature> getCandidates( Filter filter ) {
+        if ( filter instanceof OperatorFilter && !propNameToIndex.isEmpty() ) {
+            return getCandidates( ( (OperatorFilter) filter ).getOperator() );
+        }
+        return null;
+    }
+
+    private Set<Feature> getCandidates( Operator op ) {
+        switch ( op.getType() ) {
+        case COMPARISON:
+            return getCandidates( (ComparisonOperator) op );
+        case LOGICAL:
+            return getCandidates( (LogicalOperator) op );
+        default:
+            return null;
+        }
+    }
+
+    private Set<Feature> getCandidates( LogicalOperator op ) {
+        switch ( op.getSubType() ) {
+        case AND: {
+            List<Set<Feature>> operands = new ArrayList<Set<Feature>>();
+            for ( Operator param : op.getParams() ) {
+                Set<Feature> candidates = getCandidates( param );
+                if ( candidates != null ) {
+                    operands.add( candidates );
+                }
+            }
+            if ( operands.isEmpty() ) {
+                return null;
+            }
+            // start with the smallest set, so every step of the intersection is cheap
+            Collections.sort( operands, BY_SIZE );
+            Set<Feature> candidates = operands.get( 0 );
+            for ( int i = 1; i < operands.size() && !candidates.isEmpty(); i++ ) {
+                candidates.retainAll( operands.get( i ) );
+            }
+            return candidates;
+        }
+        case OR: {
+            Set<Feature> candidates = new LinkedHashSet<Feature>();
+            for ( Operator param : op.getParams() ) {
+                Set<Feature> operandCandidates = getCandidates( param );
+                if ( operandCandidates == null ) {
+                    return null;
+                }
+                candidates.addAll( operandCandidates );
+            }
+            return candidates;
+        }
+        default:
+            // NOT cannot be answered by a superset
+            return null;
+        }
+    }
+
+    private Set<Feature> getCandidates( ComparisonOperator op ) {
+        if ( op.getMatchAction() == ALL ) {
+            // may match features without (non-null) values
+            return null;
+        }
+        switch ( op.getSubType() ) {
+        case PROPERTY_IS_EQUAL_TO:
+        case PROPERTY_IS_LESS_THAN:
+        case PROPERTY_IS_LESS_THAN_OR_EQUAL_TO:
+        case PROPERTY_IS_GREATER_THAN:
+        case PROPERTY_IS_GREATER_THAN_OR_EQUAL_TO:
+            return getCandidates( (BinaryComparisonOperator) op );
+        case PROPERTY_IS_BETWEEN:
+            PropertyIsBetween between = (PropertyIsBetween) op;
+            PropertyIndex index = getIndex( between.getExpression() );
+            PrimitiveValue lower = getLiteral( between.getLowerBoundary() );
+            PrimitiveValue upper = getLiteral( between.getUpperBoundary() );
+            if ( index == null || lower == null || upper == null ) {
+                return null;
+            }
+            return index.getInRange( lower, true, upper, true );
+        default:
+            return null;
+        }
+    }
+
+    private Set<Feature> getCandidates( BinaryComparisonOperator op ) {
+        PropertyIndex index = getIndex( op.getParameter1() );
+        PrimitiveValue literal = getLiteral( op.getParameter2() );
+        // literal op property: flip the comparison
+        boolean flipped = false;
+        if ( index == null || literal == null ) {
+            index = getIndex( op.getParameter2() );
+            literal = getLiteral( op.getParameter1() );
+            flipped = true;
+        }
+        if ( index == null || literal == null ) {
+            return null;
+        }
+
+        ComparisonOperator.SubType subType = op.getSubType();
+        if ( flipped ) {
+            subType = flip( subType );
+        }
+        switch ( subType ) {
+        case PROPERTY_IS_EQUAL_TO:
+            Boolean matchCase = op.isMatchCase();
+            return index.getEqualTo( literal, matchCase == null || matchCase );
+        case PROPERTY_IS_LESS_THAN:
+            return index.getInRange( null, false, literal, false );
+        case PROPERTY_IS_LESS_THAN_OR_EQUAL_TO:
+            return index.getInRange( null, false, literal, true );
+        case PROPERTY_IS_GREATER_THAN:
+            return index.getInRange( literal, false, null, false );
+        case PROPERTY_IS_GREATER_THAN_OR_EQUAL_TO:
+            return index.getInRange( literal, true, null, false );
+        default:
+            return null;
+        }
+    }
+
+    private static ComparisonOperator.SubType flip( ComparisonOperator.SubType subType ) {
+        switch ( subType ) {
+        case PROPERTY_IS_LESS_THAN:
+            return ComparisonOperator.SubType.PROPERTY_IS_GREATER_THAN;
+        case PROPERTY_IS_LESS_THAN_OR_EQUAL_TO:
+            return ComparisonOperator.SubType.PROPERTY_IS_GREATER_THAN_OR_EQUAL_TO;
+        case PROPERTY_IS_GREATER_THAN:
+            return ComparisonOperator.SubType.PROPERTY_IS_LESS_THAN;
+        case PROPERTY_IS_GREATER_THAN_OR_EQUAL_TO:
+            return ComparisonOperator.SubType.PROPERTY_IS_LESS_THAN_OR_EQUAL_TO;
+        default:
+            return subType;
+        }
+    }
+
+    private PropertyIndex getIndex( Expression expr ) {
+        if ( expr instanceof ValueReference ) {
+            QName propName = ( (ValueReference) expr ).getAsQName();
+            if ( propName != null ) {
+                return propNameToIndex.get( propName );
+            }
+        }
+        return null;
+    }
+
+    private static PrimitiveValue getLiteral( Expression expr ) {
+        if ( expr instanceof Literal<?> && ( (Literal<?>) expr ).getValue() instanceof PrimitiveValue ) {
+            return (PrimitiveValue) ( (Literal<?>) expr ).getValue();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,172 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.feature.persistence.memory;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.tom.TypedObjectNode;
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.feature.Feature;
+
+/**
+ * {@link PropertyIndex} that uses hash maps for answering equality comparisons.
+ * <p>
+ * String values are keyed case-insensitively (so the index can be used regardless of <code>matchCase</code>), numbers
+ * are keyed by their normalized decimal value.
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+class HashPropertyIndex extends PropertyIndex {
+
+    private final Map<String, Object> textToFeatures = new HashMap<String, Object>();
+
+    private final Map<BigDecimal, Object> numberToFeatures = new HashMap<BigDecimal, Object>();
+
+    HashPropertyIndex( QName ftName, QName propName ) {
+        super( ftName, propName );
+    }
+
+    private HashPropertyIndex( HashPropertyIndex former ) {
+        super( former );
+        copyEntries( former.textToFeatures, textToFeatures );
+        copyEntries( former.numberToFeatures, numberToFeatures );
+    }
+
+    @Override
+    Set<Feature> getEqualTo( PrimitiveValue literal, boolean matchCase ) {
+        String text = getText( literal );
+        if ( text == null ) {
+            return null;
+        }
+        Set<Feature> candidates = newCandidates();
+        addTo( candidates, textToFeatures.get( foldCase( text ) ) );
+        if ( !numberToFeatures.isEmpty() ) {
+            BigDecimal number = parseNumber( text );
+            if ( number != null ) {
+                addTo( candidates, numberToFeatures.get( number ) );
+            } else if ( matchCase ) {
+                // comparing a number with a non-numerical literal fails during evaluation, don't hide that
+                return null;
+            }
+        }
+        return candidates;
+    }
+
+    @Override
+    Set<Feature> getInRange( PrimitiveValue lower, boolean lowerInclusive, PrimitiveValue upper,
+                             boolean upperInclusive ) {
+        return null;
+    }
+
+    @Override
+    PropertyIndex copy() {
+        return new HashPropertyIndex( this );
+    }
+
+    @Override
+    boolean add( TypedObjectNode value, Feature feature ) {
+        BigDecimal number = getNumberKey( value );
+        if ( number != null ) {
+            put( numberToFeatures, number, feature );
+            return true;
+        }
+        String text = getTextKey( value );
+        if ( text != null ) {
+            put( textToFeatures, text, feature );
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    void remove( TypedObjectNode value, Feature feature ) {
+        BigDecimal number = getNumberKey( value );
+        if ( number != null ) {
+            remove( numberToFeatures, number, feature );
+            return;
+        }
+        String text = getTextKey( value );
+        if ( text != null ) {
+            remove( textToFeatures, text, feature );
+        }
+    }
+
+    @Override
+    void clearKeys() {
+        textToFeatures.clear();
+        numberToFeatures.clear();
+    }
+
+    private static String getTextKey( TypedObjectNode value ) {
+        if ( value instanceof PrimitiveValue ) {
+            PrimitiveValue pv = (PrimitiveValue) value;
+            // case-sensitive comparisons use the value, case-insensitive ones the text
+            if ( pv.getValue() instanceof String && pv.getValue().equals( pv.getAsText() ) ) {
+                return foldCase( (String) pv.getValue() );
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Maps the given string to a key that is equal for all strings that are equal according to
+     * {@link String#equalsIgnoreCase(String)}.
+     */
+    static String foldCase( String s ) {
+        StringBuilder sb = new StringBuilder( s.length() );
+        for ( int i = 0; i < s.length(); ) {
+            int cp = s.codePointAt( i );
+            sb.appendCodePoint( Character.toLowerCase( Character.toUpperCase( cp ) ) );
+            i += Character.charCount( cp );
+        }
+        return sb.toString();
+    }
+}
@@ -35,7 +35,9 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.feature.persistence.memory;
 
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 import javax.xml.namespace.QName;
@@ -93,9 +95,26 @@ public class MemoryFeatureStore implements FeatureStore {
      * @throws FeatureStoreException
      */
     MemoryFeatureStore( AppSchema schema, ICRS storageCRS, DeegreeWorkspace workspace ) throws FeatureStoreException {
+        this( schema, storageCRS, workspace, Collections.<PropertyIndex> emptyList() );
+    }
+
+    /**
+     * Creates a new {@link MemoryFeatureStore} instance for the given {@link AppSchema} that maintains the given
+     * property indexes.
+     * 
+     * @param schema
+     *            application schema, must not be <code>null</code>
+     * @param storageCRS
+     *            crs used for stored geometries, may be <code>null</code> (no transformation on inserts)
+     * @param propIndexes
+     *            (empty) indexes for speeding up property queries, must not be <code>null</code>
+     * @throws FeatureStoreException
+     */
+    MemoryFeatureStore( AppSchema schema, ICRS storageCRS, DeegreeWorkspace workspace, List<PropertyIndex> propIndexes )
+                            throws FeatureStoreException {
         this.schema = schema;
         this.storageCRS = storageCRS;
-        this.storedFeatures = new StoredFeatures( schema, storageCRS, null );
+        this.storedFeatures = new StoredFeatures( schema, storageCRS, propIndexes );
         // TODO
         lockManager = new DefaultLockManager( this, "LOCK_DB", workspace );
     }
@@ -126,6 +145,11 @@ public class MemoryFeatureStore implements FeatureStore {
         return storedFeatures.query( query );
     }
 
+    @Override
+    public boolean isMaxFeaturesAndStartIndexApplicable( Query[] queries ) {
+        return false;
+    }
+
     @Override
     public FeatureInputStream query( final Query[] queries )
                             throws FeatureStoreException, FilterEvaluationException {
@@ -163,7 +187,7 @@ public class MemoryFeatureStore implements FeatureStore {
     @Override
     public int queryHits( org.deegree.feature.persistence.query.Query query )
                             throws FilterEvaluationException, FeatureStoreException {
-        return query( query ).toCollection().size();
+        return storedFeatures.queryHits( query );
     }
 
     @Override
@@ -205,12 +229,23 @@ public class MemoryFeatureStore implements FeatureStore {
             }
         }
 
-        StoredFeatures workingCopy = new StoredFeatures( schema, storageCRS, storedFeatures );
+        StoredFeatures workingCopy = copyStoredFeatures();
         this.activeTransaction = new MemoryFeatureStoreTransaction( this, workingCopy, lockManager );
         this.transactionHolder = Thread.currentThread();
         return this.activeTransaction;
     }
 
+    /**
+     * Returns a copy of the committed features (with their own index structures).
+     * 
+     * @return copy of the committed features, never <code>null</code>
+     * @throws FeatureStoreException
+     */
+    StoredFeatures copyStoredFeatures()
+                            throws FeatureStoreException {
+        return new StoredFeatures( schema, storageCRS, storedFeatures );
+    }
+
     /**
      * Returns the transaction to the datastore. This makes the transaction available to other clients again (via
      * {@link #acquireTransaction()}.
@@ -40,15 +40,18 @@ import static org.deegree.protocol.wfs.transaction.action.IDGenMode.USE_EXISTING
 
 import java.io.File;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import javax.xml.bind.JAXBException;
+import javax.xml.namespace.QName;
 
 import org.deegree.commons.config.DeegreeWorkspace;
 import org.deegree.commons.config.ResourceInitException;
 import org.deegree.commons.config.ResourceManager;
+import org.deegree.commons.tom.gml.property.PropertyType;
 import org.deegree.commons.utils.ProxyUtils;
 import org.deegree.commons.xml.XMLAdapter;
 import org.deegree.cs.coordinatesystems.ICRS;
@@ -63,7 +66,10 @@ import org.deegree.feature.persistence.memory.jaxb.MemoryFeatureStoreConfig;
 import org.deegree.feature.persistence.memory.jaxb.MemoryFeatureStoreConfig.GMLFeatureCollection;
 import org.deegree.feature.persistence.memory.jaxb.MemoryFeatureStoreConfig.GMLSchema;
 import org.deegree.feature.persistence.memory.jaxb.MemoryFeatureStoreConfig.NamespaceHint;
+import org.deegree.feature.persistence.memory.jaxb.PropertyIndexType;
 import org.deegree.feature.types.AppSchema;
+import org.deegree.feature.types.FeatureType;
+import org.deegree.feature.types.property.SimplePropertyType;
 import org.deegree.gml.GMLInputFactory;
 import org.deegree.gml.GMLStreamReader;
 import org.deegree.gml.GMLVersion;
@@ -144,7 +150,8 @@ public class MemoryFeatureStoreProvider implements FeatureStoreProvider {
                 throw new ResourceInitException( msg, e );
             }
 
-            fs = new MemoryFeatureStore( schema, storageSRS, workspace );
+            List<PropertyIndex> propIndexes = getPropertyIndexes( config.getPropertyIndex(), schema );
+            fs = new MemoryFeatureStore( schema, storageSRS, workspace, propIndexes );
             for ( GMLFeatureCollection datasetFile : config.getGMLFeatureCollection() ) {
                 if ( datasetFile != null ) {
                     try {
@@ -179,6 +186,44 @@ public class MemoryFeatureStoreProvider implements FeatureStoreProvider {
         return fs;
     }
 
+    private static List<PropertyIndex> getPropertyIndexes( List<MemoryFeatureStoreConfig.PropertyIndex> jaxbIndexes,
+                                                           AppSchema schema )
+                            throws FeatureStoreException {
+        List<PropertyIndex> propIndexes = new ArrayList<PropertyIndex>( jaxbIndexes.size() );
+        for ( MemoryFeatureStoreConfig.PropertyIndex jaxbIndex : jaxbIndexes ) {
+            QName ftName = jaxbIndex.getFeatureType();
+            QName propName = jaxbIndex.getProperty();
+            FeatureType ft = schema.getFeatureType( ftName );
+            if ( ft == null ) {
+                throw new FeatureStoreException( "Cannot index property '" + propName + "': feature type '" + ftName
+                                                 + "' is not defined in the application schema." );
+            }
+            PropertyType pt = ft.getPropertyDeclaration( propName );
+            if ( pt == null ) {
+                throw new FeatureStoreException( "Cannot index property '" + propName
+                                                 + "': not a property of feature type '" + ftName + "'." );
+            }
+            if ( jaxbIndex.getType() == PropertyIndexType.SORTED ) {
+                if ( isNumerical( pt ) ) {
+                    propIndexes.add( new SortedPropertyIndex( ftName, propName ) );
+                    continue;
+                }
+                LOG.warn( "Property '{}' of feature type '{}' is not numerical, using a HASH index instead of SORTED.",
+                          propName, ftName );
+            }
+            propIndexes.add( new HashPropertyIndex( ftName, propName ) );
+        }
+        return propIndexes;
+    }
+
+    private static boolean isNumerical( PropertyType pt ) {
+        if ( pt instanceof SimplePropertyType ) {
+            Class<?> valueClass = ( (SimplePropertyType) pt ).getPrimitiveType().getBaseType().getValueClass();
+            return Number.class.isAssignableFrom( valueClass );
+        }
+        return false;
+    }
+
     private static Map<String, String> getHintMap( List<NamespaceHint> hints ) {
         Map<String, String> prefixToNs = new HashMap<String, String>();
         for ( NamespaceHint namespaceHint : hints ) {
@@ -106,6 +106,9 @@ class MemoryFeatureStoreTransaction implements FeatureStoreTransaction {
 
     private final LockManager lockManager;
 
+    // true, if committed feature instances have been modified in place
+    private boolean featuresUpdated;
+
     /**
      * Creates a new {@link MemoryFeatureStoreTransaction} instance.
      * 
@@ -531,6 +534,7 @@ class MemoryFeatureStoreTransaction implements FeatureStoreTransaction {
 
                 for ( Feature feature : update ) {
                     updatedFids.add( feature.getId() );
+                    featuresUpdated = true;
                     sf.updateFeature( feature, replacementProps );
                     if ( lock != null ) {
                         lock.release( feature.getId() );
@@ -563,6 +567,12 @@ class MemoryFeatureStoreTransaction implements FeatureStoreTransaction {
     @Override
     public void rollback()
                             throws FeatureStoreException {
-        fs.releaseTransaction( this, null );
+        StoredFeatures reindexed = null;
+        if ( featuresUpdated ) {
+            // updates modify the committed feature instances, so their indexes don't match the values anymore
+            reindexed = fs.copyStoredFeatures();
+            reindexed.rebuildPropertyIndexes();
+        }
+        fs.releaseTransaction( this, reindexed );
     }
 }
@@ -0,0 +1,294 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.feature.persistence.memory;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.tom.TypedObjectNode;
+import org.deegree.commons.tom.gml.property.Property;
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.feature.Feature;
+
+/**
+ * Index on the values of a single (simple) property of a feature type, used by {@link FilterPlanner} to narrow down
+ * the features that a filter has to be evaluated on.
+ * <p>
+ * Lookups return a superset of the matching features: features with values that cannot be mapped to index keys are
+ * kept in a separate set and are always returned as candidates. Therefore, the original filter still has to be
+ * evaluated on the returned features.
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+abstract class PropertyIndex {
+
+    private final QName ftName;
+
+    private final QName propName;
+
+    // features with (at least one) value that is not covered by the index keys
+    private final Set<Feature> unindexed;
+
+    PropertyIndex( QName ftName, QName propName ) {
+        this.ftName = ftName;
+        this.propName = propName;
+        this.unindexed = new LinkedHashSet<Feature>();
+    }
+
+    PropertyIndex( PropertyIndex former ) {
+        this.ftName = former.ftName;
+        this.propName = former.propName;
+        this.unindexed = new LinkedHashSet<Feature>( former.unindexed );
+    }
+
+    /**
+     * Returns the name of the indexed feature type.
+     * 
+     * @return name of the indexed feature type, never <code>null</code>
+     */
+    QName getFeatureTypeName() {
+        return ftName;
+    }
+
+    /**
+     * Returns the name of the indexed property.
+     * 
+     * @return name of the indexed property, never <code>null</code>
+     */
+    QName getPropertyName() {
+        return propName;
+    }
+
+    /**
+     * Adds the values of the given feature to the index.
+     * 
+     * @param feature
+     *            feature to be added, must not be <code>null</code>
+     */
+    void add( Feature feature ) {
+        for ( Property prop : feature.getProperties( propName ) ) {
+            if ( !add( prop.getValue(), feature ) ) {
+                unindexed.add( feature );
+            }
+        }
+    }
+
+    /**
+     * Removes the values of the given feature from the index. The feature must not have been modified since it has
+     * been added.
+     * 
+     * @param feature
+     *            feature to be removed, must not be <code>null</code>
+     */
+    void remove( Feature feature ) {
+        for ( Property prop : feature.getProperties( propName ) ) {
+            remove( prop.getValue(), feature );
+        }
+        unindexed.remove( feature );
+    }
+
+    /**
+     * Removes all features from the index.
+     */
+    void clear() {
+        unindexed.clear();
+        clearKeys();
+    }
+
+    /**
+     * Returns candidates for <code>PropertyIsEqualTo</code> with the given literal.
+     * 
+     * @param literal
+     *            literal to compare with, never <code>null</code>
+     * @param matchCase
+     *            true, if the comparison is case sensitive
+     * @return candidate features, or <code>null</code> if the index cannot answer the comparison
+     */
+    abstract Set<Feature> getEqualTo( PrimitiveValue literal, boolean matchCase );
+
+    /**
+     * Returns candidates for numerical range comparisons.
+     * 
+     * @param lower
+     *            lower bound, can be <code>null</code> (unbounded)
+     * @param lowerInclusive
+     *            true, if the lower bound is inclusive
+     * @param upper
+     *            upper bound, can be <code>null</code> (unbounded)
+     * @param upperInclusive
+     *            true, if the upper bound is inclusive
+     * @return candidate features, or <code>null</code> if the index cannot answer the comparison
+     */
+    abstract Set<Feature> getInRange( PrimitiveValue lower, boolean lowerInclusive, PrimitiveValue upper,
+                                      boolean upperInclusive );
+
+    /**
+     * Returns a deep copy of this index.
+     * 
+     * @return copy of this index, never <code>null</code>
+     */
+    abstract PropertyIndex copy();
+
+    /**
+     * Adds the given value to the index keys.
+     * 
+     * @return true, if the value has been indexed, false if the feature needs to be treated as unindexed
+     */
+    abstract boolean add( TypedObjectNode value, Feature feature );
+
+    abstract void remove( TypedObjectNode value, Feature feature );
+
+    abstract void clearKeys();
+
+    Set<Feature> newCandidates() {
+        return new LinkedHashSet<Feature>( unindexed );
+    }
+
+    /**
+     * Returns the number key for the given property value.
+     * 
+     * @return normalized number (suitable for hashing), or <code>null</code> if the value is not a number
+     */
+    static BigDecimal getNumberKey( TypedObjectNode value ) {
+        if ( value instanceof PrimitiveValue && ( (PrimitiveValue) value ).getValue() instanceof Number ) {
+            try {
+                // same conversion as used for comparing numbers, see PrimitiveValue#makeComparable()
+                return normalize( new BigDecimal( ( (PrimitiveValue) value ).getValue().toString() ) );
+            } catch ( NumberFormatException e ) {
+                // NaN or infinity
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parses the given literal text as a number.
+     * 
+     * @return normalized number (suitable for hashing), or <code>null</code> if the text is <code>null</code> or not
+     *         a number
+     */
+    static BigDecimal parseNumber( String text ) {
+        if ( text == null ) {
+            return null;
+        }
+        try {
+            return normalize( new BigDecimal( text ) );
+        } catch ( NumberFormatException e ) {
+            return null;
+        }
+    }
+
+    private static BigDecimal normalize( BigDecimal d ) {
+        return d.signum() == 0 ? BigDecimal.ZERO : d.stripTrailingZeros();
+    }
+
+    /**
+     * Returns the text of the given literal.
+     * 
+     * @return text, or <code>null</code> if the literal does not contain a string
+     */
+    static String getText( PrimitiveValue literal ) {
+        return literal != null && literal.getValue() instanceof String ? (String) literal.getValue() : null;
+    }
+
+    // entries are either single features or sets of features (saves memory for unique values)
+    static <K> void put( Map<K, Object> map, K key, Feature feature ) {
+        Object entry = map.get( key );
+        if ( entry == null ) {
+            map.put( key, feature );
+        } else if ( entry instanceof Feature ) {
+            if ( entry != feature ) {
+                Set<Feature> features = new LinkedHashSet<Feature>( 4 );
+                features.add( (Feature) entry );
+                features.add( feature );
+                map.put( key, features );
+            }
+        } else {
+            asSet( entry ).add( feature );
+        }
+    }
+
+    static <K> void remove( Map<K, Object> map, K key, Feature feature ) {
+        Object entry = map.get( key );
+        if ( entry == feature ) {
+            map.remove( key );
+        } else if ( entry instanceof Set<?> ) {
+            Set<Feature> features = asSet( entry );
+            features.remove( feature );
+            if ( features.isEmpty() ) {
+                map.remove( key );
+            }
+        }
+    }
+
+    static void addTo( Collection<Feature> target, Object entry ) {
+        if ( entry instanceof Feature ) {
+            target.add( (Feature) entry );
+        } else if ( entry != null ) {
+            target.addAll( asSet( entry ) );
+        }
+    }
+
+    static <K> void copyEntries( Map<K, Object> from, Map<K, Object> to ) {
+        for ( Map.Entry<K, Object> entry : from.entrySet() ) {
+            Object value = entry.getValue();
+            if ( value instanceof Set<?> ) {
+                value = new LinkedHashSet<Feature>( asSet( value ) );
+            }
+            to.put( entry.getKey(), value );
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<Feature> asSet( Object entry ) {
+        return (Set<Feature>) entry;
+    }
+}
@@ -0,0 +1,163 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.feature.persistence.memory;
+
+import java.math.BigDecimal;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.tom.TypedObjectNode;
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.feature.Feature;
+
+/**
+ * {@link PropertyIndex} for numerical properties that keeps the values sorted, so it can answer equality as well as
+ * range comparisons (<code>PropertyIsLessThan</code>, <code>PropertyIsBetween</code>, ...).
+ * <p>
+ * Non-numerical values are compared lexicographically by the filter evaluation and are therefore not indexed.
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+class SortedPropertyIndex extends PropertyIndex {
+
+    private final TreeMap<BigDecimal, Object> numberToFeatures = new TreeMap<BigDecimal, Object>();
+
+    SortedPropertyIndex( QName ftName, QName propName ) {
+        super( ftName, propName );
+    }
+
+    private SortedPropertyIndex( SortedPropertyIndex former ) {
+        super( former );
+        copyEntries( former.numberToFeatures, numberToFeatures );
+    }
+
+    @Override
+    Set<Feature> getEqualTo( PrimitiveValue literal, boolean matchCase ) {
+        String text = getText( literal );
+        if ( text == null ) {
+            return null;
+        }
+        BigDecimal number = parseNumber( text );
+        if ( number == null ) {
+            // a non-numerical literal matches no indexed number (but fails the evaluation if compared exactly)
+            return matchCase && !numberToFeatures.isEmpty() ? null : newCandidates();
+        }
+        Set<Feature> candidates = newCandidates();
+        addTo( candidates, numberToFeatures.get( number ) );
+        return candidates;
+    }
+
+    @Override
+    Set<Feature> getInRange( PrimitiveValue lower, boolean lowerInclusive, PrimitiveValue upper,
+                             boolean upperInclusive ) {
+        if ( numberToFeatures.isEmpty() ) {
+            // only values that are not numbers (and compared lexicographically)
+            return newCandidates();
+        }
+        BigDecimal lowerNumber = null;
+        if ( lower != null ) {
+            lowerNumber = parseNumber( getText( lower ) );
+            if ( lowerNumber == null ) {
+                return null;
+            }
+        }
+        BigDecimal upperNumber = null;
+        if ( upper != null ) {
+            upperNumber = parseNumber( getText( upper ) );
+            if ( upperNumber == null ) {
+                return null;
+            }
+        }
+
+        NavigableMap<BigDecimal, Object> range = numberToFeatures;
+        if ( lowerNumber != null && upperNumber != null ) {
+            if ( lowerNumber.compareTo( upperNumber ) > 0 ) {
+                return newCandidates();
+            }
+            range = range.subMap( lowerNumber, lowerInclusive, upperNumber, upperInclusive );
+        } else if ( lowerNumber != null ) {
+            range = range.tailMap( lowerNumber, lowerInclusive );
+        } else if ( upperNumber != null ) {
+            range = range.headMap( upperNumber, upperInclusive );
+        }
+        Set<Feature> candidates = newCandidates();
+        for ( Object entry : range.values() ) {
+            addTo( candidates, entry );
+        }
+        return candidates;
+    }
+
+    @Override
+    PropertyIndex copy() {
+        return new SortedPropertyIndex( this );
+    }
+
+    @Override
+    boolean add( TypedObjectNode value, Feature feature ) {
+        BigDecimal number = getNumberKey( value );
+        if ( number != null ) {
+            put( numberToFeatures, number, feature );
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    void remove( TypedObjectNode value, Feature feature ) {
+        BigDecimal number = getNumberKey( value );
+        if ( number != null ) {
+            remove( numberToFeatures, number, feature );
+        }
+    }
+
+    @Override
+    void clearKeys() {
+        numberToFeatures.clear();
+    }
+}
@@ -39,8 +39,10 @@ import static org.deegree.protocol.wfs.transaction.action.UpdateAction.REMOVE;
 import static org.deegree.protocol.wfs.transaction.action.UpdateAction.REPLACE;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
@@ -48,7 +50,7 @@ import java.util.Set;
 
 import javax.xml.namespace.QName;
 
-import org.deegree.commons.index.RTree;
+import org.deegree.commons.index.PackedRTree;
 import org.deegree.commons.tom.Reference;
 import org.deegree.commons.tom.gml.GMLObject;
 import org.deegree.commons.tom.gml.property.Property;
@@ -68,7 +70,8 @@ import org.deegree.feature.stream.FeatureInputStream;
 import org.deegree.feature.stream.MemoryFeatureInputStream;
 import org.deegree.feature.types.AppSchema;
 import org.deegree.feature.types.FeatureType;
-import org.deegree.feature.xpath.TypedObjectNodeXPathEvaluator;
+import org.deegree.filter.CompiledFilter;
+import org.deegree.filter.Filter;
 import org.deegree.filter.FilterEvaluationException;
 import org.deegree.filter.IdFilter;
 import org.deegree.filter.ResourceId;
@@ -85,7 +88,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Encapsulates stored feature instances plus index structures for id and spatial queries.
+ * Encapsulates stored feature instances plus index structures for id, spatial and property queries.
  * 
  * @author <a href="mailto:schneider@lat-lon.de">Markus Schneider</a>
  * @author last edited by: $Author$
@@ -100,13 +103,15 @@ class StoredFeatures {
 
     private final ICRS storageCRS;
 
-    private final TypedObjectNodeXPathEvaluator evaluator = new TypedObjectNodeXPathEvaluator();
-
     private final Map<FeatureType, FeatureCollection> ftToFeatures = new HashMap<FeatureType, FeatureCollection>();
 
     private final Map<String, GMLObject> idToObject = new HashMap<String, GMLObject>();
 
-    private final Map<FeatureType, RTree<Feature>> ftToIndex = new HashMap<FeatureType, RTree<Feature>>();
+    // bulk loaded indexes, dropped for a feature type as soon as its features are modified (until rebuildIndexes())
+    private final Map<FeatureType, PackedRTree<Feature>> ftToIndex = new HashMap<FeatureType, PackedRTree<Feature>>();
+
+    // property indexes, maintained incrementally on every modification
+    private final Map<FeatureType, Map<QName, PropertyIndex>> ftToPropIndexes = new HashMap<FeatureType, Map<QName, PropertyIndex>>();
 
     /**
      * Creates a new {@link StoredFeatures} instance.
@@ -123,6 +128,13 @@ class StoredFeatures {
         this.schema = schema;
         this.storageCRS = storageCRS;
         initFtToFeaturesMap( schema, former );
+        if ( former != null ) {
+            for ( Map.Entry<FeatureType, Map<QName, PropertyIndex>> ftIndexes : former.ftToPropIndexes.entrySet() ) {
+                for ( PropertyIndex index : ftIndexes.getValue().values() ) {
+                    getPropertyIndexes( ftIndexes.getKey() ).put( index.getPropertyName(), index.copy() );
+                }
+            }
+        }
         try {
             rebuildIndexes();
         } catch ( UnknownCRSException e ) {
@@ -130,6 +142,40 @@ class StoredFeatures {
         }
     }
 
+    /**
+     * Creates a new (empty) {@link StoredFeatures} instance that maintains the given property indexes.
+     * 
+     * @param schema
+     *            application schema, must not be <code>null</code>
+     * @param storageCRS
+     *            target CRS for stored geometries, can be <code>null</code> (no CRS normalization)
+     * @param propIndexes
+     *            empty property indexes, must not be <code>null</code>
+     * @throws FeatureStoreException
+     *             if an index refers to a feature type that is not defined in the schema
+     */
+    StoredFeatures( AppSchema schema, ICRS storageCRS, List<PropertyIndex> propIndexes ) throws FeatureStoreException {
+        this( schema, storageCRS, (StoredFeatures) null );
+        for ( PropertyIndex index : propIndexes ) {
+            FeatureType ft = schema.getFeatureType( index.getFeatureTypeName() );
+            if ( ft == null ) {
+                String msg = "Cannot index property '" + index.getPropertyName() + "': feature type '"
+                             + index.getFeatureTypeName() + "' is not served by this feature store.";
+                throw new FeatureStoreException( msg );
+            }
+            getPropertyIndexes( ft ).put( index.getPropertyName(), index );
+        }
+    }
+
+    private Map<QName, PropertyIndex> getPropertyIndexes( FeatureType ft ) {
+        Map<QName, PropertyIndex> propIndexes = ftToPropIndexes.get( ft );
+        if ( propIndexes == null ) {
+            propIndexes = new LinkedHashMap<QName, PropertyIndex>();
+            ftToPropIndexes.put( ft, propIndexes );
+        }
+        return propIndexes;
+    }
+
     private void initFtToFeaturesMap( AppSchema schema, StoredFeatures former ) {
         for ( FeatureType ft : schema.getFeatureTypes( null, true, false ) ) {
             FeatureCollection fc = new GenericFeatureCollection();
@@ -171,52 +217,24 @@ class StoredFeatures {
 
         FeatureCollection fc = null;
         if ( query.getTypeNames().length == 1 ) {
-            QName ftName = query.getTypeNames()[0].getFeatureTypeName();
-            FeatureType ft = schema.getFeatureType( ftName );
-            if ( ft == null ) {
-                String msg = "Feature type '" + ftName + "' is not served by this feature store.";
-                throw new FeatureStoreException( msg );
-            }
-
-            // determine / filter features
-            fc = ftToFeatures.get( ft );
-
-            // perform index filtering
-            Envelope ftEnv = ftToFeatures.get( ft ).getEnvelope();
-            if ( query.getPrefilterBBoxEnvelope() != null && ftEnv != null && storageCRS != null ) {
-                Envelope prefilterBox = query.getPrefilterBBoxEnvelope();
-                if ( prefilterBox.getCoordinateSystem() != null
-                     && !prefilterBox.getCoordinateSystem().equals( storageCRS ) ) {
-                    try {
-                        GeometryTransformer t = new GeometryTransformer( storageCRS );
-                        prefilterBox = t.transform( prefilterBox );
-                    } catch ( Exception e ) {
-                        throw new FeatureStoreException( e.getMessage(), e );
+            Collection<Feature> candidates = getCandidates( getFeatureType( query ), query );
+            Filter filter = query.getFilter();
+            if ( filter != null ) {
+                CompiledFilter compiled = CompiledFilter.compile( filter );
+                List<Feature> matchingFeatures = new ArrayList<Feature>();
+                for ( Feature feature : candidates ) {
+                    if ( compiled.evaluate( feature ) ) {
+                        matchingFeatures.add( feature );
                     }
                 }
-
-                float[] floats = toFloats( prefilterBox );
-                RTree<Feature> index = ftToIndex.get( ft );
-                fc = new GenericFeatureCollection( null, index.query( floats ) );
-            }
-
-            if ( query.getFilter() != null ) {
-                fc = fc.getMembers( query.getFilter(), evaluator );
+                fc = new GenericFeatureCollection( null, matchingFeatures );
+            } else if ( candidates instanceof FeatureCollection ) {
+                fc = (FeatureCollection) candidates;
+            } else {
+                fc = new GenericFeatureCollection( null, candidates );
             }
         } else {
-            // must be an id filter based query
-            if ( query.getFilter() == null || !( query.getFilter() instanceof IdFilter ) ) {
-                String msg = "Invalid query. If no type names are specified, it must contain an IdFilter.";
-                throw new FilterEvaluationException( msg );
-            }
-            Set<Feature> features = new HashSet<Feature>();
-            for ( ResourceId id : ( (IdFilter) query.getFilter() ).getSelectedIds() ) {
-                GMLObject object = idToObject.get( id.getRid() );
-                if ( object != null && object instanceof Feature ) {
-                    features.add( (Feature) object );
-                }
-            }
-            fc = new GenericFeatureCollection( null, features );
+            fc = new GenericFeatureCollection( null, getFeaturesById( query ) );
         }
 
         // sort features
@@ -228,6 +246,122 @@ class StoredFeatures {
         return new MemoryFeatureInputStream( fc );
     }
 
+    /**
+     * Determines the number of features that the given {@link Query} would return, without collecting or sorting
+     * them.
+     * 
+     * @param query
+     *            query to be performed, must not be <code>null</code>
+     * @return number of matching features
+     * @throws FilterEvaluationException
+     * @throws FeatureStoreException
+     */
+    int queryHits( Query query )
+                            throws FilterEvaluationException, FeatureStoreException {
+
+        if ( query.getTypeNames() == null || query.getTypeNames().length > 1 ) {
+            String msg = "Join queries between multiple feature types are currently not supported.";
+            throw new UnsupportedOperationException( msg );
+        }
+        if ( query.getTypeNames().length == 0 ) {
+            return getFeaturesById( query ).size();
+        }
+
+        Collection<Feature> candidates = getCandidates( getFeatureType( query ), query );
+        Filter filter = query.getFilter();
+        if ( filter == null ) {
+            return candidates.size();
+        }
+        CompiledFilter compiled = CompiledFilter.compile( filter );
+        int hits = 0;
+        for ( Feature feature : candidates ) {
+            if ( compiled.evaluate( feature ) ) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    private FeatureType getFeatureType( Query query )
+                            throws FeatureStoreException {
+        QName ftName = query.getTypeNames()[0].getFeatureTypeName();
+        FeatureType ft = schema.getFeatureType( ftName );
+        if ( ft == null ) {
+            String msg = "Feature type '" + ftName + "' is not served by this feature store.";
+            throw new FeatureStoreException( msg );
+        }
+        return ft;
+    }
+
+    /**
+     * Returns the features that the filter of the given query has to be evaluated on, narrowed down using the spatial
+     * and property indexes.
+     */
+    private Collection<Feature> getCandidates( FeatureType ft, Query query )
+                            throws FeatureStoreException {
+
+        FeatureCollection fc = ftToFeatures.get( ft );
+
+        // perform index filtering
+        List<Feature> bboxCandidates = null;
+        Envelope ftEnv = fc.getEnvelope();
+        if ( query.getPrefilterBBoxEnvelope() != null && ftEnv != null && storageCRS != null ) {
+            Envelope prefilterBox = query.getPrefilterBBoxEnvelope();
+            ICRS prefilterCrs = prefilterBox.getCoordinateSystem();
+            if ( prefilterCrs != null && !prefilterCrs.equals( storageCRS ) ) {
+                try {
+                    GeometryTransformer t = new GeometryTransformer( storageCRS );
+                    prefilterBox = t.transform( prefilterBox );
+                } catch ( Exception e ) {
+                    throw new FeatureStoreException( e.getMessage(), e );
+                }
+            }
+
+            PackedRTree<Feature> index = ftToIndex.get( ft );
+            if ( index != null ) {
+                bboxCandidates = index.query( toFloats( prefilterBox ) );
+            }
+        }
+
+        Set<Feature> propCandidates = null;
+        Map<QName, PropertyIndex> propIndexes = ftToPropIndexes.get( ft );
+        if ( propIndexes != null ) {
+            propCandidates = new FilterPlanner( propIndexes ).getCandidates( query.getFilter() );
+        }
+
+        if ( propCandidates == null ) {
+            return bboxCandidates != null ? bboxCandidates : fc;
+        }
+        if ( bboxCandidates != null && bboxCandidates.size() < propCandidates.size() ) {
+            List<Feature> candidates = new ArrayList<Feature>( bboxCandidates.size() );
+            for ( Feature feature : bboxCandidates ) {
+                if ( propCandidates.contains( feature ) ) {
+                    candidates.add( feature );
+                }
+            }
+            return candidates;
+        }
+        // the prefilter bbox is part of the filter, so it's fine to skip the spatial index here
+        return propCandidates;
+    }
+
+    private Set<Feature> getFeaturesById( Query query )
+                            throws FilterEvaluationException {
+        // must be an id filter based query
+        if ( query.getFilter() == null || !( query.getFilter() instanceof IdFilter ) ) {
+            String msg = "Invalid query. If no type names are specified, it must contain an IdFilter.";
+            throw new FilterEvaluationException( msg );
+        }
+        Set<Feature> features = new HashSet<Feature>();
+        for ( ResourceId id : ( (IdFilter) query.getFilter() ).getSelectedIds() ) {
+            GMLObject object = idToObject.get( id.getRid() );
+            if ( object != null && object instanceof Feature ) {
+                features.add( (Feature) object );
+            }
+        }
+        return features;
+    }
+
     GMLObject getObjectById( String id ) {
         return idToObject.get( id );
     }
@@ -258,13 +392,12 @@ class StoredFeatures {
         }
         fc.add( feature );
         idToObject.put( feature.getId(), feature );
-        if ( feature.getEnvelope() != null ) {
-            RTree<Feature> rTree = ftToIndex.get( ft );
-            float[] insertBox = toFloats( feature.getEnvelope() );
-            if ( rTree == null ) {
-                rTree = new RTree<Feature>( insertBox, 16 );
+        ftToIndex.remove( ft );
+        Map<QName, PropertyIndex> propIndexes = ftToPropIndexes.get( ft );
+        if ( propIndexes != null ) {
+            for ( PropertyIndex index : propIndexes.values() ) {
+                index.add( feature );
             }
-            rTree.insert( insertBox, feature );
         }
     }
 
@@ -277,14 +410,17 @@ class StoredFeatures {
     void removeFeature( Feature feature ) {
         idToObject.remove( feature.getId() );
         FeatureType ft = feature.getType();
-        RTree<Feature> rTree = ftToIndex.get( ft );
-        if ( rTree != null ) {
-            rTree.remove( feature );
-        }
+        ftToIndex.remove( ft );
         FeatureCollection fc = ftToFeatures.get( ft );
         if ( fc != null ) {
             fc.remove( feature );
         }
+        Map<QName, PropertyIndex> propIndexes = ftToPropIndexes.get( ft );
+        if ( propIndexes != null ) {
+            for ( PropertyIndex index : propIndexes.values() ) {
+                index.remove( feature );
+            }
+        }
     }
 
     /**
@@ -299,7 +435,29 @@ class StoredFeatures {
      */
     void updateFeature( Feature feature, List<ParsedPropertyReplacement> replacementProps )
                             throws FeatureStoreException {
-       
+
+        // geometries may change
+        ftToIndex.remove( feature.getType() );
+
+        // property values may change as well, index keys are determined by the current values
+        Map<QName, PropertyIndex> propIndexes = ftToPropIndexes.get( feature.getType() );
+        if ( propIndexes != null ) {
+            for ( PropertyIndex index : propIndexes.values() ) {
+                index.remove( feature );
+            }
+        }
+        try {
+            replaceProperties( feature, replacementProps );
+        } finally {
+            if ( propIndexes != null ) {
+                for ( PropertyIndex index : propIndexes.values() ) {
+                    index.add( feature );
+                }
+            }
+        }
+    }
+
+    private void replaceProperties( Feature feature, List<ParsedPropertyReplacement> replacementProps ) {
         for ( ParsedPropertyReplacement replacement : replacementProps ) {
             Property prop = replacement.getNewValue();
             UpdateAction updateAction = replacement.getUpdateAction();
@@ -420,6 +578,26 @@ class StoredFeatures {
         }
     }
 
+    /**
+     * Rebuilds the property indexes from the current property values of the stored features.
+     */
+    void rebuildPropertyIndexes() {
+        long begin = System.currentTimeMillis();
+        for ( Map.Entry<FeatureType, Map<QName, PropertyIndex>> ftIndexes : ftToPropIndexes.entrySet() ) {
+            FeatureCollection fc = ftToFeatures.get( ftIndexes.getKey() );
+            for ( PropertyIndex index : ftIndexes.getValue().values() ) {
+                index.clear();
+                if ( fc != null ) {
+                    for ( Feature f : fc ) {
+                        index.add( f );
+                    }
+                }
+            }
+        }
+        long elapsed = System.currentTimeMillis() - begin;
+        LOG.debug( "Rebuilding property indexes took {} [ms]", elapsed );
+    }
+
     void rebuildIndexes()
                             throws UnknownCRSException {
 
@@ -451,7 +629,7 @@ class StoredFeatures {
             FeatureCollection fc = ftToFeatures.get( ft );
             Envelope env = fc.getEnvelope();
             if ( env != null ) {
-                RTree<Feature> index = new RTree<Feature>( toFloats( env ), 16 );
+                PackedRTree<Feature> index = new PackedRTree<Feature>( 16 );
                 List<Pair<float[], Feature>> fBboxes = new ArrayList<Pair<float[], Feature>>( fc.size() );
                 for ( Feature f : fc ) {
                     Envelope fEnv = f.getEnvelope();
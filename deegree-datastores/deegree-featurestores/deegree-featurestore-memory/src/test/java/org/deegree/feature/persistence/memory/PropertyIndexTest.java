@@ -0,0 +1,237 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.feature.persistence.memory;
+
+import static org.deegree.filter.MatchAction.ANY;
+import static org.deegree.gml.GMLVersion.GML_31;
+import static org.deegree.protocol.wfs.transaction.action.IDGenMode.USE_EXISTING;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import junit.framework.Assert;
+
+import org.deegree.commons.config.DeegreeWorkspace;
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.feature.Feature;
+import org.deegree.feature.FeatureCollection;
+import org.deegree.feature.persistence.FeatureStoreTransaction;
+import org.deegree.feature.persistence.query.Query;
+import org.deegree.feature.types.AppSchema;
+import org.deegree.filter.Operator;
+import org.deegree.filter.OperatorFilter;
+import org.deegree.filter.comparison.PropertyIsBetween;
+import org.deegree.filter.comparison.PropertyIsEqualTo;
+import org.deegree.filter.comparison.PropertyIsGreaterThan;
+import org.deegree.filter.comparison.PropertyIsGreaterThanOrEqualTo;
+import org.deegree.filter.comparison.PropertyIsLessThan;
+import org.deegree.filter.expression.Literal;
+import org.deegree.filter.expression.ValueReference;
+import org.deegree.filter.logical.And;
+import org.deegree.filter.logical.Not;
+import org.deegree.filter.logical.Or;
+import org.deegree.gml.GMLInputFactory;
+import org.deegree.gml.GMLStreamReader;
+import org.deegree.gml.schema.GMLAppSchemaReader;
+import org.deegree.protocol.wfs.getfeature.TypeName;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that queries on a {@link MemoryFeatureStore} with {@link PropertyIndex}es return the same features as queries
+ * on a store without indexes.
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class PropertyIndexTest {
+
+    private static final String TESTDATA_DIR = "/org/deegree/gml/feature/testdata/";
+
+    private static final String APP_NS = "http://www.deegree.org/app";
+
+    private static final QName PHILOSOPHER = new QName( APP_NS, "Philosopher" );
+
+    private static final QName ID = new QName( APP_NS, "id" );
+
+    private static final QName NAME = new QName( APP_NS, "name" );
+
+    private static final QName SUBJECT = new QName( APP_NS, "subject" );
+
+    private MemoryFeatureStore plainStore;
+
+    private MemoryFeatureStore indexedStore;
+
+    @Before
+    public void setUp()
+                            throws Exception {
+        DeegreeWorkspace workspace = DeegreeWorkspace.getInstance();
+        workspace.initAll();
+        String schemaURL = getClass().getResource( TESTDATA_DIR + "schema/Philosopher.xsd" ).toString();
+        AppSchema schema = new GMLAppSchemaReader( GML_31, null, schemaURL ).extractAppSchema();
+
+        plainStore = new MemoryFeatureStore( schema, null, workspace );
+        List<PropertyIndex> indexes = new ArrayList<PropertyIndex>();
+        indexes.add( new SortedPropertyIndex( PHILOSOPHER, ID ) );
+        indexes.add( new HashPropertyIndex( PHILOSOPHER, NAME ) );
+        indexes.add( new HashPropertyIndex( PHILOSOPHER, SUBJECT ) );
+        indexedStore = new MemoryFeatureStore( schema, null, workspace, indexes );
+
+        for ( MemoryFeatureStore store : new MemoryFeatureStore[] { plainStore, indexedStore } ) {
+            URL docURL = getClass().getResource( TESTDATA_DIR + "features/Philosopher_FeatureCollection.xml" );
+            GMLStreamReader gmlStream = GMLInputFactory.createGMLStreamReader( GML_31, docURL );
+            gmlStream.setApplicationSchema( schema );
+            FeatureCollection fc = (FeatureCollection) gmlStream.readFeature();
+            gmlStream.getIdContext().resolveLocalRefs();
+            FeatureStoreTransaction ta = store.acquireTransaction();
+            ta.performInsert( fc, USE_EXISTING );
+            ta.commit();
+        }
+    }
+
+    @After
+    public void shutDown() {
+        DeegreeWorkspace.getInstance().destroyAll();
+    }
+
+    @Test
+    public void testEqualTo()
+                            throws Exception {
+        Assert.assertEquals( 1, assertSameResult( equalTo( NAME, "Voltaire", true ) ) );
+        Assert.assertEquals( 0, assertSameResult( equalTo( NAME, "voltaire", true ) ) );
+        Assert.assertEquals( 1, assertSameResult( equalTo( NAME, "VOLTAIRE", false ) ) );
+        Assert.assertEquals( 0, assertSameResult( equalTo( NAME, "Rousseau", true ) ) );
+        Assert.assertEquals( 1, assertSameResult( equalTo( ID, "3", true ) ) );
+        Assert.assertEquals( 1, assertSameResult( equalTo( ID, "3.00", true ) ) );
+    }
+
+    @Test
+    public void testEqualToMultipleValues()
+                            throws Exception {
+        Assert.assertEquals( 2, assertSameResult( equalTo( SUBJECT, "existentialism", true ) ) );
+        Assert.assertEquals( 1, assertSameResult( equalTo( SUBJECT, "Economy", false ) ) );
+    }
+
+    @Test
+    public void testRanges()
+                            throws Exception {
+        ValueReference id = new ValueReference( ID );
+        Assert.assertEquals( 3, assertSameResult( new PropertyIsLessThan( id, literal( "4" ), true, ANY ) ) );
+        // literal first
+        Assert.assertEquals( 3, assertSameResult( new PropertyIsGreaterThan( literal( "4" ), id, true, ANY ) ) );
+        Operator gte = new PropertyIsGreaterThanOrEqualTo( id, literal( "4" ), true, ANY );
+        Assert.assertEquals( 4, assertSameResult( gte ) );
+        Assert.assertEquals( 4, assertSameResult( new PropertyIsBetween( id, literal( "2" ), literal( "5.0" ), true,
+                                                                         ANY ) ) );
+        Operator emptyRange = new PropertyIsBetween( id, literal( "5" ), literal( "2" ), true, ANY );
+        Assert.assertEquals( 0, assertSameResult( emptyRange ) );
+    }
+
+    @Test
+    public void testLogicalOperators()
+                            throws Exception {
+        Operator existentialists = equalTo( SUBJECT, "existentialism", true );
+        Operator sartre = equalTo( NAME, "Jean-Paul Sartre", true );
+        Assert.assertEquals( 1, assertSameResult( new And( existentialists, sartre ) ) );
+        Assert.assertEquals( 3, assertSameResult( new Or( existentialists, equalTo( ID, "1", true ) ) ) );
+        Assert.assertEquals( 5, assertSameResult( new Not( existentialists ) ) );
+        Assert.assertEquals( 1, assertSameResult( new And( new Not( sartre ), existentialists ) ) );
+    }
+
+    @Test
+    public void testIndexesFollowTransactions()
+                            throws Exception {
+        Operator existentialists = equalTo( SUBJECT, "existentialism", true );
+
+        FeatureStoreTransaction ta = indexedStore.acquireTransaction();
+        OperatorFilter camus = new OperatorFilter( equalTo( ID, "7", true ) );
+        Assert.assertEquals( 1, ta.performDelete( PHILOSOPHER, camus, null ) );
+        ta.rollback();
+        Assert.assertEquals( 2, query( indexedStore, existentialists ).size() );
+
+        ta = indexedStore.acquireTransaction();
+        Assert.assertEquals( 1, ta.performDelete( PHILOSOPHER, camus, null ) );
+        ta.commit();
+        Assert.assertEquals( 1, query( indexedStore, existentialists ).size() );
+        Assert.assertEquals( 1, indexedStore.queryHits( query( existentialists ) ) );
+        Assert.assertEquals( 0, query( indexedStore, equalTo( ID, "7", true ) ).size() );
+    }
+
+    private int assertSameResult( Operator op )
+                            throws Exception {
+        Set<String> expected = query( plainStore, op );
+        Assert.assertEquals( expected, query( indexedStore, op ) );
+        Assert.assertEquals( expected.size(), indexedStore.queryHits( query( op ) ) );
+        Assert.assertEquals( expected.size(), plainStore.queryHits( query( op ) ) );
+        return expected.size();
+    }
+
+    private Set<String> query( MemoryFeatureStore store, Operator op )
+                            throws Exception {
+        Set<String> ids = new HashSet<String>();
+        for ( Feature f : store.query( query( op ) ).toCollection() ) {
+            ids.add( f.getId() );
+        }
+        return ids;
+    }
+
+    private Query query( Operator op ) {
+        TypeName[] typeNames = new TypeName[] { new TypeName( PHILOSOPHER, null ) };
+        return new Query( typeNames, new OperatorFilter( op ), null, null, null );
+    }
+
+    private static Operator equalTo( QName propName, String value, boolean matchCase ) {
+        return new PropertyIsEqualTo( new ValueReference( propName ), literal( value ), matchCase, ANY );
+    }
+
+    private static Literal<PrimitiveValue> literal( String value ) {
+        return new Literal<PrimitiveValue>( value );
+    }
+}
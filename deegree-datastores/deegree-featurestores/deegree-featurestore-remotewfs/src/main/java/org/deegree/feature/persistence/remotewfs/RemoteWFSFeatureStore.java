@@ -213,6 +213,11 @@ public class RemoteWFSFeatureStore implements FeatureStore {
         return is;
     }
 
+    @Override
+    public boolean isMaxFeaturesAndStartIndexApplicable( Query[] queries ) {
+        return false;
+    }
+
     @Override
     public FeatureInputStream query( final Query[] queries )
                             throws FeatureStoreException, FilterEvaluationException {
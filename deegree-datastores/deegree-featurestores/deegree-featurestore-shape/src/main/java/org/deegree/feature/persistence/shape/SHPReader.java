@@ -52,11 +52,13 @@ import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.deegree.commons.index.PackedRTree;
+import org.deegree.commons.index.PackedRTree.LongVisitor;
 import org.deegree.commons.index.SpatialIndex;
 import org.deegree.commons.utils.Pair;
 import org.deegree.cs.coordinatesystems.ICRS;
@@ -362,10 +364,9 @@ public class SHPReader {
 
         ByteBuffer buffer = sharedBuffer.asReadOnlyBuffer();
         buffer.order( ByteOrder.LITTLE_ENDIAN );
-        List<Long> pointers = (List<Long>) rtree.query( createEnvelope( bbox ) );
-        List<Pair<Integer, Long>> recNums = new ArrayList<Pair<Integer, Long>>( pointers.size() );
-        Collections.sort( pointers );
-        for ( Long ptr : pointers ) {
+        long[] pointers = queryPointers( bbox );
+        List<Pair<Integer, Long>> recNums = new ArrayList<Pair<Integer, Long>>( pointers.length );
+        for ( long ptr : pointers ) {
             buffer.position( (int) ( ptr - 8 ) );
             int num = getBEInt( buffer );
             if ( num == 0 && !recordNumStartsWith0 && rtree != null ) {
@@ -388,6 +389,37 @@ public class SHPReader {
         return recNums;
     }
 
+    /**
+     * @return the (sorted) positions of all records whose envelope intersects the given bbox
+     */
+    private long[] queryPointers( Envelope bbox ) {
+        long[] pointers;
+        if ( rtree instanceof PackedRTree<?> ) {
+            final long[][] result = new long[][] { new long[64] };
+            final int[] size = new int[1];
+            ( (PackedRTree<Long>) rtree ).query( createEnvelope( bbox ), new LongVisitor() {
+                @Override
+                public boolean visit( long value ) {
+                    if ( size[0] == result[0].length ) {
+                        result[0] = Arrays.copyOf( result[0], size[0] * 2 );
+                    }
+                    result[0][size[0]++] = value;
+                    return true;
+                }
+            } );
+            pointers = Arrays.copyOf( result[0], size[0] );
+        } else {
+            List<Long> list = (List<Long>) rtree.query( createEnvelope( bbox ) );
+            pointers = new long[list.size()];
+            int i = 0;
+            for ( Long ptr : list ) {
+                pointers[i++] = ptr;
+            }
+        }
+        Arrays.sort( pointers );
+        return pointers;
+    }
+
     /**
      * @param bbox
      * @param withGeometry
@@ -402,9 +434,8 @@ public class SHPReader {
 
         LinkedList<Pair<Integer, Geometry>> list = new LinkedList<Pair<Integer, Geometry>>();
 
-        List<Long> pointers = (List<Long>) rtree.query( createEnvelope( bbox ) );
-        Collections.sort( pointers );
-        for ( Long ptr : pointers ) {
+        long[] pointers = queryPointers( bbox );
+        for ( long ptr : pointers ) {
             buffer.position( (int) ( ptr - 8 ) );
 
             int num = getBEInt( buffer );
@@ -561,6 +592,54 @@ public class SHPReader {
         return new Pair<ArrayList<Pair<float[], Long>>, Boolean>( list, startsFromZero );
     }
 
+    /**
+     * Reads the envelopes of all records into the given builder (the payload is the position of the record).
+     * 
+     * @param builder
+     *            builder to add the envelopes to, must not be <code>null</code>
+     * @return true, if the record numbers start with 0 (instead of 1)
+     */
+    public boolean readEnvelopes( PackedRTree.LongBuilder builder ) {
+        ByteBuffer buffer = sharedBuffer.asReadOnlyBuffer();
+        buffer.order( ByteOrder.LITTLE_ENDIAN );
+        boolean startsFromZero = false;
+
+        buffer.position( 100 );
+
+        while ( buffer.position() + 1 < buffer.capacity() ) {
+            int recNum = getBEInt( buffer );
+            if ( !startsFromZero ) {
+                startsFromZero = recNum == 0;
+            }
+            int length = getBEInt( buffer ) * 2;
+            long pos = buffer.position();
+            int type = buffer.getInt();
+            switch ( type ) {
+            case NULL:
+                break;
+            case POINT: {
+                float x = (float) buffer.getDouble();
+                float y = (float) buffer.getDouble();
+                builder.add( x, y, x, y, pos );
+                break;
+            }
+            default: {
+                builder.add( (float) buffer.getDouble(), (float) buffer.getDouble(), (float) buffer.getDouble(),
+                             (float) buffer.getDouble(), pos );
+                break;
+            }
+            }
+
+            try {
+                buffer.position( (int) ( pos + length ) );
+            } catch ( IllegalArgumentException e ) {
+                // ignore it, this seems to happen with some broken shape files
+                break;
+            }
+        }
+        return startsFromZero;
+    }
+
     /**
      * Returns the geometry entry stored at the given position.
      * 
@@ -289,6 +289,11 @@ public class SimpleSQLFeatureStore implements FeatureStore {
         return query( new Query[] { query } );
     }
 
+    @Override
+    public boolean isMaxFeaturesAndStartIndexApplicable( Query[] queries ) {
+        return false;
+    }
+
     public FeatureInputStream query( final Query[] queries )
                             throws FeatureStoreException, FilterEvaluationException {
         PreparedStatement stmt = null;
@@ -71,6 +71,8 @@ public class FeatureTypeMapping {
 
     private final List<Mapping> particles = new ArrayList<Mapping>();
 
+    private final double geometryReduction;
+
     /**
      * Creates a new {@link FeatureTypeMapping} instance.
      * 
@@ -84,9 +86,30 @@ public class FeatureTypeMapping {
      *            particle mappings for the feature type, must not be <code>null</code>
      */
     public FeatureTypeMapping( QName ftName, TableName table, FIDMapping fidMapping, List<Mapping> particleMappings ) {
+        this( ftName, table, fidMapping, particleMappings, -1 );
+    }
+
+    /**
+     * Creates a new {@link FeatureTypeMapping} instance.
+     * 
+     * @param ftName
+     *            name of the mapped feature type, must not be <code>null</code>
+     * @param table
+     *            name of the database table that the feature type is mapped to, must not be <code>null</code>
+     * @param fidMapping
+     *            mapping for the feature id, must not be <code>null</code>
+     * @param particleMappings
+     *            particle mappings for the feature type, must not be <code>null</code>
+     * @param geometryReduction
+     *            tolerance (in pixels) for simplifying geometries of queries with a resolution hint, a non-positive
+     *            value disables the simplification
+     */
+    public FeatureTypeMapping( QName ftName, TableName table, FIDMapping fidMapping, List<Mapping> particleMappings,
+                               double geometryReduction ) {
         this.ftName = ftName;
         this.table = table;
         this.fidMapping = fidMapping;
+        this.geometryReduction = geometryReduction;
         this.propToMapping = new HashMap<QName, Mapping>();
         // TODO cope with non-QName XPaths as well
         for ( Mapping mapping : particleMappings ) {
@@ -149,6 +172,15 @@ public class FeatureTypeMapping {
         return particles;
     }
 
+    /**
+     * Returns the tolerance for simplifying geometries when the query carries a resolution hint.
+     * 
+     * @return tolerance in pixels, a non-positive value means that geometries are never simplified
+     */
+    public double getGeometryReduction() {
+        return geometryReduction;
+    }
+
     /**
      * Returns the default (i.e. the first) {@link GeometryMapping}.
      * 
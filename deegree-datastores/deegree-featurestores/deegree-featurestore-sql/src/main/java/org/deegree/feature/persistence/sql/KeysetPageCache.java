@@ -0,0 +1,175 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.feature.persistence.sql;
+
+import static java.util.Collections.synchronizedMap;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.deegree.feature.Feature;
+import org.deegree.feature.FeatureCollection;
+import org.deegree.feature.Features;
+import org.deegree.feature.stream.FeatureInputStream;
+
+/**
+ * Remembers the id of the last feature of result pages, so that the following page of the same query can be fetched
+ * by seeking past this feature (keyset pagination) instead of letting the database skip all preceding rows.
+ * <p>
+ * The number of remembered pages is bounded, least recently used entries are evicted first.
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+class KeysetPageCache {
+
+    private final Map<String, String> lastIds;
+
+    /**
+     * @param maxEntries
+     *            maximum number of remembered pages, must be positive
+     */
+    KeysetPageCache( final int maxEntries ) {
+        lastIds = synchronizedMap( new LinkedHashMap<String, String>( 16, 0.75f, true ) {
+
+            private static final long serialVersionUID = -2722402473316592519L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, String> eldest ) {
+                return size() > maxEntries;
+            }
+        } );
+    }
+
+    /**
+     * Returns the id of the feature that precedes the given start index.
+     * 
+     * @param query
+     *            key of the query (SQL and argument values, without paging), must not be <code>null</code>
+     * @param startIndex
+     *            start index of the requested page
+     * @return id of the feature that precedes the page, <code>null</code> if unknown
+     */
+    String get( String query, int startIndex ) {
+        return lastIds.get( query + '#' + startIndex );
+    }
+
+    /**
+     * Forgets all remembered pages, must be called when the stored features have been modified.
+     */
+    void clear() {
+        lastIds.clear();
+    }
+
+    /**
+     * Returns a {@link FeatureInputStream} that remembers the id of the last feature of the given page once it has been
+     * read completely.
+     * 
+     * @param rs
+     *            features of the page, must not be <code>null</code>
+     * @param query
+     *            key of the query (SQL and argument values, without paging), must not be <code>null</code>
+     * @param startIndex
+     *            start index of the page
+     * @param pageSize
+     *            size of the page (the stream may contain additional features beyond the page), must be positive
+     * @return wrapped stream, never <code>null</code>
+     */
+    FeatureInputStream record( final FeatureInputStream rs, final String query, final int startIndex,
+                               final int pageSize ) {
+        return new FeatureInputStream() {
+
+            @Override
+            public Iterator<Feature> iterator() {
+                final Iterator<Feature> iter = rs.iterator();
+                return new Iterator<Feature>() {
+
+                    int returned = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return iter.hasNext();
+                    }
+
+                    @Override
+                    public Feature next() {
+                        Feature f = iter.next();
+                        if ( ++returned == pageSize && f.getId() != null ) {
+                            lastIds.put( query + '#' + ( startIndex + pageSize ), f.getId() );
+                        }
+                        return f;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            @Override
+            public void close() {
+                rs.close();
+            }
+
+            @Override
+            public FeatureCollection toCollection() {
+                return Features.toCollection( this );
+            }
+
+            @Override
+            public int count() {
+                int i = 0;
+                for ( @SuppressWarnings("unused")
+                Feature f : this ) {
+                    i++;
+                }
+                close();
+                return i;
+            }
+        };
+    }
+}
@@ -39,8 +39,10 @@ import static org.deegree.commons.utils.JDBCUtils.close;
 import static org.deegree.commons.xml.CommonNamespaces.OGCNS;
 import static org.deegree.commons.xml.CommonNamespaces.XLNNS;
 import static org.deegree.commons.xml.CommonNamespaces.XSINS;
+import static org.deegree.feature.persistence.query.Query.QueryHint.HINT_RESOLUTION;
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Constructor;
 import java.net.URL;
 import java.sql.Connection;
@@ -56,6 +58,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 
+import javax.management.ObjectName;
 import javax.xml.namespace.QName;
 
 import org.deegree.commons.annotations.LoggingNotes;
@@ -74,6 +77,7 @@ import org.deegree.commons.tom.primitive.PrimitiveType;
 import org.deegree.commons.tom.primitive.PrimitiveValue;
 import org.deegree.commons.tom.sql.ParticleConverter;
 import org.deegree.commons.tom.sql.SQLValueMangler;
+import org.deegree.commons.utils.CloseableIterator;
 import org.deegree.commons.utils.JDBCUtils;
 import org.deegree.commons.utils.Pair;
 import org.deegree.cs.coordinatesystems.ICRS;
@@ -86,8 +90,8 @@ import org.deegree.feature.persistence.FeatureStoreGMLIdResolver;
 import org.deegree.feature.persistence.FeatureStoreManager;
 import org.deegree.feature.persistence.FeatureStoreTransaction;
 import org.deegree.feature.persistence.cache.BBoxCache;
+import org.deegree.feature.persistence.cache.ConcurrentFeatureStoreCache;
 import org.deegree.feature.persistence.cache.FeatureStoreCache;
-import org.deegree.feature.persistence.cache.SimpleFeatureStoreCache;
 import org.deegree.feature.persistence.lock.DefaultLockManager;
 import org.deegree.feature.persistence.lock.LockManager;
 import org.deegree.feature.persistence.query.Query;
@@ -102,7 +106,12 @@ import org.deegree.feature.persistence.sql.id.IdAnalysis;
 import org.deegree.feature.persistence.sql.jaxb.CustomConverterJAXB;
 import org.deegree.feature.persistence.sql.jaxb.CustomInspector;
 import org.deegree.feature.persistence.sql.jaxb.SQLFeatureStoreJAXB;
+import org.deegree.feature.persistence.sql.jaxb.SQLFeatureStoreJAXB.BatchedInsert;
+import org.deegree.feature.persistence.sql.jaxb.SQLFeatureStoreJAXB.FeatureCache;
+import org.deegree.feature.persistence.sql.jaxb.SQLFeatureStoreJAXB.JoinedTableFetch;
+import org.deegree.feature.persistence.sql.jaxb.SQLFeatureStoreJAXB.Paging;
 import org.deegree.feature.persistence.sql.jaxb.VoidEscalationPolicyType;
+import org.deegree.feature.persistence.sql.rules.BatchedFeatureResultSetIterator;
 import org.deegree.feature.persistence.sql.rules.CompoundMapping;
 import org.deegree.feature.persistence.sql.rules.FeatureBuilderRelational;
 import org.deegree.feature.persistence.sql.rules.FeatureMapping;
@@ -114,6 +123,7 @@ import org.deegree.feature.stream.FeatureInputStream;
 import org.deegree.feature.stream.FilteredFeatureInputStream;
 import org.deegree.feature.stream.IteratorFeatureInputStream;
 import org.deegree.feature.stream.MemoryFeatureInputStream;
+import org.deegree.feature.stream.PagedFeatureInputStream;
 import org.deegree.feature.types.FeatureType;
 import org.deegree.feature.types.property.GeometryPropertyType.CoordinateDimension;
 import org.deegree.feature.types.property.GeometryPropertyType.GeometryType;
@@ -127,6 +137,7 @@ import org.deegree.filter.spatial.BBOX;
 import org.deegree.geometry.Envelope;
 import org.deegree.geometry.Geometry;
 import org.deegree.geometry.GeometryTransformer;
+import org.deegree.geometry.io.WKTWriter;
 import org.deegree.sqldialect.SQLDialect;
 import org.deegree.sqldialect.filter.AbstractWhereBuilder;
 import org.deegree.sqldialect.filter.DBField;
@@ -156,8 +167,6 @@ public class SQLFeatureStore implements FeatureStore {
 
     private static final int DEFAULT_FETCH_SIZE = 1000;
 
-    private static final int DEFAULT_CACHE_SIZE = 10000;
-
     private final SQLFeatureStoreJAXB config;
 
     private final URL configURL;
@@ -174,7 +183,9 @@ public class SQLFeatureStore implements FeatureStore {
 
     private final Map<Mapping, ParticleConverter<?>> particleMappingToConverter = new HashMap<Mapping, ParticleConverter<?>>();
 
-    private final FeatureStoreCache cache;
+    private final ConcurrentFeatureStoreCache cache;
+
+    private ObjectName cacheMBeanName;
 
     private BBoxCache bboxCache;
 
@@ -188,6 +199,18 @@ public class SQLFeatureStore implements FeatureStore {
 
     private int fetchSize;
 
+    // number of rows per window for batched fetching of joined tables, 0 for one SELECT per row
+    private int joinFetchBatchSize;
+
+    // maximum number of rows per JDBC batch for transactional inserts, 1 for no batching
+    private int insertBatchSize = 1;
+
+    // number of values to fetch from DB sequences at once, 1 for one SELECT per value
+    private int sequenceBlockSize = 1;
+
+    // last feature ids of result pages for keyset pagination, null for offset pagination
+    private final KeysetPageCache keysetPageCache;
+
     private Boolean readAutoCommit;
 
     private final List<FeatureInspector> inspectors = new ArrayList<FeatureInspector>();
@@ -211,12 +234,35 @@ public class SQLFeatureStore implements FeatureStore {
         fetchSize = config.getJDBCConnId().getFetchSize() != null ? config.getJDBCConnId().getFetchSize().intValue()
                                                                  : DEFAULT_FETCH_SIZE;
         LOG.debug( "Fetch size: " + fetchSize );
+        JoinedTableFetch joinedTableFetch = config.getJoinedTableFetch();
+        if ( joinedTableFetch != null && "batched".equals( joinedTableFetch.getStrategy() ) ) {
+            joinFetchBatchSize = joinedTableFetch.getBatchSize() != null ? joinedTableFetch.getBatchSize().intValue()
+                                                                        : Math.max( fetchSize, 1 );
+        }
+        LOG.debug( "Joined table fetch batch size: " + joinFetchBatchSize );
+        BatchedInsert batchedInsert = config.getBatchedInsert();
+        if ( batchedInsert != null ) {
+            insertBatchSize = batchedInsert.getBatchSize().intValue();
+            sequenceBlockSize = batchedInsert.getSequenceBlockSize().intValue();
+        }
+        LOG.debug( "Insert batch size: " + insertBatchSize + ", sequence block size: " + sequenceBlockSize );
+        Paging paging = config.getPaging();
+        if ( paging != null && "keyset".equals( paging.getStrategy() ) ) {
+            keysetPageCache = new KeysetPageCache( paging.getKeysetCacheSize().intValue() );
+            LOG.debug( "Keyset paging, remembering up to " + paging.getKeysetCacheSize() + " pages" );
+        } else {
+            keysetPageCache = null;
+        }
         readAutoCommit = config.getJDBCConnId().isReadAutoCommit() != null ? config.getJDBCConnId().isReadAutoCommit()
                                                                           : !dialect.requiresTransactionForCursorMode();
         LOG.debug( "Read auto commit: " + readAutoCommit );
 
-        if ( config.getFeatureCache() != null ) {
-            cache = new SimpleFeatureStoreCache( DEFAULT_CACHE_SIZE );
+        FeatureCache featureCache = config.getFeatureCache();
+        if ( featureCache != null ) {
+            long maxSize = featureCache.getMaxSizeMB().longValue() * 1024 * 1024;
+            long timeToLive = featureCache.getTimeToLive().longValue() * 1000;
+            LOG.debug( "Feature cache max size: " + maxSize + " bytes, time to live: " + timeToLive + " ms" );
+            cache = new ConcurrentFeatureStoreCache( maxSize, timeToLive );
         } else {
             cache = null;
         }
@@ -228,6 +274,8 @@ public class SQLFeatureStore implements FeatureStore {
 
         LOG.debug( "init" );
 
+        registerCacheMBean();
+
         List<String> resolverClasses = config.getCustomReferenceResolver();
         List<GMLReferenceResolver> resolvers = new ArrayList<GMLReferenceResolver>();
         for ( String resolver : resolverClasses ) {
@@ -553,6 +601,15 @@ public class SQLFeatureStore implements FeatureStore {
         return bboxCache;
     }
 
+    /**
+     * Returns the cache of page boundaries for keyset pagination.
+     * 
+     * @return cache of page boundaries, <code>null</code> if keyset pagination is not enabled
+     */
+    KeysetPageCache getKeysetPageCache() {
+        return keysetPageCache;
+    }
+
     @Override
     public GMLObject getObjectById( String id )
                             throws FeatureStoreException {
@@ -679,7 +736,32 @@ public class SQLFeatureStore implements FeatureStore {
 
     @Override
     public void destroy() {
-        // nothing to do
+        if ( cacheMBeanName != null ) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean( cacheMBeanName );
+            } catch ( Exception e ) {
+                LOG.debug( "Could not unregister feature cache MBean: " + e.getMessage() );
+            }
+            cacheMBeanName = null;
+        }
+    }
+
+    /**
+     * Makes the statistics of the feature cache (if enabled) available via JMX.
+     */
+    private void registerCacheMBean() {
+        if ( cache == null ) {
+            return;
+        }
+        String name = configURL != null ? configURL.toString() : Integer.toHexString( System.identityHashCode( this ) );
+        try {
+            String objectName = "org.deegree:type=FeatureStoreCache,name=" + ObjectName.quote( name );
+            ManagementFactory.getPlatformMBeanServer().registerMBean( cache, new ObjectName( objectName ) );
+            cacheMBeanName = new ObjectName( objectName );
+        } catch ( Exception e ) {
+            LOG.warn( "Could not register feature cache MBean: " + e.getMessage() );
+            LOG.trace( "Stack trace:", e );
+        }
     }
 
     @Override
@@ -743,7 +825,9 @@ public class SQLFeatureStore implements FeatureStore {
             if ( wb.getPostFilter() != null ) {
                 conn.close();
                 LOG.debug( "Filter not fully mappable to WHERE clause. Need to iterate over all features to determine count." );
-                hits = queryByOperatorFilter( query, ftName, filter ).count();
+                // the number of matching features does not depend on paging or sorting
+                Query unpaged = new Query( query.getTypeNames(), filter, null, -1, -1, -1 );
+                hits = queryByOperatorFilter( unpaged, ftName, filter ).count();
             } else {
                 StringBuilder sql = new StringBuilder( "SELECT " );
                 if ( wb.getWhere() == null ) {
@@ -937,6 +1021,66 @@ public class SQLFeatureStore implements FeatureStore {
         return transformedLiteral;
     }
 
+    /**
+     * Determines the tolerance for simplifying the geometries of the given query in the database.
+     * 
+     * @param query
+     *            query, must not be <code>null</code>
+     * @param ftMapping
+     *            mapping of the queried feature type, must not be <code>null</code>
+     * @return tolerance in units of the storage CRS, or <code>-1</code> if the geometries must not be simplified
+     */
+    private double getGeometryTolerance( Query query, FeatureTypeMapping ftMapping ) {
+        Object resolution = query.getHint( HINT_RESOLUTION );
+        if ( ftMapping.getGeometryReduction() <= 0 || !( resolution instanceof Double ) ) {
+            return -1;
+        }
+        // the resolution refers to the CRS of the request, which may differ from the storage CRS
+        Envelope bbox = query.getPrefilterBBoxEnvelope();
+        Envelope storageBBox = null;
+        Pair<TableName, GeometryMapping> geomMapping = ftMapping.getDefaultGeometryMapping();
+        if ( bbox != null && geomMapping != null ) {
+            try {
+                storageBBox = getCompatibleGeometry( bbox, geomMapping.second.getCRS() ).getEnvelope();
+            } catch ( FilterEvaluationException e ) {
+                LOG.debug( "Not simplifying geometries, resolution cannot be transformed: " + e.getMessage() );
+                return -1;
+            }
+        }
+        double tolerance = getGeometryTolerance( (Double) resolution, ftMapping.getGeometryReduction(), bbox,
+                                                 storageBBox );
+        LOG.debug( "Simplifying geometries of feature type '{}' with tolerance {}", ftMapping.getFeatureType(),
+                   tolerance );
+        return tolerance;
+    }
+
+    /**
+     * Converts a resolution in units of the request CRS into a simplification tolerance in units of the storage CRS.
+     * 
+     * @param resolution
+     *            resolution (units per pixel) in the request CRS
+     * @param geometryReduction
+     *            reduction factor configured for the feature type
+     * @param requestBBox
+     *            bbox of the request, can be <code>null</code>
+     * @param storageBBox
+     *            bbox of the request transformed into the storage CRS, can be <code>null</code>
+     * @return tolerance in units of the storage CRS, or <code>-1</code> if the geometries must not be simplified
+     */
+    static double getGeometryTolerance( double resolution, double geometryReduction, Envelope requestBBox,
+                                        Envelope storageBBox ) {
+        if ( geometryReduction <= 0 || resolution <= 0 ) {
+            return -1;
+        }
+        double tolerance = resolution * geometryReduction;
+        if ( requestBBox != null && storageBBox != null && requestBBox.getSpan0() > 0 && requestBBox.getSpan1() > 0 ) {
+            // use the smaller factor, simplifying too little is better than distorting the geometries
+            tolerance *= Math.min( storageBBox.getSpan0() / requestBBox.getSpan0(),
+                                   storageBBox.getSpan1() / requestBBox.getSpan1() );
+        }
+        return tolerance;
+    }
+
     short getFtId( QName ftName ) {
         return getSchema().getFtId( ftName );
     }
@@ -967,11 +1111,23 @@ public class SQLFeatureStore implements FeatureStore {
                 String msg = "Invalid query. If no type names are specified, it must contain an IdFilter.";
                 throw new FilterEvaluationException( msg );
             }
-            result = queryByIdFilter( (IdFilter) filter, query.getSortProperties() );
+            result = applyPaging( queryByIdFilter( (IdFilter) filter, query.getSortProperties() ), query );
         }
         return result;
     }
 
+    @Override
+    public boolean isMaxFeaturesAndStartIndexApplicable( Query[] queries ) {
+        return queries.length == 1;
+    }
+
+    private FeatureInputStream applyPaging( FeatureInputStream rs, Query query ) {
+        if ( query.getStartIndex() > 0 || query.getMaxFeatures() > 0 ) {
+            return new PagedFeatureInputStream( rs, query.getStartIndex(), query.getMaxFeatures() );
+        }
+        return rs;
+    }
+
     @Override
     public FeatureInputStream query( final Query[] queries )
                             throws FeatureStoreException, FilterEvaluationException {
@@ -992,7 +1148,11 @@ public class SQLFeatureStore implements FeatureStore {
         }
 
         if ( wmsStyleQuery ) {
-            return queryMultipleFts( queries, env );
+            FeatureInputStream rs = queryMultipleFts( queries, env );
+            if ( queries.length == 1 ) {
+                rs = applyPaging( rs, queries[0] );
+            }
+            return rs;
         }
 
         Iterator<FeatureInputStream> rsIter = new Iterator<FeatureInputStream>() {
@@ -1112,8 +1272,8 @@ public class SQLFeatureStore implements FeatureStore {
             conn = getConnection();
 
             String tableAlias = "X1";
-            FeatureBuilder builder = new FeatureBuilderRelational( this, ft, ftMapping, conn, tableAlias,
-                                                                   escalationPolicy );
+            FeatureBuilderRelational builder = new FeatureBuilderRelational( this, ft, ftMapping, conn, tableAlias,
+                                                                             escalationPolicy );
             List<String> columns = builder.getInitialSelectColumns();
             StringBuilder sql = new StringBuilder( "SELECT " );
             sql.append( columns.get( 0 ) );
@@ -1164,7 +1324,7 @@ public class SQLFeatureStore implements FeatureStore {
             begin = System.currentTimeMillis();
             rs = stmt.executeQuery();
             LOG.debug( "Executing SELECT took {} [ms] ", System.currentTimeMillis() - begin );
-            result = new IteratorFeatureInputStream( new FeatureResultSetIterator( builder, rs, conn, stmt ) );
+            result = new IteratorFeatureInputStream( createRelationalIterator( builder, rs, conn, stmt ) );
         } catch ( Exception e ) {
             close( rs, stmt, conn, LOG );
             String msg = "Error performing query by id filter (relational mode): " + e.getMessage();
@@ -1332,7 +1492,7 @@ public class SQLFeatureStore implements FeatureStore {
         LOG.debug( "Performing query by operator filter" );
 
         if ( getSchema().getBlobMapping() != null ) {
-            return queryByOperatorFilterBlob( query, ftName, filter );
+            return applyPaging( queryByOperatorFilterBlob( query, ftName, filter ), query );
         }
 
         AbstractWhereBuilder wb = null;
@@ -1340,6 +1500,8 @@ public class SQLFeatureStore implements FeatureStore {
         FeatureInputStream result = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
+        boolean paging = query.getStartIndex() > 0 || query.getMaxFeatures() > 0;
+        boolean dbPaging = false;
 
         FeatureType ft = getSchema().getFeatureType( ftName );
         FeatureTypeMapping ftMapping = getMapping( ftName );
@@ -1356,8 +1518,9 @@ public class SQLFeatureStore implements FeatureStore {
             LOG.debug( "WHERE clause: " + wb.getWhere() );
             LOG.debug( "ORDER BY clause: " + wb.getOrderBy() );
 
-            FeatureBuilder builder = new FeatureBuilderRelational( this, ft, ftMapping, conn, ftTableAlias,
-                                                                   escalationPolicy );
+            double geometryTolerance = getGeometryTolerance( query, ftMapping );
+            FeatureBuilderRelational builder = new FeatureBuilderRelational( this, ft, ftMapping, conn, ftTableAlias,
+                                                                             escalationPolicy, geometryTolerance );
             List<String> columns = builder.getInitialSelectColumns();
 
             BlobMapping blobMapping = getSchema().getBlobMapping();
@@ -1375,6 +1538,7 @@ public class SQLFeatureStore implements FeatureStore {
             sql.append( ' ' );
             sql.append( ftTableAlias );
 
+            boolean joined = false;
             for ( PropertyNameMapping mappedPropName : wb.getMappedPropertyNames() ) {
                 for ( Join join : mappedPropName.getJoins() ) {
                     sql.append( " LEFT OUTER JOIN " );
@@ -1383,22 +1547,68 @@ public class SQLFeatureStore implements FeatureStore {
                     sql.append( join.getToTableAlias() );
                     sql.append( " ON " );
                     sql.append( join.getSQLJoinCondition() );
+                    joined = true;
                 }
             }
 
+            int whereStart = -1;
             if ( wb.getWhere() != null ) {
                 if ( blobMapping != null ) {
                     sql.append( " AND " );
                 } else {
                     sql.append( " WHERE " );
                 }
+                whereStart = sql.length();
                 sql.append( wb.getWhere().getSQL() );
             }
+
+            // paging can only be performed by the database if the rows correspond to the returned features
+            int startIndex = query.getStartIndex();
+            int maxFeatures = query.getMaxFeatures() > 0 ? query.getMaxFeatures() : -1;
+            FIDMapping fidMapping = ftMapping.getFidMapping();
+            dbPaging = paging && wb.getPostFilter() == null && wb.getPostSortCriteria() == null
+                       && !fidMapping.getColumns().isEmpty();
+            // ordering by feature id is only required if further pages may be requested, a plain limit (e.g. the
+            // maximum number of features of a map layer) must not force the database to sort the whole result
+            boolean stableOrder = dbPaging && ( startIndex > 0 || query.isPaged() );
+
+            String keysetQuery = null;
+            String[] keysetKernels = null;
+            // seeking requires unique feature ids in the rows (joins may repeat them)
+            if ( stableOrder && keysetPageCache != null && query.getSortProperties().length == 0 && !joined ) {
+                keysetQuery = getKeysetQuery( sql, wb );
+                if ( startIndex > 0 ) {
+                    keysetKernels = getKeysetKernels( ftName, keysetPageCache.get( keysetQuery, startIndex ) );
+                }
+                if ( keysetKernels != null ) {
+                    LOG.debug( "Seeking past feature of previous page instead of skipping {} rows.", startIndex );
+                    if ( whereStart != -1 ) {
+                        sql.insert( whereStart, '(' );
+                        sql.append( ") AND " );
+                    } else {
+                        sql.append( " WHERE " );
+                    }
+                    appendKeysetCondition( sql, ftTableAlias, fidMapping );
+                }
+            }
+
             if ( wb.getOrderBy() != null ) {
                 sql.append( " ORDER BY " );
                 sql.append( wb.getOrderBy().getSQL() );
+                if ( stableOrder ) {
+                    // feature id as tie-breaker, so pages are stable
+                    sql.append( ',' );
+                    appendFidColumns( sql, ftTableAlias, fidMapping );
+                }
+            } else if ( stableOrder ) {
+                sql.append( " ORDER BY " );
+                appendFidColumns( sql, ftTableAlias, fidMapping );
             }
 
+            int skip = keysetKernels != null ? 0 : startIndex;
+            boolean hasOrderBy = wb.getOrderBy() != null || stableOrder;
+            boolean pagedByDb = dbPaging && dialect.appendPaging( sql, hasOrderBy, skip, maxFeatures );
+
             LOG.debug( "SQL: {}", sql );
             long begin = System.currentTimeMillis();
             stmt = conn.prepareStatement( sql.toString() );
@@ -1410,6 +1620,9 @@ public class SQLFeatureStore implements FeatureStore {
                     o.setArgument( stmt, i++ );
                 }
             }
+            if ( keysetKernels != null ) {
+                i = setKeysetArguments( stmt, i, keysetKernels, fidMapping );
+            }
             if ( wb.getOrderBy() != null ) {
                 for ( SQLArgument o : wb.getOrderBy().getArguments() ) {
                     o.setArgument( stmt, i++ );
@@ -1421,7 +1634,16 @@ public class SQLFeatureStore implements FeatureStore {
             rs = stmt.executeQuery();
             LOG.debug( "Executing SELECT took {} [ms] ", System.currentTimeMillis() - begin );
 
-            result = new IteratorFeatureInputStream( new FeatureResultSetIterator( builder, rs, conn, stmt ) );
+            result = new IteratorFeatureInputStream( createRelationalIterator( builder, rs, conn, stmt ) );
+            if ( dbPaging && !pagedByDb ) {
+                // dialect does not support paging
+                result = new PagedFeatureInputStream( result, skip, maxFeatures );
+            }
+            // features requested beyond the page (look-ahead) do not belong to it
+            int pageSize = maxFeatures - query.getLookAhead();
+            if ( keysetQuery != null && maxFeatures > 0 && pageSize > 0 ) {
+                result = keysetPageCache.record( result, keysetQuery, startIndex, pageSize );
+            }
         } catch ( Exception e ) {
             close( rs, stmt, conn, LOG );
             String msg = "Error performing query by operator filter: " + e.getMessage();
@@ -1437,9 +1659,107 @@ public class SQLFeatureStore implements FeatureStore {
             LOG.debug( "Applying in-memory post-sorting." );
             result = new MemoryFeatureInputStream( Features.sortFc( result.toCollection(), wb.getPostSortCriteria() ) );
         }
+        if ( paging && !dbPaging ) {
+            result = applyPaging( result, query );
+        }
         return result;
     }
 
+    /**
+     * Returns the key for remembering the pages of a query (SQL and argument values, but no paging).
+     */
+    private String getKeysetQuery( StringBuilder sql, AbstractWhereBuilder wb ) {
+        StringBuilder key = new StringBuilder( sql );
+        if ( wb.getWhere() != null ) {
+            for ( SQLArgument o : wb.getWhere().getArguments() ) {
+                key.append( '|' );
+                if ( o.getValue() instanceof Geometry ) {
+                    key.append( WKTWriter.write( (Geometry) o.getValue() ) );
+                } else {
+                    key.append( o.getValue() );
+                }
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns the id kernels of the given feature id, or <code>null</code> if it cannot be used for seeking.
+     */
+    private String[] getKeysetKernels( QName ftName, String fid ) {
+        if ( fid == null ) {
+            return null;
+        }
+        try {
+            IdAnalysis analysis = getSchema().analyzeId( fid );
+            String[] kernels = analysis.getIdKernels();
+            FIDMapping fidMapping = getMapping( ftName ).getFidMapping();
+            if ( analysis.getFeatureType().getName().equals( ftName )
+                 && kernels.length == fidMapping.getColumns().size() ) {
+                return kernels;
+            }
+        } catch ( IllegalArgumentException e ) {
+            LOG.debug( "Cannot seek past feature '" + fid + "': " + e.getMessage() );
+        }
+        return null;
+    }
+
+    private void appendFidColumns( StringBuilder sql, String tableAlias, FIDMapping fidMapping ) {
+        boolean first = true;
+        for ( Pair<SQLIdentifier, BaseType> fidColumn : fidMapping.getColumns() ) {
+            if ( !first ) {
+                sql.append( ',' );
+            }
+            sql.append( tableAlias );
+            sql.append( '.' );
+            sql.append( fidColumn.first );
+            first = false;
+        }
+    }
+
+    /**
+     * Appends a condition that selects all rows with a feature id greater than the given one (in the order of the fid
+     * columns), e.g. <code>(A>?) OR (A=? AND B>?)</code>.
+     */
+    private void appendKeysetCondition( StringBuilder sql, String tableAlias, FIDMapping fidMapping ) {
+        List<Pair<SQLIdentifier, BaseType>> fidColumns = fidMapping.getColumns();
+        sql.append( '(' );
+        for ( int i = 0; i < fidColumns.size(); i++ ) {
+            if ( i > 0 ) {
+                sql.append( " OR " );
+            }
+            sql.append( '(' );
+            for ( int j = 0; j < i; j++ ) {
+                sql.append( tableAlias );
+                sql.append( '.' );
+                sql.append( fidColumns.get( j ).first );
+                sql.append( "=? AND " );
+            }
+            sql.append( tableAlias );
+            sql.append( '.' );
+            sql.append( fidColumns.get( i ).first );
+            sql.append( ">?)" );
+        }
+        sql.append( ')' );
+    }
+
+    private int setKeysetArguments( PreparedStatement stmt, int paramIndex, String[] kernels, FIDMapping fidMapping )
+                            throws SQLException {
+        List<Pair<SQLIdentifier, BaseType>> fidColumns = fidMapping.getColumns();
+        Object[] sqlValues = new Object[kernels.length];
+        for ( int i = 0; i < kernels.length; i++ ) {
+            PrimitiveValue value = new PrimitiveValue( kernels[i], new PrimitiveType( fidColumns.get( i ).second ) );
+            sqlValues[i] = SQLValueMangler.internalToSQL( value );
+        }
+        int i = paramIndex;
+        for ( int k = 0; k < kernels.length; k++ ) {
+            for ( int j = 0; j <= k; j++ ) {
+                stmt.setObject( i++, sqlValues[j] );
+            }
+        }
+        return i;
+    }
+
     private FeatureInputStream queryMultipleFts( Query[] queries, Envelope looseBBox )
                             throws FeatureStoreException {
         FeatureInputStream result = null;
@@ -1550,6 +1870,32 @@ public class SQLFeatureStore implements FeatureStore {
         return dialect;
     }
 
+    /**
+     * Returns the maximum number of rows per JDBC batch for transactional inserts.
+     * 
+     * @return maximum number of rows per batch, <code>1</code> if batching is disabled
+     */
+    int getInsertBatchSize() {
+        return insertBatchSize;
+    }
+
+    /**
+     * Returns the number of values that are fetched from DB sequences at once during transactional inserts.
+     * 
+     * @return number of values, <code>1</code> if values are fetched one by one
+     */
+    int getSequenceBlockSize() {
+        return sequenceBlockSize;
+    }
+
+    private CloseableIterator<Feature> createRelationalIterator( FeatureBuilderRelational builder, ResultSet rs,
+                                                                 Connection conn, Statement stmt ) {
+        if ( joinFetchBatchSize > 0 ) {
+            return new BatchedFeatureResultSetIterator( builder, rs, conn, stmt, joinFetchBatchSize );
+        }
+        return new FeatureResultSetIterator( builder, rs, conn, stmt );
+    }
+
     private class FeatureResultSetIterator extends ResultSetIterator<Feature> {
 
         private final FeatureBuilder builder;
@@ -133,6 +133,10 @@ public class SQLFeatureStoreTransaction implements FeatureStoreTransaction {
 
     private final BBoxTracker bboxTracker;
 
+    // ids of objects that have been modified/deleted in this transaction (must be evicted from the cache again on
+    // commit/rollback, as concurrent readers may have re-cached them in the meantime)
+    private final Set<String> modifiedIds = new HashSet<String>();
+
     // TODO
     private ParticleConverter<Geometry> blobGeomConverter;
 
@@ -173,6 +177,7 @@ public class SQLFeatureStoreTransaction implements FeatureStoreTransaction {
         LOG.debug( "Committing transaction." );
         try {
             conn.commit();
+            invalidateCache();
             updateBBoxCache();
         } catch ( Throwable t ) {
             LOG.debug( t.getMessage(), t );
@@ -234,6 +239,7 @@ public class SQLFeatureStoreTransaction implements FeatureStoreTransaction {
             LOG.debug( e.getMessage(), e );
             throw new FeatureStoreException( "Unable to rollback SQL transaction: " + e.getMessage() );
         } finally {
+            invalidateCache();
             try {
                 conn.close();
             } catch ( SQLException e ) {
@@ -242,6 +248,27 @@ public class SQLFeatureStoreTransaction implements FeatureStoreTransaction {
         }
     }
 
+    private void invalidateCache() {
+        if ( fs.getCache() != null ) {
+            for ( String id : modifiedIds ) {
+                fs.getCache().remove( id );
+            }
+        }
+        modifiedIds.clear();
+        if ( fs.getKeysetPageCache() != null ) {
+            fs.getKeysetPageCache().clear();
+        }
+    }
+
+    private void invalidateCache( IdFilter filter ) {
+        for ( ResourceId id : filter.getSelectedIds() ) {
+            modifiedIds.add( id.getRid() );
+            if ( fs.getCache() != null ) {
+                fs.getCache().remove( id.getRid() );
+            }
+        }
+    }
+
     @Override
     public FeatureStore getStore() {
         return fs;
@@ -272,6 +299,7 @@ public class SQLFeatureStoreTransaction implements FeatureStoreTransaction {
             deleted = performDeleteBlob( filter, lock );
         } else {
             deleted = performDeleteRelational( filter, lock );
+            invalidateCache( filter );
         }
 
         // TODO improve this
@@ -292,10 +320,8 @@ public class SQLFeatureStoreTransaction implements FeatureStoreTransaction {
             for ( ResourceId id : filter.getSelectedIds() ) {
                 stmt.setString( 1, id.getRid() );
                 stmt.addBatch();
-                if ( fs.getCache() != null ) {
-                    fs.getCache().remove( id.getRid() );
-                }
             }
+            invalidateCache( filter );
             int[] deletes = stmt.executeBatch();
             for ( int noDeleted : deletes ) {
                 deleted += noDeleted;
@@ -643,24 +669,34 @@ public class SQLFeatureStoreTransaction implements FeatureStoreTransaction {
             } else {
                 // pure relational mode
                 List<FeatureRow> idAssignments = new ArrayList<FeatureRow>();
-                InsertRowManager insertManager = new InsertRowManager( fs, conn, mode );
-                for ( Feature feature : features ) {
-                    FeatureTypeMapping ftMapping = fs.getMapping( feature.getName() );
-                    if ( ftMapping == null ) {
-                        throw new FeatureStoreException( "Cannot insert feature of type '" + feature.getName()
-                                                         + "'. No mapping defined and BLOB mode is off." );
+                InsertRowManager insertManager = new InsertRowManager( fs, conn, mode, fs.getInsertBatchSize(),
+                                                                       fs.getSequenceBlockSize() );
+                try {
+                    for ( Feature feature : features ) {
+                        FeatureTypeMapping ftMapping = fs.getMapping( feature.getName() );
+                        if ( ftMapping == null ) {
+                            throw new FeatureStoreException( "Cannot insert feature of type '" + feature.getName()
+                                                             + "'. No mapping defined and BLOB mode is off." );
+                        }
+                        idAssignments.add( insertManager.insertFeature( feature, ftMapping ) );
+                        Pair<TableName, GeometryMapping> mapping = ftMapping.getDefaultGeometryMapping();
+                        if ( mapping != null ) {
+                            ICRS storageSrs = mapping.second.getCRS();
+                            bboxTracker.insert( feature, storageSrs );
+                        }
                     }
-                    idAssignments.add( insertManager.insertFeature( feature, ftMapping ) );
-                    Pair<TableName, GeometryMapping> mapping = ftMapping.getDefaultGeometryMapping();
-                    if ( mapping != null ) {
-                        ICRS storageSrs = mapping.second.getCRS();
-                        bboxTracker.insert( feature, storageSrs );
+                    // references to features that have been stored before
+                    insertManager.linkStoredFeatures();
+                    insertManager.flush();
+                    if ( insertManager.getDelayedRows() != 0 ) {
+                        String msg = "After insertion, " + insertManager.getDelayedRows()
+                                     + " delayed rows left uninserted. "
+                                     + "Probably a cyclic key constraint blocks insertion.";
+                        throw new RuntimeException( msg );
                     }
-                }
-                if ( insertManager.getDelayedRows() != 0 ) {
-                    String msg = "After insertion, " + insertManager.getDelayedRows()
-                                 + " delayed rows left uninserted. Probably a cyclic key constraint blocks insertion.";
-                    throw new RuntimeException( msg );
+                } finally {
+                    // releases the statements of pending batches if the insertion failed
+                    insertManager.close();
                 }
                 // TODO why is this necessary?
                 fids.clear();
@@ -777,11 +813,7 @@ public class SQLFeatureStoreTransaction implements FeatureStoreTransaction {
         } else {
             try {
                 updated = performUpdateRelational( ftName, replacementProps, filter );
-                if ( fs.getCache() != null ) {
-                    for ( ResourceId id : filter.getSelectedIds() ) {
-                        fs.getCache().remove( id.getRid() );
-                    }
-                }
+                invalidateCache( filter );
             } catch ( Exception e ) {
                 LOG.debug( e.getMessage(), e );
                 throw new FeatureStoreException( e.getMessage(), e );
@@ -142,6 +142,13 @@ public abstract class AbstractMappedSchemaBuilder {
                                     + jaxbElement.getValue().getClass() );
     }
 
+    protected double getGeometryReduction( FeatureTypeMappingJAXB ftDecl ) {
+        if ( ftDecl.getGeometryReduction() == null ) {
+            return -1;
+        }
+        return ftDecl.getGeometryReduction().getTolerance();
+    }
+
     protected BaseType getPrimitiveType( org.deegree.feature.persistence.sql.jaxb.PrimitiveType type ) {
         switch ( type ) {
         case BOOLEAN:
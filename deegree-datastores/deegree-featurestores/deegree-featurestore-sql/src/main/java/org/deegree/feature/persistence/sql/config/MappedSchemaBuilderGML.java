@@ -327,7 +327,8 @@ public class MappedSchemaBuilderGML extends AbstractMappedSchemaBuilder {
             particleMappings.add( buildMapping( ftTable, new Pair<XSElementDeclaration, Boolean>( elDecl, TRUE ),
                                                 particle.getValue() ) );
         }
-        return new FeatureTypeMapping( ftName, ftTable, fidMapping, particleMappings );
+        return new FeatureTypeMapping( ftName, ftTable, fidMapping, particleMappings,
+                                       getGeometryReduction( ftMappingConf ) );
     }
 
     private FIDMapping buildFIDMapping( TableName table, QName ftName, FIDMappingJAXB config )
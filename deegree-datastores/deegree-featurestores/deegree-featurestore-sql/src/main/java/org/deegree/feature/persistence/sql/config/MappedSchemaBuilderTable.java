@@ -198,13 +198,13 @@ public class MappedSchemaBuilderTable extends AbstractMappedSchemaBuilder {
 
         List<JAXBElement<? extends AbstractParticleJAXB>> propDecls = ftDecl.getAbstractParticle();
         if ( propDecls != null && !propDecls.isEmpty() ) {
-            process( table, ftName, fidMapping, propDecls );
+            process( table, ftName, fidMapping, propDecls, getGeometryReduction( ftDecl ) );
         } else {
-            process( table, ftName, fidMapping );
+            process( table, ftName, fidMapping, getGeometryReduction( ftDecl ) );
         }
     }
 
-    private void process( TableName table, QName ftName, FIDMapping fidMapping )
+    private void process( TableName table, QName ftName, FIDMapping fidMapping, double geometryReduction )
                             throws SQLException {
 
         LOG.debug( "Deriving properties and mapping for feature type '" + ftName + "' from table '" + table + "'" );
@@ -253,12 +253,12 @@ public class MappedSchemaBuilderTable extends AbstractMappedSchemaBuilder {
         FeatureType ft = new GenericFeatureType( ftName, pts, false );
         ftNameToFt.put( ftName, ft );
 
-        FeatureTypeMapping ftMapping = new FeatureTypeMapping( ftName, table, fidMapping, mappings );
+        FeatureTypeMapping ftMapping = new FeatureTypeMapping( ftName, table, fidMapping, mappings, geometryReduction );
         ftNameToMapping.put( ftName, ftMapping );
     }
 
     private void process( TableName table, QName ftName, FIDMapping fidMapping,
-                          List<JAXBElement<? extends AbstractParticleJAXB>> propDecls )
+                          List<JAXBElement<? extends AbstractParticleJAXB>> propDecls, double geometryReduction )
                             throws FeatureStoreException, SQLException {
 
         List<PropertyType> pts = new ArrayList<PropertyType>();
@@ -274,7 +274,7 @@ public class MappedSchemaBuilderTable extends AbstractMappedSchemaBuilder {
         FeatureType ft = new GenericFeatureType( ftName, pts, false );
         ftNameToFt.put( ftName, ft );
 
-        FeatureTypeMapping ftMapping = new FeatureTypeMapping( ftName, table, fidMapping, mappings );
+        FeatureTypeMapping ftMapping = new FeatureTypeMapping( ftName, table, fidMapping, mappings, geometryReduction );
         ftNameToMapping.put( ftName, ftMapping );
     }
 
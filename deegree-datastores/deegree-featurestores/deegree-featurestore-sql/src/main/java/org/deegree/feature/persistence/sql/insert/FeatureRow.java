@@ -35,8 +35,6 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.feature.persistence.sql.insert;
 
-import java.sql.Connection;
-import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -44,6 +42,9 @@ import java.util.Set;
 
 import org.deegree.commons.jdbc.SQLIdentifier;
 import org.deegree.commons.tom.primitive.BaseType;
+import org.deegree.commons.tom.primitive.PrimitiveType;
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.commons.tom.sql.SQLValueMangler;
 import org.deegree.commons.utils.Pair;
 import org.deegree.feature.Feature;
 import org.deegree.feature.persistence.FeatureStoreException;
@@ -106,10 +107,8 @@ public class FeatureRow extends InsertRow {
     }
 
     @Override
-    void performInsert( Connection conn, boolean propagateAutoGenColumns )
-                            throws SQLException, FeatureStoreException {
-
-        super.performInsert( conn, propagateAutoGenColumns );
+    protected void afterInsert()
+                            throws FeatureStoreException {
 
         newId = buildNewFid();
         if ( newId == null ) {
@@ -161,6 +160,46 @@ public class FeatureRow extends InsertRow {
         newId = buildNewFid();
     }
 
+    /**
+     * Assigns this row to a feature that has been stored before (i.e. a feature that is referenced by the inserted
+     * features, but not part of them). The row will not be inserted, but provides the key values of the stored feature
+     * to the referencing rows.
+     * 
+     * @throws FeatureStoreException
+     *             if the original id does not identify a feature of a mapped feature type
+     */
+    void assignStored()
+                            throws FeatureStoreException {
+
+        IdAnalysis analysis = null;
+        try {
+            analysis = mgr.getSchema().analyzeId( origFid );
+        } catch ( IllegalArgumentException e ) {
+            // handled below
+        }
+        FeatureTypeMapping ftMapping = null;
+        if ( analysis != null && analysis.getFeatureType() != null ) {
+            ftMapping = mgr.getSchema().getFtMapping( analysis.getFeatureType().getName() );
+        }
+        if ( ftMapping == null ) {
+            String msg = "Cannot resolve reference to feature '" + origFid
+                         + "'. The feature is not part of the inserted features and the id does not match a "
+                         + "configured feature id pattern.";
+            throw new FeatureStoreException( msg );
+        }
+
+        this.table = ftMapping.getFtTable();
+        this.fidMapping = ftMapping.getFidMapping();
+
+        String[] idKernels = analysis.getIdKernels();
+        for ( int i = 0; i < fidMapping.getColumns().size(); i++ ) {
+            Pair<SQLIdentifier, BaseType> idColumn = fidMapping.getColumns().get( i );
+            PrimitiveValue value = new PrimitiveValue( idKernels[i], new PrimitiveType( idColumn.second ) );
+            addPreparedArgument( idColumn.first, SQLValueMangler.internalToSQL( value ) );
+        }
+        newId = buildNewFid();
+    }
+
     boolean isAssigned() {
         return fidMapping != null;
     }
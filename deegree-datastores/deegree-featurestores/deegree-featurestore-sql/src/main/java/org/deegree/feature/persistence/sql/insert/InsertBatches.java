@@ -0,0 +1,200 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2011 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.sql.insert;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.deegree.commons.utils.JDBCUtils;
+import org.deegree.feature.persistence.FeatureStoreException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects {@link InsertRow}s in JDBC batches, one batch (and {@link PreparedStatement}) per INSERT statement.
+ * <p>
+ * Batches are executed in the order of their creation. A row that depends on a row in a pending batch (see
+ * {@link #requireAfter(InsertRow, InsertRow)}) is never added to a batch that would be executed before the batch of
+ * the parent row: the pending batches are executed first.
+ * </p>
+ * 
+ * @author <a href="mailto:schneider@lat-lon.de">Markus Schneider</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class InsertBatches {
+
+    private static final Logger LOG = LoggerFactory.getLogger( InsertBatches.class );
+
+    private final Connection conn;
+
+    private final int batchSize;
+
+    // key: INSERT statement, value: pending batch (in order of creation)
+    private final Map<String, InsertBatch> batches = new LinkedHashMap<String, InsertBatch>();
+
+    // key: row that has been added to a pending batch, value: position of the batch
+    private final Map<InsertRow, Integer> batchedRows = new HashMap<InsertRow, Integer>();
+
+    // key: row, value: minimum position of the batch the row may be added to (parents in pending batches)
+    private final Map<InsertRow, Integer> minBatchPositions = new HashMap<InsertRow, Integer>();
+
+    /**
+     * Creates a new {@link InsertBatches} instance.
+     * 
+     * @param conn
+     *            connection, must not be <code>null</code>
+     * @param batchSize
+     *            maximum number of rows per batch, a full batch is executed right away (together with all other
+     *            pending batches)
+     */
+    public InsertBatches( Connection conn, int batchSize ) {
+        this.conn = conn;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Adds the given row to the batch for its INSERT statement.
+     * 
+     * @param row
+     *            row to add, all key values must be known, must not be <code>null</code>
+     * @throws SQLException
+     * @throws FeatureStoreException
+     */
+    public void add( InsertRow row )
+                            throws SQLException, FeatureStoreException {
+        String sql = row.getSql();
+        InsertBatch batch = batches.get( sql );
+        Integer minPos = minBatchPositions.get( row );
+        if ( batch != null && minPos != null && batch.position < minPos ) {
+            // batch would be executed before the batch of a parent row
+            flush();
+            batch = null;
+        }
+        if ( batch == null ) {
+            batch = new InsertBatch( sql, conn.prepareStatement( sql ), batches.size() );
+            batches.put( sql, batch );
+        }
+        row.addToBatch( batch.stmt );
+        batchedRows.put( row, batch.position );
+        if ( ++batch.size >= batchSize ) {
+            flush();
+        }
+    }
+
+    /**
+     * Records that the given child row must be inserted after the parent row. Does nothing if the parent row is not in
+     * a pending batch.
+     * 
+     * @param child
+     *            row that depends on the parent row, must not be <code>null</code>
+     * @param parent
+     *            row that provides key values to the child row, must not be <code>null</code>
+     */
+    public void requireAfter( InsertRow child, InsertRow parent ) {
+        Integer parentPos = batchedRows.get( parent );
+        if ( parentPos != null ) {
+            Integer minPos = minBatchPositions.get( child );
+            if ( minPos == null || minPos < parentPos ) {
+                minBatchPositions.put( child, parentPos );
+            }
+        }
+    }
+
+    /**
+     * Returns whether the given row depends on rows in pending batches, i.e. whether the batches must be executed
+     * before the row can be inserted individually.
+     * 
+     * @param row
+     *            row, must not be <code>null</code>
+     * @return <code>true</code>, if the row depends on rows in pending batches, <code>false</code> otherwise
+     */
+    public boolean hasPendingParents( InsertRow row ) {
+        return minBatchPositions.containsKey( row );
+    }
+
+    /**
+     * Executes all pending batches (in the order of their creation) and closes their statements.
+     * 
+     * @throws SQLException
+     */
+    public void flush()
+                            throws SQLException {
+        try {
+            for ( InsertBatch batch : batches.values() ) {
+                LOG.debug( "Executing batch of " + batch.size + " rows: " + batch.sql );
+                batch.stmt.executeBatch();
+            }
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Discards all pending batches without executing them and closes their statements.
+     */
+    public void close() {
+        for ( InsertBatch batch : batches.values() ) {
+            JDBCUtils.close( batch.stmt );
+        }
+        batches.clear();
+        batchedRows.clear();
+        minBatchPositions.clear();
+    }
+
+    private static class InsertBatch {
+
+        private final String sql;
+
+        private final PreparedStatement stmt;
+
+        private final int position;
+
+        private int size;
+
+        private InsertBatch( String sql, PreparedStatement stmt, int position ) {
+            this.sql = sql;
+            this.stmt = stmt;
+            this.position = position;
+        }
+    }
+
+}
@@ -39,7 +39,6 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -51,7 +50,6 @@ import java.util.UUID;
 import org.deegree.commons.jdbc.SQLIdentifier;
 import org.deegree.commons.jdbc.TransactionRow;
 import org.deegree.commons.tom.sql.ParticleConversion;
-import org.deegree.commons.utils.JDBCUtils;
 import org.deegree.feature.persistence.FeatureStoreException;
 import org.deegree.feature.persistence.sql.id.AutoIDGenerator;
 import org.deegree.feature.persistence.sql.id.IDGenerator;
@@ -96,7 +94,7 @@ public abstract class InsertRow extends TransactionRow {
             for ( SQLIdentifier autoKeyColumn : keyColumnToGenerator.keySet() ) {
                 IDGenerator idGenerator = keyColumnToGenerator.get( autoKeyColumn );
                 if ( idGenerator instanceof SequenceIDGenerator ) {
-                    int seqVal = getSequenceNextVal( ( (SequenceIDGenerator) idGenerator ).getSequence() );
+                    int seqVal = mgr.getSequenceNextVal( ( (SequenceIDGenerator) idGenerator ).getSequence() );
                     LOG.debug( "Got key value for column '" + autoKeyColumn.getName() + "' from sequence: " + seqVal );
                     addPreparedArgument( autoKeyColumn, seqVal );
                 } else if ( idGenerator instanceof UUIDGenerator ) {
@@ -112,29 +110,6 @@ public abstract class InsertRow extends TransactionRow {
         }
     }
 
-    private int getSequenceNextVal( String sequenceName )
-                            throws FeatureStoreException {
-        String sql = mgr.getDialect().getSelectSequenceNextVal( sequenceName );
-        Statement stmt = null;
-        ResultSet rs = null;
-        try {
-            stmt = mgr.getConnection().createStatement();
-            LOG.debug( "Determing feature ID from db sequence: " + sql );
-            rs = stmt.executeQuery( sql );
-            if ( rs.next() ) {
-                return rs.getInt( 1 );
-            } else {
-                String msg = "Error determining ID from db sequence. No value returned for: " + sql;
-                throw new FeatureStoreException( msg );
-            }
-        } catch ( SQLException e ) {
-            String msg = "Error determining ID from db sequence. No value returned for: " + sql;
-            throw new FeatureStoreException( msg, e );
-        } finally {
-            JDBCUtils.close( rs, stmt, null, LOG );
-        }
-    }
-
     void addParent( ParentRowReference ref ) {
         parentToRef.put( ref.getTarget(), ref );
     }
@@ -212,22 +187,7 @@ public abstract class InsertRow extends TransactionRow {
             }
             stmt = conn.prepareStatement( sql, cols );
         }
-        int columnId = 1;
-        for ( Entry<SQLIdentifier, Object> entry : columnToObject.entrySet() ) {
-            if ( entry.getValue() != null ) {
-                LOG.debug( "- Argument " + entry.getKey() + " = " + entry.getValue() + " ("
-                           + entry.getValue().getClass() + ")" );
-                if ( entry.getValue() instanceof ParticleConversion<?> ) {
-                    ParticleConversion<?> conversion = (ParticleConversion<?>) entry.getValue();
-                    conversion.setParticle( stmt, columnId++ );
-                } else {
-                    stmt.setObject( columnId++, entry.getValue() );
-                }
-            } else {
-                LOG.debug( "- Argument " + entry.getKey() + " = NULL" );
-                stmt.setObject( columnId++, null );
-            }
-        }
+        bindArguments( stmt );
         stmt.execute();
 
         if ( !autoGenColumns.isEmpty() ) {
@@ -251,6 +211,78 @@ public abstract class InsertRow extends TransactionRow {
             }
         }
         stmt.close();
+
+        afterInsert();
+    }
+
+    /**
+     * Returns whether this row can be added to a JDBC batch, i.e. whether all (propagated) key values are known before
+     * the INSERT is executed and no values have to be retrieved from the database afterwards.
+     * 
+     * @param propagateNonFidAutoGenColumns
+     *            <code>true</code>, if auto generated key columns need to be processed (and propagated),
+     *            <code>false</code> otherwise
+     * @return <code>true</code>, if the row can be batched, <code>false</code> otherwise
+     */
+    boolean isBatchable( boolean propagateNonFidAutoGenColumns ) {
+        for ( SQLIdentifier column : getAutogenColumns( propagateNonFidAutoGenColumns ) ) {
+            if ( get( column ) == null ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Binds the values of this row to the given statement and adds it to the statement's batch.
+     * <p>
+     * The statement must have been prepared for the SQL returned by {@link #getSql()} (as determined before this method
+     * is invoked).
+     * </p>
+     * 
+     * @param stmt
+     *            prepared statement to add the row to, must not be <code>null</code>
+     * @throws SQLException
+     * @throws FeatureStoreException
+     */
+    void addToBatch( PreparedStatement stmt )
+                            throws SQLException, FeatureStoreException {
+        if ( LOG.isDebugEnabled() ) {
+            LOG.debug( "Adding row to batch: " + this );
+        }
+        bindArguments( stmt );
+        stmt.addBatch();
+        afterInsert();
+    }
+
+    /**
+     * Invoked after the row has been inserted (or added to a batch).
+     * 
+     * @throws FeatureStoreException
+     */
+    protected void afterInsert()
+                            throws FeatureStoreException {
+        // nothing to do by default
+    }
+
+    private void bindArguments( PreparedStatement stmt )
+                            throws SQLException {
+        int columnId = 1;
+        for ( Entry<SQLIdentifier, Object> entry : columnToObject.entrySet() ) {
+            if ( entry.getValue() != null ) {
+                LOG.debug( "- Argument " + entry.getKey() + " = " + entry.getValue() + " ("
+                           + entry.getValue().getClass() + ")" );
+                if ( entry.getValue() instanceof ParticleConversion<?> ) {
+                    ParticleConversion<?> conversion = (ParticleConversion<?>) entry.getValue();
+                    conversion.setParticle( stmt, columnId++ );
+                } else {
+                    stmt.setObject( columnId++, entry.getValue() );
+                }
+            } else {
+                LOG.debug( "- Argument " + entry.getKey() + " = NULL" );
+                stmt.setObject( columnId++, null );
+            }
+        }
     }
 
     protected Set<SQLIdentifier> getAutogenColumns( boolean propagateNonFidAutoGenColumns ) {
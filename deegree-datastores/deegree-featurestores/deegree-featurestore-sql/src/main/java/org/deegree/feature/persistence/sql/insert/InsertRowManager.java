@@ -93,6 +93,7 @@ import org.slf4j.LoggerFactory;
  * <li>Usability for complex structures/mappings</li>
  * <li>Coping with unresolved feature references (forward/backward xlinks)</li>
  * <li>Auto-generated feature ids/key columns</li>
+ * <li>Optional JDBC batching of rows whose key values are known before insertion</li>
  * </ul>
  * 
  * @author <a href="mailto:schneider@lat-lon.de">Markus Schneider</a>
@@ -126,8 +127,13 @@ public class InsertRowManager {
     // values: rows that have not been inserted yet, but can be inserted (no parents)
     private final Set<InsertRow> rootRows = new HashSet<InsertRow>();
 
+    // pending JDBC batches, null if batching is disabled
+    private final InsertBatches batches;
+
+    private final SequenceValues sequenceValues;
+
     /**
-     * Creates a new {@link InsertRowManager} instance.
+     * Creates a new {@link InsertRowManager} instance that inserts each row individually.
      * 
      * @param fs
      *            feature store, must not be <code>null</code>
@@ -137,11 +143,38 @@ public class InsertRowManager {
      *            feature id generation mode, must not be <code>null</code>
      */
     public InsertRowManager( SQLFeatureStore fs, Connection conn, IDGenMode idGenMode ) {
+        this( fs, conn, idGenMode, 1, 1 );
+    }
+
+    /**
+     * Creates a new {@link InsertRowManager} instance.
+     * <p>
+     * If the batch size is greater than one, rows whose key values are known before insertion are collected in JDBC
+     * batches (one per INSERT statement). The caller must invoke {@link #flush()} after the last feature has been
+     * inserted.
+     * </p>
+     * 
+     * @param fs
+     *            feature store, must not be <code>null</code>
+     * @param conn
+     *            connection, must not be <code>null</code>
+     * @param idGenMode
+     *            feature id generation mode, must not be <code>null</code>
+     * @param batchSize
+     *            maximum number of rows per JDBC batch, <code>1</code> disables batching
+     * @param sequenceBlockSize
+     *            number of values that are fetched from a DB sequence at once, <code>1</code> fetches values one by
+     *            one
+     */
+    public InsertRowManager( SQLFeatureStore fs, Connection conn, IDGenMode idGenMode, int batchSize,
+                             int sequenceBlockSize ) {
         this.fs = fs;
         this.dialect = fs.getDialect();
         this.conn = conn;
         this.idGenMode = idGenMode;
         this.tableDeps = fs.getSchema().getKeyDependencies();
+        this.batches = batchSize > 1 ? new InsertBatches( conn, batchSize ) : null;
+        this.sequenceValues = new SequenceValues( dialect, conn, sequenceBlockSize );
     }
 
     /**
@@ -260,6 +293,24 @@ public class InsertRowManager {
         return fs.getSchema();
     }
 
+    /**
+     * Returns the next value of the given DB sequence.
+     * <p>
+     * If a sequence block size greater than one has been configured, values are fetched in blocks and handed out from
+     * memory.
+     * </p>
+     * 
+     * @param sequenceName
+     *            name of the sequence, must not be <code>null</code>
+     * @return next value of the sequence
+     * @throws FeatureStoreException
+     *             if the value cannot be determined
+     */
+    int getSequenceNextVal( String sequenceName )
+                            throws FeatureStoreException {
+        return sequenceValues.next( sequenceName );
+    }
+
     Set<SQLIdentifier> getGenColumns( TableName table ) {
         return tableDeps.getGeneratedColumns( table );
     }
@@ -388,8 +439,9 @@ public class InsertRowManager {
                         }
                         ref.addHrefingRow( currentRow, hrefCol );
                         if ( !delayedRows.contains( subFeatureRow ) ) {
-                            // sub feature already inserted, propagate key values right away
+                            // sub feature already inserted (or batched), propagate key values right away
                             currentRow.removeParent( subFeatureRow );
+                            requireAfter( currentRow, subFeatureRow );
                         }
                     }
                 }
@@ -517,8 +569,17 @@ public class InsertRowManager {
             List<InsertRow> rootRemoves = new ArrayList<InsertRow>();
             List<InsertRow> rootAdds = new ArrayList<InsertRow>();
             for ( InsertRow row : rootRows ) {
-                LOG.debug( "Inserting row " + row );
-                row.performInsert( conn, rowToChildRows.get( row ) != null );
+                boolean propagate = rowToChildRows.get( row ) != null;
+                if ( batches != null && row.isBatchable( propagate ) ) {
+                    batches.add( row );
+                } else {
+                    if ( batches != null && batches.hasPendingParents( row ) ) {
+                        // parent rows are still pending
+                        flush();
+                    }
+                    LOG.debug( "Inserting row " + row );
+                    row.performInsert( conn, propagate );
+                }
                 delayedRows.remove( row );
                 rootRemoves.add( row );
 
@@ -528,6 +589,7 @@ public class InsertRowManager {
                     for ( InsertRow childRow : childRows ) {
                         LOG.debug( "Child row: " + childRow );
                         childRow.removeParent( row );
+                        requireAfter( childRow, row );
                         if ( !childRow.hasParents() ) {
                             rootAdds.add( childRow );
                         }
@@ -540,6 +602,65 @@ public class InsertRowManager {
         }
     }
 
+    /**
+     * Links the rows that reference features which are not part of the inserted features to the stored features with
+     * the referenced ids (e.g. features that have been inserted in an earlier transaction). Must be invoked after the
+     * last feature has been inserted (and before {@link #flush()}).
+     * 
+     * @throws SQLException
+     * @throws FeatureStoreException
+     *             if a referenced id does not identify a feature of a mapped feature type
+     */
+    public void linkStoredFeatures()
+                            throws SQLException, FeatureStoreException {
+        for ( FeatureRow featureRow : new ArrayList<FeatureRow>( origFidToFeatureRow.values() ) ) {
+            if ( featureRow.isAssigned() ) {
+                continue;
+            }
+            LOG.debug( "Linking reference to stored feature '" + featureRow.getOriginalId() + "'." );
+            featureRow.assignStored();
+            delayedRows.remove( featureRow );
+            List<InsertRow> childRows = rowToChildRows.remove( featureRow );
+            if ( childRows != null ) {
+                for ( InsertRow childRow : childRows ) {
+                    childRow.removeParent( featureRow );
+                    if ( !childRow.hasParents() ) {
+                        rootRows.add( childRow );
+                    }
+                }
+            }
+        }
+        processHeap();
+    }
+
+    /**
+     * Executes all pending JDBC batches (in the order of their creation).
+     * 
+     * @throws SQLException
+     */
+    public void flush()
+                            throws SQLException {
+        if ( batches != null ) {
+            batches.flush();
+        }
+    }
+
+    /**
+     * Discards all pending JDBC batches without executing them and releases their statements. Must be invoked if the
+     * insertion fails.
+     */
+    public void close() {
+        if ( batches != null ) {
+            batches.close();
+        }
+    }
+
+    private void requireAfter( InsertRow child, InsertRow parent ) {
+        if ( batches != null ) {
+            batches.requireAfter( child, parent );
+        }
+    }
+
     /**
      * Returns the number of currently delayed rows (rows that depend on some other row to be inserted first).
      * 
@@ -0,0 +1,136 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2011 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.sql.insert;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import org.deegree.commons.utils.JDBCUtils;
+import org.deegree.feature.persistence.FeatureStoreException;
+import org.deegree.sqldialect.SQLDialect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands out values of DB sequences, optionally fetching them in blocks.
+ * 
+ * @author <a href="mailto:schneider@lat-lon.de">Markus Schneider</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+class SequenceValues {
+
+    private static final Logger LOG = LoggerFactory.getLogger( SequenceValues.class );
+
+    private final SQLDialect dialect;
+
+    private final Connection conn;
+
+    private final int blockSize;
+
+    // key: sequence name, value: pre-allocated sequence values
+    private final Map<String, LinkedList<Integer>> sequenceValues = new HashMap<String, LinkedList<Integer>>();
+
+    /**
+     * Creates a new {@link SequenceValues} instance.
+     * 
+     * @param dialect
+     *            SQL dialect, must not be <code>null</code>
+     * @param conn
+     *            connection, must not be <code>null</code>
+     * @param blockSize
+     *            number of values that are fetched from a DB sequence at once, <code>1</code> fetches values one by
+     *            one
+     */
+    SequenceValues( SQLDialect dialect, Connection conn, int blockSize ) {
+        this.dialect = dialect;
+        this.conn = conn;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Returns the next value of the given DB sequence.
+     * 
+     * @param sequenceName
+     *            name of the sequence, must not be <code>null</code>
+     * @return next value of the sequence
+     * @throws FeatureStoreException
+     *             if the value cannot be determined
+     */
+    int next( String sequenceName )
+                            throws FeatureStoreException {
+        LinkedList<Integer> values = sequenceValues.get( sequenceName );
+        if ( values == null ) {
+            values = new LinkedList<Integer>();
+            sequenceValues.put( sequenceName, values );
+        }
+        if ( values.isEmpty() ) {
+            String sql = null;
+            if ( blockSize > 1 ) {
+                sql = dialect.getSelectSequenceNextVals( sequenceName, blockSize );
+            } else {
+                sql = dialect.getSelectSequenceNextVal( sequenceName );
+            }
+            Statement stmt = null;
+            ResultSet rs = null;
+            try {
+                stmt = conn.createStatement();
+                LOG.debug( "Determing feature ID(s) from db sequence: " + sql );
+                rs = stmt.executeQuery( sql );
+                while ( rs.next() ) {
+                    values.add( rs.getInt( 1 ) );
+                }
+            } catch ( SQLException e ) {
+                String msg = "Error determining ID from db sequence. No value returned for: " + sql;
+                throw new FeatureStoreException( msg, e );
+            } finally {
+                JDBCUtils.close( rs, stmt, null, LOG );
+            }
+            if ( values.isEmpty() ) {
+                String msg = "Error determining ID from db sequence. No value returned for: " + sql;
+                throw new FeatureStoreException( msg );
+            }
+        }
+        return values.removeFirst();
+    }
+
+}
@@ -0,0 +1,160 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.sql.rules;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.deegree.commons.utils.CloseableIterator;
+import org.deegree.commons.utils.JDBCUtils;
+import org.deegree.feature.Feature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link CloseableIterator} that builds {@link Feature}s from windows of SQL result set rows using
+ * {@link FeatureBuilderRelational#buildFeatures(List)}, so joined tables are fetched once per window instead of once
+ * per row.
+ * 
+ * @since 3.4
+ */
+public class BatchedFeatureResultSetIterator implements CloseableIterator<Feature> {
+
+    private static final Logger LOG = LoggerFactory.getLogger( BatchedFeatureResultSetIterator.class );
+
+    private final FeatureBuilderRelational builder;
+
+    private final ResultSet rs;
+
+    private final Connection conn;
+
+    private final Statement stmt;
+
+    private final int batchSize;
+
+    private Iterator<Feature> window = Collections.<Feature> emptyList().iterator();
+
+    private boolean exhausted;
+
+    /**
+     * Creates a new {@link BatchedFeatureResultSetIterator} instance.
+     * 
+     * @param builder
+     *            feature builder, must not be <code>null</code>
+     * @param rs
+     *            result set that the iterator uses to build the features, must not be <code>null</code>
+     * @param conn
+     *            connection that was used to obtain the result set, must not be <code>null</code>
+     * @param stmt
+     *            statement that was used to obtain the result set, must not be <code>null</code>
+     * @param batchSize
+     *            number of rows per window, must be greater than zero
+     */
+    public BatchedFeatureResultSetIterator( FeatureBuilderRelational builder, ResultSet rs, Connection conn,
+                                            Statement stmt, int batchSize ) {
+        this.builder = builder;
+        this.rs = rs;
+        this.conn = conn;
+        this.stmt = stmt;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while ( !window.hasNext() && !exhausted ) {
+            try {
+                List<Object[]> rows = new ArrayList<Object[]>();
+                while ( rows.size() < batchSize ) {
+                    if ( !rs.next() ) {
+                        exhausted = true;
+                        break;
+                    }
+                    rows.add( builder.copyRow( rs ) );
+                }
+                LOG.debug( "Building window of {} features.", rows.size() );
+                window = builder.buildFeatures( rows ).iterator();
+            } catch ( SQLException e ) {
+                // try to close everything
+                close();
+                // wrap as unchecked exception
+                throw new RuntimeException( e.getMessage(), e );
+            }
+        }
+        return window.hasNext();
+    }
+
+    @Override
+    public Feature next() {
+        if ( !hasNext() ) {
+            throw new NoSuchElementException();
+        }
+        return window.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+        LOG.debug( "Closing JDBC ResultSet, Statement and Connection" );
+        JDBCUtils.close( rs, stmt, conn, LOG );
+    }
+
+    @Override
+    public List<Feature> getAsListAndClose() {
+        return (List<Feature>) getAsCollectionAndClose( new LinkedList<Feature>() );
+    }
+
+    @Override
+    public Collection<Feature> getAsCollectionAndClose( Collection<Feature> collection ) {
+        while ( hasNext() ) {
+            collection.add( next() );
+        }
+        close();
+        return collection;
+    }
+
+}
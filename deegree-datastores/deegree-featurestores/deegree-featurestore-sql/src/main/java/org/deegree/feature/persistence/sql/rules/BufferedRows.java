@@ -0,0 +1,290 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.sql.rules;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Detached, in-memory copies of {@link ResultSet} rows that can be read through the {@link ResultSet} interface again.
+ * <p>
+ * Used for batched fetching of joined tables: the rows of a window are copied, so the joined rows of all rows in the
+ * window can be fetched before the features are built. Only index-based getters are supported, as the copies don't
+ * keep any column labels. Values are captured using {@link ResultSet#getObject(int)} and converted on access.
+ * {@link Blob} and {@link Clob} values are read into <code>byte[]</code> and {@link String} values when copying, as
+ * they may become invalid once the result set is closed.
+ * </p>
+ * 
+ * @since 3.4
+ */
+final class BufferedRows {
+
+    private BufferedRows() {
+        // avoid instantiation
+    }
+
+    /**
+     * Copies the current row of the given {@link ResultSet}.
+     * 
+     * @param rs
+     *            result set positioned on a row, must not be <code>null</code>
+     * @param numColumns
+     *            number of columns to copy (starting with the first column)
+     * @return copied values, never <code>null</code>
+     * @throws SQLException
+     */
+    static Object[] copy( ResultSet rs, int numColumns )
+                            throws SQLException {
+        Object[] row = new Object[numColumns];
+        for ( int i = 0; i < numColumns; i++ ) {
+            row[i] = detach( rs.getObject( i + 1 ) );
+        }
+        return row;
+    }
+
+    private static Object detach( Object value )
+                            throws SQLException {
+        if ( value instanceof Blob ) {
+            Blob blob = (Blob) value;
+            try {
+                return blob.getBytes( 1, (int) blob.length() );
+            } finally {
+                free( blob );
+            }
+        }
+        if ( value instanceof Clob ) {
+            Clob clob = (Clob) value;
+            try {
+                return clob.getSubString( 1, (int) clob.length() );
+            } finally {
+                free( clob );
+            }
+        }
+        return value;
+    }
+
+    private static void free( Blob blob ) {
+        try {
+            blob.free();
+        } catch ( Throwable t ) {
+            // not supported by pre-JDBC 4 drivers
+        }
+    }
+
+    private static void free( Clob clob ) {
+        try {
+            clob.free();
+        } catch ( Throwable t ) {
+            // not supported by pre-JDBC 4 drivers
+        }
+    }
+
+    /**
+     * Returns a {@link ResultSet} that is positioned on the given row.
+     * 
+     * @param row
+     *            row values, must not be <code>null</code>
+     * @return result set, never <code>null</code>
+     */
+    static ResultSet asCurrentRow( Object[] row ) {
+        RowsHandler handler = new RowsHandler( Collections.singletonList( row ) );
+        handler.pos = 0;
+        return newProxy( handler );
+    }
+
+    /**
+     * Returns a {@link ResultSet} that is positioned before the first of the given rows.
+     * 
+     * @param rows
+     *            rows, must not be <code>null</code>
+     * @return result set, never <code>null</code>
+     */
+    static ResultSet asCursor( List<Object[]> rows ) {
+        return newProxy( new RowsHandler( rows ) );
+    }
+
+    private static ResultSet newProxy( RowsHandler handler ) {
+        return (ResultSet) Proxy.newProxyInstance( BufferedRows.class.getClassLoader(),
+                                                   new Class<?>[] { ResultSet.class }, handler );
+    }
+
+    private static class RowsHandler implements InvocationHandler {
+
+        private final List<Object[]> rows;
+
+        private int pos = -1;
+
+        private boolean wasNull;
+
+        private RowsHandler( List<Object[]> rows ) {
+            this.rows = rows;
+        }
+
+        @Override
+        public Object invoke( Object proxy, Method method, Object[] args )
+                                throws Throwable {
+            String name = method.getName();
+            if ( method.getDeclaringClass() == Object.class ) {
+                if ( name.equals( "equals" ) ) {
+                    return proxy == args[0];
+                }
+                if ( name.equals( "hashCode" ) ) {
+                    return System.identityHashCode( proxy );
+                }
+                return "BufferedRows[" + rows.size() + "]";
+            }
+            if ( name.equals( "next" ) ) {
+                if ( pos < rows.size() ) {
+                    pos++;
+                }
+                return pos < rows.size();
+            }
+            if ( name.equals( "wasNull" ) ) {
+                return wasNull;
+            }
+            if ( name.equals( "close" ) ) {
+                return null;
+            }
+            if ( name.equals( "isClosed" ) ) {
+                return false;
+            }
+            if ( name.equals( "getStatement" ) ) {
+                return null;
+            }
+            if ( name.equals( "isWrapperFor" ) ) {
+                return false;
+            }
+            if ( args != null && args.length == 1 && args[0] instanceof Integer && name.startsWith( "get" ) ) {
+                return get( name, (Integer) args[0] );
+            }
+            throw new SQLFeatureNotSupportedException( "Method '" + name + "' is not supported on buffered rows." );
+        }
+
+        private Object get( String name, int columnIndex )
+                                throws SQLException {
+            if ( pos < 0 || pos >= rows.size() ) {
+                throw new SQLException( "Buffered rows are not positioned on a row." );
+            }
+            Object[] row = rows.get( pos );
+            if ( columnIndex < 1 || columnIndex > row.length ) {
+                throw new SQLException( "Invalid column index " + columnIndex + "." );
+            }
+            Object value = row[columnIndex - 1];
+            wasNull = value == null;
+            if ( name.equals( "getObject" ) ) {
+                return value;
+            }
+            if ( name.equals( "getString" ) ) {
+                return value == null ? null : value.toString();
+            }
+            if ( name.equals( "getBytes" ) ) {
+                return (byte[]) value;
+            }
+            if ( name.equals( "getBinaryStream" ) ) {
+                return value == null ? null : new ByteArrayInputStream( (byte[]) value );
+            }
+            if ( name.equals( "getInt" ) ) {
+                return value == null ? 0 : toNumber( value ).intValue();
+            }
+            if ( name.equals( "getLong" ) ) {
+                return value == null ? 0L : toNumber( value ).longValue();
+            }
+            if ( name.equals( "getShort" ) ) {
+                return value == null ? (short) 0 : toNumber( value ).shortValue();
+            }
+            if ( name.equals( "getDouble" ) ) {
+                return value == null ? 0.0 : toNumber( value ).doubleValue();
+            }
+            if ( name.equals( "getFloat" ) ) {
+                return value == null ? 0.0f : toNumber( value ).floatValue();
+            }
+            if ( name.equals( "getBigDecimal" ) ) {
+                return value == null ? null : new BigDecimal( toNumber( value ).toString() );
+            }
+            if ( name.equals( "getBoolean" ) ) {
+                return toBoolean( value );
+            }
+            if ( name.equals( "getTimestamp" ) ) {
+                return value == null ? null : new Timestamp( ( (java.util.Date) value ).getTime() );
+            }
+            if ( name.equals( "getDate" ) ) {
+                return value == null ? null : new java.sql.Date( ( (java.util.Date) value ).getTime() );
+            }
+            if ( name.equals( "getTime" ) ) {
+                return value == null ? null : new Time( ( (java.util.Date) value ).getTime() );
+            }
+            throw new SQLFeatureNotSupportedException( "Method '" + name + "' is not supported on buffered rows." );
+        }
+
+        private Number toNumber( Object value )
+                                throws SQLException {
+            if ( value instanceof Number ) {
+                return (Number) value;
+            }
+            try {
+                return new BigDecimal( value.toString().trim() );
+            } catch ( NumberFormatException e ) {
+                throw new SQLException( "Value '" + value + "' is not numeric." );
+            }
+        }
+
+        private boolean toBoolean( Object value ) {
+            if ( value == null ) {
+                return false;
+            }
+            if ( value instanceof Boolean ) {
+                return (Boolean) value;
+            }
+            if ( value instanceof Number ) {
+                return ( (Number) value ).intValue() != 0;
+            }
+            String s = value.toString().trim();
+            return s.equalsIgnoreCase( "true" ) || s.equalsIgnoreCase( "t" ) || s.equals( "1" );
+        }
+    }
+
+}
@@ -46,6 +46,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -85,6 +86,7 @@ import org.deegree.geometry.primitive.LineString;
 import org.deegree.geometry.primitive.Polygon;
 import org.deegree.geometry.primitive.patches.SurfacePatch;
 import org.deegree.geometry.primitive.segments.CurveSegment;
+import org.deegree.geometry.utils.GeometryParticleConverter;
 import org.deegree.sqldialect.filter.DBField;
 import org.deegree.sqldialect.filter.MappingExpression;
 import org.jaxen.expr.Expr;
@@ -110,6 +112,9 @@ public class FeatureBuilderRelational implements FeatureBuilder {
 
     private static final Logger LOG = LoggerFactory.getLogger( FeatureBuilderRelational.class );
 
+    // upper bound for the number of keys in a single batched SELECT (Oracle limits IN-lists to 1000 entries)
+    static final int MAX_KEYS_PER_SELECT = 1000;
+
     private final SQLFeatureStore fs;
 
     private final FeatureType ft;
@@ -128,6 +133,12 @@ public class FeatureBuilderRelational implements FeatureBuilder {
 
     private VoidEscalationPolicyType escalationPolicy;
 
+    // tolerance for simplifying geometries in the database (in storage CRS units, non-positive: no simplification)
+    private final double geometryTolerance;
+
+    // joined rows of the current window (only set while building features in batched mode)
+    private Map<Mapping, PrefetchedJoin> prefetchedJoins;
+
     /**
      * Creates a new {@link FeatureBuilderRelational} instance.
      * 
@@ -144,12 +155,40 @@ public class FeatureBuilderRelational implements FeatureBuilder {
      */
     public FeatureBuilderRelational( SQLFeatureStore fs, FeatureType ft, FeatureTypeMapping ftMapping, Connection conn,
                                      String ftTableAlias, VoidEscalationPolicyType escalationPolicy ) {
+        this( fs, ft, ftMapping, conn, ftTableAlias, escalationPolicy, -1 );
+    }
+
+    /**
+     * Creates a new {@link FeatureBuilderRelational} instance that selects geometries with a reduced level of detail.
+     * <p>
+     * Features built by this instance are not added to the feature cache of the store, as their geometries are
+     * simplified.
+     * </p>
+     * 
+     * @param fs
+     *            feature store, must not be <code>null</code>
+     * @param ft
+     *            feature type, must not be <code>null</code>
+     * @param ftMapping
+     *            feature type mapping, must not be <code>null</code>
+     * @param conn
+     *            JDBC connection (used for performing subsequent SELECTs), must not be <code>null</code>
+     * @param escalationPolicy
+     *            the void escalation policy, must not be <code>null</code>
+     * @param geometryTolerance
+     *            maximum deviation of the simplified geometries (in units of the storage CRS), if not positive,
+     *            geometries are selected unchanged
+     */
+    public FeatureBuilderRelational( SQLFeatureStore fs, FeatureType ft, FeatureTypeMapping ftMapping, Connection conn,
+                                     String ftTableAlias, VoidEscalationPolicyType escalationPolicy,
+                                     double geometryTolerance ) {
         this.fs = fs;
         this.ft = ft;
         this.ftMapping = ftMapping;
         this.conn = conn;
         this.tableAlias = ftTableAlias;
         this.escalationPolicy = escalationPolicy;
+        this.geometryTolerance = geometryTolerance;
         this.nsBindings = new NamespaceBindings();
         for ( String prefix : fs.getNamespaceContext().keySet() ) {
             String ns = fs.getNamespaceContext().get( prefix );
@@ -186,6 +225,13 @@ public class FeatureBuilderRelational implements FeatureBuilder {
         return colToRsIdx;
     }
 
+    private String getGeometrySelectSnippet( ParticleConverter<?> converter ) {
+        if ( geometryTolerance > 0 && converter instanceof GeometryParticleConverter ) {
+            return ( (GeometryParticleConverter) converter ).getSelectSnippet( tableAlias, geometryTolerance );
+        }
+        return converter.getSelectSnippet( tableAlias );
+    }
+
     private void addSelectColumns( Mapping mapping, LinkedHashMap<String, Integer> colToRsIdx, boolean initial ) {
 
         List<TableJoin> jc = mapping.getJoinedTable();
@@ -212,7 +258,7 @@ public class FeatureBuilderRelational implements FeatureBuilder {
                 }
             } else if ( mapping instanceof GeometryMapping ) {
                 if ( particleConverter != null ) {
-                    addColumn( colToRsIdx, particleConverter.getSelectSnippet( tableAlias ) );
+                    addColumn( colToRsIdx, getGeometrySelectSnippet( particleConverter ) );
                 } else {
                     LOG.info( "Omitting mapping '" + mapping + "' from SELECT list. Not mapped to column.'" );
                 }
@@ -268,7 +314,7 @@ public class FeatureBuilderRelational implements FeatureBuilder {
                     }
                 }
                 feature = ft.newFeature( gmlId, props, null );
-                if ( fs.getCache() != null ) {
+                if ( fs.getCache() != null && geometryTolerance <= 0 ) {
                     fs.getCache().add( feature );
                 }
             } else {
@@ -281,6 +327,115 @@ public class FeatureBuilderRelational implements FeatureBuilder {
         return feature;
     }
 
+    /**
+     * Copies the current row of the given {@link ResultSet} for building a feature with {@link #buildFeatures(List)}.
+     * 
+     * @param rs
+     *            SQL result set (as created from {@link #getInitialSelectColumns()}), must not be <code>null</code>
+     * @return copied row, never <code>null</code>
+     * @throws SQLException
+     */
+    public Object[] copyRow( ResultSet rs )
+                            throws SQLException {
+        return BufferedRows.copy( rs, colToRsIdx.size() );
+    }
+
+    /**
+     * Builds {@link Feature} instances from a window of rows (batched mode).
+     * <p>
+     * In contrast to {@link #buildFeature(ResultSet)}, which performs one SELECT per row and joined table, the joined
+     * rows of all rows in the window are fetched with a single keyed SELECT per joined table (and nesting level) and
+     * attached in memory.
+     * </p>
+     * 
+     * @param rows
+     *            rows as copied by {@link #copyRow(ResultSet)}, must not be <code>null</code>
+     * @return created {@link Feature} instances (in the order of the rows), never <code>null</code>
+     * @throws SQLException
+     */
+    public List<Feature> buildFeatures( List<Object[]> rows )
+                            throws SQLException {
+        List<ResultSet> parents = new ArrayList<ResultSet>( rows.size() );
+        for ( Object[] row : rows ) {
+            parents.add( BufferedRows.asCurrentRow( row ) );
+        }
+        List<Mapping> joinedMappings = new ArrayList<Mapping>();
+        for ( Mapping mapping : ftMapping.getMappings() ) {
+            collectJoinedMappings( mapping, joinedMappings );
+        }
+        prefetchedJoins = new IdentityHashMap<Mapping, PrefetchedJoin>();
+        try {
+            prefetch( joinedMappings, parents, colToRsIdx );
+            List<Feature> features = new ArrayList<Feature>( rows.size() );
+            for ( ResultSet parent : parents ) {
+                features.add( buildFeature( parent ) );
+            }
+            return features;
+        } finally {
+            prefetchedJoins = null;
+        }
+    }
+
+    private void collectJoinedMappings( Mapping mapping, List<Mapping> joinedMappings ) {
+        if ( !( mapping instanceof FeatureMapping ) && mapping.getJoinedTable() != null
+             && !mapping.getJoinedTable().isEmpty() ) {
+            joinedMappings.add( mapping );
+        } else if ( mapping instanceof CompoundMapping ) {
+            for ( Mapping particle : ( (CompoundMapping) mapping ).getParticles() ) {
+                collectJoinedMappings( particle, joinedMappings );
+            }
+        }
+    }
+
+    private void prefetch( List<Mapping> joinedMappings, List<ResultSet> parents,
+                           LinkedHashMap<String, Integer> parentColToRsIdx )
+                            throws SQLException {
+        for ( Mapping mapping : joinedMappings ) {
+            TableJoin jc = mapping.getJoinedTable().get( 0 );
+            LinkedHashMap<List<Object>, List<Object>> keys = new LinkedHashMap<List<Object>, List<Object>>();
+            for ( ResultSet parent : parents ) {
+                List<Object> key = getKey( parent, jc.getFromColumns(), parentColToRsIdx );
+                if ( key != null ) {
+                    keys.put( PrefetchedJoin.normalizeKey( key ), key );
+                }
+            }
+            LinkedHashMap<String, Integer> rsToIdx = getSubsequentSelectColumns( mapping );
+            for ( SQLIdentifier keyColumn : jc.getToColumns() ) {
+                addColumn( rsToIdx, tableAlias + "." + keyColumn );
+            }
+            PrefetchedJoin prefetched = new PrefetchedJoin( jc, tableAlias, rsToIdx );
+            prefetched.fetch( conn, keys.values() );
+            prefetchedJoins.put( mapping, prefetched );
+
+            List<Mapping> nestedMappings = new ArrayList<Mapping>();
+            if ( mapping instanceof CompoundMapping ) {
+                for ( Mapping particle : ( (CompoundMapping) mapping ).getParticles() ) {
+                    collectJoinedMappings( particle, nestedMappings );
+                }
+            }
+            if ( !nestedMappings.isEmpty() ) {
+                List<ResultSet> children = new ArrayList<ResultSet>();
+                for ( Object[] row : prefetched.getRows() ) {
+                    children.add( BufferedRows.asCurrentRow( row ) );
+                }
+                prefetch( nestedMappings, children, prefetched.getColumns() );
+            }
+        }
+    }
+
+    private List<Object> getKey( ResultSet rs, List<SQLIdentifier> keyColumns, LinkedHashMap<String, Integer> colToRsIdx )
+                            throws SQLException {
+        List<Object> key = new ArrayList<Object>( keyColumns.size() );
+        for ( SQLIdentifier keyColumn : keyColumns ) {
+            Object value = rs.getObject( colToRsIdx.get( tableAlias + "." + keyColumn ) );
+            if ( value == null ) {
+                return null;
+            }
+            key.add( value );
+        }
+        return key;
+    }
+
     private String toIdPrefix( ValueReference propName ) {
         String s = propName.getAsText();
         s = s.replace( "/", "_" );
@@ -323,20 +478,29 @@ public class FeatureBuilderRelational implements FeatureBuilder {
 
         if ( !( mapping instanceof FeatureMapping ) && mapping.getJoinedTable() != null ) {
             List<TypedObjectNode> values = new ArrayList<TypedObjectNode>();
+            PrefetchedJoin prefetched = prefetchedJoins != null ? prefetchedJoins.get( mapping ) : null;
             ResultSet rs2 = null;
             try {
-                Pair<ResultSet, LinkedHashMap<String, Integer>> p = getJoinedResultSet( mapping.getJoinedTable().get( 0 ),
-                                                                                        mapping, rs, colToRsIdx );
-                rs2 = p.first;
+                LinkedHashMap<String, Integer> rs2ToIdx = null;
+                if ( prefetched != null ) {
+                    List<Object> key = getKey( rs, mapping.getJoinedTable().get( 0 ).getFromColumns(), colToRsIdx );
+                    rs2 = BufferedRows.asCursor( prefetched.getRows( key ) );
+                    rs2ToIdx = prefetched.getColumns();
+                } else {
+                    Pair<ResultSet, LinkedHashMap<String, Integer>> p = getJoinedResultSet( mapping.getJoinedTable().get( 0 ),
+                                                                                            mapping, rs, colToRsIdx );
+                    rs2 = p.first;
+                    rs2ToIdx = p.second;
+                }
                 int i = 0;
                 while ( rs2.next() ) {
-                    TypedObjectNode particle = buildParticle( mapping, rs2, p.second, idPrefix + "_" + ( i++ ) );
+                    TypedObjectNode particle = buildParticle( mapping, rs2, rs2ToIdx, idPrefix + "_" + ( i++ ) );
                     if ( particle != null ) {
                         values.add( particle );
                     }
                 }
             } finally {
-                if ( rs2 != null ) {
+                if ( rs2 != null && prefetched == null ) {
                     rs2.getStatement().close();
                     rs2.close();
                 }
@@ -371,7 +535,7 @@ public class FeatureBuilderRelational implements FeatureBuilder {
             GeometryMapping pm = (GeometryMapping) mapping;
             MappingExpression me = pm.getMapping();
             if ( me instanceof DBField ) {
-                String col = converter.getSelectSnippet( tableAlias );
+                String col = getGeometrySelectSnippet( converter );
                 int colIndex = colToRsIdx.get( col );
                 particle = converter.toParticle( rs, colIndex );
                 Geometry geom = ( (Geometry) particle );
@@ -669,22 +833,7 @@ public class FeatureBuilderRelational implements FeatureBuilder {
             sql.append( " = ?" );
             first = false;
         }
-        if ( jc.getOrderColumns() != null && !jc.getOrderColumns().isEmpty() ) {
-            sql.append( " ORDER BY " );
-            first = true;
-            for ( SQLIdentifier orderColumn : jc.getOrderColumns() ) {
-                if ( !first ) {
-                    sql.append( "," );
-                }
-                if ( orderColumn.toString().endsWith( "-" ) ) {
-                    sql.append( orderColumn.toString().substring( 0, orderColumn.toString().length() - 1 ) );
-                    sql.append( " DESC" );
-                } else {
-                    sql.append( orderColumn );
-                }
-                first = false;
-            }
-        }
+        appendOrderBy( sql, jc );
         LOG.debug( "SQL: {}", sql );
 
         PreparedStatement stmt = null;
@@ -712,6 +861,25 @@ public class FeatureBuilderRelational implements FeatureBuilder {
         return new Pair<ResultSet, LinkedHashMap<String, Integer>>( rs2, rsToIdx );
     }
 
+    static void appendOrderBy( StringBuilder sql, TableJoin jc ) {
+        if ( jc.getOrderColumns() != null && !jc.getOrderColumns().isEmpty() ) {
+            sql.append( " ORDER BY " );
+            boolean first = true;
+            for ( SQLIdentifier orderColumn : jc.getOrderColumns() ) {
+                if ( !first ) {
+                    sql.append( "," );
+                }
+                if ( orderColumn.toString().endsWith( "-" ) ) {
+                    sql.append( orderColumn.toString().substring( 0, orderColumn.toString().length() - 1 ) );
+                    sql.append( " DESC" );
+                } else {
+                    sql.append( orderColumn );
+                }
+                first = false;
+            }
+        }
+    }
+
     private QName getChildElementStepAsQName( ValueReference ref ) {
         QName qName = null;
         Expr xpath = ref.getAsXPath();
@@ -762,4 +930,4 @@ public class FeatureBuilderRelational implements FeatureBuilder {
         }
         return false;
     }
-}
\ No newline at end of file
+}
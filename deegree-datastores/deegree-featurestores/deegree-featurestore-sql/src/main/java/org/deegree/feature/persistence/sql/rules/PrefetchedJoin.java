@@ -0,0 +1,281 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.sql.rules;
+
+import static org.deegree.commons.utils.JDBCUtils.close;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.deegree.commons.jdbc.SQLIdentifier;
+import org.deegree.feature.persistence.sql.expressions.TableJoin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Rows of a joined table that have been fetched for a window of parent rows (batched mode of
+ * {@link FeatureBuilderRelational}), grouped by the values of the join key.
+ * <p>
+ * The rows are fetched with keyed SELECTs of at most {@link FeatureBuilderRelational#MAX_KEYS_PER_SELECT} keys each.
+ * Numeric key values are normalized, so keys of columns with different (but compatible) SQL types are equal.
+ * </p>
+ * 
+ * @since 3.4
+ */
+final class PrefetchedJoin {
+
+    private static final Logger LOG = LoggerFactory.getLogger( PrefetchedJoin.class );
+
+    private final TableJoin jc;
+
+    private final String tableAlias;
+
+    private final LinkedHashMap<String, Integer> colToRsIdx;
+
+    private final Map<List<Object>, List<Object[]>> rowsByKey = new LinkedHashMap<List<Object>, List<Object[]>>();
+
+    /**
+     * Creates a new {@link PrefetchedJoin} instance.
+     * 
+     * @param jc
+     *            join to the table, must not be <code>null</code>
+     * @param tableAlias
+     *            alias of the joined table, must not be <code>null</code>
+     * @param colToRsIdx
+     *            columns to select (must include the key columns of the joined table), must not be <code>null</code>
+     */
+    PrefetchedJoin( TableJoin jc, String tableAlias, LinkedHashMap<String, Integer> colToRsIdx ) {
+        this.jc = jc;
+        this.tableAlias = tableAlias;
+        this.colToRsIdx = colToRsIdx;
+    }
+
+    /**
+     * @return selected columns and their indexes in the fetched rows, never <code>null</code>
+     */
+    LinkedHashMap<String, Integer> getColumns() {
+        return colToRsIdx;
+    }
+
+    /**
+     * Fetches the rows of the joined table for the given keys.
+     * 
+     * @param conn
+     *            connection to use, must not be <code>null</code>
+     * @param keys
+     *            values of the join key (in the order of {@link TableJoin#getToColumns()}), must not be
+     *            <code>null</code>
+     * @throws SQLException
+     */
+    void fetch( Connection conn, Iterable<List<Object>> keys )
+                            throws SQLException {
+        List<List<Object>> chunk = new ArrayList<List<Object>>();
+        for ( List<Object> key : keys ) {
+            chunk.add( key );
+            if ( chunk.size() == FeatureBuilderRelational.MAX_KEYS_PER_SELECT ) {
+                fetchChunk( conn, chunk );
+                chunk.clear();
+            }
+        }
+        if ( !chunk.isEmpty() ) {
+            fetchChunk( conn, chunk );
+        }
+    }
+
+    private void fetchChunk( Connection conn, List<List<Object>> keys )
+                            throws SQLException {
+
+        List<SQLIdentifier> keyColumns = jc.getToColumns();
+        StringBuilder sql = new StringBuilder( "SELECT " );
+        boolean first = true;
+        for ( String column : colToRsIdx.keySet() ) {
+            if ( !first ) {
+                sql.append( ',' );
+            }
+            sql.append( column );
+            first = false;
+        }
+        sql.append( " FROM " );
+        sql.append( jc.getToTable() );
+        sql.append( ' ' );
+        sql.append( tableAlias );
+        sql.append( " WHERE " );
+        if ( keyColumns.size() == 1 ) {
+            sql.append( tableAlias );
+            sql.append( '.' );
+            sql.append( keyColumns.get( 0 ) );
+            sql.append( " IN (" );
+            for ( int i = 0; i < keys.size(); i++ ) {
+                if ( i > 0 ) {
+                    sql.append( ',' );
+                }
+                sql.append( '?' );
+            }
+            sql.append( ')' );
+        } else {
+            for ( int i = 0; i < keys.size(); i++ ) {
+                if ( i > 0 ) {
+                    sql.append( " OR " );
+                }
+                sql.append( '(' );
+                first = true;
+                for ( SQLIdentifier keyColumn : keyColumns ) {
+                    if ( !first ) {
+                        sql.append( " AND " );
+                    }
+                    sql.append( tableAlias );
+                    sql.append( '.' );
+                    sql.append( keyColumn );
+                    sql.append( " = ?" );
+                    first = false;
+                }
+                sql.append( ')' );
+            }
+        }
+        FeatureBuilderRelational.appendOrderBy( sql, jc );
+        LOG.debug( "SQL: {}", sql );
+
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            long begin = System.currentTimeMillis();
+            stmt = conn.prepareStatement( sql.toString() );
+            int i = 1;
+            for ( List<Object> key : keys ) {
+                for ( Object value : key ) {
+                    stmt.setObject( i++, value );
+                }
+            }
+            rs = stmt.executeQuery();
+            int numRows = 0;
+            while ( rs.next() ) {
+                Object[] row = BufferedRows.copy( rs, colToRsIdx.size() );
+                List<Object> key = new ArrayList<Object>( keyColumns.size() );
+                for ( SQLIdentifier keyColumn : keyColumns ) {
+                    key.add( row[colToRsIdx.get( tableAlias + "." + keyColumn ) - 1] );
+                }
+                add( key, row );
+                numRows++;
+            }
+            LOG.debug( "Batched SELECT for {} keys returned {} rows and took {} [ms]", keys.size(), numRows,
+                       System.currentTimeMillis() - begin );
+        } catch ( Throwable t ) {
+            String msg = "Error performing batched subsequent SELECT: " + t.getMessage();
+            LOG.error( msg, t );
+            throw new SQLException( msg, t );
+        } finally {
+            close( rs, stmt, null, LOG );
+        }
+    }
+
+    private void add( List<Object> key, Object[] row ) {
+        List<Object> normalized = normalizeKey( key );
+        List<Object[]> rows = rowsByKey.get( normalized );
+        if ( rows == null ) {
+            rows = new ArrayList<Object[]>();
+            rowsByKey.put( normalized, rows );
+        }
+        rows.add( row );
+    }
+
+    /**
+     * Returns the fetched rows that belong to the given key.
+     * 
+     * @param key
+     *            values of the join key (of the parent row), can be <code>null</code>
+     * @return rows (in the order of the SELECT), never <code>null</code>
+     */
+    List<Object[]> getRows( List<Object> key ) {
+        if ( key == null ) {
+            return Collections.emptyList();
+        }
+        List<Object[]> rows = rowsByKey.get( normalizeKey( key ) );
+        if ( rows == null ) {
+            return Collections.emptyList();
+        }
+        return rows;
+    }
+
+    /**
+     * @return all fetched rows, never <code>null</code>
+     */
+    List<Object[]> getRows() {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for ( List<Object[]> keyRows : rowsByKey.values() ) {
+            rows.addAll( keyRows );
+        }
+        return rows;
+    }
+
+    /**
+     * Normalizes numeric key values, so keys of columns with different (but compatible) SQL types are equal.
+     * 
+     * @param key
+     *            key values, must not be <code>null</code>
+     * @return normalized key values, never <code>null</code>
+     */
+    static List<Object> normalizeKey( List<Object> key ) {
+        Object[] normalized = new Object[key.size()];
+        for ( int i = 0; i < normalized.length; i++ ) {
+            Object value = key.get( i );
+            if ( value instanceof Integer || value instanceof Long || value instanceof Short
+                 || value instanceof Byte ) {
+                value = ( (Number) value ).longValue();
+            } else if ( value instanceof BigInteger && ( (BigInteger) value ).bitLength() < 64 ) {
+                value = ( (BigInteger) value ).longValue();
+            } else if ( value instanceof BigDecimal ) {
+                BigDecimal bd = ( (BigDecimal) value ).stripTrailingZeros();
+                if ( bd.scale() <= 0 && bd.precision() - bd.scale() <= 18 ) {
+                    value = bd.longValue();
+                } else {
+                    value = bd;
+                }
+            }
+            normalized[i] = value;
+        }
+        return Arrays.asList( normalized );
+    }
+
+}
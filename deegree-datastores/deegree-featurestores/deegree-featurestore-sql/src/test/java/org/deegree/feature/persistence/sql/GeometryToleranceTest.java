@@ -0,0 +1,118 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.feature.persistence.sql;
+
+import static org.deegree.feature.persistence.sql.SQLFeatureStore.getGeometryTolerance;
+import static org.junit.Assert.assertEquals;
+
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.SimpleGeometryFactory;
+import org.junit.Test;
+
+/**
+ * Tests for the conversion of the resolution hint into the simplification tolerance of the {@link SQLFeatureStore}.
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ * 
+ * @since 3.4
+ */
+public class GeometryToleranceTest {
+
+    private static final double DELTA = 1E-12;
+
+    private static final SimpleGeometryFactory FAC = new SimpleGeometryFactory();
+
+    @Test
+    public void testToleranceWithoutBBox() {
+        assertEquals( 5.0, getGeometryTolerance( 10.0, 0.5, null, null ), DELTA );
+    }
+
+    @Test
+    public void testToleranceSameUnits() {
+        Envelope bbox = FAC.createEnvelope( 0, 0, 1000, 500, null );
+        assertEquals( 5.0, getGeometryTolerance( 10.0, 0.5, bbox, bbox ), DELTA );
+    }
+
+    @Test
+    public void testToleranceMetresToDegrees() {
+        Envelope requestBBox = FAC.createEnvelope( 0, 0, 100000, 50000, null );
+        Envelope storageBBox = FAC.createEnvelope( 7, 50, 8, 50.5, null );
+        assertEquals( 5.0E-5, getGeometryTolerance( 10.0, 0.5, requestBBox, storageBBox ), DELTA );
+    }
+
+    @Test
+    public void testToleranceDegreesToMetres() {
+        Envelope requestBBox = FAC.createEnvelope( 7, 50, 8, 50.5, null );
+        Envelope storageBBox = FAC.createEnvelope( 0, 0, 100000, 50000, null );
+        assertEquals( 0.5, getGeometryTolerance( 1.0E-5, 0.5, requestBBox, storageBBox ), DELTA );
+    }
+
+    @Test
+    public void testToleranceUsesSmallerRatio() {
+        Envelope requestBBox = FAC.createEnvelope( 0, 0, 100000, 100000, null );
+        Envelope storageBBox = FAC.createEnvelope( 7, 50, 8, 50.5, null );
+        assertEquals( 2.5E-5, getGeometryTolerance( 10.0, 0.5, requestBBox, storageBBox ), DELTA );
+    }
+
+    @Test
+    public void testToleranceZeroSpanBBoxIsNotScaled() {
+        Envelope requestBBox = FAC.createEnvelope( 0, 0, 0, 500, null );
+        Envelope storageBBox = FAC.createEnvelope( 7, 50, 7, 50.5, null );
+        assertEquals( 5.0, getGeometryTolerance( 10.0, 0.5, requestBBox, storageBBox ), DELTA );
+    }
+
+    @Test
+    public void testNoReduction() {
+        Envelope bbox = FAC.createEnvelope( 0, 0, 1000, 500, null );
+        assertEquals( -1, getGeometryTolerance( 10.0, 0, bbox, bbox ), DELTA );
+        assertEquals( -1, getGeometryTolerance( 10.0, -1, null, null ), DELTA );
+    }
+
+    @Test
+    public void testNoResolution() {
+        assertEquals( -1, getGeometryTolerance( 0, 0.5, null, null ), DELTA );
+    }
+
+}
@@ -0,0 +1,160 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+
+package org.deegree.feature.persistence.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.tom.gml.property.Property;
+import org.deegree.commons.tom.gml.property.PropertyType;
+import org.deegree.feature.Feature;
+import org.deegree.feature.FeatureCollection;
+import org.deegree.feature.Features;
+import org.deegree.feature.stream.FeatureInputStream;
+import org.deegree.feature.types.FeatureType;
+import org.deegree.feature.types.GenericFeatureType;
+import org.junit.Test;
+
+/**
+ * Tests for {@link KeysetPageCache}.
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class KeysetPageCacheTest {
+
+    private static final FeatureType FT = new GenericFeatureType( new QName( "Test" ),
+                                                                            Collections.<PropertyType> emptyList(),
+                                                                            false );
+
+    @Test
+    public void testLastIdOfPageIsRecorded() {
+        KeysetPageCache cache = new KeysetPageCache( 10 );
+        consume( cache.record( stream( 10, 15 ), "q", 10, 5 ) );
+        assertEquals( "F14", cache.get( "q", 15 ) );
+        assertNull( cache.get( "q", 10 ) );
+        assertNull( cache.get( "other", 15 ) );
+    }
+
+    @Test
+    public void testLookAheadIsNotPartOfPage() {
+        KeysetPageCache cache = new KeysetPageCache( 10 );
+        // page of five features, plus one feature to detect truncation
+        consume( cache.record( stream( 10, 16 ), "q", 10, 5 ) );
+        assertEquals( "F14", cache.get( "q", 15 ) );
+        assertNull( cache.get( "q", 16 ) );
+    }
+
+    @Test
+    public void testIncompletePageIsNotRecorded() {
+        KeysetPageCache cache = new KeysetPageCache( 10 );
+        consume( cache.record( stream( 10, 13 ), "q", 10, 5 ) );
+        assertNull( cache.get( "q", 15 ) );
+    }
+
+    @Test
+    public void testLeastRecentlyUsedPageIsEvicted() {
+        KeysetPageCache cache = new KeysetPageCache( 2 );
+        consume( cache.record( stream( 0, 5 ), "q", 0, 5 ) );
+        consume( cache.record( stream( 5, 10 ), "q", 5, 5 ) );
+        // access the first page, so the second one is evicted
+        assertEquals( "F4", cache.get( "q", 5 ) );
+        consume( cache.record( stream( 10, 15 ), "q", 10, 5 ) );
+        assertEquals( "F4", cache.get( "q", 5 ) );
+        assertNull( cache.get( "q", 10 ) );
+        assertEquals( "F14", cache.get( "q", 15 ) );
+    }
+
+    @Test
+    public void testClear() {
+        KeysetPageCache cache = new KeysetPageCache( 10 );
+        consume( cache.record( stream( 0, 5 ), "q", 0, 5 ) );
+        cache.clear();
+        assertNull( cache.get( "q", 5 ) );
+    }
+
+    private static void consume( FeatureInputStream rs ) {
+        for ( Iterator<Feature> iter = rs.iterator(); iter.hasNext(); ) {
+            iter.next();
+        }
+        rs.close();
+    }
+
+    private static FeatureInputStream stream( int from, int to ) {
+        final List<Feature> features = new ArrayList<Feature>();
+        for ( int i = from; i < to; i++ ) {
+            features.add( FT.newFeature( "F" + i, new ArrayList<Property>(), null ) );
+        }
+        return new FeatureInputStream() {
+
+            @Override
+            public Iterator<Feature> iterator() {
+                return features.iterator();
+            }
+
+            @Override
+            public void close() {
+                // nothing to do
+            }
+
+            @Override
+            public FeatureCollection toCollection() {
+                return Features.toCollection( this );
+            }
+
+            @Override
+            public int count() {
+                return features.size();
+            }
+        };
+    }
+}
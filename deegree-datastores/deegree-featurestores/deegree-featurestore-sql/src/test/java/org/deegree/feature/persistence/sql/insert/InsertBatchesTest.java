@@ -0,0 +1,223 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.sql.insert;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.deegree.commons.jdbc.TableName;
+import org.deegree.feature.persistence.FeatureStoreException;
+import org.junit.Test;
+
+/**
+ * Tests for {@link InsertBatches}.
+ * 
+ * @since 3.4
+ */
+public class InsertBatchesTest {
+
+    // recorded JDBC calls, e.g. "prepare a", "add a", "execute a", "close a" (a: table of the INSERT)
+    private final List<String> calls = new ArrayList<String>();
+
+    private String failingTable;
+
+    private final Connection conn = connection();
+
+    @Test
+    public void testRowsAreGroupedByStatement()
+                            throws Exception {
+        InsertBatches batches = new InsertBatches( conn, 10 );
+        batches.add( row( "a", 1 ) );
+        batches.add( row( "b", 1 ) );
+        batches.add( row( "a", 2 ) );
+        assertEquals( asList( "prepare a", "add a", "prepare b", "add b", "add a" ), calls );
+        calls.clear();
+        batches.flush();
+        assertEquals( asList( "execute a", "execute b", "close a", "close b" ), calls );
+    }
+
+    @Test
+    public void testFullBatchIsExecuted()
+                            throws Exception {
+        InsertBatches batches = new InsertBatches( conn, 2 );
+        batches.add( row( "a", 1 ) );
+        batches.add( row( "a", 2 ) );
+        batches.add( row( "a", 3 ) );
+        batches.flush();
+        assertEquals( asList( "prepare a", "add a", "add a", "execute a", "close a", "prepare a", "add a",
+                              "execute a", "close a" ), calls );
+    }
+
+    @Test
+    public void testChildIsAddedToLaterBatch()
+                            throws Exception {
+        InsertBatches batches = new InsertBatches( conn, 10 );
+        InsertRow parent = row( "p", 1 );
+        InsertRow child = row( "c", 1 );
+        batches.add( parent );
+        batches.requireAfter( child, parent );
+        assertTrue( batches.hasPendingParents( child ) );
+        batches.add( child );
+        batches.flush();
+        assertEquals( asList( "prepare p", "add p", "prepare c", "add c", "execute p", "execute c", "close p",
+                              "close c" ), calls );
+    }
+
+    @Test
+    public void testChildIsNotAddedToEarlierBatch()
+                            throws Exception {
+        InsertBatches batches = new InsertBatches( conn, 10 );
+        InsertRow parent = row( "p", 1 );
+        InsertRow child = row( "c", 2 );
+        batches.add( row( "c", 1 ) );
+        batches.add( parent );
+        batches.requireAfter( child, parent );
+        // the pending batch for table c would be executed before the batch of the parent row
+        batches.add( child );
+        batches.flush();
+        assertEquals( asList( "prepare c", "add c", "prepare p", "add p", "execute c", "execute p", "close c",
+                              "close p", "prepare c", "add c", "execute c", "close c" ), calls );
+    }
+
+    @Test
+    public void testInsertedParentsAreIgnored()
+                            throws Exception {
+        InsertBatches batches = new InsertBatches( conn, 10 );
+        InsertRow parent = row( "p", 1 );
+        InsertRow child = row( "c", 1 );
+        batches.requireAfter( child, parent );
+        assertFalse( batches.hasPendingParents( child ) );
+        batches.add( parent );
+        batches.flush();
+        batches.requireAfter( child, parent );
+        assertFalse( batches.hasPendingParents( child ) );
+    }
+
+    @Test
+    public void testCloseDiscardsBatches()
+                            throws Exception {
+        InsertBatches batches = new InsertBatches( conn, 10 );
+        batches.add( row( "a", 1 ) );
+        batches.add( row( "b", 1 ) );
+        calls.clear();
+        batches.close();
+        assertEquals( asList( "close a", "close b" ), calls );
+        calls.clear();
+        batches.flush();
+        assertEquals( 0, calls.size() );
+    }
+
+    @Test
+    public void testStatementsAreClosedIfExecutionFails()
+                            throws Exception {
+        failingTable = "a";
+        InsertBatches batches = new InsertBatches( conn, 10 );
+        batches.add( row( "a", 1 ) );
+        batches.add( row( "b", 1 ) );
+        calls.clear();
+        try {
+            batches.flush();
+            fail( "Expected SQLException." );
+        } catch ( SQLException e ) {
+            // expected
+        }
+        assertEquals( asList( "execute a", "close a", "close b" ), calls );
+    }
+
+    private static InsertRow row( final String tableName, Object id ) {
+        InsertRow row = new InsertRow( null ) {
+            {
+                this.table = new TableName( tableName );
+            }
+        };
+        row.addPreparedArgument( "id", id );
+        return row;
+    }
+
+    private Connection connection() {
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke( Object proxy, Method method, Object[] args ) {
+                if ( "prepareStatement".equals( method.getName() ) ) {
+                    return prepare( (String) args[0] );
+                }
+                throw new UnsupportedOperationException( method.getName() );
+            }
+        };
+        return (Connection) Proxy.newProxyInstance( getClass().getClassLoader(), new Class<?>[] { Connection.class },
+                                                    handler );
+    }
+
+    private PreparedStatement prepare( String sql ) {
+        final String table = sql.substring( "INSERT INTO ".length(), sql.indexOf( '(' ) );
+        calls.add( "prepare " + table );
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke( Object proxy, Method method, Object[] args )
+                                    throws SQLException {
+                String name = method.getName();
+                if ( "addBatch".equals( name ) ) {
+                    calls.add( "add " + table );
+                } else if ( "executeBatch".equals( name ) ) {
+                    calls.add( "execute " + table );
+                    if ( table.equals( failingTable ) ) {
+                        throw new SQLException( "Batch failed." );
+                    }
+                    return new int[0];
+                } else if ( "close".equals( name ) ) {
+                    calls.add( "close " + table );
+                } else if ( !"setObject".equals( name ) ) {
+                    throw new UnsupportedOperationException( name );
+                }
+                return null;
+            }
+        };
+        return (PreparedStatement) Proxy.newProxyInstance( getClass().getClassLoader(),
+                                                           new Class<?>[] { PreparedStatement.class }, handler );
+    }
+
+}
@@ -0,0 +1,202 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.sql.insert;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.deegree.feature.persistence.FeatureStoreException;
+import org.deegree.sqldialect.SQLDialect;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SequenceValues}.
+ * 
+ * @since 3.4
+ */
+public class SequenceValuesTest {
+
+    // executed queries
+    private final List<String> queries = new ArrayList<String>();
+
+    // key: sequence name, value: last value handed out by the (simulated) DB sequence
+    private final Map<String, Integer> sequences = new HashMap<String, Integer>();
+
+    private boolean closed;
+
+    @Test
+    public void testValuesAreFetchedInBlocks()
+                            throws FeatureStoreException {
+        SequenceValues values = new SequenceValues( dialect(), connection(), 5 );
+        for ( int i = 1; i <= 7; i++ ) {
+            assertEquals( i, values.next( "seq" ) );
+        }
+        assertEquals( asList( "nextvals seq 5", "nextvals seq 5" ), queries );
+        assertTrue( closed );
+    }
+
+    @Test
+    public void testValuesAreFetchedOneByOne()
+                            throws FeatureStoreException {
+        SequenceValues values = new SequenceValues( dialect(), connection(), 1 );
+        for ( int i = 1; i <= 3; i++ ) {
+            assertEquals( i, values.next( "seq" ) );
+        }
+        assertEquals( asList( "nextval seq", "nextval seq", "nextval seq" ), queries );
+    }
+
+    @Test
+    public void testSequencesHaveSeparateBlocks()
+                            throws FeatureStoreException {
+        sequences.put( "b", 100 );
+        SequenceValues values = new SequenceValues( dialect(), connection(), 3 );
+        assertEquals( 1, values.next( "a" ) );
+        assertEquals( 101, values.next( "b" ) );
+        assertEquals( 2, values.next( "a" ) );
+        assertEquals( 102, values.next( "b" ) );
+        assertEquals( asList( "nextvals a 3", "nextvals b 3" ), queries );
+    }
+
+    @Test
+    public void testNoValue() {
+        SequenceValues values = new SequenceValues( dialect(), connection(), 3 );
+        try {
+            values.next( "empty" );
+            fail( "Expected FeatureStoreException." );
+        } catch ( FeatureStoreException e ) {
+            // expected
+        }
+        assertTrue( closed );
+    }
+
+    private static SQLDialect dialect() {
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke( Object proxy, Method method, Object[] args ) {
+                if ( "getSelectSequenceNextVals".equals( method.getName() ) ) {
+                    return "nextvals " + args[0] + " " + args[1];
+                }
+                if ( "getSelectSequenceNextVal".equals( method.getName() ) ) {
+                    return "nextval " + args[0];
+                }
+                throw new UnsupportedOperationException( method.getName() );
+            }
+        };
+        return (SQLDialect) Proxy.newProxyInstance( SequenceValuesTest.class.getClassLoader(),
+                                                    new Class<?>[] { SQLDialect.class }, handler );
+    }
+
+    private Connection connection() {
+        InvocationHandler stmtHandler = new InvocationHandler() {
+            @Override
+            public Object invoke( Object proxy, Method method, Object[] args ) {
+                if ( "executeQuery".equals( method.getName() ) ) {
+                    return executeQuery( (String) args[0] );
+                }
+                if ( "close".equals( method.getName() ) ) {
+                    closed = true;
+                    return null;
+                }
+                throw new UnsupportedOperationException( method.getName() );
+            }
+        };
+        final Statement stmt = (Statement) proxy( Statement.class, stmtHandler );
+        InvocationHandler connHandler = new InvocationHandler() {
+            @Override
+            public Object invoke( Object proxy, Method method, Object[] args ) {
+                if ( "createStatement".equals( method.getName() ) ) {
+                    closed = false;
+                    return stmt;
+                }
+                throw new UnsupportedOperationException( method.getName() );
+            }
+        };
+        return (Connection) proxy( Connection.class, connHandler );
+    }
+
+    private ResultSet executeQuery( String sql ) {
+        queries.add( sql );
+        String[] parts = sql.split( " " );
+        // the sequence 'empty' yields no rows at all
+        int n = "empty".equals( parts[1] ) ? 0 : parts.length > 2 ? Integer.parseInt( parts[2] ) : 1;
+        Integer last = sequences.get( parts[1] );
+        int value = last == null ? 0 : last;
+        final LinkedList<Integer> rows = new LinkedList<Integer>();
+        for ( int i = 0; i < n; i++ ) {
+            rows.add( ++value );
+        }
+        sequences.put( parts[1], value );
+        InvocationHandler handler = new InvocationHandler() {
+
+            private Integer current;
+
+            @Override
+            public Object invoke( Object proxy, Method method, Object[] args ) {
+                String name = method.getName();
+                if ( "next".equals( name ) ) {
+                    current = rows.poll();
+                    return current != null;
+                }
+                if ( "getInt".equals( name ) ) {
+                    return current;
+                }
+                if ( "close".equals( name ) ) {
+                    return null;
+                }
+                throw new UnsupportedOperationException( name );
+            }
+        };
+        return (ResultSet) proxy( ResultSet.class, handler );
+    }
+
+    private static Object proxy( Class<?> type, InvocationHandler handler ) {
+        return Proxy.newProxyInstance( SequenceValuesTest.class.getClassLoader(), new Class<?>[] { type }, handler );
+    }
+
+}
@@ -0,0 +1,141 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.sql.rules;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.sql.rowset.serial.SerialBlob;
+import javax.sql.rowset.serial.SerialClob;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link BufferedRows}.
+ * 
+ * @since 3.4
+ */
+public class BufferedRowsTest {
+
+    @Test
+    public void testCursor()
+                            throws SQLException {
+        ResultSet rs = BufferedRows.asCursor( Arrays.asList( new Object[] { 1, "a", null },
+                                                             new Object[] { new BigDecimal( "2" ), "b",
+                                                                           new byte[] { 42 } } ) );
+        assertTrue( rs.next() );
+        assertEquals( 1, rs.getInt( 1 ) );
+        assertEquals( "a", rs.getString( 2 ) );
+        assertNull( rs.getBytes( 3 ) );
+        assertTrue( rs.wasNull() );
+        assertTrue( rs.next() );
+        assertEquals( 2L, rs.getLong( 1 ) );
+        assertArrayEquals( new byte[] { 42 }, rs.getBytes( 3 ) );
+        assertFalse( rs.wasNull() );
+        assertFalse( rs.next() );
+        assertFalse( rs.next() );
+    }
+
+    @Test
+    public void testEmptyCursor()
+                            throws SQLException {
+        ResultSet rs = BufferedRows.asCursor( Collections.<Object[]> emptyList() );
+        assertFalse( rs.next() );
+    }
+
+    @Test
+    public void testCurrentRow()
+                            throws SQLException {
+        ResultSet rs = BufferedRows.asCurrentRow( new Object[] { 5L, "t" } );
+        assertEquals( 5.0, rs.getDouble( 1 ), 0.0 );
+        assertEquals( (short) 5, rs.getShort( 1 ) );
+        assertTrue( rs.getBoolean( 2 ) );
+        assertEquals( 5L, rs.getObject( 1 ) );
+    }
+
+    @Test
+    public void testLobsAreCopied()
+                            throws Exception {
+        final SerialBlob blob = new SerialBlob( new byte[] { 1, 2, 3 } );
+        final SerialClob clob = new SerialClob( "text".toCharArray() );
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke( Object proxy, Method method, Object[] args ) {
+                if ( "getObject".equals( method.getName() ) ) {
+                    return (Integer) args[0] == 1 ? blob : clob;
+                }
+                throw new UnsupportedOperationException( method.getName() );
+            }
+        };
+        ResultSet source = (ResultSet) Proxy.newProxyInstance( BufferedRowsTest.class.getClassLoader(),
+                                                               new Class<?>[] { ResultSet.class }, handler );
+        Object[] row = BufferedRows.copy( source, 2 );
+        assertArrayEquals( new byte[] { 1, 2, 3 }, (byte[]) row[0] );
+        assertEquals( "text", row[1] );
+
+        ResultSet rs = BufferedRows.asCurrentRow( row );
+        assertArrayEquals( new byte[] { 1, 2, 3 }, rs.getBytes( 1 ) );
+        InputStream is = rs.getBinaryStream( 1 );
+        assertEquals( 1, is.read() );
+        assertEquals( "text", rs.getString( 2 ) );
+    }
+
+    @Test(expected = SQLFeatureNotSupportedException.class)
+    public void testColumnLabelsUnsupported()
+                            throws SQLException {
+        BufferedRows.asCurrentRow( new Object[] { 5L } ).getObject( "id" );
+    }
+
+    @Test(expected = SQLException.class)
+    public void testInvalidColumnIndex()
+                            throws SQLException {
+        BufferedRows.asCurrentRow( new Object[] { 5L } ).getObject( 2 );
+    }
+
+}
@@ -0,0 +1,284 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.sql.rules;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.deegree.feature.persistence.sql.rules.FeatureBuilderRelational.MAX_KEYS_PER_SELECT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.deegree.commons.jdbc.TableName;
+import org.deegree.feature.persistence.sql.expressions.TableJoin;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PrefetchedJoin}, the batched fetching of joined rows in {@link FeatureBuilderRelational}.
+ * 
+ * @since 3.4
+ */
+public class PrefetchedJoinTest {
+
+    // rows of the simulated joined table: value, parent_id, parent_version
+    private final List<Object[]> table = new ArrayList<Object[]>();
+
+    // executed SELECTs
+    private final List<String> queries = new ArrayList<String>();
+
+    // parameters of the executed SELECTs
+    private final List<List<Object>> params = new ArrayList<List<Object>>();
+
+    @Test
+    public void testKeysAreChunked()
+                            throws SQLException {
+        List<List<Object>> keys = new ArrayList<List<Object>>();
+        for ( int i = 0; i < 2 * MAX_KEYS_PER_SELECT + 500; i++ ) {
+            keys.add( singletonList( (Object) i ) );
+            table.add( new Object[] { "a" + i, i, 1 } );
+            table.add( new Object[] { "b" + i, i, 1 } );
+        }
+        PrefetchedJoin join = join( "parent_id" );
+        join.fetch( connection(), keys );
+
+        assertEquals( 3, queries.size() );
+        assertEquals( MAX_KEYS_PER_SELECT, countPlaceholders( queries.get( 0 ) ) );
+        assertEquals( MAX_KEYS_PER_SELECT, countPlaceholders( queries.get( 1 ) ) );
+        assertEquals( 500, countPlaceholders( queries.get( 2 ) ) );
+        assertEquals( 0, params.get( 0 ).get( 0 ) );
+        assertEquals( MAX_KEYS_PER_SELECT, params.get( 1 ).get( 0 ) );
+        assertEquals( 2 * MAX_KEYS_PER_SELECT, params.get( 2 ).get( 0 ) );
+
+        for ( int i = 0; i < keys.size(); i++ ) {
+            assertValues( join.getRows( keys.get( i ) ), "a" + i, "b" + i );
+        }
+        assertEquals( 2 * keys.size(), join.getRows().size() );
+    }
+
+    @Test
+    public void testMaxKeysInOneSelect()
+                            throws SQLException {
+        List<List<Object>> keys = new ArrayList<List<Object>>();
+        for ( int i = 0; i < MAX_KEYS_PER_SELECT; i++ ) {
+            keys.add( singletonList( (Object) i ) );
+        }
+        join( "parent_id" ).fetch( connection(), keys );
+        assertEquals( 1, queries.size() );
+        String expected = "SELECT X.value,X.parent_id FROM child X WHERE X.parent_id IN (?,?,";
+        assertTrue( queries.get( 0 ).startsWith( expected ) );
+    }
+
+    @Test
+    public void testNoKeys()
+                            throws SQLException {
+        PrefetchedJoin join = join( "parent_id" );
+        join.fetch( connection(), Collections.<List<Object>> emptyList() );
+        assertEquals( 0, queries.size() );
+        assertTrue( join.getRows().isEmpty() );
+    }
+
+    @Test
+    public void testRowsAreAttachedToParents()
+                            throws SQLException {
+        // the database returns the key values with a different type than the parent rows
+        table.add( new Object[] { "a1", new BigDecimal( "1" ), 1 } );
+        table.add( new Object[] { "b1", new BigDecimal( "1.00" ), 1 } );
+        table.add( new Object[] { "a2", 2L, 1 } );
+        table.add( new Object[] { "a3", 3L, 1 } );
+        PrefetchedJoin join = join( "parent_id" );
+        join.fetch( connection(), asList( singletonList( (Object) 1 ), singletonList( (Object) 2 ),
+                                          singletonList( (Object) 4 ) ) );
+
+        assertValues( join.getRows( singletonList( (Object) 1 ) ), "a1", "b1" );
+        assertValues( join.getRows( singletonList( (Object) 2 ) ), "a2" );
+        assertValues( join.getRows( singletonList( (Object) 4 ) ) );
+        assertValues( join.getRows( null ) );
+        // not requested
+        assertValues( join.getRows( singletonList( (Object) 3 ) ) );
+    }
+
+    @Test
+    public void testCompositeKey()
+                            throws SQLException {
+        table.add( new Object[] { "a", 1, 1 } );
+        table.add( new Object[] { "b", 1, 2 } );
+        table.add( new Object[] { "c", 2, 1 } );
+        PrefetchedJoin join = join( "parent_id", "parent_version" );
+        join.fetch( connection(), asList( asList( (Object) 1, 2 ), asList( (Object) 2, 1 ) ) );
+
+        assertEquals( "SELECT X.value,X.parent_id,X.parent_version FROM child X WHERE "
+                      + "(X.parent_id = ? AND X.parent_version = ?) OR (X.parent_id = ? AND X.parent_version = ?)",
+                      queries.get( 0 ) );
+        assertEquals( asList( (Object) 1, 2, 2, 1 ), params.get( 0 ) );
+        assertValues( join.getRows( asList( (Object) 1, 2 ) ), "b" );
+        assertValues( join.getRows( asList( (Object) 2, 1 ) ), "c" );
+        assertValues( join.getRows( asList( (Object) 1, 1 ) ) );
+    }
+
+    @Test
+    public void testOrderBy()
+                            throws SQLException {
+        table.add( new Object[] { "b", 1, 1 } );
+        table.add( new Object[] { "a", 1, 1 } );
+        TableJoin jc = new TableJoin( new TableName( "parent" ), new TableName( "child" ), asList( "id" ),
+                                      asList( "parent_id" ), asList( "pos-" ), false, null );
+        PrefetchedJoin join = new PrefetchedJoin( jc, "X", columns( "parent_id" ) );
+        join.fetch( connection(), singletonList( singletonList( (Object) 1 ) ) );
+
+        assertTrue( queries.get( 0 ).endsWith( "WHERE X.parent_id IN (?) ORDER BY pos DESC" ) );
+        // rows keep the order of the SELECT
+        assertValues( join.getRows( singletonList( (Object) 1 ) ), "b", "a" );
+    }
+
+    @Test
+    public void testNormalizeKey() {
+        List<Object> expected = singletonList( (Object) 42L );
+        assertEquals( expected, PrefetchedJoin.normalizeKey( singletonList( (Object) 42 ) ) );
+        assertEquals( expected, PrefetchedJoin.normalizeKey( singletonList( (Object) (short) 42 ) ) );
+        assertEquals( expected, PrefetchedJoin.normalizeKey( singletonList( (Object) new BigDecimal( "42.0" ) ) ) );
+        assertEquals( singletonList( (Object) new BigDecimal( "4.2" ) ),
+                      PrefetchedJoin.normalizeKey( singletonList( (Object) new BigDecimal( "4.20" ) ) ) );
+        assertEquals( singletonList( (Object) "42" ), PrefetchedJoin.normalizeKey( singletonList( (Object) "42" ) ) );
+    }
+
+    private static PrefetchedJoin join( String... keyColumns ) {
+        TableJoin jc = new TableJoin( new TableName( "parent" ), new TableName( "child" ), asList( "id" ),
+                                      asList( keyColumns ), null, false, null );
+        return new PrefetchedJoin( jc, "X", columns( keyColumns ) );
+    }
+
+    private static LinkedHashMap<String, Integer> columns( String... keyColumns ) {
+        LinkedHashMap<String, Integer> colToRsIdx = new LinkedHashMap<String, Integer>();
+        colToRsIdx.put( "X.value", 1 );
+        for ( String keyColumn : keyColumns ) {
+            colToRsIdx.put( "X." + keyColumn, colToRsIdx.size() + 1 );
+        }
+        return colToRsIdx;
+    }
+
+    private static int countPlaceholders( String sql ) {
+        int count = 0;
+        for ( char c : sql.toCharArray() ) {
+            if ( c == '?' ) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void assertValues( List<Object[]> rows, String... values ) {
+        List<Object> actual = new ArrayList<Object>();
+        for ( Object[] row : rows ) {
+            actual.add( row[0] );
+        }
+        assertEquals( asList( (Object[]) values ), actual );
+    }
+
+    private Connection connection() {
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke( Object proxy, Method method, Object[] args ) {
+                if ( "prepareStatement".equals( method.getName() ) ) {
+                    return statement( (String) args[0] );
+                }
+                throw new UnsupportedOperationException( method.getName() );
+            }
+        };
+        return (Connection) Proxy.newProxyInstance( PrefetchedJoinTest.class.getClassLoader(),
+                                                    new Class<?>[] { Connection.class }, handler );
+    }
+
+    private PreparedStatement statement( final String sql ) {
+        final List<Object> values = new ArrayList<Object>();
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke( Object proxy, Method method, Object[] args ) {
+                if ( "setObject".equals( method.getName() ) ) {
+                    assertEquals( values.size() + 1, args[0] );
+                    values.add( args[1] );
+                    return null;
+                }
+                if ( "executeQuery".equals( method.getName() ) ) {
+                    queries.add( sql );
+                    params.add( values );
+                    return BufferedRows.asCursor( select( sql, values ) );
+                }
+                if ( "close".equals( method.getName() ) ) {
+                    return null;
+                }
+                throw new UnsupportedOperationException( method.getName() );
+            }
+        };
+        return (PreparedStatement) Proxy.newProxyInstance( PrefetchedJoinTest.class.getClassLoader(),
+                                                           new Class<?>[] { PreparedStatement.class }, handler );
+    }
+
+    // simulates the keyed SELECT on the joined table
+    private List<Object[]> select( String sql, List<Object> values ) {
+        boolean composite = sql.contains( "parent_version" );
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for ( Object[] row : table ) {
+            int step = composite ? 2 : 1;
+            for ( int i = 0; i < values.size(); i += step ) {
+                boolean match = sameValue( values.get( i ), row[1] );
+                if ( composite ) {
+                    match = match && sameValue( values.get( i + 1 ), row[2] );
+                }
+                if ( match ) {
+                    rows.add( composite ? row : new Object[] { row[0], row[1] } );
+                    break;
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static boolean sameValue( Object value, Object columnValue ) {
+        List<Object> key = PrefetchedJoin.normalizeKey( singletonList( value ) );
+        return key.equals( PrefetchedJoin.normalizeKey( singletonList( columnValue ) ) );
+    }
+
+}
@@ -50,10 +50,6 @@ import java.io.InputStream;
 
 import javax.imageio.ImageIO;
 
-import net.sf.ehcache.Cache;
-import net.sf.ehcache.Element;
-
-import org.apache.commons.io.IOUtils;
 import org.deegree.feature.FeatureCollection;
 import org.deegree.geometry.Envelope;
 import org.deegree.tile.Tile;
@@ -75,13 +71,13 @@ public class CachedTile implements Tile {
 
     private final Tile tile;
 
-    private final Cache cache;
+    private final TileCache cache;
 
-    private final String key;
+    private final TileCacheKey key;
 
-    private byte[] data;
+    private volatile byte[] data;
 
-    public CachedTile( Tile tile, Cache cache, String key ) {
+    public CachedTile( Tile tile, TileCache cache, TileCacheKey key ) {
         this.tile = tile;
         this.cache = cache;
         this.key = key;
@@ -115,26 +111,13 @@ public class CachedTile implements Tile {
         return tile.getFeatures( i, j, limit );
     }
 
-    private synchronized byte[] getData() {
-        if ( data == null ) {
-            Element elem = cache.get( key );
-            if ( elem == null ) {
-                try {
-                    InputStream is = tile.getAsStream();
-                    if ( is == null ) {
-                        data = new byte[] {};
-                    } else {
-                        data = IOUtils.toByteArray( is );
-                    }
-                    cache.put( new Element( key, data ) );
-                } catch ( IOException e ) {
-                    LOG.trace( e.getMessage(), e );
-                    throw new TileIOException( e.getMessage(), e );
-                }
-            } else {
-                data = (byte[]) elem.getValue();
-            }
+    private byte[] getData() {
+        byte[] d = data;
+        if ( d == null ) {
+            // concurrent requests for the same tile are coalesced by the cache
+            d = cache.getData( key, tile );
+            data = d;
         }
-        return data;
+        return d;
     }
 }
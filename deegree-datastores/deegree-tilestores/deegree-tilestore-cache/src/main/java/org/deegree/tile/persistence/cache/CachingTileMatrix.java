@@ -41,8 +41,6 @@
 
 package org.deegree.tile.persistence.cache;
 
-import net.sf.ehcache.Cache;
-
 import org.deegree.tile.Tile;
 import org.deegree.tile.TileDataLevel;
 import org.deegree.tile.TileMatrix;
@@ -60,14 +58,22 @@ public class CachingTileMatrix implements TileDataLevel {
 
     private final TileDataLevel tileMatrix;
 
-    private final Cache cache;
+    private final TileCache cache;
 
-    private final String identifier;
+    private final TileCache.Level level;
 
-    public CachingTileMatrix( TileDataLevel tileMatrix, Cache cache ) {
+    /**
+     * @param tileMatrix
+     *            tile matrix to cache, must not be <code>null</code>
+     * @param cache
+     *            must not be <code>null</code>
+     * @param tileDataSetId
+     *            id of the tile data set the tile matrix belongs to, must not be <code>null</code>
+     */
+    public CachingTileMatrix( TileDataLevel tileMatrix, TileCache cache, String tileDataSetId ) {
         this.tileMatrix = tileMatrix;
         this.cache = cache;
-        this.identifier = tileMatrix.getMetadata().getIdentifier();
+        this.level = cache.getLevel( getLevelName( tileDataSetId, tileMatrix.getMetadata().getIdentifier() ) );
     }
 
     @Override
@@ -78,8 +84,21 @@ public class CachingTileMatrix implements TileDataLevel {
     @Override
     public Tile getTile( long x, long y ) {
         Tile tile = tileMatrix.getTile( x, y );
-        String key = identifier + "_" + x + "_" + y;
-        return new CachedTile( tile, cache, key );
+        if ( tile == null ) {
+            return null;
+        }
+        return new CachedTile( tile, cache, new TileCacheKey( level, x, y ) );
+    }
+
+    /**
+     * @return the cache level of this tile matrix, never <code>null</code>
+     */
+    TileCache.Level getLevel() {
+        return level;
+    }
+
+    static String getLevelName( String tileDataSetId, String tileMatrixId ) {
+        return tileDataSetId + "/" + tileMatrixId;
     }
 
 }
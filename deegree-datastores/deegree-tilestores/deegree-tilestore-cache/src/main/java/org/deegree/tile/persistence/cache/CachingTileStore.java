@@ -40,6 +40,9 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.tile.persistence.cache;
 
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -47,7 +50,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
-import net.sf.ehcache.Cache;
+import javax.management.ObjectName;
+
 import net.sf.ehcache.CacheManager;
 
 import org.deegree.commons.config.DeegreeWorkspace;
@@ -60,6 +64,7 @@ import org.deegree.tile.TileDataSet;
 import org.deegree.tile.Tiles;
 import org.deegree.tile.persistence.TileStore;
 import org.deegree.tile.persistence.TileStoreTransaction;
+import org.slf4j.Logger;
 
 /**
  * {@link TileStore} that acts as a caching proxy to another {@link TileStore}.
@@ -71,18 +76,34 @@ import org.deegree.tile.persistence.TileStoreTransaction;
  */
 public class CachingTileStore implements TileStore {
 
+    private static final Logger LOG = getLogger( CachingTileStore.class );
+
     private final TileStore tileStore;
 
-    private final CacheManager cacheManager;
+    private final TileCache cache;
 
-    private final Cache cache;
+    private final String name;
 
     private Map<String, TileDataSet> tileMatrixSets;
 
+    private ObjectName mbeanName;
+
     public CachingTileStore( TileStore tileStore, CacheManager cacheManager, String cacheName ) {
+        this( tileStore, new TileCache( null, new EhcacheTileCache( cacheManager, cacheName ), 0, 0 ), cacheName );
+    }
+
+    /**
+     * @param tileStore
+     *            the tile store to cache, must not be <code>null</code>
+     * @param cache
+     *            the tile cache, must not be <code>null</code>, is closed on {@link #destroy()}
+     * @param name
+     *            name of the cache (used for JMX), must not be <code>null</code>
+     */
+    public CachingTileStore( TileStore tileStore, TileCache cache, String name ) {
         this.tileStore = tileStore;
-        this.cacheManager = cacheManager;
-        this.cache = cacheManager.getCache( cacheName );
+        this.cache = cache;
+        this.name = name;
     }
 
     @Override
@@ -94,12 +115,31 @@ public class CachingTileStore implements TileStore {
             TileDataSet cachedDataset = tileStore.getTileDataSet( id );
             List<TileDataLevel> list = new ArrayList<TileDataLevel>();
             for ( TileDataLevel tm : cachedDataset.getTileDataLevels() ) {
-                list.add( new CachingTileMatrix( tm, cache ) );
+                list.add( new CachingTileMatrix( tm, cache, id ) );
             }
             TileDataSet cachingDataset = new DefaultTileDataSet( list, cachedDataset.getTileMatrixSet(),
                                                                  cachedDataset.getNativeImageFormat() );
             this.tileMatrixSets.put( id, cachingDataset );
         }
+        registerMBean();
+    }
+
+    private void registerMBean() {
+        try {
+            ObjectName objectName = new ObjectName( "org.deegree:type=TileCache,name=" + ObjectName.quote( name ) );
+            ManagementFactory.getPlatformMBeanServer().registerMBean( cache, objectName );
+            mbeanName = objectName;
+        } catch ( Exception e ) {
+            LOG.warn( "Could not register tile cache MBean: " + e.getMessage() );
+            LOG.trace( "Stack trace:", e );
+        }
+    }
+
+    /**
+     * @return the tile cache, never <code>null</code>
+     */
+    public TileCache getCache() {
+        return cache;
     }
 
     @Override
@@ -109,7 +149,15 @@ public class CachingTileStore implements TileStore {
 
     @Override
     public void destroy() {
-        cacheManager.shutdown();
+        if ( mbeanName != null ) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean( mbeanName );
+            } catch ( Exception e ) {
+                LOG.debug( "Could not unregister tile cache MBean: " + e.getMessage() );
+            }
+            mbeanName = null;
+        }
+        cache.close();
     }
 
     @Override
@@ -141,18 +189,16 @@ public class CachingTileStore implements TileStore {
      */
     public long invalidateCache( String tileMatrixSet, Envelope envelope ) {
         if ( envelope == null ) {
-            int size = cache.getSize();
-            cache.removeAll();
-            return size;
+            return cache.clear();
         }
         long cnt = 0;
         for ( TileDataLevel tm : tileMatrixSets.get( tileMatrixSet ).getTileDataLevels() ) {
             long[] ts = Tiles.getTileIndexRange( tm, envelope );
             if ( ts != null ) {
-                String id = tm.getMetadata().getIdentifier();
+                TileCache.Level level = ( (CachingTileMatrix) tm ).getLevel();
                 for ( long x = ts[0]; x <= ts[2]; ++x ) {
                     for ( long y = ts[1]; y <= ts[3]; ++y ) {
-                        if ( cache.remove( id + "_" + x + "_" + y ) ) {
+                        if ( cache.remove( new TileCacheKey( level, x, y ) ) ) {
                             ++cnt;
                         }
                     }
@@ -162,8 +208,24 @@ public class CachingTileStore implements TileStore {
         return cnt;
     }
 
+    /**
+     * Returns a transaction that writes to (or removes from) the cache, the cached tile store is not modified.
+     */
     @Override
     public TileStoreTransaction acquireTransaction( String id ) {
-        throw new UnsupportedOperationException( "CachingTileStore does not support transactions." );
+        return new CachingTileStoreTransaction( this, id );
+    }
+
+    /**
+     * @param tileDataSet
+     *            id of the tile data set, must not be <code>null</code>
+     * @param tileMatrix
+     *            id of the tile matrix, must not be <code>null</code>
+     * @return the cache level of the tile matrix, or <code>null</code>, if there is no such tile matrix
+     */
+    TileCache.Level getLevel( String tileDataSet, String tileMatrix ) {
+        TileDataSet set = tileMatrixSets.get( tileDataSet );
+        TileDataLevel level = set == null ? null : set.getTileDataLevel( tileMatrix );
+        return level == null ? null : ( (CachingTileMatrix) level ).getLevel();
     }
 }
@@ -43,6 +43,8 @@ package org.deegree.tile.persistence.cache;
 import static org.deegree.commons.xml.jaxb.JAXBUtils.unmarshall;
 
 import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
 import java.net.URL;
 import java.util.Collections;
 import java.util.List;
@@ -57,8 +59,8 @@ import org.deegree.tile.persistence.TileStoreManager;
 import org.deegree.tile.persistence.TileStoreProvider;
 
 /**
- * The <code>GeoTIFFTileStoreProvider</code> provides a <code>TileMatrixSet</code> out of a GeoTIFF file (tiled
- * BIGTIFF).
+ * The <code>CachingTileStoreProvider</code> provides {@link CachingTileStore}s, which cache the tiles of another tile
+ * store, either in a {@link TileCache} (memory and optional disk tier) or in an Ehcache region.
  * 
  * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
  * @author last edited by: $Author: mschneider $
@@ -68,6 +70,10 @@ import org.deegree.tile.persistence.TileStoreProvider;
 
 public class CachingTileStoreProvider implements TileStoreProvider {
 
+    private static final long DEFAULT_MEMORY_SIZE_MB = 64;
+
+    private static final long DEFAULT_DISK_SIZE_MB = 1024;
+
     private static final URL SCHEMA = CachingTileStoreProvider.class.getResource( "/META-INF/schemas/datasource/tile/cache/3.2.0/cache.xsd" );
 
     private DeegreeWorkspace workspace;
@@ -92,19 +98,52 @@ public class CachingTileStoreProvider implements TileStoreProvider {
                                                  + " is not available." );
             }
 
+            File configFile = new File( configUrl.toURI() );
+            String name = configFile.getName();
+            if ( name.endsWith( ".xml" ) ) {
+                name = name.substring( 0, name.length() - 4 );
+            }
+            if ( cfg.getTileCache() != null ) {
+                return new CachingTileStore( ts, createTileCache( cfg.getTileCache(), configFile ), name );
+            }
+
             String cache = cfg.getCacheConfiguration();
             File f = new File( cache );
             if ( !f.isAbsolute() ) {
-                f = new File( new File( configUrl.toURI() ).getParentFile(), cache );
+                f = new File( configFile.getParentFile(), cache );
             }
             CacheManager cmgr = new CacheManager( f.toURI().toURL() );
+            TileCache tileCache = new TileCache( null, new EhcacheTileCache( cmgr, cfg.getCacheName() ), 0, 0 );
 
-            return new CachingTileStore( ts, cmgr, cfg.getCacheName() );
+            return new CachingTileStore( ts, tileCache, name );
         } catch ( Throwable e ) {
             throw new ResourceInitException( "Unable to create tile store.", e );
         }
     }
 
+    private static TileCache createTileCache( org.deegree.tile.persistence.cache.jaxb.CachingTileStore.TileCache cfg,
+                                              File configFile )
+                            throws IOException {
+        long memorySize = getLong( cfg.getMemorySizeMB(), DEFAULT_MEMORY_SIZE_MB ) * 1024 * 1024;
+        TileCacheTier memory = new MemoryTileCache( memorySize );
+        TileCacheTier disk = null;
+        if ( cfg.getDiskDirectory() != null ) {
+            File dir = new File( cfg.getDiskDirectory() );
+            if ( !dir.isAbsolute() ) {
+                dir = new File( configFile.getParentFile(), cfg.getDiskDirectory() );
+            }
+            long diskSize = getLong( cfg.getDiskSizeMB(), DEFAULT_DISK_SIZE_MB ) * 1024 * 1024;
+            disk = new DiskTileCache( dir, diskSize );
+        }
+        long timeToLive = getLong( cfg.getTimeToLive(), 0 ) * 1000;
+        long staleWhileRevalidate = getLong( cfg.getStaleWhileRevalidate(), 0 ) * 1000;
+        return new TileCache( memory, disk, timeToLive, staleWhileRevalidate );
+    }
+
+    private static long getLong( BigInteger value, long defaultValue ) {
+        return value == null ? defaultValue : value.longValue();
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public Class<? extends ResourceManager>[] getDependencies() {
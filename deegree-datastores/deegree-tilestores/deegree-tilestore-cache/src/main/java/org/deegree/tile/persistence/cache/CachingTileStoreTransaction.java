@@ -0,0 +1,102 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.tile.persistence.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.deegree.tile.Tile;
+import org.deegree.tile.TileIOException;
+import org.deegree.tile.persistence.AbstractTileStoreTransaction;
+import org.deegree.tile.persistence.TileStoreTransaction;
+
+/**
+ * {@link TileStoreTransaction} of a {@link CachingTileStore}: puts tiles into (and deletes tiles from) the cache. Used
+ * e.g. for seeding the cache from another tile store.
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+class CachingTileStoreTransaction extends AbstractTileStoreTransaction {
+
+    private final CachingTileStore cachingStore;
+
+    CachingTileStoreTransaction( CachingTileStore store, String tileDataSet ) {
+        super( store, tileDataSet );
+        this.cachingStore = store;
+    }
+
+    @Override
+    public void put( String tileMatrix, Tile tile, long x, long y )
+                            throws TileIOException {
+        TileCacheKey key = getKey( tileMatrix, x, y );
+        InputStream is = null;
+        try {
+            is = tile.getAsStream();
+            byte[] data = is == null ? new byte[] {} : IOUtils.toByteArray( is );
+            cachingStore.getCache().put( key, data );
+        } catch ( IOException e ) {
+            throw new TileIOException( "Error retrieving tile: " + e.getMessage(), e );
+        } finally {
+            IOUtils.closeQuietly( is );
+        }
+    }
+
+    @Override
+    public void delete( String tileMatrix, long x, long y )
+                            throws TileIOException {
+        cachingStore.getCache().remove( getKey( tileMatrix, x, y ) );
+    }
+
+    private TileCacheKey getKey( String tileMatrix, long x, long y ) {
+        TileCache.Level level = cachingStore.getLevel( tileMatrixSet, tileMatrix );
+        if ( level == null ) {
+            throw new TileIOException( "No tile matrix with id " + tileMatrix + " in tile data set " + tileMatrixSet
+                                       + "." );
+        }
+        return new TileCacheKey( level, x, y );
+    }
+
+}
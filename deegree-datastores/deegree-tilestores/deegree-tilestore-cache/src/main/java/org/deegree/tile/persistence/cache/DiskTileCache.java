@@ -0,0 +1,498 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.tile.persistence.cache;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+
+/**
+ * Persistent {@link TileCacheTier} that stores tiles in memory-mapped segment files.
+ * <p>
+ * Tiles are appended to the current segment file (<code>tiles-NNNNNNNN.dat</code>), removals are appended as
+ * tombstones. When the maximum size is exceeded, the oldest segment file is dropped as a whole. The in-memory index is
+ * rebuilt by scanning the segment files when the cache is opened, so cached tiles survive restarts.
+ * </p>
+ * <p>
+ * Record layout: magic (int), key length (int), creation time (long), data length (int, <code>-1</code> for
+ * tombstones), key (UTF-8), data. The magic number is written last, so incomplete records are ignored on startup.
+ * </p>
+ * <p>
+ * The directory is locked exclusively while the cache is open, so it can not be modified by another process (e.g.
+ * the TileStoreSeeder tool or a second server). To modify it while a server is running, {@link #close()} the cache
+ * (see {@link TileCacheMBean#releasePersistentTier()}) and {@link #reload()} it afterwards.
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class DiskTileCache implements TileCacheTier {
+
+    private static final Logger LOG = getLogger( DiskTileCache.class );
+
+    private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+    private static final int MAGIC = 0x544C4345;
+
+    private static final int HEADER_SIZE = 20;
+
+    private static final int MIN_SEGMENT_SIZE = 1024 * 1024;
+
+    private static final int MAX_SEGMENT_SIZE = 256 * 1024 * 1024;
+
+    private static final String PREFIX = "tiles-";
+
+    private static final String SUFFIX = ".dat";
+
+    private static final String LOCK_FILE = ".lock";
+
+    private final File directory;
+
+    private final int segmentSize;
+
+    private final int maxSegments;
+
+    private final Map<String, Location> index = new ConcurrentHashMap<String, Location>();
+
+    private final AtomicLong size = new AtomicLong();
+
+    // oldest first, guarded by this
+    private final List<Segment> segments = new ArrayList<Segment>();
+
+    private Segment current;
+
+    // guarded by this, null if closed
+    private FileLock lock;
+
+    /**
+     * Opens the cache directory (creating it if necessary) and indexes the tiles stored in it.
+     * 
+     * @param directory
+     *            directory for the segment files, must not be <code>null</code>, is locked while the cache is open
+     * @param maxSize
+     *            maximum disk space to use in bytes, must be positive
+     * @throws IOException
+     *             if the directory could not be created or read, or if it is locked by another process
+     */
+    public DiskTileCache( File directory, long maxSize ) throws IOException {
+        if ( maxSize <= 0 ) {
+            throw new IllegalArgumentException( "Maximum cache size must be positive." );
+        }
+        this.directory = directory;
+        this.segmentSize = (int) Math.max( MIN_SEGMENT_SIZE, Math.min( MAX_SEGMENT_SIZE, maxSize / 8 ) );
+        this.maxSegments = (int) Math.max( 2, maxSize / segmentSize );
+        if ( !directory.isDirectory() && !directory.mkdirs() ) {
+            throw new IOException( "Could not create tile cache directory " + directory + "." );
+        }
+        open();
+    }
+
+    /**
+     * Reopens the cache after it has been closed (or closes and reopens it), so tiles written to or removed from the
+     * directory by another process in the meantime become visible.
+     * 
+     * @throws IOException
+     *             if the directory could not be read, or if it is locked by another process
+     */
+    public synchronized void reload()
+                            throws IOException {
+        close();
+        open();
+    }
+
+    private synchronized void open()
+                            throws IOException {
+        lockDirectory();
+        try {
+            scanSegments();
+        } catch ( IOException e ) {
+            close();
+            throw e;
+        }
+        LOG.info( "Opened tile cache in {} ({} tiles, {} bytes).", new Object[] { directory, index.size(), size.get() } );
+    }
+
+    // this lock must be held
+    private void lockDirectory()
+                            throws IOException {
+        RandomAccessFile raf = new RandomAccessFile( new File( directory, LOCK_FILE ), "rw" );
+        try {
+            lock = raf.getChannel().tryLock();
+        } catch ( OverlappingFileLockException e ) {
+            // locked by another cache of this JVM
+        } finally {
+            if ( lock == null ) {
+                raf.close();
+            }
+        }
+        if ( lock == null ) {
+            throw new IOException( "Tile cache directory " + directory + " is in use by another process (or cache). "
+                                   + "Release it there first." );
+        }
+    }
+
+    // this lock must be held
+    private void unlockDirectory() {
+        if ( lock == null ) {
+            return;
+        }
+        try {
+            lock.release();
+            lock.channel().close();
+        } catch ( IOException e ) {
+            LOG.warn( "Could not unlock tile cache directory {}: {}", directory, e.getLocalizedMessage() );
+        }
+        lock = null;
+    }
+
+    // indexes the segment files, this lock must be held
+    private void scanSegments()
+                            throws IOException {
+        File[] files = directory.listFiles( new FileFilter() {
+            @Override
+            public boolean accept( File f ) {
+                return f.isFile() && getSegmentId( f ) >= 0;
+            }
+        } );
+        if ( files == null ) {
+            throw new IOException( "Could not read tile cache directory " + directory + "." );
+        }
+        long[] ids = new long[files.length];
+        for ( int i = 0; i < files.length; ++i ) {
+            ids[i] = getSegmentId( files[i] );
+        }
+        Arrays.sort( ids );
+        for ( long id : ids ) {
+            Segment segment = mapSegment( id, false );
+            scan( segment );
+            segments.add( segment );
+            current = segment;
+        }
+        while ( segments.size() > maxSegments ) {
+            dropOldestSegment();
+        }
+    }
+
+    // rebuilds the index entries of a segment, this lock must be held
+    private void scan( Segment segment ) {
+        ByteBuffer buf = segment.buffer;
+        int pos = 0;
+        while ( pos + HEADER_SIZE <= buf.capacity() && buf.getInt( pos ) == MAGIC ) {
+            int keyLength = buf.getInt( pos + 4 );
+            long created = buf.getLong( pos + 8 );
+            int dataLength = buf.getInt( pos + 16 );
+            int recordLength = HEADER_SIZE + keyLength + Math.max( 0, dataLength );
+            if ( keyLength <= 0 || dataLength < -1 || recordLength < 0 || pos + recordLength > buf.capacity() ) {
+                LOG.warn( "Ignoring corrupt tile cache data in {} (position {}).", segment.file, pos );
+                break;
+            }
+            byte[] keyBytes = new byte[keyLength];
+            ByteBuffer dup = buf.duplicate();
+            dup.position( pos + HEADER_SIZE );
+            dup.get( keyBytes );
+            String key = new String( keyBytes, UTF8 );
+            Location old;
+            if ( dataLength < 0 ) {
+                old = index.remove( key );
+            } else {
+                old = index.put( key, new Location( segment, pos + HEADER_SIZE + keyLength, dataLength, created ) );
+                size.addAndGet( dataLength );
+            }
+            if ( old != null ) {
+                size.addAndGet( -old.length );
+            }
+            pos += recordLength;
+        }
+        segment.writePos = pos;
+    }
+
+    @Override
+    public TileCacheEntry get( TileCacheKey key ) {
+        Location loc = index.get( key.toString() );
+        if ( loc == null ) {
+            return null;
+        }
+        // the mapping stays valid, even if the segment is dropped concurrently
+        ByteBuffer buf = loc.segment.buffer.duplicate();
+        buf.position( loc.offset );
+        byte[] data = new byte[loc.length];
+        buf.get( data );
+        return new TileCacheEntry( data, loc.created );
+    }
+
+    @Override
+    public void put( TileCacheKey key, TileCacheEntry entry ) {
+        String k = key.toString();
+        byte[] data = entry.getData();
+        if ( (long) HEADER_SIZE + k.length() * 3 + data.length > segmentSize ) {
+            // too large to be cached, but make sure that no outdated version remains
+            remove( key );
+            return;
+        }
+        try {
+            synchronized ( this ) {
+                if ( lock == null ) {
+                    return;
+                }
+                Location loc = append( k, entry.getCreated(), data );
+                Location old = index.put( k, loc );
+                size.addAndGet( data.length );
+                if ( old != null ) {
+                    size.addAndGet( -old.length );
+                }
+            }
+        } catch ( IOException e ) {
+            LOG.warn( "Could not write tile to cache directory {}: {}", directory, e.getLocalizedMessage() );
+            LOG.trace( "Stack trace:", e );
+        }
+    }
+
+    @Override
+    public boolean remove( TileCacheKey key ) {
+        String k = key.toString();
+        synchronized ( this ) {
+            if ( lock == null ) {
+                return false;
+            }
+            Location old = index.remove( k );
+            if ( old == null ) {
+                return false;
+            }
+            size.addAndGet( -old.length );
+            try {
+                append( k, 0, null );
+            } catch ( IOException e ) {
+                LOG.warn( "Could not write to cache directory {}: {}", directory, e.getLocalizedMessage() );
+                LOG.trace( "Stack trace:", e );
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public synchronized long clear() {
+        if ( lock == null ) {
+            // the files may be in use by another process
+            return 0;
+        }
+        long count = index.size();
+        index.clear();
+        size.set( 0 );
+        for ( Segment segment : segments ) {
+            deleteSegmentFile( segment );
+        }
+        segments.clear();
+        current = null;
+        return count;
+    }
+
+    @Override
+    public long getEntryCount() {
+        return index.size();
+    }
+
+    @Override
+    public long getSize() {
+        return size.get();
+    }
+
+    /**
+     * Writes all changes to disk and unlocks the directory. Until the cache is reloaded, it is empty and does not store
+     * tiles.
+     */
+    @Override
+    public synchronized void close() {
+        for ( Segment segment : segments ) {
+            segment.buffer.force();
+        }
+        segments.clear();
+        index.clear();
+        size.set( 0 );
+        current = null;
+        unlockDirectory();
+    }
+
+    /**
+     * Appends a record (or a tombstone, if data is <code>null</code>), this lock must be held.
+     * 
+     * @return location of the data, or <code>null</code>, if a tombstone has been written
+     */
+    private Location append( String key, long created, byte[] data )
+                            throws IOException {
+        byte[] keyBytes = key.getBytes( UTF8 );
+        int dataLength = data == null ? -1 : data.length;
+        int recordLength = HEADER_SIZE + keyBytes.length + Math.max( 0, dataLength );
+        if ( current == null || current.writePos + recordLength > current.buffer.capacity() ) {
+            long id = current == null ? 0 : current.id + 1;
+            current = mapSegment( id, true );
+            segments.add( current );
+            while ( segments.size() > maxSegments ) {
+                dropOldestSegment();
+            }
+        }
+        MappedByteBuffer buf = current.buffer;
+        int pos = current.writePos;
+        buf.putInt( pos + 4, keyBytes.length );
+        buf.putLong( pos + 8, created );
+        buf.putInt( pos + 16, dataLength );
+        ByteBuffer dup = buf.duplicate();
+        dup.position( pos + HEADER_SIZE );
+        dup.put( keyBytes );
+        if ( data != null ) {
+            dup.put( data );
+        }
+        buf.putInt( pos, MAGIC );
+        current.writePos = pos + recordLength;
+        if ( data == null ) {
+            return null;
+        }
+        return new Location( current, pos + HEADER_SIZE + keyBytes.length, data.length, created );
+    }
+
+    // this lock must be held
+    private void dropOldestSegment() {
+        Segment oldest = segments.remove( 0 );
+        Iterator<Location> iter = index.values().iterator();
+        while ( iter.hasNext() ) {
+            Location loc = iter.next();
+            if ( loc.segment == oldest ) {
+                iter.remove();
+                size.addAndGet( -loc.length );
+            }
+        }
+        if ( oldest == current ) {
+            current = null;
+        }
+        deleteSegmentFile( oldest );
+    }
+
+    private Segment mapSegment( long id, boolean create )
+                            throws IOException {
+        File file = new File( directory, String.format( PREFIX + "%08d" + SUFFIX, id ) );
+        RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+        try {
+            if ( create ) {
+                raf.setLength( segmentSize );
+            }
+            // the mapping stays valid after closing the file
+            MappedByteBuffer buffer = raf.getChannel().map( READ_WRITE, 0, raf.length() );
+            return new Segment( id, file, buffer );
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static void deleteSegmentFile( Segment segment ) {
+        if ( !segment.file.delete() ) {
+            LOG.debug( "Could not delete tile cache file {}.", segment.file );
+            segment.file.deleteOnExit();
+        }
+    }
+
+    private static long getSegmentId( File file ) {
+        String name = file.getName();
+        if ( !name.startsWith( PREFIX ) || !name.endsWith( SUFFIX ) ) {
+            return -1;
+        }
+        try {
+            return Long.parseLong( name.substring( PREFIX.length(), name.length() - SUFFIX.length() ) );
+        } catch ( NumberFormatException e ) {
+            return -1;
+        }
+    }
+
+    private static class Segment {
+
+        private final long id;
+
+        private final File file;
+
+        private final MappedByteBuffer buffer;
+
+        private int writePos;
+
+        private Segment( long id, File file, MappedByteBuffer buffer ) {
+            this.id = id;
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+
+    private static class Location {
+
+        private final Segment segment;
+
+        private final int offset;
+
+        private final int length;
+
+        private final long created;
+
+        private Location( Segment segment, int offset, int length, long created ) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.created = created;
+        }
+    }
+
+}
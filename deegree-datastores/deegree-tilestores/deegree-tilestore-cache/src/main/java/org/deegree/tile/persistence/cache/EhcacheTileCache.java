@@ -0,0 +1,119 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.tile.persistence.cache;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+
+/**
+ * {@link TileCacheTier} that stores tiles in an Ehcache region (the cache configured with
+ * <code>CacheConfiguration</code>/<code>CacheName</code>). Size and expiration are controlled by the Ehcache
+ * configuration.
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class EhcacheTileCache implements TileCacheTier {
+
+    private final CacheManager cacheManager;
+
+    private final Cache cache;
+
+    /**
+     * @param cacheManager
+     *            must not be <code>null</code>, is shut down on {@link #close()}
+     * @param cacheName
+     *            name of the cache region, must be configured in the cache manager
+     */
+    public EhcacheTileCache( CacheManager cacheManager, String cacheName ) {
+        this.cacheManager = cacheManager;
+        this.cache = cacheManager.getCache( cacheName );
+        if ( cache == null ) {
+            throw new IllegalArgumentException( "No cache with name '" + cacheName + "' is configured." );
+        }
+    }
+
+    @Override
+    public TileCacheEntry get( TileCacheKey key ) {
+        Element elem = cache.get( key.toString() );
+        if ( elem == null ) {
+            return null;
+        }
+        return new TileCacheEntry( (byte[]) elem.getObjectValue(), elem.getCreationTime() );
+    }
+
+    @Override
+    public void put( TileCacheKey key, TileCacheEntry entry ) {
+        cache.put( new Element( key.toString(), entry.getData() ) );
+    }
+
+    @Override
+    public boolean remove( TileCacheKey key ) {
+        return cache.remove( key.toString() );
+    }
+
+    @Override
+    public long clear() {
+        long size = cache.getSize();
+        cache.removeAll();
+        return size;
+    }
+
+    @Override
+    public long getEntryCount() {
+        return cache.getSize();
+    }
+
+    @Override
+    public long getSize() {
+        return -1;
+    }
+
+    @Override
+    public void close() {
+        cacheManager.shutdown();
+    }
+
+}
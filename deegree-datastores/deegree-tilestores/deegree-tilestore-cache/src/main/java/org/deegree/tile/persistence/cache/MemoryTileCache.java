@@ -0,0 +1,214 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.tile.persistence.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-heap {@link TileCacheTier} that is bounded by the size of the cached tile data.
+ * <p>
+ * The cache is partitioned into segments (by hash of the key), each segment is guarded by its own lock and evicts its
+ * least recently used entries when its share of the maximum size is exceeded.
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class MemoryTileCache implements TileCacheTier {
+
+    private static final int NUM_SEGMENTS = 16;
+
+    // approximate heap overhead of an entry (key, entry, map node, array header)
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final Segment[] segments = new Segment[NUM_SEGMENTS];
+
+    private final long maxSize;
+
+    private final long segmentMaxSize;
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxSize
+     *            maximum size of all cached tiles in bytes, must be positive
+     */
+    public MemoryTileCache( long maxSize ) {
+        if ( maxSize <= 0 ) {
+            throw new IllegalArgumentException( "Maximum cache size must be positive." );
+        }
+        this.maxSize = maxSize;
+        this.segmentMaxSize = Math.max( 1, maxSize / NUM_SEGMENTS );
+        for ( int i = 0; i < NUM_SEGMENTS; i++ ) {
+            segments[i] = new Segment();
+        }
+    }
+
+    @Override
+    public TileCacheEntry get( TileCacheKey key ) {
+        Segment segment = getSegment( key );
+        synchronized ( segment ) {
+            return segment.get( key );
+        }
+    }
+
+    @Override
+    public void put( TileCacheKey key, TileCacheEntry entry ) {
+        long size = getWeight( entry );
+        Segment segment = getSegment( key );
+        synchronized ( segment ) {
+            segment.removeEntry( key );
+            if ( size > segmentMaxSize ) {
+                return;
+            }
+            segment.put( key, entry );
+            segment.size += size;
+            Iterator<TileCacheEntry> iter = segment.values().iterator();
+            while ( segment.size > segmentMaxSize && iter.hasNext() ) {
+                TileCacheEntry eldest = iter.next();
+                iter.remove();
+                segment.size -= getWeight( eldest );
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public boolean remove( TileCacheKey key ) {
+        Segment segment = getSegment( key );
+        synchronized ( segment ) {
+            return segment.removeEntry( key );
+        }
+    }
+
+    @Override
+    public long clear() {
+        long count = 0;
+        for ( Segment segment : segments ) {
+            synchronized ( segment ) {
+                count += segment.size();
+                segment.clear();
+                segment.size = 0;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long getEntryCount() {
+        long count = 0;
+        for ( Segment segment : segments ) {
+            synchronized ( segment ) {
+                count += segment.size();
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long getSize() {
+        long size = 0;
+        for ( Segment segment : segments ) {
+            synchronized ( segment ) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the maximum size of all cached tiles in bytes
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the number of entries that have been evicted to stay within the maximum size
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public void close() {
+        clear();
+    }
+
+    private Segment getSegment( TileCacheKey key ) {
+        int h = key.hashCode();
+        h ^= ( h >>> 16 );
+        return segments[h & ( NUM_SEGMENTS - 1 )];
+    }
+
+    private static long getWeight( TileCacheEntry entry ) {
+        return entry.getData().length + ENTRY_OVERHEAD;
+    }
+
+    /**
+     * Map of entries in access order (least recently used first) that keeps track of the total size of its entries.
+     */
+    private static class Segment extends LinkedHashMap<TileCacheKey, TileCacheEntry> {
+
+        private static final long serialVersionUID = 2807372365466271735L;
+
+        private long size;
+
+        private Segment() {
+            super( 64, 0.75f, true );
+        }
+
+        private boolean removeEntry( TileCacheKey key ) {
+            TileCacheEntry entry = remove( key );
+            if ( entry != null ) {
+                size -= getWeight( entry );
+                return true;
+            }
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,615 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.tile.persistence.cache;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.io.IOUtils;
+import org.deegree.tile.Tile;
+import org.deegree.tile.TileIOException;
+import org.slf4j.Logger;
+
+/**
+ * Tile cache of a {@link CachingTileStore}, consisting of an optional in-heap tier in front of an optional persistent
+ * tier.
+ * <p>
+ * Concurrent misses for the same tile are coalesced into a single request to the cached tile store. Entries are fresh
+ * for the configured time to live. Afterwards, they are served stale for the configured stale-while-revalidate period,
+ * while the tile is fetched again in the background. Older entries are fetched again before they are served. Tiles
+ * that are put or removed while they are being fetched are not overwritten by the result of the fetch.
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class TileCache implements TileCacheMBean {
+
+    private static final Logger LOG = getLogger( TileCache.class );
+
+    private static final int REFRESH_THREADS = 2;
+
+    private static final int REFRESH_QUEUE_SIZE = 1024;
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final TileCacheTier memory;
+
+    private final TileCacheTier persistent;
+
+    private final long timeToLive;
+
+    private final long staleWhileRevalidate;
+
+    private final ConcurrentMap<TileCacheKey, FutureTask<TileCacheEntry>> inFlight = new ConcurrentHashMap<TileCacheKey, FutureTask<TileCacheEntry>>();
+
+    private final ConcurrentMap<String, Level> levels = new ConcurrentHashMap<String, Level>();
+
+    private final AtomicLong refreshes = new AtomicLong();
+
+    private final ThreadPoolExecutor refresher;
+
+    // guard storing fetched tiles against concurrent puts and removals of the same tile
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    /**
+     * @param memory
+     *            in-heap tier, may be <code>null</code>
+     * @param persistent
+     *            persistent tier, may be <code>null</code>
+     * @param timeToLive
+     *            time (in milliseconds) a tile is fresh, <code>0</code> for tiles that never become stale
+     * @param staleWhileRevalidate
+     *            time (in milliseconds) after the time to live, during which the stale tile is served while it is
+     *            fetched again in the background, <code>0</code> to always wait for the fetch
+     */
+    public TileCache( TileCacheTier memory, TileCacheTier persistent, long timeToLive, long staleWhileRevalidate ) {
+        this.memory = memory;
+        this.persistent = persistent;
+        this.timeToLive = timeToLive;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        if ( timeToLive > 0 && staleWhileRevalidate > 0 ) {
+            refresher = new ThreadPoolExecutor( REFRESH_THREADS, REFRESH_THREADS, 60, SECONDS,
+                                                new ArrayBlockingQueue<Runnable>( REFRESH_QUEUE_SIZE ),
+                                                new RefreshThreadFactory() );
+            refresher.allowCoreThreadTimeOut( true );
+        } else {
+            refresher = null;
+        }
+        for ( int i = 0; i < LOCK_STRIPES; i++ ) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Returns the statistics of a cache level, creating it if necessary.
+     * 
+     * @param name
+     *            name of the level, must be unique within the cache
+     * @return the level, never <code>null</code>
+     */
+    public Level getLevel( String name ) {
+        Level level = levels.get( name );
+        if ( level == null ) {
+            Level newLevel = new Level( name );
+            level = levels.putIfAbsent( name, newLevel );
+            if ( level == null ) {
+                level = newLevel;
+            }
+        }
+        return level;
+    }
+
+    /**
+     * Returns the encoded data of a tile, from the cache if possible.
+     * 
+     * @param key
+     *            key of the tile, must not be <code>null</code>
+     * @param tile
+     *            tile of the cached tile store, used to fetch the data, must not be <code>null</code>
+     * @return the encoded tile, never <code>null</code> (but may be empty), must not be modified
+     * @throws TileIOException
+     *             if the tile could not be fetched
+     */
+    public byte[] getData( TileCacheKey key, Tile tile )
+                            throws TileIOException {
+        Level level = key.getLevel();
+        boolean fromMemory = false;
+        TileCacheEntry entry = null;
+        if ( memory != null ) {
+            entry = memory.get( key );
+            fromMemory = entry != null;
+        }
+        if ( entry == null && persistent != null ) {
+            entry = persistent.get( key );
+            if ( entry != null && memory != null ) {
+                memory.put( key, entry );
+            }
+        }
+        if ( entry != null ) {
+            long age = System.currentTimeMillis() - entry.getCreated();
+            if ( timeToLive <= 0 || age <= timeToLive ) {
+                if ( fromMemory ) {
+                    level.memoryHits.incrementAndGet();
+                } else {
+                    level.persistentHits.incrementAndGet();
+                }
+                return entry.getData();
+            }
+            if ( refresher != null && age <= timeToLive + staleWhileRevalidate ) {
+                level.staleHits.incrementAndGet();
+                refresh( key, tile );
+                return entry.getData();
+            }
+        }
+        level.misses.incrementAndGet();
+        return fetch( key, tile ).getData();
+    }
+
+    /**
+     * Adds or replaces a tile in all tiers.
+     * 
+     * @param key
+     *            key of the tile, must not be <code>null</code>
+     * @param data
+     *            encoded tile, must not be <code>null</code>
+     */
+    public void put( TileCacheKey key, byte[] data ) {
+        TileCacheEntry entry = new TileCacheEntry( data, System.currentTimeMillis() );
+        ReentrantLock lock = getLock( key );
+        lock.lock();
+        try {
+            // a running fetch must not overwrite the new tile (requests waiting for it still get the fetched tile)
+            inFlight.remove( key );
+            store( key, entry );
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a tile from all tiers.
+     * 
+     * @param key
+     *            must not be <code>null</code>
+     * @return <code>true</code>, if the tile was cached
+     */
+    public boolean remove( TileCacheKey key ) {
+        boolean removed = false;
+        ReentrantLock lock = getLock( key );
+        lock.lock();
+        try {
+            inFlight.remove( key );
+            if ( memory != null ) {
+                removed = memory.remove( key );
+            }
+            if ( persistent != null ) {
+                removed = persistent.remove( key ) || removed;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return removed;
+    }
+
+    /**
+     * Removes all tiles from all tiers.
+     * 
+     * @return the number of removed tiles
+     */
+    public long clear() {
+        long removed = 0;
+        for ( ReentrantLock lock : locks ) {
+            lock.lock();
+        }
+        try {
+            inFlight.clear();
+            if ( memory != null ) {
+                removed = memory.clear();
+            }
+            if ( persistent != null ) {
+                removed = Math.max( removed, persistent.clear() );
+            }
+        } finally {
+            for ( ReentrantLock lock : locks ) {
+                lock.unlock();
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Stops the background refreshes and closes the tiers.
+     */
+    public void close() {
+        if ( refresher != null ) {
+            refresher.shutdownNow();
+            // refreshes dropped from the queue would never complete, requests waiting for them fetch the tile again
+            for ( TileCacheKey key : inFlight.keySet() ) {
+                FutureTask<TileCacheEntry> task = inFlight.get( key );
+                if ( task != null && task.cancel( false ) ) {
+                    inFlight.remove( key, task );
+                }
+            }
+        }
+        if ( memory != null ) {
+            memory.close();
+        }
+        if ( persistent != null ) {
+            persistent.close();
+        }
+    }
+
+    private TileCacheEntry fetch( TileCacheKey key, Tile tile )
+                            throws TileIOException {
+        while ( true ) {
+            FutureTask<TileCacheEntry> task = createFetchTask( key, tile );
+            FutureTask<TileCacheEntry> running = inFlight.putIfAbsent( key, task );
+            if ( running == null ) {
+                try {
+                    task.run();
+                } finally {
+                    inFlight.remove( key, task );
+                }
+                running = task;
+            } else {
+                key.getLevel().coalesced.incrementAndGet();
+            }
+            try {
+                return running.get();
+            } catch ( CancellationException e ) {
+                // background refresh that was rejected or dropped on close, fetch the tile in this thread
+                LOG.debug( "Refresh of tile {} has been cancelled, fetching it again.", key );
+                inFlight.remove( key, running );
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new TileIOException( "Interrupted while waiting for tile.", e );
+            } catch ( ExecutionException e ) {
+                Throwable cause = e.getCause();
+                if ( cause instanceof TileIOException ) {
+                    throw (TileIOException) cause;
+                }
+                throw new TileIOException( cause.getMessage(), cause );
+            }
+        }
+    }
+
+    private void refresh( final TileCacheKey key, Tile tile ) {
+        if ( inFlight.containsKey( key ) ) {
+            return;
+        }
+        final FutureTask<TileCacheEntry> task = createFetchTask( key, tile );
+        if ( inFlight.putIfAbsent( key, task ) != null ) {
+            return;
+        }
+        try {
+            refresher.execute( new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        task.run();
+                        task.get();
+                    } catch ( InterruptedException e ) {
+                        Thread.currentThread().interrupt();
+                    } catch ( CancellationException e ) {
+                        LOG.debug( "Refresh of tile {} has been cancelled.", key );
+                    } catch ( ExecutionException e ) {
+                        LOG.debug( "Could not refresh tile {}: {}", key, e.getCause().getLocalizedMessage() );
+                        LOG.trace( "Stack trace:", e.getCause() );
+                    } finally {
+                        inFlight.remove( key, task );
+                    }
+                }
+            } );
+            refreshes.incrementAndGet();
+        } catch ( RejectedExecutionException e ) {
+            // too many pending refreshes, a later request will try again (requests that are already waiting for the
+            // task notice the cancellation and fetch the tile themselves)
+            task.cancel( false );
+            inFlight.remove( key, task );
+        }
+    }
+
+    private FutureTask<TileCacheEntry> createFetchTask( TileCacheKey key, Tile tile ) {
+        Fetch fetch = new Fetch( key, tile );
+        FutureTask<TileCacheEntry> task = new FutureTask<TileCacheEntry>( fetch );
+        fetch.task = task;
+        return task;
+    }
+
+    private void store( TileCacheKey key, TileCacheEntry entry ) {
+        if ( memory != null ) {
+            memory.put( key, entry );
+        }
+        if ( persistent != null ) {
+            persistent.put( key, entry );
+        }
+    }
+
+    private ReentrantLock getLock( TileCacheKey key ) {
+        return locks[( key.hashCode() & 0x7fffffff ) % LOCK_STRIPES];
+    }
+
+    @Override
+    public long getMemoryHits() {
+        long sum = 0;
+        for ( Level level : levels.values() ) {
+            sum += level.memoryHits.get();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getPersistentHits() {
+        long sum = 0;
+        for ( Level level : levels.values() ) {
+            sum += level.persistentHits.get();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getStaleHits() {
+        long sum = 0;
+        for ( Level level : levels.values() ) {
+            sum += level.staleHits.get();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getMisses() {
+        long sum = 0;
+        for ( Level level : levels.values() ) {
+            sum += level.misses.get();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getCoalescedRequests() {
+        long sum = 0;
+        for ( Level level : levels.values() ) {
+            sum += level.coalesced.get();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getRefreshes() {
+        return refreshes.get();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long hits = getMemoryHits() + getPersistentHits() + getStaleHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public String[] getLevelStatistics() {
+        List<String> lines = new ArrayList<String>();
+        for ( Level level : levels.values() ) {
+            lines.add( level.toString() );
+        }
+        return lines.toArray( new String[lines.size()] );
+    }
+
+    @Override
+    public long getMemoryEntryCount() {
+        return memory == null ? 0 : memory.getEntryCount();
+    }
+
+    @Override
+    public long getMemorySize() {
+        return memory == null ? 0 : memory.getSize();
+    }
+
+    @Override
+    public long getPersistentEntryCount() {
+        return persistent == null ? 0 : persistent.getEntryCount();
+    }
+
+    @Override
+    public long getPersistentSize() {
+        return persistent == null ? 0 : persistent.getSize();
+    }
+
+    @Override
+    public void resetStatistics() {
+        for ( Level level : levels.values() ) {
+            level.memoryHits.set( 0 );
+            level.persistentHits.set( 0 );
+            level.staleHits.set( 0 );
+            level.misses.set( 0 );
+            level.coalesced.set( 0 );
+        }
+        refreshes.set( 0 );
+    }
+
+    @Override
+    public void releasePersistentTier() {
+        if ( persistent instanceof DiskTileCache ) {
+            persistent.close();
+            LOG.info( "Released persistent tile cache tier, tiles are cached in memory only." );
+        }
+    }
+
+    @Override
+    public void reloadPersistentTier()
+                            throws IOException {
+        if ( persistent instanceof DiskTileCache ) {
+            ( (DiskTileCache) persistent ).reload();
+        }
+        // cached tiles may have been replaced or truncated
+        if ( memory != null ) {
+            memory.clear();
+        }
+    }
+
+    /**
+     * Fetches a tile and stores it in the tiers, unless the tile has been put or removed in the meantime (which drops
+     * the task from the in-flight tasks).
+     */
+    private class Fetch implements Callable<TileCacheEntry> {
+
+        private final TileCacheKey key;
+
+        private final Tile tile;
+
+        private FutureTask<TileCacheEntry> task;
+
+        private Fetch( TileCacheKey key, Tile tile ) {
+            this.key = key;
+            this.tile = tile;
+        }
+
+        @Override
+        public TileCacheEntry call()
+                                throws IOException {
+            long created = System.currentTimeMillis();
+            InputStream is = tile.getAsStream();
+            byte[] data;
+            if ( is == null ) {
+                data = new byte[] {};
+            } else {
+                try {
+                    data = IOUtils.toByteArray( is );
+                } finally {
+                    IOUtils.closeQuietly( is );
+                }
+            }
+            TileCacheEntry entry = new TileCacheEntry( data, created );
+            ReentrantLock lock = getLock( key );
+            lock.lock();
+            try {
+                if ( inFlight.get( key ) == task ) {
+                    store( key, entry );
+                } else {
+                    LOG.debug( "Tile {} has been replaced or removed while it was fetched, not storing it.", key );
+                }
+            } finally {
+                lock.unlock();
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * A cache level (usually a tile matrix of a tile data set) along with its request counters.
+     */
+    public static final class Level {
+
+        private final String name;
+
+        private final AtomicLong memoryHits = new AtomicLong();
+
+        private final AtomicLong persistentHits = new AtomicLong();
+
+        private final AtomicLong staleHits = new AtomicLong();
+
+        private final AtomicLong misses = new AtomicLong();
+
+        private final AtomicLong coalesced = new AtomicLong();
+
+        private Level( String name ) {
+            this.name = name;
+        }
+
+        /**
+         * @return the name of the level, never <code>null</code>
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return ratio of requests for tiles of this level that have been answered from the cache
+         */
+        public double getHitRatio() {
+            long hits = memoryHits.get() + persistentHits.get() + staleHits.get();
+            long total = hits + misses.get();
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": memoryHits=" + memoryHits.get() + ", persistentHits=" + persistentHits.get()
+                   + ", staleHits=" + staleHits.get() + ", misses=" + misses.get() + ", coalesced="
+                   + coalesced.get() + ", hitRatio=" + getHitRatio();
+        }
+    }
+
+    private static class RefreshThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread( Runnable r ) {
+            Thread t = new Thread( r, "deegree-tile-cache-refresh-" + count.incrementAndGet() );
+            t.setDaemon( true );
+            return t;
+        }
+    }
+
+}
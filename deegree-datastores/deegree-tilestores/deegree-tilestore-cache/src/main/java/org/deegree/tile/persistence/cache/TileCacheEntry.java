@@ -0,0 +1,83 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.tile.persistence.cache;
+
+/**
+ * The encoded data of a cached tile, along with the time it has been fetched from the cached tile store.
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public final class TileCacheEntry {
+
+    private final byte[] data;
+
+    private final long created;
+
+    /**
+     * @param data
+     *            encoded tile, must not be <code>null</code> (but may be empty)
+     * @param created
+     *            time (in milliseconds since the epoch) the data has been fetched
+     */
+    public TileCacheEntry( byte[] data, long created ) {
+        this.data = data;
+        this.created = created;
+    }
+
+    /**
+     * @return the encoded tile, never <code>null</code>, must not be modified
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * @return time (in milliseconds since the epoch) the data has been fetched
+     */
+    public long getCreated() {
+        return created;
+    }
+
+}
@@ -0,0 +1,127 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.tile.persistence.cache;
+
+/**
+ * Identifies a tile in a {@link TileCache}: the cache level (tile data set and tile matrix) and the tile indexes.
+ * <p>
+ * Keys are cheap to create and compare, the string form (used by the persistent tiers) is only built on demand.
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public final class TileCacheKey {
+
+    private final TileCache.Level level;
+
+    private final long x, y;
+
+    private final int hash;
+
+    /**
+     * @param level
+     *            cache level of the tile, must not be <code>null</code>
+     * @param x
+     *            column of the tile
+     * @param y
+     *            row of the tile
+     */
+    public TileCacheKey( TileCache.Level level, long x, long y ) {
+        this.level = level;
+        this.x = x;
+        this.y = y;
+        int h = level.getName().hashCode();
+        h = 31 * h + (int) ( x ^ ( x >>> 32 ) );
+        h = 31 * h + (int) ( y ^ ( y >>> 32 ) );
+        this.hash = h;
+    }
+
+    /**
+     * @return the cache level of the tile, never <code>null</code>
+     */
+    public TileCache.Level getLevel() {
+        return level;
+    }
+
+    /**
+     * @return the column of the tile
+     */
+    public long getX() {
+        return x;
+    }
+
+    /**
+     * @return the row of the tile
+     */
+    public long getY() {
+        return y;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals( Object obj ) {
+        if ( this == obj ) {
+            return true;
+        }
+        if ( !( obj instanceof TileCacheKey ) ) {
+            return false;
+        }
+        TileCacheKey that = (TileCacheKey) obj;
+        return hash == that.hash && x == that.x && y == that.y && level.getName().equals( that.level.getName() );
+    }
+
+    /**
+     * @return the key as string (<code>level_x_y</code>), as used by the persistent cache tiers
+     */
+    @Override
+    public String toString() {
+        return level.getName() + "_" + x + "_" + y;
+    }
+
+}
@@ -0,0 +1,138 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.tile.persistence.cache;
+
+import java.io.IOException;
+
+/**
+ * JMX view of a {@link TileCache}.
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public interface TileCacheMBean {
+
+    /**
+     * @return number of requests answered from the in-heap tier
+     */
+    long getMemoryHits();
+
+    /**
+     * @return number of requests answered from the persistent tier
+     */
+    long getPersistentHits();
+
+    /**
+     * @return number of requests answered with stale data (while the tile has been refreshed in the background)
+     */
+    long getStaleHits();
+
+    /**
+     * @return number of requests that had to wait for the cached tile store
+     */
+    long getMisses();
+
+    /**
+     * @return number of misses that have been answered by a fetch of another request for the same tile
+     */
+    long getCoalescedRequests();
+
+    /**
+     * @return number of background refreshes of stale tiles
+     */
+    long getRefreshes();
+
+    /**
+     * @return ratio of requests answered from the cache (including stale data)
+     */
+    double getHitRatio();
+
+    /**
+     * @return one line per cache level (tile data set and tile matrix) with its request counts and hit ratio
+     */
+    String[] getLevelStatistics();
+
+    /**
+     * @return number of tiles in the in-heap tier
+     */
+    long getMemoryEntryCount();
+
+    /**
+     * @return size of the tiles in the in-heap tier in bytes
+     */
+    long getMemorySize();
+
+    /**
+     * @return number of tiles in the persistent tier
+     */
+    long getPersistentEntryCount();
+
+    /**
+     * @return size of the tiles in the persistent tier in bytes, <code>-1</code> if unknown
+     */
+    long getPersistentSize();
+
+    /**
+     * Resets all request counters.
+     */
+    void resetStatistics();
+
+    /**
+     * Closes the persistent tier (if it is a {@link DiskTileCache}) and unlocks its directory, so it can be seeded or
+     * truncated by another process. Until {@link #reloadPersistentTier()} is called, tiles are cached in the in-heap
+     * tier only.
+     */
+    void releasePersistentTier();
+
+    /**
+     * Reopens the persistent tier (if it is a {@link DiskTileCache}) and clears the in-heap tier, so tiles seeded or
+     * truncated by another process become visible.
+     * 
+     * @throws IOException
+     *             if the persistent tier could not be opened, e.g. because it is still in use by another process
+     */
+    void reloadPersistentTier()
+                            throws IOException;
+
+}
@@ -0,0 +1,104 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.tile.persistence.cache;
+
+/**
+ * A storage tier of a {@link TileCache}. Implementations must be thread safe.
+ * 
+ * @see MemoryTileCache
+ * @see DiskTileCache
+ * @see EhcacheTileCache
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public interface TileCacheTier {
+
+    /**
+     * @param key
+     *            must not be <code>null</code>
+     * @return the cached entry, or <code>null</code>, if there is none
+     */
+    TileCacheEntry get( TileCacheKey key );
+
+    /**
+     * Adds or replaces an entry. Implementations may decide not to store it (e.g. if it is too large).
+     * 
+     * @param key
+     *            must not be <code>null</code>
+     * @param entry
+     *            must not be <code>null</code>
+     */
+    void put( TileCacheKey key, TileCacheEntry entry );
+
+    /**
+     * @param key
+     *            must not be <code>null</code>
+     * @return <code>true</code>, if an entry has been removed
+     */
+    boolean remove( TileCacheKey key );
+
+    /**
+     * Removes all entries.
+     * 
+     * @return the number of removed entries
+     */
+    long clear();
+
+    /**
+     * @return the number of cached entries
+     */
+    long getEntryCount();
+
+    /**
+     * @return the size of the cached entries in bytes, or <code>-1</code>, if unknown
+     */
+    long getSize();
+
+    /**
+     * Releases all resources. Persistent tiers keep their entries.
+     */
+    void close();
+
+}
@@ -0,0 +1,372 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.tile.persistence.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.io.FileUtils;
+import org.deegree.feature.FeatureCollection;
+import org.deegree.geometry.Envelope;
+import org.deegree.tile.Tile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link TileCache}, {@link MemoryTileCache} and {@link DiskTileCache}.
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class TileCacheTest {
+
+    private File dir;
+
+    @Before
+    public void setUp()
+                            throws IOException {
+        dir = File.createTempFile( "tilecache", "" );
+        dir.delete();
+    }
+
+    @After
+    public void tearDown()
+                            throws IOException {
+        FileUtils.deleteDirectory( dir );
+    }
+
+    @Test
+    public void testConcurrentMissesAreCoalesced()
+                            throws InterruptedException {
+        final TileCache cache = new TileCache( new MemoryTileCache( 1024 * 1024 ), null, 0, 0 );
+        final TileCacheKey key = new TileCacheKey( cache.getLevel( "set/0" ), 1, 2 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final CountingTile tile = new CountingTile( new byte[] { 1, 2, 3 }, release );
+        int numThreads = 8;
+        final CountDownLatch done = new CountDownLatch( numThreads );
+        final AtomicInteger correct = new AtomicInteger();
+        for ( int i = 0; i < numThreads; ++i ) {
+            new Thread() {
+                @Override
+                public void run() {
+                    if ( cache.getData( key, tile ).length == 3 ) {
+                        correct.incrementAndGet();
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        // give the threads some time to pile up on the same tile
+        Thread.sleep( 200 );
+        release.countDown();
+        done.await();
+        assertEquals( numThreads, correct.get() );
+        assertEquals( 1, tile.fetches.get() );
+        assertEquals( numThreads, cache.getMisses() + cache.getMemoryHits() );
+        assertEquals( cache.getMisses() - 1, cache.getCoalescedRequests() );
+    }
+
+    @Test
+    public void testDiskTierSurvivesReopen()
+                            throws IOException {
+        TileCache cache = new TileCache( new MemoryTileCache( 1024 * 1024 ), new DiskTileCache( dir, 4 * 1024 * 1024 ),
+                                         0, 0 );
+        TileCache.Level level = cache.getLevel( "set/0" );
+        CountingTile tile = new CountingTile( new byte[] { 4, 5, 6, 7 }, null );
+        cache.getData( new TileCacheKey( level, 0, 0 ), tile );
+        cache.getData( new TileCacheKey( level, 0, 1 ), tile );
+        cache.remove( new TileCacheKey( level, 0, 1 ) );
+        assertEquals( 2, tile.fetches.get() );
+        cache.close();
+
+        DiskTileCache disk = new DiskTileCache( dir, 4 * 1024 * 1024 );
+        cache = new TileCache( new MemoryTileCache( 1024 * 1024 ), disk, 0, 0 );
+        level = cache.getLevel( "set/0" );
+        assertEquals( 1, disk.getEntryCount() );
+        assertNull( disk.get( new TileCacheKey( level, 0, 1 ) ) );
+        assertArrayEquals( new byte[] { 4, 5, 6, 7 }, cache.getData( new TileCacheKey( level, 0, 0 ), tile ) );
+        assertEquals( 1, cache.getPersistentHits() );
+        assertEquals( 2, tile.fetches.get() );
+        cache.close();
+    }
+
+    @Test
+    public void testDiskTierDropsOldestSegment()
+                            throws IOException {
+        DiskTileCache disk = new DiskTileCache( dir, 2 * 1024 * 1024 );
+        TileCache cache = new TileCache( null, disk, 0, 0 );
+        TileCache.Level level = cache.getLevel( "set/0" );
+        byte[] data = new byte[100 * 1024];
+        for ( int i = 0; i < 50; ++i ) {
+            disk.put( new TileCacheKey( level, i, 0 ), new TileCacheEntry( data, 0 ) );
+        }
+        assertTrue( disk.getSize() <= 2 * 1024 * 1024 );
+        assertNull( disk.get( new TileCacheKey( level, 0, 0 ) ) );
+        assertNotNull( disk.get( new TileCacheKey( level, 49, 0 ) ) );
+        cache.close();
+    }
+
+    @Test
+    public void testDiskTierDirectoryIsLocked()
+                            throws IOException {
+        DiskTileCache disk = new DiskTileCache( dir, 4 * 1024 * 1024 );
+        try {
+            new DiskTileCache( dir, 4 * 1024 * 1024 );
+            fail( "Directory of an open disk tier must be locked." );
+        } catch ( IOException e ) {
+            // expected
+        }
+        disk.close();
+        new DiskTileCache( dir, 4 * 1024 * 1024 ).close();
+    }
+
+    @Test
+    public void testReloadMakesTilesOfOtherProcessVisible()
+                            throws IOException {
+        TileCache cache = new TileCache( new MemoryTileCache( 1024 * 1024 ), new DiskTileCache( dir, 4 * 1024 * 1024 ),
+                                         0, 0 );
+        TileCache.Level level = cache.getLevel( "set/0" );
+        CountingTile tile = new CountingTile( new byte[] { 1 }, null );
+        cache.getData( new TileCacheKey( level, 0, 0 ), tile );
+        cache.releasePersistentTier();
+
+        // e.g. the TileStoreSeeder tool truncates one tile and seeds another one
+        DiskTileCache other = new DiskTileCache( dir, 4 * 1024 * 1024 );
+        TileCache.Level otherLevel = new TileCache( null, other, 0, 0 ).getLevel( "set/0" );
+        assertTrue( other.remove( new TileCacheKey( otherLevel, 0, 0 ) ) );
+        other.put( new TileCacheKey( otherLevel, 0, 1 ), new TileCacheEntry( new byte[] { 2 }, 0 ) );
+        other.close();
+
+        cache.reloadPersistentTier();
+        assertArrayEquals( new byte[] { 2 }, cache.getData( new TileCacheKey( level, 0, 1 ), tile ) );
+        assertEquals( 1, tile.fetches.get() );
+        cache.getData( new TileCacheKey( level, 0, 0 ), tile );
+        assertEquals( 2, tile.fetches.get() );
+        cache.close();
+    }
+
+    @Test
+    public void testMemoryTierIsBounded() {
+        MemoryTileCache memory = new MemoryTileCache( 16 * 10 * 1024 );
+        TileCache cache = new TileCache( memory, null, 0, 0 );
+        TileCache.Level level = cache.getLevel( "set/0" );
+        for ( int i = 0; i < 1000; ++i ) {
+            memory.put( new TileCacheKey( level, i, 0 ), new TileCacheEntry( new byte[1024], 0 ) );
+        }
+        assertTrue( memory.getSize() <= memory.getMaxSize() );
+        assertTrue( memory.getEvictionCount() > 0 );
+    }
+
+    @Test
+    public void testStaleTileIsServedWhileRevalidating()
+                            throws InterruptedException {
+        MemoryTileCache memory = new MemoryTileCache( 1024 * 1024 );
+        TileCache cache = new TileCache( memory, null, 1000, 60000 );
+        TileCacheKey key = new TileCacheKey( cache.getLevel( "set/0" ), 0, 0 );
+        memory.put( key, new TileCacheEntry( new byte[] { 1 }, System.currentTimeMillis() - 5000 ) );
+        CountingTile tile = new CountingTile( new byte[] { 2 }, null );
+        assertArrayEquals( new byte[] { 1 }, cache.getData( key, tile ) );
+        assertEquals( 1, cache.getStaleHits() );
+        for ( int i = 0; i < 100 && memory.get( key ).getData()[0] != 2; ++i ) {
+            Thread.sleep( 10 );
+        }
+        assertArrayEquals( new byte[] { 2 }, cache.getData( key, tile ) );
+        assertEquals( 1, tile.fetches.get() );
+        cache.close();
+    }
+
+    @Test
+    public void testCloseReleasesRequestsWaitingForQueuedRefresh()
+                            throws InterruptedException {
+        MemoryTileCache memory = new MemoryTileCache( 1024 * 1024 );
+        final TileCache cache = new TileCache( memory, null, 1000, 60000 );
+        TileCache.Level level = cache.getLevel( "set/0" );
+        long stale = System.currentTimeMillis() - 5000;
+
+        // keep both refresh threads busy
+        CountingTile blocking = new CountingTile( new byte[] { 9 }, new CountDownLatch( 1 ) );
+        for ( int i = 0; i < 2; ++i ) {
+            TileCacheKey key = new TileCacheKey( level, i, 0 );
+            memory.put( key, new TileCacheEntry( new byte[] { 1 }, stale ) );
+            cache.getData( key, blocking );
+        }
+        for ( int i = 0; i < 100 && blocking.fetches.get() < 2; ++i ) {
+            Thread.sleep( 10 );
+        }
+
+        // this refresh is queued, the following miss waits for it
+        final TileCacheKey key = new TileCacheKey( level, 2, 0 );
+        final CountingTile tile = new CountingTile( new byte[] { 2 }, null );
+        memory.put( key, new TileCacheEntry( new byte[] { 1 }, stale ) );
+        cache.getData( key, tile );
+        memory.remove( key );
+        final AtomicReference<byte[]> result = new AtomicReference<byte[]>();
+        Thread waiting = new Thread() {
+            @Override
+            public void run() {
+                result.set( cache.getData( key, tile ) );
+            }
+        };
+        waiting.start();
+        Thread.sleep( 200 );
+        assertTrue( waiting.isAlive() );
+        assertEquals( 0, tile.fetches.get() );
+
+        cache.close();
+        waiting.join( 5000 );
+        assertFalse( waiting.isAlive() );
+        assertArrayEquals( new byte[] { 2 }, result.get() );
+        assertEquals( 1, tile.fetches.get() );
+    }
+
+    @Test
+    public void testPutDuringFetchIsNotOverwritten()
+                            throws InterruptedException {
+        MemoryTileCache memory = new MemoryTileCache( 1024 * 1024 );
+        TileCache cache = new TileCache( memory, null, 0, 0 );
+        TileCacheKey key = new TileCacheKey( cache.getLevel( "set/0" ), 0, 0 );
+        CountingTile tile = new CountingTile( new byte[] { 1 }, new CountDownLatch( 1 ) );
+        Thread fetching = startFetch( cache, key, tile );
+
+        cache.put( key, new byte[] { 2 } );
+        tile.release.countDown();
+        fetching.join( 5000 );
+        assertFalse( fetching.isAlive() );
+        assertArrayEquals( new byte[] { 2 }, memory.get( key ).getData() );
+        assertArrayEquals( new byte[] { 2 }, cache.getData( key, tile ) );
+        assertEquals( 1, tile.fetches.get() );
+        cache.close();
+    }
+
+    @Test
+    public void testRemoveDuringFetchIsNotOverwritten()
+                            throws InterruptedException {
+        MemoryTileCache memory = new MemoryTileCache( 1024 * 1024 );
+        TileCache cache = new TileCache( memory, null, 0, 0 );
+        TileCacheKey key = new TileCacheKey( cache.getLevel( "set/0" ), 0, 0 );
+        CountingTile tile = new CountingTile( new byte[] { 1 }, new CountDownLatch( 1 ) );
+        Thread fetching = startFetch( cache, key, tile );
+
+        cache.remove( key );
+        tile.release.countDown();
+        fetching.join( 5000 );
+        assertFalse( fetching.isAlive() );
+        assertNull( memory.get( key ) );
+        cache.close();
+    }
+
+    private Thread startFetch( final TileCache cache, final TileCacheKey key, final CountingTile tile )
+                            throws InterruptedException {
+        Thread fetching = new Thread() {
+            @Override
+            public void run() {
+                cache.getData( key, tile );
+            }
+        };
+        fetching.start();
+        for ( int i = 0; i < 100 && tile.fetches.get() == 0; ++i ) {
+            Thread.sleep( 10 );
+        }
+        assertEquals( 1, tile.fetches.get() );
+        return fetching;
+    }
+
+    private static class CountingTile implements Tile {
+
+        private final byte[] data;
+
+        private final CountDownLatch release;
+
+        private final AtomicInteger fetches = new AtomicInteger();
+
+        CountingTile( byte[] data, CountDownLatch release ) {
+            this.data = data;
+            this.release = release;
+        }
+
+        @Override
+        public BufferedImage getAsImage() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public InputStream getAsStream() {
+            fetches.incrementAndGet();
+            if ( release != null ) {
+                try {
+                    release.await();
+                } catch ( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new ByteArrayInputStream( data );
+        }
+
+        @Override
+        public Envelope getEnvelope() {
+            return null;
+        }
+
+        @Override
+        public FeatureCollection getFeatures( int i, int j, int limit ) {
+            return null;
+        }
+    }
+
+}
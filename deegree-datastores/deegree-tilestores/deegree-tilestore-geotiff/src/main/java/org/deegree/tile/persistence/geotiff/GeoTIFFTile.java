@@ -40,6 +40,8 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.tile.persistence.geotiff;
 
+import static org.slf4j.LoggerFactory.getLogger;
+
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
@@ -52,14 +54,21 @@ import javax.imageio.ImageIO;
 import javax.imageio.ImageReader;
 
 import org.apache.commons.pool.impl.GenericObjectPool;
+import org.deegree.commons.utils.image.ImageEncoders;
 import org.deegree.feature.FeatureCollection;
 import org.deegree.geometry.Envelope;
 import org.deegree.tile.Tile;
 import org.deegree.tile.TileIOException;
+import org.slf4j.Logger;
 
 /**
  * A {@link Tile} that is read from a GeoTIFF/BigTIFF file, through ImageIO/imageio-ext. Uses an object pool to cache
  * readers (they take a long time to startup). </p>
+ * <p>
+ * If the stored tiles are already encoded in the requested image format (see
+ * {@link GeoTiffTileIndex.Image#canPassThrough(String, int, int)}), {@link #getAsStream()} streams the stored bytes
+ * without decoding them.
+ * </p>
  * 
  * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
  * @author last edited by: $Author: mschneider $
@@ -68,7 +77,7 @@ import org.deegree.tile.TileIOException;
  */
 public class GeoTIFFTile implements Tile {
 
-    // private static final Logger LOG = getLogger( GeoTIFFTile.class );
+    private static final Logger LOG = getLogger( GeoTIFFTile.class );
 
     private final int imageIndex, x, y;
 
@@ -78,9 +87,38 @@ public class GeoTIFFTile implements Tile {
 
     private final GenericObjectPool readerPool;
 
+    private final String format;
+
+    private final GeoTiffTileIndex tileIndex;
+
+    private final GeoTiffTileIndex.Image rawImage;
+
     public GeoTIFFTile( GenericObjectPool readerPool, int imageIndex, int x, int y, Envelope envelope, int sizeX,
                         int sizeY ) {
+        this( readerPool, imageIndex, x, y, envelope, sizeX, sizeY, null, null, null );
+    }
+
+    /**
+     * @param readerPool
+     * @param imageIndex
+     * @param x
+     * @param y
+     * @param envelope
+     * @param sizeX
+     * @param sizeY
+     * @param format
+     *            image format (mime type) of the encoded tile, if <code>null</code>, PNG is used
+     * @param tileIndex
+     *            tile tables of the file, may be <code>null</code> (always decode)
+     * @param rawImage
+     *            tile tables of the image, if not <code>null</code>, the stored tiles are passed through
+     */
+    GeoTIFFTile( GenericObjectPool readerPool, int imageIndex, int x, int y, Envelope envelope, int sizeX, int sizeY,
+                 String format, GeoTiffTileIndex tileIndex, GeoTiffTileIndex.Image rawImage ) {
         this.readerPool = readerPool;
+        this.format = format;
+        this.tileIndex = tileIndex;
+        this.rawImage = rawImage;
         this.imageIndex = imageIndex;
         this.x = x;
         this.y = y;
@@ -127,15 +165,47 @@ public class GeoTIFFTile implements Tile {
     @Override
     public InputStream getAsStream()
                             throws TileIOException {
+        if ( rawImage != null ) {
+            try {
+                InputStream in = tileIndex.openTile( rawImage, x, y );
+                if ( in != null ) {
+                    return in;
+                }
+            } catch ( IOException e ) {
+                LOG.debug( "Could not read raw tile data, decoding tile instead: {}", e.getLocalizedMessage() );
+                LOG.trace( "Stack trace:", e );
+            }
+        }
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         try {
-            ImageIO.write( getAsImage(), "png", bos );
+            BufferedImage img = getAsImage();
+            String formatName = getFormatName( format );
+            if ( formatName == null || !ImageEncoders.write( img, formatName, bos ) ) {
+                bos.reset();
+                ImageEncoders.write( img, "png", bos );
+            }
         } catch ( IOException e ) {
             throw new TileIOException( "Error retrieving image: " + e.getMessage(), e );
         }
         return new ByteArrayInputStream( bos.toByteArray() );
     }
 
+    private static String getFormatName( String format ) {
+        if ( format == null ) {
+            return null;
+        }
+        String name = format;
+        int idx = name.indexOf( ';' );
+        if ( idx != -1 ) {
+            name = name.substring( 0, idx );
+        }
+        idx = name.indexOf( '/' );
+        if ( idx != -1 ) {
+            name = name.substring( idx + 1 );
+        }
+        return name.trim();
+    }
+
     @Override
     public Envelope getEnvelope() {
         return envelope;
@@ -70,8 +70,43 @@ public class GeoTIFFTileDataLevel implements TileDataLevel {
 
     private final int xoff, yoff, numx, numy;
 
+    private final String format;
+
+    private final GeoTiffTileIndex tileIndex;
+
+    private final GeoTiffTileIndex.Image rawImage;
+
     public GeoTIFFTileDataLevel( TileMatrix metadata, File file, int imageIndex, int xoff, int yoff, int numx, int numy ) {
+        this( metadata, file, imageIndex, xoff, yoff, numx, numy, null, null );
+    }
+
+    /**
+     * @param metadata
+     * @param file
+     * @param imageIndex
+     * @param xoff
+     * @param yoff
+     * @param numx
+     * @param numy
+     * @param format
+     *            image format (mime type) the tiles are encoded in, if <code>null</code>, PNG is used
+     * @param tileIndex
+     *            tile tables of the file, if not <code>null</code>, stored tiles are served without decoding if they
+     *            already match the format
+     */
+    GeoTIFFTileDataLevel( TileMatrix metadata, File file, int imageIndex, int xoff, int yoff, int numx, int numy,
+                          String format, GeoTiffTileIndex tileIndex ) {
         this.metadata = metadata;
+        this.format = format;
+        GeoTiffTileIndex.Image image = tileIndex == null ? null : tileIndex.getImage( imageIndex );
+        if ( image != null
+             && image.canPassThrough( format, (int) metadata.getTilePixelsX(), (int) metadata.getTilePixelsY() ) ) {
+            this.tileIndex = tileIndex;
+            this.rawImage = image;
+        } else {
+            this.tileIndex = null;
+            this.rawImage = null;
+        }
         this.imageIndex = imageIndex;
         ImageReaderFactory fac = new ImageReaderFactory( file );
         this.readerPool = new GenericObjectPool( fac );
@@ -108,6 +143,6 @@ public class GeoTIFFTileDataLevel implements TileDataLevel {
         double miny = env.getMax().get1() - height * y;
         Envelope envelope = fac.createEnvelope( minx, miny, minx + width, miny - height, env.getCoordinateSystem() );
         return new GeoTIFFTile( readerPool, imageIndex, (int) x, (int) y, envelope, (int) metadata.getTilePixelsX(),
-                                (int) metadata.getTilePixelsY() );
+                                (int) metadata.getTilePixelsY(), format, tileIndex, rawImage );
     }
 }
@@ -41,7 +41,10 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.tile.persistence.geotiff;
 
+import static org.slf4j.LoggerFactory.getLogger;
+
 import java.io.File;
+import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -57,6 +60,7 @@ import org.deegree.tile.TileMatrix;
 import org.deegree.tile.TileMatrixSet;
 import org.deegree.tile.persistence.geotiff.jaxb.GeoTIFFTileStoreJAXB;
 import org.deegree.tile.tilematrixset.TileMatrixSetManager;
+import org.slf4j.Logger;
 
 /**
  * Builds tile data sets from jaxb config beans.
@@ -68,6 +72,8 @@ import org.deegree.tile.tilematrixset.TileMatrixSetManager;
  */
 class GeoTiffTileDataSetBuilder {
 
+    private static final Logger LOG = getLogger( GeoTiffTileDataSetBuilder.class );
+
     private DeegreeWorkspace workspace;
 
     GeoTiffTileDataSetBuilder( DeegreeWorkspace workspace ) {
@@ -79,6 +85,9 @@ class GeoTiffTileDataSetBuilder {
         TileMatrixSetManager mgr = workspace.getSubsystemManager( TileMatrixSetManager.class );
         String filename = cfg.getFile();
         String format = cfg.getImageFormat();
+        if ( format == null ) {
+            format = "image/png";
+        }
         String tmsId = cfg.getTileMatrixSetId();
 
         File file = new File( configUrl.toURI().resolve( filename ) );
@@ -92,13 +101,22 @@ class GeoTiffTileDataSetBuilder {
         double x = envelope.getMin().get0() - tms.getSpatialMetadata().getEnvelope().getMin().get0();
         double y = envelope.getMax().get1() - tms.getSpatialMetadata().getEnvelope().getMax().get1();
 
+        GeoTiffTileIndex tileIndex = null;
+        try {
+            tileIndex = GeoTiffTileIndex.read( file );
+        } catch ( IOException e ) {
+            LOG.warn( "Could not read tile tables of {}, tiles will always be decoded: {}", file,
+                      e.getLocalizedMessage() );
+            LOG.trace( "Stack trace:", e );
+        }
+
         int idx = 0;
         for ( TileMatrix tm : tms.getTileMatrices() ) {
             int xoff = (int) Math.round( x / tm.getTileWidth() );
             int yoff = (int) Math.round( y / tm.getTileHeight() );
             int numx = (int) Math.round( envelope.getSpan0() / tm.getTileWidth() );
             int numy = (int) Math.round( envelope.getSpan1() / tm.getTileHeight() );
-            levels.add( new GeoTIFFTileDataLevel( tm, file, idx++, xoff, yoff, numx, numy ) );
+            levels.add( new GeoTIFFTileDataLevel( tm, file, idx++, xoff, yoff, numx, numy, format, tileIndex ) );
         }
 
         return new DefaultTileDataSet( levels, tms, format );
@@ -0,0 +1,548 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.geotiff;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tile offset/byte count tables of a (tiled) TIFF/BigTIFF file, used to serve the stored, still compressed tile data
+ * without decoding it.
+ * <p>
+ * The images are numbered like the image indexes of the TIFF image reader (in the order of the main IFD chain). Tile
+ * data is accessed through read-only memory mappings of the file, which are created lazily in segments of at most
+ * {@value #SEGMENT_SIZE} bytes (plus the size of the largest tile, so every tile is contained in a single mapping).
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+class GeoTiffTileIndex {
+
+    private static final int COMPRESSION_JPEG = 7;
+
+    private static final int SEGMENT_SIZE = 1 << 30;
+
+    // more IFDs than this indicates a broken (cyclic) chain
+    private static final int MAX_IMAGES = 4096;
+
+    private static final int TAG_IMAGE_WIDTH = 256;
+
+    private static final int TAG_IMAGE_LENGTH = 257;
+
+    private static final int TAG_COMPRESSION = 259;
+
+    private static final int TAG_PHOTOMETRIC = 262;
+
+    private static final int TAG_SAMPLES_PER_PIXEL = 277;
+
+    private static final int TAG_PLANAR_CONFIGURATION = 284;
+
+    private static final int TAG_TILE_WIDTH = 322;
+
+    private static final int TAG_TILE_LENGTH = 323;
+
+    private static final int TAG_TILE_OFFSETS = 324;
+
+    private static final int TAG_TILE_BYTE_COUNTS = 325;
+
+    private static final int TAG_JPEG_TABLES = 347;
+
+    private static final int PHOTOMETRIC_BLACK_IS_ZERO = 1;
+
+    private static final int PHOTOMETRIC_YCBCR = 6;
+
+    private final File file;
+
+    private final long fileSize;
+
+    private final List<Image> images;
+
+    private final MappedByteBuffer[] segments;
+
+    private final long maxTileSize;
+
+    private GeoTiffTileIndex( File file, long fileSize, List<Image> images, long maxTileSize ) {
+        this.file = file;
+        this.fileSize = fileSize;
+        this.images = images;
+        this.maxTileSize = maxTileSize;
+        this.segments = new MappedByteBuffer[(int) ( ( fileSize + SEGMENT_SIZE - 1 ) / SEGMENT_SIZE )];
+    }
+
+    /**
+     * Reads the tile tables of all images of the given file.
+     * 
+     * @param file
+     *            TIFF or BigTIFF file, must not be <code>null</code>
+     * @return the tile index, never <code>null</code>
+     * @throws IOException
+     *             if the file could not be read or is not a valid TIFF/BigTIFF file
+     */
+    static GeoTiffTileIndex read( File file )
+                            throws IOException {
+        RandomAccessFile raf = new RandomAccessFile( file, "r" );
+        try {
+            FileChannel channel = raf.getChannel();
+            long fileSize = channel.size();
+            ByteBuffer header = readFully( channel, 0, 16, ByteOrder.BIG_ENDIAN );
+            ByteOrder order;
+            if ( header.get( 0 ) == 'I' && header.get( 1 ) == 'I' ) {
+                order = ByteOrder.LITTLE_ENDIAN;
+            } else if ( header.get( 0 ) == 'M' && header.get( 1 ) == 'M' ) {
+                order = ByteOrder.BIG_ENDIAN;
+            } else {
+                throw new IOException( "Not a TIFF file: " + file );
+            }
+            header.order( order );
+            boolean bigTiff;
+            long ifdOffset;
+            switch ( header.getShort( 2 ) ) {
+            case 42:
+                bigTiff = false;
+                ifdOffset = header.getInt( 4 ) & 0xFFFFFFFFL;
+                break;
+            case 43:
+                bigTiff = true;
+                ifdOffset = header.getLong( 8 );
+                break;
+            default:
+                throw new IOException( "Not a TIFF file: " + file );
+            }
+
+            List<Image> images = new ArrayList<Image>();
+            long maxTileSize = 0;
+            while ( ifdOffset != 0 ) {
+                if ( images.size() == MAX_IMAGES || ifdOffset < 0 || ifdOffset >= fileSize ) {
+                    throw new IOException( "Invalid IFD chain in " + file );
+                }
+                IfdReader ifd = new IfdReader( channel, order, bigTiff, ifdOffset );
+                Image image = ifd.readImage();
+                images.add( image );
+                if ( image != null ) {
+                    maxTileSize = Math.max( maxTileSize, image.maxTileSize );
+                }
+                ifdOffset = ifd.nextIfdOffset;
+            }
+            return new GeoTiffTileIndex( file, fileSize, Collections.unmodifiableList( images ), maxTileSize );
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * @param imageIndex
+     *            index of the image
+     * @return the tile tables of the image, or <code>null</code>, if the image does not exist or is not tiled
+     */
+    Image getImage( int imageIndex ) {
+        if ( imageIndex < 0 || imageIndex >= images.size() ) {
+            return null;
+        }
+        return images.get( imageIndex );
+    }
+
+    /**
+     * Opens a stream on the stored data of a tile. For JPEG compressed tiles with shared tables, the tables are
+     * prepended, so the stream is a complete JPEG image. The tile data itself is not copied.
+     * 
+     * @param image
+     *            image of the tile, must not be <code>null</code>
+     * @param x
+     *            column of the tile
+     * @param y
+     *            row of the tile
+     * @return stream on the stored tile data, or <code>null</code>, if the tile is not present in the file
+     * @throws IOException
+     *             if the tile data could not be accessed
+     */
+    InputStream openTile( Image image, int x, int y )
+                            throws IOException {
+        if ( x < 0 || y < 0 || x >= image.tilesAcross || y >= image.tilesDown ) {
+            return null;
+        }
+        int index = y * image.tilesAcross + x;
+        if ( index >= image.offsets.length || index >= image.byteCounts.length || image.byteCounts[index] == 0 ) {
+            // sparse file
+            return null;
+        }
+        ByteBuffer data = getTileData( image.offsets[index], image.byteCounts[index] );
+        byte[] tables = image.jpegTables;
+        if ( image.compression != COMPRESSION_JPEG || tables == null || tables.length < 4 ) {
+            return new ByteBufferInputStream( data );
+        }
+        // abbreviated stream: tables without EOI, followed by the tile without SOI
+        if ( data.remaining() < 2 || ( data.get( 0 ) & 0xFF ) != 0xFF || ( data.get( 1 ) & 0xFF ) != 0xD8 ) {
+            throw new IOException( "Tile " + x + "/" + y + " in " + file + " is not a JPEG stream." );
+        }
+        data.position( 2 );
+        return new SequenceInputStream( new ByteArrayInputStream( tables, 0, tables.length - 2 ),
+                                        new ByteBufferInputStream( data.slice() ) );
+    }
+
+    private ByteBuffer getTileData( long offset, long length )
+                            throws IOException {
+        if ( offset < 0 || length <= 0 || length > maxTileSize || offset + length > fileSize ) {
+            throw new IOException( "Invalid tile location in " + file + ": offset " + offset + ", length " + length );
+        }
+        int segmentIndex = (int) ( offset / SEGMENT_SIZE );
+        MappedByteBuffer segment = getSegment( segmentIndex );
+        ByteBuffer data = segment.duplicate();
+        int pos = (int) ( offset - (long) segmentIndex * SEGMENT_SIZE );
+        data.limit( pos + (int) length );
+        data.position( pos );
+        return data.slice();
+    }
+
+    private synchronized MappedByteBuffer getSegment( int index )
+                            throws IOException {
+        MappedByteBuffer segment = segments[index];
+        if ( segment == null ) {
+            long start = (long) index * SEGMENT_SIZE;
+            long length = Math.min( fileSize - start, SEGMENT_SIZE + maxTileSize );
+            RandomAccessFile raf = new RandomAccessFile( file, "r" );
+            try {
+                // the mapping stays valid after closing the channel
+                segment = raf.getChannel().map( READ_ONLY, start, length );
+            } finally {
+                raf.close();
+            }
+            segments[index] = segment;
+        }
+        return segment;
+    }
+
+    private static ByteBuffer readFully( FileChannel channel, long position, int length, ByteOrder order )
+                            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate( length ).order( order );
+        while ( buffer.hasRemaining() ) {
+            if ( channel.read( buffer, position + buffer.position() ) < 0 ) {
+                throw new IOException( "Unexpected end of TIFF file." );
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Tile tables of a single (tiled) image.
+     */
+    static class Image {
+
+        private final int tileWidth, tileLength, tilesAcross, tilesDown;
+
+        private final int compression, photometric, samplesPerPixel, planarConfiguration;
+
+        private final long[] offsets, byteCounts;
+
+        private final byte[] jpegTables;
+
+        private final long maxTileSize;
+
+        private Image( int imageWidth, int imageLength, int tileWidth, int tileLength, int compression,
+                       int photometric, int samplesPerPixel, int planarConfiguration, long[] offsets,
+                       long[] byteCounts, byte[] jpegTables ) {
+            this.tileWidth = tileWidth;
+            this.tileLength = tileLength;
+            this.tilesAcross = ( imageWidth + tileWidth - 1 ) / tileWidth;
+            this.tilesDown = ( imageLength + tileLength - 1 ) / tileLength;
+            this.compression = compression;
+            this.photometric = photometric;
+            this.samplesPerPixel = samplesPerPixel;
+            this.planarConfiguration = planarConfiguration;
+            this.offsets = offsets;
+            this.byteCounts = byteCounts;
+            this.jpegTables = jpegTables;
+            long max = 0;
+            for ( long count : byteCounts ) {
+                max = Math.max( max, count );
+            }
+            this.maxTileSize = max;
+        }
+
+        /**
+         * Determines whether the stored tiles can be served as is in the given format.
+         * <p>
+         * This is the case for JPEG compressed tiles (grayscale or YCbCr, as other photometric interpretations can not
+         * be expressed in a plain JPEG stream) if the image format is <code>image/jpeg</code>. Deflate compressed
+         * tiles contain unfiltered pixel rows, which are not a valid PNG stream, so they are never passed through.
+         * </p>
+         * 
+         * @param format
+         *            requested image format (mime type), may be <code>null</code>
+         * @param width
+         *            requested tile width in pixels
+         * @param height
+         *            requested tile height in pixels
+         * @return <code>true</code>, if {@link GeoTiffTileIndex#openTile(Image, int, int)} yields tiles in the given format and size
+         */
+        boolean canPassThrough( String format, int width, int height ) {
+            if ( format == null || tileWidth != width || tileLength != height ) {
+                return false;
+            }
+            if ( samplesPerPixel > 1 && planarConfiguration != 1 ) {
+                return false;
+            }
+            if ( compression != COMPRESSION_JPEG || !isJpegFormat( format ) ) {
+                return false;
+            }
+            if ( photometric == PHOTOMETRIC_YCBCR ) {
+                return samplesPerPixel == 3;
+            }
+            return samplesPerPixel == 1 && photometric == PHOTOMETRIC_BLACK_IS_ZERO;
+        }
+
+    }
+
+    /**
+     * Reads the entries of a single IFD that are needed for the tile tables.
+     */
+    private static class IfdReader {
+
+        private final FileChannel channel;
+
+        private final ByteOrder order;
+
+        private final boolean bigTiff;
+
+        private final Map<Integer, long[]> values = new HashMap<Integer, long[]>();
+
+        private byte[] jpegTables;
+
+        private long nextIfdOffset;
+
+        IfdReader( FileChannel channel, ByteOrder order, boolean bigTiff, long offset ) throws IOException {
+            this.channel = channel;
+            this.order = order;
+            this.bigTiff = bigTiff;
+            int countSize = bigTiff ? 8 : 2;
+            int entrySize = bigTiff ? 20 : 12;
+            ByteBuffer buf = readFully( channel, offset, countSize, order );
+            long numEntries = bigTiff ? buf.getLong( 0 ) : buf.getShort( 0 ) & 0xFFFF;
+            if ( numEntries < 0 || numEntries > 65535 ) {
+                throw new IOException( "Invalid number of IFD entries: " + numEntries );
+            }
+            int length = (int) numEntries * entrySize + ( bigTiff ? 8 : 4 );
+            buf = readFully( channel, offset + countSize, length, order );
+            for ( int i = 0; i < numEntries; ++i ) {
+                readEntry( buf, i * entrySize );
+            }
+            int next = (int) numEntries * entrySize;
+            nextIfdOffset = bigTiff ? buf.getLong( next ) : buf.getInt( next ) & 0xFFFFFFFFL;
+        }
+
+        private void readEntry( ByteBuffer buf, int pos )
+                                throws IOException {
+            int tag = buf.getShort( pos ) & 0xFFFF;
+            switch ( tag ) {
+            case TAG_IMAGE_WIDTH:
+            case TAG_IMAGE_LENGTH:
+            case TAG_COMPRESSION:
+            case TAG_PHOTOMETRIC:
+            case TAG_SAMPLES_PER_PIXEL:
+            case TAG_PLANAR_CONFIGURATION:
+            case TAG_TILE_WIDTH:
+            case TAG_TILE_LENGTH:
+            case TAG_TILE_OFFSETS:
+            case TAG_TILE_BYTE_COUNTS:
+            case TAG_JPEG_TABLES:
+                break;
+            default:
+                return;
+            }
+            int type = buf.getShort( pos + 2 ) & 0xFFFF;
+            long count = bigTiff ? buf.getLong( pos + 4 ) : buf.getInt( pos + 4 ) & 0xFFFFFFFFL;
+            int valuePos = pos + ( bigTiff ? 12 : 8 );
+            int inlineSize = bigTiff ? 8 : 4;
+            int typeSize = getTypeSize( type );
+            if ( typeSize == 0 || count < 0 || count > Integer.MAX_VALUE / 8 ) {
+                throw new IOException( "Unsupported type " + type + " or count " + count + " of TIFF tag " + tag );
+            }
+            long size = count * typeSize;
+            ByteBuffer data;
+            int dataPos;
+            if ( size <= inlineSize ) {
+                data = buf;
+                dataPos = valuePos;
+            } else {
+                long offset = bigTiff ? buf.getLong( valuePos ) : buf.getInt( valuePos ) & 0xFFFFFFFFL;
+                data = readFully( channel, offset, (int) size, order );
+                dataPos = 0;
+            }
+            if ( tag == TAG_JPEG_TABLES ) {
+                jpegTables = new byte[(int) size];
+                for ( int i = 0; i < jpegTables.length; ++i ) {
+                    jpegTables[i] = data.get( dataPos + i );
+                }
+                return;
+            }
+            long[] vals = new long[(int) count];
+            for ( int i = 0; i < vals.length; ++i ) {
+                int p = dataPos + i * typeSize;
+                switch ( type ) {
+                case 1:
+                    vals[i] = data.get( p ) & 0xFF;
+                    break;
+                case 3:
+                    vals[i] = data.getShort( p ) & 0xFFFF;
+                    break;
+                case 4:
+                case 13:
+                    vals[i] = data.getInt( p ) & 0xFFFFFFFFL;
+                    break;
+                default:
+                    vals[i] = data.getLong( p );
+                }
+            }
+            values.put( tag, vals );
+        }
+
+        private static int getTypeSize( int type ) {
+            switch ( type ) {
+            case 1: // BYTE
+            case 7: // UNDEFINED
+                return 1;
+            case 3: // SHORT
+                return 2;
+            case 4: // LONG
+            case 13: // IFD
+                return 4;
+            case 16: // LONG8
+            case 18: // IFD8
+                return 8;
+            default:
+                return 0;
+            }
+        }
+
+        private int getValue( int tag, int defaultValue ) {
+            long[] vals = values.get( tag );
+            return vals == null || vals.length == 0 ? defaultValue : (int) vals[0];
+        }
+
+        /**
+         * @return the tile tables, or <code>null</code>, if the image is not tiled
+         */
+        Image readImage() {
+            long[] offsets = values.get( TAG_TILE_OFFSETS );
+            long[] byteCounts = values.get( TAG_TILE_BYTE_COUNTS );
+            int tileWidth = getValue( TAG_TILE_WIDTH, 0 );
+            int tileLength = getValue( TAG_TILE_LENGTH, 0 );
+            if ( offsets == null || byteCounts == null || tileWidth <= 0 || tileLength <= 0 ) {
+                return null;
+            }
+            return new Image( getValue( TAG_IMAGE_WIDTH, 0 ), getValue( TAG_IMAGE_LENGTH, 0 ), tileWidth, tileLength,
+                              getValue( TAG_COMPRESSION, 1 ), getValue( TAG_PHOTOMETRIC, -1 ),
+                              getValue( TAG_SAMPLES_PER_PIXEL, 1 ), getValue( TAG_PLANAR_CONFIGURATION, 1 ), offsets,
+                              byteCounts, jpegTables );
+        }
+    }
+
+    /**
+     * Reads the remaining bytes of a buffer.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream( ByteBuffer buffer ) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read( byte[] b, int off, int len ) {
+            if ( len == 0 ) {
+                return 0;
+            }
+            if ( !buffer.hasRemaining() ) {
+                return -1;
+            }
+            int n = Math.min( len, buffer.remaining() );
+            buffer.get( b, off, n );
+            return n;
+        }
+
+        @Override
+        public long skip( long n ) {
+            int skipped = (int) Math.max( 0, Math.min( n, buffer.remaining() ) );
+            buffer.position( buffer.position() + skipped );
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    private static boolean isJpegFormat( String format ) {
+        String mime = format.toLowerCase();
+        int idx = mime.indexOf( ';' );
+        if ( idx != -1 ) {
+            mime = mime.substring( 0, idx );
+        }
+        mime = mime.trim();
+        return mime.equals( "image/jpeg" ) || mime.equals( "image/jpg" );
+    }
+
+}
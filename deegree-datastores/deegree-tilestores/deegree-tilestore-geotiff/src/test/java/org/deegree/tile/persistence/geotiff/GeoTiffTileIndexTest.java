@@ -0,0 +1,146 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.geotiff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.junit.Test;
+
+/**
+ * <code>GeoTiffTileIndexTest</code>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class GeoTiffTileIndexTest {
+
+    @Test
+    public void testJpegTilesArePassedThrough()
+                            throws IOException {
+        File file = writeTiledTiff( "JPEG" );
+        try {
+            GeoTiffTileIndex index = GeoTiffTileIndex.read( file );
+            GeoTiffTileIndex.Image image = index.getImage( 0 );
+            assertNotNull( image );
+            assertTrue( image.canPassThrough( "image/jpeg", 256, 256 ) );
+            assertFalse( image.canPassThrough( "image/png", 256, 256 ) );
+            assertFalse( image.canPassThrough( "image/jpeg", 512, 512 ) );
+            for ( int y = 0; y < 2; ++y ) {
+                for ( int x = 0; x < 3; ++x ) {
+                    InputStream in = index.openTile( image, x, y );
+                    BufferedImage tile = ImageIO.read( in );
+                    in.close();
+                    assertEquals( 256, tile.getWidth() );
+                    assertEquals( 256, tile.getHeight() );
+                }
+            }
+            assertNull( index.openTile( image, 3, 0 ) );
+            assertNull( index.getImage( 1 ) );
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testDeflateTilesAreNotPassedThrough()
+                            throws IOException {
+        File file = writeTiledTiff( "Deflate" );
+        try {
+            GeoTiffTileIndex.Image image = GeoTiffTileIndex.read( file ).getImage( 0 );
+            assertNotNull( image );
+            assertFalse( image.canPassThrough( "image/png", 256, 256 ) );
+            assertFalse( image.canPassThrough( "image/jpeg", 256, 256 ) );
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static File writeTiledTiff( String compression )
+                            throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName( "tiff" );
+        assumeTrue( writers.hasNext() );
+        ImageWriter writer = writers.next();
+        BufferedImage img = new BufferedImage( 600, 500, BufferedImage.TYPE_3BYTE_BGR );
+        Graphics2D g = img.createGraphics();
+        g.setColor( Color.RED );
+        g.fillRect( 0, 0, 300, 500 );
+        g.dispose();
+
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setTilingMode( ImageWriteParam.MODE_EXPLICIT );
+        param.setTiling( 256, 256, 0, 0 );
+        param.setCompressionMode( ImageWriteParam.MODE_EXPLICIT );
+        param.setCompressionType( compression );
+
+        File file = File.createTempFile( "tiles", ".tif" );
+        ImageOutputStream out = ImageIO.createImageOutputStream( file );
+        try {
+            writer.setOutput( out );
+            writer.write( null, new IIOImage( img, null, null ), param );
+        } finally {
+            out.close();
+            writer.dispose();
+        }
+        return file;
+    }
+
+}
@@ -148,7 +148,7 @@ public class FeatureLayer extends AbstractLayer {
         Integer maxFeats = query.getRenderingOptions().getMaxFeatures( getMetadata().getName() );
         final int maxFeatures = maxFeats == null ? -1 : maxFeats;
 
-        return new FeatureLayerData( queries, featureStore, maxFeatures, style, ftName );
+        return new FeatureLayerData( queries, featureStore, maxFeatures, style, ftName, getMetadata().getName() );
     }
 
     @Override
@@ -185,7 +185,8 @@ public class FeatureLayer extends AbstractLayer {
 
         LOG.debug( "Finished querying the feature store(s)." );
 
-        return new FeatureLayerData( queries, featureStore, query.getFeatureCount(), style, featureType );
+        return new FeatureLayerData( queries, featureStore, query.getFeatureCount(), style, featureType,
+                                     getMetadata().getName() );
     }
 
 }
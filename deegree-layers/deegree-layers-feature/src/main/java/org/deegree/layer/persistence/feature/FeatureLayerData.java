@@ -41,9 +41,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.xml.namespace.QName;
 
+import org.deegree.commons.metrics.Metrics;
+import org.deegree.commons.metrics.OperationMetrics;
 import org.deegree.feature.Feature;
 import org.deegree.feature.FeatureCollection;
 import org.deegree.feature.GenericFeatureCollection;
@@ -51,6 +54,7 @@ import org.deegree.feature.persistence.FeatureStore;
 import org.deegree.feature.persistence.query.Query;
 import org.deegree.feature.stream.FeatureInputStream;
 import org.deegree.feature.stream.ThreadedFeatureInputStream;
+import org.deegree.feature.stream.TimedFeatureInputStream;
 import org.deegree.feature.types.AppSchemas;
 import org.deegree.feature.xpath.TypedObjectNodeXPathEvaluator;
 import org.deegree.filter.FilterEvaluationException;
@@ -81,8 +85,12 @@ public class FeatureLayerData implements LayerData {
 
     private final FeatureStore featureStore;
 
-    public FeatureLayerData( List<Query> queries, FeatureStore featureStore, int maxFeatures, Style style, QName ftName ) {
+    private final String layerName;
+
+    public FeatureLayerData( List<Query> queries, FeatureStore featureStore, int maxFeatures, Style style,
+                             QName ftName, String layerName ) {
         this.queries = queries;
+        this.layerName = layerName;
         this.featureStore = featureStore;
         this.maxFeatures = maxFeatures;
         this.style = style;
@@ -96,14 +104,23 @@ public class FeatureLayerData implements LayerData {
 
     @Override
     public void render( RenderContext context ) throws InterruptedException {
+        OperationMetrics metrics = Metrics.layer( layerName );
+        long start = metrics.start();
+        // features are fetched while iterating, by the producer thread of the threaded stream
+        AtomicLong dataAccess = new AtomicLong();
+        boolean failed = true;
         FeatureInputStream features = null;
         try {
-            // TODO Should this always be done on this level? What about min and maxFill values?
+            // TODO Should this always be done on this level?
+            long queryStart = System.nanoTime();
             features = featureStore.query( queries.toArray( new Query[queries.size()] ) );
-            features = new ThreadedFeatureInputStream( features, 100, 20 );
+            dataAccess.addAndGet( System.nanoTime() - queryStart );
+            features = new TimedFeatureInputStream( features, dataAccess );
+            features = new ThreadedFeatureInputStream( features, maxFeatures );
 
             FeatureStreamRenderer renderer = new FeatureStreamRenderer( context, maxFeatures, evaluator );
             renderer.renderFeatureStream( features, style );
+            failed = false;
         } catch ( InterruptedException e ) {
             throw e;
         } catch ( FilterEvaluationException e ) {
@@ -116,6 +133,8 @@ public class FeatureLayerData implements LayerData {
             if ( features != null ) {
                 features.close();
             }
+            Metrics.addDataAccessTime( dataAccess.get() );
+            metrics.finish( start, dataAccess.get(), 0, failed );
         }
     }
 
@@ -138,7 +157,10 @@ public class FeatureLayerData implements LayerData {
     public FeatureCollection info() {
         FeatureCollection col = null;
         try {
-            col = clearDuplicates( featureStore.query( queries.toArray( new Query[queries.size()] ) ) );
+            long queryStart = System.nanoTime();
+            FeatureInputStream features = featureStore.query( queries.toArray( new Query[queries.size()] ) );
+            Metrics.addDataAccessTime( System.nanoTime() - queryStart );
+            col = clearDuplicates( new TimedFeatureInputStream( features, Metrics.getRequestDataAccess() ) );
         } catch ( Throwable e ) {
             LOG.warn( "Data could not be fetched from the feature store. The error was '{}'.", e.getLocalizedMessage() );
             LOG.trace( "Stack trace:", e );
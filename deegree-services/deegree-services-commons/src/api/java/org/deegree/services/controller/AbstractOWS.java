@@ -131,6 +131,8 @@ public abstract class AbstractOWS implements OWS {
 
     protected ImplementationMetadata<?> serviceInfo;
 
+    private String metricsName;
+
     protected AbstractOWS( URL configURL, ImplementationMetadata<?> serviceInfo ) {
         this.configURL = configURL;
         this.serviceInfo = serviceInfo;
@@ -192,6 +194,30 @@ public abstract class AbstractOWS implements OWS {
         }
     }
 
+    /**
+     * Returns the name that identifies this service in the request metrics (see
+     * {@link org.deegree.commons.metrics.Metrics}).
+     * 
+     * @return resource id of this service, or the service type if the id cannot be determined, never <code>null</code>
+     */
+    public String getMetricsName() {
+        if ( metricsName == null ) {
+            String name = null;
+            if ( workspace != null && configURL != null ) {
+                try {
+                    name = getId();
+                } catch ( Throwable t ) {
+                    LOG.debug( "Unable to determine service id: " + t.getMessage() );
+                }
+            }
+            if ( name == null ) {
+                name = serviceInfo.getImplementedServiceName()[0].toLowerCase();
+            }
+            metricsName = name;
+        }
+        return metricsName;
+    }
+
     /**
      * Initializes the {@link AbstractOWS} instance.
      * 
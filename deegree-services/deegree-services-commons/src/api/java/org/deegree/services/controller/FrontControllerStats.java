@@ -42,12 +42,10 @@ import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.deegree.commons.utils.ComparablePair;
 import org.deegree.commons.utils.ConfigManager;
@@ -59,11 +57,16 @@ import org.deegree.cs.persistence.CRSManager;
 import org.deegree.geometry.Envelope;
 import org.deegree.geometry.GeometryFactory;
 import org.deegree.geometry.GeometryTransformer;
+import org.deegree.services.controller.utils.RequestLogFile;
 import org.h2.util.IOUtils;
 import org.slf4j.Logger;
 
 /**
  * Keeps track of request and runtime statistics for the {@link OGCFrontController}.
+ * <p>
+ * Only global numbers are kept here, see {@link org.deegree.commons.metrics.Metrics} for statistics per service,
+ * operation and layer.
+ * </p>
  * 
  * @author <a href="mailto:schneider@lat-lon.de">Markus Schneider</a>
  * @author last edited by: $Author$
@@ -74,17 +77,27 @@ public class FrontControllerStats {
 
     private static final Logger LOG = getLogger( FrontControllerStats.class );
 
-    private static long numDispatched;
+    private static final AtomicLong numDispatched = new AtomicLong();
 
-    private static long numFinished;
+    private static final AtomicLong numFinished = new AtomicLong();
 
-    private static double averageResponseTime;
+    private static final AtomicLong totalResponseTime = new AtomicLong();
 
-    private static double maxResponseTime;
+    private static final AtomicLong maxResponseTime = new AtomicLong();
 
-    private static Envelope bbox;
+    /** Default size (in bytes) that triggers a rotation of <code>requests.txt</code>. */
+    public static final long DEFAULT_REQUEST_LOG_SIZE = 10 * 1024 * 1024;
 
-    private static GeometryTransformer trans;
+    /** Default number of rotated <code>requests.txt</code> files to keep. */
+    public static final int DEFAULT_REQUEST_LOG_BACKUPS = 5;
+
+    private static final RequestLogFile requestLog = new RequestLogFile( ConfigManager.getResourceFile( "requests.txt" ),
+                                                                         DEFAULT_REQUEST_LOG_SIZE,
+                                                                         DEFAULT_REQUEST_LOG_BACKUPS );
+
+    private static volatile Envelope bbox;
+
+    private static volatile GeometryTransformer trans;
 
     private static final GeometryFactory fac = new GeometryFactory();
 
@@ -94,8 +107,8 @@ public class FrontControllerStats {
      * 
      * @return current time
      */
-    synchronized static long requestDispatched() {
-        numDispatched++;
+    static long requestDispatched() {
+        numDispatched.incrementAndGet();
         return System.currentTimeMillis();
     }
 
@@ -105,55 +118,87 @@ public class FrontControllerStats {
      * @param dispatchTime
      *            time when the request has been dispatched
      */
-    synchronized static void requestFinished( long dispatchTime ) {
+    static void requestFinished( long dispatchTime ) {
         long duration = System.currentTimeMillis() - dispatchTime;
-        if ( duration > maxResponseTime ) {
-            maxResponseTime = duration;
+        long max = maxResponseTime.get();
+        while ( duration > max && !maxResponseTime.compareAndSet( max, duration ) ) {
+            max = maxResponseTime.get();
         }
-        averageResponseTime = ( averageResponseTime * numFinished + duration ) / ( numFinished + 1 );
-        numFinished++;
+        totalResponseTime.addAndGet( duration );
+        numFinished.incrementAndGet();
     }
 
     /**
+     * Appends a KVP request to the request log (<code>requests.txt</code>). The line is buffered, see
+     * {@link #flushRequestLog()}.
+     * <p>
+     * This is usually called by the request logging thread only (see
+     * {@link org.deegree.services.controller.utils.AsyncRequestLogger}), so request threads don't have to wait for
+     * file I/O or the envelope update of {@link #getCombinedGetMapEnvelope()}.
+     * </p>
+     * 
      * @param request
      *            the query string
      * @param timestamp
      */
-    public synchronized static void incomingKVP( String request, long timestamp ) {
+    public static void incomingKVP( String request, long timestamp ) {
         try {
-            OutputStream os = ConfigManager.getOutputResource( "requests.txt", true );
-            PrintWriter out = new PrintWriter( new OutputStreamWriter( os, "UTF-8" ) );
-            out.println( timestamp + " " + request );
-            out.close();
-            if ( request.toUpperCase().contains( "REQUEST=GETMAP" ) ) {
-                try {
-                    Map<String, String> map = KVPUtils.getNormalizedKVPMap( request, "UTF-8" );
-                    if ( map.get( "LAYERS" ).equals( "statistics" ) ) {
-                        return;
-                    }
-                    double[] ds = splitAsDoubles( map.get( "BBOX" ), "," );
-                    Envelope newBox = fac.createEnvelope( ds[0], ds[1], ds[2], ds[3],
-                                                          CRSManager.getCRSRef( map.get( "SRS" ) ) );
-                    if ( bbox != null ) {
-                        bbox.merge( trans.transform( newBox ) );
-                    }
-                } catch ( UnsupportedEncodingException e ) {
-                    LOG.trace( "Stack trace:", e );
-                } catch ( IllegalArgumentException e ) {
-                    LOG.trace( "Stack trace:", e );
-                } catch ( TransformationException e ) {
-                    LOG.trace( "Stack trace:", e );
-                } catch ( UnknownCRSException e ) {
-                    LOG.trace( "Stack trace:", e );
-                }
-            }
-        } catch ( FileNotFoundException e ) {
-            LOG.debug( "Could not find the file to store requests." );
+            requestLog.append( timestamp + " " + request );
+        } catch ( IOException e ) {
+            LOG.debug( "Could not write to the file to store requests: '{}'", e.getLocalizedMessage() );
             LOG.debug( " Probably the DEEGREE_HOME directory does not exist and could not be created." );
             LOG.trace( "Stack trace:", e );
-        } catch ( UnsupportedEncodingException e ) {
-            LOG.trace( "Stack trace:", e );
+            return;
         }
+        if ( bbox != null && request.toUpperCase().contains( "REQUEST=GETMAP" ) ) {
+            try {
+                Map<String, String> map = KVPUtils.getNormalizedKVPMap( request, "UTF-8" );
+                if ( map.get( "LAYERS" ).equals( "statistics" ) ) {
+                    return;
+                }
+                double[] ds = splitAsDoubles( map.get( "BBOX" ), "," );
+                Envelope newBox = fac.createEnvelope( ds[0], ds[1], ds[2], ds[3],
+                                                      CRSManager.getCRSRef( map.get( "SRS" ) ) );
+                Envelope transformed = trans.transform( newBox );
+                synchronized ( FrontControllerStats.class ) {
+                    bbox.merge( transformed );
+                }
+            } catch ( UnsupportedEncodingException e ) {
+                LOG.trace( "Stack trace:", e );
+            } catch ( IllegalArgumentException e ) {
+                LOG.trace( "Stack trace:", e );
+            } catch ( TransformationException e ) {
+                LOG.trace( "Stack trace:", e );
+            } catch ( UnknownCRSException e ) {
+                LOG.trace( "Stack trace:", e );
+            }
+        }
+    }
+
+    /**
+     * Writes buffered lines of the request log to <code>requests.txt</code>.
+     */
+    public static void flushRequestLog() {
+        requestLog.flush();
+    }
+
+    /**
+     * Closes the request log file (it is reopened when the next request is logged).
+     */
+    public static void closeRequestLog() {
+        requestLog.close();
+    }
+
+    /**
+     * Configures the rotation of <code>requests.txt</code>.
+     * 
+     * @param maxSize
+     *            size (in bytes) that triggers a rotation, zero or less disables rotation
+     * @param maxBackups
+     *            number of rotated files to keep
+     */
+    public static void setRequestLogRotation( long maxSize, int maxBackups ) {
+        requestLog.setRotation( maxSize, maxBackups );
     }
 
     /**
@@ -162,7 +207,7 @@ public class FrontControllerStats {
      * @return number of dispatched requests
      */
     public static long getDispatchedRequests() {
-        return numDispatched;
+        return numDispatched.get();
     }
 
     /**
@@ -172,7 +217,7 @@ public class FrontControllerStats {
      * @return number of active requests
      */
     public static long getActiveRequests() {
-        return numDispatched - numFinished;
+        return numDispatched.get() - numFinished.get();
     }
 
     /**
@@ -181,7 +226,8 @@ public class FrontControllerStats {
      * @return the average response time
      */
     public static long getAverageResponseTime() {
-        return (long) averageResponseTime;
+        long finished = numFinished.get();
+        return finished == 0 ? 0 : totalResponseTime.get() / finished;
     }
 
     /**
@@ -190,7 +236,7 @@ public class FrontControllerStats {
      * @return the maximum response time
      */
     public static long getMaximumResponseTime() {
-        return (long) maxResponseTime;
+        return maxResponseTime.get();
     }
 
     /**
@@ -198,6 +244,7 @@ public class FrontControllerStats {
      */
     public static TreeSet<ComparablePair<Long, String>> getKVPRequests() {
         TreeSet<ComparablePair<Long, String>> requests = new TreeSet<ComparablePair<Long, String>>();
+        flushRequestLog();
         InputStreamReader is = null;
         try {
             is = new InputStreamReader( ConfigManager.getInputResource( "requests.txt" ), "UTF-8" );
@@ -238,6 +285,7 @@ public class FrontControllerStats {
      * @return the time of the first request
      */
     public static long getStartingTime() {
+        flushRequestLog();
         BufferedReader in = null;
         try {
             InputStreamReader is = new InputStreamReader( ConfigManager.getInputResource( "requests.txt" ), "UTF-8" );
@@ -282,8 +330,8 @@ public class FrontControllerStats {
                     Envelope newBox = fac.createEnvelope( ds[0], ds[1], ds[2], ds[3],
                                                           CRSManager.getCRSRef( map.get( "SRS" ) ) );
                     if ( bbox == null ) {
+                        trans = new GeometryTransformer( newBox.getCoordinateSystem() );
                         bbox = newBox;
-                        trans = new GeometryTransformer( bbox.getCoordinateSystem() );
                     } else {
                         bbox.merge( trans.transform( newBox ) );
                     }
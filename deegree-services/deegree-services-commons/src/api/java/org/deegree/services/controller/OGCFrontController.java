@@ -99,6 +99,8 @@ import org.deegree.commons.concurrent.Executor;
 import org.deegree.commons.config.DeegreeWorkspace;
 import org.deegree.commons.config.ResourceInitException;
 import org.deegree.commons.config.ResourceState;
+import org.deegree.commons.metrics.Metrics;
+import org.deegree.commons.metrics.OperationMetrics;
 import org.deegree.commons.modules.ModuleInfo;
 import org.deegree.commons.ows.exception.OWSException;
 import org.deegree.commons.tom.ows.Version;
@@ -802,10 +804,16 @@ public class OGCFrontController extends HttpServlet {
 
             LOG.debug( "Dispatching request to OWS class: " + ows.getClass().getName() );
             long dispatchTime = FrontControllerStats.requestDispatched();
+            OperationMetrics metrics = getMetrics( ows, request );
+            long start = metrics.start();
+            Metrics.beginRequest();
+            boolean failed = true;
             try {
                 watchTimeout( ows, request );
                 ows.doKVP( normalizedKVPParams, requestWrapper, response, multiParts );
+                failed = false;
             } finally {
+                metrics.finish( start, Metrics.endRequest(), response.getBytesWritten(), failed );
                 FrontControllerStats.requestFinished( dispatchTime );
                 unwatchTimeout();
             }
@@ -821,6 +829,33 @@ public class OGCFrontController extends HttpServlet {
         }
     }
 
+    /**
+     * Returns the request metrics for the given service and request name. Request names are mapped to the names known
+     * by the service, so the number of metrics stays bounded.
+     */
+    private static OperationMetrics getMetrics( OWS ows, String request ) {
+        String service;
+        if ( ows instanceof AbstractOWS ) {
+            service = ( (AbstractOWS) ows ).getMetricsName();
+        } else {
+            service = ows.getImplementationMetadata().getImplementedServiceName()[0].toLowerCase();
+        }
+        String operation = "other";
+        if ( request != null ) {
+            if ( "GetCapabilities".equalsIgnoreCase( request ) ) {
+                operation = "GetCapabilities";
+            } else {
+                for ( String handled : ows.getImplementationMetadata().getHandledRequests() ) {
+                    if ( handled.equalsIgnoreCase( request ) ) {
+                        operation = handled;
+                        break;
+                    }
+                }
+            }
+        }
+        return Metrics.request( service, operation );
+    }
+
     private static void validateResponse( HttpResponseBuffer responseWrapper ) {
         responseWrapper.validate();
     }
@@ -889,10 +924,16 @@ public class OGCFrontController extends HttpServlet {
             if ( ows != null ) {
                 LOG.debug( "Dispatching request to OWS: " + ows.getClass().getName() );
                 long dispatchTime = FrontControllerStats.requestDispatched();
+                OperationMetrics metrics = getMetrics( ows, xmlStream.getLocalName() );
+                long start = metrics.start();
+                Metrics.beginRequest();
+                boolean failed = true;
                 try {
                     watchTimeout( ows, xmlStream.getLocalName() );
                     ows.doXML( xmlStream, requestWrapper, response, multiParts );
+                    failed = false;
                 } finally {
+                    metrics.finish( start, Metrics.endRequest(), response.getBytesWritten(), failed );
                     FrontControllerStats.requestFinished( dispatchTime );
                     unwatchTimeout();
                 }
@@ -1009,10 +1050,16 @@ public class OGCFrontController extends HttpServlet {
 
             LOG.debug( "Dispatching request to OWS class: " + ows.getClass().getName() );
             long dispatchTime = FrontControllerStats.requestDispatched();
+            OperationMetrics metrics = getMetrics( ows, env.getSOAPBodyFirstElementLocalName() );
+            long start = metrics.start();
+            Metrics.beginRequest();
+            boolean failed = true;
             try {
                 watchTimeout( ows, env.getSOAPBodyFirstElementLocalName() );
                 ows.doSOAP( env, requestWrapper, response, multiParts, factory );
+                failed = false;
             } finally {
+                metrics.finish( start, Metrics.endRequest(), response.getBytesWritten(), failed );
                 FrontControllerStats.requestFinished( dispatchTime );
             }
         } catch ( SecurityException e ) {
@@ -1177,6 +1224,7 @@ public class OGCFrontController extends HttpServlet {
         LOG.info( "Destroying workspace" );
         LOG.info( "--------------------------------------------------------------------------------" );
         workspace.destroyAll();
+        Metrics.clear();
         if ( requestWatchdog != null ) {
             requestWatchdog.destroy();
         }
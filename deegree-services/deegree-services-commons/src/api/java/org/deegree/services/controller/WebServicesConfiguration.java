@@ -39,6 +39,7 @@ import static java.lang.Class.forName;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import java.io.File;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -46,6 +47,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.management.ObjectName;
 import javax.xml.bind.JAXBElement;
 
 import org.deegree.commons.config.AbstractResourceManager;
@@ -62,6 +64,7 @@ import org.deegree.commons.utils.FileUtils;
 import org.deegree.commons.xml.jaxb.JAXBUtils;
 import org.deegree.services.OWS;
 import org.deegree.services.OWSProvider;
+import org.deegree.services.controller.utils.AsyncRequestLogger;
 import org.deegree.services.controller.utils.StandardRequestLogger;
 import org.deegree.services.jaxb.controller.DeegreeServiceControllerType;
 import org.deegree.services.jaxb.controller.DeegreeServiceControllerType.RequestLogging;
@@ -85,6 +88,9 @@ public class WebServicesConfiguration extends AbstractResourceManager<OWS> {
 
     private static final URL CONTROLLER_CONFIG_SCHEMA = WebServicesConfiguration.class.getResource( "/META-INF/schemas/services/controller/3.4.0/controller.xsd" );
 
+    // maximum time (in milliseconds) to wait for pending requests to be logged on shutdown
+    private static final long REQUEST_LOGGER_SHUTDOWN_TIMEOUT = 5000;
+
     private static final String METADATA_JAXB_PACKAGE = "org.deegree.services.jaxb.metadata";
 
     private static final URL METADATA_CONFIG_SCHEMA = WebServicesConfiguration.class.getResource( "/META-INF/schemas/services/metadata/3.2.0/metadata.xsd" );
@@ -106,6 +112,8 @@ public class WebServicesConfiguration extends AbstractResourceManager<OWS> {
 
     private boolean logOnlySuccessful;
 
+    private ObjectName requestLoggerMBeanName;
+
     private WebServiceManagerMetadata metadata;
 
     @Override
@@ -292,6 +300,7 @@ public class WebServicesConfiguration extends AbstractResourceManager<OWS> {
                 }
             }
         }
+        shutdownRequestLogger();
         LOG.info( "deegree OGC webservices shut down." );
         LOG.info( "--------------------------------------------------------------------------------" );
     }
@@ -314,11 +323,55 @@ public class WebServicesConfiguration extends AbstractResourceManager<OWS> {
         RequestLogging requestLogging = mainConfig.getRequestLogging();
         if ( requestLogging != null ) {
             org.deegree.services.jaxb.controller.DeegreeServiceControllerType.RequestLogging.RequestLogger logger = requestLogging.getRequestLogger();
-            requestLogger = instantiateRequestLogger( logger );
+            long maxFileSize = FrontControllerStats.DEFAULT_REQUEST_LOG_SIZE;
+            if ( requestLogging.getMaxFileSize() != null ) {
+                maxFileSize = requestLogging.getMaxFileSize().longValue();
+            }
+            int maxBackups = FrontControllerStats.DEFAULT_REQUEST_LOG_BACKUPS;
+            if ( requestLogging.getMaxBackupFiles() != null ) {
+                maxBackups = requestLogging.getMaxBackupFiles().intValue();
+            }
+            FrontControllerStats.setRequestLogRotation( maxFileSize, maxBackups );
+            int bufferSize = AsyncRequestLogger.DEFAULT_BUFFER_SIZE;
+            if ( requestLogging.getBufferSize() != null ) {
+                bufferSize = requestLogging.getBufferSize().intValue();
+            }
+            AsyncRequestLogger asyncLogger = new AsyncRequestLogger( instantiateRequestLogger( logger ), bufferSize,
+                                                                     AsyncRequestLogger.DEFAULT_BATCH_SIZE,
+                                                                     AsyncRequestLogger.DEFAULT_FLUSH_INTERVAL );
+            requestLogger = asyncLogger;
+            registerRequestLoggerMBean( asyncLogger );
             this.logOnlySuccessful = requestLogging.isOnlySuccessful() != null && requestLogging.isOnlySuccessful();
         }
     }
 
+    private void registerRequestLoggerMBean( AsyncRequestLogger logger ) {
+        try {
+            ObjectName objectName = new ObjectName( "org.deegree:type=RequestLogging,name="
+                                                    + ObjectName.quote( String.valueOf( workspace.getName() ) ) );
+            ManagementFactory.getPlatformMBeanServer().registerMBean( logger, objectName );
+            requestLoggerMBeanName = objectName;
+        } catch ( Exception e ) {
+            LOG.warn( "Could not register request logging MBean: " + e.getMessage() );
+            LOG.trace( "Stack trace:", e );
+        }
+    }
+
+    private void shutdownRequestLogger() {
+        if ( requestLoggerMBeanName != null ) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean( requestLoggerMBeanName );
+            } catch ( Exception e ) {
+                LOG.debug( "Could not unregister request logging MBean: " + e.getMessage() );
+            }
+            requestLoggerMBeanName = null;
+        }
+        if ( requestLogger instanceof AsyncRequestLogger ) {
+            ( (AsyncRequestLogger) requestLogger ).shutdown( REQUEST_LOGGER_SHUTDOWN_TIMEOUT );
+        }
+        requestLogger = null;
+    }
+
     private static RequestLogger instantiateRequestLogger( RequestLogging.RequestLogger conf ) {
         if ( conf != null ) {
             String cls = conf.getClazz();
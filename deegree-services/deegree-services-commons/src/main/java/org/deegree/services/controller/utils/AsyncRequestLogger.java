@@ -0,0 +1,321 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.controller.utils;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.deegree.services.controller.Credentials;
+import org.deegree.services.controller.RequestLogger;
+import org.slf4j.Logger;
+
+/**
+ * {@link RequestLogger} that decouples request threads from the actual logging.
+ * <p>
+ * Calls are put into a bounded {@link RequestLogRingBuffer} and handed to the wrapped logger by a single background
+ * thread in batches. Request threads never block: if the buffer is full, the entry is dropped and counted. If the
+ * wrapped logger implements {@link Flushable}, it is flushed after every batch, so it can keep its output open and
+ * write in larger chunks.
+ * </p>
+ * <p>
+ * The request file passed to {@link #logXML(String, File, long, long, Credentials)} is taken over by renaming it (the
+ * caller deletes the original file afterwards) and deleted after the wrapped logger has processed it.
+ * </p>
+ * 
+ * @since 3.4
+ */
+public class AsyncRequestLogger implements RequestLogger, AsyncRequestLoggerMBean {
+
+    private static final Logger LOG = getLogger( AsyncRequestLogger.class );
+
+    /** Default number of buffered entries. */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /** Default maximum number of entries handed to the wrapped logger before flushing it. */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    /** Default maximum time (in milliseconds) an entry waits in the buffer. */
+    public static final long DEFAULT_FLUSH_INTERVAL = 500;
+
+    // minimum time (in milliseconds) between two warnings about dropped entries
+    private static final long DROP_WARN_INTERVAL = 60000;
+
+    private final RequestLogger delegate;
+
+    private final RequestLogRingBuffer<Entry> buffer;
+
+    private final int batchSize;
+
+    private final long flushIntervalNanos;
+
+    private final AtomicLong logged = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final Thread writer;
+
+    private volatile boolean running = true;
+
+    private long lastDropWarning;
+
+    private long droppedAtLastWarning;
+
+    /**
+     * Creates a new {@link AsyncRequestLogger} with default settings and starts the logging thread.
+     * 
+     * @param delegate
+     *            logger to hand the requests to, must not be <code>null</code>
+     */
+    public AsyncRequestLogger( RequestLogger delegate ) {
+        this( delegate, DEFAULT_BUFFER_SIZE, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL );
+    }
+
+    /**
+     * Creates a new {@link AsyncRequestLogger} and starts the logging thread.
+     * 
+     * @param delegate
+     *            logger to hand the requests to, must not be <code>null</code>
+     * @param bufferSize
+     *            maximum number of buffered entries, must be greater than zero
+     * @param batchSize
+     *            maximum number of entries handed to the wrapped logger before flushing it, must be greater than zero
+     * @param flushInterval
+     *            maximum time (in milliseconds) an entry waits in the buffer, must be greater than zero
+     */
+    public AsyncRequestLogger( RequestLogger delegate, int bufferSize, int batchSize, long flushInterval ) {
+        if ( batchSize <= 0 || flushInterval <= 0 ) {
+            throw new IllegalArgumentException( "Batch size and flush interval must be greater than zero." );
+        }
+        this.delegate = delegate;
+        this.buffer = new RequestLogRingBuffer<Entry>( bufferSize );
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = MILLISECONDS.toNanos( flushInterval );
+        writer = new Thread( new Runnable() {
+            @Override
+            public void run() {
+                drainLoop();
+            }
+        }, "deegree-request-logger" );
+        writer.setDaemon( true );
+        writer.start();
+    }
+
+    @Override
+    public void logKVP( String address, String queryString, long startTime, long endTime, Credentials creds ) {
+        enqueue( new Entry( address, queryString, null, startTime, endTime, creds ) );
+    }
+
+    @Override
+    public void logXML( String address, File logFile, long startTime, long endTime, Credentials creds ) {
+        File owned = new File( logFile.getPath() + ".queued" );
+        if ( !logFile.renameTo( owned ) ) {
+            LOG.debug( "Could not take over request file {}, logging synchronously.", logFile );
+            delegate.logXML( address, logFile, startTime, endTime, creds );
+            return;
+        }
+        if ( !enqueue( new Entry( address, null, owned, startTime, endTime, creds ) ) ) {
+            deleteRequestFile( owned );
+        }
+    }
+
+    private boolean enqueue( Entry entry ) {
+        if ( !running || !buffer.offer( entry ) ) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        if ( buffer.size() >= batchSize ) {
+            LockSupport.unpark( writer );
+        }
+        return true;
+    }
+
+    private void drainLoop() {
+        List<Entry> batch = new ArrayList<Entry>( batchSize );
+        while ( true ) {
+            batch.clear();
+            if ( buffer.drain( batch, batchSize ) == 0 ) {
+                if ( !running ) {
+                    break;
+                }
+                warnAboutDrops();
+                LockSupport.parkNanos( this, flushIntervalNanos );
+                continue;
+            }
+            for ( Entry entry : batch ) {
+                entry.log();
+            }
+            logged.addAndGet( batch.size() );
+            if ( delegate instanceof Flushable ) {
+                try {
+                    ( (Flushable) delegate ).flush();
+                } catch ( Throwable e ) {
+                    LOG.warn( "Could not flush request logger: " + e.getLocalizedMessage() );
+                    LOG.trace( "Stack trace:", e );
+                }
+            }
+        }
+        warnAboutDrops();
+    }
+
+    private void warnAboutDrops() {
+        long numDropped = dropped.get();
+        if ( numDropped == droppedAtLastWarning ) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if ( now - lastDropWarning >= DROP_WARN_INTERVAL || !running ) {
+            LOG.warn( "Request logging cannot keep up, {} request(s) have not been logged (buffer size: {}).",
+                      numDropped - droppedAtLastWarning, buffer.capacity() );
+            droppedAtLastWarning = numDropped;
+            lastDropWarning = now;
+        }
+    }
+
+    /**
+     * Stops accepting new entries and waits (at most the given time) until the buffered entries have been logged.
+     * 
+     * @param timeout
+     *            maximum time to wait (in milliseconds)
+     */
+    public void shutdown( long timeout ) {
+        running = false;
+        LockSupport.unpark( writer );
+        try {
+            writer.join( timeout );
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+        if ( writer.isAlive() ) {
+            LOG.warn( "Request logging did not finish within {} ms, {} request(s) may not have been logged.",
+                      timeout, buffer.size() );
+        }
+        if ( delegate instanceof Closeable ) {
+            try {
+                ( (Closeable) delegate ).close();
+            } catch ( IOException e ) {
+                LOG.trace( "Stack trace:", e );
+            }
+        }
+    }
+
+    /**
+     * @return the wrapped logger, never <code>null</code>
+     */
+    public RequestLogger getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public long getLoggedRequests() {
+        return logged.get();
+    }
+
+    @Override
+    public long getDroppedRequests() {
+        return dropped.get();
+    }
+
+    @Override
+    public int getPendingRequests() {
+        return buffer.size();
+    }
+
+    @Override
+    public int getBufferCapacity() {
+        return buffer.capacity();
+    }
+
+    @Override
+    public String getRequestLoggerClass() {
+        return delegate.getClass().getName();
+    }
+
+    private static void deleteRequestFile( File file ) {
+        if ( !file.delete() ) {
+            LOG.warn( "Could not delete temporary file {}.", file );
+        }
+    }
+
+    private class Entry {
+
+        private final String address;
+
+        private final String queryString;
+
+        private final File requestFile;
+
+        private final long startTime;
+
+        private final long endTime;
+
+        private final Credentials creds;
+
+        Entry( String address, String queryString, File requestFile, long startTime, long endTime, Credentials creds ) {
+            this.address = address;
+            this.queryString = queryString;
+            this.requestFile = requestFile;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.creds = creds;
+        }
+
+        void log() {
+            try {
+                if ( requestFile == null ) {
+                    delegate.logKVP( address, queryString, startTime, endTime, creds );
+                } else {
+                    delegate.logXML( address, requestFile, startTime, endTime, creds );
+                }
+            } catch ( Throwable e ) {
+                LOG.warn( "Could not log request: " + e.getLocalizedMessage() );
+                LOG.trace( "Stack trace:", e );
+            } finally {
+                if ( requestFile != null ) {
+                    deleteRequestFile( requestFile );
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.controller.utils;
+
+/**
+ * JMX view of an {@link AsyncRequestLogger}.
+ * 
+ * @since 3.4
+ */
+public interface AsyncRequestLoggerMBean {
+
+    /**
+     * @return number of requests that have been handed to the wrapped logger
+     */
+    long getLoggedRequests();
+
+    /**
+     * @return number of requests that were not logged, because the buffer was full
+     */
+    long getDroppedRequests();
+
+    /**
+     * @return number of requests waiting to be logged
+     */
+    int getPendingRequests();
+
+    /**
+     * @return maximum number of requests waiting to be logged
+     */
+    int getBufferCapacity();
+
+    /**
+     * @return class name of the wrapped logger
+     */
+    String getRequestLoggerClass();
+
+}
@@ -112,6 +112,10 @@ public class HttpResponseBuffer extends HttpServletResponseWrapper {
 
     private ServletOutputStream outputStream;
 
+    private ServletOutputStream unbufferedOutputStream;
+
+    private long bytesWritten;
+
     private XMLStreamWriter xmlWriter;
 
     private final HttpServletResponse wrappee;
@@ -123,7 +127,7 @@ public class HttpResponseBuffer extends HttpServletResponseWrapper {
         super( response );
         wrappee = response;
         buffer = new StreamBufferStore();
-        outputStream = new BufferedServletOutputStream( buffer );
+        outputStream = new BufferedServletOutputStream( buffer, this );
     }
 
     /**
@@ -175,7 +179,10 @@ public class HttpResponseBuffer extends HttpServletResponseWrapper {
     public ServletOutputStream getOutputStream()
                             throws IOException {
         if ( buffer == null ) {
-            return super.getOutputStream();
+            if ( unbufferedOutputStream == null ) {
+                unbufferedOutputStream = new BufferedServletOutputStream( super.getOutputStream(), this );
+            }
+            return unbufferedOutputStream;
         }
         if ( returnType == ReturnType.NOT_DEFINED_YET ) {
             returnType = ReturnType.OUTPUT_STREAM;
@@ -314,6 +321,7 @@ public class HttpResponseBuffer extends HttpServletResponseWrapper {
         if ( buffer != null && !isCommitted() ) {
             buffer.reset();
             super.reset();
+            bytesWritten = 0;
             returnType = ReturnType.NOT_DEFINED_YET;
             xmlWriter = null;
         } else {
@@ -336,6 +344,19 @@ public class HttpResponseBuffer extends HttpServletResponseWrapper {
         return buffer;
     }
 
+    /**
+     * Returns the number of bytes that have been written to the output stream of this response (including content that
+     * is still buffered).
+     * <p>
+     * NOTE: Characters written to {@link #getWriter()} are not counted if buffering has been disabled.
+     * </p>
+     * 
+     * @return number of bytes written
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
     public void setExceptionSent() {
         if ( wrappee instanceof LoggingHttpResponseWrapper ) {
             ( (LoggingHttpResponseWrapper) wrappee ).setExceptionSent();
@@ -349,32 +370,45 @@ public class HttpResponseBuffer extends HttpServletResponseWrapper {
     }
 
     /**
-     * This is a ServletOutputStream that uses our internal ByteArrayOutputStream to buffer all data.
+     * This is a ServletOutputStream that uses our internal ByteArrayOutputStream to buffer all data (or writes to the
+     * underlying stream, if buffering is disabled) and counts the written bytes.
      */
     private static class BufferedServletOutputStream extends ServletOutputStream {
 
         private final OutputStream buffer;
 
-        public BufferedServletOutputStream( OutputStream buffer ) {
+        private final HttpResponseBuffer response;
+
+        public BufferedServletOutputStream( OutputStream buffer, HttpResponseBuffer response ) {
             this.buffer = buffer;
+            this.response = response;
         }
 
         @Override
         public void write( byte[] b )
                                 throws IOException {
             buffer.write( b );
+            response.bytesWritten += b.length;
         }
 
         @Override
         public void write( byte[] b, int off, int len )
                                 throws IOException {
             buffer.write( b, off, len );
+            response.bytesWritten += len;
         }
 
         @Override
         public void write( int b )
                                 throws IOException {
             buffer.write( b );
+            response.bytesWritten++;
+        }
+
+        @Override
+        public void flush()
+                                throws IOException {
+            buffer.flush();
         }
     }
 }
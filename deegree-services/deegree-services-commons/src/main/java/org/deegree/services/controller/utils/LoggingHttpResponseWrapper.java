@@ -159,7 +159,8 @@ public class LoggingHttpResponseWrapper extends HttpServletResponseWrapper {
         if ( ( !successfulOnly || !exceptionSent ) && requestLog != null ) {
             logger.logXML( address, requestLog, entryTime, currentTimeMillis(), creds );
         }
-        if ( requestLog != null ) {
+        // an asynchronous logger may have taken over the file already
+        if ( requestLog != null && requestLog.exists() ) {
             if ( !requestLog.delete() ) {
                 LOG.warn( "Could not delete temporary file {}.", requestLog );
             }
@@ -0,0 +1,198 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.controller.utils;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.slf4j.Logger;
+
+/**
+ * Append-only text file for request log entries that keeps its stream open between writes and rotates when it grows
+ * too large.
+ * <p>
+ * Lines are buffered until {@link #flush()} is called (usually once per batch by the request logging thread). On
+ * rotation, <code>requests.txt</code> becomes <code>requests.txt.1</code>, <code>requests.txt.1</code> becomes
+ * <code>requests.txt.2</code> and so on; the oldest backup is deleted.
+ * </p>
+ * 
+ * @since 3.4
+ */
+public class RequestLogFile {
+
+    private static final Logger LOG = getLogger( RequestLogFile.class );
+
+    private static final String LINE_SEPARATOR = System.getProperty( "line.separator" );
+
+    private final File file;
+
+    private long maxSize;
+
+    private int maxBackups;
+
+    private Writer out;
+
+    private long size;
+
+    /**
+     * Creates a new {@link RequestLogFile}. The file is opened lazily.
+     * 
+     * @param file
+     *            file to append to, must not be <code>null</code>
+     * @param maxSize
+     *            size (in bytes) that triggers a rotation, zero or less disables rotation
+     * @param maxBackups
+     *            number of rotated files to keep
+     */
+    public RequestLogFile( File file, long maxSize, int maxBackups ) {
+        this.file = file;
+        this.maxSize = maxSize;
+        this.maxBackups = maxBackups;
+    }
+
+    /**
+     * @param maxSize
+     *            size (in bytes) that triggers a rotation, zero or less disables rotation
+     * @param maxBackups
+     *            number of rotated files to keep
+     */
+    public synchronized void setRotation( long maxSize, int maxBackups ) {
+        this.maxSize = maxSize;
+        this.maxBackups = maxBackups;
+    }
+
+    /**
+     * Appends a line (buffered).
+     * 
+     * @param line
+     *            line to append (without line separator), must not be <code>null</code>
+     * @throws IOException
+     */
+    public synchronized void append( String line )
+                            throws IOException {
+        if ( out == null ) {
+            open( true );
+        } else if ( maxSize > 0 && size >= maxSize ) {
+            rotate();
+        }
+        out.write( line );
+        out.write( LINE_SEPARATOR );
+        // UTF-8 length is at least the number of chars, good enough for the rotation threshold
+        size += line.length() + LINE_SEPARATOR.length();
+    }
+
+    /**
+     * Writes buffered lines to the file.
+     */
+    public synchronized void flush() {
+        if ( out != null ) {
+            try {
+                out.flush();
+            } catch ( IOException e ) {
+                LOG.warn( "Could not write to request log file {}: {}", file, e.getLocalizedMessage() );
+                LOG.trace( "Stack trace:", e );
+                close();
+            }
+        }
+    }
+
+    /**
+     * Flushes and closes the file. It is reopened on the next {@link #append(String)}.
+     */
+    public synchronized void close() {
+        if ( out != null ) {
+            try {
+                out.close();
+            } catch ( IOException e ) {
+                LOG.trace( "Stack trace:", e );
+            }
+            out = null;
+        }
+    }
+
+    /**
+     * @return the (current) log file, never <code>null</code>
+     */
+    public File getFile() {
+        return file;
+    }
+
+    private void open( boolean append )
+                            throws IOException {
+        File parent = file.getParentFile();
+        if ( parent != null && !parent.exists() ) {
+            parent.mkdirs();
+        }
+        size = append ? file.length() : 0;
+        out = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( file, append ), "UTF-8" ) );
+    }
+
+    private void rotate()
+                            throws IOException {
+        close();
+        if ( maxBackups <= 0 ) {
+            if ( !file.delete() ) {
+                LOG.warn( "Could not delete request log file {}.", file );
+            }
+        } else {
+            File oldest = backup( maxBackups );
+            if ( oldest.exists() && !oldest.delete() ) {
+                LOG.warn( "Could not delete request log file {}.", oldest );
+            }
+            for ( int i = maxBackups - 1; i > 0; --i ) {
+                File f = backup( i );
+                if ( f.exists() && !f.renameTo( backup( i + 1 ) ) ) {
+                    LOG.warn( "Could not rename request log file {}.", f );
+                }
+            }
+            if ( !file.renameTo( backup( 1 ) ) ) {
+                LOG.warn( "Could not rename request log file {}.", file );
+            }
+        }
+        // if the file could not be moved away, start it over instead of rotating on every line
+        open( !file.exists() );
+    }
+
+    private File backup( int index ) {
+        return new File( file.getPath() + "." + index );
+    }
+
+}
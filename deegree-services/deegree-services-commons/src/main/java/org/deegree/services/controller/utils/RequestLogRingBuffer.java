@@ -0,0 +1,153 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.controller.utils;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free ring buffer for many producer threads and a single consumer thread.
+ * <p>
+ * Producers never block: if the buffer is full, {@link #offer(Object)} returns <code>false</code> immediately and the
+ * caller decides what to do with the element (usually counting it as dropped). Only one thread may call
+ * {@link #drain(List, int)} at a time.
+ * </p>
+ * 
+ * @param <T>
+ *            type of the buffered elements
+ * 
+ * @since 3.4
+ */
+public class RequestLogRingBuffer<T> {
+
+    private final AtomicReferenceArray<T> slots;
+
+    private final int mask;
+
+    // next sequence to be claimed by a producer
+    private final AtomicLong tail = new AtomicLong();
+
+    // next sequence to be consumed, only advanced by the consumer
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * Creates a new {@link RequestLogRingBuffer}.
+     * 
+     * @param capacity
+     *            minimum number of elements that can be buffered, will be rounded up to the next power of two, must be
+     *            greater than zero
+     */
+    public RequestLogRingBuffer( int capacity ) {
+        if ( capacity <= 0 ) {
+            throw new IllegalArgumentException( "Capacity must be greater than zero." );
+        }
+        int size = Integer.highestOneBit( capacity );
+        if ( size < capacity ) {
+            size <<= 1;
+        }
+        slots = new AtomicReferenceArray<T>( size );
+        mask = size - 1;
+    }
+
+    /**
+     * Adds an element to the buffer without blocking.
+     * 
+     * @param element
+     *            element to add, must not be <code>null</code>
+     * @return <code>true</code>, if the element has been added, <code>false</code> if the buffer is full
+     */
+    public boolean offer( T element ) {
+        if ( element == null ) {
+            throw new NullPointerException();
+        }
+        long seq;
+        do {
+            seq = tail.get();
+            if ( seq - head.get() >= slots.length() ) {
+                return false;
+            }
+        } while ( !tail.compareAndSet( seq, seq + 1 ) );
+        slots.lazySet( (int) ( seq & mask ), element );
+        return true;
+    }
+
+    /**
+     * Moves up to <code>max</code> elements (in insertion order) into the given list. Must only be called by a single
+     * consumer thread.
+     * 
+     * @param sink
+     *            list to add the elements to, must not be <code>null</code>
+     * @param max
+     *            maximum number of elements to move
+     * @return number of elements moved
+     */
+    public int drain( List<? super T> sink, int max ) {
+        long seq = head.get();
+        int drained = 0;
+        while ( drained < max ) {
+            int idx = (int) ( seq & mask );
+            T element = slots.get( idx );
+            if ( element == null ) {
+                // either empty or the producer that claimed this slot has not published yet
+                break;
+            }
+            slots.lazySet( idx, null );
+            sink.add( element );
+            seq++;
+            drained++;
+        }
+        if ( drained > 0 ) {
+            head.set( seq );
+        }
+        return drained;
+    }
+
+    /**
+     * @return approximate number of buffered elements
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        return size < 0 ? 0 : (int) size;
+    }
+
+    /**
+     * @return maximum number of buffered elements
+     */
+    public int capacity() {
+        return slots.length();
+    }
+
+}
@@ -35,25 +35,36 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.services.controller.utils;
 
+import static org.deegree.services.controller.FrontControllerStats.closeRequestLog;
+import static org.deegree.services.controller.FrontControllerStats.flushRequestLog;
 import static org.deegree.services.controller.FrontControllerStats.incomingKVP;
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.Flushable;
 import java.io.IOException;
 
 import org.apache.commons.io.FileUtils;
 import org.deegree.services.controller.Credentials;
+import org.deegree.services.controller.FrontControllerStats;
 import org.deegree.services.controller.RequestLogger;
 import org.slf4j.Logger;
 
 /**
+ * Default {@link RequestLogger}, logs KVP requests to <code>requests.txt</code> (see {@link FrontControllerStats}) and
+ * keeps copies of XML requests in the output directory.
+ * <p>
+ * Writes to <code>requests.txt</code> are buffered until {@link #flush()} is called, which is done after every batch if
+ * wrapped by an {@link AsyncRequestLogger}.
+ * </p>
  * 
  * @author <a href="mailto:schmitz@lat-lon.de">Andreas Schmitz</a>
  * @author last edited by: $Author$
  * 
  * @version $Revision$, $Date$
  */
-public class StandardRequestLogger implements RequestLogger {
+public class StandardRequestLogger implements RequestLogger, Flushable, Closeable {
 
     private static final Logger LOG = getLogger( StandardRequestLogger.class );
 
@@ -73,4 +84,14 @@ public class StandardRequestLogger implements RequestLogger {
         }
     }
 
+    @Override
+    public void flush() {
+        flushRequestLog();
+    }
+
+    @Override
+    public void close() {
+        closeRequestLog();
+    }
+
 }
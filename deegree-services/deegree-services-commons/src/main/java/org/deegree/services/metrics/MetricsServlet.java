@@ -0,0 +1,67 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.metrics;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.deegree.commons.metrics.Metrics;
+
+/**
+ * Provides the request and layer metrics (see {@link Metrics}) in plain-text format, e.g. for scraping by a monitoring
+ * system.
+ * 
+ * @since 3.4
+ */
+public class MetricsServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 2914311478211764931L;
+
+    @Override
+    protected void doGet( HttpServletRequest request, HttpServletResponse response )
+                            throws ServletException, IOException {
+        response.setContentType( "text/plain; version=0.0.4; charset=UTF-8" );
+        response.setHeader( "Cache-Control", "no-cache" );
+        Writer writer = new OutputStreamWriter( response.getOutputStream(), "UTF-8" );
+        Metrics.writeText( writer );
+        writer.close();
+    }
+}
@@ -0,0 +1,122 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2013 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.controller.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link RequestLogRingBuffer}.
+ */
+public class RequestLogRingBufferTest {
+
+    @Test
+    public void testCapacityIsRoundedUp() {
+        assertEquals( 8, new RequestLogRingBuffer<String>( 5 ).capacity() );
+        assertEquals( 8, new RequestLogRingBuffer<String>( 8 ).capacity() );
+    }
+
+    @Test
+    public void testOfferFailsWhenFull() {
+        RequestLogRingBuffer<String> buffer = new RequestLogRingBuffer<String>( 2 );
+        assertTrue( buffer.offer( "a" ) );
+        assertTrue( buffer.offer( "b" ) );
+        assertFalse( buffer.offer( "c" ) );
+        assertEquals( 2, buffer.size() );
+    }
+
+    @Test
+    public void testDrainKeepsOrderAndRespectsMax() {
+        RequestLogRingBuffer<Integer> buffer = new RequestLogRingBuffer<Integer>( 4 );
+        List<Integer> sink = new ArrayList<Integer>();
+        for ( int round = 0; round < 3; ++round ) {
+            for ( int i = 0; i < 4; ++i ) {
+                assertTrue( buffer.offer( round * 4 + i ) );
+            }
+            assertEquals( 3, buffer.drain( sink, 3 ) );
+            assertEquals( 1, buffer.drain( sink, 3 ) );
+            assertEquals( 0, buffer.drain( sink, 3 ) );
+        }
+        for ( int i = 0; i < sink.size(); ++i ) {
+            assertEquals( Integer.valueOf( i ), sink.get( i ) );
+        }
+    }
+
+    @Test
+    public void testConcurrentProducers()
+                            throws InterruptedException {
+        final RequestLogRingBuffer<Integer> buffer = new RequestLogRingBuffer<Integer>( 64 );
+        final int producers = 4;
+        final int perProducer = 10000;
+        final AtomicInteger dropped = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch( producers );
+        for ( int p = 0; p < producers; ++p ) {
+            final int offset = p * perProducer;
+            new Thread() {
+                @Override
+                public void run() {
+                    for ( int i = 0; i < perProducer; ++i ) {
+                        if ( !buffer.offer( offset + i ) ) {
+                            dropped.incrementAndGet();
+                        }
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        Set<Integer> seen = new HashSet<Integer>();
+        List<Integer> sink = new ArrayList<Integer>();
+        while ( done.getCount() > 0 || buffer.size() > 0 ) {
+            sink.clear();
+            buffer.drain( sink, 16 );
+            for ( Integer i : sink ) {
+                assertTrue( "Element drained twice: " + i, seen.add( i ) );
+            }
+        }
+        assertEquals( producers * perProducer, seen.size() + dropped.get() );
+    }
+
+}
@@ -0,0 +1,136 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.wfs.format.geojson;
+
+/**
+ * Keeps track of the features of a GetFeature response page (<code>startIndex</code>/<code>count</code>) while the
+ * feature streams are consumed, and of the values for <code>numberReturned</code> and <code>numberMatched</code>.
+ * <p>
+ * The feature streams are expected to deliver (at least) one feature more than fits on the page, so truncation of the
+ * response can be detected.
+ * </p>
+ * 
+ * @since 3.4
+ */
+class FeaturePage {
+
+    private final int startIndex;
+
+    private final int maxFeatures;
+
+    private final int storeSkipped;
+
+    private int featuresSkipped;
+
+    private int featuresAdded;
+
+    private boolean truncated;
+
+    /**
+     * Creates a new {@link FeaturePage} instance.
+     * 
+     * @param startIndex
+     *            index of the first feature of the page (zero-based)
+     * @param maxFeatures
+     *            maximum number of features on the page, a value smaller than 1 means unlimited
+     * @param pagedByStore
+     *            <code>true</code>, if the feature stores skip the features before the page already (the streams
+     *            start with the first feature of the page), <code>false</code> if the streams start with the first
+     *            matching feature
+     */
+    FeaturePage( int startIndex, int maxFeatures, boolean pagedByStore ) {
+        this.startIndex = pagedByStore ? 0 : startIndex;
+        this.maxFeatures = maxFeatures;
+        this.storeSkipped = pagedByStore ? startIndex : 0;
+    }
+
+    /**
+     * Registers the next feature of the streams.
+     * 
+     * @return <code>true</code>, if the feature is on the page and must be written, <code>false</code> if it is
+     *         skipped (before the page) or beyond the page (see {@link #isTruncated()})
+     */
+    boolean add() {
+        if ( featuresAdded == maxFeatures ) {
+            truncated = true;
+            return false;
+        }
+        if ( featuresSkipped < startIndex ) {
+            featuresSkipped++;
+            return false;
+        }
+        featuresAdded++;
+        return true;
+    }
+
+    /**
+     * Returns whether the streams contain features beyond the page. No more features need to be added then.
+     * 
+     * @return <code>true</code>, if there are features beyond the page, <code>false</code> otherwise
+     */
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Returns the number of features on the page.
+     * 
+     * @return number of features on the page
+     */
+    int getNumberReturned() {
+        return featuresAdded;
+    }
+
+    /**
+     * Returns whether the total number of matching features is known from the consumed streams, i.e. whether no
+     * additional hits query is required.
+     * 
+     * @return <code>true</code>, if {@link #getNumberMatched()} is available, <code>false</code> otherwise
+     */
+    boolean isNumberMatchedKnown() {
+        // beyond the last page, the number of features skipped by the stores is unknown
+        return !truncated && !( storeSkipped > 0 && featuresAdded == 0 );
+    }
+
+    /**
+     * Returns the total number of matching features.
+     * 
+     * @return total number of matching features, only valid if {@link #isNumberMatchedKnown()} is <code>true</code>
+     */
+    int getNumberMatched() {
+        return storeSkipped + featuresSkipped + featuresAdded;
+    }
+
+}
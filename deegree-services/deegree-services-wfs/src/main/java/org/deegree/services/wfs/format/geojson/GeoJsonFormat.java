@@ -0,0 +1,149 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.wfs.format.geojson;
+
+import static org.deegree.commons.ows.exception.OWSException.OPTION_NOT_SUPPORTED;
+import static org.deegree.protocol.wfs.getfeature.ResultType.RESULTS;
+
+import org.deegree.commons.ows.exception.OWSException;
+import org.deegree.protocol.wfs.describefeaturetype.DescribeFeatureType;
+import org.deegree.protocol.wfs.getfeature.GetFeature;
+import org.deegree.protocol.wfs.getfeature.ResultType;
+import org.deegree.protocol.wfs.getgmlobject.GetGmlObject;
+import org.deegree.protocol.wfs.getpropertyvalue.GetPropertyValue;
+import org.deegree.services.controller.utils.HttpResponseBuffer;
+import org.deegree.services.wfs.WebFeatureService;
+import org.deegree.services.wfs.format.Format;
+
+/**
+ * {@link Format} implementation that streams <code>GetFeature</code> responses as GeoJSON (RFC 7946).
+ * <p>
+ * Only <code>GetFeature</code> requests are supported, other requests (including <code>GetFeatureWithLock</code>) for this
+ * format are answered with an <code>OptionNotSupported</code> exception.
+ * </p>
+ * 
+ * @see GeoJsonWriter
+ * 
+ * @since 3.4
+ */
+public class GeoJsonFormat implements Format {
+
+    /** Default mime type of GeoJSON responses. */
+    public static final String MIME_TYPE = "application/geo+json";
+
+    private final WebFeatureService master;
+
+    private final String mimeType;
+
+    private final int coordinatePrecision;
+
+    private final GeoJsonGetFeatureHandler gfHandler;
+
+    /**
+     * Creates a new {@link GeoJsonFormat} instance.
+     * 
+     * @param master
+     *            service that uses this format, must not be <code>null</code>
+     * @param formatDef
+     *            JAXB configuration options, must not be <code>null</code>
+     */
+    public GeoJsonFormat( WebFeatureService master, org.deegree.services.jaxb.wfs.GeoJSONFormat formatDef ) {
+        this.master = master;
+        this.mimeType = formatDef.getMimeType().isEmpty() ? MIME_TYPE : formatDef.getMimeType().get( 0 );
+        this.coordinatePrecision = formatDef.getCoordinatePrecision() != null ? formatDef.getCoordinatePrecision().intValue()
+                                                                             : -1;
+        this.gfHandler = new GeoJsonGetFeatureHandler( this );
+    }
+
+    @Override
+    public void destroy() {
+        // nothing to do
+    }
+
+    @Override
+    public void doDescribeFeatureType( DescribeFeatureType request, HttpResponseBuffer response )
+                            throws OWSException {
+        throw new OWSException( "DescribeFeatureType is not supported for output format '" + mimeType + "'.",
+                                OPTION_NOT_SUPPORTED, "outputFormat" );
+    }
+
+    @Override
+    public void doGetFeature( GetFeature request, HttpResponseBuffer response )
+                            throws Exception {
+        ResultType type = request.getPresentationParams().getResultType();
+        if ( type == RESULTS || type == null ) {
+            gfHandler.doGetFeatureResults( request, response );
+        } else {
+            gfHandler.doGetFeatureHits( request, response );
+        }
+    }
+
+    @Override
+    public void doGetGmlObject( GetGmlObject request, HttpResponseBuffer response )
+                            throws OWSException {
+        throw new OWSException( "GetGmlObject is not supported for output format '" + mimeType + "'.",
+                                OPTION_NOT_SUPPORTED, "outputFormat" );
+    }
+
+    @Override
+    public void doGetPropertyValue( GetPropertyValue request, HttpResponseBuffer response )
+                            throws OWSException {
+        throw new OWSException( "GetPropertyValue is not supported for output format '" + mimeType + "'.",
+                                OPTION_NOT_SUPPORTED, "outputFormat" );
+    }
+
+    /**
+     * Returns the service instance that uses this format.
+     * 
+     * @return service that uses this format, never <code>null</code>
+     */
+    public WebFeatureService getMaster() {
+        return master;
+    }
+
+    /**
+     * @return the mime type of the responses, never <code>null</code>
+     */
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    /**
+     * @return the maximum number of decimal places for coordinates, -1 for full precision
+     */
+    public int getCoordinatePrecision() {
+        return coordinatePrecision;
+    }
+}
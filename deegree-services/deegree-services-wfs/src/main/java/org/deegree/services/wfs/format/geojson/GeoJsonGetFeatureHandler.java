@@ -0,0 +1,236 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.wfs.format.geojson;
+
+import static org.deegree.commons.ows.exception.OWSException.OPTION_NOT_SUPPORTED;
+import static org.deegree.commons.tom.datetime.ISO8601Converter.formatDateTime;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.metrics.Metrics;
+import org.deegree.commons.ows.exception.OWSException;
+import org.deegree.commons.tom.datetime.DateTime;
+import org.deegree.cs.coordinatesystems.GeographicCRS;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.feature.Feature;
+import org.deegree.feature.persistence.FeatureStore;
+import org.deegree.feature.persistence.query.Query;
+import org.deegree.feature.stream.FeatureInputStream;
+import org.deegree.feature.stream.TimedFeatureInputStream;
+import org.deegree.filter.projection.ProjectionClause;
+import org.deegree.filter.projection.PropertyName;
+import org.deegree.protocol.wfs.getfeature.GetFeature;
+import org.deegree.protocol.wfs.getfeaturewithlock.GetFeatureWithLock;
+import org.deegree.services.controller.utils.HttpResponseBuffer;
+import org.deegree.services.wfs.query.QueryAnalyzer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Handles {@link GetFeature} requests for the {@link GeoJsonFormat}.
+ * <p>
+ * Features are written directly from the {@link FeatureInputStream}s of the feature stores. As the number of matching
+ * features is only known after streaming, <code>numberReturned</code> and <code>numberMatched</code> are written as last
+ * members of the collection object. If the response has been truncated (count/maximum number of features), the number
+ * of matched features is determined by an additional hits query.
+ * </p>
+ * 
+ * @since 3.4
+ */
+class GeoJsonGetFeatureHandler {
+
+    private static final Logger LOG = LoggerFactory.getLogger( GeoJsonGetFeatureHandler.class );
+
+    private static final TimeZone GMT = TimeZone.getTimeZone( "GMT" );
+
+    private final GeoJsonFormat format;
+
+    GeoJsonGetFeatureHandler( GeoJsonFormat format ) {
+        this.format = format;
+    }
+
+    void doGetFeatureResults( GetFeature request, HttpResponseBuffer response )
+                            throws Exception {
+
+        LOG.debug( "Performing GetFeature (results) request." );
+
+        QueryAnalyzer analyzer = createAnalyzer( request );
+
+        int maxFeatures = format.getMaster().getQueryMaxFeatures();
+        if ( request.getPresentationParams().getCount() != null
+             && ( maxFeatures < 1 || request.getPresentationParams().getCount().intValue() < maxFeatures ) ) {
+            maxFeatures = request.getPresentationParams().getCount().intValue();
+        }
+        int startIndex = 0;
+        if ( request.getPresentationParams().getStartIndex() != null ) {
+            startIndex = request.getPresentationParams().getStartIndex().intValue();
+        }
+        // fetch one more feature than requested to detect truncation
+        boolean pagedByStore = analyzer.pushDownPaging( startIndex, maxFeatures, 1 );
+        FeaturePage page = new FeaturePage( startIndex, maxFeatures, pagedByStore );
+
+        ICRS requestedCrs = analyzer.getRequestedCRS();
+        ICRS outputCrs = requestedCrs != null ? requestedCrs : GeographicCRS.WGS84;
+        Set<QName> propNames = getPropertyNames( analyzer.getProjections() );
+
+        Writer writer = openWriter( response );
+        GeoJsonWriter json = new GeoJsonWriter( writer, outputCrs, format.getCoordinatePrecision() );
+        json.beginObject();
+        json.name( "type" ).value( "FeatureCollection" );
+        if ( requestedCrs != null && !GeographicCRS.WGS84.equals( requestedCrs ) ) {
+            json.name( "crs" ).beginObject();
+            json.name( "type" ).value( "name" );
+            json.name( "properties" ).beginObject().name( "name" ).value( requestedCrs.getAlias() ).endObject();
+            json.endObject();
+        }
+        json.name( "features" ).beginArray();
+
+        for ( Map.Entry<FeatureStore, List<Query>> fsToQueries : analyzer.getQueries().entrySet() ) {
+            if ( page.isTruncated() ) {
+                break;
+            }
+            FeatureStore fs = fsToQueries.getKey();
+            Query[] queries = fsToQueries.getValue().toArray( new Query[fsToQueries.getValue().size()] );
+            long queryStart = System.nanoTime();
+            FeatureInputStream rs = fs.query( queries );
+            Metrics.addDataAccessTime( System.nanoTime() - queryStart );
+            // features are fetched while iterating
+            rs = new TimedFeatureInputStream( rs, Metrics.getRequestDataAccess() );
+            try {
+                for ( Feature member : rs ) {
+                    if ( page.add() ) {
+                        json.writeFeature( member, propNames );
+                    } else if ( page.isTruncated() ) {
+                        break;
+                    }
+                }
+            } finally {
+                LOG.debug( "Closing FeatureResultSet (stream)" );
+                rs.close();
+            }
+        }
+        json.endArray();
+
+        int numberMatched = page.isNumberMatchedKnown() ? page.getNumberMatched() : queryHits( analyzer );
+        json.name( "numberMatched" ).value( numberMatched );
+        json.name( "numberReturned" ).value( page.getNumberReturned() );
+        json.name( "timeStamp" ).value( getTimestamp() );
+        json.endObject();
+        json.flush();
+    }
+
+    void doGetFeatureHits( GetFeature request, HttpResponseBuffer response )
+                            throws Exception {
+
+        LOG.debug( "Performing GetFeature (hits) request." );
+
+        QueryAnalyzer analyzer = createAnalyzer( request );
+        int hits = queryHits( analyzer );
+
+        Writer writer = openWriter( response );
+        GeoJsonWriter json = new GeoJsonWriter( writer, null, format.getCoordinatePrecision() );
+        json.beginObject();
+        json.name( "type" ).value( "FeatureCollection" );
+        json.name( "features" ).beginArray().endArray();
+        json.name( "numberMatched" ).value( hits );
+        json.name( "numberReturned" ).value( 0 );
+        json.name( "timeStamp" ).value( getTimestamp() );
+        json.endObject();
+        json.flush();
+    }
+
+    private QueryAnalyzer createAnalyzer( GetFeature request )
+                            throws OWSException {
+        if ( request instanceof GetFeatureWithLock ) {
+            throw new OWSException( "GetFeatureWithLock is not supported for output format '" + format.getMimeType()
+                                    + "'.", OPTION_NOT_SUPPORTED, "outputFormat" );
+        }
+        return new QueryAnalyzer( request.getQueries(), format.getMaster(), format.getMaster().getStoreManager(),
+                                  format.getMaster().getCheckAreaOfUse() );
+    }
+
+    private int queryHits( QueryAnalyzer analyzer )
+                            throws Exception {
+        int hits = 0;
+        for ( Map.Entry<FeatureStore, List<Query>> fsToQueries : analyzer.getQueries().entrySet() ) {
+            FeatureStore fs = fsToQueries.getKey();
+            Query[] queries = fsToQueries.getValue().toArray( new Query[fsToQueries.getValue().size()] );
+            long queryStart = System.nanoTime();
+            for ( int singleHits : fs.queryHits( queries ) ) {
+                hits += singleHits;
+            }
+            Metrics.addDataAccessTime( System.nanoTime() - queryStart );
+        }
+        return hits;
+    }
+
+    private Set<QName> getPropertyNames( List<ProjectionClause> projections ) {
+        if ( projections == null || projections.isEmpty() ) {
+            return null;
+        }
+        Set<QName> propNames = new HashSet<QName>();
+        for ( ProjectionClause clause : projections ) {
+            if ( clause instanceof PropertyName ) {
+                QName name = ( (PropertyName) clause ).getPropertyName().getAsQName();
+                if ( name != null ) {
+                    propNames.add( name );
+                }
+            }
+        }
+        return propNames.isEmpty() ? null : propNames;
+    }
+
+    private Writer openWriter( HttpResponseBuffer response )
+                            throws Exception {
+        response.setCharacterEncoding( "UTF-8" );
+        response.setContentType( format.getMimeType() );
+        return new BufferedWriter( new OutputStreamWriter( response.getOutputStream(), "UTF-8" ) );
+    }
+
+    private static String getTimestamp() {
+        long msSince1970 = new Date().getTime() / 1000 * 1000;
+        return formatDateTime( new DateTime( new Date( msSince1970 ), GMT ) );
+    }
+}
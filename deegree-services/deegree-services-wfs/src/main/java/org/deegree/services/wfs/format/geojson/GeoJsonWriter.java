@@ -0,0 +1,745 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.wfs.format.geojson;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.tom.ElementNode;
+import org.deegree.commons.tom.Reference;
+import org.deegree.commons.tom.TypedObjectNode;
+import org.deegree.commons.tom.gml.property.Property;
+import org.deegree.commons.tom.gml.property.PropertyType;
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.feature.Feature;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.Geometry;
+import org.deegree.geometry.GeometryTransformer;
+import org.deegree.geometry.linearization.GeometryLinearizer;
+import org.deegree.geometry.linearization.NumPointsCriterion;
+import org.deegree.geometry.multi.MultiCurve;
+import org.deegree.geometry.multi.MultiGeometry;
+import org.deegree.geometry.multi.MultiPoint;
+import org.deegree.geometry.multi.MultiSurface;
+import org.deegree.geometry.points.Points;
+import org.deegree.geometry.primitive.Curve;
+import org.deegree.geometry.primitive.Point;
+import org.deegree.geometry.primitive.Surface;
+import org.slf4j.Logger;
+
+/**
+ * Streams {@link Feature}s and {@link Geometry}s as GeoJSON (RFC 7946) to a {@link Writer}.
+ * <p>
+ * Nothing is buffered except for the current nesting state, so memory usage does not depend on the number or size of
+ * the written features. Geometries are transformed to the output CRS on the fly, coordinates are written with a fixed
+ * maximum number of decimal places (if configured). Instances are not thread-safe.
+ * </p>
+ * 
+ * @since 3.4
+ */
+public class GeoJsonWriter {
+
+    private static final Logger LOG = getLogger( GeoJsonWriter.class );
+
+    private static final long[] POW10 = new long[19];
+
+    static {
+        POW10[0] = 1;
+        for ( int i = 1; i < POW10.length; i++ ) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    // largest scaled value that can be rounded exactly to a long
+    private static final double MAX_SCALED = 9.0E15;
+
+    private final Writer writer;
+
+    private final int precision;
+
+    private final GeometryTransformer transformer;
+
+    private final ICRS outputCrs;
+
+    private final char[] digits = new char[20];
+
+    // nesting state: true, if the current object/array already has a member
+    private boolean[] hasMember = new boolean[32];
+
+    private int depth;
+
+    private boolean afterName;
+
+    private GeometryLinearizer linearizer;
+
+    /**
+     * Creates a new {@link GeoJsonWriter} instance.
+     * 
+     * @param writer
+     *            sink for the JSON output, must not be <code>null</code>
+     * @param outputCrs
+     *            CRS to transform geometries to, can be <code>null</code> (no transformation)
+     * @param precision
+     *            maximum number of decimal places for coordinates (0-18), -1 for full precision
+     */
+    public GeoJsonWriter( Writer writer, ICRS outputCrs, int precision ) {
+        this.writer = writer;
+        this.outputCrs = outputCrs;
+        this.precision = Math.min( precision, POW10.length - 1 );
+        this.transformer = outputCrs != null ? new GeometryTransformer( outputCrs ) : null;
+    }
+
+    /**
+     * Starts a JSON object.
+     */
+    public GeoJsonWriter beginObject()
+                            throws IOException {
+        beforeValue();
+        push();
+        writer.write( '{' );
+        return this;
+    }
+
+    /**
+     * Ends the current JSON object.
+     */
+    public GeoJsonWriter endObject()
+                            throws IOException {
+        depth--;
+        writer.write( '}' );
+        return this;
+    }
+
+    /**
+     * Starts a JSON array.
+     */
+    public GeoJsonWriter beginArray()
+                            throws IOException {
+        beforeValue();
+        push();
+        writer.write( '[' );
+        return this;
+    }
+
+    /**
+     * Ends the current JSON array.
+     */
+    public GeoJsonWriter endArray()
+                            throws IOException {
+        depth--;
+        writer.write( ']' );
+        return this;
+    }
+
+    /**
+     * Writes the name of the next member of the current object.
+     * 
+     * @param name
+     *            member name, must not be <code>null</code>
+     */
+    public GeoJsonWriter name( String name )
+                            throws IOException {
+        if ( hasMember[depth] ) {
+            writer.write( ',' );
+        }
+        hasMember[depth] = true;
+        writeString( name );
+        writer.write( ':' );
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * Writes a string value (or <code>null</code>).
+     */
+    public GeoJsonWriter value( String value )
+                            throws IOException {
+        if ( value == null ) {
+            return nullValue();
+        }
+        beforeValue();
+        writeString( value );
+        return this;
+    }
+
+    /**
+     * Writes an integer value.
+     */
+    public GeoJsonWriter value( long value )
+                            throws IOException {
+        beforeValue();
+        writer.write( Long.toString( value ) );
+        return this;
+    }
+
+    /**
+     * Writes a boolean value.
+     */
+    public GeoJsonWriter value( boolean value )
+                            throws IOException {
+        beforeValue();
+        writer.write( value ? "true" : "false" );
+        return this;
+    }
+
+    /**
+     * Writes a number value (<code>null</code> for NaN and infinite values).
+     */
+    public GeoJsonWriter value( Number value )
+                            throws IOException {
+        if ( value == null ) {
+            return nullValue();
+        }
+        if ( value instanceof Double || value instanceof Float ) {
+            double d = value.doubleValue();
+            if ( Double.isNaN( d ) || Double.isInfinite( d ) ) {
+                return nullValue();
+            }
+        }
+        beforeValue();
+        writer.write( value.toString() );
+        return this;
+    }
+
+    /**
+     * Writes a <code>null</code> value.
+     */
+    public GeoJsonWriter nullValue()
+                            throws IOException {
+        beforeValue();
+        writer.write( "null" );
+        return this;
+    }
+
+    /**
+     * Flushes the underlying writer.
+     */
+    public void flush()
+                            throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * Writes the given feature as GeoJSON <code>Feature</code> object. The first geometry property becomes the
+     * <code>geometry</code> of the GeoJSON feature, all other properties are written as <code>properties</code>.
+     * 
+     * @param feature
+     *            feature to be written, must not be <code>null</code>
+     * @param propNames
+     *            names of the properties to be written, can be <code>null</code> (all properties)
+     */
+    public void writeFeature( Feature feature, Set<QName> propNames )
+                            throws Exception {
+        Property geometryProp = null;
+        for ( Property prop : feature.getGeometryProperties() ) {
+            if ( isIncluded( prop, propNames ) ) {
+                geometryProp = prop;
+                break;
+            }
+        }
+
+        beginObject();
+        name( "type" ).value( "Feature" );
+        if ( feature.getId() != null ) {
+            name( "id" ).value( feature.getId() );
+        }
+        name( "geometry" );
+        if ( geometryProp != null ) {
+            writeGeometry( (Geometry) geometryProp.getValue() );
+        } else {
+            nullValue();
+        }
+        name( "properties" );
+        writeProperties( feature, propNames, geometryProp );
+        endObject();
+    }
+
+    private boolean isIncluded( Property prop, Set<QName> propNames ) {
+        if ( propNames == null || propNames.contains( prop.getName() ) ) {
+            return true;
+        }
+        // property names in the request may be unqualified
+        return propNames.contains( new QName( prop.getName().getLocalPart() ) );
+    }
+
+    private void writeProperties( Feature feature, Set<QName> propNames, Property skip )
+                            throws Exception {
+        beginObject();
+        Set<QName> written = new HashSet<QName>();
+        for ( Property prop : feature.getProperties() ) {
+            if ( prop == skip || !isIncluded( prop, propNames ) || written.contains( prop.getName() ) ) {
+                continue;
+            }
+            PropertyType pt = prop.getType();
+            name( prop.getName().getLocalPart() );
+            if ( pt != null && pt.getMaxOccurs() == 1 ) {
+                writePropertyValue( prop );
+            } else {
+                // multi-valued property: write all occurrences as array
+                written.add( prop.getName() );
+                beginArray();
+                for ( Property occurrence : feature.getProperties( prop.getName() ) ) {
+                    if ( occurrence != skip ) {
+                        writePropertyValue( occurrence );
+                    }
+                }
+                endArray();
+            }
+        }
+        endObject();
+    }
+
+    private void writePropertyValue( Property prop )
+                            throws Exception {
+        TypedObjectNode value = prop.getValue();
+        if ( value == null ) {
+            List<TypedObjectNode> children = prop.getChildren();
+            if ( ( children != null && !children.isEmpty() ) || !isEmpty( prop.getAttributes() ) ) {
+                writeElementContent( prop );
+            } else {
+                nullValue();
+            }
+            return;
+        }
+        writeValue( value );
+    }
+
+    private void writeValue( TypedObjectNode node )
+                            throws Exception {
+        if ( node == null ) {
+            nullValue();
+        } else if ( node instanceof Reference<?> ) {
+            value( ( (Reference<?>) node ).getURI() );
+        } else if ( node instanceof PrimitiveValue ) {
+            writePrimitive( (PrimitiveValue) node );
+        } else if ( node instanceof Geometry ) {
+            writeGeometry( (Geometry) node );
+        } else if ( node instanceof Feature ) {
+            writeFeature( (Feature) node, null );
+        } else if ( node instanceof ElementNode ) {
+            writeElementContent( (ElementNode) node );
+        } else {
+            value( node.toString() );
+        }
+    }
+
+    private void writePrimitive( PrimitiveValue pv )
+                            throws IOException {
+        Object o = pv.getValue();
+        if ( o instanceof Boolean ) {
+            value( ( (Boolean) o ).booleanValue() );
+        } else if ( o instanceof Number ) {
+            value( (Number) o );
+        } else {
+            value( pv.getAsText() );
+        }
+    }
+
+    /**
+     * Writes generic XML content as object: attributes as "@name" members, child elements (grouped by name) as members
+     * and text as "#text" member. Elements that only contain text are written as plain value.
+     */
+    private void writeElementContent( ElementNode el )
+                            throws Exception {
+        Map<QName, PrimitiveValue> attrs = el.getAttributes();
+        List<TypedObjectNode> children = el.getChildren();
+        if ( isEmpty( attrs ) && children != null && children.size() == 1
+             && !( children.get( 0 ) instanceof ElementNode ) ) {
+            writeValue( children.get( 0 ) );
+            return;
+        }
+        beginObject();
+        if ( attrs != null ) {
+            for ( Map.Entry<QName, PrimitiveValue> attr : attrs.entrySet() ) {
+                name( "@" + attr.getKey().getLocalPart() );
+                writePrimitive( attr.getValue() );
+            }
+        }
+        if ( children != null ) {
+            Map<String, List<TypedObjectNode>> nameToChildren = new LinkedHashMap<String, List<TypedObjectNode>>();
+            StringBuilder text = null;
+            for ( TypedObjectNode child : children ) {
+                if ( child instanceof ElementNode && !( child instanceof Feature ) ) {
+                    String name = ( (ElementNode) child ).getName().getLocalPart();
+                    List<TypedObjectNode> list = nameToChildren.get( name );
+                    if ( list == null ) {
+                        list = new ArrayList<TypedObjectNode>( 1 );
+                        nameToChildren.put( name, list );
+                    }
+                    list.add( child );
+                } else if ( child instanceof PrimitiveValue ) {
+                    String s = ( (PrimitiveValue) child ).getAsText().trim();
+                    if ( !s.isEmpty() ) {
+                        text = text == null ? new StringBuilder( s ) : text.append( s );
+                    }
+                } else if ( child != null ) {
+                    List<TypedObjectNode> list = nameToChildren.get( "" );
+                    if ( list == null ) {
+                        list = new ArrayList<TypedObjectNode>( 1 );
+                        nameToChildren.put( "", list );
+                    }
+                    list.add( child );
+                }
+            }
+            for ( Map.Entry<String, List<TypedObjectNode>> entry : nameToChildren.entrySet() ) {
+                name( entry.getKey().isEmpty() ? "#value" : entry.getKey() );
+                List<TypedObjectNode> values = entry.getValue();
+                if ( values.size() == 1 ) {
+                    writeValue( values.get( 0 ) );
+                } else {
+                    beginArray();
+                    for ( TypedObjectNode value : values ) {
+                        writeValue( value );
+                    }
+                    endArray();
+                }
+            }
+            if ( text != null ) {
+                name( "#text" ).value( text.toString() );
+            }
+        }
+        endObject();
+    }
+
+    private static boolean isEmpty( Map<?, ?> map ) {
+        return map == null || map.isEmpty();
+    }
+
+    /**
+     * Writes the given geometry as GeoJSON geometry object (transformed to the output CRS).
+     * 
+     * @param geom
+     *            geometry to be written, can be <code>null</code>
+     */
+    public void writeGeometry( Geometry geom )
+                            throws Exception {
+        if ( geom == null ) {
+            nullValue();
+            return;
+        }
+        if ( transformer != null && geom.getCoordinateSystem() != null
+             && !outputCrs.equals( geom.getCoordinateSystem() ) ) {
+            geom = transformer.transform( geom );
+        }
+        writeTransformedGeometry( geom );
+    }
+
+    private void writeTransformedGeometry( Geometry geom )
+                            throws Exception {
+        if ( geom instanceof Point ) {
+            beginObject();
+            name( "type" ).value( "Point" );
+            name( "coordinates" );
+            writePosition( (Point) geom );
+            endObject();
+        } else if ( geom instanceof Curve ) {
+            beginObject();
+            name( "type" ).value( "LineString" );
+            name( "coordinates" );
+            writePoints( getControlPoints( (Curve) geom ) );
+            endObject();
+        } else if ( geom instanceof Surface ) {
+            beginObject();
+            name( "type" ).value( "Polygon" );
+            name( "coordinates" );
+            writeRings( (Surface) geom );
+            endObject();
+        } else if ( geom instanceof Envelope ) {
+            Envelope env = (Envelope) geom;
+            double[] min = env.getMin().getAsArray();
+            double[] max = env.getMax().getAsArray();
+            beginObject();
+            name( "type" ).value( "Polygon" );
+            name( "coordinates" );
+            beginArray();
+            beginArray();
+            writePosition( min[0], min[1] );
+            writePosition( max[0], min[1] );
+            writePosition( max[0], max[1] );
+            writePosition( min[0], max[1] );
+            writePosition( min[0], min[1] );
+            endArray();
+            endArray();
+            endObject();
+        } else if ( geom instanceof MultiPoint ) {
+            beginObject();
+            name( "type" ).value( "MultiPoint" );
+            name( "coordinates" );
+            beginArray();
+            for ( Point p : (MultiPoint) geom ) {
+                writePosition( p );
+            }
+            endArray();
+            endObject();
+        } else if ( geom instanceof MultiCurve<?> ) {
+            beginObject();
+            name( "type" ).value( "MultiLineString" );
+            name( "coordinates" );
+            beginArray();
+            for ( Curve c : (MultiCurve<?>) geom ) {
+                writePoints( getControlPoints( c ) );
+            }
+            endArray();
+            endObject();
+        } else if ( geom instanceof MultiSurface<?> ) {
+            beginObject();
+            name( "type" ).value( "MultiPolygon" );
+            name( "coordinates" );
+            beginArray();
+            for ( Surface s : (MultiSurface<?>) geom ) {
+                writeRings( s );
+            }
+            endArray();
+            endObject();
+        } else if ( geom instanceof MultiGeometry<?> ) {
+            beginObject();
+            name( "type" ).value( "GeometryCollection" );
+            name( "geometries" );
+            beginArray();
+            for ( Geometry member : (MultiGeometry<?>) geom ) {
+                writeTransformedGeometry( member );
+            }
+            endArray();
+            endObject();
+        } else {
+            LOG.warn( "Geometry type '{}' cannot be represented in GeoJSON.", geom.getClass().getSimpleName() );
+            nullValue();
+        }
+    }
+
+    private Points getControlPoints( Curve curve ) {
+        try {
+            return curve.getControlPoints();
+        } catch ( IllegalArgumentException e ) {
+            // non-linear segments
+            return getLinearizer().linearize( curve, new NumPointsCriterion( 32 ) ).getControlPoints();
+        }
+    }
+
+    private void writeRings( Surface surface )
+                            throws IOException {
+        Points exterior;
+        List<Points> interiors;
+        try {
+            exterior = surface.getExteriorRingCoordinates();
+            interiors = surface.getInteriorRingsCoordinates();
+        } catch ( IllegalArgumentException e ) {
+            // non-linear segments
+            Surface linearized = getLinearizer().linearize( surface, new NumPointsCriterion( 32 ) );
+            exterior = linearized.getExteriorRingCoordinates();
+            interiors = linearized.getInteriorRingsCoordinates();
+        }
+        beginArray();
+        writePoints( exterior );
+        if ( interiors != null ) {
+            for ( Points interior : interiors ) {
+                writePoints( interior );
+            }
+        }
+        endArray();
+    }
+
+    private GeometryLinearizer getLinearizer() {
+        if ( linearizer == null ) {
+            linearizer = new GeometryLinearizer();
+        }
+        return linearizer;
+    }
+
+    private void writePoints( Points points )
+                            throws IOException {
+        beginArray();
+        int dim = points.getDimension();
+        for ( int i = 0; i < points.size(); i++ ) {
+            Point p = points.get( i );
+            beforeValue();
+            writer.write( '[' );
+            writeCoordinate( p.get0() );
+            writer.write( ',' );
+            writeCoordinate( p.get1() );
+            if ( dim > 2 && !Double.isNaN( p.get2() ) ) {
+                writer.write( ',' );
+                writeCoordinate( p.get2() );
+            }
+            writer.write( ']' );
+        }
+        endArray();
+    }
+
+    private void writePosition( Point p )
+                            throws IOException {
+        beforeValue();
+        writer.write( '[' );
+        writeCoordinate( p.get0() );
+        writer.write( ',' );
+        writeCoordinate( p.get1() );
+        if ( p.getCoordinateDimension() > 2 && !Double.isNaN( p.get2() ) ) {
+            writer.write( ',' );
+            writeCoordinate( p.get2() );
+        }
+        writer.write( ']' );
+    }
+
+    private void writePosition( double x, double y )
+                            throws IOException {
+        beforeValue();
+        writer.write( '[' );
+        writeCoordinate( x );
+        writer.write( ',' );
+        writeCoordinate( y );
+        writer.write( ']' );
+    }
+
+    /**
+     * Writes a single ordinate, rounded to the configured precision (without trailing zeros and without creating
+     * intermediate strings).
+     */
+    void writeCoordinate( double value )
+                            throws IOException {
+        if ( Double.isNaN( value ) || Double.isInfinite( value ) ) {
+            writer.write( "null" );
+            return;
+        }
+        if ( precision < 0 ) {
+            writer.write( Double.toString( value ) );
+            return;
+        }
+        long scale = POW10[precision];
+        double scaled = Math.abs( value ) * scale;
+        if ( scaled >= MAX_SCALED ) {
+            writer.write( Double.toString( value ) );
+            return;
+        }
+        long rounded = Math.round( scaled );
+        if ( rounded == 0 ) {
+            writer.write( '0' );
+            return;
+        }
+        if ( value < 0 ) {
+            writer.write( '-' );
+        }
+        long intPart = rounded / scale;
+        long fraction = rounded % scale;
+        writeDigits( intPart, 0 );
+        if ( fraction != 0 ) {
+            int places = precision;
+            while ( fraction % 10 == 0 ) {
+                fraction /= 10;
+                places--;
+            }
+            writer.write( '.' );
+            writeDigits( fraction, places );
+        }
+    }
+
+    private void writeDigits( long value, int minDigits )
+                            throws IOException {
+        int pos = digits.length;
+        do {
+            digits[--pos] = (char) ( '0' + ( value % 10 ) );
+            value /= 10;
+        } while ( value != 0 );
+        while ( digits.length - pos < minDigits ) {
+            digits[--pos] = '0';
+        }
+        writer.write( digits, pos, digits.length - pos );
+    }
+
+    private void beforeValue()
+                            throws IOException {
+        if ( afterName ) {
+            afterName = false;
+            return;
+        }
+        if ( depth > 0 ) {
+            if ( hasMember[depth] ) {
+                writer.write( ',' );
+            }
+            hasMember[depth] = true;
+        }
+    }
+
+    private void push() {
+        depth++;
+        if ( depth == hasMember.length ) {
+            boolean[] grown = new boolean[depth * 2];
+            System.arraycopy( hasMember, 0, grown, 0, depth );
+            hasMember = grown;
+        }
+        hasMember[depth] = false;
+    }
+
+    private void writeString( String s )
+                            throws IOException {
+        writer.write( '"' );
+        int start = 0;
+        int len = s.length();
+        for ( int i = 0; i < len; i++ ) {
+            char c = s.charAt( i );
+            String replacement = null;
+            if ( c == '"' ) {
+                replacement = "\\\"";
+            } else if ( c == '\\' ) {
+                replacement = "\\\\";
+            } else if ( c == '\n' ) {
+                replacement = "\\n";
+            } else if ( c == '\r' ) {
+                replacement = "\\r";
+            } else if ( c == '\t' ) {
+                replacement = "\\t";
+            } else if ( c < 0x20 || c == '\u2028' || c == '\u2029' ) {
+                replacement = String.format( "\\u%04x", (int) c );
+            }
+            if ( replacement != null ) {
+                writer.write( s, start, i - start );
+                writer.write( replacement );
+                start = i + 1;
+            }
+        }
+        writer.write( s, start, len - start );
+        writer.write( '"' );
+    }
+}
@@ -69,6 +69,7 @@ import javax.xml.stream.FactoryConfigurationError;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 
+import org.deegree.commons.metrics.Metrics;
 import org.deegree.commons.ows.exception.OWSException;
 import org.deegree.commons.tom.ResolveParams;
 import org.deegree.commons.tom.datetime.DateTime;
@@ -85,6 +86,7 @@ import org.deegree.feature.persistence.lock.Lock;
 import org.deegree.feature.persistence.lock.LockManager;
 import org.deegree.feature.persistence.query.Query;
 import org.deegree.feature.stream.FeatureInputStream;
+import org.deegree.feature.stream.TimedFeatureInputStream;
 import org.deegree.filter.FilterEvaluationException;
 import org.deegree.filter.projection.ProjectionClause;
 import org.deegree.filter.projection.PropertyName;
@@ -250,6 +252,10 @@ public class GmlGetFeatureHandler extends AbstractGmlRequestHandler {
         if ( request.getPresentationParams().getStartIndex() != null ) {
             startIndex = request.getPresentationParams().getStartIndex().intValue();
         }
+        if ( !isGetFeatureById && lock == null && analyzer.pushDownPaging( startIndex, returnMaxFeatures ) ) {
+            // skipping already performed by the feature store
+            startIndex = 0;
+        }
 
         GMLStreamWriter gmlStream = createGMLStreamWriter( gmlVersion, xmlStream );
         gmlStream.setProjections( analyzer.getProjections() );
@@ -324,7 +330,9 @@ public class GmlGetFeatureHandler extends AbstractGmlRequestHandler {
         for ( Map.Entry<FeatureStore, List<Query>> fsToQueries : analyzer.getQueries().entrySet() ) {
             FeatureStore fs = fsToQueries.getKey();
             Query[] queries = fsToQueries.getValue().toArray( new Query[fsToQueries.getValue().size()] );
+            long queryStart = System.nanoTime();
             int[] hits = fs.queryHits( queries );
+            Metrics.addDataAccessTime( System.nanoTime() - queryStart );
 
             // map the hits from the feature store back to the original query sequence
             for ( int j = 0; j < hits.length; j++ ) {
@@ -419,7 +427,11 @@ public class GmlGetFeatureHandler extends AbstractGmlRequestHandler {
         for ( Map.Entry<FeatureStore, List<Query>> fsToQueries : analyzer.getQueries().entrySet() ) {
             FeatureStore fs = fsToQueries.getKey();
             Query[] queries = fsToQueries.getValue().toArray( new Query[fsToQueries.getValue().size()] );
+            long queryStart = System.nanoTime();
             FeatureInputStream rs = fs.query( queries );
+            Metrics.addDataAccessTime( System.nanoTime() - queryStart );
+            // features are fetched while iterating
+            rs = new TimedFeatureInputStream( rs, Metrics.getRequestDataAccess() );
             try {
                 for ( Feature member : rs ) {
                     if ( lock != null && !lock.isLocked( member.getId() ) ) {
@@ -458,7 +470,11 @@ public class GmlGetFeatureHandler extends AbstractGmlRequestHandler {
         for ( Map.Entry<FeatureStore, List<Query>> fsToQueries : analyzer.getQueries().entrySet() ) {
             FeatureStore fs = fsToQueries.getKey();
             Query[] queries = fsToQueries.getValue().toArray( new Query[fsToQueries.getValue().size()] );
+            long queryStart = System.nanoTime();
             FeatureInputStream rs = fs.query( queries );
+            Metrics.addDataAccessTime( System.nanoTime() - queryStart );
+            // features are fetched while iterating
+            rs = new TimedFeatureInputStream( rs, Metrics.getRequestDataAccess() );
             try {
                 for ( Feature feature : rs ) {
                     if ( lock != null && !lock.isLocked( feature.getId() ) ) {
@@ -632,7 +648,11 @@ public class GmlGetFeatureHandler extends AbstractGmlRequestHandler {
         for ( Map.Entry<FeatureStore, List<Query>> fsToQueries : analyzer.getQueries().entrySet() ) {
             FeatureStore fs = fsToQueries.getKey();
             Query[] queries = fsToQueries.getValue().toArray( new Query[fsToQueries.getValue().size()] );
+            long queryStart = System.nanoTime();
             FeatureInputStream rs = fs.query( queries );
+            Metrics.addDataAccessTime( System.nanoTime() - queryStart );
+            // features are fetched while iterating
+            rs = new TimedFeatureInputStream( rs, Metrics.getRequestDataAccess() );
             try {
                 for ( Feature feature : rs ) {
                     if ( !fids.contains( feature.getId() ) ) {
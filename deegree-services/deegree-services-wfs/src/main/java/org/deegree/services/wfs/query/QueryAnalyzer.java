@@ -311,6 +311,61 @@ public class QueryAnalyzer {
         return fsToQueries;
     }
 
+    /**
+     * Hands the given paging parameters over to the feature store, if the request results in a single query to a store
+     * that applies them itself (see {@link FeatureStore#isMaxFeaturesAndStartIndexApplicable(Query[])}).
+     *
+     * @param startIndex
+     *            number of features to skip, must not be negative
+     * @param maxFeatures
+     *            maximum number of features to return, -1 (or any value less than 1) for no limit
+     * @return <code>true</code>, if the store performs the paging (the returned features must not be skipped or limited
+     *         again), <code>false</code> otherwise
+     */
+    public boolean pushDownPaging( int startIndex, int maxFeatures ) {
+        return pushDownPaging( startIndex, maxFeatures, 0 );
+    }
+
+    /**
+     * Hands the given paging parameters over to the feature store, if the request results in a single query to a store
+     * that applies them itself (see {@link FeatureStore#isMaxFeaturesAndStartIndexApplicable(Query[])}).
+     * 
+     * @param startIndex
+     *            number of features to skip, must not be negative
+     * @param maxFeatures
+     *            size of the page, -1 (or any value less than 1) for no limit
+     * @param lookAhead
+     *            number of features to return beyond the page (only if the page size is limited), must not be negative
+     * @return <code>true</code>, if the store performs the paging (the returned features must not be skipped or limited
+     *         again), <code>false</code> otherwise
+     */
+    public boolean pushDownPaging( int startIndex, int maxFeatures, int lookAhead ) {
+        if ( fsToQueries.size() != 1 ) {
+            return false;
+        }
+        Entry<FeatureStore, List<Query>> fsToQuery = fsToQueries.entrySet().iterator().next();
+        List<Query> queries = fsToQuery.getValue();
+        if ( queries.size() != 1 ) {
+            return false;
+        }
+        if ( !fsToQuery.getKey().isMaxFeaturesAndStartIndexApplicable( queries.toArray( new Query[1] ) ) ) {
+            return false;
+        }
+        Query query = queries.get( 0 );
+        query.setStartIndex( startIndex );
+        query.setPaged( startIndex > 0 || maxFeatures > 0 );
+        if ( maxFeatures > 0 ) {
+            query.setMaxFeatures( maxFeatures + lookAhead );
+            query.setLookAhead( lookAhead );
+        } else {
+            query.setMaxFeatures( -1 );
+            query.setLookAhead( 0 );
+        }
+        LOG.debug( "Paging (start index: {}, max features: {}) is performed by the feature store.", startIndex,
+                   maxFeatures );
+        return true;
+    }
+
     /**
      * Returns the original <code>GetFeature</code> query that the given query was derived from.
      * 
@@ -0,0 +1,171 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.wfs.format.geojson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link FeaturePage}.
+ * 
+ * @since 3.4
+ */
+public class FeaturePageTest {
+
+    @Test
+    public void testUnlimited() {
+        FeaturePage page = new FeaturePage( 0, -1, false );
+        assertEquals( 5, consume( page, 5 ) );
+        assertEquals( 5, page.getNumberReturned() );
+        assertTrue( page.isNumberMatchedKnown() );
+        assertEquals( 5, page.getNumberMatched() );
+    }
+
+    @Test
+    public void testExactlyFull() {
+        FeaturePage page = new FeaturePage( 0, 10, false );
+        assertEquals( 10, consume( page, 10 ) );
+        assertFalse( page.isTruncated() );
+        assertTrue( page.isNumberMatchedKnown() );
+        assertEquals( 10, page.getNumberMatched() );
+    }
+
+    @Test
+    public void testFirstPageTruncated() {
+        // the stream delivers one feature more than requested
+        FeaturePage page = new FeaturePage( 0, 10, false );
+        assertEquals( 10, consume( page, 11 ) );
+        assertTrue( page.isTruncated() );
+        assertEquals( 10, page.getNumberReturned() );
+        assertFalse( page.isNumberMatchedKnown() );
+    }
+
+    @Test
+    public void testPageInMemoryTruncated() {
+        FeaturePage page = new FeaturePage( 10, 10, false );
+        assertEquals( 10, consume( page, 21 ) );
+        assertTrue( page.isTruncated() );
+        assertFalse( page.isNumberMatchedKnown() );
+    }
+
+    @Test
+    public void testLastPageInMemory() {
+        FeaturePage page = new FeaturePage( 20, 10, false );
+        assertEquals( 5, consume( page, 25 ) );
+        assertEquals( 5, page.getNumberReturned() );
+        assertTrue( page.isNumberMatchedKnown() );
+        assertEquals( 25, page.getNumberMatched() );
+    }
+
+    @Test
+    public void testBeyondLastPageInMemory() {
+        FeaturePage page = new FeaturePage( 30, 10, false );
+        assertEquals( 0, consume( page, 25 ) );
+        assertEquals( 0, page.getNumberReturned() );
+        assertTrue( page.isNumberMatchedKnown() );
+        assertEquals( 25, page.getNumberMatched() );
+    }
+
+    @Test
+    public void testLastPagePagedByStore() {
+        // the store skips the first 20 features
+        FeaturePage page = new FeaturePage( 20, 10, true );
+        assertEquals( 5, consume( page, 5 ) );
+        assertEquals( 5, page.getNumberReturned() );
+        assertTrue( page.isNumberMatchedKnown() );
+        assertEquals( 25, page.getNumberMatched() );
+    }
+
+    @Test
+    public void testPagePagedByStoreTruncated() {
+        FeaturePage page = new FeaturePage( 20, 10, true );
+        assertEquals( 10, consume( page, 11 ) );
+        assertTrue( page.isTruncated() );
+        assertFalse( page.isNumberMatchedKnown() );
+    }
+
+    @Test
+    public void testBeyondLastPagePagedByStore() {
+        // the number of features skipped by the store is unknown
+        FeaturePage page = new FeaturePage( 30, 10, true );
+        assertEquals( 0, consume( page, 0 ) );
+        assertEquals( 0, page.getNumberReturned() );
+        assertFalse( page.isNumberMatchedKnown() );
+    }
+
+    @Test
+    public void testPageSpansStores() {
+        FeaturePage page = new FeaturePage( 5, 10, false );
+        assertEquals( 10, consume( page, 3, 4, 20, 7 ) );
+        assertTrue( page.isTruncated() );
+        assertEquals( 10, page.getNumberReturned() );
+        assertFalse( page.isNumberMatchedKnown() );
+    }
+
+    @Test
+    public void testLastPageSpansStores() {
+        FeaturePage page = new FeaturePage( 5, 10, false );
+        assertEquals( 4, consume( page, 3, 4, 2 ) );
+        assertEquals( 4, page.getNumberReturned() );
+        assertTrue( page.isNumberMatchedKnown() );
+        assertEquals( 9, page.getNumberMatched() );
+    }
+
+    /**
+     * Consumes streams of the given sizes like the GetFeature handler does.
+     * 
+     * @return number of written features
+     */
+    private static int consume( FeaturePage page, int... streamSizes ) {
+        int written = 0;
+        for ( int size : streamSizes ) {
+            if ( page.isTruncated() ) {
+                break;
+            }
+            for ( int i = 0; i < size; i++ ) {
+                if ( page.add() ) {
+                    written++;
+                } else if ( page.isTruncated() ) {
+                    break;
+                }
+            }
+        }
+        return written;
+    }
+
+}
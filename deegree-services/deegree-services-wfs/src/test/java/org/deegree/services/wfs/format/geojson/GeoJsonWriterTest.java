@@ -0,0 +1,306 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.wfs.format.geojson;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.Collections;
+
+import org.deegree.cs.coordinatesystems.GeographicCRS;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.cs.persistence.CRSManager;
+import org.deegree.geometry.Geometry;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.geometry.GeometryTransformer;
+import org.deegree.geometry.primitive.LineString;
+import org.deegree.geometry.primitive.Point;
+import org.deegree.geometry.primitive.Polygon;
+import org.deegree.geometry.primitive.Ring;
+import org.deegree.geometry.standard.points.PointsArray;
+import org.junit.Test;
+
+/**
+ * Tests for {@link GeoJsonWriter}.
+ * 
+ * @since 3.4
+ */
+public class GeoJsonWriterTest {
+
+    private final GeometryFactory fac = new GeometryFactory();
+
+    @Test
+    public void testCoordinatePrecision()
+                            throws Exception {
+        assertEquals( "12.346", coordinate( 12.3456789, 3 ) );
+        assertEquals( "1.05", coordinate( 1.05, 3 ) );
+        assertEquals( "1.005", coordinate( 1.005, 3 ) );
+        assertEquals( "2", coordinate( 1.9999, 3 ) );
+        assertEquals( "2", coordinate( 2.0, 3 ) );
+        assertEquals( "-1.5", coordinate( -1.5, 3 ) );
+        assertEquals( "-0.001", coordinate( -0.0009, 3 ) );
+        assertEquals( "0", coordinate( -0.0004, 3 ) );
+        assertEquals( "3", coordinate( 2.5, 0 ) );
+        assertEquals( "-2", coordinate( -2.4, 0 ) );
+        assertEquals( "5000000.12", coordinate( 5000000.123, 2 ) );
+    }
+
+    @Test
+    public void testCoordinateFullPrecision()
+                            throws Exception {
+        assertEquals( "1.23456789012", coordinate( 1.23456789012, -1 ) );
+        assertEquals( "-0.5", coordinate( -0.5, -1 ) );
+    }
+
+    @Test
+    public void testCoordinateOutOfRange()
+                            throws Exception {
+        assertEquals( "1.0E300", coordinate( 1.0E300, 3 ) );
+        assertEquals( "null", coordinate( Double.NaN, 3 ) );
+        assertEquals( "null", coordinate( Double.POSITIVE_INFINITY, 3 ) );
+    }
+
+    @Test
+    public void testEscaping()
+                            throws Exception {
+        StringWriter sw = new StringWriter();
+        new GeoJsonWriter( sw, null, -1 ).value( "a\"b\\c\nd\re\tf\u0001g\u2028h\u00e4" ).flush();
+        assertEquals( "\"a\\\"b\\\\c\\nd\\re\\tf\\u0001g\\u2028h\u00e4\"", sw.toString() );
+    }
+
+    @Test
+    public void testEscapedNames()
+                            throws Exception {
+        StringWriter sw = new StringWriter();
+        new GeoJsonWriter( sw, null, -1 ).beginObject().name( "a\"b" ).value( 1 ).endObject().flush();
+        assertEquals( "{\"a\\\"b\":1}", sw.toString() );
+    }
+
+    @Test
+    public void testNesting()
+                            throws Exception {
+        StringWriter sw = new StringWriter();
+        GeoJsonWriter json = new GeoJsonWriter( sw, null, -1 );
+        json.beginObject();
+        json.name( "a" ).value( 1 );
+        json.name( "b" ).beginArray().value( 1 ).value( "x" ).beginObject().endObject().beginArray().endArray();
+        json.beginObject().name( "c" ).value( true ).name( "d" ).nullValue().endObject();
+        json.endArray();
+        json.name( "e" ).beginObject().name( "f" ).beginArray().endArray().endObject();
+        json.endObject().flush();
+        assertEquals( "{\"a\":1,\"b\":[1,\"x\",{},[],{\"c\":true,\"d\":null}],\"e\":{\"f\":[]}}", sw.toString() );
+    }
+
+    @Test
+    public void testDeepNesting()
+                            throws Exception {
+        StringWriter sw = new StringWriter();
+        GeoJsonWriter json = new GeoJsonWriter( sw, null, -1 );
+        StringBuilder expected = new StringBuilder();
+        for ( int i = 0; i < 100; i++ ) {
+            json.beginArray().value( i );
+            expected.append( '[' ).append( i ).append( ',' );
+        }
+        json.value( "x" );
+        expected.append( "\"x\"" );
+        for ( int i = 0; i < 100; i++ ) {
+            json.endArray();
+            expected.append( ']' );
+        }
+        json.value( 1 ).flush();
+        assertEquals( expected.toString() + "1", sw.toString() );
+    }
+
+    @Test
+    public void testNumberValues()
+                            throws Exception {
+        StringWriter sw = new StringWriter();
+        GeoJsonWriter json = new GeoJsonWriter( sw, null, -1 );
+        json.beginArray().value( 1.5 ).value( Double.NaN ).value( Float.POSITIVE_INFINITY ).value( (Number) null );
+        json.value( 42L ).value( false ).value( (String) null ).endArray().flush();
+        assertEquals( "[1.5,null,null,null,42,false,null]", sw.toString() );
+    }
+
+    @Test
+    public void testPoint()
+                            throws Exception {
+        assertEquals( "{\"type\":\"Point\",\"coordinates\":[7.123,50.5]}",
+                      write( fac.createPoint( null, 7.123456, 50.5, null ), 3 ) );
+    }
+
+    @Test
+    public void testPoint3D()
+                            throws Exception {
+        assertEquals( "{\"type\":\"Point\",\"coordinates\":[1,2,3]}",
+                      write( fac.createPoint( null, 1, 2, 3, null ), 3 ) );
+    }
+
+    @Test
+    public void testLineString()
+                            throws Exception {
+        assertEquals( "{\"type\":\"LineString\",\"coordinates\":[[0,0],[1,1],[2,0]]}",
+                      write( lineString( 0, 0, 1, 1, 2, 0 ), 3 ) );
+    }
+
+    @Test
+    public void testPolygonWithHole()
+                            throws Exception {
+        Polygon polygon = fac.createPolygon( null, null, ring( 0, 0, 10, 0, 10, 10, 0, 0 ),
+                                             singletonList( ring( 1, 1, 2, 1, 2, 2, 1, 1 ) ) );
+        assertEquals( "{\"type\":\"Polygon\",\"coordinates\":[[[0,0],[10,0],[10,10],[0,0]],"
+                      + "[[1,1],[2,1],[2,2],[1,1]]]}", write( polygon, 3 ) );
+    }
+
+    @Test
+    public void testEnvelope()
+                            throws Exception {
+        assertEquals( "{\"type\":\"Polygon\",\"coordinates\":[[[0,1],[2,1],[2,3],[0,3],[0,1]]]}",
+                      write( fac.createEnvelope( 0, 1, 2, 3, null ), 3 ) );
+    }
+
+    @Test
+    public void testMultiPoint()
+                            throws Exception {
+        Geometry multi = fac.createMultiPoint( null, null, asList( fac.createPoint( null, 1, 2, null ),
+                                                                   fac.createPoint( null, 3, 4, null ) ) );
+        assertEquals( "{\"type\":\"MultiPoint\",\"coordinates\":[[1,2],[3,4]]}", write( multi, 3 ) );
+    }
+
+    @Test
+    public void testMultiLineString()
+                            throws Exception {
+        Geometry multi = fac.createMultiLineString( null, null, asList( lineString( 0, 0, 1, 1 ),
+                                                                        lineString( 2, 2, 3, 3 ) ) );
+        assertEquals( "{\"type\":\"MultiLineString\",\"coordinates\":[[[0,0],[1,1]],[[2,2],[3,3]]]}",
+                      write( multi, 3 ) );
+    }
+
+    @Test
+    public void testMultiPolygon()
+                            throws Exception {
+        Polygon p1 = fac.createPolygon( null, null, ring( 0, 0, 1, 0, 1, 1, 0, 0 ), null );
+        Polygon p2 = fac.createPolygon( null, null, ring( 5, 5, 6, 5, 6, 6, 5, 5 ), null );
+        assertEquals( "{\"type\":\"MultiPolygon\",\"coordinates\":[[[[0,0],[1,0],[1,1],[0,0]]],"
+                      + "[[[5,5],[6,5],[6,6],[5,5]]]]}",
+                      write( fac.createMultiPolygon( null, null, asList( p1, p2 ) ), 3 ) );
+    }
+
+    @Test
+    public void testGeometryCollection()
+                            throws Exception {
+        Geometry collection = fac.createMultiGeometry( null, null,
+                                                       asList( (Geometry) fac.createPoint( null, 1, 2, null ),
+                                                               lineString( 0, 0, 1, 1 ) ) );
+        assertEquals( "{\"type\":\"GeometryCollection\",\"geometries\":[{\"type\":\"Point\",\"coordinates\":[1,2]},"
+                      + "{\"type\":\"LineString\",\"coordinates\":[[0,0],[1,1]]}]}", write( collection, 3 ) );
+    }
+
+    @Test
+    public void testEmptyGeometryCollection()
+                            throws Exception {
+        Geometry collection = fac.createMultiGeometry( null, null, Collections.<Geometry> emptyList() );
+        assertEquals( "{\"type\":\"GeometryCollection\",\"geometries\":[]}", write( collection, 3 ) );
+    }
+
+    @Test
+    public void testNullGeometry()
+                            throws Exception {
+        assertEquals( "null", write( null, 3 ) );
+    }
+
+    @Test
+    public void testReprojection()
+                            throws Exception {
+        ICRS webMercator = CRSManager.lookup( "EPSG:3857" );
+        Point point = fac.createPoint( null, 7, 50, GeographicCRS.WGS84 );
+        Point expected = (Point) new GeometryTransformer( webMercator ).transform( point );
+
+        StringWriter sw = new StringWriter();
+        new GeoJsonWriter( sw, webMercator, 2 ).writeGeometry( point );
+        String json = sw.toString();
+        String prefix = "{\"type\":\"Point\",\"coordinates\":[";
+        assertTrue( json, json.startsWith( prefix ) );
+        String[] ordinates = json.substring( prefix.length(), json.length() - 2 ).split( "," );
+        assertEquals( expected.get0(), Double.parseDouble( ordinates[0] ), 0.005 );
+        assertEquals( expected.get1(), Double.parseDouble( ordinates[1] ), 0.005 );
+        // metres, not degrees
+        assertEquals( 779236.44, Double.parseDouble( ordinates[0] ), 1 );
+    }
+
+    @Test
+    public void testNoReprojectionInOutputCrs()
+                            throws Exception {
+        Point point = fac.createPoint( null, 7.5, 50.25, GeographicCRS.WGS84 );
+        StringWriter sw = new StringWriter();
+        new GeoJsonWriter( sw, GeographicCRS.WGS84, 6 ).writeGeometry( point );
+        assertEquals( "{\"type\":\"Point\",\"coordinates\":[7.5,50.25]}", sw.toString() );
+    }
+
+    private static String coordinate( double value, int precision )
+                            throws Exception {
+        StringWriter sw = new StringWriter();
+        new GeoJsonWriter( sw, null, precision ).writeCoordinate( value );
+        return sw.toString();
+    }
+
+    private static String write( Geometry geom, int precision )
+                            throws Exception {
+        StringWriter sw = new StringWriter();
+        GeoJsonWriter json = new GeoJsonWriter( sw, null, precision );
+        json.writeGeometry( geom );
+        json.flush();
+        return sw.toString();
+    }
+
+    private LineString lineString( double... xy ) {
+        return fac.createLineString( null, null, points( xy ) );
+    }
+
+    private Ring ring( double... xy ) {
+        return fac.createLinearRing( null, null, points( xy ) );
+    }
+
+    private PointsArray points( double... xy ) {
+        Point[] points = new Point[xy.length / 2];
+        for ( int i = 0; i < points.length; i++ ) {
+            points[i] = fac.createPoint( null, xy[2 * i], xy[2 * i + 1], null );
+        }
+        return new PointsArray( points );
+    }
+
+}
@@ -63,6 +63,7 @@ import org.deegree.commons.config.DeegreeWorkspace;
 import org.deegree.commons.ows.exception.OWSException;
 import org.deegree.commons.utils.DoublePair;
 import org.deegree.commons.utils.Pair;
+import org.deegree.commons.utils.image.PngEncoder;
 import org.deegree.commons.xml.XMLAdapter;
 import org.deegree.cs.coordinatesystems.ICRS;
 import org.deegree.feature.Feature;
@@ -85,6 +86,7 @@ import org.deegree.rendering.r2d.context.MapOptions.Interpolation;
 import org.deegree.rendering.r2d.context.MapOptions.Quality;
 import org.deegree.rendering.r2d.context.MapOptionsMaps;
 import org.deegree.rendering.r2d.context.RenderContext;
+import org.deegree.rendering.r2d.context.RenderingInfo;
 import org.deegree.services.jaxb.wms.ServiceConfigurationType;
 import org.deegree.services.wms.controller.ops.GetFeatureInfo;
 import org.deegree.services.wms.controller.ops.GetMap;
@@ -147,6 +149,10 @@ public class MapService {
 
     private final OldStyleMapService oldStyleMapService;
 
+    private ParallelMapRenderer parallelRenderer;
+
+    private PngEncoder pngEncoder;
+
     /**
      * @param conf
      * @param adapter
@@ -160,6 +166,8 @@ public class MapService {
         MapServiceBuilder builder = new MapServiceBuilder( conf, adapter, layerOptions, this, workspace, dynamics );
 
         defaultLayerOptions = builder.buildMapOptions();
+        parallelRenderer = builder.buildParallelRenderer();
+        pngEncoder = builder.buildPngEncoder();
 
         if ( conf != null && conf.getAbstractLayer() != null ) {
             root = builder.parseLayers();
@@ -201,7 +209,8 @@ public class MapService {
      */
     public MapService( DeegreeWorkspace workspace ) {
         this.registry = new StyleRegistry( workspace );
-        this.defaultLayerOptions = new MapOptions( Quality.NORMAL, Interpolation.NEARESTNEIGHBOR, Antialias.BOTH, -1, 3 );
+        this.defaultLayerOptions = new MapOptions( Quality.NORMAL, Interpolation.NEARESTNEIGHBOR, Antialias.BOTH, -1, 3,
+                                                  0.5 );
         layers = new HashMap<String, Layer>();
         root = new EmptyLayer( this, null, "Root Layer", null );
         getLegendHandler = new GetLegendHandler( this );
@@ -215,6 +224,13 @@ public class MapService {
         return themes;
     }
 
+    /**
+     * @return the PNG encoder configured for this service, <code>null</code> if the default encoder is used
+     */
+    public PngEncoder getPngEncoder() {
+        return pngEncoder;
+    }
+
     /**
      * @return true, if configuration is based on themes
      */
@@ -341,18 +357,25 @@ public class MapService {
         ScaleFunction.getCurrentScaleValue().set( scale );
 
         List<LayerData> layerDataList = checkStyleValidAndBuildLayerDataList( gm, headers, scale, queryIter );
-        Iterator<MapOptions> optIter = mapOptions.iterator();
-        for ( LayerData d : layerDataList ) {
-            ctx.applyOptions( optIter.next() );
-            try {
-                d.render( ctx );
-            } catch ( InterruptedException e ) {
-                String msg = "Request time-out.";
-                throw new OWSException( msg, NO_APPLICABLE_CODE );
+        try {
+            if ( parallelRenderer != null && layerDataList.size() > 1 ) {
+                RenderingInfo info = new RenderingInfo( gm.getFormat(), gm.getWidth(), gm.getHeight(),
+                                                        gm.getTransparent(), gm.getBgColor(), gm.getBoundingBox(),
+                                                        gm.getPixelSize(), gm.getParameterMap() );
+                parallelRenderer.render( layerDataList, mapOptions, info, ctx );
+            } else {
+                Iterator<MapOptions> optIter = mapOptions.iterator();
+                for ( LayerData d : layerDataList ) {
+                    ctx.applyOptions( optIter.next() );
+                    d.render( ctx );
+                }
             }
+        } catch ( InterruptedException e ) {
+            String msg = "Request time-out.";
+            throw new OWSException( msg, NO_APPLICABLE_CODE );
+        } finally {
+            ScaleFunction.getCurrentScaleValue().remove();
         }
-
-        ScaleFunction.getCurrentScaleValue().remove();
     }
 
     private List<LayerData> checkStyleValidAndBuildLayerDataList( org.deegree.protocol.wms.ops.GetMap gm,
@@ -537,6 +560,9 @@ public class MapService {
         if ( root != null ) {
             close( root );
         }
+        if ( parallelRenderer != null ) {
+            parallelRenderer.destroy();
+        }
     }
 
     /**
@@ -58,6 +58,8 @@ import javax.xml.bind.JAXBElement;
 
 import org.deegree.commons.config.DeegreeWorkspace;
 import org.deegree.commons.utils.DoublePair;
+import org.deegree.commons.utils.image.ImageEncoders;
+import org.deegree.commons.utils.image.PngEncoder;
 import org.deegree.commons.xml.XMLAdapter;
 import org.deegree.rendering.r2d.context.MapOptions;
 import org.deegree.rendering.r2d.context.MapOptions.Antialias;
@@ -69,6 +71,8 @@ import org.deegree.services.jaxb.wms.BaseAbstractLayerType;
 import org.deegree.services.jaxb.wms.DynamicLayer;
 import org.deegree.services.jaxb.wms.LayerOptionsType;
 import org.deegree.services.jaxb.wms.ServiceConfigurationType;
+import org.deegree.services.jaxb.wms.ServiceConfigurationType.ParallelRendering;
+import org.deegree.services.jaxb.wms.ServiceConfigurationType.PngEncoding;
 import org.deegree.services.jaxb.wms.StatisticsLayer;
 import org.deegree.services.wms.dynamic.LayerUpdater;
 import org.deegree.services.wms.dynamic.PostGISUpdater;
@@ -128,6 +132,7 @@ class MapServiceBuilder {
     MapOptions buildMapOptions() {
         int maxFeatures = 10000;
         int featureInfoRadius = 1;
+        double simplificationTolerance = 0.5;
         if ( conf != null ) {
             LayerOptionsType sf = conf.getDefaultLayerOptions();
             alias = handleDefaultValue( sf == null ? null : sf.getAntiAliasing(), Antialias.class, BOTH );
@@ -147,11 +152,43 @@ class MapServiceBuilder {
             } else {
                 LOG.debug( "Using default feature info radius of {}.", featureInfoRadius );
             }
-            return new MapOptions( quali, interpol, alias, maxFeatures, featureInfoRadius );
+            if ( sf != null && sf.getSimplificationTolerance() != null ) {
+                simplificationTolerance = Math.max( 0, sf.getSimplificationTolerance() );
+                LOG.debug( "Using global simplification tolerance of {} pixels.", simplificationTolerance );
+            } else {
+                LOG.debug( "Using default simplification tolerance of {} pixels, set it to 0 to disable it.",
+                           simplificationTolerance );
+            }
+            return new MapOptions( quali, interpol, alias, maxFeatures, featureInfoRadius, simplificationTolerance );
         }
         return null;
     }
 
+    ParallelMapRenderer buildParallelRenderer() {
+        if ( conf == null || conf.getParallelRendering() == null ) {
+            return null;
+        }
+        ParallelRendering pr = conf.getParallelRendering();
+        int maxThreads = pr.getMaxThreads();
+        if ( maxThreads < 2 ) {
+            LOG.debug( "Parallel rendering configured with {} threads, rendering layers sequentially.", maxThreads );
+            return null;
+        }
+        // every queued layer holds a full size ARGB buffer (width x height x 4 bytes) once it has been rendered
+        int maxQueued = pr.getMaxQueuedLayers() == null ? maxThreads : pr.getMaxQueuedLayers();
+        return new ParallelMapRenderer( maxThreads, Math.max( 1, maxQueued ) );
+    }
+
+    PngEncoder buildPngEncoder() {
+        if ( conf == null || conf.getPngEncoding() == null ) {
+            return null;
+        }
+        PngEncoding pe = conf.getPngEncoding();
+        String level = pe.getDeflateLevel() == null ? null : pe.getDeflateLevel().toString();
+        String filter = pe.getFilter() == null ? null : pe.getFilter().value();
+        return ImageEncoders.createPngEncoder( level, filter );
+    }
+
     Layer parseLayers()
                             throws MalformedURLException {
         return parseLayer( conf.getAbstractLayer().getValue(), null, adapter, alias, interpol, quali );
@@ -248,6 +285,9 @@ class MapServiceBuilder {
             if ( sf.getFeatureInfoRadius() != null ) {
                 layerOptions.setFeatureInfoRadius( res.getName(), sf.getFeatureInfoRadius() );
             }
+            if ( sf.getSimplificationTolerance() != null ) {
+                layerOptions.setSimplificationTolerance( res.getName(), Math.max( 0, sf.getSimplificationTolerance() ) );
+            }
         }
         layerOptions.setAntialias( res.getName(), alias );
         layerOptions.setQuality( res.getName(), quality );
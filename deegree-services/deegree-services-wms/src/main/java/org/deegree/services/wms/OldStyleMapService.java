@@ -265,8 +265,8 @@ class OldStyleMapService {
             LinkedList<Query> queriesList = qs.iterator().next();
             if ( !queriesList.isEmpty() ) {
                 rs = store.query( queriesList.toArray( new Query[queriesList.size()] ) );
-                // TODO Should this always be done on this level? What about min and maxFill values?
-                rs = new ThreadedFeatureInputStream( rs, 100, 20 );
+                // TODO Should this always be done on this level?
+                rs = new ThreadedFeatureInputStream( rs, -1 );
                 for ( Feature f : rs ) {
                     QName name = f.getType().getName();
                     FeatureLayer l = ftToLayer.get( name );
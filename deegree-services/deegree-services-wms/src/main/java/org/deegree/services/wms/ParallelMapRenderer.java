@@ -0,0 +1,259 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.wms;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.deegree.commons.metrics.Metrics;
+import org.deegree.commons.utils.RequestUtils;
+import org.deegree.layer.LayerData;
+import org.deegree.protocol.wms.filter.ScaleFunction;
+import org.deegree.rendering.r2d.context.DefaultRenderContext;
+import org.deegree.rendering.r2d.context.MapOptions;
+import org.deegree.rendering.r2d.context.RenderContext;
+import org.deegree.rendering.r2d.context.RenderingInfo;
+import org.slf4j.Logger;
+
+/**
+ * Renders the {@link LayerData} of a GetMap request concurrently into off-screen layer buffers and composites the
+ * buffers in request order.
+ * <p>
+ * The worker pool is bounded by the number of threads and the number of queued layers. If the queue is full, the
+ * remaining layers are rendered by the request thread itself, so an overloaded pool degrades to sequential rendering
+ * instead of rejecting requests. Interrupting the request thread (e.g. by the request watchdog) cancels all pending
+ * and running layers.
+ * </p>
+ * <p>
+ * Layers are only submitted as far ahead of compositing as the pool can take (threads plus queued layers), and each
+ * buffer is released as soon as it has been composited. So the number of layer buffers held by a request does not
+ * depend on the number of its layers.
+ * </p>
+ * 
+ * @since 3.4
+ */
+class ParallelMapRenderer {
+
+    private static final Logger LOG = getLogger( ParallelMapRenderer.class );
+
+    private static final String BUFFER_FORMAT = "image/png";
+
+    private final ThreadPoolExecutor executor;
+
+    // maximum number of layers of a request that are rendered, but not composited yet
+    private final int maxBuffers;
+
+    /**
+     * @param maxThreads
+     *            maximum number of rendering threads, must be greater than zero
+     * @param maxQueuedLayers
+     *            maximum number of layers waiting for a rendering thread, must be greater than zero
+     */
+    ParallelMapRenderer( int maxThreads, int maxQueuedLayers ) {
+        executor = new ThreadPoolExecutor( maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                                           new ArrayBlockingQueue<Runnable>( maxQueuedLayers ),
+                                           new RenderThreadFactory(), new ThreadPoolExecutor.CallerRunsPolicy() );
+        executor.allowCoreThreadTimeOut( true );
+        maxBuffers = maxThreads + maxQueuedLayers;
+        LOG.info( "Using parallel layer rendering with up to {} threads ({} queued layers).", maxThreads,
+                  maxQueuedLayers );
+    }
+
+    /**
+     * Renders the given layers into the target context.
+     * 
+     * @param layers
+     *            layers to render, in painting order, never <code>null</code>
+     * @param options
+     *            rendering options, one per layer, never <code>null</code>
+     * @param info
+     *            rendering info of the request, used to create the layer buffers, never <code>null</code>
+     * @param target
+     *            context the layer buffers are composited into, never <code>null</code>
+     * @throws InterruptedException
+     *             if the request thread has been interrupted while waiting for the layers
+     */
+    void render( List<LayerData> layers, List<MapOptions> options, RenderingInfo info, RenderContext target )
+                            throws InterruptedException {
+        final Double scale = ScaleFunction.getCurrentScaleValue().get();
+        final Map<String, String> params = RequestUtils.getCurrentThreadRequestParameters().get();
+        final AtomicLong dataAccess = Metrics.getRequestDataAccess();
+
+        // submitted layers in painting order, a layer is removed once its buffer has been composited
+        Deque<Future<BufferedImage>> pending = new ArrayDeque<Future<BufferedImage>>( maxBuffers );
+        Iterator<LayerData> layerIter = layers.iterator();
+        Iterator<MapOptions> optIter = options.iterator();
+        try {
+            while ( layerIter.hasNext() || !pending.isEmpty() ) {
+                while ( pending.size() < maxBuffers && layerIter.hasNext() ) {
+                    LayerTask task = new LayerTask( layerIter.next(), optIter.next(), info, scale, params, dataAccess );
+                    pending.add( executor.submit( task ) );
+                }
+                // the layer stays pending (and is cancelled) if waiting for it fails
+                BufferedImage img = get( pending.peek() );
+                pending.poll();
+                if ( img != null ) {
+                    target.paintImage( img );
+                }
+            }
+        } finally {
+            boolean cancelled = false;
+            for ( Future<BufferedImage> future : pending ) {
+                cancelled |= future.cancel( true );
+            }
+            if ( cancelled ) {
+                // cancelled layers must not take up queue capacity of other requests
+                executor.purge();
+            }
+        }
+    }
+
+    private static BufferedImage get( Future<BufferedImage> future )
+                            throws InterruptedException {
+        try {
+            return future.get();
+        } catch ( ExecutionException e ) {
+            Throwable cause = e.getCause();
+            if ( cause instanceof InterruptedException ) {
+                throw (InterruptedException) cause;
+            }
+            if ( cause instanceof RuntimeException ) {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error ) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException( cause );
+        }
+    }
+
+    /**
+     * Returns the number of layers (of all requests) that are waiting for a rendering thread.
+     * 
+     * @return number of waiting layers
+     */
+    int getQueuedLayers() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Stops all rendering threads.
+     */
+    void destroy() {
+        executor.shutdownNow();
+    }
+
+    private static class LayerTask implements Callable<BufferedImage> {
+
+        private final LayerData layer;
+
+        private final MapOptions options;
+
+        private final RenderingInfo info;
+
+        private final Double scale;
+
+        private final Map<String, String> params;
+
+        private final AtomicLong dataAccess;
+
+        LayerTask( LayerData layer, MapOptions options, RenderingInfo info, Double scale, Map<String, String> params,
+                   AtomicLong dataAccess ) {
+            this.layer = layer;
+            this.options = options;
+            this.info = info;
+            this.scale = scale;
+            this.params = params;
+            this.dataAccess = dataAccess;
+        }
+
+        @Override
+        public BufferedImage call()
+                                throws Exception {
+            Double oldScale = ScaleFunction.getCurrentScaleValue().get();
+            Map<String, String> oldParams = RequestUtils.getCurrentThreadRequestParameters().get();
+            AtomicLong oldDataAccess = Metrics.getRequestDataAccess();
+            ScaleFunction.getCurrentScaleValue().set( scale );
+            RequestUtils.getCurrentThreadRequestParameters().set( params );
+            Metrics.setRequestDataAccess( dataAccess );
+            try {
+                RenderingInfo bufferInfo = new RenderingInfo( BUFFER_FORMAT, info.getWidth(), info.getHeight(),
+                                                              true, null, info.getEnvelope(), info.getPixelSize(),
+                                                              info.getParameterMap() );
+                DefaultRenderContext ctx = new DefaultRenderContext( bufferInfo );
+                ctx.applyOptions( options );
+                try {
+                    layer.render( ctx );
+                } finally {
+                    ctx.close();
+                }
+                return ctx.getImage();
+            } finally {
+                // tasks may run on the request thread if the pool is saturated
+                ScaleFunction.getCurrentScaleValue().set( oldScale );
+                RequestUtils.getCurrentThreadRequestParameters().set( oldParams );
+                Metrics.setRequestDataAccess( oldDataAccess );
+            }
+        }
+    }
+
+    private static class RenderThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread( Runnable r ) {
+            Thread t = new Thread( r, "WMS-LayerRenderer-" + count.incrementAndGet() );
+            t.setDaemon( true );
+            return t;
+        }
+    }
+
+}
@@ -37,13 +37,14 @@
 package org.deegree.services.wms.controller;
 
 import static java.util.Collections.singletonList;
-import static javax.imageio.ImageIO.write;
 import static org.deegree.commons.ows.exception.OWSException.OPERATION_NOT_SUPPORTED;
 import static org.deegree.commons.tom.ows.Version.parseVersion;
 import static org.deegree.commons.utils.ArrayUtils.join;
 import static org.deegree.commons.utils.CollectionUtils.getStringJoiner;
 import static org.deegree.commons.utils.CollectionUtils.map;
 import static org.deegree.commons.utils.CollectionUtils.reduce;
+import static org.deegree.commons.utils.image.ImageEncoders.write;
+import static org.deegree.commons.utils.image.ImageEncoders.writeIndexedPng;
 import static org.deegree.commons.xml.CommonNamespaces.getNamespaceContext;
 import static org.deegree.protocol.wms.WMSConstants.VERSION_111;
 import static org.deegree.protocol.wms.WMSConstants.VERSION_130;
@@ -91,6 +92,7 @@ import org.deegree.commons.tom.ows.Version;
 import org.deegree.commons.utils.CollectionUtils;
 import org.deegree.commons.utils.CollectionUtils.Mapper;
 import org.deegree.commons.utils.Pair;
+import org.deegree.commons.utils.image.PngEncoder;
 import org.deegree.commons.xml.NamespaceBindings;
 import org.deegree.commons.xml.XMLAdapter;
 import org.deegree.commons.xml.XPath;
@@ -633,7 +635,7 @@ public class WMSController extends AbstractOWS {
             RenderingInfo info = new RenderingInfo( gm2.getFormat(), gm2.getWidth(), gm2.getHeight(),
                                                     gm2.getTransparent(), gm2.getBgColor(), gm2.getBoundingBox(),
                                                     gm2.getPixelSize(), map );
-            RenderContext ctx = new DefaultRenderContext( info );
+            RenderContext ctx = new DefaultRenderContext( info, service.getPngEncoder() );
             ctx.setOutput( response.getOutputStream() );
             LinkedList<String> headers = new LinkedList<String>();
             service.getMap( gm2, headers, ctx );
@@ -827,16 +829,21 @@ public class WMSController extends AbstractOWS {
             return;
         }
 
+        // exceptions may be sent as image before the service has been initialized
+        PngEncoder pngEncoder = service == null ? null : service.getPngEncoder();
         format = format.substring( format.indexOf( "/" ) + 1 );
         if ( format.equals( "x-ms-bmp" ) ) {
             format = "bmp";
         }
         if ( format.equals( "png; subtype=8bit" ) || format.equals( "png; mode=8bit" ) ) {
+            if ( writeIndexedPng( img, response.getOutputStream(), pngEncoder ) ) {
+                return;
+            }
             img = ColorQuantizer.quantizeImage( img, 256, false, false );
             format = "png";
         }
         LOG.debug( "Sending in format " + format );
-        if ( !write( img, format, response.getOutputStream() ) ) {
+        if ( !write( img, format, response.getOutputStream(), pngEncoder ) ) {
             throw new OWSException( get( "WMS.CANNOT_ENCODE_IMAGE", format ), OWSException.NO_APPLICABLE_CODE );
         }
     }
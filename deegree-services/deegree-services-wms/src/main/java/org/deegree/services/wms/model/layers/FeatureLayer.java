@@ -312,9 +312,9 @@ public class FeatureLayer extends Layer {
         FeatureInputStream rs = null;
         try {
             rs = datastore.query( queries.toArray( new Query[queries.size()] ) );
-            // TODO Should this always be done on this level? What about min and maxFill values?
-            rs = new ThreadedFeatureInputStream( rs, 100, 20 );
             int max = gm.getRenderingOptions().getMaxFeatures( getName() );
+            // TODO Should this always be done on this level?
+            rs = new ThreadedFeatureInputStream( rs, max );
             int cnt = 0;
             double resolution = gm.getResolution();
 
@@ -0,0 +1,320 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.wms;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.deegree.feature.FeatureCollection;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.layer.LayerData;
+import org.deegree.rendering.r2d.context.DefaultRenderContext;
+import org.deegree.rendering.r2d.context.MapOptions;
+import org.deegree.rendering.r2d.context.MapOptions.Antialias;
+import org.deegree.rendering.r2d.context.MapOptions.Interpolation;
+import org.deegree.rendering.r2d.context.MapOptions.Quality;
+import org.deegree.rendering.r2d.context.RenderContext;
+import org.deegree.rendering.r2d.context.RenderingInfo;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ParallelMapRenderer}.
+ * 
+ * @since 3.4
+ */
+public class ParallelMapRendererTest {
+
+    private static final RenderingInfo INFO = new RenderingInfo( "image/png", 2, 2, true, null,
+                                                                 new GeometryFactory().createEnvelope( 0, 0, 1, 1,
+                                                                                                       null ),
+                                                                 0.28, null );
+
+    private static final MapOptions OPTIONS = new MapOptions( Quality.NORMAL, Interpolation.NEARESTNEIGHBOR,
+                                                              Antialias.BOTH, -1, 1 );
+
+    // layer ids (encoded as pixel value of the layer buffers) in painting order
+    private final List<Integer> painted = Collections.synchronizedList( new ArrayList<Integer>() );
+
+    private ParallelMapRenderer renderer;
+
+    @After
+    public void destroy() {
+        if ( renderer != null ) {
+            renderer.destroy();
+        }
+    }
+
+    @Test
+    public void testLayersArePaintedInRequestOrder()
+                            throws Exception {
+        renderer = new ParallelMapRenderer( 4, 10 );
+        List<LayerData> layers = new ArrayList<LayerData>();
+        for ( int i = 0; i < 8; i++ ) {
+            // earlier layers take longer
+            layers.add( new TestLayer( i, ( 8 - i ) * 10 ) );
+        }
+        renderer.render( layers, options( layers.size() ), INFO, target() );
+        assertEquals( range( 0, 8 ), painted );
+    }
+
+    @Test
+    public void testBuffersAreBounded()
+                            throws Exception {
+        renderer = new ParallelMapRenderer( 2, 2 );
+        final AtomicInteger outstanding = new AtomicInteger();
+        final AtomicInteger maxOutstanding = new AtomicInteger();
+        List<LayerData> layers = new ArrayList<LayerData>();
+        for ( int i = 0; i < 30; i++ ) {
+            // the first layer holds back compositing while the others are fast
+            layers.add( new TestLayer( i, i == 0 ? 200 : 0 ) {
+                @Override
+                void rendered() {
+                    int current = outstanding.incrementAndGet();
+                    synchronized ( maxOutstanding ) {
+                        maxOutstanding.set( Math.max( maxOutstanding.get(), current ) );
+                    }
+                }
+            } );
+        }
+        RenderContext target = new RecordingContext() {
+            @Override
+            void paint( BufferedImage img ) {
+                super.paint( img );
+                outstanding.decrementAndGet();
+            }
+        }.proxy();
+        renderer.render( layers, options( layers.size() ), INFO, target );
+        assertEquals( range( 0, 30 ), painted );
+        // threads plus queued layers
+        assertTrue( "Max. outstanding buffers: " + maxOutstanding.get(), maxOutstanding.get() <= 4 );
+    }
+
+    @Test
+    public void testCallerRunsIfQueueIsFull()
+                            throws Exception {
+        renderer = new ParallelMapRenderer( 1, 1 );
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        // occupies the rendering thread and the queue
+        final List<LayerData> blocking = new ArrayList<LayerData>();
+        blocking.add( new TestLayer( 0, 0 ) {
+            @Override
+            void beforeRender()
+                                    throws InterruptedException {
+                started.countDown();
+                release.await();
+            }
+        } );
+        blocking.add( new TestLayer( 1, 0 ) );
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        Thread other = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    renderer.render( blocking, options( 2 ), INFO, new RecordingContext().proxy() );
+                } catch ( Exception e ) {
+                    failure.set( e );
+                }
+            }
+        };
+        other.start();
+        assertTrue( started.await( 10, SECONDS ) );
+        long timeout = System.currentTimeMillis() + 10000;
+        while ( renderer.getQueuedLayers() < 1 ) {
+            if ( System.currentTimeMillis() > timeout ) {
+                fail( "Layer has not been queued." );
+            }
+            Thread.sleep( 10 );
+        }
+
+        TestLayer layer = new TestLayer( 2, 0 );
+        renderer.render( Collections.<LayerData> singletonList( layer ), options( 1 ), INFO, target() );
+        assertSame( Thread.currentThread(), layer.thread );
+        assertEquals( asList( 2 ), painted );
+
+        release.countDown();
+        other.join( 10000 );
+        assertEquals( null, failure.get() );
+        assertEquals( asList( 2, 0, 1 ), painted );
+    }
+
+    @Test
+    public void testInterruptCancelsLayers()
+                            throws Exception {
+        renderer = new ParallelMapRenderer( 2, 10 );
+        final CountDownLatch started = new CountDownLatch( 2 );
+        final CountDownLatch cancelled = new CountDownLatch( 2 );
+        final List<LayerData> layers = new ArrayList<LayerData>();
+        for ( int i = 0; i < 4; i++ ) {
+            layers.add( new TestLayer( i, 0 ) {
+                @Override
+                void beforeRender()
+                                        throws InterruptedException {
+                    started.countDown();
+                    try {
+                        new CountDownLatch( 1 ).await();
+                    } catch ( InterruptedException e ) {
+                        cancelled.countDown();
+                        throw e;
+                    }
+                }
+            } );
+        }
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        Thread request = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    renderer.render( layers, options( layers.size() ), INFO, target() );
+                } catch ( Exception e ) {
+                    failure.set( e );
+                }
+            }
+        };
+        request.start();
+        assertTrue( started.await( 10, SECONDS ) );
+        request.interrupt();
+        request.join( 10000 );
+        assertTrue( failure.get() instanceof InterruptedException );
+        // both running layers have been interrupted
+        assertTrue( cancelled.await( 10, SECONDS ) );
+        assertEquals( 0, renderer.getQueuedLayers() );
+        assertTrue( painted.isEmpty() );
+    }
+
+    private static List<MapOptions> options( int count ) {
+        return Collections.nCopies( count, OPTIONS );
+    }
+
+    private static List<Integer> range( int from, int to ) {
+        List<Integer> list = new ArrayList<Integer>();
+        for ( int i = from; i < to; i++ ) {
+            list.add( i );
+        }
+        return list;
+    }
+
+    private static List<Integer> asList( int... values ) {
+        List<Integer> list = new ArrayList<Integer>();
+        for ( int value : values ) {
+            list.add( value );
+        }
+        return list;
+    }
+
+    private RenderContext target() {
+        return new RecordingContext().proxy();
+    }
+
+    /**
+     * Records the ids of the painted layer buffers.
+     */
+    private class RecordingContext implements InvocationHandler {
+
+        @Override
+        public Object invoke( Object proxy, Method method, Object[] args ) {
+            if ( "paintImage".equals( method.getName() ) ) {
+                paint( (BufferedImage) args[0] );
+            }
+            return null;
+        }
+
+        void paint( BufferedImage img ) {
+            painted.add( img.getRGB( 0, 0 ) & 0xFFFFFF );
+        }
+
+        RenderContext proxy() {
+            return (RenderContext) Proxy.newProxyInstance( getClass().getClassLoader(),
+                                                           new Class<?>[] { RenderContext.class }, this );
+        }
+    }
+
+    /**
+     * Marks its buffer with its id.
+     */
+    private static class TestLayer implements LayerData {
+
+        private final int id;
+
+        private final long millis;
+
+        private volatile Thread thread;
+
+        TestLayer( int id, long millis ) {
+            this.id = id;
+            this.millis = millis;
+        }
+
+        @Override
+        public void render( RenderContext context )
+                                throws InterruptedException {
+            thread = Thread.currentThread();
+            beforeRender();
+            Thread.sleep( millis );
+            ( (DefaultRenderContext) context ).getImage().setRGB( 0, 0, 0xFF000000 | id );
+            rendered();
+        }
+
+        void beforeRender()
+                                throws InterruptedException {
+            // nothing to do by default
+        }
+
+        void rendered() {
+            // nothing to do by default
+        }
+
+        @Override
+        public FeatureCollection info() {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,222 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2009 by:
+ Department of Geography, University of Bonn
+ and
+ lat/lon GmbH
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tools.feature.persistence;
+
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+import static org.deegree.commons.xml.CommonNamespaces.GML3_2_NS;
+import static org.deegree.commons.xml.CommonNamespaces.GMLNS;
+import static org.deegree.commons.xml.CommonNamespaces.XLNNS;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Determines where a GML feature collection can be split into chunks without breaking local xlink references.
+ * <p>
+ * The document is scanned on the XML level (without building features). Every local reference (<code>#id</code>)
+ * from one member of the collection to an object inside another member connects the two members and all members in
+ * between: a chunk must not end between them. References to ids that are not defined in the document do not restrict
+ * the chunking.
+ * </p>
+ * 
+ * @author <a href="mailto:schneider@lat-lon.de">Markus Schneider</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+class ChunkBoundaries {
+
+    // GML properties of feature collections that do not contain members
+    private static final Set<String> NON_MEMBER_PROPS = new HashSet<String>( Arrays.asList( "boundedBy",
+                                                                                            "metaDataProperty",
+                                                                                            "description",
+                                                                                            "descriptionReference",
+                                                                                            "identifier", "name",
+                                                                                            "location" ) );
+
+    private final BitSet noSplit;
+
+    private final int members;
+
+    private final int danglingRefs;
+
+    private ChunkBoundaries( BitSet noSplit, int members, int danglingRefs ) {
+        this.noSplit = noSplit;
+        this.members = members;
+        this.danglingRefs = danglingRefs;
+    }
+
+    /**
+     * @return number of members of the feature collection
+     */
+    int getMemberCount() {
+        return members;
+    }
+
+    /**
+     * @return number of local references to ids that are not defined in the document
+     */
+    int getDanglingReferences() {
+        return danglingRefs;
+    }
+
+    /**
+     * @param member
+     *            index of a member
+     * @return <code>true</code>, if a chunk may end after the given member
+     */
+    boolean canSplitAfter( int member ) {
+        return !noSplit.get( member );
+    }
+
+    /**
+     * Scans the given GML feature collection document.
+     * 
+     * @param url
+     *            location of the document, must not be <code>null</code>
+     * @param ids
+     *            table to store the object ids in, must be empty and not <code>null</code>
+     * @return chunk boundaries, never <code>null</code>
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    static ChunkBoundaries scan( URL url, FeatureReferenceTable ids )
+                            throws IOException, XMLStreamException {
+        // for each member: index of the last later member it is connected with
+        int[] reach = new int[1024];
+        // forward references: id -> first member that references it
+        Map<String, Integer> pending = new HashMap<String, Integer>();
+
+        int member = -1;
+        int depth = 0;
+        boolean inMemberProp = false;
+
+        InputStream is = url.openStream();
+        XMLStreamReader xmlStream = XMLInputFactory.newInstance().createXMLStreamReader( url.toString(), is );
+        try {
+            while ( xmlStream.hasNext() ) {
+                int event = xmlStream.next();
+                if ( event == START_ELEMENT ) {
+                    ++depth;
+                    if ( depth == 2 ) {
+                        String ns = xmlStream.getNamespaceURI();
+                        boolean gmlProp = GMLNS.equals( ns ) || GML3_2_NS.equals( ns );
+                        inMemberProp = !( gmlProp && NON_MEMBER_PROPS.contains( xmlStream.getLocalName() ) );
+                        if ( inMemberProp && xmlStream.getAttributeValue( XLNNS, "href" ) != null ) {
+                            // member by reference, counts as a member of its own
+                            reach = ensureCapacity( reach, ++member );
+                        }
+                    } else if ( depth == 3 && inMemberProp ) {
+                        // child of a member property (or one of the children of a member array property)
+                        reach = ensureCapacity( reach, ++member );
+                    }
+                    if ( member < 0 || !inMemberProp ) {
+                        continue;
+                    }
+                    String id = getId( xmlStream );
+                    if ( id != null ) {
+                        ids.put( id, member );
+                        Integer referencing = pending.remove( id );
+                        if ( referencing != null ) {
+                            reach[referencing] = Math.max( reach[referencing], member );
+                        }
+                    }
+                    String href = xmlStream.getAttributeValue( XLNNS, "href" );
+                    if ( href != null && href.startsWith( "#" ) ) {
+                        String target = href.substring( 1 );
+                        int targetMember = ids.get( target );
+                        if ( targetMember >= 0 ) {
+                            reach[targetMember] = Math.max( reach[targetMember], member );
+                        } else if ( !pending.containsKey( target ) ) {
+                            pending.put( target, member );
+                        }
+                    }
+                } else if ( event == END_ELEMENT ) {
+                    --depth;
+                }
+            }
+        } finally {
+            xmlStream.close();
+            IOUtils.closeQuietly( is );
+        }
+
+        int members = member + 1;
+        BitSet noSplit = new BitSet( members );
+        int maxReach = -1;
+        for ( int i = 0; i < members; ++i ) {
+            maxReach = Math.max( maxReach, reach[i] );
+            if ( maxReach > i ) {
+                noSplit.set( i );
+            }
+        }
+        return new ChunkBoundaries( noSplit, members, pending.size() );
+    }
+
+    private static int[] ensureCapacity( int[] reach, int member ) {
+        if ( member >= reach.length ) {
+            reach = Arrays.copyOf( reach, reach.length * 2 );
+        }
+        reach[member] = member;
+        return reach;
+    }
+
+    private static String getId( XMLStreamReader xmlStream ) {
+        String id = xmlStream.getAttributeValue( GML3_2_NS, "id" );
+        if ( id == null ) {
+            id = xmlStream.getAttributeValue( GMLNS, "id" );
+        }
+        if ( id == null ) {
+            id = xmlStream.getAttributeValue( null, "fid" );
+        }
+        return id;
+    }
+
+}
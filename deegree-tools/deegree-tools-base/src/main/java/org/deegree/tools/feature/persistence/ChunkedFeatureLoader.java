@@ -0,0 +1,493 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2009 by:
+ Department of Geography, University of Bonn
+ and
+ lat/lon GmbH
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tools.feature.persistence;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.deegree.commons.tom.ElementNode;
+import org.deegree.commons.tom.ReferenceResolvingException;
+import org.deegree.commons.tom.TypedObjectNode;
+import org.deegree.commons.tom.array.TypedObjectNodeArray;
+import org.deegree.commons.tom.gml.GMLReference;
+import org.deegree.commons.tom.gml.property.Property;
+import org.deegree.feature.Feature;
+import org.deegree.feature.Features;
+import org.deegree.feature.GenericFeatureCollection;
+import org.deegree.feature.persistence.FeatureStore;
+import org.deegree.feature.persistence.FeatureStoreException;
+import org.deegree.feature.persistence.FeatureStoreTransaction;
+import org.deegree.geometry.Geometry;
+import org.deegree.gml.GMLInputFactory;
+import org.deegree.gml.GMLStreamReader;
+import org.deegree.gml.GMLVersion;
+import org.deegree.gml.feature.StreamFeatureCollection;
+import org.deegree.gml.reference.GmlDocumentIdContext;
+import org.deegree.protocol.wfs.transaction.action.IDGenMode;
+import org.slf4j.Logger;
+
+/**
+ * Imports a GML feature collection into a {@link FeatureStore} without keeping the whole collection in memory.
+ * <p>
+ * The members of the collection are inserted in chunks, each chunk is committed in a transaction of its own. The
+ * chunks are parsed by a separate thread, at most {@link #QUEUED_CHUNKS} parsed chunks are waiting to be inserted.
+ * Chunks preferably end where no local xlink reference crosses the chunk boundary (see {@link ChunkBoundaries}), so the
+ * references can be resolved within the chunk. If no such boundary is found, the chunk is split anyway after
+ * {@link #MAX_CHUNK_FACTOR} times the chunk size.
+ * </p>
+ * <p>
+ * References that cross a chunk boundary are resolved using the {@link FeatureReferenceTable} of the dataset: after a
+ * chunk has been committed, the ids that the store assigned to its features are recorded, and references to them
+ * from later chunks are rewritten to these ids. Members that reference objects of later chunks are postponed until
+ * the chunk that contains the referenced object is inserted (they are kept in memory until then). References to
+ * non-feature objects (e.g. geometries) of committed chunks cannot be resolved.
+ * </p>
+ * 
+ * @author <a href="mailto:schneider@lat-lon.de">Markus Schneider</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+class ChunkedFeatureLoader {
+
+    private static final Logger LOG = getLogger( ChunkedFeatureLoader.class );
+
+    private static final int QUEUED_CHUNKS = 2;
+
+    private static final int MAX_CHUNK_FACTOR = 4;
+
+    private static final int MAX_IDS_IN_MEMORY = 1000000;
+
+    private static final long REPORT_INTERVAL = 5000;
+
+    private static final Chunk END = new Chunk( -1, new ArrayList<Feature>() );
+
+    private final FeatureStore fs;
+
+    private final IDGenMode mode;
+
+    private final int chunkSize;
+
+    /**
+     * @param fs
+     *            feature store to insert into, must not be <code>null</code>
+     * @param mode
+     *            id generation mode, must not be <code>null</code>
+     * @param chunkSize
+     *            minimum number of collection members per chunk, must be positive
+     */
+    ChunkedFeatureLoader( FeatureStore fs, IDGenMode mode, int chunkSize ) {
+        this.fs = fs;
+        this.mode = mode;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports the given GML feature collection.
+     * 
+     * @param url
+     *            location of the feature collection document, must not be <code>null</code>
+     * @param version
+     *            GML version of the document, must not be <code>null</code>
+     * @param tmpDir
+     *            directory for temporary files, must not be <code>null</code>
+     * @return number of inserted collection members
+     * @throws Exception
+     *             if the import failed (chunks that have been committed before remain in the store)
+     */
+    int load( URL url, GMLVersion version, File tmpDir )
+                            throws Exception {
+        System.out.print( "- Scanning references..." );
+        FeatureReferenceTable ids = new FeatureReferenceTable( MAX_IDS_IN_MEMORY, tmpDir );
+        try {
+            ChunkBoundaries boundaries = ChunkBoundaries.scan( url, ids );
+            System.out.println( "done (" + boundaries.getMemberCount() + " members, " + ids.size() + " ids)." );
+            if ( boundaries.getDanglingReferences() > 0 ) {
+                System.out.println( "- Warning: " + boundaries.getDanglingReferences()
+                                    + " local references to ids that are not defined in the dataset." );
+            }
+            return load( url, version, boundaries, ids );
+        } finally {
+            ids.close();
+        }
+    }
+
+    private int load( URL url, GMLVersion version, ChunkBoundaries boundaries, FeatureReferenceTable ids )
+                            throws Exception {
+
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<Chunk>( QUEUED_CHUNKS );
+        Parser parser = new Parser( url, version, boundaries, queue );
+        parser.start();
+
+        long begin = System.currentTimeMillis();
+        long lastReport = begin;
+        int inserted = 0;
+        int chunks = 0;
+        int postponed = 0;
+        boolean completed = false;
+        try {
+            // members that reference objects of chunks that have not been inserted yet
+            List<Member> pending = new ArrayList<Member>();
+            BitSet stored = new BitSet();
+            Chunk chunk;
+            while ( ( chunk = queue.take() ) != END ) {
+                List<Member> batch = new ArrayList<Member>( pending );
+                for ( int i = 0; i < chunk.members.size(); i++ ) {
+                    batch.add( new Member( chunk.first + i, chunk.members.get( i ) ) );
+                }
+                pending = postpone( batch, ids, stored );
+                postponed += pending.size();
+                if ( !batch.isEmpty() ) {
+                    insert( batch, ids );
+                    for ( Member member : batch ) {
+                        stored.set( member.index );
+                    }
+                    inserted += batch.size();
+                    ++chunks;
+                }
+                long now = System.currentTimeMillis();
+                if ( now - lastReport >= REPORT_INTERVAL ) {
+                    report( inserted, boundaries.getMemberCount(), chunks, now - begin );
+                    lastReport = now;
+                }
+            }
+            Throwable error = parser.error;
+            if ( error instanceof Exception ) {
+                throw (Exception) error;
+            }
+            if ( error instanceof Error ) {
+                throw (Error) error;
+            }
+            if ( error != null ) {
+                throw new Exception( error.getMessage(), error );
+            }
+            completed = true;
+        } finally {
+            parser.interrupt();
+            if ( !completed ) {
+                System.out.println( "- Import failed after committing " + inserted + " features in " + chunks
+                                    + " chunks." );
+            }
+        }
+        report( inserted, boundaries.getMemberCount(), chunks, System.currentTimeMillis() - begin );
+        if ( parser.forcedSplits > 0 ) {
+            System.out.println( "- " + parser.forcedSplits + " chunks have been split across references, " + postponed
+                                + " times a member has been postponed to a later chunk." );
+        }
+        return inserted;
+    }
+
+    /**
+     * Removes the members from the batch that reference objects which are neither part of the batch nor stored yet.
+     * 
+     * @return removed members, never <code>null</code>
+     */
+    private List<Member> postpone( List<Member> batch, FeatureReferenceTable ids, BitSet stored )
+                            throws IOException {
+        Set<Integer> inBatch = new HashSet<Integer>();
+        for ( Member member : batch ) {
+            inBatch.add( member.index );
+        }
+        List<Member> postponed = new ArrayList<Member>();
+        // postponing a member may require postponing the members that reference it as well
+        boolean changed = true;
+        while ( changed ) {
+            changed = false;
+            Iterator<Member> iter = batch.iterator();
+            while ( iter.hasNext() ) {
+                Member member = iter.next();
+                if ( !isInsertable( member, inBatch, ids, stored ) ) {
+                    iter.remove();
+                    inBatch.remove( member.index );
+                    postponed.add( member );
+                    changed = true;
+                }
+            }
+        }
+        return postponed;
+    }
+
+    private boolean isInsertable( Member member, Set<Integer> inBatch, FeatureReferenceTable ids, BitSet stored )
+                            throws IOException {
+        for ( GMLReference<?> ref : member.getReferences() ) {
+            int target = ids.get( ref.getURI().substring( 1 ) );
+            // references to undefined ids are left to the store
+            if ( target != -1 && !inBatch.contains( target ) && !stored.get( target ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insert( List<Member> batch, FeatureReferenceTable ids )
+                            throws Exception {
+
+        List<Feature> members = new ArrayList<Feature>( batch.size() );
+        for ( Member member : batch ) {
+            for ( GMLReference<?> ref : member.getReferences() ) {
+                String storedId = ids.getStoredId( ref.getURI().substring( 1 ) );
+                if ( storedId != null ) {
+                    ref.setURI( "#" + storedId );
+                }
+            }
+            members.add( member.feature );
+        }
+
+        // same order as the ids returned by the transaction (ids are determined before, the store may change them)
+        Set<Feature> features = new LinkedHashSet<Feature>();
+        Set<String> fids = new LinkedHashSet<String>();
+        Set<String> gids = new LinkedHashSet<String>();
+        Set<Geometry> geometries = new LinkedHashSet<Geometry>();
+        for ( Feature member : members ) {
+            Features.findFeaturesAndGeometries( member, geometries, features, fids, gids );
+        }
+        List<String> origIds = new ArrayList<String>( features.size() );
+        for ( Feature feature : features ) {
+            origIds.add( feature.getId() );
+        }
+
+        List<String> newIds;
+        FeatureStoreTransaction ta = fs.acquireTransaction();
+        boolean committed = false;
+        try {
+            newIds = ta.performInsert( new GenericFeatureCollection( null, members ), mode );
+            ta.commit();
+            committed = true;
+        } finally {
+            if ( !committed ) {
+                ta.rollback();
+            }
+        }
+
+        if ( newIds.size() != origIds.size() ) {
+            LOG.warn( "Feature store returned " + newIds.size() + " ids for " + origIds.size()
+                      + " features. References to these features from later chunks cannot be resolved." );
+            return;
+        }
+        for ( int i = 0; i < origIds.size(); i++ ) {
+            if ( origIds.get( i ) != null ) {
+                ids.putStoredId( origIds.get( i ), newIds.get( i ) );
+            }
+        }
+    }
+
+    private void report( int inserted, int total, int chunks, long elapsed ) {
+        double rate = elapsed > 0 ? inserted * 1000.0 / elapsed : 0;
+        StringBuilder sb = new StringBuilder( "- " );
+        sb.append( inserted ).append( "/" ).append( total ).append( " features" );
+        if ( total > 0 ) {
+            sb.append( " (" ).append( (long) inserted * 100 / total ).append( "%)" );
+        }
+        sb.append( ", " ).append( chunks ).append( " chunks, " );
+        sb.append( String.format( "%.1f", rate ) ).append( " features/s" );
+        if ( rate > 0 && inserted < total ) {
+            long eta = (long) ( ( total - inserted ) / rate );
+            sb.append( String.format( ", ETA %d:%02d:%02d", eta / 3600, ( eta / 60 ) % 60, eta % 60 ) );
+        }
+        System.out.println( sb );
+    }
+
+    private class Parser extends Thread {
+
+        private final URL url;
+
+        private final GMLVersion version;
+
+        private final ChunkBoundaries boundaries;
+
+        private final BlockingQueue<Chunk> queue;
+
+        private volatile Throwable error;
+
+        // only read after the end of the queue has been reached
+        private int forcedSplits;
+
+        Parser( URL url, GMLVersion version, ChunkBoundaries boundaries, BlockingQueue<Chunk> queue ) {
+            super( "feature-loader-parser" );
+            this.url = url;
+            this.version = version;
+            this.boundaries = boundaries;
+            this.queue = queue;
+            setDaemon( true );
+        }
+
+        @Override
+        public void run() {
+            boolean aborted = false;
+            try {
+                parse();
+            } catch ( InterruptedException e ) {
+                // import has been aborted
+                aborted = true;
+            } catch ( Throwable t ) {
+                // errors must reach the inserting thread as well, it waits for the end of the queue
+                error = t;
+            } finally {
+                if ( !aborted ) {
+                    try {
+                        queue.put( END );
+                    } catch ( InterruptedException e ) {
+                        // import has been aborted
+                    }
+                }
+            }
+        }
+
+        private void parse()
+                                throws Exception {
+            GMLStreamReader gmlReader = GMLInputFactory.createGMLStreamReader( version, url );
+            try {
+                gmlReader.setApplicationSchema( fs.getSchema() );
+                StreamFeatureCollection fc = gmlReader.readFeatureCollectionStream();
+                int maxChunkSize = chunkSize * MAX_CHUNK_FACTOR;
+                List<Feature> chunk = new ArrayList<Feature>( chunkSize );
+                int first = 0;
+                int member = 0;
+                Feature feature;
+                while ( ( feature = fc.read() ) != null ) {
+                    chunk.add( feature );
+                    if ( chunk.size() >= chunkSize ) {
+                        boolean split = boundaries.canSplitAfter( member );
+                        if ( !split && chunk.size() >= maxChunkSize ) {
+                            // no boundary without crossing references in reach, the inserter resolves them
+                            split = true;
+                            ++forcedSplits;
+                        }
+                        if ( split ) {
+                            handOff( gmlReader.getIdContext(), new Chunk( first, chunk ) );
+                            chunk = new ArrayList<Feature>( chunkSize );
+                            first = member + 1;
+                        }
+                    }
+                    ++member;
+                }
+                if ( !chunk.isEmpty() ) {
+                    handOff( gmlReader.getIdContext(), new Chunk( first, chunk ) );
+                }
+            } finally {
+                gmlReader.close();
+            }
+        }
+
+        private void handOff( GmlDocumentIdContext idContext, Chunk chunk )
+                                throws InterruptedException {
+            // resolve the references of the chunk before the id context forgets about the parsed objects
+            for ( GMLReference<?> ref : idContext.getReferences() ) {
+                if ( ref.isLocal() ) {
+                    try {
+                        ref.getReferencedObject();
+                    } catch ( ReferenceResolvingException e ) {
+                        LOG.debug( e.getMessage() );
+                    }
+                }
+            }
+            idContext.clear();
+            queue.put( chunk );
+        }
+    }
+
+    private static class Chunk {
+
+        // index of the first member in the collection
+        private final int first;
+
+        private final List<Feature> members;
+
+        private Chunk( int first, List<Feature> members ) {
+            this.first = first;
+            this.members = members;
+        }
+    }
+
+    private static class Member {
+
+        private final int index;
+
+        private final Feature feature;
+
+        private List<GMLReference<?>> refs;
+
+        private Member( int index, Feature feature ) {
+            this.index = index;
+            this.feature = feature;
+        }
+
+        /**
+         * @return local references of the member that could not be resolved in its chunk, never <code>null</code>
+         */
+        private List<GMLReference<?>> getReferences() {
+            if ( refs == null ) {
+                refs = new ArrayList<GMLReference<?>>();
+                collectReferences( feature, refs );
+            }
+            return refs;
+        }
+
+        private static void collectReferences( TypedObjectNode node, List<GMLReference<?>> refs ) {
+            if ( node instanceof GMLReference<?> ) {
+                GMLReference<?> ref = (GMLReference<?>) node;
+                if ( ref.isLocal() && !ref.isResolved() ) {
+                    refs.add( ref );
+                }
+            } else if ( node instanceof Feature ) {
+                for ( Property prop : ( (Feature) node ).getProperties() ) {
+                    collectReferences( prop, refs );
+                }
+            } else if ( node instanceof ElementNode ) {
+                for ( TypedObjectNode child : ( (ElementNode) node ).getChildren() ) {
+                    collectReferences( child, refs );
+                }
+            } else if ( node instanceof TypedObjectNodeArray<?> ) {
+                for ( TypedObjectNode element : ( (TypedObjectNodeArray<?>) node ).getElements() ) {
+                    collectReferences( element, refs );
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,293 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2009 by:
+ Department of Geography, University of Bonn
+ and
+ lat/lon GmbH
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tools.feature.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Maps the ids of the GML objects of a dataset to the index of the dataset member that contains them and, once the
+ * member has been stored, to the id that the feature store assigned to the object.
+ * <p>
+ * At most <code>maxInMemory</code> entries are kept on the heap, additional entries are spilled into hash-partitioned
+ * files in a temporary directory. A bit set over the hashes of the spilled ids avoids reading the files for most ids
+ * that are not in the table.
+ * </p>
+ * 
+ * @author <a href="mailto:schneider@lat-lon.de">Markus Schneider</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+class FeatureReferenceTable implements Closeable {
+
+    private static final int BUCKETS = 256;
+
+    private static final int CACHED_BUCKETS = 8;
+
+    private static final int FILTER_BITS = 1 << 26;
+
+    private final int maxInMemory;
+
+    private final File dir;
+
+    private final Map<String, IdEntry> memory = new HashMap<String, IdEntry>();
+
+    private final boolean[] spilled = new boolean[BUCKETS];
+
+    private final BitSet spilledFilter = new BitSet();
+
+    private final Map<Integer, Map<String, IdEntry>> bucketCache = new BucketCache();
+
+    private long size;
+
+    /**
+     * Creates a new {@link FeatureReferenceTable} instance.
+     * 
+     * @param maxInMemory
+     *            maximum number of entries to keep on the heap
+     * @param tmpDir
+     *            directory to create the spill directory in, must not be <code>null</code>
+     * @throws IOException
+     *             if the spill directory could not be created
+     */
+    FeatureReferenceTable( int maxInMemory, File tmpDir ) throws IOException {
+        this.maxInMemory = maxInMemory;
+        this.dir = File.createTempFile( "featurerefs", "", tmpDir );
+        if ( !dir.delete() || !dir.mkdir() ) {
+            throw new IOException( "Could not create directory " + dir + "." );
+        }
+    }
+
+    /**
+     * Adds an id. If the id has been added before, the old entry is kept.
+     * 
+     * @param id
+     *            object id, must not be <code>null</code>
+     * @param member
+     *            index of the member that contains the object
+     * @throws IOException
+     */
+    void put( String id, int member )
+                            throws IOException {
+        if ( lookup( id ) != null ) {
+            return;
+        }
+        memory.put( id, new IdEntry( member, null ) );
+        ++size;
+        if ( memory.size() > maxInMemory ) {
+            spill();
+        }
+    }
+
+    /**
+     * Records the id that the feature store assigned to an object. Ids that have not been added before are ignored.
+     * 
+     * @param id
+     *            object id, must not be <code>null</code>
+     * @param storedId
+     *            id of the stored object, must not be <code>null</code>
+     * @throws IOException
+     */
+    void putStoredId( String id, String storedId )
+                            throws IOException {
+        IdEntry entry = lookup( id );
+        if ( entry == null || storedId.equals( entry.storedId ) ) {
+            return;
+        }
+        // spilled entries are shadowed by the in-memory entry and superseded when it is spilled
+        memory.put( id, new IdEntry( entry.member, storedId ) );
+        if ( memory.size() > maxInMemory ) {
+            spill();
+        }
+    }
+
+    /**
+     * @param id
+     *            object id, must not be <code>null</code>
+     * @return index of the member that contains the object, or -1 if the id is unknown
+     * @throws IOException
+     */
+    int get( String id )
+                            throws IOException {
+        IdEntry entry = lookup( id );
+        return entry == null ? -1 : entry.member;
+    }
+
+    /**
+     * @param id
+     *            object id, must not be <code>null</code>
+     * @return id that the feature store assigned to the object, or <code>null</code> if the object has not been stored
+     *         (or the id is unknown)
+     * @throws IOException
+     */
+    String getStoredId( String id )
+                            throws IOException {
+        IdEntry entry = lookup( id );
+        return entry == null ? null : entry.storedId;
+    }
+
+    /**
+     * @return number of ids in the table
+     */
+    long size() {
+        return size;
+    }
+
+    private IdEntry lookup( String id )
+                            throws IOException {
+        IdEntry entry = memory.get( id );
+        if ( entry != null ) {
+            return entry;
+        }
+        int hash = id.hashCode();
+        int bucket = ( hash & 0x7fffffff ) % BUCKETS;
+        if ( !spilled[bucket] || !spilledFilter.get( hash & ( FILTER_BITS - 1 ) ) ) {
+            return null;
+        }
+        return loadBucket( bucket ).get( id );
+    }
+
+    private void spill()
+                            throws IOException {
+        DataOutputStream[] outs = new DataOutputStream[BUCKETS];
+        try {
+            for ( Entry<String, IdEntry> e : memory.entrySet() ) {
+                int hash = e.getKey().hashCode();
+                int bucket = ( hash & 0x7fffffff ) % BUCKETS;
+                if ( outs[bucket] == null ) {
+                    FileOutputStream fos = new FileOutputStream( getBucketFile( bucket ), true );
+                    outs[bucket] = new DataOutputStream( new BufferedOutputStream( fos ) );
+                    spilled[bucket] = true;
+                }
+                outs[bucket].writeUTF( e.getKey() );
+                outs[bucket].writeInt( e.getValue().member );
+                outs[bucket].writeUTF( e.getValue().storedId == null ? "" : e.getValue().storedId );
+                spilledFilter.set( hash & ( FILTER_BITS - 1 ) );
+            }
+        } finally {
+            for ( DataOutputStream out : outs ) {
+                IOUtils.closeQuietly( out );
+            }
+        }
+        memory.clear();
+        bucketCache.clear();
+    }
+
+    private Map<String, IdEntry> loadBucket( int bucket )
+                            throws IOException {
+        Map<String, IdEntry> entries = bucketCache.get( bucket );
+        if ( entries == null ) {
+            entries = new HashMap<String, IdEntry>();
+            FileInputStream fis = new FileInputStream( getBucketFile( bucket ) );
+            DataInputStream in = new DataInputStream( new BufferedInputStream( fis ) );
+            try {
+                while ( true ) {
+                    String id = in.readUTF();
+                    int member = in.readInt();
+                    String storedId = in.readUTF();
+                    // later entries (with stored ids) supersede earlier ones
+                    entries.put( id, new IdEntry( member, storedId.isEmpty() ? null : storedId ) );
+                }
+            } catch ( EOFException e ) {
+                // end of bucket
+            } finally {
+                IOUtils.closeQuietly( in );
+            }
+            bucketCache.put( bucket, entries );
+        }
+        return entries;
+    }
+
+    private File getBucketFile( int bucket ) {
+        return new File( dir, "bucket-" + bucket + ".bin" );
+    }
+
+    @Override
+    public void close() {
+        memory.clear();
+        bucketCache.clear();
+        File[] files = dir.listFiles();
+        if ( files != null ) {
+            for ( File f : files ) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private static class BucketCache extends LinkedHashMap<Integer, Map<String, IdEntry>> {
+
+        private static final long serialVersionUID = 2376340405935683463L;
+
+        private BucketCache() {
+            super( 16, 0.75f, true );
+        }
+
+        @Override
+        protected boolean removeEldestEntry( Entry<Integer, Map<String, IdEntry>> eldest ) {
+            return size() > CACHED_BUCKETS;
+        }
+    }
+
+    private static class IdEntry {
+
+        private final int member;
+
+        private final String storedId;
+
+        private IdEntry( int member, String storedId ) {
+            this.member = member;
+            this.storedId = storedId;
+        }
+    }
+
+}
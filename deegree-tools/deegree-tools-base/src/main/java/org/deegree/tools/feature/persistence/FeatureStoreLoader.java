@@ -89,6 +89,10 @@ public class FeatureStoreLoader {
 
     private static final String OPT_IDGEN_MODE = "idgen";
 
+    private static final String OPT_CHUNK_SIZE = "chunksize";
+
+    private static final String OPT_TMP_DIR = "tmpdir";
+
     private enum Action {
         insert, stats
     }
@@ -125,6 +129,21 @@ public class FeatureStoreLoader {
         }
     }
 
+    private static void insertChunked( FeatureStore fs, String datasetFile, GMLVersion gmlVersion, IDGenMode mode,
+                                       int chunkSize, File tmpDir ) {
+
+        File f = new File( datasetFile );
+        try {
+            URL url = f.toURI().toURL();
+            System.out.println( "- Importing dataset: '" + datasetFile + "' in chunks of " + chunkSize + " features." );
+            int inserted = new ChunkedFeatureLoader( fs, mode, chunkSize ).load( url, gmlVersion, tmpDir );
+            System.out.println( "\n- Insert succeeded (" + inserted + " features)." );
+        } catch ( Exception e ) {
+            e.printStackTrace();
+            System.err.println( "Error performing insert: " + e.getMessage() );
+        }
+    }
+
     /**
      * @param args
      * @throws FeatureStoreException
@@ -182,6 +201,8 @@ public class FeatureStoreLoader {
             }
 
             String inputFileName = cmdline.getOptionValue( OPT_DATASET_FILE );
+            int chunkSize = CommandUtils.getIntOption( cmdline, OPT_CHUNK_SIZE, -1 );
+            File tmpDir = new File( cmdline.getOptionValue( OPT_TMP_DIR, System.getProperty( "java.io.tmpdir" ) ) );
 
             DeegreeWorkspace ws = DeegreeWorkspace.getInstance( workspace, new File( workspace ) );
             ws.initAll();
@@ -191,7 +212,11 @@ public class FeatureStoreLoader {
 
             switch ( action ) {
             case insert:
-                insert( fs, inputFileName, format, idGenMode );
+                if ( chunkSize > 0 ) {
+                    insertChunked( fs, inputFileName, format, idGenMode, chunkSize, tmpDir );
+                } else {
+                    insert( fs, inputFileName, format, idGenMode );
+                }
                 break;
             case stats:
                 System.out.println( "TODO: Stats..." );
@@ -245,6 +270,14 @@ public class FeatureStoreLoader {
         opt.setRequired( true );
         opts.addOption( opt );
 
+        opt = new Option( OPT_CHUNK_SIZE, true, "number of features to insert per transaction, enables streaming "
+                                                + "import (default: insert the dataset in a single transaction)" );
+        opts.addOption( opt );
+
+        opt = new Option( OPT_TMP_DIR, true, "directory for temporary files of the streaming import (default: "
+                                             + "java.io.tmpdir)" );
+        opts.addOption( opt );
+
         CommandUtils.addDefaultOptions( opts );
         return opts;
     }
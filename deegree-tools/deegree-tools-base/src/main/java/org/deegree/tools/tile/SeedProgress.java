@@ -0,0 +1,230 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.tools.tile;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Keeps track of the completed batches of a {@link TileSeeder} job and persists them to a properties file, so an
+ * interrupted job can be resumed.
+ * <p>
+ * Batches are numbered in the (deterministic) order they are produced and may finish out of order. The watermark is
+ * the number of leading batches that have all been finished, either successfully or with failures. It is persisted
+ * along with the sequence numbers of the failed batches below it. On resume, batches after the watermark and failed
+ * batches are processed again.
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+class SeedProgress {
+
+    private static final String KEY_JOB = "job";
+
+    private static final String KEY_WATERMARK = "finishedBatches";
+
+    private static final String KEY_FAILED = "failedBatches";
+
+    private final File file;
+
+    private final String job;
+
+    // finished batches after the watermark, bounded by the number of batches in progress
+    private final TreeSet<Long> finishedAhead = new TreeSet<Long>();
+
+    // failed batches, processed again on resume
+    private final TreeSet<Long> failed = new TreeSet<Long>();
+
+    private long watermark;
+
+    /**
+     * Creates a new {@link SeedProgress} instance. If the file exists and was written for the same job, the watermark
+     * and the failed batches are restored from it.
+     * 
+     * @param file
+     *            progress file, can be <code>null</code> (progress is not persisted)
+     * @param job
+     *            description of the job, used to detect progress files of different jobs, must not be
+     *            <code>null</code>
+     * @throws IOException
+     *             if the progress file exists, but could not be read
+     */
+    SeedProgress( File file, String job ) throws IOException {
+        this.file = file;
+        this.job = job;
+        if ( file != null && file.exists() ) {
+            Properties props = new Properties();
+            InputStream in = new FileInputStream( file );
+            try {
+                props.load( in );
+            } finally {
+                IOUtils.closeQuietly( in );
+            }
+            if ( job.equals( props.getProperty( KEY_JOB ) ) ) {
+                watermark = Long.parseLong( props.getProperty( KEY_WATERMARK, "0" ) );
+                for ( String batch : props.getProperty( KEY_FAILED, "" ).split( "," ) ) {
+                    if ( batch.length() > 0 ) {
+                        failed.add( Long.valueOf( batch ) );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of leading batches that have all been finished (successfully or not)
+     */
+    synchronized long getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * @return the number of failed batches below the watermark
+     */
+    synchronized int getFailedCount() {
+        return failed.size();
+    }
+
+    /**
+     * @param batch
+     *            sequence number of the batch
+     * @return <code>true</code>, if the batch is below the watermark and has not failed
+     */
+    synchronized boolean isCompleted( long batch ) {
+        return batch < watermark && !failed.contains( batch );
+    }
+
+    /**
+     * Marks a batch as completed successfully. A batch that failed in a previous run is no longer considered failed.
+     * 
+     * @param batch
+     *            sequence number of the batch
+     */
+    synchronized void complete( long batch ) {
+        failed.remove( batch );
+        finish( batch );
+    }
+
+    /**
+     * Marks a batch as failed, it is processed again on resume.
+     * 
+     * @param batch
+     *            sequence number of the batch
+     */
+    synchronized void fail( long batch ) {
+        failed.add( batch );
+        finish( batch );
+    }
+
+    // this lock must be held
+    private void finish( long batch ) {
+        if ( batch < watermark ) {
+            return;
+        }
+        finishedAhead.add( batch );
+        while ( !finishedAhead.isEmpty() && finishedAhead.first() == watermark ) {
+            finishedAhead.pollFirst();
+            ++watermark;
+        }
+    }
+
+    /**
+     * Writes the current watermark to the progress file. The file is replaced atomically where the file system
+     * supports it.
+     * 
+     * @throws IOException
+     */
+    void save()
+                            throws IOException {
+        if ( file == null ) {
+            return;
+        }
+        Properties props = new Properties();
+        props.setProperty( KEY_JOB, job );
+        synchronized ( this ) {
+            props.setProperty( KEY_WATERMARK, Long.toString( watermark ) );
+            StringBuilder sb = new StringBuilder();
+            for ( Long batch : failed.headSet( watermark ) ) {
+                if ( sb.length() > 0 ) {
+                    sb.append( ',' );
+                }
+                sb.append( batch );
+            }
+            props.setProperty( KEY_FAILED, sb.toString() );
+        }
+        File tmp = new File( file.getPath() + ".tmp" );
+        OutputStream out = new FileOutputStream( tmp );
+        try {
+            props.store( out, "deegree tile seeding progress" );
+        } finally {
+            IOUtils.closeQuietly( out );
+        }
+        if ( !tmp.renameTo( file ) ) {
+            // renaming onto an existing file fails on some platforms
+            file.delete();
+            if ( !tmp.renameTo( file ) ) {
+                throw new IOException( "Could not write progress file " + file + "." );
+            }
+        }
+    }
+
+    /**
+     * Removes the progress file, called after the job has been completed.
+     */
+    void delete() {
+        if ( file != null ) {
+            file.delete();
+        }
+    }
+
+}
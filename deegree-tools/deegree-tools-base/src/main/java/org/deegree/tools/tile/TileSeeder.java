@@ -0,0 +1,348 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.tools.tile;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.Geometry;
+import org.deegree.tile.Tile;
+import org.deegree.tile.TileDataLevel;
+import org.deegree.tile.TileMatrix;
+import org.deegree.tile.Tiles;
+import org.deegree.tile.persistence.TileStore;
+import org.deegree.tile.persistence.TileStoreTransaction;
+import org.slf4j.Logger;
+
+/**
+ * Seeds or truncates a range of tile data levels of a tile store using a pool of worker threads.
+ * <p>
+ * The tiles are processed in batches of consecutive tiles of a row. When seeding from a source tile store, the tiles
+ * of each batch are fetched from the source and written to the target using one transaction per batch. Without a
+ * source, the tiles are requested from the target tile store itself, which renders or fetches (and caches) them.
+ * When truncating, the tiles are deleted using the transaction of the target tile store.
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+class TileSeeder {
+
+    private static final Logger LOG = getLogger( TileSeeder.class );
+
+    private static final long REPORT_INTERVAL = 5000;
+
+    private final TileStore target;
+
+    private final String tileDataSet;
+
+    private final TileStore source;
+
+    private final String sourceTileDataSet;
+
+    private final List<TileDataLevel> levels;
+
+    private final Envelope bbox;
+
+    private final Geometry polygon;
+
+    private final int threads;
+
+    private final int batchSize;
+
+    private final AtomicLong processed = new AtomicLong();
+
+    private final AtomicLong skipped = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private long startTime;
+
+    private long total;
+
+    private volatile long resumed;
+
+    /**
+     * @param target
+     *            tile store to seed or truncate, must not be <code>null</code>
+     * @param tileDataSet
+     *            id of the tile data set to seed or truncate, must not be <code>null</code>
+     * @param source
+     *            tile store to fetch tiles from, may be <code>null</code> (tiles are requested from the target)
+     * @param sourceTileDataSet
+     *            id of the source tile data set, must not be <code>null</code> if a source is given
+     * @param levels
+     *            tile data levels to process, must not be <code>null</code>
+     * @param bbox
+     *            area to process, must not be <code>null</code>
+     * @param polygon
+     *            if not <code>null</code>, only tiles intersecting this geometry are processed
+     * @param threads
+     *            number of worker threads, must be positive
+     * @param batchSize
+     *            maximum number of tiles per batch, must be positive
+     */
+    TileSeeder( TileStore target, String tileDataSet, TileStore source, String sourceTileDataSet,
+                List<TileDataLevel> levels, Envelope bbox, Geometry polygon, int threads, int batchSize ) {
+        this.target = target;
+        this.tileDataSet = tileDataSet;
+        this.source = source;
+        this.sourceTileDataSet = sourceTileDataSet;
+        this.levels = levels;
+        this.bbox = bbox;
+        this.polygon = polygon;
+        this.threads = threads;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Processes all tiles, skipping the batches already completed according to the progress. Batches that failed in a
+     * previous run are processed again.
+     * 
+     * @param truncate
+     *            <code>true</code>, if tiles should be deleted, <code>false</code> if they should be seeded
+     * @param progress
+     *            progress of the job, must not be <code>null</code>
+     * @return <code>true</code>, if all tiles have been processed successfully
+     * @throws InterruptedException
+     */
+    boolean run( boolean truncate, SeedProgress progress )
+                            throws InterruptedException {
+        startTime = System.currentTimeMillis();
+        long[][] ranges = new long[levels.size()][];
+        for ( int i = 0; i < ranges.length; ++i ) {
+            ranges[i] = Tiles.getTileIndexRange( levels.get( i ), bbox );
+            if ( ranges[i] != null ) {
+                total += ( ranges[i][2] - ranges[i][0] + 1 ) * ( ranges[i][3] - ranges[i][1] + 1 );
+            }
+        }
+
+        ThreadPoolExecutor workers = new ThreadPoolExecutor( threads, threads, 0, MILLISECONDS,
+                                                             new ArrayBlockingQueue<Runnable>( threads * 4 ),
+                                                             new ThreadPoolExecutor.CallerRunsPolicy() );
+        Reporter reporter = new Reporter( progress );
+        reporter.start();
+        try {
+            long seq = 0;
+            for ( int i = 0; i < ranges.length; ++i ) {
+                long[] range = ranges[i];
+                if ( range == null ) {
+                    continue;
+                }
+                TileDataLevel level = levels.get( i );
+                for ( long y = range[1]; y <= range[3]; ++y ) {
+                    for ( long minX = range[0]; minX <= range[2]; minX += batchSize ) {
+                        long maxX = Math.min( minX + batchSize - 1, range[2] );
+                        if ( progress.isCompleted( seq ) ) {
+                            resumed += maxX - minX + 1;
+                            processed.addAndGet( maxX - minX + 1 );
+                        } else {
+                            workers.execute( new Batch( seq, level, y, minX, maxX, truncate, progress ) );
+                        }
+                        ++seq;
+                    }
+                }
+            }
+        } finally {
+            workers.shutdown();
+            workers.awaitTermination( Long.MAX_VALUE, SECONDS );
+            reporter.interrupt();
+            reporter.join();
+        }
+        report();
+        return failed.get() == 0;
+    }
+
+    private void report() {
+        long done = processed.get();
+        double secs = ( System.currentTimeMillis() - startTime ) / 1000.0;
+        double rate = secs > 0 ? ( done - resumed ) / secs : 0;
+        StringBuilder sb = new StringBuilder();
+        sb.append( "- " ).append( done ).append( "/" ).append( total ).append( " tiles" );
+        if ( total > 0 ) {
+            sb.append( " (" ).append( done * 100 / total ).append( "%)" );
+        }
+        sb.append( ", " ).append( skipped.get() ).append( " outside polygon, " ).append( failed.get() );
+        sb.append( " failed, " ).append( String.format( "%.1f", rate ) ).append( " tiles/s" );
+        if ( rate > 0 && done < total ) {
+            long eta = (long) ( ( total - done ) / rate );
+            sb.append( String.format( ", ETA %d:%02d:%02d", eta / 3600, ( eta / 60 ) % 60, eta % 60 ) );
+        }
+        System.out.println( sb );
+    }
+
+    private void seed( String level, long x, long y )
+                            throws IOException {
+        Tile tile = target.getTile( tileDataSet, level, (int) x, (int) y );
+        if ( tile == null ) {
+            return;
+        }
+        InputStream in = tile.getAsStream();
+        try {
+            IOUtils.copy( in, new NullOutputStream() );
+        } finally {
+            IOUtils.closeQuietly( in );
+        }
+    }
+
+    private class Batch implements Runnable {
+
+        private final long seq;
+
+        private final TileDataLevel level;
+
+        private final long y;
+
+        private final long minX;
+
+        private final long maxX;
+
+        private final boolean truncate;
+
+        private final SeedProgress progress;
+
+        Batch( long seq, TileDataLevel level, long y, long minX, long maxX, boolean truncate, SeedProgress progress ) {
+            this.seq = seq;
+            this.level = level;
+            this.y = y;
+            this.minX = minX;
+            this.maxX = maxX;
+            this.truncate = truncate;
+            this.progress = progress;
+        }
+
+        @Override
+        public void run() {
+            boolean success = false;
+            try {
+                success = process();
+            } finally {
+                // failed batches are recorded, so the progress advances and they can be retried on resume
+                if ( success ) {
+                    progress.complete( seq );
+                } else {
+                    progress.fail( seq );
+                }
+            }
+        }
+
+        private boolean process() {
+            TileMatrix md = level.getMetadata();
+            String id = md.getIdentifier();
+            boolean success = true;
+            TileStoreTransaction ta = null;
+            for ( long x = minX; x <= maxX; ++x ) {
+                try {
+                    if ( polygon != null && !polygon.intersects( Tiles.calcTileEnvelope( md, x, y ) ) ) {
+                        skipped.incrementAndGet();
+                        continue;
+                    }
+                    if ( truncate || source != null ) {
+                        if ( ta == null ) {
+                            ta = target.acquireTransaction( tileDataSet );
+                        }
+                        if ( truncate ) {
+                            ta.delete( id, x, y );
+                        } else {
+                            Tile tile = source.getTile( sourceTileDataSet, id, (int) x, (int) y );
+                            if ( tile != null ) {
+                                ta.put( id, tile, x, y );
+                            }
+                        }
+                    } else {
+                        seed( id, x, y );
+                    }
+                } catch ( Throwable e ) {
+                    success = false;
+                    failed.incrementAndGet();
+                    LOG.warn( "Could not process tile {}/{}/{}: {}", new Object[] { id, x, y, e.getMessage() } );
+                    LOG.trace( "Stack trace:", e );
+                } finally {
+                    processed.incrementAndGet();
+                }
+            }
+            return success;
+        }
+    }
+
+    private class Reporter extends Thread {
+
+        private final SeedProgress progress;
+
+        Reporter( SeedProgress progress ) {
+            super( "tile-seeder-reporter" );
+            this.progress = progress;
+            setDaemon( true );
+        }
+
+        @Override
+        public void run() {
+            while ( !isInterrupted() ) {
+                try {
+                    sleep( REPORT_INTERVAL );
+                } catch ( InterruptedException e ) {
+                    return;
+                }
+                report();
+                try {
+                    progress.save();
+                } catch ( IOException e ) {
+                    LOG.warn( "Could not save seeding progress: {}", e.getMessage() );
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,354 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+package org.deegree.tools.tile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+import org.deegree.commons.annotations.Tool;
+import org.deegree.commons.config.DeegreeWorkspace;
+import org.deegree.commons.config.ResourceInitException;
+import org.deegree.commons.config.ResourceState;
+import org.deegree.commons.tools.CommandUtils;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.Geometry;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.geometry.io.WKTReader;
+import org.deegree.tile.TileDataLevel;
+import org.deegree.tile.TileDataSet;
+import org.deegree.tile.persistence.TileStore;
+import org.deegree.tile.persistence.TileStoreManager;
+import org.deegree.tile.persistence.cache.CachingTileStore;
+import org.deegree.tools.i18n.Messages;
+
+/**
+ * Seeds tile stores (e.g. caching tile stores) or truncates tiles after data updates.
+ * <p>
+ * The tool opens the tile stores of the workspace itself. The disk directory of a caching tile store is locked by the
+ * process using it, so it can only be seeded or truncated while no server uses it: either stop the server, or call
+ * <code>releasePersistentTier</code> on its <code>TileCache</code> MBean before and <code>reloadPersistentTier</code>
+ * after running the tool. Reloading also makes the seeded and truncated tiles visible to the server.
+ * </p>
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+@Tool("Seeds or truncates tile stores")
+public class TileStoreSeeder {
+
+    // command line parameters
+    private static final String OPT_ACTION = "action";
+
+    private static final String OPT_WORKSPACE = "workspace";
+
+    private static final String OPT_TILE_STORE = "tilestore";
+
+    private static final String OPT_TILE_DATA_SET = "tiledataset";
+
+    private static final String OPT_SOURCE = "source";
+
+    private static final String OPT_SOURCE_TILE_DATA_SET = "sourcetiledataset";
+
+    private static final String OPT_MIN_LEVEL = "minlevel";
+
+    private static final String OPT_MAX_LEVEL = "maxlevel";
+
+    private static final String OPT_BBOX = "bbox";
+
+    private static final String OPT_POLYGON = "polygon";
+
+    private static final String OPT_THREADS = "threads";
+
+    private static final String OPT_BATCH_SIZE = "batchsize";
+
+    private static final String OPT_RESUME_FILE = "resumefile";
+
+    private enum Action {
+        seed, truncate
+    }
+
+    /**
+     * @param args
+     * @throws ResourceInitException
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static void main( String[] args )
+                            throws ResourceInitException, IOException, InterruptedException {
+
+        // for the moment, using the CLI API there is no way to respond to a help argument; see
+        // https://issues.apache.org/jira/browse/CLI-179
+        if ( args.length == 0 || ( args.length > 0 && ( args[0].contains( "help" ) || args[0].contains( "?" ) ) ) ) {
+            printHelp( initOptions() );
+        }
+
+        try {
+            CommandLine cmdline = new PosixParser().parse( initOptions(), args );
+
+            Action action = null;
+            try {
+                action = Action.valueOf( cmdline.getOptionValue( OPT_ACTION ) );
+            } catch ( IllegalArgumentException e ) {
+                System.out.println( "Unknown action '" + cmdline.getOptionValue( OPT_ACTION )
+                                    + "'. Call with '-help' for displaying available actions." );
+                System.exit( 0 );
+            }
+
+            String workspace = cmdline.getOptionValue( OPT_WORKSPACE );
+            String tileStoreId = cmdline.getOptionValue( OPT_TILE_STORE );
+            String tileDataSetId = cmdline.getOptionValue( OPT_TILE_DATA_SET );
+            String sourceId = cmdline.getOptionValue( OPT_SOURCE );
+            String sourceTileDataSetId = cmdline.getOptionValue( OPT_SOURCE_TILE_DATA_SET, tileDataSetId );
+            int threads = CommandUtils.getIntOption( cmdline, OPT_THREADS, Runtime.getRuntime().availableProcessors() );
+            int batchSize = CommandUtils.getIntOption( cmdline, OPT_BATCH_SIZE, 16 );
+            if ( threads < 1 || batchSize < 1 ) {
+                throw new ParseException( OPT_THREADS + " and " + OPT_BATCH_SIZE + " must be positive" );
+            }
+            if ( action == Action.truncate && sourceId != null ) {
+                throw new ParseException( OPT_SOURCE + " can not be used for truncating" );
+            }
+
+            DeegreeWorkspace ws = DeegreeWorkspace.getInstance( workspace, new File( workspace ) );
+            ws.initAll();
+            TileStoreManager mgr = ws.getSubsystemManager( TileStoreManager.class );
+
+            TileStore store = getTileStore( mgr, tileStoreId );
+            TileDataSet tileDataSet = store.getTileDataSet( tileDataSetId );
+            if ( tileDataSet == null ) {
+                System.err.println( "No tile data set with id '" + tileDataSetId + "' in tile store '" + tileStoreId
+                                    + "'." );
+                System.exit( 1 );
+            }
+            TileStore source = null;
+            if ( sourceId != null ) {
+                source = getTileStore( mgr, sourceId );
+                if ( source.getTileDataSet( sourceTileDataSetId ) == null ) {
+                    System.err.println( "No tile data set with id '" + sourceTileDataSetId + "' in tile store '"
+                                        + sourceId + "'." );
+                    System.exit( 1 );
+                }
+            }
+
+            List<TileDataLevel> levels = tileDataSet.getTileDataLevels();
+            int minLevel = CommandUtils.getIntOption( cmdline, OPT_MIN_LEVEL, 0 );
+            int maxLevel = CommandUtils.getIntOption( cmdline, OPT_MAX_LEVEL, levels.size() - 1 );
+            if ( minLevel < 0 || maxLevel >= levels.size() || minLevel > maxLevel ) {
+                throw new ParseException( "level range must be within 0 and " + ( levels.size() - 1 ) );
+            }
+            levels = levels.subList( minLevel, maxLevel + 1 );
+
+            Envelope extent = tileDataSet.getTileMatrixSet().getSpatialMetadata().getEnvelope();
+            ICRS crs = extent.getCoordinateSystem();
+            Geometry polygon = null;
+            if ( cmdline.hasOption( OPT_POLYGON ) ) {
+                try {
+                    polygon = new WKTReader( crs ).read( cmdline.getOptionValue( OPT_POLYGON ) );
+                } catch ( Exception e ) {
+                    throw new ParseException( "polygon is not valid WKT: " + e.getMessage() );
+                }
+            }
+            Envelope bbox = extent;
+            if ( cmdline.hasOption( OPT_BBOX ) ) {
+                bbox = parseBbox( cmdline.getOptionValue( OPT_BBOX ), crs );
+            } else if ( polygon != null ) {
+                bbox = polygon.getEnvelope();
+            }
+
+            String job = action + "|" + tileStoreId + "|" + tileDataSetId + "|" + sourceId + "|"
+                         + sourceTileDataSetId + "|" + minLevel + "-" + maxLevel + "|" + bbox + "|"
+                         + cmdline.getOptionValue( OPT_POLYGON ) + "|" + batchSize;
+            String resumeFile = cmdline.getOptionValue( OPT_RESUME_FILE );
+            final SeedProgress progress = new SeedProgress( resumeFile == null ? null : new File( resumeFile ), job );
+            if ( progress.getWatermark() > 0 ) {
+                System.out.println( "- Resuming after " + progress.getWatermark() + " batches, retrying "
+                                    + progress.getFailedCount() + " failed batches." );
+            }
+            Thread saveOnExit = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        progress.save();
+                    } catch ( IOException e ) {
+                        System.err.println( "Could not save progress: " + e.getMessage() );
+                    }
+                }
+            };
+            Runtime.getRuntime().addShutdownHook( saveOnExit );
+
+            System.out.println( "- " + ( action == Action.seed ? "Seeding" : "Truncating" ) + " levels "
+                                + levels.get( 0 ).getMetadata().getIdentifier() + " to "
+                                + levels.get( levels.size() - 1 ).getMetadata().getIdentifier() + " of '"
+                                + tileStoreId + "/" + tileDataSetId + "' using " + threads + " threads." );
+            TileSeeder seeder = new TileSeeder( store, tileDataSetId, source, sourceTileDataSetId, levels, bbox,
+                                                polygon, threads, batchSize );
+            boolean success = seeder.run( action == Action.truncate, progress );
+
+            Runtime.getRuntime().removeShutdownHook( saveOnExit );
+            if ( success ) {
+                progress.delete();
+                System.out.println( "- Done." );
+                if ( store instanceof CachingTileStore ) {
+                    System.out.println( "- Call reloadPersistentTier on the TileCache MBean of running servers to make "
+                                        + "the changes visible." );
+                }
+            } else {
+                progress.save();
+                System.out.println( "- Some tiles could not be processed. Run again to retry them." );
+            }
+            ws.destroyAll();
+        } catch ( ParseException exp ) {
+            System.err.println( Messages.getMessage( "TOOL_COMMANDLINE_ERROR", exp.getMessage() ) );
+        }
+    }
+
+    private static TileStore getTileStore( TileStoreManager mgr, String id ) {
+        TileStore store = mgr.get( id );
+        if ( store == null ) {
+            ResourceState<TileStore> state = mgr.getState( id );
+            if ( state != null && state.getLastException() != null ) {
+                // e.g. the cache directory is locked by a running server
+                Throwable cause = state.getLastException();
+                while ( cause.getCause() != null ) {
+                    cause = cause.getCause();
+                }
+                System.err.println( "Tile store '" + id + "' could not be initialized: " + cause.getMessage() );
+            } else {
+                System.err.println( "No tile store with id '" + id + "' in the workspace." );
+            }
+            System.exit( 1 );
+        }
+        return store;
+    }
+
+    private static Envelope parseBbox( String bbox, ICRS crs )
+                            throws ParseException {
+        String[] parts = bbox.split( "," );
+        if ( parts.length != 4 ) {
+            throw new ParseException( "bbox must be given as minx,miny,maxx,maxy" );
+        }
+        double[] coords = new double[4];
+        try {
+            for ( int i = 0; i < 4; ++i ) {
+                coords[i] = Double.parseDouble( parts[i].trim() );
+            }
+        } catch ( NumberFormatException e ) {
+            throw new ParseException( "bbox must be given as minx,miny,maxx,maxy" );
+        }
+        return new GeometryFactory().createEnvelope( coords[0], coords[1], coords[2], coords[3], crs );
+    }
+
+    private static Options initOptions() {
+
+        Options opts = new Options();
+
+        String actionsList = "";
+        Action[] actions = Action.values();
+        actionsList += actions[0].toString();
+        for ( int i = 1; i < actions.length; i++ ) {
+            actionsList += ", " + actions[i];
+        }
+
+        Option opt = new Option( OPT_ACTION, true, "action, one of: " + actionsList + "" );
+        opt.setRequired( true );
+        opts.addOption( opt );
+
+        opt = new Option( OPT_WORKSPACE, true, "workspace name" );
+        opt.setRequired( true );
+        opts.addOption( opt );
+
+        opt = new Option( OPT_TILE_STORE, true, "id of the tile store to seed or truncate" );
+        opt.setRequired( true );
+        opts.addOption( opt );
+
+        opt = new Option( OPT_TILE_DATA_SET, true, "id of the tile data set to seed or truncate" );
+        opt.setRequired( true );
+        opts.addOption( opt );
+
+        opt = new Option( OPT_SOURCE, true, "id of a tile store to copy the tiles from (default: request the tiles "
+                                            + "from the seeded tile store itself)" );
+        opts.addOption( opt );
+
+        opt = new Option( OPT_SOURCE_TILE_DATA_SET, true, "id of the tile data set of the source tile store "
+                                                          + "(default: same as " + OPT_TILE_DATA_SET + ")" );
+        opts.addOption( opt );
+
+        opt = new Option( OPT_MIN_LEVEL, true, "index of the first tile data level to process (default: 0)" );
+        opts.addOption( opt );
+
+        opt = new Option( OPT_MAX_LEVEL, true, "index of the last tile data level to process (default: last level)" );
+        opts.addOption( opt );
+
+        opt = new Option( OPT_BBOX, true, "area to process as minx,miny,maxx,maxy in the crs of the tile matrix set "
+                                          + "(default: extent of the tile matrix set)" );
+        opts.addOption( opt );
+
+        opt = new Option( OPT_POLYGON, true, "WKT geometry in the crs of the tile matrix set, only tiles "
+                                             + "intersecting it are processed" );
+        opts.addOption( opt );
+
+        opt = new Option( OPT_THREADS, true, "number of worker threads (default: number of processors)" );
+        opts.addOption( opt );
+
+        opt = new Option( OPT_BATCH_SIZE, true, "number of tiles written per transaction (default: 16)" );
+        opts.addOption( opt );
+
+        opt = new Option( OPT_RESUME_FILE, true, "file to store the progress in, an interrupted run is resumed "
+                                                 + "when called again with the same file and options" );
+        opts.addOption( opt );
+
+        CommandUtils.addDefaultOptions( opts );
+        return opts;
+    }
+
+    private static void printHelp( Options options ) {
+        CommandUtils.printHelp( options, TileStoreSeeder.class.getSimpleName(), null, null );
+    }
+}
@@ -0,0 +1,199 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2009 by:
+ Department of Geography, University of Bonn
+ and
+ lat/lon GmbH
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tools.feature.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ChunkBoundaries}.
+ * 
+ * @author <a href="mailto:schneider@lat-lon.de">Markus Schneider</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class ChunkBoundariesTest {
+
+    private File dir;
+
+    @Before
+    public void setUp()
+                            throws IOException {
+        dir = File.createTempFile( "chunkboundaries", "" );
+        dir.delete();
+        dir.mkdir();
+    }
+
+    @After
+    public void tearDown()
+                            throws IOException {
+        FileUtils.deleteDirectory( dir );
+    }
+
+    @Test
+    public void testIndependentMembers()
+                            throws Exception {
+        ChunkBoundaries boundaries = scan( member( "f0", "" ), member( "f1", "" ), member( "f2", "" ) );
+        assertEquals( 3, boundaries.getMemberCount() );
+        assertEquals( 0, boundaries.getDanglingReferences() );
+        assertSplits( boundaries, true, true, true );
+    }
+
+    @Test
+    public void testForwardReference()
+                            throws Exception {
+        ChunkBoundaries boundaries = scan( member( "f0", ref( "f2" ) ), member( "f1", "" ), member( "f2", "" ),
+                                           member( "f3", "" ) );
+        assertSplits( boundaries, false, false, true, true );
+    }
+
+    @Test
+    public void testBackwardReference()
+                            throws Exception {
+        ChunkBoundaries boundaries = scan( member( "f0", "" ), member( "f1", "" ), member( "f2", "" ),
+                                           member( "f3", ref( "f1" ) ) );
+        assertSplits( boundaries, true, false, false, true );
+    }
+
+    @Test
+    public void testReferenceToNestedObject()
+                            throws Exception {
+        String point = "<app:geom><gml:Point gml:id=\"p1\"><gml:pos>1 2</gml:pos></gml:Point></app:geom>";
+        ChunkBoundaries boundaries = scan( member( "f0", "" ), member( "f1", point ), member( "f2", "" ),
+                                           member( "f3", ref( "p1" ) ) );
+        assertSplits( boundaries, true, false, false, true );
+    }
+
+    @Test
+    public void testOverlappingReferences()
+                            throws Exception {
+        ChunkBoundaries boundaries = scan( member( "f0", ref( "f2" ) ), member( "f1", ref( "f3" ) ),
+                                           member( "f2", "" ), member( "f3", "" ), member( "f4", "" ) );
+        assertSplits( boundaries, false, false, false, true, true );
+    }
+
+    @Test
+    public void testDanglingReference()
+                            throws Exception {
+        ChunkBoundaries boundaries = scan( member( "f0", ref( "unknown" ) ), member( "f1", "" ) );
+        assertEquals( 1, boundaries.getDanglingReferences() );
+        assertSplits( boundaries, true, true );
+    }
+
+    @Test
+    public void testMemberByReference()
+                            throws Exception {
+        String byRef = "<gml:featureMember xlink:href=\"#f0\"/>";
+        ChunkBoundaries boundaries = scan( member( "f0", "" ), member( "f1", "" ), byRef, member( "f3", "" ) );
+        assertEquals( 4, boundaries.getMemberCount() );
+        assertSplits( boundaries, false, false, true, true );
+    }
+
+    @Test
+    public void testMemberArray()
+                            throws Exception {
+        String array = "<gml:featureMembers>" + feature( "f1", "" ) + feature( "f2", ref( "f0" ) )
+                       + feature( "f3", "" ) + "</gml:featureMembers>";
+        ChunkBoundaries boundaries = scan( member( "f0", "" ), array, member( "f4", "" ) );
+        assertEquals( 5, boundaries.getMemberCount() );
+        assertSplits( boundaries, false, false, true, true, true );
+    }
+
+    @Test
+    public void testNonMemberPropertiesAreSkipped()
+                            throws Exception {
+        String boundedBy = "<gml:boundedBy><gml:Envelope gml:id=\"env\"><gml:lowerCorner>0 0</gml:lowerCorner>"
+                           + "<gml:upperCorner>1 1</gml:upperCorner></gml:Envelope></gml:boundedBy>";
+        ChunkBoundaries boundaries = scan( boundedBy, member( "f0", "" ), member( "f1", ref( "env" ) ) );
+        assertEquals( 2, boundaries.getMemberCount() );
+        assertSplits( boundaries, true, true );
+    }
+
+    private ChunkBoundaries scan( String... members )
+                            throws IOException, XMLStreamException {
+        StringBuilder sb = new StringBuilder();
+        sb.append( "<wfs:FeatureCollection xmlns:wfs=\"http://www.opengis.net/wfs\"" );
+        sb.append( " xmlns:gml=\"http://www.opengis.net/gml\" xmlns:xlink=\"http://www.w3.org/1999/xlink\"" );
+        sb.append( " xmlns:app=\"http://www.deegree.org/app\">" );
+        for ( String member : members ) {
+            sb.append( member );
+        }
+        sb.append( "</wfs:FeatureCollection>" );
+        File file = new File( dir, "collection.xml" );
+        FileUtils.writeStringToFile( file, sb.toString(), "UTF-8" );
+        FeatureReferenceTable ids = new FeatureReferenceTable( 100, dir );
+        try {
+            return ChunkBoundaries.scan( file.toURI().toURL(), ids );
+        } finally {
+            ids.close();
+        }
+    }
+
+    private static String member( String id, String properties ) {
+        return "<gml:featureMember>" + feature( id, properties ) + "</gml:featureMember>";
+    }
+
+    private static String feature( String id, String properties ) {
+        return "<app:Feature gml:id=\"" + id + "\"><app:name>" + id + "</app:name>" + properties + "</app:Feature>";
+    }
+
+    private static String ref( String id ) {
+        return "<app:ref xlink:href=\"#" + id + "\"/>";
+    }
+
+    private static void assertSplits( ChunkBoundaries boundaries, boolean... splits ) {
+        for ( int i = 0; i < splits.length; ++i ) {
+            if ( splits[i] ) {
+                assertTrue( "A chunk should be able to end after member " + i + ".", boundaries.canSplitAfter( i ) );
+            } else {
+                assertFalse( "A chunk must not end after member " + i + ".", boundaries.canSplitAfter( i ) );
+            }
+        }
+    }
+
+}
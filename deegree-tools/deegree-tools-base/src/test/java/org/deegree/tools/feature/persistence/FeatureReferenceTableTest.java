@@ -0,0 +1,188 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2009 by:
+ Department of Geography, University of Bonn
+ and
+ lat/lon GmbH
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tools.feature.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link FeatureReferenceTable}.
+ * 
+ * @author <a href="mailto:schneider@lat-lon.de">Markus Schneider</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class FeatureReferenceTableTest {
+
+    private File dir;
+
+    @Before
+    public void setUp()
+                            throws IOException {
+        dir = File.createTempFile( "featurereferencetable", "" );
+        dir.delete();
+        dir.mkdir();
+    }
+
+    @After
+    public void tearDown()
+                            throws IOException {
+        FileUtils.deleteDirectory( dir );
+    }
+
+    @Test
+    public void testLookupInMemory()
+                            throws IOException {
+        FeatureReferenceTable table = new FeatureReferenceTable( 100, dir );
+        try {
+            table.put( "a", 0 );
+            table.put( "b", 3 );
+            assertEquals( 0, table.get( "a" ) );
+            assertEquals( 3, table.get( "b" ) );
+            assertEquals( -1, table.get( "c" ) );
+            assertEquals( 2, table.size() );
+        } finally {
+            table.close();
+        }
+    }
+
+    @Test
+    public void testFirstEntryIsKept()
+                            throws IOException {
+        FeatureReferenceTable table = new FeatureReferenceTable( 100, dir );
+        try {
+            table.put( "a", 1 );
+            table.put( "a", 2 );
+            assertEquals( 1, table.get( "a" ) );
+            assertEquals( 1, table.size() );
+        } finally {
+            table.close();
+        }
+    }
+
+    @Test
+    public void testSpill()
+                            throws IOException {
+        FeatureReferenceTable table = new FeatureReferenceTable( 10, dir );
+        try {
+            for ( int i = 0; i < 5000; ++i ) {
+                table.put( "id" + i, i / 2 );
+            }
+            assertEquals( 5000, table.size() );
+            assertTrue( "No ids have been spilled.", FileUtils.listFiles( dir, null, true ).size() > 0 );
+            for ( int i = 0; i < 5000; ++i ) {
+                assertEquals( i / 2, table.get( "id" + i ) );
+            }
+            for ( int i = 5000; i < 6000; ++i ) {
+                assertEquals( -1, table.get( "id" + i ) );
+            }
+            // spilled entries are kept as well
+            table.put( "id0", 4711 );
+            assertEquals( 0, table.get( "id0" ) );
+            assertEquals( 5000, table.size() );
+        } finally {
+            table.close();
+        }
+    }
+
+    @Test
+    public void testStoredIds()
+                            throws IOException {
+        FeatureReferenceTable table = new FeatureReferenceTable( 100, dir );
+        try {
+            table.put( "a", 0 );
+            table.put( "b", 1 );
+            assertNull( table.getStoredId( "a" ) );
+            table.putStoredId( "a", "FEATURE_1" );
+            table.putStoredId( "c", "FEATURE_2" );
+            assertEquals( "FEATURE_1", table.getStoredId( "a" ) );
+            assertEquals( 0, table.get( "a" ) );
+            assertNull( table.getStoredId( "b" ) );
+            assertNull( table.getStoredId( "c" ) );
+            assertEquals( -1, table.get( "c" ) );
+            assertEquals( 2, table.size() );
+        } finally {
+            table.close();
+        }
+    }
+
+    @Test
+    public void testStoredIdsSpill()
+                            throws IOException {
+        FeatureReferenceTable table = new FeatureReferenceTable( 10, dir );
+        try {
+            for ( int i = 0; i < 5000; ++i ) {
+                table.put( "id" + i, i / 2 );
+            }
+            for ( int i = 0; i < 5000; i += 2 ) {
+                table.putStoredId( "id" + i, "stored" + i );
+            }
+            assertEquals( 5000, table.size() );
+            for ( int i = 0; i < 5000; ++i ) {
+                assertEquals( i / 2, table.get( "id" + i ) );
+                if ( i % 2 == 0 ) {
+                    assertEquals( "stored" + i, table.getStoredId( "id" + i ) );
+                } else {
+                    assertNull( table.getStoredId( "id" + i ) );
+                }
+            }
+        } finally {
+            table.close();
+        }
+    }
+
+    @Test
+    public void testCloseRemovesSpillFiles()
+                            throws IOException {
+        FeatureReferenceTable table = new FeatureReferenceTable( 1, dir );
+        for ( int i = 0; i < 100; ++i ) {
+            table.put( "id" + i, i );
+        }
+        table.close();
+        assertEquals( 0, dir.list().length );
+    }
+
+}
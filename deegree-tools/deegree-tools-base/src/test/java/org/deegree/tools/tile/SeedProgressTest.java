@@ -0,0 +1,157 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+
+package org.deegree.tools.tile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SeedProgress}.
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class SeedProgressTest {
+
+    private File file;
+
+    @Before
+    public void setUp()
+                            throws IOException {
+        file = File.createTempFile( "seedprogress", ".properties" );
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testWatermarkAdvancesOverLeadingBatches()
+                            throws IOException {
+        SeedProgress progress = new SeedProgress( null, "job" );
+        progress.complete( 1 );
+        progress.complete( 2 );
+        assertEquals( 0, progress.getWatermark() );
+        assertFalse( progress.isCompleted( 1 ) );
+        progress.complete( 0 );
+        assertEquals( 3, progress.getWatermark() );
+        assertTrue( progress.isCompleted( 1 ) );
+    }
+
+    @Test
+    public void testFailedBatchDoesNotStopWatermark()
+                            throws IOException {
+        SeedProgress progress = new SeedProgress( null, "job" );
+        progress.fail( 0 );
+        for ( int i = 1; i <= 1000; ++i ) {
+            progress.complete( i );
+        }
+        assertEquals( 1001, progress.getWatermark() );
+        assertEquals( 1, progress.getFailedCount() );
+        assertFalse( progress.isCompleted( 0 ) );
+        assertTrue( progress.isCompleted( 1 ) );
+    }
+
+    @Test
+    public void testResumeRetriesFailedBatches()
+                            throws IOException {
+        SeedProgress progress = new SeedProgress( file, "job" );
+        progress.complete( 0 );
+        progress.fail( 1 );
+        progress.complete( 2 );
+        progress.complete( 4 );
+        progress.save();
+
+        progress = new SeedProgress( file, "job" );
+        assertEquals( 3, progress.getWatermark() );
+        assertEquals( 1, progress.getFailedCount() );
+        assertTrue( progress.isCompleted( 0 ) );
+        assertFalse( progress.isCompleted( 1 ) );
+        assertTrue( progress.isCompleted( 2 ) );
+        assertFalse( progress.isCompleted( 4 ) );
+
+        progress.complete( 1 );
+        progress.save();
+        progress = new SeedProgress( file, "job" );
+        assertEquals( 3, progress.getWatermark() );
+        assertEquals( 0, progress.getFailedCount() );
+        assertTrue( progress.isCompleted( 1 ) );
+    }
+
+    @Test
+    public void testProgressOfOtherJobIsIgnored()
+                            throws IOException {
+        SeedProgress progress = new SeedProgress( file, "job" );
+        progress.fail( 0 );
+        progress.complete( 1 );
+        progress.save();
+
+        progress = new SeedProgress( file, "other job" );
+        assertEquals( 0, progress.getWatermark() );
+        assertEquals( 0, progress.getFailedCount() );
+    }
+
+    @Test
+    public void testDelete()
+                            throws IOException {
+        SeedProgress progress = new SeedProgress( file, "job" );
+        progress.complete( 0 );
+        progress.save();
+        assertTrue( file.exists() );
+        progress.delete();
+        assertFalse( file.exists() );
+    }
+
+}
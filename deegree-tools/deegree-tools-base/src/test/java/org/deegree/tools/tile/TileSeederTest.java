@@ -0,0 +1,267 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ Occam Labs UG (haftungsbeschränkt)
+ Godesberger Allee 139, 53175 Bonn
+ Germany
+ http://www.occamlabs.de/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+
+
+package org.deegree.tools.tile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.deegree.commons.config.DeegreeWorkspace;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.geometry.metadata.SpatialMetadata;
+import org.deegree.tile.Tile;
+import org.deegree.tile.TileDataLevel;
+import org.deegree.tile.TileDataSet;
+import org.deegree.tile.TileIOException;
+import org.deegree.tile.TileMatrix;
+import org.deegree.tile.persistence.TileStore;
+import org.deegree.tile.persistence.TileStoreTransaction;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the batching of {@link TileSeeder}.
+ * 
+ * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
+ * @author last edited by: $Author$
+ * 
+ * @version $Revision$, $Date$
+ */
+public class TileSeederTest {
+
+    private static final int NUM_TILES_X = 10;
+
+    private static final int NUM_TILES_Y = 3;
+
+    private static final int BATCH_SIZE = 4;
+
+    // batches per row: 0-3, 4-7, 8-9
+    private static final int NUM_BATCHES = 3 * NUM_TILES_Y;
+
+    private TileDataLevel level;
+
+    private Envelope bbox;
+
+    private RecordingTileStore store;
+
+    @Before
+    public void setUp() {
+        bbox = new GeometryFactory().createEnvelope( 0, 0, NUM_TILES_X, NUM_TILES_Y, null );
+        SpatialMetadata smd = new SpatialMetadata( bbox, Collections.<ICRS> emptyList() );
+        final TileMatrix md = new TileMatrix( "0", smd, 256, 256, 1.0 / 256, NUM_TILES_X, NUM_TILES_Y );
+        level = new TileDataLevel() {
+            @Override
+            public TileMatrix getMetadata() {
+                return md;
+            }
+
+            @Override
+            public Tile getTile( long x, long y ) {
+                return null;
+            }
+        };
+        store = new RecordingTileStore();
+    }
+
+    @Test
+    public void testTruncateUsesOneTransactionPerBatch()
+                            throws IOException, InterruptedException {
+        assertTrue( createSeeder().run( true, new SeedProgress( null, "job" ) ) );
+        assertEquals( NUM_BATCHES, store.transactions.size() );
+        Set<String> deleted = new HashSet<String>();
+        for ( RecordingTransaction ta : store.transactions ) {
+            assertTrue( ta.tiles.size() <= BATCH_SIZE );
+            long[] first = ta.tiles.get( 0 );
+            assertEquals( 0, first[0] % BATCH_SIZE );
+            for ( int i = 0; i < ta.tiles.size(); ++i ) {
+                long[] tile = ta.tiles.get( i );
+                // consecutive tiles of the same row
+                assertEquals( first[0] + i, tile[0] );
+                assertEquals( first[1], tile[1] );
+                assertTrue( deleted.add( tile[0] + "/" + tile[1] ) );
+            }
+        }
+        assertEquals( NUM_TILES_X * NUM_TILES_Y, deleted.size() );
+    }
+
+    @Test
+    public void testSeedRequestsEveryTileOnce()
+                            throws IOException, InterruptedException {
+        assertTrue( createSeeder().run( false, new SeedProgress( null, "job" ) ) );
+        assertEquals( 0, store.transactions.size() );
+        assertEquals( NUM_TILES_X * NUM_TILES_Y, store.requested.size() );
+        assertEquals( NUM_TILES_X * NUM_TILES_Y, new HashSet<String>( store.requested ).size() );
+    }
+
+    @Test
+    public void testResumeSkipsCompletedBatches()
+                            throws IOException, InterruptedException {
+        SeedProgress progress = new SeedProgress( null, "job" );
+        for ( int i = 0; i < 5; ++i ) {
+            progress.complete( i );
+        }
+        assertTrue( createSeeder().run( true, progress ) );
+        assertEquals( NUM_BATCHES - 5, store.transactions.size() );
+        int tiles = 0;
+        for ( RecordingTransaction ta : store.transactions ) {
+            tiles += ta.tiles.size();
+        }
+        // batches 0 to 4 cover the first row (10 tiles) and the first two batches of the second row
+        assertEquals( NUM_TILES_X * NUM_TILES_Y - 10 - 2 * BATCH_SIZE, tiles );
+        assertEquals( NUM_BATCHES, progress.getWatermark() );
+    }
+
+    @Test
+    public void testFailedBatchIsRetried()
+                            throws IOException, InterruptedException {
+        SeedProgress progress = new SeedProgress( null, "job" );
+        store.failing.add( "5/1" );
+        assertFalse( createSeeder().run( true, progress ) );
+        assertEquals( NUM_BATCHES, progress.getWatermark() );
+        assertEquals( 1, progress.getFailedCount() );
+        assertFalse( progress.isCompleted( 4 ) );
+
+        store.failing.clear();
+        store.transactions.clear();
+        assertTrue( createSeeder().run( true, progress ) );
+        assertEquals( 1, store.transactions.size() );
+        List<long[]> tiles = store.transactions.get( 0 ).tiles;
+        assertEquals( BATCH_SIZE, tiles.size() );
+        assertEquals( 4, tiles.get( 0 )[0] );
+        assertEquals( 1, tiles.get( 0 )[1] );
+        assertEquals( 0, progress.getFailedCount() );
+    }
+
+    private TileSeeder createSeeder() {
+        return new TileSeeder( store, "set", null, null, Collections.singletonList( level ), bbox, null, 3,
+                               BATCH_SIZE );
+    }
+
+    private static class RecordingTileStore implements TileStore {
+
+        private final List<RecordingTransaction> transactions = Collections.synchronizedList( new ArrayList<RecordingTransaction>() );
+
+        private final List<String> requested = Collections.synchronizedList( new ArrayList<String>() );
+
+        private final Set<String> failing = Collections.synchronizedSet( new HashSet<String>() );
+
+        @Override
+        public void init( DeegreeWorkspace workspace ) {
+            // nothing to do
+        }
+
+        @Override
+        public void destroy() {
+            // nothing to do
+        }
+
+        @Override
+        public TileDataSet getTileDataSet( String tileDataSet ) {
+            return null;
+        }
+
+        @Override
+        public Collection<String> getTileDataSetIds() {
+            return Collections.singletonList( "set" );
+        }
+
+        @Override
+        public Iterator<Tile> getTiles( String tileDataSet, Envelope envelope, double resolution ) {
+            return null;
+        }
+
+        @Override
+        public Tile getTile( String tileDataSet, String tileDataLevel, int x, int y ) {
+            requested.add( x + "/" + y );
+            return null;
+        }
+
+        @Override
+        public TileStoreTransaction acquireTransaction( String tileDataSet ) {
+            RecordingTransaction ta = new RecordingTransaction( failing );
+            transactions.add( ta );
+            return ta;
+        }
+    }
+
+    private static class RecordingTransaction implements TileStoreTransaction {
+
+        private final List<long[]> tiles = new ArrayList<long[]>();
+
+        private final Set<String> failing;
+
+        RecordingTransaction( Set<String> failing ) {
+            this.failing = failing;
+        }
+
+        @Override
+        public void put( String tileDataLevel, Tile tile, long x, long y ) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void delete( String tileDataLevel, long x, long y ) {
+            if ( failing.contains( x + "/" + y ) ) {
+                throw new TileIOException( "Could not delete tile." );
+            }
+            tiles.add( new long[] { x, y } );
+        }
+
+        @Override
+        public void delete( String tileDataLevel, Envelope envelope ) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}